@@ -47,6 +47,7 @@ import org.neo4j.bolt.v1.runtime.BoltWorker;
 import org.neo4j.bolt.v1.runtime.LifecycleManagedBoltFactory;
 import org.neo4j.bolt.v1.runtime.MonitoredWorkerFactory;
 import org.neo4j.bolt.v1.runtime.WorkerFactory;
+import org.neo4j.bolt.v1.runtime.concurrent.PooledWorkerFactory;
 import org.neo4j.bolt.v1.runtime.concurrent.ThreadedWorkerFactory;
 import org.neo4j.bolt.v1.transport.BoltProtocolV1;
 import org.neo4j.graphdb.GraphDatabaseService;
@@ -80,9 +81,12 @@ import static java.lang.String.format;
 import static java.util.stream.Collectors.toList;
 
 import static org.neo4j.graphdb.factory.GraphDatabaseSettings.boltConnectors;
+import static org.neo4j.kernel.configuration.Settings.INTEGER;
 import static org.neo4j.kernel.configuration.Settings.PATH;
 import static org.neo4j.kernel.configuration.Settings.derivedSetting;
+import static org.neo4j.kernel.configuration.Settings.min;
 import static org.neo4j.kernel.configuration.Settings.pathSetting;
+import static org.neo4j.kernel.configuration.Settings.setting;
 import static org.neo4j.kernel.impl.util.JobScheduler.Groups.boltNetworkIO;
 
 /**
@@ -108,6 +112,13 @@ public class BoltKernelExtension extends KernelExtensionFactory<BoltKernelExtens
         public static final Setting<File> tls_key_file =
                 derivedSetting( "unsupported.dbms.security.tls_key_file", certificates_directory,
                         ( certificates ) -> new File( certificates, "neo4j.key" ), PATH );
+
+        @Internal
+        @Description( "The number of threads shared by all Bolt sessions for executing their requests. A session " +
+                      "only holds on to a thread while it has requests queued or a transaction open. When set to 0, " +
+                      "every session gets a thread of its own." )
+        public static final Setting<Integer> worker_pool_size =
+                setting( "unsupported.dbms.bolt.worker_pool_size", INTEGER, "0", min( 0 ) );
     }
 
     public interface Dependencies
@@ -158,8 +169,12 @@ public class BoltKernelExtension extends KernelExtensionFactory<BoltKernelExtens
         BoltFactory boltConnectionManagerFactory = life.add(
                 new LifecycleManagedBoltFactory( api, dependencies.usageData(), logService, dependencies.txBridge(),
                         authentication, dependencies.sessionTracker() ) );
-        ThreadedWorkerFactory threadedSessions = new ThreadedWorkerFactory( boltConnectionManagerFactory, scheduler, logService );
-        WorkerFactory workerFactory = new MonitoredWorkerFactory( dependencies.monitors(), threadedSessions,
+        int workerPoolSize = config.get( Settings.worker_pool_size );
+        WorkerFactory sessions = workerPoolSize > 0
+                ? life.add( new PooledWorkerFactory( boltConnectionManagerFactory, scheduler, logService,
+                        workerPoolSize ) )
+                : new ThreadedWorkerFactory( boltConnectionManagerFactory, scheduler, logService );
+        WorkerFactory workerFactory = new MonitoredWorkerFactory( dependencies.monitors(), sessions,
                 Clocks.systemClock() );
 
         List<ProtocolInitializer> connectors = boltConnectors( config ).stream()
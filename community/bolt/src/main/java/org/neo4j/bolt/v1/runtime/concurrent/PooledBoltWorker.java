@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.bolt.v1.runtime.concurrent;
+
+import org.neo4j.bolt.v1.runtime.BoltStateMachine;
+import org.neo4j.bolt.v1.runtime.BoltWorker;
+import org.neo4j.bolt.v1.runtime.Job;
+import org.neo4j.kernel.impl.logging.LogService;
+import org.neo4j.logging.Log;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Executes incoming Bolt requests for a given connection, on threads borrowed from a pool shared with other
+ * connections.
+ *
+ * The worker is scheduled on the pool when a request is queued, and gives the thread back once the queue is empty,
+ * unless the session has an open transaction, in which case it holds on to the thread until the transaction is done.
+ * Requests of a session are always executed one at a time, in the order they were queued.
+ */
+class PooledBoltWorker implements BoltWorker
+{
+    private static final int workQueueSize = Integer.getInteger( "org.neo4j.bolt.workQueueSize", 100 );
+    /** Give the thread back to the pool after this many requests in a row, to let other sessions have a go. */
+    private static final int maxJobsPerTurn = workQueueSize;
+
+    private final ArrayBlockingQueue<Job> jobQueue = new ArrayBlockingQueue<>( workQueueSize );
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final BoltStateMachine machine;
+    private final Executor executor;
+    private final Log log;
+    private final Log userLog;
+    private volatile boolean keepRunning = true;
+
+    PooledBoltWorker( BoltStateMachine machine, Executor executor, LogService logging )
+    {
+        this.machine = machine;
+        this.executor = executor;
+        this.log = logging.getInternalLog( getClass() );
+        this.userLog = logging.getUserLog( getClass() );
+    }
+
+    /**
+     * Accept a command to be executed at some point in the future. This will get queued and executed as soon as
+     * a thread in the pool is available.
+     * @param job an operation to be performed on the session
+     */
+    @Override
+    public void enqueue( Job job )
+    {
+        try
+        {
+            jobQueue.put( job );
+        }
+        catch ( InterruptedException e )
+        {
+            throw new RuntimeException( "Worker interrupted while queueing request, the session may have been " +
+                    "forcibly closed, or the database may be shutting down." );
+        }
+        schedule();
+    }
+
+    private void schedule()
+    {
+        if ( keepRunning && scheduled.compareAndSet( false, true ) )
+        {
+            try
+            {
+                executor.execute( this::executeJobs );
+            }
+            catch ( RuntimeException e )
+            {
+                scheduled.set( false );
+                throw e;
+            }
+        }
+    }
+
+    private void executeJobs()
+    {
+        try
+        {
+            for ( int jobCount = 0; keepRunning; )
+            {
+                Job job = nextJob();
+                if ( job == null )
+                {
+                    break;
+                }
+                job.perform( machine );
+
+                if ( ++jobCount >= maxJobsPerTurn && !inTransaction() )
+                {
+                    // Go to the back of the line, still scheduled, so other sessions get to use the thread too
+                    executor.execute( this::executeJobs );
+                    return;
+                }
+            }
+        }
+        catch ( Throwable e )
+        {
+            log.error( "Worker for session '" + machine.key() + "' crashed: " + e.getMessage(), e );
+            userLog.error( "Fatal, worker for session '" + machine.key() + "' crashed. Please" +
+                           " contact your support representative if you are unable to resolve this.", e );
+
+            // Attempt to close the session, as an effort to release locks and other resources held by the session
+            halt();
+        }
+
+        scheduled.set( false );
+        // A request may have been queued after we last looked, while we were still scheduled
+        if ( !jobQueue.isEmpty() )
+        {
+            schedule();
+        }
+    }
+
+    private Job nextJob() throws InterruptedException
+    {
+        Job job = jobQueue.poll();
+        while ( job == null && keepRunning && inTransaction() )
+        {
+            // The transaction is bound to this thread, so keep it until the transaction is done
+            job = jobQueue.poll( 10, TimeUnit.SECONDS );
+        }
+        return job;
+    }
+
+    private boolean inTransaction()
+    {
+        return machine.statementProcessor().hasTransaction();
+    }
+
+    @Override
+    public void interrupt()
+    {
+        machine.interrupt();
+    }
+
+    @Override
+    public void halt()
+    {
+        try
+        {
+            machine.close();
+        }
+        finally
+        {
+            keepRunning = false;
+        }
+    }
+}
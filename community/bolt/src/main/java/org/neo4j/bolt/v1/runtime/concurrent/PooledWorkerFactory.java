@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.bolt.v1.runtime.concurrent;
+
+import java.time.Clock;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.neo4j.bolt.v1.runtime.BoltFactory;
+import org.neo4j.bolt.v1.runtime.BoltStateMachine;
+import org.neo4j.bolt.v1.runtime.BoltWorker;
+import org.neo4j.bolt.v1.runtime.WorkerFactory;
+import org.neo4j.kernel.impl.logging.LogService;
+import org.neo4j.kernel.impl.util.JobScheduler;
+import org.neo4j.kernel.lifecycle.LifecycleAdapter;
+
+import static org.neo4j.kernel.impl.util.JobScheduler.Groups.boltWorkerPool;
+
+/**
+ * A {@link WorkerFactory} implementation that executes the requests of all sessions on a fixed size pool of threads,
+ * rather than starting a thread for every session like the {@link ThreadedWorkerFactory} does.
+ *
+ * A session only occupies a pool thread while it has requests queued, or while it has an open transaction. The latter
+ * is what keeps us clear of the deadlocks that sharing threads between sessions could otherwise cause: a transaction
+ * is bound to the thread executing it, and a session waiting for locks held by another session never waits for a
+ * thread that the other session needs in order to finish. The price is that the pool can be exhausted by sessions
+ * sitting in open transactions, in which case requests from other sessions queue up until a transaction finishes.
+ * The time requests spend waiting for a pool thread shows up as queue time in the Bolt metrics.
+ */
+public class PooledWorkerFactory extends LifecycleAdapter implements WorkerFactory
+{
+    private final BoltFactory connector;
+    private final JobScheduler scheduler;
+    private final LogService logging;
+    private final int poolSize;
+    private ExecutorService executor;
+
+    public PooledWorkerFactory( BoltFactory connector, JobScheduler scheduler, LogService logging, int poolSize )
+    {
+        this.connector = connector;
+        this.scheduler = scheduler;
+        this.logging = logging;
+        this.poolSize = poolSize;
+    }
+
+    @Override
+    public void start() throws Throwable
+    {
+        executor = Executors.newFixedThreadPool( poolSize, scheduler.threadFactory( boltWorkerPool ) );
+    }
+
+    @Override
+    public void stop() throws Throwable
+    {
+        // Interrupt the threads held on to by sessions with open transactions, those sessions are being closed anyway.
+        executor.shutdownNow();
+        executor.awaitTermination( 10, TimeUnit.SECONDS );
+    }
+
+    @Override
+    public BoltWorker newWorker( String connectionDescriptor, Runnable onClose )
+    {
+        BoltStateMachine machine = connector.newMachine( connectionDescriptor, onClose, Clock.systemUTC() );
+        return new PooledBoltWorker( machine, executor, logging );
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.bolt.v1.runtime.concurrent;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.neo4j.bolt.v1.runtime.BoltStateMachine;
+import org.neo4j.bolt.v1.runtime.cypher.StatementProcessor;
+import org.neo4j.kernel.impl.logging.NullLogService;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PooledBoltWorkerTest
+{
+    private final ExecutorService pool = Executors.newSingleThreadExecutor();
+
+    @After
+    public void shutdownPool()
+    {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void shouldExecuteWorkOnPoolThread() throws Throwable
+    {
+        // Given
+        BoltStateMachine machine = machine( new AtomicBoolean() );
+        PooledBoltWorker worker = new PooledBoltWorker( machine, Runnable::run, NullLogService.getInstance() );
+
+        // When
+        worker.enqueue( s -> s.run( "Hello, world!", null, null ) );
+
+        // Then
+        verify( machine ).run( "Hello, world!", null, null );
+        verify( machine, never() ).close();
+    }
+
+    @Test
+    public void shouldOnlyBeScheduledOnceWhileJobsAreQueued() throws Throwable
+    {
+        // Given
+        List<Runnable> scheduled = new ArrayList<>();
+        BoltStateMachine machine = machine( new AtomicBoolean() );
+        PooledBoltWorker worker = new PooledBoltWorker( machine, scheduled::add, NullLogService.getInstance() );
+
+        // When
+        worker.enqueue( s -> s.run( "first", null, null ) );
+        worker.enqueue( s -> s.run( "second", null, null ) );
+
+        // Then
+        assertEquals( 1, scheduled.size() );
+        scheduled.remove( 0 ).run();
+        verify( machine ).run( "first", null, null );
+        verify( machine ).run( "second", null, null );
+
+        // And when the queue has been drained, the worker is scheduled again for the next job
+        worker.enqueue( s -> s.run( "third", null, null ) );
+        assertEquals( 1, scheduled.size() );
+    }
+
+    @Test
+    public void errorThrownDuringExecutionShouldCauseSessionClose() throws Throwable
+    {
+        // Given
+        BoltStateMachine machine = machine( new AtomicBoolean() );
+        PooledBoltWorker worker = new PooledBoltWorker( machine, Runnable::run, NullLogService.getInstance() );
+
+        // When
+        worker.enqueue( s -> {
+            throw new RuntimeException( "It didn't work out." );
+        } );
+
+        // Then
+        verify( machine ).close();
+    }
+
+    @Test
+    public void shouldHoldOnToThreadWhileTransactionIsOpen() throws Throwable
+    {
+        // Given a pool with a single thread, and a session that opens a transaction
+        AtomicBoolean inTransaction = new AtomicBoolean();
+        PooledBoltWorker txWorker = new PooledBoltWorker( machine( inTransaction ), pool,
+                NullLogService.getInstance() );
+        PooledBoltWorker otherWorker = new PooledBoltWorker( machine( new AtomicBoolean() ), pool,
+                NullLogService.getInstance() );
+        CountDownLatch otherDone = new CountDownLatch( 1 );
+        txWorker.enqueue( s -> inTransaction.set( true ) );
+
+        // When
+        otherWorker.enqueue( s -> otherDone.countDown() );
+
+        // Then the other session has to wait for the transaction to finish
+        assertFalse( otherDone.await( 100, TimeUnit.MILLISECONDS ) );
+        txWorker.enqueue( s -> inTransaction.set( false ) );
+        assertTrue( otherDone.await( 10, TimeUnit.SECONDS ) );
+    }
+
+    private BoltStateMachine machine( AtomicBoolean inTransaction )
+    {
+        StatementProcessor statementProcessor = mock( StatementProcessor.class );
+        when( statementProcessor.hasTransaction() ).then( invocation -> inTransaction.get() );
+        BoltStateMachine machine = mock( BoltStateMachine.class );
+        when( machine.statementProcessor() ).thenReturn( statementProcessor );
+        when( machine.key() ).thenReturn( "test-session" );
+        return machine;
+    }
+}
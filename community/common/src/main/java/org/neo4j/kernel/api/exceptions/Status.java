@@ -147,6 +147,9 @@ public interface Status
         TransactionTimedOut( ClientError,
                 "The transaction has not completed within the specified timeout. You may want to retry with a longer " +
                 "timeout." ),
+        TransactionStateTooLarge( ClientError,
+                "The transaction has changed more data than the configured limit of its state allows. You may " +
+                "want to split the work into smaller transactions, or raise 'dbms.transaction.state_max_size'." ),
         InvalidBookmark( ClientError,
                 "Supplied bookmark cannot be interpreted. You should only supply a bookmark previously that was " +
                 "previously generated by Neo4j. Maybe you have generated your own bookmark, " +
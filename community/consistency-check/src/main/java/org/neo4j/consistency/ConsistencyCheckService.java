@@ -44,7 +44,7 @@ import org.neo4j.io.pagecache.PageCache;
 import org.neo4j.io.pagecache.tracing.PageCacheTracer;
 import org.neo4j.kernel.api.direct.DirectStoreAccess;
 import org.neo4j.kernel.api.impl.index.storage.DirectoryFactory;
-import org.neo4j.kernel.api.impl.schema.LuceneSchemaIndexProvider;
+import org.neo4j.kernel.api.impl.schema.LuceneSchemaIndexProviderFactory;
 import org.neo4j.kernel.api.index.SchemaIndexProvider;
 import org.neo4j.kernel.api.labelscan.LabelScanStore;
 import org.neo4j.kernel.configuration.Config;
@@ -150,8 +150,8 @@ public class ConsistencyCheckService
                 labelScanStore = new LuceneLabelScanStoreBuilder(
                         storeDir, fullStoreLabelUpdateStream( () -> indexStoreView ),
                         fileSystem, consistencyCheckerConfig, operationalMode, logProvider ).build();
-                SchemaIndexProvider indexes = new LuceneSchemaIndexProvider(
-                        fileSystem,
+                SchemaIndexProvider indexes = LuceneSchemaIndexProviderFactory.newSchemaIndexProvider(
+                        pageCache, fileSystem,
                         DirectoryFactory.PERSISTENT,
                         storeDir, logProvider, consistencyCheckerConfig, operationalMode );
 
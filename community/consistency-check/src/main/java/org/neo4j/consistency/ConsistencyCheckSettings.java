@@ -23,8 +23,10 @@ import org.neo4j.graphdb.config.Setting;
 import org.neo4j.graphdb.factory.Description;
 
 import static org.neo4j.kernel.configuration.Settings.BOOLEAN;
+import static org.neo4j.kernel.configuration.Settings.BYTES;
 import static org.neo4j.kernel.configuration.Settings.FALSE;
 import static org.neo4j.kernel.configuration.Settings.TRUE;
+import static org.neo4j.kernel.configuration.Settings.min;
 import static org.neo4j.kernel.configuration.Settings.setting;
 
 /**
@@ -48,4 +50,10 @@ public class ConsistencyCheckSettings
 
     @Description( "Perform checks between nodes, relationships, properties, types and tokens." )
     public static final Setting<Boolean> consistency_check_graph = setting( "tools.consistency_checker.check_graph", BOOLEAN, TRUE );
+
+    @Description( "Memory to use for caching node information while checking relationships. " +
+            "If the nodes of the database don't fit, the node id space is split into ranges that fit and " +
+            "the relationship store is checked once per range. 0 means that all nodes are checked in one range." )
+    public static final Setting<Long> consistency_check_node_cache_memory =
+            setting( "tools.consistency_checker.node_cache_memory", BYTES, "0", min( 0L ) );
 }
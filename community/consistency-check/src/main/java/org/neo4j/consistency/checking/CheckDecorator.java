@@ -37,6 +37,12 @@ public interface CheckDecorator
      */
     void prepare();
 
+    /**
+     * Called before the stages keyed by node id are run for the next range of node ids,
+     * see {@link org.neo4j.consistency.checking.cache.CacheAccess#setCacheRange(long, long)}.
+     */
+    void prepareForNodeRange();
+
     OwningRecordCheck<NeoStoreRecord, ConsistencyReport.NeoStoreConsistencyReport> decorateNeoStoreChecker(
             OwningRecordCheck<NeoStoreRecord, ConsistencyReport.NeoStoreConsistencyReport> checker );
 
@@ -73,6 +79,11 @@ public interface CheckDecorator
         {
         }
 
+        @Override
+        public void prepareForNodeRange()
+        {
+        }
+
         @Override
         public OwningRecordCheck<NeoStoreRecord, ConsistencyReport.NeoStoreConsistencyReport> decorateNeoStoreChecker(
                 OwningRecordCheck<NeoStoreRecord, ConsistencyReport.NeoStoreConsistencyReport> checker )
@@ -155,6 +166,15 @@ public interface CheckDecorator
             }
         }
 
+        @Override
+        public void prepareForNodeRange()
+        {
+            for ( CheckDecorator decorator : decorators )
+            {
+                decorator.prepareForNodeRange();
+            }
+        }
+
         @Override
         public OwningRecordCheck<NeoStoreRecord,ConsistencyReport.NeoStoreConsistencyReport> decorateNeoStoreChecker(
                 OwningRecordCheck<NeoStoreRecord,ConsistencyReport.NeoStoreConsistencyReport> checker )
@@ -191,15 +191,19 @@ enum NodeField implements
                                   CheckerEngine<RelationshipRecord, ConsistencyReport.RelationshipConsistencyReport> engine,
                                   RecordAccess records )
     {
+        CacheAccess.Client client = records.cacheAccess().client();
         if ( valueFrom( relationship ) < 0 )
         {
-            illegalNode( engine.report() );
+            // reported once, together with the first range of node ids
+            if ( client.withinRange( 0 ) )
+            {
+                illegalNode( engine.report() );
+            }
         }
-        else
+        else if ( client.withinRange( valueFrom( relationship ) ) )
         {
             // build the node record from cached values with only valid fields as id, inUse, and nextRel.
             NodeRecord node = new NodeRecord( valueFrom( relationship ) );
-            CacheAccess.Client client = records.cacheAccess().client();
             node.setInUse( client.getFromCache( node.getId(), SLOT_SOURCE_OR_TARGET ) != RelationshipLink.SOURCE );
             node.setNextRel( client.getFromCache( node.getId(), SLOT_RELATIONSHIP_ID ) );
 
@@ -64,6 +64,16 @@ public class RelationshipRecordCheck extends
         return new RelationshipRecordCheck( RelationshipTypeField.RELATIONSHIP_TYPE );
     }
 
+    /**
+     * @return a check which doesn't check any fields, for passes over the relationship store where the fields
+     * have already been checked together with an earlier range of node ids.
+     */
+    public static RelationshipRecordCheck relationshipRecordCheckWithoutFields()
+    {
+        return new RelationshipRecordCheck(
+                ArrayUtil.<RecordField<RelationshipRecord,ConsistencyReport.RelationshipConsistencyReport>>array() );
+    }
+
     @SafeVarargs
     public static RelationshipRecordCheck relationshipRecordCheckBackwardPass(
             RecordField<RelationshipRecord,ConsistencyReport.RelationshipConsistencyReport>... additional )
@@ -117,6 +117,16 @@ public interface CacheAccess
          * of the given {@code id}, otherwise {@code false}.
          */
         boolean withinBounds( long id );
+
+        /**
+         * Stages keyed by node id may only cache values for nodes in the current node id range,
+         * see {@link CacheAccess#setCacheRange(long, long)}.
+         *
+         * @param id the node id to check.
+         * @return {@code true} if values for the given {@code id} can be cached in the current range,
+         * otherwise {@code false}.
+         */
+        boolean withinRange( long id );
     }
 
     /**
@@ -155,6 +165,17 @@ public interface CacheAccess
 
     void prepareForProcessingOfSingleStore( long recordsPerCPU );
 
+    /**
+     * Limits cached values to ids in the range {@code [fromId, toId)}, so that the memory needed for the cache
+     * is bounded by the size of the range rather than by the highest id in the store. All previously cached
+     * values are discarded. Segments per thread, see {@link Client#withinBounds(long)}, are relative to
+     * {@code fromId} after this call.
+     *
+     * @param fromId first id, inclusive, to cache values for.
+     * @param toId last id, exclusive, to cache values for.
+     */
+    void setCacheRange( long fromId, long toId );
+
     Client EMPTY_CLIENT = new Client()
     {
         @Override
@@ -205,6 +226,12 @@ public interface CacheAccess
         {
             return false;
         }
+
+        @Override
+        public boolean withinRange( long id )
+        {
+            return true;
+        }
     };
 
     CacheAccess EMPTY = new CacheAccess()
@@ -240,5 +267,10 @@ public interface CacheAccess
         public void prepareForProcessingOfSingleStore( long recordsPerCPU )
         {
         }
+
+        @Override
+        public void setCacheRange( long fromId, long toId )
+        {
+        }
     };
 }
@@ -79,7 +79,7 @@ public abstract class CacheTask extends ConsistencyCheckerTask
                 while ( nodeRecords.hasNext() )
                 {
                     NodeRecord node = nodeRecords.next();
-                    if ( node.inUse() )
+                    if ( node.inUse() && client.withinRange( node.getId() ) )
                     {
                         fields[CacheSlots.NextRelationhip.SLOT_RELATIONSHIP_ID] = node.getNextRel();
                         client.putToCache( node.getId(), fields );
@@ -109,7 +109,8 @@ public abstract class CacheTask extends ConsistencyCheckerTask
             CacheAccess.Client client = cacheAccess.client();
             for ( long nodeId = 0; nodeId < nodeStore.getHighId(); nodeId++ )
             {
-                if ( client.getFromCache( nodeId, CacheSlots.NextRelationhip.SLOT_FIRST_IN_TARGET ) == 0 )
+                if ( client.withinRange( nodeId ) &&
+                     client.getFromCache( nodeId, CacheSlots.NextRelationhip.SLOT_FIRST_IN_TARGET ) == 0 )
                 {
                     // TODO reuse record instances?
                     NodeRecord node = nodeStore.getRecord( nodeId, nodeStore.newRecord(), FORCE );
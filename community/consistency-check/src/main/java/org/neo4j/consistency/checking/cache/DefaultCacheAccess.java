@@ -46,6 +46,8 @@ public class DefaultCacheAccess implements CacheAccess
     private boolean forwardScan = true;
     private final PackedMultiFieldCache cache;
     private long recordsPerCPU;
+    private long fromId;
+    private long toId = Long.MAX_VALUE;
     private final Counts counts;
 
     public DefaultCacheAccess( Counts counts, int threads )
@@ -92,6 +94,14 @@ public class DefaultCacheAccess implements CacheAccess
         this.recordsPerCPU = recordsPerCpu;
     }
 
+    @Override
+    public void setCacheRange( long fromId, long toId )
+    {
+        this.fromId = fromId;
+        this.toId = toId;
+        cache.reset();
+    }
+
     private class DefaultClient implements Client
     {
         private final int threadIndex;
@@ -104,25 +114,25 @@ public class DefaultCacheAccess implements CacheAccess
         @Override
         public long getFromCache( long id, int slot )
         {
-            return cache.get( id, slot );
+            return withinRange( id ) ? cache.get( id - fromId, slot ) : 0;
         }
 
         @Override
         public void putToCache( long id, long... values )
         {
-            cache.put( id, values );
+            cache.put( id - fromId, values );
         }
 
         @Override
         public void putToCacheSingle( long id, int slot, long value )
         {
-            cache.put( id, slot, value );
+            cache.put( id - fromId, slot, value );
         }
 
         @Override
         public void clearCache( long index )
         {
-            cache.clear( index );
+            cache.clear( index - fromId );
             counts.incAndGet( Counts.Type.clearCache, threadIndex );
             counts.incAndGet( Counts.Type.activeCache, threadIndex );
         }
@@ -130,14 +140,25 @@ public class DefaultCacheAccess implements CacheAccess
         @Override
         public boolean withinBounds( long id )
         {
+            if ( !withinRange( id ) )
+            {
+                return false;
+            }
             if ( recordsPerCPU == 0 )
             {
                 // We haven't split the id space into segments per thread
                 return true;
             }
 
-            return id >= threadIndex * recordsPerCPU &&
-                   id <= (threadIndex + 1) * recordsPerCPU;
+            long offset = id - fromId;
+            return offset >= threadIndex * recordsPerCPU &&
+                   offset <= (threadIndex + 1) * recordsPerCPU;
+        }
+
+        @Override
+        public boolean withinRange( long id )
+        {
+            return id >= fromId && id < toId;
         }
 
         @Override
@@ -84,6 +84,14 @@ public class PackedMultiFieldCache
         }
     }
 
+    /**
+     * Zeroes all values, as opposed to {@link #clear()} which sets them to their initial values.
+     */
+    public void reset()
+    {
+        array.clear();
+    }
+
     public void clear( long index )
     {
         put( index, initValues );
@@ -22,6 +22,7 @@ package org.neo4j.consistency.checking.full;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.neo4j.consistency.checking.CheckDecorator;
 import org.neo4j.consistency.checking.NodeRecordCheck;
 import org.neo4j.consistency.checking.PropertyChain;
 import org.neo4j.consistency.checking.RelationshipRecordCheck;
@@ -67,11 +68,14 @@ public class ConsistencyCheckTasks
     private final IndexAccessors indexes;
     private final CacheAccess cacheAccess;
     private final int numberOfThreads;
+    private final CheckDecorator decorator;
+    private final long nodesPerRange;
 
     ConsistencyCheckTasks( ProgressMonitorFactory.MultiPartBuilder progress,
             StoreProcessor defaultProcessor, StoreAccess nativeStores, Statistics statistics,
             CacheAccess cacheAccess, LabelScanStore labelScanStore,
-            IndexAccessors indexes, MultiPassStore.Factory multiPass, ConsistencyReporter reporter, int numberOfThreads )
+            IndexAccessors indexes, MultiPassStore.Factory multiPass, ConsistencyReporter reporter, int numberOfThreads,
+            CheckDecorator decorator, long nodesPerRange )
     {
         this.progress = progress;
         this.defaultProcessor = defaultProcessor;
@@ -83,6 +87,8 @@ public class ConsistencyCheckTasks
         this.labelScanStore = labelScanStore;
         this.indexes = indexes;
         this.numberOfThreads = numberOfThreads;
+        this.decorator = decorator;
+        this.nodesPerRange = nodesPerRange;
     }
 
     public List<ConsistencyCheckerTask> createTasksForFullCheck( boolean checkLabelScanStore, boolean checkIndexes,
@@ -92,41 +98,16 @@ public class ConsistencyCheckTasks
         if ( checkGraph )
         {
             MandatoryProperties mandatoryProperties = new MandatoryProperties( nativeStores );
-            StoreProcessor processor =
-                    multiPass.processor( CheckStage.Stage1_NS_PropsLabels, PROPERTIES );
-            tasks.add( create( CheckStage.Stage1_NS_PropsLabels.name(), nativeStores.getNodeStore(),
-                    processor, ROUND_ROBIN ) );
-            //ReltionshipStore pass - check label counts using cached labels, check properties, skip nodes and relationships
-            processor = multiPass.processor( CheckStage.Stage2_RS_Labels, LABELS );
-            multiPass.reDecorateRelationship( processor, RelationshipRecordCheck.relationshipRecordCheckForwardPass() );
-            tasks.add( create( CheckStage.Stage2_RS_Labels.name(), nativeStores.getRelationshipStore(),
-                    processor, ROUND_ROBIN ) );
-            //NodeStore pass - just cache nextRel and inUse
-            tasks.add( new CacheTask.CacheNextRel( CheckStage.Stage3_NS_NextRel, cacheAccess,
-                    Scanner.scan( nativeStores.getNodeStore() ) ) );
-            //RelationshipStore pass - check nodes inUse, FirstInFirst, FirstInSecond using cached info
-            processor = multiPass.processor( CheckStage.Stage4_RS_NextRel, NODES );
-            multiPass.reDecorateRelationship( processor, RelationshipRecordCheck.relationshipRecordCheckBackwardPass(
-                    new PropertyChain<>( mandatoryProperties.forRelationships( reporter ) ) ) );
-            tasks.add( create( CheckStage.Stage4_RS_NextRel.name(), nativeStores.getRelationshipStore(),
-                    processor, ROUND_ROBIN ) );
-            //NodeStore pass - just cache nextRel and inUse
-            multiPass.reDecorateNode( processor, NodeRecordCheck.toCheckNextRel(), true );
-            multiPass.reDecorateNode( processor, NodeRecordCheck.toCheckNextRelationshipGroup(), false );
-            tasks.add( new CacheTask.CheckNextRel( CheckStage.Stage5_Check_NextRel, cacheAccess, nativeStores, processor ) );
-            // source chain
-            //RelationshipStore pass - forward scan of source chain using the cache.
-            processor = multiPass.processor( CheckStage.Stage6_RS_Forward, RELATIONSHIPS );
-            multiPass.reDecorateRelationship( processor,
-                    RelationshipRecordCheck.relationshipRecordCheckSourceChain() );
-            tasks.add( create( CheckStage.Stage6_RS_Forward.name(), nativeStores.getRelationshipStore(),
-                    processor, QueueDistribution.RELATIONSHIPS ) );
-            //RelationshipStore pass - reverse scan of source chain using the cache.
-            processor = multiPass.processor( CheckStage.Stage7_RS_Backward, RELATIONSHIPS );
-            multiPass.reDecorateRelationship( processor,
-                    RelationshipRecordCheck.relationshipRecordCheckSourceChain() );
-            tasks.add( create( CheckStage.Stage7_RS_Backward.name(), nativeStores.getRelationshipStore(),
-                    processor, QueueDistribution.RELATIONSHIPS ) );
+            long nodeHighId = nativeStores.getNodeStore().getHighId();
+            boolean multipleRanges = nodesPerRange < nodeHighId;
+            long fromNodeId = 0;
+            for ( int range = 1; fromNodeId == 0 || fromNodeId < nodeHighId; range++ )
+            {
+                long toNodeId = nodeHighId - fromNodeId > nodesPerRange ? fromNodeId + nodesPerRange : Long.MAX_VALUE;
+                String suffix = multipleRanges ? "_range_" + range : "";
+                createTasksForNodeRange( tasks, fromNodeId, toNodeId, suffix, mandatoryProperties );
+                fromNodeId = toNodeId;
+            }
 
             //relationshipGroup
             StoreProcessor relGrpProcessor = multiPass.processor( Stage.PARALLEL_FORWARD, RELATIONSHIP_GROUPS );
@@ -199,6 +180,56 @@ public class ConsistencyCheckTasks
         return tasks;
     }
 
+    /**
+     * The stages that cache information per node. The first range checks everything they check, whereas
+     * following ranges only check what is keyed by the nodes in their range.
+     */
+    private void createTasksForNodeRange( List<ConsistencyCheckerTask> tasks, long fromNodeId, long toNodeId,
+            String suffix, MandatoryProperties mandatoryProperties )
+    {
+        boolean firstRange = fromNodeId == 0;
+        tasks.add( new NodeRangeTask( "NodeRange" + suffix, fromNodeId, toNodeId, cacheAccess, decorator ) );
+        StoreProcessor processor =
+                multiPass.processor( CheckStage.Stage1_NS_PropsLabels, PROPERTIES );
+        tasks.add( create( CheckStage.Stage1_NS_PropsLabels.name() + suffix, nativeStores.getNodeStore(),
+                processor, ROUND_ROBIN, fromNodeId, toNodeId ) );
+        //ReltionshipStore pass - check label counts using cached labels, check properties, skip nodes and relationships
+        processor = multiPass.processor( CheckStage.Stage2_RS_Labels, LABELS );
+        multiPass.reDecorateRelationship( processor, firstRange
+                ? RelationshipRecordCheck.relationshipRecordCheckForwardPass()
+                : RelationshipRecordCheck.relationshipRecordCheckWithoutFields() );
+        tasks.add( create( CheckStage.Stage2_RS_Labels.name() + suffix, nativeStores.getRelationshipStore(),
+                processor, ROUND_ROBIN, fromNodeId, toNodeId ) );
+        //NodeStore pass - just cache nextRel and inUse
+        tasks.add( new CacheTask.CacheNextRel( CheckStage.Stage3_NS_NextRel, cacheAccess,
+                Scanner.scan( nativeStores.getNodeStore() ) ) );
+        //RelationshipStore pass - check nodes inUse, FirstInFirst, FirstInSecond using cached info
+        processor = multiPass.processor( CheckStage.Stage4_RS_NextRel, NODES );
+        multiPass.reDecorateRelationship( processor, firstRange
+                ? RelationshipRecordCheck.relationshipRecordCheckBackwardPass(
+                        new PropertyChain<>( mandatoryProperties.forRelationships( reporter ) ) )
+                : RelationshipRecordCheck.relationshipRecordCheckBackwardPass() );
+        tasks.add( create( CheckStage.Stage4_RS_NextRel.name() + suffix, nativeStores.getRelationshipStore(),
+                processor, ROUND_ROBIN, fromNodeId, toNodeId ) );
+        //NodeStore pass - just cache nextRel and inUse
+        multiPass.reDecorateNode( processor, NodeRecordCheck.toCheckNextRel(), true );
+        multiPass.reDecorateNode( processor, NodeRecordCheck.toCheckNextRelationshipGroup(), false );
+        tasks.add( new CacheTask.CheckNextRel( CheckStage.Stage5_Check_NextRel, cacheAccess, nativeStores, processor ) );
+        // source chain
+        //RelationshipStore pass - forward scan of source chain using the cache.
+        processor = multiPass.processor( CheckStage.Stage6_RS_Forward, RELATIONSHIPS );
+        multiPass.reDecorateRelationship( processor,
+                RelationshipRecordCheck.relationshipRecordCheckSourceChain() );
+        tasks.add( create( CheckStage.Stage6_RS_Forward.name() + suffix, nativeStores.getRelationshipStore(),
+                processor, QueueDistribution.relationships( fromNodeId, toNodeId ), fromNodeId, toNodeId ) );
+        //RelationshipStore pass - reverse scan of source chain using the cache.
+        processor = multiPass.processor( CheckStage.Stage7_RS_Backward, RELATIONSHIPS );
+        multiPass.reDecorateRelationship( processor,
+                RelationshipRecordCheck.relationshipRecordCheckSourceChain() );
+        tasks.add( create( CheckStage.Stage7_RS_Backward.name() + suffix, nativeStores.getRelationshipStore(),
+                processor, QueueDistribution.relationships( fromNodeId, toNodeId ), fromNodeId, toNodeId ) );
+    }
+
     private <RECORD> RecordScanner<RECORD> recordScanner( String name,
             BoundedIterable<RECORD> store, RecordProcessor<RECORD> processor, Stage stage,
             QueueDistribution distribution,
@@ -224,4 +255,12 @@ public class ConsistencyCheckTasks
         return new StoreProcessorTask<>( name, statistics, numberOfThreads, input, nativeStores, name, progress,
                 cacheAccess, processor, distribution );
     }
+
+    private <RECORD extends AbstractBaseRecord> StoreProcessorTask<RECORD> create( String name,
+            RecordStore<RECORD> input, StoreProcessor processor, QueueDistribution distribution,
+            long fromNodeId, long toNodeId )
+    {
+        return new StoreProcessorTask<>( name, statistics, numberOfThreads, input, nativeStores, name, progress,
+                cacheAccess, processor, distribution, fromNodeId, toNodeId );
+    }
 }
@@ -137,6 +137,13 @@ class CountsBuilderDecorator extends CheckDecorator.Adapter
         this.relationshipCountBuildCondition.prepare();
     }
 
+    @Override
+    public void prepareForNodeRange()
+    {
+        this.nodeCountBuildCondition.reset();
+        this.relationshipCountBuildCondition.reset();
+    }
+
     @Override
     public OwningRecordCheck<NodeRecord,NodeConsistencyReport> decorateNodeChecker(
             OwningRecordCheck<NodeRecord,NodeConsistencyReport> checker )
@@ -273,30 +280,25 @@ class CountsBuilderDecorator extends CheckDecorator.Adapter
                 if ( record.inUse() )
                 {
                     CacheAccess.Client cacheAccess = records.cacheAccess().client();
+                    // Labels are only cached for nodes in the current node id range, so each side of the
+                    // relationship is counted in the range of its node. The wildcard counts go with the first range.
                     Set<Long> firstNodeLabels = null, secondNodeLabels = null;
-                    long firstLabelsField = cacheAccess.getFromCache( record.getFirstNode(), 1 );
-                    if ( NodeLabelsField.fieldPointsToDynamicRecordOfLabels( firstLabelsField ) )
+                    if ( cacheAccess.withinRange( record.getFirstNode() ) )
                     {
-                        firstNodeLabels = labelsFor( nodeStore, engine, records, record.getFirstNode() );
+                        firstNodeLabels = labelsFor( nodeStore, engine, records, cacheAccess, record.getFirstNode() );
                     }
-                    else
+                    if ( cacheAccess.withinRange( record.getSecondNode() ) )
                     {
-                        firstNodeLabels = NodeLabelReader.getListOfLabels( firstLabelsField );
-                    }
-                    long secondLabelsField = cacheAccess.getFromCache( record.getSecondNode(), 1 );
-                    if ( NodeLabelsField.fieldPointsToDynamicRecordOfLabels( secondLabelsField ) )
-                    {
-                        secondNodeLabels = labelsFor( nodeStore, engine, records, record.getSecondNode() );
-                    }
-                    else
-                    {
-                        secondNodeLabels = NodeLabelReader.getListOfLabels( secondLabelsField );
+                        secondNodeLabels = labelsFor( nodeStore, engine, records, cacheAccess, record.getSecondNode() );
                     }
                     final int type = record.getType();
                     synchronized ( counts )
                     {
-                        counts.add( relationshipKey( WILDCARD, WILDCARD, WILDCARD ) );
-                        counts.add( relationshipKey( WILDCARD, type, WILDCARD ) );
+                        if ( cacheAccess.withinRange( 0 ) )
+                        {
+                            counts.add( relationshipKey( WILDCARD, WILDCARD, WILDCARD ) );
+                            counts.add( relationshipKey( WILDCARD, type, WILDCARD ) );
+                        }
                         if ( firstNodeLabels != null )
                         {
                             for ( long firstLabel : firstNodeLabels )
@@ -313,7 +315,8 @@ class CountsBuilderDecorator extends CheckDecorator.Adapter
                                 counts.add( relationshipKey( WILDCARD, type, (int) secondLabel ) );
                             }
                         }
-                        if ( COMPUTE_DOUBLE_SIDED_RELATIONSHIP_COUNTS )
+                        if ( COMPUTE_DOUBLE_SIDED_RELATIONSHIP_COUNTS && firstNodeLabels != null &&
+                                secondNodeLabels != null )
                         {
                             for ( long firstLabel : firstNodeLabels )
                             {
@@ -329,6 +332,18 @@ class CountsBuilderDecorator extends CheckDecorator.Adapter
             }
             inner.check( record, engine, records );
         }
+
+        private Set<Long> labelsFor( RecordStore<NodeRecord> nodeStore,
+                CheckerEngine<RelationshipRecord,RelationshipConsistencyReport> engine, RecordAccess records,
+                CacheAccess.Client cacheAccess, long nodeId )
+        {
+            long labelsField = cacheAccess.getFromCache( nodeId, SLOT_LABEL_FIELD );
+            if ( NodeLabelsField.fieldPointsToDynamicRecordOfLabels( labelsField ) )
+            {
+                return CountsBuilderDecorator.labelsFor( nodeStore, engine, records, nodeId );
+            }
+            return NodeLabelReader.getListOfLabels( labelsField );
+        }
     }
 
     private static class MultiPassAvoidanceCondition<T extends AbstractBaseRecord> implements Predicate<T>
@@ -348,6 +363,14 @@ class CountsBuilderDecorator extends CheckDecorator.Adapter
             stage++;
         }
 
+        /**
+         * Starts over from the first stage, for when the stages are run again for another range of node ids.
+         */
+        public void reset()
+        {
+            stage = -1;
+        }
+
         @Override
         public boolean test( T record )
         {
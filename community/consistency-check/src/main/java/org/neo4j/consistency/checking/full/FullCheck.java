@@ -63,6 +63,7 @@ public class FullCheck
     private final boolean checkGraph;
     private final int threads;
     private final Statistics statistics;
+    private final long nodesPerRange;
 
     public FullCheck( Config tuningConfiguration, ProgressMonitorFactory progressFactory,
             Statistics statistics, int threads )
@@ -73,6 +74,9 @@ public class FullCheck
         this.checkLabelScanStore = tuningConfiguration.get( ConsistencyCheckSettings.consistency_check_label_scan_store );
         this.checkIndexes = tuningConfiguration.get( ConsistencyCheckSettings.consistency_check_indexes );
         this.checkGraph = tuningConfiguration.get( ConsistencyCheckSettings.consistency_check_graph );
+        long nodeCacheMemory = tuningConfiguration.get( ConsistencyCheckSettings.consistency_check_node_cache_memory );
+        // the node cache holds one long per node
+        this.nodesPerRange = nodeCacheMemory == 0 ? Long.MAX_VALUE : Math.max( nodeCacheMemory / Long.BYTES, 1 );
         this.samplingConfig = new IndexSamplingConfig( tuningConfiguration );
         this.progressFactory = progressFactory;
     }
@@ -86,6 +90,12 @@ public class FullCheck
     ConsistencySummaryStatistics execute( DirectStoreAccess stores, Log log, Monitor reportMonitor )
             throws ConsistencyCheckIncompleteException
     {
+        long nodeHighId = stores.nativeStores().getNodeStore().getHighId();
+        if ( checkGraph && nodesPerRange < nodeHighId )
+        {
+            log.info( "Checking %d node ids in %d ranges of %d nodes each, to fit the node cache memory",
+                    nodeHighId, (nodeHighId - 1) / nodesPerRange + 1, nodesPerRange );
+        }
         ConsistencySummaryStatistics summary = new ConsistencySummaryStatistics();
         InconsistencyReport report = new InconsistencyReport( new InconsistencyMessageLogger( log ), summary );
 
@@ -140,7 +150,7 @@ public class FullCheck
                     decorator, recordAccess, cacheAccess, report, reportMonitor );
             ConsistencyCheckTasks taskCreator = new ConsistencyCheckTasks( progress, processEverything,
                     nativeStores, statistics, cacheAccess, directStoreAccess.labelScanStore(), indexes,
-                    multiPass, reporter, threads );
+                    multiPass, reporter, threads, decorator, nodesPerRange );
             List<ConsistencyCheckerTask> tasks =
                     taskCreator.createTasksForFullCheck( checkLabelScanStore, checkIndexes, checkGraph );
             TaskExecutor.execute( tasks, new Runnable()
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.consistency.checking.full;
+
+import org.neo4j.consistency.checking.CheckDecorator;
+import org.neo4j.consistency.checking.cache.CacheAccess;
+import org.neo4j.consistency.statistics.Statistics;
+
+/**
+ * Starts checking of the next range of node ids, i.e. limits the {@link CacheAccess cache} to those nodes
+ * and lets the {@link CheckDecorator} know that the stages keyed by node id will run again.
+ */
+class NodeRangeTask extends ConsistencyCheckerTask
+{
+    private final long fromNodeId;
+    private final long toNodeId;
+    private final CacheAccess cacheAccess;
+    private final CheckDecorator decorator;
+
+    NodeRangeTask( String name, long fromNodeId, long toNodeId, CacheAccess cacheAccess, CheckDecorator decorator )
+    {
+        super( name, Statistics.NONE, 1 );
+        this.fromNodeId = fromNodeId;
+        this.toNodeId = toNodeId;
+        this.cacheAccess = cacheAccess;
+        this.decorator = decorator;
+    }
+
+    @Override
+    public void run()
+    {
+        cacheAccess.setCacheRange( fromNodeId, toNodeId );
+        decorator.prepareForNodeRange();
+    }
+}
@@ -133,6 +133,11 @@ class OwnerCheck implements CheckDecorator
     {
     }
 
+    @Override
+    public void prepareForNodeRange()
+    {
+    }
+
     @Override
     public OwningRecordCheck<NeoStoreRecord, ConsistencyReport.NeoStoreConsistencyReport> decorateNeoStoreChecker(
             OwningRecordCheck<NeoStoreRecord, ConsistencyReport.NeoStoreConsistencyReport> checker )
@@ -55,14 +55,23 @@ public interface QueueDistribution
     /**
      * Distributes {@link RelationshipRecord} depending on the start/end node ids.
      */
-    public static final QueueDistribution RELATIONSHIPS = new QueueDistribution()
+    public static final QueueDistribution RELATIONSHIPS = relationships( 0, Long.MAX_VALUE );
+
+    /**
+     * Distributes {@link RelationshipRecord} depending on the start/end node ids, where only nodes in the
+     * range {@code [fromNodeId, toNodeId)} are considered. The records per cpu are counted from {@code fromNodeId}.
+     */
+    static QueueDistribution relationships( long fromNodeId, long toNodeId )
     {
-        @Override
-        public QueueDistributor<RelationshipRecord> distributor( long recordsPerCpu, int numberOfThreads )
+        return new QueueDistribution()
         {
-            return new RelationshipNodesQueueDistributor( recordsPerCpu );
-        }
-    };
+            @Override
+            public QueueDistributor<RelationshipRecord> distributor( long recordsPerCpu, int numberOfThreads )
+            {
+                return new RelationshipNodesQueueDistributor( fromNodeId, toNodeId, recordsPerCpu );
+            }
+        };
+    }
 
     static class RoundRobinQueueDistributor<RECORD> implements QueueDistributor<RECORD>
     {
@@ -90,10 +99,19 @@ public interface QueueDistribution
 
     static class RelationshipNodesQueueDistributor implements QueueDistributor<RelationshipRecord>
     {
+        private final long fromNodeId;
+        private final long toNodeId;
         private final long recordsPerCpu;
 
         public RelationshipNodesQueueDistributor( long recordsPerCpu )
         {
+            this( 0, Long.MAX_VALUE, recordsPerCpu );
+        }
+
+        public RelationshipNodesQueueDistributor( long fromNodeId, long toNodeId, long recordsPerCpu )
+        {
+            this.fromNodeId = fromNodeId;
+            this.toNodeId = toNodeId;
             this.recordsPerCpu = recordsPerCpu;
         }
 
@@ -101,12 +119,17 @@ public interface QueueDistribution
         public void distribute( RelationshipRecord relationship, RecordConsumer<RelationshipRecord> consumer )
                 throws InterruptedException
         {
-            int qIndex1 = (int) (relationship.getFirstNode() / recordsPerCpu);
-            int qIndex2 = (int) (relationship.getSecondNode() / recordsPerCpu);
+            boolean firstInRange = withinRange( relationship.getFirstNode() );
+            boolean secondInRange = withinRange( relationship.getSecondNode() );
+            int qIndex1 = (int) ((relationship.getFirstNode() - fromNodeId) / recordsPerCpu);
+            int qIndex2 = (int) ((relationship.getSecondNode() - fromNodeId) / recordsPerCpu);
             try
             {
-                consumer.accept( relationship, qIndex1 );
-                if ( qIndex1 != qIndex2 )
+                if ( firstInRange )
+                {
+                    consumer.accept( relationship, qIndex1 );
+                }
+                if ( secondInRange && (!firstInRange || qIndex1 != qIndex2) )
                 {
                     consumer.accept( relationship, qIndex2 );
                 }
@@ -117,5 +140,11 @@ public interface QueueDistribution
                         ", relationship:" + relationship );
             }
         }
+
+        private boolean withinRange( long nodeId )
+        {
+            // negative ids, only seen in inconsistent stores, are distributed as before with the first range
+            return nodeId < toNodeId && (nodeId >= fromNodeId || fromNodeId == 0);
+        }
     }
 }
@@ -39,12 +39,28 @@ public class StoreProcessorTask<R extends AbstractBaseRecord> extends Consistenc
     private final StoreAccess storeAccess;
     private final CacheAccess cacheAccess;
     private final QueueDistribution distribution;
+    private final long fromNodeId;
+    private final long toNodeId;
 
     StoreProcessorTask( String name, Statistics statistics, int threads, RecordStore<R> store, StoreAccess storeAccess,
             String builderPrefix, ProgressMonitorFactory.MultiPartBuilder builder, CacheAccess cacheAccess,
             StoreProcessor processor, QueueDistribution distribution )
+    {
+        this( name, statistics, threads, store, storeAccess, builderPrefix, builder, cacheAccess, processor,
+                distribution, 0, Long.MAX_VALUE );
+    }
+
+    /**
+     * Stages keyed by node id only process nodes in {@code [fromNodeId, toNodeId)}, and split that range,
+     * rather than the whole node id space, between the threads.
+     */
+    StoreProcessorTask( String name, Statistics statistics, int threads, RecordStore<R> store, StoreAccess storeAccess,
+            String builderPrefix, ProgressMonitorFactory.MultiPartBuilder builder, CacheAccess cacheAccess,
+            StoreProcessor processor, QueueDistribution distribution, long fromNodeId, long toNodeId )
     {
         super( name, statistics, threads );
+        this.fromNodeId = fromNodeId;
+        this.toNodeId = toNodeId;
         this.store = store;
         this.storeAccess = storeAccess;
         this.cacheAccess = cacheAccess;
@@ -76,22 +92,23 @@ public class StoreProcessorTask<R extends AbstractBaseRecord> extends Consistenc
             if ( processor.getStage().isParallel() )
             {
                 long highId;
-                if ( processor.getStage() == CheckStage.Stage1_NS_PropsLabels )
-                {
-                    highId = storeAccess.getNodeStore().getHighId();
-                }
-                else if ( processor.getStage() == CheckStage.Stage8_PS_Props )
+                if ( processor.getStage() == CheckStage.Stage8_PS_Props )
                 {
                     highId = storeAccess.getPropertyStore().getHighId();
                 }
                 else
                 {
-                    highId = storeAccess.getNodeStore().getHighId();
+                    highId = Math.min( toNodeId, storeAccess.getNodeStore().getHighId() ) - fromNodeId;
                 }
                 long recordsPerCPU = RecordDistributor.calculateRecodsPerCpu( highId, numberOfThreads );
                 QueueDistributor<R> distributor = distribution.distributor( recordsPerCPU, numberOfThreads );
                 processor.applyFilteredParallel( store, progressListener, numberOfThreads, recordsPerCPU, distributor );
             }
+            else if ( processor.getStage() == CheckStage.Stage1_NS_PropsLabels && !allNodes() )
+            {
+                processor.applyFiltered( store, progressListener,
+                        record -> record.getId() >= fromNodeId && record.getId() < toNodeId );
+            }
             else
             {
                 processor.applyFiltered( store, progressListener );
@@ -110,6 +127,11 @@ public class StoreProcessorTask<R extends AbstractBaseRecord> extends Consistenc
         statistics.print( name );
     }
 
+    private boolean allNodes()
+    {
+        return fromNodeId == 0 && toNodeId == Long.MAX_VALUE;
+    }
+
     protected void beforeProcessing( StoreProcessor processor )
     {
         // intentionally empty
@@ -65,6 +65,19 @@ public class AccessStatistics
         return msg;
     }
 
+    /**
+     * @return number of reads from all stores since last {@link #reset()}, random reads included.
+     */
+    public long getReads()
+    {
+        long reads = 0;
+        for ( AccessStats accessStats : stats.values() )
+        {
+            reads += accessStats.reads;
+        }
+        return reads;
+    }
+
     public void reset()
     {
         for ( AccessStats accessStats : stats.values() )
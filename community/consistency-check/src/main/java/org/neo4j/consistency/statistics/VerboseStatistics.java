@@ -22,6 +22,7 @@ package org.neo4j.consistency.statistics;
 import org.neo4j.helpers.Format;
 import org.neo4j.logging.Log;
 
+import static java.lang.Math.max;
 import static java.lang.String.format;
 import static java.lang.System.currentTimeMillis;
 
@@ -47,7 +48,9 @@ public class VerboseStatistics implements Statistics
         logger.info( format( "I/Os%n%s", accessStr ) );
         logger.info( counts.toString() );
         logger.info( memoryStats() );
-        logger.info( "Done in  " + Format.duration( currentTimeMillis() - startTime ) );
+        long duration = currentTimeMillis() - startTime;
+        logger.info( "Done in  " + Format.duration( duration ) );
+        logger.info( format( "Throughput: %d records read/s", accessStatistics.getReads() * 1000 / max( duration, 1 ) ) );
     }
 
     @Override
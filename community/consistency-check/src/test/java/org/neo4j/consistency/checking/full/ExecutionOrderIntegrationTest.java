@@ -225,6 +225,11 @@ public class ExecutionOrderIntegrationTest
         {
         }
 
+        @Override
+        public void prepareForNodeRange()
+        {
+        }
+
         <REC extends AbstractBaseRecord, REP extends ConsistencyReport> OwningRecordCheck<REC, REP> logging(
                 RecordCheck<REC, REP> checker )
         {
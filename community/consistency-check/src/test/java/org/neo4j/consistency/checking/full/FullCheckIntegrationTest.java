@@ -1995,7 +1995,8 @@ public class FullCheckIntegrationTest
         Map<String,String> params = stringMap(
                 // Enable property owners check by default in tests:
                 ConsistencyCheckSettings.consistency_check_property_owners.name(), "true",
-                GraphDatabaseSettings.record_format.name(), getRecordFormatName());
+                GraphDatabaseSettings.record_format.name(), getRecordFormatName(),
+                ConsistencyCheckSettings.consistency_check_node_cache_memory.name(), getNodeCacheMemory() );
         return new Config( params, GraphDatabaseSettings.class, ConsistencyCheckSettings.class );
     }
 
@@ -2054,6 +2055,11 @@ public class FullCheckIntegrationTest
         return StringUtils.EMPTY;
     }
 
+    protected String getNodeCacheMemory()
+    {
+        return "0";
+    }
+
     private int createLabel() throws Exception
     {
         final MutableInt id = new MutableInt( -1 );
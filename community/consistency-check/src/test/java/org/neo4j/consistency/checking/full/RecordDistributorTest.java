@@ -26,7 +26,10 @@ import org.neo4j.consistency.checking.full.QueueDistribution.RelationshipNodesQu
 import org.neo4j.consistency.checking.full.RecordDistributor.RecordConsumer;
 import org.neo4j.kernel.impl.store.record.RelationshipRecord;
 
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -55,6 +58,29 @@ public class RecordDistributorTest
         verify( consumer, times( 1 ) ).accept( relationship, 2 );
     }
 
+    @Test
+    public void shouldOnlyDistributeRelationshipRecordsByNodesInRange() throws Exception
+    {
+        // GIVEN
+        QueueDistributor<RelationshipRecord> distributor = new RelationshipNodesQueueDistributor( 20, 30, 5 );
+        RecordConsumer<RelationshipRecord> consumer = mock( RecordConsumer.class );
+
+        // WHEN/THEN
+        RelationshipRecord relationship = relationship( 0, 0, 1 );
+        distributor.distribute( relationship, consumer );
+        verify( consumer, never() ).accept( eq( relationship ), anyInt() );
+
+        relationship = relationship( 1, 3, 27 );
+        distributor.distribute( relationship, consumer );
+        verify( consumer, times( 1 ) ).accept( relationship, 1 );
+        verify( consumer, times( 1 ) ).accept( eq( relationship ), anyInt() );
+
+        relationship = relationship( 2, 21, 30 );
+        distributor.distribute( relationship, consumer );
+        verify( consumer, times( 1 ) ).accept( relationship, 0 );
+        verify( consumer, times( 1 ) ).accept( eq( relationship ), anyInt() );
+    }
+
     private RelationshipRecord relationship( long id, long startNodeId, long endNodeId )
     {
         RelationshipRecord record = new RelationshipRecord( id );
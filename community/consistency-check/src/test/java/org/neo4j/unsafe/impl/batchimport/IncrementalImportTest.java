@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.neo4j.consistency.ConsistencyCheckService;
+import org.neo4j.consistency.ConsistencyCheckService.Result;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.factory.GraphDatabaseSettings;
+import org.neo4j.helpers.progress.ProgressMonitorFactory;
+import org.neo4j.io.fs.DefaultFileSystemAbstraction;
+import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.impl.logging.NullLogService;
+import org.neo4j.logging.NullLogProvider;
+import org.neo4j.test.TestGraphDatabaseFactory;
+import org.neo4j.test.rule.RandomRule;
+import org.neo4j.test.rule.TestDirectory;
+import org.neo4j.unsafe.impl.batchimport.input.InputNode;
+import org.neo4j.unsafe.impl.batchimport.input.InputRelationship;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.neo4j.graphdb.Label.label;
+import static org.neo4j.graphdb.RelationshipType.withName;
+import static org.neo4j.helpers.collection.Iterables.count;
+import static org.neo4j.helpers.collection.MapUtil.stringMap;
+import static org.neo4j.unsafe.impl.batchimport.AdditionalInitialIds.EMPTY;
+import static org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdGenerators.fromInput;
+import static org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdMappers.actual;
+import static org.neo4j.unsafe.impl.batchimport.input.Collectors.silentBadCollector;
+import static org.neo4j.unsafe.impl.batchimport.input.Inputs.input;
+import static org.neo4j.unsafe.impl.batchimport.input.SimpleInputIteratorWrapper.wrap;
+import static org.neo4j.unsafe.impl.batchimport.staging.ExecutionMonitors.invisible;
+
+public class IncrementalImportTest
+{
+    private static final int DENSE_NODE_THRESHOLD = 5;
+    private static final String[] TYPES = {"TYPE0", "TYPE1", "TYPE2", "TYPE3"};
+    private static final long RANDOM = -1;
+
+    @Rule
+    public final TestDirectory directory = TestDirectory.testDirectory();
+    @Rule
+    public final RandomRule random = new RandomRule();
+
+    private final Configuration config = new Configuration.Default()
+    {
+        @Override
+        public int batchSize()
+        {
+            return 100;
+        }
+
+        @Override
+        public int denseNodeThreshold()
+        {
+            return DENSE_NODE_THRESHOLD;
+        }
+    };
+    private final List<long[]> relationships = new ArrayList<>();
+
+    @Test
+    public void shouldAddRelationshipsToChainsOfExistingNodes() throws Exception
+    {
+        // GIVEN a store where node 0 is dense, node 1 is sparse and node 2 has no relationships
+        int firstNodes = 1_000;
+        List<InputNode> nodes = nodes( 0, firstNodes, "First" );
+        List<InputRelationship> rels = new ArrayList<>();
+        relationships( rels, 0, 0, DENSE_NODE_THRESHOLD * 2, 3, firstNodes, 3 );
+        relationships( rels, 0, 1, 2, 3, firstNodes, 3 );
+        relationships( rels, 0, RANDOM, 1_500, 3, firstNodes, 3 );
+        newImporter().doImport( input( wrap( "nodes", nodes ), wrap( "relationships", rels ), actual(),
+                fromInput(), silentBadCollector( 0 ) ) );
+
+        // WHEN importing more nodes and relationships, also between existing nodes and of a new type. Node 0 gets
+        // fewer new relationships than the dense node threshold, nodes 1 and 2 get more
+        int secondNodes = 500;
+        int allNodes = firstNodes + secondNodes;
+        nodes = nodes( firstNodes, secondNodes, "Second" );
+        rels = new ArrayList<>();
+        relationships( rels, 1, 0, DENSE_NODE_THRESHOLD - 2, 3, allNodes, TYPES.length );
+        relationships( rels, 1, 1, DENSE_NODE_THRESHOLD * 2, 3, allNodes, TYPES.length );
+        relationships( rels, 1, 2, DENSE_NODE_THRESHOLD * 2, 3, allNodes, TYPES.length );
+        relationships( rels, 1, RANDOM, 3_000, 3, allNodes, TYPES.length );
+        newImporter().doIncrementalImport( input( wrap( "nodes", nodes ), wrap( "relationships", rels ), actual(),
+                fromInput(), silentBadCollector( 0 ) ) );
+
+        // THEN
+        GraphDatabaseService db = new TestGraphDatabaseFactory().newEmbeddedDatabase( directory.graphDbDir() );
+        try ( Transaction tx = db.beginTx() )
+        {
+            Map<Long,int[][]> expectedDegrees = expectedDegrees();
+            for ( long nodeId = 0; nodeId < allNodes; nodeId++ )
+            {
+                Node node = db.getNodeById( nodeId );
+                assertDegrees( node, expectedDegrees.get( nodeId ) );
+                assertTrue( node.hasLabel( label( nodeId < firstNodes ? "First" : "Second" ) ) );
+            }
+            assertEquals( relationships.size(), count( db.getAllRelationships() ) );
+            assertEquals( firstNodes, countFromCountsStore( db, "MATCH (n:First) RETURN count(n) AS count" ) );
+            assertEquals( secondNodes, countFromCountsStore( db, "MATCH (n:Second) RETURN count(n) AS count" ) );
+            for ( int type = 0; type < TYPES.length; type++ )
+            {
+                assertEquals( expectedCount( type ), countFromCountsStore( db,
+                        "MATCH ()-[r:" + TYPES[type] + "]->() RETURN count(r) AS count" ) );
+            }
+            tx.success();
+        }
+        finally
+        {
+            db.shutdown();
+        }
+        assertConsistent( directory.graphDbDir() );
+    }
+
+    private ParallelBatchImporter newImporter()
+    {
+        return new ParallelBatchImporter( directory.graphDbDir(), new DefaultFileSystemAbstraction(), config,
+                NullLogService.getInstance(), invisible(), EMPTY, new Config( stringMap() ) );
+    }
+
+    private List<InputNode> nodes( long firstId, int count, String label )
+    {
+        List<InputNode> nodes = new ArrayList<>();
+        for ( long id = firstId; id < firstId + count; id++ )
+        {
+            nodes.add( new InputNode( "nodes", id, id, id, new Object[] {"id", id}, null,
+                    new String[] {label}, null ) );
+        }
+        return nodes;
+    }
+
+    /**
+     * Adds {@code count} relationships from {@code startNode}, or from {@link #RANDOM random} nodes, to random nodes
+     * in [{@code lowNode},{@code highNode}). Some of them are loops.
+     */
+    private void relationships( List<InputRelationship> rels, int importNumber, long startNode, int count,
+            long lowNode, long highNode, int types )
+    {
+        Random random = this.random.random();
+        for ( int i = 0; i < count; i++ )
+        {
+            long start = startNode == RANDOM ? randomNode( random, lowNode, highNode ) : startNode;
+            long end = random.nextInt( 20 ) == 0 ? start : randomNode( random, lowNode, highNode );
+            int type = random.nextInt( types );
+            rels.add( new InputRelationship( "relationships", rels.size(), rels.size(),
+                    new Object[] {"id", importNumber + "_" + rels.size()}, null, start, end, TYPES[type], null ) );
+            relationships.add( new long[] {start, end, type} );
+        }
+    }
+
+    private static long randomNode( Random random, long lowNode, long highNode )
+    {
+        return lowNode + random.nextInt( (int) (highNode - lowNode) );
+    }
+
+    private Map<Long,int[][]> expectedDegrees()
+    {
+        Map<Long,int[][]> degrees = new HashMap<>();
+        for ( long[] relationship : relationships )
+        {
+            int type = (int) relationship[2];
+            int[] startDegrees = degrees.computeIfAbsent( relationship[0], id -> new int[TYPES.length][3] )[type];
+            int[] endDegrees = degrees.computeIfAbsent( relationship[1], id -> new int[TYPES.length][3] )[type];
+            startDegrees[Direction.OUTGOING.ordinal()]++;
+            endDegrees[Direction.INCOMING.ordinal()]++;
+            startDegrees[Direction.BOTH.ordinal()]++;
+            if ( relationship[0] != relationship[1] )
+            {
+                endDegrees[Direction.BOTH.ordinal()]++;
+            }
+        }
+        return degrees;
+    }
+
+    private long expectedCount( int type )
+    {
+        return relationships.stream().filter( relationship -> relationship[2] == type ).count();
+    }
+
+    private void assertDegrees( Node node, int[][] expected )
+    {
+        for ( int type = 0; type < TYPES.length; type++ )
+        {
+            RelationshipType relationshipType = withName( TYPES[type] );
+            for ( Direction direction : Direction.values() )
+            {
+                int expectedDegree = expected == null ? 0 : expected[type][direction.ordinal()];
+                String description = node + " " + relationshipType + " " + direction;
+                // Traversing the chains verifies the next pointers, the degrees verify the stored chain degrees
+                assertEquals( description, expectedDegree,
+                        count( node.getRelationships( direction, relationshipType ) ) );
+                assertEquals( description, expectedDegree, node.getDegree( relationshipType, direction ) );
+            }
+        }
+    }
+
+    private long countFromCountsStore( GraphDatabaseService db, String query )
+    {
+        return ((Number) db.execute( query ).columnAs( "count" ).next()).longValue();
+    }
+
+    private void assertConsistent( File storeDir ) throws Exception
+    {
+        Result result = new ConsistencyCheckService().runFullConsistencyCheck( storeDir,
+                new Config( stringMap( GraphDatabaseSettings.pagecache_memory.name(), "8m" ) ),
+                ProgressMonitorFactory.NONE, NullLogProvider.getInstance(), false );
+        assertTrue( "Database contains inconsistencies, there should be a report in " + storeDir,
+                result.isSuccessful() );
+    }
+}
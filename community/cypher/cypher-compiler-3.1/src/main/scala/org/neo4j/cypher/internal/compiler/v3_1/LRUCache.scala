@@ -21,6 +21,8 @@ package org.neo4j.cypher.internal.compiler.v3_1
 
 import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap
 
+import scala.collection.JavaConverters._
+
 class LRUCache[K, V](val size: Int) extends ((K, => V) => V) {
 
   private val inner = new ConcurrentLinkedHashMap.Builder[K, V]
@@ -61,5 +63,7 @@ class LRUCache[K, V](val size: Int) extends ((K, => V) => V) {
 
   def containsKey(key: K) = inner.containsKey(key)
 
+  def values: Iterable[V] = inner.values().asScala
+
   def apply(key: K, value: => V): V = getOrElseUpdate(key, value)
 }
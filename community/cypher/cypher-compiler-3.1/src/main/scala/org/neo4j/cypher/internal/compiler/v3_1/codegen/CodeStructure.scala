@@ -45,6 +45,27 @@ case object LongsToCountTable extends CountingJoinTableType
 case class LongToListTable(structure: Map[String, CodeGenType], localMap: Map[String, String]) extends RecordingJoinTableType
 case class LongsToListTable(structure: Map[String, CodeGenType], localMap: Map[String, String]) extends RecordingJoinTableType
 
+/**
+  * A table of rows kept in sort order, where each row holds the given fields and is ordered by the keys,
+  * which refer to fields by their offset.
+  */
+case class SortTableType(fields: Seq[CodeGenType], keys: Seq[SortKey]) extends JoinTableType
+case class SortKey(offset: Int, ascending: Boolean)
+
+/**
+  * A table of groups keyed by the given number of node and relationship ids, where each group holds the state of
+  * the aggregation functions.
+  */
+case class AggregationTableType(keys: Int, functions: Seq[AggregationFunction]) extends JoinTableType
+
+sealed trait AggregationFunction
+case object CountStarAggregation extends AggregationFunction
+case object CountAggregation extends AggregationFunction
+case object SumAggregation extends AggregationFunction
+case object MinAggregation extends AggregationFunction
+case object MaxAggregation extends AggregationFunction
+case object CollectAggregation extends AggregationFunction
+
 /**
   * Describes the SPI for generating a method.
   *
@@ -69,17 +90,25 @@ trait MethodStructure[E] {
   def declare(varName: String, codeGenType: CodeGenType): Unit
   def declareProperty(name: String): Unit
   def declareCounter(name: String, initialValue: E): Unit
+  def decreaseCounter(name: String): Unit
   def putField(structure: Map[String, CodeGenType], value: E, fieldType: CodeGenType, fieldName: String, localVar: String): Unit
   def updateProbeTable(structure: Map[String, CodeGenType], tableVar: String, tableType: RecordingJoinTableType, keyVars: Seq[String], element: E): Unit
   def probe(tableVar: String, tableType: JoinTableType, keyVars: Seq[String])(block: MethodStructure[E]=>Unit): Unit
   def updateProbeTableCount(tableVar: String, tableType: CountingJoinTableType, keyVar: Seq[String]): Unit
+  def iterateCountTable(tableVar: String, tableType: CountingJoinTableType, keyVars: Seq[String], countVar: String)(block: MethodStructure[E]=>Unit): Unit
   def allocateProbeTable(tableVar: String, tableType: JoinTableType): Unit
+  def allocateSortTable(tableVar: String, tableType: SortTableType, limit: Option[E]): Unit
+  def addToSortTable(tableVar: String, tableType: SortTableType, fieldVars: Seq[String]): Unit
+  def iterateSortTable(tableVar: String, tableType: SortTableType, fieldVars: Seq[String])(block: MethodStructure[E]=>Unit): Unit
+  def updateAggregationTable(tableVar: String, tableType: AggregationTableType, keyVars: Seq[String], values: Seq[E]): Unit
+  def iterateAggregationTable(tableVar: String, tableType: AggregationTableType, keyVars: Seq[String], resultVars: Seq[String])(block: MethodStructure[E]=>Unit): Unit
   def invokeMethod(resultType: JoinTableType, resultVar: String, methodName: String)(block: MethodStructure[E]=>Unit): Unit
   def coerceToBoolean(propertyExpression: E): E
 
   // expressions
   def decreaseCounterAndCheckForZero(name: String): E
   def counterEqualsZero(variableName: String): E
+  def counterGreaterThanZero(variableName: String): E
   def newTableValue(targetVar: String, structure: Map[String, CodeGenType]): E
   def constantExpression(value: Object): E
   def asMap(map: Map[String, E]): E
@@ -104,6 +133,7 @@ trait MethodStructure[E] {
   def threeValuedEqualsExpression(lhs: E, rhs: E): E
   def equalityExpression(lhs: E, rhs: E, codeGenType: CodeGenType): E
   def orExpression(lhs: E, rhs: E): E
+  def andExpression(lhs: E, rhs: E): E
   def threeValuedOrExpression(lhs: E, rhs: E): E
 
   // object handling
@@ -132,13 +162,23 @@ trait MethodStructure[E] {
   def lookupRelationshipTypeId(typeIdVar: String, typeName: String): Unit
   def nodeGetAllRelationships(iterVar: String, nodeVar: String, direction: SemanticDirection): Unit
   def nodeGetRelationships(iterVar: String, nodeVar: String, direction: SemanticDirection, typeVars: Seq[String]): Unit
+  def nodeGetVarLengthPaths(iterVar: String, nodeVar: String, direction: SemanticDirection, typeVars: Seq[String],
+                            min: Int, max: Option[Int], reversed: Boolean, toNodeVar: Option[String],
+                            filterNodes: Boolean, filterRelationships: Boolean): Unit
   def connectingRelationships(iterVar: String, fromNode: String, dir: SemanticDirection, toNode:String)
   def connectingRelationships(iterVar: String, fromNode: String, dir: SemanticDirection, types: Seq[String], toNode: String)
   def nextNode(targetVar: String, iterVar: String): Unit
   def nextRelationshipAndNode(toNodeVar: String, iterVar: String, direction: SemanticDirection, fromNodeVar: String, relVar: String): Unit
   def nextRelationship(iterVar: String, direction: SemanticDirection, relVar: String): Unit
+  def nextPath(toNodeVar: String, iterVar: String, relsVar: String): Unit
+  def nextPathCandidate(targetVar: String, iterVar: String): Unit
+  def decidePathCandidate(iterVar: String, accepted: E): Unit
   def hasNextNode(iterVar: String): E
   def hasNextRelationship(iterVar: String): E
+  def hasNextPath(iterVar: String): E
+  def pathNodeCandidate(iterVar: String): E
+  def pathRelationshipCandidate(iterVar: String): E
+  def pathReady(iterVar: String): E
   def nodeGetPropertyById(nodeIdVar: String, propId: Int, propValueVar: String): Unit
   def nodeGetPropertyForVar(nodeIdVar: String, propIdVar: String, propValueVar: String): Unit
   def nodeIdSeek(nodeIdVar: String, expression: E)(block: MethodStructure[E] => Unit): Unit
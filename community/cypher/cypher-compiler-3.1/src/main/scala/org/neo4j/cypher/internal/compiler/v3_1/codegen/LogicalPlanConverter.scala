@@ -24,6 +24,7 @@ import org.neo4j.cypher.internal.compiler.v3_1.codegen.ir.expressions._
 import org.neo4j.cypher.internal.compiler.v3_1.commands.{ManyQueryExpression, QueryExpression, RangeQueryExpression, SingleQueryExpression}
 import org.neo4j.cypher.internal.compiler.v3_1.helpers.{One, ZeroOneOrMany}
 import org.neo4j.cypher.internal.compiler.v3_1.planner.CantCompileQueryException
+import org.neo4j.cypher.internal.compiler.v3_1.planner.logical.{Ascending, Descending}
 import org.neo4j.cypher.internal.compiler.v3_1.planner.logical.plans
 import org.neo4j.cypher.internal.compiler.v3_1.planner.logical.plans._
 import org.neo4j.cypher.internal.frontend.v3_1.ast.Expression
@@ -41,10 +42,15 @@ object LogicalPlanConverter {
     case p: NodeUniqueIndexSeek => nodeUniqueIndexSeekAsCodeGen(p)
     case p: Expand => expandAsCodeGenPlan(p)
     case p: OptionalExpand => optExpandAsCodeGenPlan(p)
+    case p: VarExpand => varExpandAsCodeGenPlan(p)
     case p: NodeHashJoin => nodeHashJoinAsCodeGenPlan(p)
     case p: CartesianProduct => cartesianProductAsCodeGenPlan(p)
     case p: Selection => selectionAsCodeGenPlan(p)
-    case p: plans.Limit => limitAsCodeGenPlan(p)
+    case p@plans.Limit(sort: plans.Sort, _, DoNotIncludeTies) => sortAsCodeGenPlan(sort, Some(p))
+    case p: plans.Limit if p.ties == DoNotIncludeTies => limitAsCodeGenPlan(p)
+    case p: plans.Sort => sortAsCodeGenPlan(p, None)
+    case p: plans.Skip => skipAsCodeGenPlan(p)
+    case p: plans.Aggregation => aggregationAsCodeGenPlan(p)
     case p: ProduceResult => produceResultsAsCodeGenPlan(p)
     case p: plans.Projection => projectionAsCodeGenPlan(p)
 
@@ -317,6 +323,55 @@ object LogicalPlanConverter {
     }
   }
 
+  private def varExpandAsCodeGenPlan(varExpand: VarExpand) = new CodeGenPlan with SingleChildPlan {
+
+    override val logicalPlan: LogicalPlan = varExpand
+
+    override def consume(context: CodeGenContext, child: CodeGenPlan): (Option[JoinTableMethod], Instruction) = {
+      val fromNodeVar = context.getVariable(varExpand.from.name)
+      if (fromNodeVar.nullable && varExpand.mode == ExpandInto)
+        throw new CantCompileQueryException("Variable length expand from optional nodes into bound nodes not yet supported")
+
+      // a missing optional start node produces a single row without relationships and end node
+      val relsVar = Variable(context.namer.newVarName(), CodeGenType(symbols.CTList(symbols.CTRelationship), ReferenceType),
+                             nullable = fromNodeVar.nullable)
+      val toNodeVar = Variable(context.namer.newVarName(), CodeGenType.primitiveNode, nullable = fromNodeVar.nullable)
+      val boundToNodeVar = varExpand.mode match {
+        case ExpandAll =>
+          context.addVariable(varExpand.to.name, toNodeVar)
+          None
+        case ExpandInto =>
+          Some(context.getVariable(varExpand.to.name))
+      }
+      context.addVariable(varExpand.relName.name, relsVar)
+
+      val (nodePredicates, relPredicates) = varExpand.predicates.partition {
+        case (variable, _) => context.semanticTable.seen(variable) && context.semanticTable.isNode(variable)
+      }
+      val nodeCandidate = candidatePredicates(nodePredicates, CodeGenType.primitiveNode, context)
+      val relCandidate = candidatePredicates(relPredicates, CodeGenType.primitiveRel, context)
+
+      val (methodHandle, action) = context.popParent().consume(context, this)
+      val typeVar2TypeName = varExpand.types.map(t => context.namer.newVarName() -> t.name).toMap
+      val opName = context.registerOperator(varExpand)
+      val expand = VarLengthExpandInstruction(opName, fromNodeVar, varExpand.dir, varExpand.projectedDir,
+                                              typeVar2TypeName, varExpand.length.min, varExpand.length.max,
+                                              toNodeVar, relsVar, boundToNodeVar, nodeCandidate, relCandidate, action)
+
+      (methodHandle, expand)
+    }
+
+    // every predicate on the nodes, or on the relationships, is evaluated for the same candidate
+    private def candidatePredicates(predicates: Seq[(ast.Variable, Expression)], codeGenType: CodeGenType,
+                                    context: CodeGenContext): Option[(Variable, Seq[CodeGenExpression])] =
+      if (predicates.isEmpty) None
+      else {
+        val candidate = Variable(context.namer.newVarName(), codeGenType)
+        predicates.foreach { case (variable, _) => context.addVariable(variable.name, candidate) }
+        Some(candidate -> predicates.map { case (_, predicate) => ExpressionConverter.createPredicate(predicate)(context) })
+      }
+  }
+
   private def optExpandAsCodeGenPlan(optionalExpand: OptionalExpand) = new CodeGenPlan {
 
     override val logicalPlan: LogicalPlan = optionalExpand
@@ -465,6 +520,188 @@ object LogicalPlanConverter {
     }
   }
 
+  private def skipAsCodeGenPlan(skip: plans.Skip) = new CodeGenPlan with SingleChildPlan {
+
+    override val logicalPlan: LogicalPlan = skip
+
+    override def consume(context: CodeGenContext, child: CodeGenPlan): (Option[JoinTableMethod], Instruction) = {
+      val opName = context.registerOperator(skip)
+      val count = ExpressionConverter.createExpression(skip.count)(context)
+      val counterName = context.namer.newVarName()
+
+      val (methodHandle, innerBlock) = context.popParent().consume(context, this)
+      val instruction = SkipInstruction(opName, counterName, innerBlock, count)
+
+      (methodHandle, instruction)
+    }
+  }
+
+  /*
+   * Aggregation is a pipeline breaker: the child pipeline is generated into its own method that fills a table of
+   * groups, and the rows above the aggregation are produced by iterating over that table. When every aggregation
+   * only counts rows (DISTINCT, count(*) and count(n) of an entity) a count table is enough, count, sum, min, max
+   * and collect of any other expression keep their state in an aggregation table. Only grouping on non-nullable
+   * nodes and relationships is supported, anything else falls back to the interpreted runtime.
+   */
+  private def aggregationAsCodeGenPlan(aggregation: plans.Aggregation) = new CodeGenPlan {
+
+    override val logicalPlan: LogicalPlan = aggregation
+
+    private val groupingKeys = aggregation.groupingExpressions.toSeq
+
+    private val aggregations = aggregation.aggregationExpression.toSeq
+
+    override def produce(context: CodeGenContext): (Option[JoinTableMethod], Seq[Instruction]) = {
+      context.pushParent(this)
+      val (Some(symbol), childInstructions) = asCodeGenPlan(aggregation.left).produce(context)
+      val opName = context.registerOperator(aggregation)
+      val tableMethod = MethodInvocation(Set(opName), symbol, context.namer.newMethodName(), childInstructions)
+
+      val keys = groupingKeys.map {
+        case (name, expression) =>
+          name -> Variable(context.namer.newVarName(), groupingVariable(expression, context).codeGenType)
+      }
+      val keyVariables = keys.map(_._2)
+      val onlyCountsRows = countsOnlyRows(context)
+      val functions = aggregations.map { case (_, expression) => aggregationFunction(expression) }
+      val results =
+        if (onlyCountsRows) {
+          val count = Variable(context.namer.newVarName(), CodeGenType.primitiveInt)
+          aggregations.map { case (name, _) => name -> count }
+        } else aggregations.zip(functions).map {
+          case ((name, _), CountStarAggregation | CountAggregation) =>
+            name -> Variable(context.namer.newVarName(), CodeGenType.primitiveInt)
+          case ((name, _), function) =>
+            name -> Variable(context.namer.newVarName(), CodeGenType.Any,
+                             nullable = function == MinAggregation || function == MaxAggregation)
+        }
+      (keys ++ results).foreach { case (name, variable) => context.addVariable(name, variable) }
+
+      val (methodHandle, innerBlock) = context.popParent().consume(context, this)
+      val groups =
+        if (onlyCountsRows) {
+          val count = results.headOption.map(_._2).getOrElse(Variable(context.namer.newVarName(), CodeGenType.primitiveInt))
+          GetGroupsFromCountTable(opName, symbol.name, BuildCountTable.tableType(keyVariables),
+                                  keyVariables, count, innerBlock)
+        } else {
+          GetGroupsFromAggregationTable(opName, symbol.name, AggregationTableType(keyVariables.size, functions),
+                                        keyVariables, results.map(_._2), innerBlock)
+        }
+
+      (methodHandle, Seq(tableMethod, groups))
+    }
+
+    override def consume(context: CodeGenContext, child: CodeGenPlan): (Option[JoinTableMethod], Instruction) = {
+      val keys = groupingKeys.map { case (_, expression) => groupingVariable(expression, context) }
+      val opName = context.registerOperator(aggregation)
+
+      if (countsOnlyRows(context)) {
+        val table = BuildCountTable(opName, context.namer.newVarName(), keys)
+        (Some(JoinTableMethod(table.name, table.tableType)), table)
+      } else {
+        val values = aggregations.map {
+          case (_, expression) => aggregationFunction(expression) -> aggregationValue(expression, context)
+        }
+        val table = BuildAggregationTable(opName, context.namer.newVarName(), keys, values)
+        (Some(JoinTableMethod(table.name, table.tableType)), table)
+      }
+    }
+
+    private def groupingVariable(expression: Expression, context: CodeGenContext): Variable = expression match {
+      case ast.Variable(name) if isEntity(name, context) => context.getVariable(name)
+      case _ => throw new CantCompileQueryException(s"Grouping on $expression not yet supported")
+    }
+
+    private def countsOnlyRows(context: CodeGenContext) =
+      aggregations.forall { case (_, expression) => countsRows(expression, context) }
+
+    private def countsRows(expression: Expression, context: CodeGenContext): Boolean = expression match {
+      case _: ast.CountStar => true
+      case f: ast.FunctionInvocation if f.function == ast.functions.Count && !f.distinct => f.args match {
+        case Seq(ast.Variable(name)) => isEntity(name, context)
+        case _ => false
+      }
+      case _ => false
+    }
+
+    private def aggregationFunction(expression: Expression): AggregationFunction = expression match {
+      case _: ast.CountStar => CountStarAggregation
+      case f: ast.FunctionInvocation if !f.distinct && f.args.size == 1 => f.function match {
+        case ast.functions.Count => CountAggregation
+        case ast.functions.Sum => SumAggregation
+        case ast.functions.Min => MinAggregation
+        case ast.functions.Max => MaxAggregation
+        case ast.functions.Collect => CollectAggregation
+        case _ => throw new CantCompileQueryException(s"Aggregation of $expression not yet supported")
+      }
+      case _ => throw new CantCompileQueryException(s"Aggregation of $expression not yet supported")
+    }
+
+    private def aggregationValue(expression: Expression, context: CodeGenContext) = expression match {
+      case f: ast.FunctionInvocation => Some(ExpressionConverter.createProjection(f.args.head)(context))
+      case _ => None
+    }
+
+    private def isEntity(name: String, context: CodeGenContext) =
+      context.variableQueryVariables().contains(name) && {
+        val variable = context.getVariable(name)
+        !variable.nullable &&
+          (variable.codeGenType == CodeGenType.primitiveNode || variable.codeGenType == CodeGenType.primitiveRel)
+      }
+  }
+
+  /*
+   * Sort is a pipeline breaker like aggregation: the child pipeline fills a sort table with every variable in scope,
+   * and the rows above the sort are produced by iterating over that table in order. A limit directly on top of a
+   * sort is handled here as well, so that only the top rows are kept.
+   */
+  private def sortAsCodeGenPlan(sort: plans.Sort, limit: Option[plans.Limit]) = new CodeGenPlan {
+
+    override val logicalPlan: LogicalPlan = limit.getOrElse(sort)
+
+    override def produce(context: CodeGenContext): (Option[JoinTableMethod], Seq[Instruction]) = {
+      context.pushParent(this)
+      val (Some(symbol), childInstructions) = asCodeGenPlan(sort.left).produce(context)
+      val opName = context.registerOperator(logicalPlan)
+      val tableMethod = MethodInvocation(Set(opName), symbol, context.namer.newMethodName(), childInstructions)
+
+      val fields = fieldsInScope(context).map {
+        case (name, variable) => name -> variable.copy(name = context.namer.newVarName())
+      }
+      fields.foreach { case (name, variable) => context.addVariable(name, variable) }
+
+      val (methodHandle, innerBlock) = context.popParent().consume(context, this)
+      val tableType = SortTableType(fields.map(_._2.codeGenType), sortKeys(fields))
+      val sorted = GetSortedResult(opName, symbol.name, tableType, fields.map(_._2), innerBlock)
+
+      (methodHandle, Seq(tableMethod, sorted))
+    }
+
+    override def consume(context: CodeGenContext, child: CodeGenPlan): (Option[JoinTableMethod], Instruction) = {
+      val fields = fieldsInScope(context)
+      val opName = context.registerOperator(logicalPlan)
+      val count = limit.map(l => ExpressionConverter.createExpression(l.count)(context))
+      val table = BuildSortTable(opName, context.namer.newVarName(), fields.map(_._2), sortKeys(fields), count)
+
+      (Some(JoinTableMethod(table.name, table.tableType)), table)
+    }
+
+    private def fieldsInScope(context: CodeGenContext): Seq[(String, Variable)] = {
+      val inScope = context.variableQueryVariables()
+      sort.availableSymbols.toSeq.map(_.name).filter(inScope.contains).sorted.map(name => name -> context.getVariable(name))
+    }
+
+    private def sortKeys(fields: Seq[(String, Variable)]): Seq[SortKey] = sort.sortItems.map { item =>
+      val offset = fields.indexWhere { case (name, _) => name == item.id.name }
+      if (offset < 0)
+        throw new CantCompileQueryException(s"Sorting on ${item.id.name} not yet supported")
+      SortKey(offset, item match {
+        case _: Ascending => true
+        case _: Descending => false
+      })
+    }
+  }
+
   trait SingleChildPlan extends CodeGenPlan {
 
     final override def produce(context: CodeGenContext): (Option[JoinTableMethod], Seq[Instruction]) = {
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v3_1.codegen.ir
+
+import org.neo4j.cypher.internal.compiler.v3_1.codegen._
+import org.neo4j.cypher.internal.compiler.v3_1.codegen.ir.expressions.CodeGenExpression
+
+/*
+ * Feeds the incoming rows to the aggregation functions of their group, where groups are keyed by node and
+ * relationship ids. count(*) has no value, every other function gets the value of its expression.
+ */
+case class BuildAggregationTable(id: String, name: String, keys: Seq[Variable],
+                                 aggregations: Seq[(AggregationFunction, Option[CodeGenExpression])])
+  extends Instruction {
+
+  val tableType = AggregationTableType(keys.size, aggregations.map(_._1))
+
+  override def init[E](generator: MethodStructure[E])(implicit context: CodeGenContext) = {
+    aggregations.foreach { case (_, value) => value.foreach(_.init(generator)) }
+    generator.allocateProbeTable(name, tableType)
+  }
+
+  override def body[E](generator: MethodStructure[E])(implicit context: CodeGenContext) =
+    generator.updateAggregationTable(name, tableType, keys.map(_.name), aggregations.map {
+      case (_, Some(value)) => generator.box(value.generateExpression(generator), value.codeGenType)
+      case (_, None) => generator.constantExpression(null)
+    })
+
+  override protected def operatorId = Set(id)
+
+  override protected def children = Seq.empty
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v3_1.codegen.ir
+
+import org.neo4j.cypher.internal.compiler.v3_1.codegen._
+
+/*
+ * Counts the incoming rows per combination of node and relationship ids, which is all that is
+ * needed to answer DISTINCT and count(*) over entities. With no keys a single group is counted.
+ */
+case class BuildCountTable(id: String, name: String, keys: Seq[Variable]) extends Instruction {
+
+  val tableType: CountingJoinTableType = BuildCountTable.tableType(keys)
+
+  override def init[E](generator: MethodStructure[E])(implicit context: CodeGenContext) =
+    generator.allocateProbeTable(name, tableType)
+
+  override def body[E](generator: MethodStructure[E])(implicit context: CodeGenContext) =
+    generator.updateProbeTableCount(name, tableType, keys.map(_.name))
+
+  override protected def operatorId = Set(id)
+
+  override protected def children = Seq.empty
+}
+
+object BuildCountTable {
+
+  def tableType(keys: Seq[Variable]): CountingJoinTableType =
+    if (keys.size == 1) LongToCountTable else LongsToCountTable
+}
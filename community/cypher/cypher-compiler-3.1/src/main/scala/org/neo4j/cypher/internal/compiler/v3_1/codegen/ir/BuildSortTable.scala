@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v3_1.codegen.ir
+
+import org.neo4j.cypher.internal.compiler.v3_1.codegen._
+import org.neo4j.cypher.internal.compiler.v3_1.codegen.ir.expressions.CodeGenExpression
+
+/*
+ * Collects the incoming rows into a sort table. With a limit only that many of the first rows in sort order
+ * are kept, which is how ORDER BY ... LIMIT is answered without sorting every row.
+ */
+case class BuildSortTable(id: String, name: String, fields: Seq[Variable], keys: Seq[SortKey],
+                          limit: Option[CodeGenExpression]) extends Instruction {
+
+  val tableType = SortTableType(fields.map(_.codeGenType), keys)
+
+  override def init[E](generator: MethodStructure[E])(implicit context: CodeGenContext) = {
+    limit.foreach(_.init(generator))
+    generator.allocateSortTable(name, tableType,
+                                limit.map(count => generator.box(count.generateExpression(generator), count.codeGenType)))
+  }
+
+  override def body[E](generator: MethodStructure[E])(implicit context: CodeGenContext) =
+    generator.addToSortTable(name, tableType, fields.map(_.name))
+
+  override protected def operatorId = Set(id)
+
+  override protected def children = Seq.empty
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v3_1.codegen.ir
+
+import org.neo4j.cypher.internal.compiler.v3_1.codegen._
+
+case class GetGroupsFromAggregationTable(id: String, tableVar: String, tableType: AggregationTableType,
+                                         keys: Seq[Variable], results: Seq[Variable], action: Instruction)
+  extends Instruction {
+
+  override def body[E](generator: MethodStructure[E])(implicit context: CodeGenContext) =
+    generator.trace(id) { traced =>
+      traced.iterateAggregationTable(tableVar, tableType, keys.map(_.name), results.map(_.name)) { body =>
+        body.incrementRows()
+        action.body(body)
+      }
+    }
+
+  override def init[E](generator: MethodStructure[E])(implicit context: CodeGenContext) =
+    action.init(generator)
+
+  override protected def operatorId = Set(id)
+
+  override def children = Seq(action)
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v3_1.codegen.ir
+
+import org.neo4j.cypher.internal.compiler.v3_1.codegen.ir.expressions.CodeGenExpression
+import org.neo4j.cypher.internal.compiler.v3_1.codegen.{CodeGenContext, MethodStructure, Variable}
+import org.neo4j.cypher.internal.frontend.v3_1.SemanticDirection
+
+/*
+ * Expands the variable length paths from a node. Predicates on the nodes and relationships of the paths are
+ * evaluated while expanding: the paths stop at every node or relationship that needs a decision, which is bound to
+ * the candidate variable of its predicates so that they can be evaluated. With a bound end node only the paths
+ * ending in it are produced.
+ */
+case class VarLengthExpandInstruction(opName: String, fromVar: Variable, dir: SemanticDirection,
+                                      projectedDir: SemanticDirection, types: Map[String, String],
+                                      min: Int, max: Option[Int], toVar: Variable, relsVar: Variable,
+                                      boundToVar: Option[Variable],
+                                      nodePredicates: Option[(Variable, Seq[CodeGenExpression])],
+                                      relPredicates: Option[(Variable, Seq[CodeGenExpression])],
+                                      action: Instruction) extends Instruction {
+
+  override def init[E](generator: MethodStructure[E])(implicit context: CodeGenContext) = {
+    super.init(generator)
+    types.foreach {
+      case (typeVar,relType) => generator.lookupRelationshipTypeId(typeVar, relType)
+    }
+    (nodePredicates ++ relPredicates).foreach {
+      case (_, predicates) => predicates.foreach(_.init(generator))
+    }
+  }
+
+  override def body[E](generator: MethodStructure[E])(implicit context: CodeGenContext) = {
+    val iterator = s"${relsVar.name}Iter"
+    generator.trace(opName) { body =>
+      body.nodeGetVarLengthPaths(iterator, fromVar.name, dir, types.keys.toSeq, min, max, reversed,
+                                 boundToVar.map(_.name), nodePredicates.isDefined, relPredicates.isDefined)
+      body.incrementDbHits()
+      body.whileLoop(body.hasNextPath(iterator)) { loopBody =>
+        nodePredicates.foreach {
+          case (candidate, predicates) =>
+            loopBody.ifStatement(loopBody.pathNodeCandidate(iterator))(decide(iterator, candidate, predicates))
+        }
+        relPredicates.foreach {
+          case (candidate, predicates) =>
+            loopBody.ifStatement(loopBody.pathRelationshipCandidate(iterator))(decide(iterator, candidate, predicates))
+        }
+        if (nodePredicates.isEmpty && relPredicates.isEmpty) producePath(iterator, loopBody)
+        else loopBody.ifStatement(loopBody.pathReady(iterator))(producePath(iterator, _))
+      }
+    }
+  }
+
+  private def decide[E](iterator: String, candidate: Variable, predicates: Seq[CodeGenExpression])
+                       (generator: MethodStructure[E])(implicit context: CodeGenContext) = {
+    generator.nextPathCandidate(candidate.name, iterator)
+    generator.decidePathCandidate(iterator, predicates.map(_.generateExpression(generator)).reduceLeft(generator.andExpression))
+  }
+
+  private def producePath[E](iterator: String, generator: MethodStructure[E])(implicit context: CodeGenContext) = {
+    generator.incrementDbHits()
+    generator.incrementRows()
+    generator.nextPath(toVar.name, iterator, relsVar.name)
+    action.body(generator)
+  }
+
+  override def operatorId: Set[String] = Set(opName)
+
+  override def children = Seq(action)
+
+  // the relationships are listed in the direction of the pattern, not in the direction they were followed
+  private def reversed =
+    if (dir == SemanticDirection.BOTH) projectedDir == SemanticDirection.INCOMING else dir != projectedDir
+}
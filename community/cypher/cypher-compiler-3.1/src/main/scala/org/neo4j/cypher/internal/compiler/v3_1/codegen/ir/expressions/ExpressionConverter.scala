@@ -23,7 +23,7 @@ import org.neo4j.cypher.internal.compiler.v3_1.codegen.ir.expressions
 import org.neo4j.cypher.internal.compiler.v3_1.codegen.ir.functions.functionConverter
 import org.neo4j.cypher.internal.compiler.v3_1.codegen.{CodeGenContext, MethodStructure}
 import org.neo4j.cypher.internal.compiler.v3_1.planner.CantCompileQueryException
-import org.neo4j.cypher.internal.frontend.v3_1.symbols.{CTBoolean, CTNode, CTRelationship}
+import org.neo4j.cypher.internal.frontend.v3_1.symbols.{CTBoolean, CTInteger, CTNode, CTRelationship}
 import org.neo4j.cypher.internal.frontend.v3_1.{InternalException, ast}
 
 object ExpressionConverter {
@@ -96,7 +96,10 @@ object ExpressionConverter {
     variable.codeGenType.ct match {
       case CTNode => NodeProjection(variable)
       case CTRelationship => RelationshipProjection(variable)
-      case _ => throw new InternalException("The compiled runtime only handles variables pointing to rels and nodes at this time")
+      case CTInteger => LoadVariable(variable)
+      // values that are already materialized, such as sorted projections and var length relationships
+      case _ if !variable.codeGenType.isPrimitive => LoadVariable(variable)
+      case _ => throw new InternalException("The compiled runtime only handles variables pointing to rels, nodes and counts at this time")
     }
   }
 
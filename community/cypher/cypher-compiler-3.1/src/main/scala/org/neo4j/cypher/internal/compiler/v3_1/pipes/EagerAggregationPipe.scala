@@ -28,13 +28,13 @@ import org.neo4j.cypher.internal.frontend.v3_1.symbols._
 import org.neo4j.cypher.internal.compiler.v3_1.symbols.SymbolTable
 
 import scala.collection.GenTraversableOnce
-import scala.collection.mutable.{ArrayBuffer, Map => MutableMap}
+import scala.collection.mutable.ArrayBuffer
 
 // Eager aggregation means that this pipe will eagerly load the whole resulting sub graphs before starting
 // to emit aggregated results.
 // Cypher is lazy until it can't - this pipe will eagerly load the full match
 case class EagerAggregationPipe(source: Pipe, keyExpressions: Set[String], aggregations: Map[String, AggregationExpression])
-                               (val estimatedCardinality: Option[Double] = None)
+                               (val estimatedCardinality: Option[Double] = None, val memoryBudget: Long = 0L)
                                (implicit pipeMonitor: PipeMonitor) extends PipeWithSource(source, pipeMonitor) with RonjaPipe with NoEffectsPipe {
 
   val symbols: SymbolTable = createSymbols()
@@ -52,8 +52,6 @@ case class EagerAggregationPipe(source: Pipe, keyExpressions: Set[String], aggre
     //register as parent so that stats are associated with this pipe
     state.decorator.registerParentPipe(this)
 
-    // This is the temporary storage used while the aggregation is going on
-    val result = MutableMap[Equals, Seq[AggregationFunction]]()
     val keyNames = keyExpressions.toList
     val aggregationNames: Seq[String] = aggregations.keys.toSeq
     val keyNamesSize = keyNames.size
@@ -99,26 +97,17 @@ case class EagerAggregationPipe(source: Pipe, keyExpressions: Set[String], aggre
       ExecutionContext(newMap)
     }
 
-    input.foreach(ctx => {
-      val groupValues: Equals = keyNamesSize match {
-        case 1 => Equivalent(ctx(keyNames.head))
-        case 2 => (Equivalent(ctx(keyNames.head)),Equivalent(ctx(keyNames.last)))
-        case 3 => (Equivalent(ctx(keyNames.head)),Equivalent(ctx(keyNames.tail.head)),Equivalent(ctx(keyNames.last)))
-        case _ => keyNames.map( k => Equivalent(ctx(k)))
-      }
-      val functions = result.getOrElseUpdate(groupValues, {
-        val aggregateFunctions: Seq[AggregationFunction] = aggregations.map(_._2.createAggregationFunction).toSeq
-        aggregateFunctions
-      })
-      functions.foreach(func => func(ctx)(state))
-    })
+    // This is the temporary storage used while the aggregation is going on
+    val result = new GroupingTable(this, keyNames, () => aggregations.map(_._2.createAggregationFunction).toSeq,
+                                   memoryBudget)(state)
+    input.foreach(result.add)
 
     if (result.isEmpty && keyNames.isEmpty) {
       createEmptyResult(state.params)
     } else {
-      result.map {
+      result.result().map {
         case (key, aggregator) => createResults(key, aggregator)
-      }.toIterator
+      }
     }
   }
 
@@ -127,8 +116,8 @@ case class EagerAggregationPipe(source: Pipe, keyExpressions: Set[String], aggre
 
   def dup(sources: List[Pipe]): Pipe = {
     val (source :: Nil) = sources
-    copy(source = source)(estimatedCardinality)
+    copy(source = source)(estimatedCardinality, memoryBudget)
   }
 
-  def withEstimatedCardinality(estimated: Double) = copy()(Some(estimated))
+  def withEstimatedCardinality(estimated: Double) = copy()(Some(estimated), memoryBudget)
 }
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v3_1.pipes
+
+import org.neo4j.collection.primitive.{Primitive, PrimitiveLongObjectMap}
+import org.neo4j.cypher.internal.compiler.v3_1.ExecutionContext
+import org.neo4j.cypher.internal.compiler.v3_1.commands.predicates.Equivalent
+import org.neo4j.cypher.internal.compiler.v3_1.pipes.aggregation.AggregationFunction
+import org.neo4j.graphdb.{Node, Relationship}
+
+import scala.collection.mutable.{ArrayBuffer, Map => MutableMap}
+
+/*
+ * Groups rows on the values of their grouping keys, and feeds each row to the aggregation functions of its group.
+ *
+ * With a single grouping key, groups of nodes, relationships and integers are kept in primitive long maps instead
+ * of being keyed on Equivalent. The first key of any other kind moves every group over to the Equivalent keyed map,
+ * which keeps the equivalence rules, like 1 being equal to 1.0, exactly as they are.
+ *
+ * Once a memory budget is used up, rows of groups that are already in memory keep being aggregated in memory, while
+ * rows of any other group are written to one of a number of spill files, partitioned on the hash of their grouping
+ * key. After the groups in memory have been returned, each spill file is aggregated by a table of its own, which may
+ * in turn spill using another hash. The budget is a soft limit: values collected by groups in memory keep growing.
+ */
+class GroupingTable(pipe: Pipe, keyNames: List[String], newFunctions: () => Seq[AggregationFunction],
+                    memoryBudget: Long, depth: Int = 0)(implicit state: QueryState) {
+  import GroupingTable._
+
+  private val keyNamesSize = keyNames.size
+  private val groups = new ArrayBuffer[Group]()
+  private var primitive = keyNamesSize == 1
+  private var nodes: PrimitiveLongObjectMap[Group] = if (primitive) Primitive.longObjectMap() else null
+  private var relationships: PrimitiveLongObjectMap[Group] = if (primitive) Primitive.longObjectMap() else null
+  private var numbers: PrimitiveLongObjectMap[Group] = if (primitive) Primitive.longObjectMap() else null
+  private var general = MutableMap[Equals, Group]()
+  private var pendingKey: Equals = null
+
+  private var memory = 0L
+  private var peakMemory = 0L
+  private var spillable = memoryBudget > 0 && depth < MAX_DEPTH
+  private var partitions: Array[SpillFile] = null
+  private val spillFiles = new ArrayBuffer[SpillFile]()
+
+  def add(ctx: ExecutionContext): Unit = {
+    val group = find(ctx)
+    if (group != null)
+      aggregate(group, ctx)
+    else if (partitions == null)
+      aggregate(create(ctx), ctx)
+    else
+      spill(ctx)
+  }
+
+  def isEmpty: Boolean = groups.isEmpty && spillFiles.isEmpty
+
+  /*
+   * Returns the grouping key and aggregation functions of every group, starting with the groups in memory.
+   */
+  def result(): Iterator[(Equals, Seq[AggregationFunction])] = {
+    if (memoryBudget > 0) {
+      state.decorator.registerPeakMemory(pipe, peakMemory)
+      state.decorator.registerSpills(pipe, spillFiles.size, spillFiles.map(_.bytes).sum)
+    }
+
+    val spilled = spillFiles.toList
+    partitions = null
+    nodes = null
+    relationships = null
+    numbers = null
+    general = null
+
+    val inMemory = new Iterator[(Equals, Seq[AggregationFunction])] {
+      private var i = 0
+
+      override def hasNext: Boolean = i < groups.size
+
+      override def next(): (Equals, Seq[AggregationFunction]) = {
+        val group = groups(i)
+        // let go of groups as they are returned
+        groups(i) = null
+        i += 1
+        (group.key, group.functions)
+      }
+    }
+
+    inMemory ++ spilled.iterator.flatMap {
+      file =>
+        val table = new GroupingTable(pipe, keyNames, newFunctions, memoryBudget, depth + 1)
+        file.rows.foreach(table.add)
+        table.result()
+    }
+  }
+
+  private def find(ctx: ExecutionContext): Group =
+    if (primitive) {
+      ctx(keyNames.head) match {
+        case n: Node => nodes.get(n.getId)
+        case r: Relationship => relationships.get(r.getId)
+        case l: Long => numbers.get(l)
+        case i: Int => numbers.get(i)
+        case s: Short => numbers.get(s)
+        case b: Byte => numbers.get(b)
+        case _ =>
+          toGeneral()
+          find(ctx)
+      }
+    } else {
+      pendingKey = groupingKey(ctx)
+      general.getOrElse(pendingKey, null)
+    }
+
+  private def create(ctx: ExecutionContext): Group = {
+    val functions = newFunctions()
+    val group = if (primitive) {
+      val value = ctx(keyNames.head)
+      val group = new Group(value, null, functions)
+      value match {
+        case n: Node => nodes.put(n.getId, group)
+        case r: Relationship => relationships.put(r.getId, group)
+        case n: Number => numbers.put(n.longValue(), group)
+      }
+      group
+    } else {
+      val group = new Group(null, pendingKey, functions)
+      general.put(pendingKey, group)
+      group
+    }
+    groups += group
+
+    if (memoryBudget > 0)
+      memory += GROUP_OVERHEAD + FUNCTION_OVERHEAD * functions.size + keyNames.map(k => RowSize.estimateValue(ctx(k))).sum
+    group
+  }
+
+  private def aggregate(group: Group, ctx: ExecutionContext): Unit =
+    if (memoryBudget > 0) {
+      val before = group.estimatedMemory
+      group.functions.foreach(func => func(ctx))
+      memory += group.estimatedMemory - before
+      peakMemory = math.max(peakMemory, memory)
+      if (spillable && partitions == null && memory > memoryBudget)
+        partitions = new Array[SpillFile](PARTITIONS)
+    } else {
+      group.functions.foreach(func => func(ctx))
+    }
+
+  private def spill(ctx: ExecutionContext): Unit = {
+    val hash = if (primitive) Equivalent(ctx(keyNames.head)).hashCode() else pendingKey.hashCode()
+    val partition = Math.floorMod(scala.util.hashing.byteswap32(hash ^ (depth * HASH_SEED)), PARTITIONS)
+    if (partitions(partition) == null) {
+      if (spillFiles.isEmpty)
+        state.taskCloser.foreach(_.addTask(_ => spillFiles.foreach(_.delete())))
+      partitions(partition) = new SpillFile("cypher-aggregation")
+      spillFiles += partitions(partition)
+    }
+
+    try {
+      partitions(partition).write(ctx)
+    } catch {
+      case _: UnspillableValue =>
+        // aggregate everything that was spilled so far in memory instead, and stop spilling
+        spillable = false
+        partitions = null
+        val spilled = spillFiles.toList
+        spillFiles.clear()
+        spilled.foreach(_.rows.foreach(add))
+        add(ctx)
+    }
+  }
+
+  private def toGeneral(): Unit = {
+    primitive = false
+    groups.foreach(group => general.put(group.key, group))
+    nodes = null
+    relationships = null
+    numbers = null
+  }
+
+  private def groupingKey(ctx: ExecutionContext): Equals = keyNamesSize match {
+    case 1 => Equivalent(ctx(keyNames.head))
+    case 2 => (Equivalent(ctx(keyNames.head)), Equivalent(ctx(keyNames.last)))
+    case 3 => (Equivalent(ctx(keyNames.head)), Equivalent(ctx(keyNames.tail.head)), Equivalent(ctx(keyNames.last)))
+    case _ => keyNames.map(k => Equivalent(ctx(k)))
+  }
+}
+
+object GroupingTable {
+  private val PARTITIONS = 16
+  private val MAX_DEPTH = 4
+  private val HASH_SEED = 0x9E3779B9
+  private val GROUP_OVERHEAD = 64
+  private val FUNCTION_OVERHEAD = 32
+
+  /*
+   * Groups kept in the primitive maps hold on to their single key value, and only wrap it in an Equivalent when
+   * the key is asked for.
+   */
+  private class Group(value: Any, private var _key: Equals, val functions: Seq[AggregationFunction]) {
+    def key: Equals = {
+      if (_key == null)
+        _key = Equivalent(value)
+      _key
+    }
+
+    def estimatedMemory: Long = functions.foldLeft(0L)(_ + _.estimatedMemory)
+  }
+}
@@ -43,6 +43,17 @@ trait PipeDecorator {
    * the calling pipe.
    */
   def registerParentPipe(pipe: Pipe): Unit
+
+  /*
+   * Registers how many sorted runs, and how many bytes, a pipe wrote to temporary files because it ran out of
+   * its memory budget.
+   */
+  def registerSpills(pipe: Pipe, runs: Long, bytes: Long): Unit
+
+  /*
+   * Registers the estimated peak heap usage of a pipe that keeps track of its memory budget.
+   */
+  def registerPeakMemory(pipe: Pipe, bytes: Long): Unit
 }
 
 object NullPipeDecorator extends PipeDecorator {
@@ -55,4 +66,8 @@ object NullPipeDecorator extends PipeDecorator {
   def innerDecorator: PipeDecorator = NullPipeDecorator
 
   def registerParentPipe(pipe: Pipe) {}
+
+  def registerSpills(pipe: Pipe, runs: Long, bytes: Long) {}
+
+  def registerPeakMemory(pipe: Pipe, bytes: Long) {}
 }
@@ -23,12 +23,18 @@ import org.neo4j.cypher.internal.compiler.v3_1.planDescription.InternalPlanDescr
 import org.neo4j.cypher.internal.compiler.v3_1.{Comparer, ExecutionContext}
 
 case class SortPipe(source: Pipe, orderBy: Seq[SortDescription])
-                   (val estimatedCardinality: Option[Double] = None)(implicit monitor: PipeMonitor)
+                   (val estimatedCardinality: Option[Double] = None, val memoryBudget: Long = 0L)
+                   (implicit monitor: PipeMonitor)
   extends PipeWithSource(source, monitor) with RonjaPipe with NoEffectsPipe {
   protected def internalCreateResults(input: Iterator[ExecutionContext], state: QueryState): Iterator[ExecutionContext] = {
-    val array = input.toArray
-    java.util.Arrays.sort(array, new InnerOrdering(orderBy)(state))
-    array.toIterator
+    val ordering = new InnerOrdering(orderBy)(state)
+    if (memoryBudget > 0) {
+      (new SpillingSorter(this, ordering, memoryBudget)(state) ++= input).result()
+    } else {
+      val array = input.toArray
+      java.util.Arrays.sort(array, ordering)
+      array.toIterator
+    }
   }
 
   def planDescriptionWithoutCardinality = source.planDescription.andThen(this.id, "Sort", variables, KeyNames(orderBy.map(_.id)))
@@ -37,10 +43,10 @@ case class SortPipe(source: Pipe, orderBy: Seq[SortDescription])
 
   def dup(sources: List[Pipe]): Pipe = {
     val (head :: Nil) = sources
-    copy(source = head)(estimatedCardinality)
+    copy(source = head)(estimatedCardinality, memoryBudget)
   }
 
-  def withEstimatedCardinality(estimated: Double) = copy()(Some(estimated))
+  def withEstimatedCardinality(estimated: Double) = copy()(Some(estimated), memoryBudget)
 }
 
 private class InnerOrdering(order: Seq[SortDescription])(implicit qtx: QueryState) extends scala.Ordering[ExecutionContext] {
@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v3_1.pipes
+
+import java.io._
+import java.nio.charset.StandardCharsets.UTF_8
+import java.nio.file.Files
+
+import org.neo4j.cypher.internal.compiler.v3_1.ExecutionContext
+import org.neo4j.graphdb.{Node, Path, Relationship}
+
+import scala.collection.mutable
+import scala.util.control.NoStackTrace
+
+private class UnspillableValue extends Exception with NoStackTrace
+
+/*
+ * A temporary file that rows are written to when an operator runs out of its memory budget, and read back from in
+ * the order they were written. Column names are written once per file and referred to by index afterwards, and
+ * values are written as a type tag followed by their data. Nodes and relationships are written as ids and looked up
+ * again when read, which is why only read-only queries spill.
+ *
+ * Writing a row that holds a value that cannot be written, like a path or a point, throws UnspillableValue and
+ * leaves the file as it was before that row.
+ */
+private class SpillFile(prefix: String)(implicit state: QueryState) {
+  import SpillFile._
+
+  private val file = Files.createTempFile(prefix, ".spill")
+  private var writer: Option[DataOutputStream] = None
+  private var reader: Option[DataInputStream] = None
+  private val writtenKeys = mutable.Map.empty[String, Int]
+  private val rowBuffer = new ByteArrayOutputStream()
+  private val rowOut = new DataOutputStream(rowBuffer)
+  private var _bytes = 0L
+
+  def bytes: Long = _bytes
+
+  def write(row: ExecutionContext): Unit = {
+    val out = writer.getOrElse {
+      val out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE))
+      writer = Some(out)
+      out
+    }
+    val keysBefore = writtenKeys.size
+    rowBuffer.reset()
+    try {
+      rowOut.writeInt(row.size)
+      row.foreach {
+        case (key, value) =>
+          writtenKeys.get(key) match {
+            case Some(index) =>
+              rowOut.writeInt(index)
+            case None =>
+              rowOut.writeInt(writtenKeys.size)
+              rowOut.writeUTF(key)
+              writtenKeys.put(key, writtenKeys.size)
+          }
+          writeValue(rowOut, value)
+      }
+    } catch {
+      case e: UnspillableValue =>
+        writtenKeys.retain((_, index) => index < keysBefore)
+        throw e
+    }
+    rowBuffer.writeTo(out)
+    _bytes += rowBuffer.size()
+  }
+
+  /*
+   * Finishes writing, and returns the rows in the order they were written. The file is deleted once all rows
+   * have been read.
+   */
+  def rows: Iterator[ExecutionContext] = {
+    writer.foreach {
+      out =>
+        out.writeInt(END_OF_FILE)
+        out.close()
+    }
+    writer = None
+    if (_bytes == 0) {
+      delete()
+      Iterator.empty
+    } else new Iterator[ExecutionContext] {
+      private val in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))
+      private val keys = new mutable.ArrayBuffer[String]()
+      private var size = in.readInt()
+      reader = Some(in)
+
+      override def hasNext: Boolean = size != END_OF_FILE
+
+      override def next(): ExecutionContext = {
+        if (!hasNext)
+          Iterator.empty.next()
+        val row = MutableMaps.create(size)
+        var i = 0
+        while (i < size) {
+          val index = in.readInt()
+          if (index == keys.size)
+            keys += in.readUTF()
+          row.put(keys(index), readValue(in))
+          i += 1
+        }
+        size = in.readInt()
+        if (size == END_OF_FILE) delete()
+        ExecutionContext(row)
+      }
+    }
+  }
+
+  def delete(): Unit = {
+    writer.foreach(_.close())
+    writer = None
+    reader.foreach(_.close())
+    reader = None
+    Files.deleteIfExists(file)
+  }
+}
+
+private object SpillFile {
+  private val BUFFER_SIZE = 64 * 1024
+  private val END_OF_FILE = -1
+
+  private val NULL = 0
+  private val FALSE = 1
+  private val TRUE = 2
+  private val BYTE = 3
+  private val SHORT = 4
+  private val INT = 5
+  private val LONG = 6
+  private val FLOAT = 7
+  private val DOUBLE = 8
+  private val CHAR = 9
+  private val STRING = 10
+  private val NODE = 11
+  private val RELATIONSHIP = 12
+  private val LIST = 13
+  private val MAP = 14
+  private val ARRAY = 15
+
+  private val arrayTypes: Map[Class[_], Int] = Map(
+    classOf[Boolean] -> TRUE, classOf[Byte] -> BYTE, classOf[Short] -> SHORT, classOf[Int] -> INT,
+    classOf[Long] -> LONG, classOf[Float] -> FLOAT, classOf[Double] -> DOUBLE, classOf[Char] -> CHAR,
+    classOf[String] -> STRING)
+  private val arrayClasses: Map[Int, Class[_]] = arrayTypes.map(_.swap)
+
+  private def writeValue(out: DataOutputStream, value: Any)(implicit state: QueryState): Unit = value match {
+    case null => out.writeByte(NULL)
+    case b: Boolean => out.writeByte(if (b) TRUE else FALSE)
+    case b: Byte => out.writeByte(BYTE); out.writeByte(b)
+    case s: Short => out.writeByte(SHORT); out.writeShort(s)
+    case i: Int => out.writeByte(INT); out.writeInt(i)
+    case l: Long => out.writeByte(LONG); out.writeLong(l)
+    case f: Float => out.writeByte(FLOAT); out.writeFloat(f)
+    case d: Double => out.writeByte(DOUBLE); out.writeDouble(d)
+    case c: Char => out.writeByte(CHAR); out.writeChar(c)
+    case s: String => out.writeByte(STRING); writeString(out, s)
+    case n: Node =>
+      if (state.query.nodeOps.isDeletedInThisTx(n)) throw new UnspillableValue
+      out.writeByte(NODE); out.writeLong(n.getId)
+    case r: Relationship =>
+      if (state.query.relationshipOps.isDeletedInThisTx(r)) throw new UnspillableValue
+      out.writeByte(RELATIONSHIP); out.writeLong(r.getId)
+    case _: Path => throw new UnspillableValue
+    case m: collection.Map[_, _] =>
+      out.writeByte(MAP)
+      out.writeInt(m.size)
+      m.foreach {
+        case (key: String, v) => writeString(out, key); writeValue(out, v)
+        case _ => throw new UnspillableValue
+      }
+    case s: Traversable[_] =>
+      out.writeByte(LIST)
+      out.writeInt(s.size)
+      s.foreach(writeValue(out, _))
+    case a: Array[_] if arrayTypes.contains(a.getClass.getComponentType) =>
+      out.writeByte(ARRAY)
+      out.writeByte(arrayTypes(a.getClass.getComponentType))
+      out.writeInt(a.length)
+      a.foreach(writeValue(out, _))
+    case _ => throw new UnspillableValue
+  }
+
+  private def readValue(in: DataInputStream)(implicit state: QueryState): Any = in.readByte().toInt match {
+    case NULL => null
+    case FALSE => false
+    case TRUE => true
+    case BYTE => in.readByte()
+    case SHORT => in.readShort()
+    case INT => in.readInt()
+    case LONG => in.readLong()
+    case FLOAT => in.readFloat()
+    case DOUBLE => in.readDouble()
+    case CHAR => in.readChar()
+    case STRING => readString(in)
+    case NODE => state.query.nodeOps.getById(in.readLong())
+    case RELATIONSHIP => state.query.relationshipOps.getById(in.readLong())
+    case MAP =>
+      val size = in.readInt()
+      val builder = Map.newBuilder[String, Any]
+      (0 until size).foreach(_ => builder += readString(in) -> readValue(in))
+      builder.result()
+    case LIST =>
+      val size = in.readInt()
+      val builder = Vector.newBuilder[Any]
+      (0 until size).foreach(_ => builder += readValue(in))
+      builder.result()
+    case ARRAY =>
+      val componentType = arrayClasses(in.readByte().toInt)
+      val size = in.readInt()
+      val array = java.lang.reflect.Array.newInstance(componentType, size)
+      (0 until size).foreach(i => java.lang.reflect.Array.set(array, i, readValue(in)))
+      array
+    case tag => throw new IllegalStateException(s"Unknown value tag $tag in spill file")
+  }
+
+  private def writeString(out: DataOutputStream, s: String): Unit = {
+    val bytes = s.getBytes(UTF_8)
+    out.writeInt(bytes.length)
+    out.write(bytes)
+  }
+
+  private def readString(in: DataInputStream): String = {
+    val bytes = new Array[Byte](in.readInt())
+    in.readFully(bytes)
+    new String(bytes, UTF_8)
+  }
+}
+
+/*
+ * A rough estimate of how much heap a row takes, used to decide when to spill. It only has to be in the right
+ * ballpark, since the budget is a soft limit.
+ */
+object RowSize {
+  private val ENTRY_OVERHEAD = 48
+  private val OBJECT_OVERHEAD = 16
+
+  def estimate(row: ExecutionContext): Long = {
+    var size = 64L
+    row.foreach {
+      case (key, value) => size += ENTRY_OVERHEAD + estimateValue(key) + estimateValue(value)
+    }
+    size
+  }
+
+  def estimateValue(value: Any): Long = value match {
+    case null => 0
+    case s: String => 40 + 2L * s.length
+    case _: Node | _: Relationship => 32
+    case m: collection.Map[_, _] =>
+      m.foldLeft(64L) { case (acc, (k, v)) => acc + ENTRY_OVERHEAD + estimateValue(k) + estimateValue(v) }
+    case s: Traversable[_] => s.foldLeft(32L)((acc, v) => acc + 8 + estimateValue(v))
+    case a: Array[_] => OBJECT_OVERHEAD + a.length * (if (a.getClass.getComponentType.isPrimitive) 8L else 48L)
+    case _ => 24
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v3_1.pipes
+
+import java.util.{Comparator, PriorityQueue}
+
+import org.neo4j.cypher.internal.compiler.v3_1.ExecutionContext
+
+import scala.collection.mutable
+
+/*
+ * Sorts rows within a memory budget. Rows are buffered until their estimated size goes over the budget, at which
+ * point they are sorted and written to a spill file as a sorted run. The result is a streaming merge of all
+ * runs, which keeps only one row per run in memory. Rows are expected to arrive in input order, and the sort is
+ * stable, just like sorting everything in memory.
+ *
+ * Values that cannot be written to a run, like paths or points, turn spilling off and the rest of the sort is done
+ * in memory. A budget of zero never spills.
+ */
+class SpillingSorter(pipe: Pipe, ordering: Ordering[ExecutionContext], memoryBudget: Long)(implicit state: QueryState) {
+
+  private val buffer = new mutable.ArrayBuffer[ExecutionContext]()
+  private val runs = new mutable.ArrayBuffer[SpillFile]()
+  private var bufferedBytes = 0L
+  private var spilledBytes = 0L
+  private var peakMemory = 0L
+  private var spillable = memoryBudget > 0
+
+  def add(row: ExecutionContext): Unit = {
+    buffer += row
+    if (memoryBudget > 0) {
+      bufferedBytes += RowSize.estimate(row)
+      peakMemory = math.max(peakMemory, bufferedBytes)
+      if (spillable && bufferedBytes > memoryBudget)
+        spill()
+    }
+  }
+
+  def ++=(rows: Iterator[ExecutionContext]): this.type = {
+    rows.foreach(add)
+    this
+  }
+
+  def result(): Iterator[ExecutionContext] = {
+    if (memoryBudget > 0) {
+      state.decorator.registerSpills(pipe, runs.size, spilledBytes)
+      state.decorator.registerPeakMemory(pipe, peakMemory)
+    }
+
+    val sorted = sortBuffer()
+    if (runs.isEmpty)
+      sorted.iterator
+    else
+      // the rows still in memory arrived last, so they go last to keep the merge stable
+      new MergingIterator(runs.map(_.rows) :+ sorted.iterator)
+  }
+
+  def close(): Unit = runs.foreach(_.delete())
+
+  private def sortBuffer(): Array[ExecutionContext] = {
+    val array = buffer.toArray
+    buffer.clear()
+    bufferedBytes = 0
+    java.util.Arrays.sort(array, ordering)
+    array
+  }
+
+  private def spill(): Unit = {
+    val rowBytes = bufferedBytes
+    val rows = sortBuffer()
+    if (runs.isEmpty)
+      state.taskCloser.foreach(_.addTask(_ => close()))
+
+    val run = new SpillFile("cypher-sort")
+    try {
+      rows.foreach(run.write)
+      runs += run
+      spilledBytes += run.bytes
+    } catch {
+      case _: UnspillableValue =>
+        run.delete()
+        spillable = false
+        buffer ++= rows
+        bufferedBytes = rowBytes
+      case e: Throwable =>
+        run.delete()
+        throw e
+    }
+  }
+
+  private class MergingIterator(inputs: Seq[Iterator[ExecutionContext]]) extends Iterator[ExecutionContext] {
+    private case class Head(row: ExecutionContext, input: Int)
+
+    private val heads = new PriorityQueue[Head](inputs.size, new Comparator[Head] {
+      override def compare(a: Head, b: Head): Int = {
+        val cmp = ordering.compare(a.row, b.row)
+        if (cmp != 0) cmp else Integer.compare(a.input, b.input)
+      }
+    })
+
+    inputs.indices.foreach(advance)
+
+    override def hasNext: Boolean = !heads.isEmpty
+
+    override def next(): ExecutionContext = {
+      if (heads.isEmpty)
+        Iterator.empty.next()
+      val head = heads.poll()
+      advance(head.input)
+      head.row
+    }
+
+    private def advance(input: Int): Unit =
+      if (inputs(input).hasNext)
+        heads.add(Head(inputs(input).next(), input))
+  }
+}
@@ -19,7 +19,7 @@
  */
 package org.neo4j.cypher.internal.compiler.v3_1.pipes
 
-import java.util.Comparator
+import java.util.{Collections, Comparator, PriorityQueue}
 
 import org.neo4j.cypher.internal.compiler.v3_1._
 import org.neo4j.cypher.internal.compiler.v3_1.commands.expressions.Expression
@@ -66,7 +66,9 @@ abstract class TopPipe(source: Pipe, sortDescription: List[SortDescription], est
 }
 
 case class TopNPipe(source: Pipe, sortDescription: List[SortDescription], countExpression: Expression)
-(val estimatedCardinality: Option[Double] = None)(implicit pipeMonitor: PipeMonitor) extends TopPipe(source, sortDescription, estimatedCardinality)(pipeMonitor) {
+(val estimatedCardinality: Option[Double] = None, val memoryBudget: Long = 0L)(implicit pipeMonitor: PipeMonitor) extends TopPipe(source, sortDescription, estimatedCardinality)(pipeMonitor) {
+
+  private class Candidate(val entry: SortDataWithContext, val arrival: Long, val size: Long)
 
   protected override def internalCreateResults(input:Iterator[ExecutionContext], state: QueryState): Iterator[ExecutionContext] = {
     //register as parent so that stats are associated with this pipe
@@ -86,35 +88,51 @@ case class TopNPipe(source: Pipe, sortDescription: List[SortDescription], countE
         Iterator.empty
       } else {
 
-        var result = new Array[SortDataWithContext](count)
-        result(0) = arrayEntry(first)
-        var last : Int = 0
-
-        while ( last < count - 1 && input.hasNext ) {
-          last += 1
-          result(last) = arrayEntry(input.next())
+        val lessThan = new LessThanComparator(this)
+        // The heap keeps the largest candidate on top. Among ties the one that arrived last is the largest, so
+        // earlier rows win ties just like they do in a stable sort
+        val largestFirst = new Comparator[Candidate] {
+          override def compare(a: Candidate, b: Candidate): Int = {
+            val cmp = lessThan.compare(b.entry, a.entry)
+            if (cmp != 0) cmp else java.lang.Long.compare(b.arrival, a.arrival)
+          }
+        }
+        val heap = new PriorityQueue[Candidate](min(count, 1024), largestFirst)
+        var arrival = 0L
+        var heapBytes = 0L
+        var peakBytes = 0L
+
+        def offer(ctx: ExecutionContext) = {
+          val entry = arrayEntry(ctx)
+          if (heap.size < count || lessThan.compare(entry, heap.peek().entry) < 0) {
+            if (heap.size == count)
+              heapBytes -= heap.poll().size
+            val candidate = new Candidate(entry, arrival, if (memoryBudget > 0) RowSize.estimate(ctx) else 0L)
+            heap.add(candidate)
+            heapBytes += candidate.size
+            peakBytes = max(peakBytes, heapBytes)
+          }
+          arrival += 1
         }
 
-        val lessThan = new LessThanComparator(this)
-        if (input.isEmpty) {
-          result.slice(0,last + 1).sorted(lessThan).iterator.map(_._2)
+        offer(first)
+        while (input.hasNext && (memoryBudget == 0 || heapBytes <= memoryBudget))
+          offer(input.next())
+
+        val candidates = heap.toArray(new Array[Candidate](heap.size))
+        heap.clear()
+        if (memoryBudget > 0)
+          state.decorator.registerPeakMemory(this, peakBytes)
+        if (memoryBudget > 0 && heapBytes > memoryBudget) {
+          // the top rows alone do not fit in the budget, so fall back to a sort that spills
+          val sorter = new SpillingSorter(this, new InnerOrdering(sortDescription), memoryBudget)
+          candidates.sortBy(_.arrival).foreach(candidate => sorter.add(candidate.entry._2))
+          (sorter ++= input).result().take(count)
         } else {
-          result = result.sorted(lessThan)
-
-          val search = binarySearch(result, lessThan) _
-          input.foreach {
-            ctx =>
-              val next = arrayEntry(ctx)
-              if (lessThan.compare(next, result(last)) < 0) {
-                val idx = search(next)
-                val insertPosition = if (idx < 0 )  - idx - 1 else idx + 1
-                if (insertPosition >= 0 && insertPosition < count) {
-                  Array.copy(result, insertPosition, result, insertPosition + 1, count - insertPosition - 1)
-                  result(insertPosition) = next
-                }
-              }
-          }
-          result.toIterator.map(_._2)
+          if (memoryBudget > 0)
+            state.decorator.registerSpills(this, 0, 0)
+          java.util.Arrays.sort(candidates, Collections.reverseOrder(largestFirst))
+          candidates.iterator.map(_.entry._2)
         }
       }
     }
@@ -122,10 +140,10 @@ case class TopNPipe(source: Pipe, sortDescription: List[SortDescription], countE
 
   override def dup(sources: List[Pipe]): Pipe = {
     val (head :: Nil) = sources
-    copy(source = head)(estimatedCardinality)
+    copy(source = head)(estimatedCardinality, memoryBudget)
   }
 
-  override def withEstimatedCardinality(estimated: Double) = copy()(Some(estimated))
+  override def withEstimatedCardinality(estimated: Double) = copy()(Some(estimated), memoryBudget)
 
   override def planDescriptionWithoutCardinality =
     source.planDescription
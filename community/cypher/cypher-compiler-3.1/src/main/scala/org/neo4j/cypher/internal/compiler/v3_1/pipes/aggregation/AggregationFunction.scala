@@ -37,5 +37,11 @@ abstract class AggregationFunction {
    * The aggregated result.
    */
   def result: Any
+
+  /**
+   * A rough estimate of how much heap the aggregated values take up. Used to keep aggregations within their
+   * memory budget, so functions that only keep a running total can leave this at zero.
+   */
+  def estimatedMemory: Long = 0
 }
 
@@ -21,18 +21,23 @@ package org.neo4j.cypher.internal.compiler.v3_1.pipes.aggregation
 
 import org.neo4j.cypher.internal.compiler.v3_1._
 import commands.expressions.Expression
-import pipes.QueryState
+import pipes.{QueryState, RowSize}
 import collection.mutable.ListBuffer
 
 class CollectFunction(value:Expression) extends AggregationFunction {
   val collection = new ListBuffer[Any]()
+  private var memory = 0L
 
   def apply(data: ExecutionContext)(implicit state:QueryState) {
     value(data) match {
       case null =>
-      case v    => collection += v
+      case v    =>
+        collection += v
+        memory += 16 + RowSize.estimateValue(v)
     }
   }
 
   def result: Any = collection.toSeq
+
+  override def estimatedMemory = memory
 }
@@ -19,14 +19,20 @@
  */
 package org.neo4j.cypher.internal.compiler.v3_1.pipes.aggregation
 
+import org.neo4j.collection.primitive.{Primitive, PrimitiveLongSet}
 import org.neo4j.cypher.internal.compiler.v3_1._
 import org.neo4j.cypher.internal.compiler.v3_1.commands.expressions.Expression
 import org.neo4j.cypher.internal.compiler.v3_1.commands.predicates.Equivalent
-import org.neo4j.cypher.internal.compiler.v3_1.pipes.QueryState
+import org.neo4j.cypher.internal.compiler.v3_1.pipes.{QueryState, RowSize}
+import org.neo4j.graphdb.{Node, Relationship}
 
 class DistinctFunction(value: Expression, inner: AggregationFunction) extends AggregationFunction {
   private val seen = scala.collection.mutable.Set[Equivalent]()
+  // nodes and relationships are never equivalent to anything but themselves, so their ids are enough
+  private var seenNodes: PrimitiveLongSet = null
+  private var seenRelationships: PrimitiveLongSet = null
   private var seenNull = false
+  private var memory = 0L
 
   override def apply(ctx: ExecutionContext)(implicit state: QueryState) {
     val data = value(ctx)
@@ -37,13 +43,31 @@ class DistinctFunction(value: Expression, inner: AggregationFunction) extends Ag
         inner(ctx)
       }
     } else {
-      val equiValue = Equivalent(data)
-      if (!seen.contains(equiValue)) {
-        seen += equiValue
+      val unseen = data match {
+        case n: Node =>
+          if (seenNodes == null) seenNodes = Primitive.longSet()
+          seenNodes.add(n.getId)
+        case r: Relationship =>
+          if (seenRelationships == null) seenRelationships = Primitive.longSet()
+          seenRelationships.add(r.getId)
+        case _ =>
+          val equiValue = Equivalent(data)
+          !seen.contains(equiValue) && {
+            seen += equiValue
+            memory += 32 + RowSize.estimateValue(data)
+            true
+          }
+      }
+      if (unseen) {
         inner(ctx)
       }
     }
   }
 
   override def result = inner.result
+
+  override def estimatedMemory = {
+    val ids = (if (seenNodes == null) 0 else seenNodes.size()) + (if (seenRelationships == null) 0 else seenRelationships.size())
+    memory + 16L * ids + inner.estimatedMemory
+  }
 }
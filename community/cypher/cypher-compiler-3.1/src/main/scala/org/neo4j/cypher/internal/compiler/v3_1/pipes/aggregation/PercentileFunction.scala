@@ -44,6 +44,8 @@ abstract class PercentileFunction(val value: Expression, val percentile: Express
       temp = temp :+ number
     })
   }
+
+  override def estimatedMemory = 24L * count
 }
 
 class PercentileContFunction(value: Expression, percentile: Expression)
@@ -146,17 +146,21 @@ object renderAsTreeTable extends (InternalPlanDescription => String) {
   }
 
   private def otherFields(description: InternalPlanDescription) = {
-    description.arguments.collect { case x
-      if !x.isInstanceOf[Rows] &&
-        !x.isInstanceOf[DbHits] &&
-        !x.isInstanceOf[EstimatedRows] &&
-        !x.isInstanceOf[Planner] &&
-        !x.isInstanceOf[PlannerImpl] &&
-        !x.isInstanceOf[Runtime] &&
-        !x.isInstanceOf[SourceCode] &&
-        !x.isInstanceOf[Time] &&
-        !x.isInstanceOf[RuntimeImpl] &&
-        !x.isInstanceOf[Version] => PlanDescriptionArgumentSerializer.serialize(x)
+    description.arguments.collect {
+      case SpilledRuns(runs) => s"spilled runs $runs"
+      case SpilledBytes(bytes) => s"spilled bytes $bytes"
+      case PeakMemory(bytes) => s"peak memory $bytes"
+      case x
+        if !x.isInstanceOf[Rows] &&
+          !x.isInstanceOf[DbHits] &&
+          !x.isInstanceOf[EstimatedRows] &&
+          !x.isInstanceOf[Planner] &&
+          !x.isInstanceOf[PlannerImpl] &&
+          !x.isInstanceOf[Runtime] &&
+          !x.isInstanceOf[SourceCode] &&
+          !x.isInstanceOf[Time] &&
+          !x.isInstanceOf[RuntimeImpl] &&
+          !x.isInstanceOf[Version] => PlanDescriptionArgumentSerializer.serialize(x)
     }
   }
 
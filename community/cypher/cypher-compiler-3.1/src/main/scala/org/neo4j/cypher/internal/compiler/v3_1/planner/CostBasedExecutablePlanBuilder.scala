@@ -94,7 +94,8 @@ case class CostBasedExecutablePlanBuilder(monitors: Monitors,
 
     val (periodicCommit, plan) = queryPlanner.plan(unionQuery)(context)
 
-    val pipeBuildContext = PipeExecutionBuilderContext(metrics.cardinality, semanticTable, plannerName)
+    val pipeBuildContext = PipeExecutionBuilderContext(metrics.cardinality, semanticTable, plannerName,
+      config.operatorMemoryBudget)
 
     //Check for unresolved tokens for read-only queries
     if (plan.solved.all(_.queryGraph.readOnly)) checkForUnresolvedTokens(ast, semanticTable).foreach(notificationLogger += _)
@@ -24,4 +24,4 @@ import org.neo4j.cypher.internal.compiler.v3_1.planner.logical.Metrics
 import org.neo4j.cypher.internal.frontend.v3_1.SemanticTable
 
 case class PipeExecutionBuilderContext(cardinality: Metrics.CardinalityModel, semanticTable: SemanticTable,
-                                       plannerName: PlannerName)
+                                       plannerName: PlannerName, operatorMemoryBudget: Long = 0L)
@@ -167,6 +167,9 @@ trait PipeBuilder {
 case class ActualPipeBuilder(monitors: Monitors, recurse: LogicalPlan => Pipe, readOnly: Boolean)
                             (implicit context: PipeExecutionBuilderContext, planContext: PlanContext) extends PipeBuilder {
 
+  // Spilled rows are read back by id, so only read-only queries are allowed to spill
+  private val operatorMemoryBudget = if (readOnly) context.operatorMemoryBudget else 0L
+
   def build(plan: LogicalPlan): RonjaPipe = plan match {
     case sr@SingleRow() =>
       SingleRowPipe()
@@ -264,7 +267,7 @@ case class ActualPipeBuilder(monitors: Monitors, recurse: LogicalPlan => Pipe, r
       OptionalPipe((inner.availableSymbols -- protectedSymbols).map(_.name), source)()
 
     case Sort(_, sortItems) =>
-      SortPipe(source, sortItems.map(translateSortDescription))()
+      SortPipe(source, sortItems.map(translateSortDescription))(memoryBudget = operatorMemoryBudget)
 
     case SkipPlan(_, count) =>
       SkipPipe(source, buildExpression(count))()
@@ -274,8 +277,8 @@ case class ActualPipeBuilder(monitors: Monitors, recurse: LogicalPlan => Pipe, r
         case (SortPipe(inner, sortDescription), SignedDecimalIntegerLiteral("1")) =>
           Top1Pipe(inner, sortDescription.toList)()
 
-        case (SortPipe(inner, sortDescription), _) =>
-          TopNPipe(inner, sortDescription.toList, buildExpression(count))()
+        case (sort@SortPipe(inner, sortDescription), _) =>
+          TopNPipe(inner, sortDescription.toList, buildExpression(count))(memoryBudget = sort.memoryBudget)
 
         case _ =>
           LimitPipe(source, buildExpression(count))()
@@ -303,7 +306,7 @@ case class ActualPipeBuilder(monitors: Monitors, recurse: LogicalPlan => Pipe, r
         source,
         groupingExpressions.keySet,
         Eagerly.immutableMapValues[String, ast.Expression, AggregationExpression](aggregatingExpressions, buildExpression(_).asInstanceOf[AggregationExpression])
-      )()
+      )(memoryBudget = operatorMemoryBudget)
 
     case FindShortestPaths(_, shortestPathPattern, predicates) =>
       val legacyShortestPath = shortestPathPattern.expr.asLegacyPatterns(shortestPathPattern.name.map(_.name)).head
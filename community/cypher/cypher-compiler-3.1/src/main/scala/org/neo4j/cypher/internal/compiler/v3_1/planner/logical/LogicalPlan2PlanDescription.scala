@@ -65,6 +65,9 @@ object LogicalPlan2PlanDescription extends ((LogicalPlan, Map[LogicalPlan, Id])
         }
         PlanDescriptionImpl(id = idMap(plan), modeText, SingleChild(apply(inner, idMap)), expressions, symbols)
 
+      case VarExpand(inner, IdName(fromName), _, projectedDir, typeNames, IdName(toName), IdName(relName), _, ExpandAll, _) =>
+        val expression = ExpandExpression(fromName, relName, typeNames.map(_.name), toName, projectedDir, varLength = true)
+        PlanDescriptionImpl(id = idMap(plan), "VarLengthExpand(All)", SingleChild(apply(inner, idMap)), Seq(expression), symbols)
 
       case NodeHashJoin(nodes, lhs, rhs) =>
         val children = TwoChildren(apply(lhs, idMap), apply(rhs, idMap))
@@ -80,10 +83,30 @@ object LogicalPlan2PlanDescription extends ((LogicalPlan, Map[LogicalPlan, Id])
         val children = TwoChildren(apply(lhs, idMap), apply(rhs, idMap))
         PlanDescriptionImpl(id = idMap(plan), "CartesianProduct", children,Seq.empty, symbols)
 
+      case Limit(Sort(lhs, sortItems), count, DoNotIncludeTies) =>
+        PlanDescriptionImpl(id = idMap(plan), name = "Top", children = SingleChild(apply(lhs, idMap)),
+          Seq(Expression(count), KeyNames(sortItems.map(_.id.name))), symbols)
+
+      case Sort(lhs, sortItems) =>
+        PlanDescriptionImpl(id = idMap(plan), name = "Sort", children = SingleChild(apply(lhs, idMap)),
+          Seq(KeyNames(sortItems.map(_.id.name))), symbols)
+
       case Limit(lhs, count, DoNotIncludeTies) =>
         PlanDescriptionImpl(id = idMap(plan), name = "Limit", children = SingleChild(apply(lhs, idMap)),
           Seq(Expression(count)), symbols)
 
+      case Skip(lhs, count) =>
+        PlanDescriptionImpl(id = idMap(plan), name = "Skip", children = SingleChild(apply(lhs, idMap)),
+          Seq(Expression(count)), symbols)
+
+      case Aggregation(lhs, groupingExpressions, aggregationExpressions) if aggregationExpressions.isEmpty =>
+        PlanDescriptionImpl(id = idMap(plan), "Distinct", SingleChild(apply(lhs, idMap)),
+          Seq(KeyNames(groupingExpressions.keys.toSeq)), symbols)
+
+      case Aggregation(lhs, groupingExpressions, _) =>
+        PlanDescriptionImpl(id = idMap(plan), "EagerAggregation", SingleChild(apply(lhs, idMap)),
+          Seq(KeyNames(groupingExpressions.keys.toSeq)), symbols)
+
       case row: SingleRow =>
         new SingleRowPlanDescription(id = idMap(plan), Seq.empty, row.argumentIds.map(_.name))
 
@@ -34,6 +34,8 @@ class Profiler extends PipeDecorator {
 
   val dbHitsStats: mutable.Map[Object, ProfilingQueryContext] = mutable.Map.empty
   val rowStats: mutable.Map[Object, ProfilingIterator] = mutable.Map.empty
+  val spillStats: mutable.Map[Object, SpillCounter] = mutable.Map.empty
+  val peakMemoryStats: mutable.Map[Object, Long] = mutable.Map.empty
   private var parentPipe: Option[Pipe] = None
 
 
@@ -65,9 +67,19 @@ class Profiler extends PipeDecorator {
         val rows = rowStats.get(input.id).map(_.count).getOrElse(0L)
         val dbHits = dbHitsStats.get(input.id).map(_.count).getOrElse(0L)
 
-        input
+        val profiled = input
           .addArgument(Arguments.Rows(rows))
           .addArgument(Arguments.DbHits(dbHits))
+
+        val withSpills = spillStats.get(input.id).map {
+          spills =>
+            profiled
+              .addArgument(Arguments.SpilledRuns(spills.runs))
+              .addArgument(Arguments.SpilledBytes(spills.bytes))
+        }.getOrElse(profiled)
+
+        peakMemoryStats.get(input.id).map(bytes => withSpills.addArgument(Arguments.PeakMemory(bytes)))
+          .getOrElse(withSpills)
     }
   }
 
@@ -85,11 +97,23 @@ class Profiler extends PipeDecorator {
       outerProfiler.decorate(plan, isProfileReady)
 
     def registerParentPipe(pipe: Pipe) {}
+
+    def registerSpills(pipe: Pipe, runs: Long, bytes: Long) =
+      outerProfiler.registerSpills(pipe, runs, bytes)
+
+    def registerPeakMemory(pipe: Pipe, bytes: Long) =
+      outerProfiler.registerPeakMemory(pipe, bytes)
   }
 
   def registerParentPipe(pipe: Pipe) =
     parentPipe = Some(pipe)
 
+  def registerSpills(pipe: Pipe, runs: Long, bytes: Long) =
+    spillStats.getOrElseUpdate(pipe.id, new SpillCounter).add(runs, bytes)
+
+  def registerPeakMemory(pipe: Pipe, bytes: Long) =
+    peakMemoryStats(pipe.id) = math.max(peakMemoryStats.getOrElse(pipe.id, 0L), bytes)
+
 }
 
 trait Counter {
@@ -128,6 +152,18 @@ final class ProfilingQueryContext(inner: QueryContext, val p: Pipe)
   override def relationshipOps: Operations[Relationship] = new ProfilerOperations(inner.relationshipOps)
 }
 
+class SpillCounter {
+  private var _runs = 0L
+  private var _bytes = 0L
+  def runs = _runs
+  def bytes = _bytes
+
+  def add(runs: Long, bytes: Long) {
+    _runs += runs
+    _bytes += bytes
+  }
+}
+
 class ProfilingIterator(inner: Iterator[ExecutionContext], startValue: Long) extends Iterator[ExecutionContext] with Counter {
 
   _count = startValue
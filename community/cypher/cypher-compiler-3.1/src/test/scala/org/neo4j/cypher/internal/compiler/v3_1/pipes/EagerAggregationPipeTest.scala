@@ -162,6 +162,35 @@ class EagerAggregationPipeTest extends CypherFunSuite {
     getResults(aggregationPipe) should equal(List(Map("count(name)" -> 3)))
   }
 
+  test("should group integers and floats that are equal together") {
+    val source = new FakePipe(List(
+      Map[String, Any]("x" -> 1),
+      Map[String, Any]("x" -> 2L),
+      Map[String, Any]("x" -> 1.0),
+      Map[String, Any]("x" -> 2)), createSymbolTableFor("x"))
+
+    val aggregationPipe = new EagerAggregationPipe(source, createReturnItemsFor("x"), Map("count(*)" -> CountStar()))()
+
+    getResults(aggregationPipe) should contain theSameElementsAs List(
+      Map[String, Any]("x" -> 1, "count(*)" -> 2),
+      Map[String, Any]("x" -> 2L, "count(*)" -> 2)
+    )
+  }
+
+  test("should spill groups that do not fit in the memory budget and still aggregate every group") {
+    val rows = for (i <- 0 until 1000) yield Map[String, Any]("x" -> i % 300, "y" -> i)
+    val source = new FakePipe(rows, createSymbolTableFor("x"))
+    val aggregation = Map("count(*)" -> CountStar(), "collect(y)" -> Collect(Variable("y")))
+
+    val aggregationPipe = new EagerAggregationPipe(source, createReturnItemsFor("x"), aggregation)(memoryBudget = 4096)
+
+    getResults(aggregationPipe) should contain theSameElementsAs (0 until 300).map {
+      x =>
+        val ys = (x until 1000 by 300).toList
+        Map[String, Any]("x" -> x, "count(*)" -> ys.size, "collect(y)" -> ys)
+    }
+  }
+
   private def createSymbolTableFor(name: String): (String, CypherType) = name -> CTNode
 
   private def getResults(p: Pipe) = p.createResults(QueryStateHelper.empty).map(_.m.toMap).toList
@@ -20,6 +20,9 @@
 package org.neo4j.cypher.internal.compiler.v3_1.pipes
 
 import org.junit.Assert._
+import org.neo4j.cypher.internal.compiler.v3_1.planDescription.InternalPlanDescription.Arguments.{SpilledBytes, SpilledRuns}
+import org.neo4j.cypher.internal.compiler.v3_1.profiler.Profiler
+import org.neo4j.cypher.internal.compiler.v3_1.spi.QueryContext
 import org.neo4j.cypher.internal.frontend.v3_1.symbols._
 import org.neo4j.cypher.internal.frontend.v3_1.test_helpers.CypherFunSuite
 import org.scalatest.mock.MockitoSugar
@@ -91,4 +94,27 @@ class SortPipeTest extends CypherFunSuite with MockitoSugar {
       MutableMap("y" -> 2),
       MutableMap("y" -> null)), sortPipe.createResults(QueryStateHelper.empty).toList)
   }
+
+  test("sorting with a memory budget spills sorted runs and keeps the sort stable") {
+    val list: Seq[MutableMap[String, Any]] = (0 until 200).map(i => MutableMap[String, Any]("x" -> i % 7, "y" -> s"row $i"))
+    val source = new FakePipe(list, "x" -> CTInteger, "y" -> CTString)
+
+    val sortPipe = new SortPipe(source, List(Ascending("x")))(memoryBudget = 2048)
+
+    sortPipe.createResults(QueryStateHelper.empty).toList should equal(list.sortBy(_("x").asInstanceOf[Int]))
+  }
+
+  test("spilled runs and bytes are reported to the profiler") {
+    val list: Seq[MutableMap[String, Any]] = (0 until 200).map(i => MutableMap[String, Any]("x" -> (200 - i)))
+    val source = new FakePipe(list, "x" -> CTInteger)
+    val sortPipe = new SortPipe(source, List(Ascending("x")))(memoryBudget = 2048)
+    val profiler = new Profiler
+    val queryState = QueryStateHelper.emptyWith(query = mock[QueryContext], decorator = profiler)
+
+    sortPipe.createResults(queryState).toList should have size 200
+    val arguments = profiler.decorate(sortPipe.planDescription, isProfileReady = true).arguments
+
+    arguments.collectFirst { case SpilledRuns(runs) => runs }.get should be > 0L
+    arguments.collectFirst { case SpilledBytes(bytes) => bytes }.get should be > 0L
+  }
 }
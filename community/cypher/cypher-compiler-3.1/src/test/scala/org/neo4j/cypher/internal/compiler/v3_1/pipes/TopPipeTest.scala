@@ -189,6 +189,24 @@ class TopPipeTest extends CypherFunSuite {
     result should equal(List(10,null))
   }
 
+  test("returning top 50 with a memory budget too small for them should spill and still return the lowest values") {
+    val input = createFakePipeWith(500)
+    val pipe = new TopNPipe(input, List(Ascending("a")), Literal(50))(memoryBudget = 1024)
+    val result = pipe.createResults(QueryStateHelper.empty).map(ctx => ctx("a")).toList
+
+    result should equal((0 until 50).toList)
+  }
+
+  test("ties keep the rows that came first") {
+    val in = (0 until 10).map(i => Map("a" -> i % 2, "b" -> i))
+    val input = new FakePipe(in, "a" -> CTInteger, "b" -> CTInteger)
+
+    val pipe = new TopNPipe(input, List(Ascending("a")), Literal(3))()
+    val result = pipe.createResults(QueryStateHelper.empty).map(ctx => ctx("b")).toList
+
+    result should equal(List(0, 2, 4))
+  }
+
   private def createFakePipeWith(count: Int): FakePipe = {
 
     val r = new Random(1337)
@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.codegen;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.neo4j.collection.primitive.Primitive;
+import org.neo4j.collection.primitive.PrimitiveLongObjectMap;
+import org.neo4j.cypher.internal.codegen.CompiledConversionUtils.CompositeKey;
+import org.neo4j.cypher.internal.frontend.v3_1.CypherTypeException;
+import org.neo4j.cypher.internal.frontend.v3_1.SyntaxException;
+
+import static org.neo4j.cypher.internal.codegen.CompiledConversionUtils.compositeKey;
+
+/**
+ * Keeps the state of the aggregation functions of compiled code per group, where groups are keyed by node and
+ * relationship ids. A single key is looked up in a primitive map, several keys through a {@link CompositeKey}, and
+ * without keys all rows fall into one group, which is produced even when no rows were aggregated.
+ * <p>
+ * The generated code first selects the group of a row with one of the {@code group} methods and then feeds the
+ * value of each aggregation function to {@link #update(int, Object)}. The functions behave like the interpreted
+ * ones: {@code null} values are ignored, sums stay integral for as long as possible, and minimum and maximum
+ * compare values like ORDER BY does.
+ */
+public final class CompiledAggregationTable
+{
+    public static final int COUNT_STAR = 0;
+    public static final int COUNT = 1;
+    public static final int SUM = 2;
+    public static final int MIN = 3;
+    public static final int MAX = 4;
+    public static final int COLLECT = 5;
+
+    private static final long[] NO_KEYS = new long[0];
+
+    private final int keys;
+    private final int[] functions;
+    private final PrimitiveLongObjectMap<Group> singleKeyGroups;
+    private final Map<CompositeKey,Group> compositeKeyGroups;
+    private final List<Group> groups = new ArrayList<>();
+    private Group current;
+    private int position = -1;
+
+    private CompiledAggregationTable( int keys, int[] functions )
+    {
+        this.keys = keys;
+        this.functions = functions;
+        this.singleKeyGroups = keys == 1 ? Primitive.longObjectMap() : null;
+        this.compositeKeyGroups = keys > 1 ? new HashMap<>() : null;
+    }
+
+    /**
+     * @param keys the number of node and relationship ids each group is keyed by
+     * @param functions the aggregation functions of each group, as {@link #COUNT_STAR}, {@link #COUNT} and so on
+     */
+    public static CompiledAggregationTable aggregate( int keys, int[] functions )
+    {
+        return new CompiledAggregationTable( keys, functions );
+    }
+
+    /**
+     * Selects the single group of an aggregation without grouping keys.
+     */
+    public void group()
+    {
+        if ( current == null )
+        {
+            current = newGroup( NO_KEYS );
+        }
+    }
+
+    public void group( long key )
+    {
+        current = singleKeyGroups.get( key );
+        if ( current == null )
+        {
+            current = newGroup( new long[]{key} );
+            singleKeyGroups.put( key, current );
+        }
+    }
+
+    public void group( long[] keys )
+    {
+        CompositeKey key = compositeKey( keys );
+        current = compositeKeyGroups.get( key );
+        if ( current == null )
+        {
+            current = newGroup( keys );
+            compositeKeyGroups.put( key, current );
+        }
+    }
+
+    /**
+     * Feeds the value of the aggregation function at the given offset to the selected group.
+     */
+    public void update( int offset, Object value )
+    {
+        current.update( functions[offset], offset, value );
+    }
+
+    /**
+     * Moves to the next group, in the order the groups were first seen.
+     */
+    public boolean next()
+    {
+        if ( position == -1 && keys == 0 && groups.isEmpty() )
+        {
+            newGroup( NO_KEYS );
+        }
+        if ( position + 1 < groups.size() )
+        {
+            current = groups.get( ++position );
+            return true;
+        }
+        current = null;
+        return false;
+    }
+
+    public long key( int offset )
+    {
+        return current.keys[offset];
+    }
+
+    public Object result( int offset )
+    {
+        return current.result( functions[offset], offset );
+    }
+
+    private Group newGroup( long[] keys )
+    {
+        Group group = new Group( keys, functions.length );
+        groups.add( group );
+        return group;
+    }
+
+    private static final class Group
+    {
+        private final long[] keys;
+        // counts and integral sums
+        private final long[] longs;
+        // sums that no longer fit in a long or that have seen floating point values
+        private boolean[] floating;
+        private double[] doubles;
+        // the current minimum or maximum, or the collected values
+        private final Object[] values;
+
+        private Group( long[] keys, int functions )
+        {
+            this.keys = keys;
+            this.longs = new long[functions];
+            this.values = new Object[functions];
+        }
+
+        private void update( int function, int offset, Object value )
+        {
+            if ( function == COUNT_STAR )
+            {
+                longs[offset]++;
+                return;
+            }
+            if ( value == null )
+            {
+                return;
+            }
+            switch ( function )
+            {
+            case COUNT:
+                longs[offset]++;
+                break;
+            case SUM:
+                sum( offset, value );
+                break;
+            case MIN:
+                keep( offset, value, false );
+                break;
+            case MAX:
+                keep( offset, value, true );
+                break;
+            case COLLECT:
+                collect( offset, value );
+                break;
+            default:
+                throw new IllegalArgumentException( "Unknown aggregation function " + function );
+            }
+        }
+
+        private void sum( int offset, Object value )
+        {
+            if ( !(value instanceof Number) )
+            {
+                throw new CypherTypeException( "SUM(expr) can only handle numerical values, or null.", null );
+            }
+            boolean integral = value instanceof Long || value instanceof Integer ||
+                               value instanceof Short || value instanceof Byte;
+            boolean fractional = value instanceof Double || value instanceof Float;
+            if ( isFloating( offset ) )
+            {
+                if ( integral || fractional )
+                {
+                    doubles[offset] += ((Number) value).doubleValue();
+                }
+            }
+            else if ( integral )
+            {
+                long next = ((Number) value).longValue();
+                try
+                {
+                    longs[offset] = Math.addExact( longs[offset], next );
+                }
+                catch ( ArithmeticException e )
+                {
+                    switchToDouble( offset, (double) longs[offset] + next );
+                }
+            }
+            else if ( fractional )
+            {
+                switchToDouble( offset, longs[offset] + ((Number) value).doubleValue() );
+            }
+        }
+
+        private void switchToDouble( int offset, double sum )
+        {
+            if ( floating == null )
+            {
+                floating = new boolean[longs.length];
+                doubles = new double[longs.length];
+            }
+            floating[offset] = true;
+            doubles[offset] = sum;
+        }
+
+        private boolean isFloating( int offset )
+        {
+            return floating != null && floating[offset];
+        }
+
+        private void keep( int offset, Object value, boolean largest )
+        {
+            if ( !(value instanceof Comparable) )
+            {
+                throw new SyntaxException( "MIN/MAX can only handle values of Comparable type, or null." );
+            }
+            Object seen = values[offset];
+            if ( seen == null )
+            {
+                values[offset] = value;
+            }
+            else
+            {
+                int comparison = CompiledSortTable.compare( seen, value );
+                if ( largest ? comparison < 0 : comparison > 0 )
+                {
+                    values[offset] = value;
+                }
+            }
+        }
+
+        @SuppressWarnings( "unchecked" )
+        private void collect( int offset, Object value )
+        {
+            List<Object> collected = (List<Object>) values[offset];
+            if ( collected == null )
+            {
+                collected = new ArrayList<>();
+                values[offset] = collected;
+            }
+            collected.add( value );
+        }
+
+        private Object result( int function, int offset )
+        {
+            switch ( function )
+            {
+            case COUNT_STAR:
+            case COUNT:
+                return longs[offset];
+            case SUM:
+                return isFloating( offset ) ? (Object) doubles[offset] : longs[offset];
+            case MIN:
+            case MAX:
+                return values[offset];
+            case COLLECT:
+                return values[offset] == null ? new ArrayList<>() : values[offset];
+            default:
+                throw new IllegalArgumentException( "Unknown aggregation function " + function );
+            }
+        }
+    }
+}
@@ -80,6 +80,11 @@ public abstract class CompiledConversionUtils
             this.key = key;
         }
 
+        public long get( int offset )
+        {
+            return key[offset];
+        }
+
         @Override
         public boolean equals( Object o )
         {
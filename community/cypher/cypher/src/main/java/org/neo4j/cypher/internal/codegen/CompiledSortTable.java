@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.codegen;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.neo4j.cypher.internal.frontend.v3_1.IncomparableValuesException;
+
+import static org.neo4j.kernel.impl.api.PropertyValueComparison.COMPARE_VALUES;
+
+/**
+ * Collects the rows reaching a sort in compiled code and hands them back in order. Rows are stored as boxed
+ * values, indexed by the offsets the generated code uses for its variables. When created with a limit only the
+ * first rows according to the ordering are kept, which is what ORDER BY ... LIMIT needs.
+ * <p>
+ * Values are compared like the interpreted runtime does: only strings, numbers and booleans can be compared
+ * with each other, and {@code null} sorts last in ascending order. Nodes and relationships, which the generated
+ * code stores as {@link NodeIdWrapper} and {@link RelationshipIdWrapper}, can't be compared with anything.
+ */
+public final class CompiledSortTable
+{
+    private final Comparator<Object[]> ordering;
+    private final long limit;
+    private final List<Object[]> rows;
+    private final PriorityQueue<Object[]> top;
+    private Object[][] sorted;
+    private int position = -1;
+    private Object[] current;
+
+    private CompiledSortTable( int[] keyOffsets, boolean[] ascending, long limit )
+    {
+        this.ordering = ordering( keyOffsets, ascending );
+        this.limit = limit;
+        if ( limit == Long.MAX_VALUE )
+        {
+            this.rows = new ArrayList<>();
+            this.top = null;
+        }
+        else
+        {
+            // keeps the largest of the retained rows at the head, so it can be evicted by a smaller one
+            this.rows = null;
+            this.top = new PriorityQueue<>( 16, Collections.reverseOrder( ordering ) );
+        }
+    }
+
+    public static CompiledSortTable sort( int[] keyOffsets, boolean[] ascending )
+    {
+        return new CompiledSortTable( keyOffsets, ascending, Long.MAX_VALUE );
+    }
+
+    public static CompiledSortTable top( int[] keyOffsets, boolean[] ascending, long limit )
+    {
+        return new CompiledSortTable( keyOffsets, ascending, Math.max( 0, limit ) );
+    }
+
+    public void add( Object[] row )
+    {
+        if ( top == null )
+        {
+            rows.add( row );
+        }
+        else if ( top.size() < limit )
+        {
+            top.add( row );
+        }
+        else if ( limit > 0 && ordering.compare( row, top.peek() ) < 0 )
+        {
+            top.poll();
+            top.add( row );
+        }
+    }
+
+    /**
+     * Moves to the next row in order, sorting the collected rows on the first call.
+     */
+    public boolean next()
+    {
+        if ( sorted == null )
+        {
+            sorted = top == null ? rows.toArray( new Object[rows.size()][] ) : top.toArray( new Object[top.size()][] );
+            Arrays.sort( sorted, ordering );
+        }
+        if ( position + 1 < sorted.length )
+        {
+            current = sorted[++position];
+            return true;
+        }
+        current = null;
+        return false;
+    }
+
+    public Object get( int offset )
+    {
+        return current[offset];
+    }
+
+    private static Comparator<Object[]> ordering( int[] keyOffsets, boolean[] ascending )
+    {
+        return ( left, right ) ->
+        {
+            for ( int i = 0; i < keyOffsets.length; i++ )
+            {
+                Object lhs = left[keyOffsets[i]];
+                Object rhs = right[keyOffsets[i]];
+                int result = ascending[i] ? compare( lhs, rhs ) : compare( rhs, lhs );
+                if ( result != 0 )
+                {
+                    return result;
+                }
+            }
+            return 0;
+        };
+    }
+
+    static int compare( Object lhs, Object rhs )
+    {
+        if ( !comparable( lhs, rhs ) )
+        {
+            throw new IncomparableValuesException( typeName( lhs ), typeName( rhs ) );
+        }
+        if ( lhs == null )
+        {
+            return rhs == null ? 0 : 1;
+        }
+        if ( rhs == null )
+        {
+            return -1;
+        }
+        return COMPARE_VALUES.compare( lhs, rhs );
+    }
+
+    private static boolean comparable( Object lhs, Object rhs )
+    {
+        return (isString( lhs ) && isString( rhs )) ||
+               (isNumber( lhs ) && isNumber( rhs )) ||
+               (isBoolean( lhs ) && isBoolean( rhs ));
+    }
+
+    private static boolean isString( Object value )
+    {
+        return value == null || value instanceof String || value instanceof Character;
+    }
+
+    private static boolean isNumber( Object value )
+    {
+        return value == null || value instanceof Number;
+    }
+
+    private static boolean isBoolean( Object value )
+    {
+        return value == null || value instanceof Boolean;
+    }
+
+    private static String typeName( Object value )
+    {
+        if ( value instanceof NodeIdWrapper )
+        {
+            return "Node";
+        }
+        if ( value instanceof RelationshipIdWrapper )
+        {
+            return "Relationship";
+        }
+        return value == null ? "null" : value.getClass().getSimpleName();
+    }
+}
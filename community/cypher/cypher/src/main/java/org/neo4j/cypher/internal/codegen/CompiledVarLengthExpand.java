@@ -0,0 +1,373 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.codegen;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.kernel.api.ReadOperations;
+import org.neo4j.kernel.api.exceptions.EntityNotFoundException;
+import org.neo4j.kernel.impl.api.RelationshipDataExtractor;
+import org.neo4j.kernel.impl.api.store.RelationshipIterator;
+import org.neo4j.kernel.impl.core.NodeManager;
+
+/**
+ * Iterates over the variable length paths starting at a node, depth first and without visiting a relationship
+ * twice on the same path, like the interpreted var length expand does. Each call to {@link #next()} returns the
+ * end node of the next path, whose relationships are then available from {@link #relationships()}.
+ * <p>
+ * When the pattern has predicates on its nodes or relationships, the generated code evaluates them while the paths
+ * are expanded: {@link #hasNext()} then also stops at every node or relationship that needs a decision, which is
+ * read from {@link #candidate()} and answered with {@link #decide(boolean)}. A path is only expanded from a node
+ * that passes, and only extended over a relationship and to a node that both pass. A {@code -1} start node, which
+ * is how the generated code represents a missing optional node, yields a single path without relationships and
+ * without an end node.
+ */
+public final class CompiledVarLengthExpand
+{
+    // the steps of the expansion, where each step that needs a decision names what happens once it is taken
+    private static final int POP = 0;
+    private static final int EXPAND_NODE = 1;
+    private static final int EXPAND = 2;
+    private static final int FOLLOW_RELATIONSHIP = 3;
+    private static final int FOLLOW_TO_NODE = 4;
+    private static final int YIELD = 5;
+
+    // what the caller has to handle after hasNext() returned true
+    private static final int NOTHING = 0;
+    private static final int NODE = 1;
+    private static final int RELATIONSHIP = 2;
+    private static final int PATH = 3;
+
+    private final ReadOperations readOperations;
+    private final NodeManager nodeManager;
+    private final Direction direction;
+    private final int[] relTypes;
+    private final int min;
+    private final int max;
+    private final boolean reversed;
+    private final boolean filterNodes;
+    private final boolean filterRelationships;
+    private final RelationshipDataExtractor extractor = new RelationshipDataExtractor();
+    private final Deque<Path> stack = new ArrayDeque<>();
+    private boolean endNodeBound;
+    private long endNode;
+    private int step = POP;
+    private int pending = NOTHING;
+    private boolean accepted;
+    private long candidate;
+    private Path path;
+    private RelationshipIterator expansion;
+    private long relationship;
+    private long otherNode;
+    private Path current;
+
+    private CompiledVarLengthExpand( ReadOperations readOperations, NodeManager nodeManager, long fromNode,
+            Direction direction, int[] relTypes, int min, int max, boolean reversed, boolean filterNodes,
+            boolean filterRelationships )
+    {
+        this.readOperations = readOperations;
+        this.nodeManager = nodeManager;
+        this.direction = direction;
+        this.relTypes = relTypes;
+        this.min = min;
+        this.max = max;
+        this.reversed = reversed;
+        this.filterNodes = filterNodes;
+        this.filterRelationships = filterRelationships;
+        if ( fromNode == -1 )
+        {
+            path = new Path( -1, null );
+            step = YIELD;
+        }
+        else
+        {
+            stack.push( new Path( fromNode, new long[0] ) );
+        }
+    }
+
+    /**
+     * @param relTypes the relationship types to follow, or {@code null} to follow all relationships
+     * @param max the maximum path length, {@link Integer#MAX_VALUE} for unbounded paths
+     * @param reversed whether the relationships of each path should be listed from the end node back
+     */
+    public static CompiledVarLengthExpand paths( ReadOperations readOperations, NodeManager nodeManager,
+            long fromNode, Direction direction, int[] relTypes, int min, int max, boolean reversed )
+    {
+        return new CompiledVarLengthExpand( readOperations, nodeManager, fromNode, direction, relTypes, min, max,
+                reversed, false, false );
+    }
+
+    /**
+     * Like {@link #paths(ReadOperations, NodeManager, long, Direction, int[], int, int, boolean)}, but asks the
+     * caller to decide on the nodes and relationships of the paths as described in the class comment.
+     */
+    public static CompiledVarLengthExpand filteredPaths( ReadOperations readOperations, NodeManager nodeManager,
+            long fromNode, Direction direction, int[] relTypes, int min, int max, boolean reversed,
+            boolean filterNodes, boolean filterRelationships )
+    {
+        return new CompiledVarLengthExpand( readOperations, nodeManager, fromNode, direction, relTypes, min, max,
+                reversed, filterNodes, filterRelationships );
+    }
+
+    /**
+     * Only returns the paths that end in the given node, which is how patterns with a bound end node are
+     * expanded. A {@code -1} end node matches no path.
+     */
+    public CompiledVarLengthExpand endingIn( long endNode )
+    {
+        this.endNodeBound = true;
+        this.endNode = endNode;
+        return this;
+    }
+
+    public boolean hasNext()
+    {
+        if ( pending != NOTHING )
+        {
+            return true;
+        }
+        while ( true )
+        {
+            switch ( step )
+            {
+            case POP:
+                if ( stack.isEmpty() )
+                {
+                    return false;
+                }
+                path = stack.pop();
+                if ( path.relationships.length < max )
+                {
+                    if ( filterNodes )
+                    {
+                        step = EXPAND_NODE;
+                        return pending( NODE, path.endNode );
+                    }
+                    startExpansion();
+                }
+                else
+                {
+                    step = YIELD;
+                }
+                break;
+
+            case EXPAND_NODE:
+                if ( accepted )
+                {
+                    startExpansion();
+                }
+                else
+                {
+                    step = YIELD;
+                }
+                break;
+
+            case EXPAND:
+                if ( !expansion.hasNext() )
+                {
+                    expansion = null;
+                    step = YIELD;
+                    break;
+                }
+                expansion.relationshipVisit( expansion.next(), extractor );
+                relationship = extractor.relationship();
+                if ( path.contains( relationship ) )
+                {
+                    break;
+                }
+                otherNode = extractor.otherNode( path.endNode );
+                if ( filterRelationships )
+                {
+                    step = FOLLOW_RELATIONSHIP;
+                    return pending( RELATIONSHIP, relationship );
+                }
+                if ( filterNodes )
+                {
+                    step = FOLLOW_TO_NODE;
+                    return pending( NODE, otherNode );
+                }
+                stack.push( path.extend( relationship, otherNode ) );
+                break;
+
+            case FOLLOW_RELATIONSHIP:
+                step = EXPAND;
+                if ( accepted )
+                {
+                    if ( filterNodes )
+                    {
+                        step = FOLLOW_TO_NODE;
+                        return pending( NODE, otherNode );
+                    }
+                    stack.push( path.extend( relationship, otherNode ) );
+                }
+                break;
+
+            case FOLLOW_TO_NODE:
+                step = EXPAND;
+                if ( accepted )
+                {
+                    stack.push( path.extend( relationship, otherNode ) );
+                }
+                break;
+
+            case YIELD:
+                step = POP;
+                if ( path.relationships == null ||
+                     (path.relationships.length >= min && (!endNodeBound || path.endNode == endNode)) )
+                {
+                    return pending( PATH, path.endNode );
+                }
+                break;
+
+            default:
+                throw new IllegalStateException( "Unknown step " + step );
+            }
+        }
+    }
+
+    /**
+     * Whether {@link #hasNext()} stopped at a node that needs a decision.
+     */
+    public boolean isNodeCandidate()
+    {
+        return pending == NODE;
+    }
+
+    /**
+     * Whether {@link #hasNext()} stopped at a relationship that needs a decision.
+     */
+    public boolean isRelationshipCandidate()
+    {
+        return pending == RELATIONSHIP;
+    }
+
+    /**
+     * Whether {@link #hasNext()} stopped at a path, which can be read with {@link #next()}.
+     */
+    public boolean isPath()
+    {
+        return pending == PATH;
+    }
+
+    public long candidate()
+    {
+        if ( pending != NODE && pending != RELATIONSHIP )
+        {
+            throw new IllegalStateException( "No node or relationship to decide on" );
+        }
+        return candidate;
+    }
+
+    public void decide( boolean accepted )
+    {
+        if ( pending != NODE && pending != RELATIONSHIP )
+        {
+            throw new IllegalStateException( "No node or relationship to decide on" );
+        }
+        this.accepted = accepted;
+        pending = NOTHING;
+    }
+
+    public long next()
+    {
+        if ( !hasNext() || pending != PATH )
+        {
+            throw new IllegalStateException( "No more paths" );
+        }
+        pending = NOTHING;
+        current = path;
+        return current.endNode;
+    }
+
+    public List<Relationship> relationships()
+    {
+        long[] ids = current.relationships;
+        if ( ids == null )
+        {
+            return null;
+        }
+        List<Relationship> relationships = new ArrayList<>( ids.length );
+        for ( int i = 0; i < ids.length; i++ )
+        {
+            relationships.add( nodeManager.newRelationshipProxyById( ids[reversed ? ids.length - 1 - i : i] ) );
+        }
+        return relationships;
+    }
+
+    private boolean pending( int kind, long id )
+    {
+        pending = kind;
+        candidate = id;
+        return true;
+    }
+
+    private void startExpansion()
+    {
+        try
+        {
+            expansion = relTypes == null
+                    ? readOperations.nodeGetRelationships( path.endNode, direction )
+                    : readOperations.nodeGetRelationships( path.endNode, direction, relTypes );
+            step = EXPAND;
+        }
+        catch ( EntityNotFoundException e )
+        {
+            throw new NotFoundException( e );
+        }
+    }
+
+    private static final class Path
+    {
+        private final long endNode;
+        private final long[] relationships;
+
+        private Path( long endNode, long[] relationships )
+        {
+            this.endNode = endNode;
+            this.relationships = relationships;
+        }
+
+        private boolean contains( long relationship )
+        {
+            for ( long id : relationships )
+            {
+                if ( id == relationship )
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private Path extend( long relationship, long node )
+        {
+            long[] extended = new long[relationships.length + 1];
+            System.arraycopy( relationships, 0, extended, 0, relationships.length );
+            extended[relationships.length] = relationship;
+            return new Path( node, extended );
+        }
+    }
+}
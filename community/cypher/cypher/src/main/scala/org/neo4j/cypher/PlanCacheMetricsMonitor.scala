@@ -25,9 +25,24 @@ import org.neo4j.cypher.internal.StringCacheMonitor
 
 class PlanCacheMetricsMonitor extends StringCacheMonitor {
   private val counter = new AtomicLong()
+  private val hits = new AtomicLong()
+  private val misses = new AtomicLong()
+
   override def cacheDiscard(ignored1: String, ignored2: String): Unit = {
     counter.incrementAndGet()
   }
 
+  override def cacheHit(ignored: String): Unit = {
+    hits.incrementAndGet()
+  }
+
+  override def cacheMiss(ignored: String): Unit = {
+    misses.incrementAndGet()
+  }
+
   def numberOfReplans: Long = counter.get()
+
+  def numberOfHits: Long = hits.get()
+
+  def numberOfMisses: Long = misses.get()
 }
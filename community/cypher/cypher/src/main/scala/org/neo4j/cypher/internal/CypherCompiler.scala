@@ -38,6 +38,7 @@ object CypherCompiler {
   val CLOCK = Clock.systemUTC()
   val DEFAULT_STATISTICS_DIVERGENCE_THRESHOLD = 0.5
   val DEFAULT_NON_INDEXED_LABEL_WARNING_THRESHOLD = 10000
+  val DEFAULT_OPERATOR_MEMORY_BUDGET = 0L
 }
 
 case class PreParsedQuery(statement: String, rawStatement: String, version: CypherVersion,
@@ -85,7 +86,8 @@ class CypherCompiler(graph: GraphDatabaseQueryService,
     idpMaxTableSize = idpMaxTableSize,
     idpIterationDuration = idpIterationDuration,
     errorIfShortestPathFallbackUsedAtRuntime = errorIfShortestPathFallbackUsedAtRuntime,
-    nonIndexedLabelWarningThreshold = getNonIndexedLabelWarningThreshold
+    nonIndexedLabelWarningThreshold = getNonIndexedLabelWarningThreshold,
+    operatorMemoryBudget = getOperatorMemoryBudget
   )
 
   private val factory = new PlannerFactory(graph, kernelAPI, kernelMonitors, log, config)
@@ -156,6 +158,11 @@ class CypherCompiler(graph: GraphDatabaseQueryService,
     getSetting(graph, setting, DEFAULT_NON_INDEXED_LABEL_WARNING_THRESHOLD)
   }
 
+  private def getOperatorMemoryBudget: Long = {
+    val setting: (Config) => Long = config => config.get(GraphDatabaseSettings.cypher_operator_memory_budget).longValue()
+    getSetting(graph, setting, DEFAULT_OPERATOR_MEMORY_BUDGET)
+  }
+
   private def getMinimumTimeBeforeReplanning: Long = {
     val setting: (Config) => Long = config => config.get(GraphDatabaseSettings.cypher_min_replan_interval).longValue()
     getSetting(graph, setting, DEFAULT_QUERY_PLAN_TTL)
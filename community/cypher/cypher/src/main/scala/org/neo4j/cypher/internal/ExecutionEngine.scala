@@ -19,7 +19,9 @@
  */
 package org.neo4j.cypher.internal
 
-import java.util.{Map => JavaMap}
+import java.io.File
+import java.util.concurrent.TimeUnit
+import java.util.{Collections, Map => JavaMap}
 
 import org.neo4j.cypher._
 import org.neo4j.cypher.internal.compiler.v3_1.helpers.{RuntimeJavaValueConverter, RuntimeScalaValueConverter}
@@ -28,12 +30,17 @@ import org.neo4j.cypher.internal.compiler.v3_1.{LRUCache => LRUCachev3_1, _}
 import org.neo4j.cypher.internal.spi.TransactionalContextWrapperv3_1
 import org.neo4j.cypher.internal.tracing.{CompilationTracer, TimingCompilationTracer}
 import org.neo4j.graphdb.config.Setting
+import org.neo4j.graphdb.event.{ErrorState, KernelEventHandler}
+import org.neo4j.graphdb.event.KernelEventHandler.ExecutionOrder
 import org.neo4j.graphdb.factory.GraphDatabaseSettings
-import org.neo4j.kernel.api.ReadOperations
 import org.neo4j.kernel.api.security.AccessMode
+import org.neo4j.kernel.api.{KernelTransaction, ReadOperations}
 import org.neo4j.kernel.configuration.Config
 import org.neo4j.kernel.impl.core.ThreadToStatementContextBridge
-import org.neo4j.kernel.impl.query.{QueryExecutionMonitor, QuerySession, TransactionalContext}
+import org.neo4j.kernel.impl.coreapi.PropertyContainerLocker
+import org.neo4j.kernel.impl.factory.GraphDatabaseFacade
+import org.neo4j.kernel.impl.query._
+import org.neo4j.kernel.impl.util.JobScheduler
 import org.neo4j.kernel.{GraphDatabaseQueryService, api, monitoring}
 import org.neo4j.logging.{LogProvider, NullLogProvider}
 
@@ -70,11 +77,20 @@ class ExecutionEngine(val queryService: GraphDatabaseQueryService, logProvider:
 
   private val executionMonitor = kernelMonitors.newMonitor(classOf[QueryExecutionMonitor])
 
-  private val cacheAccessor = new MonitoringCacheAccessor[String, (ExecutionPlan, Map[String, Any])](cacheMonitor)
+  private val cacheAccessor = new MonitoringCacheAccessor[String, CachedPlan](cacheMonitor)
+
+  // The plan cache outlives schema changes; the schema state is only used to find out that the schema has changed,
+  // after which the tracker decides which of the cached plans are stale.
+  private val schemaChanges = new SchemaChangeTracker
+  private val planCache = new LRUCachev3_1[String, CachedPlan](getPlanCacheSize)
+  private val queryCache = new QueryCache(cacheAccessor, planCache)
 
   private val preParsedQueries = new LRUCachev3_1[String, PreParsedQuery](getPlanCacheSize)
   private val parsedQueries = new LRUCachev3_1[String, ParsedQuery](getPlanCacheSize)
 
+  if (optGraphSetting[java.lang.Boolean](queryService, GraphDatabaseSettings.cypher_plan_cache_persistence, false))
+    persistPlanCache()
+
   private val javaValues = new RuntimeJavaValueConverter(isGraphKernelResultValue, identity)
   private val scalaValues = new RuntimeScalaValueConverter(isGraphKernelResultValue, identity)
 
@@ -153,21 +169,25 @@ class ExecutionEngine(val queryService: GraphDatabaseQueryService, logProvider:
         // NOTE: The OVERRIDE_READ mode will force read access even if the current transaction did not have it
         val revertable = tc.restrictCurrentTransaction(AccessMode.Static.OVERRIDE_READ)
 
-        val ((plan: ExecutionPlan, extractedParameters), touched) = try {
-          // fetch plan cache
-          val cache = getOrCreateFromSchemaState(tc.readOperations, {
+        val (CachedPlan(plan, extractedParameters, _, _), touched) = try {
+          // detect schema changes
+          getOrCreateFromSchemaState(tc.readOperations, {
             cacheMonitor.cacheFlushDetected(tc.statement)
-            val lruCache = new LRUCachev3_1[String, (ExecutionPlan, Map[String, Any])](getPlanCacheSize)
-            new QueryCache(cacheAccessor, lruCache)
+            schemaChanges.schemaChanged(tc.readOperations)
+            schemaChanges
           })
 
-          def isStale(plan: ExecutionPlan, ignored: Map[String, Any]) = plan.isStale(lastCommittedTxId, tc)
+          def isStale(cached: CachedPlan) =
+            cached.plan.isStale(lastCommittedTxId, tc) ||
+              schemaChanges.isStale(cached.plan.labelDependencies, cached.plannedIn)
           def producePlan() = {
+            val plannedIn = schemaChanges.currentEpoch
             val parsedQuery = parsePreParsedQuery(preParsedQuery, phaseTracer)
-            parsedQuery.plan(tc, phaseTracer)
+            val (plan, extractedParameters) = parsedQuery.plan(tc, phaseTracer)
+            CachedPlan(plan, extractedParameters, queryText, plannedIn)
           }
 
-          cache.getOrElseUpdate(cacheKey, queryText, (isStale _).tupled, producePlan())
+          queryCache.getOrElseUpdate(cacheKey, queryText, isStale, producePlan())
         }
         catch {
           case (t: Throwable) =>
@@ -198,6 +218,49 @@ class ExecutionEngine(val queryService: GraphDatabaseQueryService, logProvider:
     operations.schemaStateGetOrCreate(this, javaCreator)
   }
 
+  private def persistPlanCache(): Unit = {
+    val resolver = queryService.getDependencyResolver
+    val graph = resolver.resolveDependency(classOf[GraphDatabaseFacade])
+    val persistence = new PlanCachePersistence(new File(graph.getStoreDir, PlanCachePersistence.FILE_NAME), log)
+
+    val savedQueries = persistence.load()
+    if (savedQueries.nonEmpty) {
+      resolver.resolveDependency(classOf[JobScheduler]).schedule(JobScheduler.Groups.cypherPlanCacheWarmer,
+        new Runnable {
+          override def run(): Unit =
+            if (graph.isAvailable(TimeUnit.MINUTES.toMillis(5)))
+              warmPlanCache(savedQueries)
+        })
+    }
+
+    graph.registerKernelEventHandler(new KernelEventHandler {
+      override def beforeShutdown(): Unit = persistence.save(planCache.values.map(_.queryText))
+
+      override def kernelPanic(error: ErrorState): Unit = {}
+
+      override def getResource: AnyRef = null
+
+      override def orderComparedTo(other: KernelEventHandler): ExecutionOrder = ExecutionOrder.DOESNT_MATTER
+    })
+  }
+
+  private def warmPlanCache(queries: Seq[String]): Unit = {
+    val txBridge = queryService.getDependencyResolver.resolveDependency(classOf[ThreadToStatementContextBridge])
+    queries.foreach { query =>
+      val transaction = queryService.beginTransaction(KernelTransaction.Type.`implicit`, AccessMode.Static.READ)
+      val context = new Neo4jTransactionalContext(queryService, transaction, txBridge.get(), query,
+        Collections.emptyMap[String, AnyRef](), new PropertyContainerLocker)
+      try {
+        val (_, tc) = planQuery(query, QueryEngineProvider.embeddedSession(context))
+        tc.close(success = true)
+      } catch {
+        case e: Exception => log.debug(s"Could not plan saved query while warming the query plan cache: $query", e)
+      } finally {
+        context.close(false)
+      }
+    }
+  }
+
   def prettify(query: String): String = Prettifier(query)
 
   def isPeriodicCommit(query: String) = parseQuery(query).isPeriodicCommit
@@ -249,3 +312,8 @@ class ExecutionEngine(val queryService: GraphDatabaseQueryService, logProvider:
 object ExecutionEngine {
   val PLAN_BUILDING_TRIES: Int = 20
 }
+
+/**
+  * A cached plan, together with the query it was planned from and the schema change epoch it was planned in.
+  */
+case class CachedPlan(plan: ExecutionPlan, extractedParameters: Map[String, Any], queryText: String, plannedIn: Long)
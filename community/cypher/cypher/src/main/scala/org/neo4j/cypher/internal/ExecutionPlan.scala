@@ -33,4 +33,10 @@ trait ExecutionPlan {
   def isPeriodicCommit: Boolean
 
   def isStale(lastCommittedTxId: LastCommittedTxIdProvider, ctx: TransactionalContextWrapperv3_1): Boolean
+
+  /**
+    * The labels whose indexes and constraints this plan may depend on. None means that the dependencies are
+    * unknown, and that the plan has to be invalidated by any schema change.
+    */
+  def labelDependencies: Option[Set[String]] = None
 }
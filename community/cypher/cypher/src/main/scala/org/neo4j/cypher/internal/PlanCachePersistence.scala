@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal
+
+import java.io._
+import java.nio.charset.StandardCharsets
+
+import org.neo4j.logging.Log
+
+import scala.collection.mutable.ArrayBuffer
+
+/**
+  * Stores the texts of the queries in the plan cache, so that they can be planned again after a restart.
+  *
+  * Execution plans reference token ids and generated classes and can't be written to disk, but the query texts are
+  * all that is needed to warm the cache up in the background before clients ask for the queries.
+  */
+class PlanCachePersistence(file: File, log: Log) {
+
+  def save(queries: Iterable[String]): Unit =
+    try {
+      val out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))
+      try {
+        queries.foreach { query =>
+          val bytes = query.getBytes(StandardCharsets.UTF_8)
+          out.writeInt(bytes.length)
+          out.write(bytes)
+        }
+      } finally {
+        out.close()
+      }
+    } catch {
+      case e: IOException => log.warn(s"Could not save the query plan cache to $file", e)
+    }
+
+  def load(): Seq[String] = {
+    if (!file.exists())
+      return Seq.empty
+
+    val queries = new ArrayBuffer[String]
+    try {
+      val in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))
+      try {
+        while (in.available() > 0) {
+          val bytes = new Array[Byte](in.readInt())
+          in.readFully(bytes)
+          queries += new String(bytes, StandardCharsets.UTF_8)
+        }
+      } finally {
+        in.close()
+      }
+    } catch {
+      case e: IOException => log.warn(s"Could not read the saved query plan cache from $file", e)
+    }
+    queries
+  }
+}
+
+object PlanCachePersistence {
+  val FILE_NAME = "cypher-plan-cache"
+}
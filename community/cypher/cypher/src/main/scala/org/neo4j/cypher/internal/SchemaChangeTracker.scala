@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+
+import org.neo4j.kernel.api.ReadOperations
+import org.neo4j.kernel.api.constraints.NodePropertyConstraint
+import org.neo4j.kernel.api.exceptions.KernelException
+
+import scala.collection.JavaConverters._
+
+/**
+  * Keeps track of the labels whose indexes or constraints have changed, so that a schema change only invalidates
+  * the cached plans that were planned against one of those labels.
+  *
+  * Every detected schema state flush starts a new epoch. A plan remembers the epoch it was planned in, and is stale
+  * when one of the labels it depends on has changed in a later epoch. Flushes that can't be attributed to any
+  * label, and plans whose dependencies are unknown, fall back to invalidating everything.
+  */
+class SchemaChangeTracker {
+
+  private val epochs = new AtomicLong()
+  private val labelEpochs = new ConcurrentHashMap[String, java.lang.Long]()
+  @volatile private var lastFlush = 0L
+  @volatile private var lastGlobalChange = 0L
+  private var snapshot: Option[Map[Int, Set[AnyRef]]] = None
+
+  def currentEpoch: Long = epochs.get()
+
+  def schemaChanged(operations: ReadOperations): Unit = synchronized {
+    val current = SchemaChangeTracker.snapshotOf(operations)
+    val changedLabelIds = snapshot.map { previous =>
+      (previous.keySet ++ current.keySet).filter(labelId => previous.get(labelId) != current.get(labelId))
+    }.getOrElse(Set.empty)
+    val changedLabels = changedLabelIds.flatMap(labelId => SchemaChangeTracker.labelName(operations, labelId))
+
+    val epoch = epochs.incrementAndGet()
+    if (changedLabels.isEmpty || changedLabels.size < changedLabelIds.size)
+      lastGlobalChange = epoch
+    else
+      changedLabels.foreach(label => labelEpochs.put(label, epoch))
+    lastFlush = epoch
+    snapshot = Some(current)
+  }
+
+  def isStale(labelDependencies: Option[Set[String]], plannedIn: Long): Boolean = labelDependencies match {
+    case None => lastFlush > plannedIn
+    case Some(labels) => lastGlobalChange > plannedIn || labels.exists { label =>
+      val changedIn = labelEpochs.get(label)
+      changedIn != null && changedIn > plannedIn
+    }
+  }
+}
+
+object SchemaChangeTracker {
+
+  private def snapshotOf(operations: ReadOperations): Map[Int, Set[AnyRef]] = {
+    val indexes = (operations.indexesGetAll().asScala ++ operations.uniqueIndexesGetAll().asScala).map { index =>
+      val state: AnyRef = try {
+        operations.indexGetState(index)
+      } catch {
+        case _: KernelException => null
+      }
+      index.getLabelId -> ((index, state): AnyRef)
+    }
+    val constraints = operations.constraintsGetAll().asScala.collect {
+      case constraint: NodePropertyConstraint => constraint.label() -> (constraint: AnyRef)
+    }
+    (indexes ++ constraints).toSeq.groupBy(_._1).map {
+      case (labelId, entries) => labelId -> entries.map(_._2).toSet
+    }
+  }
+
+  private def labelName(operations: ReadOperations, labelId: Int): Option[String] =
+    try {
+      Some(operations.labelGetName(labelId))
+    } catch {
+      case _: KernelException => None
+    }
+}
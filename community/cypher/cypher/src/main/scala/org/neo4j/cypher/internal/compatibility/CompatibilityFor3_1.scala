@@ -34,6 +34,8 @@ import org.neo4j.cypher.internal.compiler.v3_1.spi.{InternalResultRow, InternalR
 import org.neo4j.cypher.internal.compiler.v3_1.tracing.rewriters.RewriterStepSequencer
 import org.neo4j.cypher.internal.compiler.v3_1.{CypherCompilerFactory, DPPlannerName, IDPPlannerName, InfoLogger, Monitors, PlannerName, ExplainMode => ExplainModev3_1, NormalMode => NormalModev3_1, ProfileMode => ProfileModev3_1, _}
 import org.neo4j.cypher.internal.frontend.v3_1.notification.{InternalNotification, PlannerUnsupportedNotification, RuntimeUnsupportedNotification, _}
+import org.neo4j.cypher.internal.frontend.v3_1.Foldable._
+import org.neo4j.cypher.internal.frontend.v3_1.ast
 import org.neo4j.cypher.internal.frontend.v3_1.spi.MapToPublicExceptions
 import org.neo4j.cypher.internal.frontend.v3_1.{CypherException => InternalCypherException}
 import org.neo4j.cypher.internal.javacompat.{PlanDescription, ProfilerStatistics}
@@ -246,14 +248,19 @@ trait CompatibilityFor3_1 {
         // Log notifications/warnings from planning
         planImpl.notifications(planContext).foreach(notificationLogger += _)
 
-        (new ExecutionPlanWrapper(planImpl), extractedParameters)
+        val labels = syntacticQuery.statement.fold(Set.empty[String]) {
+          case ast.LabelName(name) => _ + name
+        }
+
+        (new ExecutionPlanWrapper(planImpl, Some(labels)), extractedParameters)
       }
 
       override def hasErrors = preparedSyntacticQueryForV_3_1.isFailure
     }
   }
 
-  class ExecutionPlanWrapper(inner: ExecutionPlan_v3_1) extends ExecutionPlan {
+  class ExecutionPlanWrapper(inner: ExecutionPlan_v3_1, override val labelDependencies: Option[Set[String]])
+    extends ExecutionPlan {
 
     private val searchMonitor = kernelMonitors.newMonitor(classOf[IndexSearchMonitor])
 
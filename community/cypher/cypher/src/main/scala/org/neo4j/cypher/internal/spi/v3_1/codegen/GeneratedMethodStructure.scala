@@ -21,7 +21,7 @@ package org.neo4j.cypher.internal.spi.v3_1.codegen
 
 import java.util
 
-import org.neo4j.codegen.Expression.{not, or, _}
+import org.neo4j.codegen.Expression.{and, not, or, _}
 import org.neo4j.codegen.MethodReference.methodReference
 import org.neo4j.codegen._
 import org.neo4j.collection.primitive.hopscotch.LongKeyIntValueTable
@@ -125,6 +125,17 @@ case class GeneratedMethodStructure(fields: Fields, generator: CodeBlock, aux: A
     generator.assign(typeRef[Long], relVar, invoke(generator.load(extractor), getRelationship))
   }
 
+  override def nextPath(toNodeVar: String, iterVar: String, relsVar: String) = {
+    generator.assign(typeRef[Long], toNodeVar, invoke(generator.load(iterVar), pathsNext))
+    generator.assign(typeRef[Object], relsVar, invoke(generator.load(iterVar), pathRelationships))
+  }
+
+  override def nextPathCandidate(targetVar: String, iterVar: String) =
+    generator.assign(typeRef[Long], targetVar, invoke(generator.load(iterVar), pathsCandidate))
+
+  override def decidePathCandidate(iterVar: String, accepted: Expression) =
+    generator.expression(invoke(generator.load(iterVar), pathsDecide, accepted))
+
   override def allNodesScan(iterVar: String) =
     generator.assign(typeRef[PrimitiveLongIterator], iterVar, invoke(readOperations, nodesGetAll))
 
@@ -145,6 +156,18 @@ case class GeneratedMethodStructure(fields: Fields, generator: CodeBlock, aux: A
   override def hasNextRelationship(iterVar: String) =
     invoke(generator.load(iterVar), hasMoreRelationship)
 
+  override def hasNextPath(iterVar: String) =
+    invoke(generator.load(iterVar), pathsHasNext)
+
+  override def pathNodeCandidate(iterVar: String) =
+    invoke(generator.load(iterVar), pathsIsNodeCandidate)
+
+  override def pathRelationshipCandidate(iterVar: String) =
+    invoke(generator.load(iterVar), pathsIsRelationshipCandidate)
+
+  override def pathReady(iterVar: String) =
+    invoke(generator.load(iterVar), pathsIsPath)
+
   override def whileLoop(test: Expression)(block: MethodStructure[Expression] => Unit) =
     using(generator.whileLoop(test)) { body =>
       block(copy(generator = body))
@@ -189,11 +212,15 @@ case class GeneratedMethodStructure(fields: Fields, generator: CodeBlock, aux: A
     generator.assign(variable, invoke(mathCastToInt, initialValue))
   }
 
-  override def decreaseCounterAndCheckForZero(name: String): Expression = {
+  override def decreaseCounter(name: String): Unit = {
     val local = locals(name)
     generator.assign(local, subtractInts(local, constant(1)))
+  }
 
-    equal(constant(0), local, typeRef[Int])
+  override def decreaseCounterAndCheckForZero(name: String): Expression = {
+    decreaseCounter(name)
+
+    equal(constant(0), locals(name), typeRef[Int])
   }
 
   override def counterEqualsZero(name: String): Expression = {
@@ -201,6 +228,11 @@ case class GeneratedMethodStructure(fields: Fields, generator: CodeBlock, aux: A
     equal(constant(0), local, typeRef[Int])
   }
 
+  override def counterGreaterThanZero(name: String): Expression = {
+    val local = locals(name)
+    gt(local, constant(0), typeRef[Int])
+  }
+
   override def setInRow(column: String, value: Expression) =
     generator.expression(invoke(resultRow, set, constant(column), value))
 
@@ -303,6 +335,8 @@ case class GeneratedMethodStructure(fields: Fields, generator: CodeBlock, aux: A
 
   override def orExpression(lhs: Expression, rhs: Expression) = or(lhs, rhs)
 
+  override def andExpression(lhs: Expression, rhs: Expression) = and(lhs, rhs)
+
   override def threeValuedOrExpression(lhs: Expression, rhs: Expression) = invoke(Methods.or, lhs, rhs)
 
   override def markAsNull(varName: String, codeGenType: CodeGenType) =
@@ -350,6 +384,24 @@ case class GeneratedMethodStructure(fields: Fields, generator: CodeBlock, aux: A
     }
   }
 
+  override def nodeGetVarLengthPaths(iterVar: String, nodeVar: String, direction: SemanticDirection,
+                                     typeVars: Seq[String], min: Int, max: Option[Int], reversed: Boolean,
+                                     toNodeVar: Option[String], filterNodes: Boolean, filterRelationships: Boolean) = {
+    val types = if (typeVars.isEmpty) constant(null) else newArray(typeRef[Int], typeVars.map(generator.load): _*)
+    val paths =
+      if (filterNodes || filterRelationships)
+        invoke(filteredVarLengthPaths, readOperations, nodeManager, generator.load(nodeVar), dir(direction), types,
+               constant(min), constant(max.getOrElse(Int.MaxValue)), constant(reversed), constant(filterNodes),
+               constant(filterRelationships))
+      else
+        invoke(varLengthPaths, readOperations, nodeManager, generator.load(nodeVar), dir(direction), types,
+               constant(min), constant(max.getOrElse(Int.MaxValue)), constant(reversed))
+    generator.assign(typeRef[CompiledVarLengthExpand], iterVar, toNodeVar match {
+      case Some(toNode) => invoke(paths, pathsEndingIn, generator.load(toNode))
+      case None => paths
+    })
+  }
+
   override def connectingRelationships(iterVar: String, fromNode: String, direction: SemanticDirection,
                                        toNode: String) = {
     val local = generator.declare(typeRef[RelationshipIterator], iterVar)
@@ -446,6 +498,8 @@ case class GeneratedMethodStructure(fields: Fields, generator: CodeBlock, aux: A
       case LongsToListTable(structure, _) => TypeReference
         .parameterizedType(classOf[util.HashMap[_, _]], typeRef[CompositeKey],
                            parameterizedType(classOf[util.ArrayList[_]], aux.typeReference(structure)))
+      case _: SortTableType => typeRef[CompiledSortTable]
+      case _: AggregationTableType => typeRef[CompiledAggregationTable]
     }
     returnType
   }
@@ -455,6 +509,118 @@ case class GeneratedMethodStructure(fields: Fields, generator: CodeBlock, aux: A
     case LongToListTable(_, _) => Templates.newLongObjectMap
     case LongsToCountTable => createNewInstance(joinTableType(LongsToCountTable))
     case typ: LongsToListTable => createNewInstance(joinTableType(typ))
+    case SortTableType(_, keys) => invoke(newSortTable, sortKeyOffsets(keys), sortKeyDirections(keys))
+    case AggregationTableType(keys, functions) =>
+      invoke(newAggregationTable, constant(keys), newArray(typeRef[Int], functions.map(aggregationFunction): _*))
+  }
+
+  private def aggregationFunction(function: AggregationFunction) =
+    get(staticField[CompiledAggregationTable, Int](function match {
+      case CountStarAggregation => "COUNT_STAR"
+      case CountAggregation => "COUNT"
+      case SumAggregation => "SUM"
+      case MinAggregation => "MIN"
+      case MaxAggregation => "MAX"
+      case CollectAggregation => "COLLECT"
+    }))
+
+  override def allocateSortTable(tableVar: String, tableType: SortTableType, limit: Option[Expression]) =
+    generator.assign(joinTableType(tableType), tableVar, limit match {
+      case Some(count) => invoke(newTopTable, sortKeyOffsets(tableType.keys), sortKeyDirections(tableType.keys),
+                                 invoke(mathCastToLong, count))
+      case None => allocate(tableType)
+    })
+
+  private def sortKeyOffsets(keys: Seq[SortKey]) = newArray(typeRef[Int], keys.map(key => constant(key.offset)): _*)
+
+  private def sortKeyDirections(keys: Seq[SortKey]) =
+    newArray(typeRef[Boolean], keys.map(key => constant(key.ascending)): _*)
+
+  override def addToSortTable(tableVar: String, tableType: SortTableType, fieldVars: Seq[String]) =
+    generator.expression(
+      invoke(generator.load(tableVar), sortTableAdd,
+             newArray(typeRef[Object], fieldVars.zip(tableType.fields).zipWithIndex.map {
+               case ((fieldVar, fieldType), offset) if isEntityKey(tableType, offset) =>
+                 asEntityKey(generator.load(fieldVar), fieldType)
+               case ((fieldVar, fieldType), _) => asObject(generator.load(fieldVar), fieldType)
+             }: _*)))
+
+  override def iterateSortTable(tableVar: String, tableType: SortTableType, fieldVars: Seq[String])
+                               (block: MethodStructure[Expression] => Unit) =
+    using(generator.whileLoop(invoke(generator.load(tableVar), sortTableNext))) { body =>
+      fieldVars.zip(tableType.fields).zipWithIndex.foreach {
+        case ((fieldVar, fieldType), offset) if isEntityKey(tableType, offset) =>
+          body.assign(lowerType(fieldType), fieldVar,
+                      fromEntityKey(invoke(body.load(tableVar), sortTableGet, constant(offset)), fieldType))
+        case ((fieldVar, fieldType), offset) =>
+          body.assign(lowerType(fieldType), fieldVar,
+                      fromObject(invoke(body.load(tableVar), sortTableGet, constant(offset)), fieldType))
+      }
+      block(copy(generator = body))
+    }
+
+  // primitive nodes and relationships that are sorted on are wrapped, so that comparing them fails like it does in
+  // the interpreted runtime instead of ordering them by id
+  private def isEntityKey(tableType: SortTableType, offset: Int) = tableType.fields(offset) match {
+    case CodeGenType(CTNode, IntType) | CodeGenType(CTRelationship, IntType) => tableType.keys.exists(_.offset == offset)
+    case _ => false
+  }
+
+  private def asEntityKey(value: Expression, cType: CodeGenType) = {
+    val wrapper = if (cType.ct == CTNode) typeRef[NodeIdWrapper] else typeRef[RelationshipIdWrapper]
+    ternary(equal(nullValue(cType), value, typeRef[Long]), constant(null), createNewInstance(wrapper, (typeRef[Long], value)))
+  }
+
+  private def fromEntityKey(value: Expression, cType: CodeGenType) =
+    ternaryOnNull(value, nullValue(cType),
+                  if (cType.ct == CTNode) invoke(cast(typeRef[NodeIdWrapper], value), nodeId)
+                  else invoke(cast(typeRef[RelationshipIdWrapper], value), relId))
+
+  override def updateAggregationTable(tableVar: String, tableType: AggregationTableType, keyVars: Seq[String],
+                                      values: Seq[Expression]) = {
+    generator.expression(keyVars match {
+      case Seq() => invoke(generator.load(tableVar), aggregationTableGroup)
+      case Seq(keyVar) => invoke(generator.load(tableVar), aggregationTableGroupByKey, generator.load(keyVar))
+      case _ => invoke(generator.load(tableVar), aggregationTableGroupByKeys,
+                       newArray(typeRef[Long], keyVars.map(generator.load): _*))
+    })
+    values.zipWithIndex.foreach {
+      case (value, offset) =>
+        generator.expression(invoke(generator.load(tableVar), aggregationTableUpdate, constant(offset), value))
+    }
+  }
+
+  override def iterateAggregationTable(tableVar: String, tableType: AggregationTableType, keyVars: Seq[String],
+                                       resultVars: Seq[String])(block: MethodStructure[Expression] => Unit) =
+    using(generator.whileLoop(invoke(generator.load(tableVar), aggregationTableNext))) { body =>
+      keyVars.zipWithIndex.foreach {
+        case (keyVar, offset) =>
+          body.assign(typeRef[Long], keyVar, invoke(body.load(tableVar), aggregationTableKey, constant(offset)))
+      }
+      resultVars.zip(tableType.functions).zipWithIndex.foreach {
+        case ((resultVar, CountStarAggregation | CountAggregation), offset) =>
+          body.assign(typeRef[Long], resultVar,
+                      invoke(mathCastToLong, invoke(body.load(tableVar), aggregationTableResult, constant(offset))))
+        case ((resultVar, _), offset) =>
+          body.assign(typeRef[Object], resultVar, invoke(body.load(tableVar), aggregationTableResult, constant(offset)))
+      }
+      block(copy(generator = body))
+    }
+
+  // sort tables store boxed values, primitive nodes and relationships are kept as their ids
+  private def asObject(value: Expression, cType: CodeGenType) = cType match {
+    case CodeGenType(CTNode, IntType) | CodeGenType(CTRelationship, IntType) |
+         CodeGenType(symbols.CTInteger, IntType) => invoke(boxLong, value)
+    case CodeGenType(symbols.CTFloat, FloatType) => invoke(boxDouble, value)
+    case _ => value
+  }
+
+  private def fromObject(value: Expression, cType: CodeGenType) = cType match {
+    case CodeGenType(CTNode, IntType) | CodeGenType(CTRelationship, IntType) |
+         CodeGenType(symbols.CTInteger, IntType) => invoke(mathCastToLong, value)
+    case CodeGenType(symbols.CTFloat, FloatType) => invoke(cast(typeRef[java.lang.Double], value), unboxDouble)
+    case CodeGenType(symbols.CTString, ReferenceType) => cast(typeRef[String], value)
+    case _ => value
   }
 
   override def updateProbeTableCount(tableVar: String, tableType: CountingJoinTableType,
@@ -497,6 +663,50 @@ case class GeneratedMethodStructure(fields: Fields, generator: CodeBlock, aux: A
                                                              constant(1)))))))
   }
 
+  override def iterateCountTable(tableVar: String, tableType: CountingJoinTableType, keyVars: Seq[String],
+                                 countVar: String)(block: MethodStructure[Expression] => Unit) = tableType match {
+    case LongToCountTable =>
+      assert(keyVars.size == 1)
+      val keyVar = keyVars.head
+      val iterator = generator.declare(typeRef[PrimitiveLongIterator], context.namer.newVarName())
+      generator.assign(iterator, invoke(generator.load(tableVar), countingTableIterator))
+      using(generator.whileLoop(invoke(iterator, hasNextLong))) { body =>
+        body.assign(typeRef[Long], keyVar, invoke(iterator, nextLong))
+        body.assign(typeRef[Long], countVar,
+                    invoke(mathCastToLong,
+                           invoke(boxInteger, invoke(body.load(tableVar), countingTableGet, body.load(keyVar)))))
+        block(copy(generator = body))
+      }
+
+    case LongsToCountTable if keyVars.isEmpty =>
+      // a single group that must be produced even when nothing was counted
+      val count = generator.declare(typeRef[java.lang.Integer], context.namer.newVarName())
+      generator.assign(count,
+                       cast(typeRef[java.lang.Integer],
+                            invoke(generator.load(tableVar), countingTableCompositeKeyGet,
+                                   invoke(compositeKey, newArray(typeRef[Long])))))
+      generator.assign(typeRef[Long], countVar,
+                       ternaryOnNull(count, constant(0L), invoke(mathCastToLong, count)))
+      block(this)
+
+    case LongsToCountTable =>
+      val entryType = parameterizedType(classOf[util.Map.Entry[_, _]], typeRef[CompositeKey], typeRef[java.lang.Integer])
+      val entryName = context.namer.newVarName()
+      using(generator.forEach(Parameter.param(entryType, entryName),
+                              invoke(generator.load(tableVar), countingTableCompositeKeyEntries))) { forEach =>
+        val keyName = context.namer.newVarName()
+        forEach.assign(typeRef[CompositeKey], keyName,
+                       cast(typeRef[CompositeKey], invoke(forEach.load(entryName), mapEntryKey)))
+        keyVars.zipWithIndex.foreach {
+          case (keyVar, offset) =>
+            forEach.assign(typeRef[Long], keyVar, invoke(forEach.load(keyName), compositeKeyGet, constant(offset)))
+        }
+        forEach.assign(typeRef[Long], countVar,
+                       invoke(mathCastToLong, invoke(forEach.load(entryName), mapEntryValue)))
+        block(copy(generator = forEach))
+      }
+  }
+
   override def probe(tableVar: String, tableType: JoinTableType, keyVars: Seq[String])
                     (block: MethodStructure[Expression] => Unit) = tableType match {
     case LongToCountTable =>
@@ -573,6 +783,8 @@ case class GeneratedMethodStructure(fields: Fields, generator: CodeBlock, aux: A
           block(copy(generator = forEach))
         }
       }
+
+    case _: SortTableType | _: AggregationTableType => throw new IllegalArgumentException(s"$tableType can't be probed")
   }
 
   override def putField(structure: Map[String, CodeGenType], value: Expression, fieldType: CodeGenType,
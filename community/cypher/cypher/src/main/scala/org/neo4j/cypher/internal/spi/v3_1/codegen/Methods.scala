@@ -27,7 +27,7 @@ import org.neo4j.cypher.internal.codegen._
 import org.neo4j.cypher.internal.compiler.v3_1.codegen.{QueryExecutionEvent, QueryExecutionTracer, ResultRowImpl}
 import org.neo4j.cypher.internal.compiler.v3_1.planDescription.Id
 import org.neo4j.cypher.internal.compiler.v3_1.spi.{InternalResultRow, InternalResultVisitor}
-import org.neo4j.graphdb.Direction
+import org.neo4j.graphdb.{Direction, Relationship}
 import org.neo4j.helpers.collection.MapUtil
 import org.neo4j.kernel.api.ReadOperations
 import org.neo4j.kernel.api.index.IndexDescriptor
@@ -43,7 +43,12 @@ object Methods {
   val countingTableCompositeKeyPut = method[util.HashMap[CompositeKey, Integer], Object]("put", typeRef[Object], typeRef[Object])
   val countingTableGet = method[PrimitiveLongIntMap, Int]("get", typeRef[Long])
   val countingTableCompositeKeyGet = method[util.HashMap[CompositeKey, Integer], Object]("get", typeRef[Object])
+  val countingTableIterator = method[PrimitiveLongIntMap, PrimitiveLongIterator]("iterator")
+  val countingTableCompositeKeyEntries = method[util.HashMap[CompositeKey, Integer], util.Set[util.Map.Entry[CompositeKey, Integer]]]("entrySet")
   val compositeKey = method[CompiledConversionUtils, CompositeKey]("compositeKey", typeRef[Array[Long]])
+  val compositeKeyGet = method[CompositeKey, Long]("get", typeRef[Int])
+  val mapEntryKey = method[util.Map.Entry[CompositeKey, Integer], Object]("getKey")
+  val mapEntryValue = method[util.Map.Entry[CompositeKey, Integer], Object]("getValue")
   val hasNextLong = method[PrimitiveLongIterator, Boolean]("hasNext")
   val hasMoreRelationship = method[RelationshipIterator, Boolean]("hasNext")
   val createMap = method[MapUtil, util.Map[String, Object]]("map", typeRef[Array[Object]])
@@ -57,6 +62,30 @@ object Methods {
   val nodeGetRelationships = method[ReadOperations, RelationshipIterator]("nodeGetRelationships", typeRef[Long], typeRef[Direction], typeRef[Array[Int]])
   val allConnectingRelationships = method[CompiledExpandUtils, RelationshipIterator]("connectingRelationships", typeRef[ReadOperations], typeRef[Long], typeRef[Direction], typeRef[Long])
   val connectingRelationships = method[CompiledExpandUtils, RelationshipIterator]("connectingRelationships", typeRef[ReadOperations], typeRef[Long], typeRef[Direction], typeRef[Long], typeRef[Array[Int]])
+  val varLengthPaths = method[CompiledVarLengthExpand, CompiledVarLengthExpand]("paths", typeRef[ReadOperations], typeRef[NodeManager], typeRef[Long], typeRef[Direction], typeRef[Array[Int]], typeRef[Int], typeRef[Int], typeRef[Boolean])
+  val filteredVarLengthPaths = method[CompiledVarLengthExpand, CompiledVarLengthExpand]("filteredPaths", typeRef[ReadOperations], typeRef[NodeManager], typeRef[Long], typeRef[Direction], typeRef[Array[Int]], typeRef[Int], typeRef[Int], typeRef[Boolean], typeRef[Boolean], typeRef[Boolean])
+  val pathsEndingIn = method[CompiledVarLengthExpand, CompiledVarLengthExpand]("endingIn", typeRef[Long])
+  val pathsHasNext = method[CompiledVarLengthExpand, Boolean]("hasNext")
+  val pathsIsNodeCandidate = method[CompiledVarLengthExpand, Boolean]("isNodeCandidate")
+  val pathsIsRelationshipCandidate = method[CompiledVarLengthExpand, Boolean]("isRelationshipCandidate")
+  val pathsIsPath = method[CompiledVarLengthExpand, Boolean]("isPath")
+  val pathsCandidate = method[CompiledVarLengthExpand, Long]("candidate")
+  val pathsDecide = method[CompiledVarLengthExpand, Unit]("decide", typeRef[Boolean])
+  val pathsNext = method[CompiledVarLengthExpand, Long]("next")
+  val pathRelationships = method[CompiledVarLengthExpand, util.List[Relationship]]("relationships")
+  val newSortTable = method[CompiledSortTable, CompiledSortTable]("sort", typeRef[Array[Int]], typeRef[Array[Boolean]])
+  val newTopTable = method[CompiledSortTable, CompiledSortTable]("top", typeRef[Array[Int]], typeRef[Array[Boolean]], typeRef[Long])
+  val sortTableAdd = method[CompiledSortTable, Unit]("add", typeRef[Array[Object]])
+  val sortTableNext = method[CompiledSortTable, Boolean]("next")
+  val sortTableGet = method[CompiledSortTable, Object]("get", typeRef[Int])
+  val newAggregationTable = method[CompiledAggregationTable, CompiledAggregationTable]("aggregate", typeRef[Int], typeRef[Array[Int]])
+  val aggregationTableGroup = method[CompiledAggregationTable, Unit]("group")
+  val aggregationTableGroupByKey = method[CompiledAggregationTable, Unit]("group", typeRef[Long])
+  val aggregationTableGroupByKeys = method[CompiledAggregationTable, Unit]("group", typeRef[Array[Long]])
+  val aggregationTableUpdate = method[CompiledAggregationTable, Unit]("update", typeRef[Int], typeRef[Object])
+  val aggregationTableNext = method[CompiledAggregationTable, Boolean]("next")
+  val aggregationTableKey = method[CompiledAggregationTable, Long]("key", typeRef[Int])
+  val aggregationTableResult = method[CompiledAggregationTable, Object]("result", typeRef[Int])
   val mathAdd = method[CompiledMathHelper, Object]("add", typeRef[Object], typeRef[Object])
   val mathSub = method[CompiledMathHelper, Object]("subtract", typeRef[Object], typeRef[Object])
   val mathMul = method[CompiledMathHelper, Object]("multiply", typeRef[Object], typeRef[Object])
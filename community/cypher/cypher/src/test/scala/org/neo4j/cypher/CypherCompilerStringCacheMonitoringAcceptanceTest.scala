@@ -93,7 +93,35 @@ class CypherCompilerStringCacheMonitoringAcceptanceTest extends ExecutionEngineF
     execute("return 42").toList
 
     // then
-    counter.counts should equal(CacheCounts(hits = 3, misses = 3, flushes = 2))
+    counter.counts should equal(CacheCounts(hits = 3, misses = 2, flushes = 2))
+  }
+
+  test("should replan queries on labels affected by a schema change") {
+    // given
+    val counter = new CacheCounter()
+    kernelMonitors.addMonitorListener(counter)
+
+    // when
+    execute("match (n:Person) return n").toList
+    execute("create constraint on (n:Person) assert n.id is unique").toList
+    execute("match (n:Person) return n").toList
+
+    // then
+    counter.counts should equal(CacheCounts(hits = 3, misses = 3, flushes = 2, evicted = 1))
+  }
+
+  test("should keep plans for labels not affected by a schema change") {
+    // given
+    val counter = new CacheCounter()
+    kernelMonitors.addMonitorListener(counter)
+
+    // when
+    execute("match (n:Dog) return n").toList
+    execute("create constraint on (n:Person) assert n.id is unique").toList
+    execute("match (n:Dog) return n").toList
+
+    // then
+    counter.counts should equal(CacheCounts(hits = 3, misses = 2, flushes = 2))
   }
 
   test("should monitor cache evictions") {
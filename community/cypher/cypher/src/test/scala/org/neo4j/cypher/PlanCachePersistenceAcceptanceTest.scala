@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher
+
+import java.io.File
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+import org.neo4j.cypher.internal.frontend.v3_1.test_helpers.CypherFunSuite
+import org.neo4j.cypher.internal.{PlanCachePersistence, StringCacheMonitor}
+import org.neo4j.graphdb.GraphDatabaseService
+import org.neo4j.graphdb.factory.GraphDatabaseSettings
+import org.neo4j.io.fs.FileUtils
+import org.neo4j.kernel.monitoring.Monitors
+import org.neo4j.test.TestGraphDatabaseFactory
+
+class PlanCachePersistenceAcceptanceTest extends CypherFunSuite {
+
+  private val storeDir = new File("target/test-data/plan-cache-persistence-db")
+  private val query = "MATCH (n:Person) WHERE n.name = 'Alice' RETURN n"
+
+  override protected def beforeEach() {
+    super.beforeEach()
+    FileUtils.deleteRecursively(storeDir)
+  }
+
+  override protected def afterEach() {
+    FileUtils.deleteRecursively(storeDir)
+    super.afterEach()
+  }
+
+  test("should plan the queries of the previous run in the background after a restart") {
+    // given
+    val first = startDatabase(persistence = true, new Monitors)
+    try {
+      first.execute(query).close()
+    } finally {
+      first.shutdown()
+    }
+    new File(storeDir, PlanCachePersistence.FILE_NAME).exists() should equal(true)
+
+    // when
+    val monitors = new Monitors
+    val counter = new CacheCounter
+    monitors.addMonitorListener(counter)
+    val db = startDatabase(persistence = true, monitors)
+    try {
+      awaitMisses(counter, 1)
+      val hitsAfterWarmUp = counter.hits.get()
+      db.execute(query).close()
+
+      // then
+      counter.misses.get() should equal(1)
+      counter.hits.get() should equal(hitsAfterWarmUp + 1)
+    } finally {
+      db.shutdown()
+    }
+  }
+
+  test("should not save the plan cache unless asked to") {
+    val db = startDatabase(persistence = false, new Monitors)
+    try {
+      db.execute(query).close()
+    } finally {
+      db.shutdown()
+    }
+
+    new File(storeDir, PlanCachePersistence.FILE_NAME).exists() should equal(false)
+  }
+
+  private def startDatabase(persistence: Boolean, monitors: Monitors): GraphDatabaseService =
+    new TestGraphDatabaseFactory()
+      .setMonitors(monitors)
+      .newEmbeddedDatabaseBuilder(storeDir)
+      .setConfig(GraphDatabaseSettings.cypher_plan_cache_persistence, persistence.toString)
+      .newGraphDatabase()
+
+  private def awaitMisses(counter: CacheCounter, expected: Int): Unit = {
+    val deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30)
+    while (counter.misses.get() < expected && System.currentTimeMillis() < deadline)
+      Thread.sleep(10)
+    withClue("the saved queries were not planned in the background:") {
+      counter.misses.get() should equal(expected)
+    }
+  }
+
+  class CacheCounter extends StringCacheMonitor {
+    val hits = new AtomicInteger()
+    val misses = new AtomicInteger()
+
+    override def cacheMiss(key: String) {
+      misses.incrementAndGet()
+    }
+
+    override def cacheHit(key: String) {
+      hits.incrementAndGet()
+    }
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal
+
+import java.io.{File, RandomAccessFile}
+
+import org.neo4j.cypher.internal.frontend.v3_1.test_helpers.CypherFunSuite
+import org.neo4j.logging.AssertableLogProvider
+
+class PlanCachePersistenceTest extends CypherFunSuite {
+
+  private var file: File = _
+  private var logProvider: AssertableLogProvider = _
+
+  override protected def beforeEach() {
+    super.beforeEach()
+    file = File.createTempFile(PlanCachePersistence.FILE_NAME, "")
+    file.delete()
+    logProvider = new AssertableLogProvider()
+  }
+
+  override protected def afterEach() {
+    file.delete()
+    super.afterEach()
+  }
+
+  test("should load the queries it saved") {
+    val queries = Seq("MATCH (n:Person) RETURN n", "RETURN 'åäö'", "MATCH (a)\n-->(b) RETURN count(*)")
+
+    persistence.save(queries)
+
+    persistence.load() should equal(queries)
+    logProvider.assertNoLoggingOccurred()
+  }
+
+  test("should load nothing when no queries were saved") {
+    persistence.load() shouldBe empty
+    logProvider.assertNoLoggingOccurred()
+  }
+
+  test("should overwrite the queries saved before") {
+    persistence.save(Seq("RETURN 1", "RETURN 2"))
+    persistence.save(Seq("RETURN 3"))
+
+    persistence.load() should equal(Seq("RETURN 3"))
+  }
+
+  test("should load the complete queries of a truncated file and warn about the rest") {
+    persistence.save(Seq("RETURN 1", "MATCH (n) RETURN n"))
+    val truncated = new RandomAccessFile(file, "rw")
+    try {
+      truncated.setLength(truncated.length() - 3)
+    } finally {
+      truncated.close()
+    }
+
+    persistence.load() should equal(Seq("RETURN 1"))
+    logProvider.assertContainsMessageContaining("Could not read the saved query plan cache")
+  }
+
+  test("should warn instead of failing when the queries can't be saved") {
+    val unwritable = new PlanCachePersistence(new File(file, "missing_directory"), logProvider.getLog(getClass))
+
+    unwritable.save(Seq("RETURN 1"))
+
+    logProvider.assertContainsMessageContaining("Could not save the query plan cache")
+  }
+
+  private def persistence = new PlanCachePersistence(file, logProvider.getLog(getClass))
+}
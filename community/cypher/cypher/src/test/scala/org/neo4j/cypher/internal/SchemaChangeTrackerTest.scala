@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal
+
+import org.mockito.Mockito._
+import org.neo4j.cypher.internal.frontend.v3_1.test_helpers.CypherFunSuite
+import org.neo4j.kernel.api.ReadOperations
+import org.neo4j.kernel.api.constraints.{PropertyConstraint, UniquenessConstraint}
+import org.neo4j.kernel.api.exceptions.LabelNotFoundKernelException
+import org.neo4j.kernel.api.index.{IndexDescriptor, InternalIndexState}
+
+import scala.collection.JavaConverters._
+
+class SchemaChangeTrackerTest extends CypherFunSuite {
+
+  private val personIndex = new IndexDescriptor(1, 10)
+  private val dogIndex = new IndexDescriptor(2, 10)
+  private val unnamedIndex = new IndexDescriptor(3, 10)
+
+  private val operations = mock[ReadOperations]
+  when(operations.labelGetName(1)).thenReturn("Person")
+  when(operations.labelGetName(2)).thenReturn("Dog")
+  when(operations.labelGetName(3)).thenThrow(new LabelNotFoundKernelException("no such label", null))
+
+  test("should not consider plans stale before any schema change") {
+    val tracker = new SchemaChangeTracker
+
+    tracker.isStale(Some(Set("Person")), tracker.currentEpoch) should equal(false)
+    tracker.isStale(None, tracker.currentEpoch) should equal(false)
+  }
+
+  test("should invalidate every plan on the first flush, since there is nothing to compare with") {
+    val tracker = new SchemaChangeTracker
+    val plannedIn = tracker.currentEpoch
+
+    changeSchema(tracker, personIndex -> InternalIndexState.ONLINE)
+
+    tracker.isStale(Some(Set("Dog")), plannedIn) should equal(true)
+    tracker.isStale(Some(Set("Dog")), tracker.currentEpoch) should equal(false)
+  }
+
+  test("should only invalidate plans on labels whose indexes changed") {
+    val tracker = new SchemaChangeTracker
+    changeSchema(tracker)
+    val plannedIn = tracker.currentEpoch
+
+    changeSchema(tracker, personIndex -> InternalIndexState.POPULATING)
+
+    tracker.currentEpoch should equal(plannedIn + 1)
+    tracker.isStale(Some(Set("Person")), plannedIn) should equal(true)
+    tracker.isStale(Some(Set("Dog")), plannedIn) should equal(false)
+    tracker.isStale(Some(Set("Dog", "Person")), plannedIn) should equal(true)
+    tracker.isStale(Some(Set.empty), plannedIn) should equal(false)
+  }
+
+  test("should invalidate plans on a label when its index comes online") {
+    val tracker = new SchemaChangeTracker
+    changeSchema(tracker, personIndex -> InternalIndexState.POPULATING)
+    val plannedIn = tracker.currentEpoch
+
+    changeSchema(tracker, personIndex -> InternalIndexState.ONLINE)
+
+    tracker.isStale(Some(Set("Person")), plannedIn) should equal(true)
+  }
+
+  test("should invalidate plans on a label when its constraints change") {
+    val tracker = new SchemaChangeTracker
+    changeSchema(tracker, dogIndex -> InternalIndexState.ONLINE)
+    val plannedIn = tracker.currentEpoch
+
+    changeSchema(tracker, Seq(dogIndex -> InternalIndexState.ONLINE), Seq(new UniquenessConstraint(1, 10)))
+
+    tracker.isStale(Some(Set("Person")), plannedIn) should equal(true)
+    tracker.isStale(Some(Set("Dog")), plannedIn) should equal(false)
+  }
+
+  test("should keep plans planned after the change of their label") {
+    val tracker = new SchemaChangeTracker
+    changeSchema(tracker)
+    changeSchema(tracker, personIndex -> InternalIndexState.ONLINE)
+    val plannedIn = tracker.currentEpoch
+
+    changeSchema(tracker, personIndex -> InternalIndexState.ONLINE, dogIndex -> InternalIndexState.ONLINE)
+
+    tracker.isStale(Some(Set("Person")), plannedIn) should equal(false)
+    tracker.isStale(Some(Set("Dog")), plannedIn) should equal(true)
+  }
+
+  test("should invalidate plans without known label dependencies on every change") {
+    val tracker = new SchemaChangeTracker
+    changeSchema(tracker)
+    val plannedIn = tracker.currentEpoch
+
+    changeSchema(tracker, personIndex -> InternalIndexState.ONLINE)
+
+    tracker.isStale(None, plannedIn) should equal(true)
+    tracker.isStale(None, tracker.currentEpoch) should equal(false)
+  }
+
+  test("should invalidate every plan when a change can't be attributed to a label") {
+    val tracker = new SchemaChangeTracker
+    changeSchema(tracker)
+    val plannedIn = tracker.currentEpoch
+
+    changeSchema(tracker, unnamedIndex -> InternalIndexState.ONLINE)
+
+    tracker.isStale(Some(Set("Person")), plannedIn) should equal(true)
+    tracker.isStale(Some(Set.empty), plannedIn) should equal(true)
+  }
+
+  test("should invalidate every plan when a flush changed no index or constraint") {
+    val tracker = new SchemaChangeTracker
+    changeSchema(tracker, personIndex -> InternalIndexState.ONLINE)
+    val plannedIn = tracker.currentEpoch
+
+    changeSchema(tracker, personIndex -> InternalIndexState.ONLINE)
+
+    tracker.isStale(Some(Set("Dog")), plannedIn) should equal(true)
+  }
+
+  private def changeSchema(tracker: SchemaChangeTracker, indexes: (IndexDescriptor, InternalIndexState)*): Unit =
+    changeSchema(tracker, indexes, Seq.empty)
+
+  private def changeSchema(tracker: SchemaChangeTracker, indexes: Seq[(IndexDescriptor, InternalIndexState)],
+                           constraints: Seq[PropertyConstraint]): Unit = {
+    when(operations.indexesGetAll()).thenReturn(indexes.map(_._1).iterator.asJava)
+    when(operations.uniqueIndexesGetAll()).thenReturn(Iterator.empty[IndexDescriptor].asJava)
+    when(operations.constraintsGetAll()).thenReturn(constraints.iterator.asJava)
+    indexes.foreach { case (index, state) => when(operations.indexGetState(index)).thenReturn(state) }
+    tracker.schemaChanged(operations)
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.codegen
+
+import java.util
+
+import org.neo4j.cypher.internal.codegen.CompiledAggregationTable._
+import org.neo4j.cypher.internal.frontend.v3_1.{CypherTypeException, IncomparableValuesException}
+import org.neo4j.cypher.internal.frontend.v3_1.test_helpers.CypherFunSuite
+
+class CompiledAggregationTableTest extends CypherFunSuite {
+
+  test("should aggregate rows per group in the order the groups were seen") {
+    val table = CompiledAggregationTable.aggregate(1, Array(COUNT_STAR, COUNT, SUM, MIN, MAX, COLLECT))
+    Seq[(Long, AnyRef)](2L -> Long.box(3), 1L -> Long.box(5), 2L -> null, 2L -> Long.box(1)).foreach {
+      case (key, value) =>
+        table.group(key)
+        (0 until 6).foreach(offset => table.update(offset, value))
+    }
+
+    rows(table, 1, 6) should equal(Seq(
+      Seq(2, 3, 2, 4, 1, 3, util.Arrays.asList(3L, 1L)),
+      Seq(1, 1, 1, 5, 5, 5, util.Arrays.asList(5L))))
+  }
+
+  test("should group on several keys") {
+    val table = CompiledAggregationTable.aggregate(2, Array(COUNT_STAR))
+    Seq(Array(1L, 2L), Array(2L, 1L), Array(1L, 2L)).foreach { keys =>
+      table.group(keys)
+      table.update(0, null)
+    }
+
+    rows(table, 2, 1) should equal(Seq(Seq(1, 2, 2), Seq(2, 1, 1)))
+  }
+
+  test("should produce a single group without keys even when nothing was aggregated") {
+    val table = CompiledAggregationTable.aggregate(0, Array(COUNT_STAR, COUNT, SUM, MIN, MAX, COLLECT))
+
+    rows(table, 0, 6) should equal(Seq(Seq(0, 0, 0, null, null, new util.ArrayList())))
+  }
+
+  test("should switch to floating point sums on overflow and on floating point values") {
+    val table = CompiledAggregationTable.aggregate(0, Array(SUM, SUM))
+    table.group()
+    table.update(0, Long.box(Long.MaxValue))
+    table.update(0, Long.box(1))
+    table.update(1, Long.box(1))
+    table.update(1, Double.box(0.5))
+
+    rows(table, 0, 2) should equal(Seq(Seq(Long.MaxValue.toDouble + 1, 1.5)))
+  }
+
+  test("should not sum values that are not numbers") {
+    val table = CompiledAggregationTable.aggregate(0, Array(SUM))
+    table.group()
+
+    a [CypherTypeException] should be thrownBy table.update(0, "a")
+  }
+
+  test("should not compare values of different types") {
+    val table = CompiledAggregationTable.aggregate(0, Array(MIN))
+    table.group()
+    table.update(0, "a")
+
+    an [IncomparableValuesException] should be thrownBy table.update(0, Long.box(1))
+  }
+
+  private def rows(table: CompiledAggregationTable, keys: Int, results: Int): Seq[Seq[Any]] = {
+    val rows = Seq.newBuilder[Seq[Any]]
+    while (table.next()) rows += (0 until keys).map(table.key) ++ (0 until results).map(table.result)
+    rows.result()
+  }
+}
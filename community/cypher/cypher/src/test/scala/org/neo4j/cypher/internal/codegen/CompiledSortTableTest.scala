@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.codegen
+
+import org.neo4j.cypher.internal.frontend.v3_1.IncomparableValuesException
+import org.neo4j.cypher.internal.frontend.v3_1.test_helpers.CypherFunSuite
+
+class CompiledSortTableTest extends CypherFunSuite {
+
+  test("should sort rows on a single key with nulls last") {
+    val table = CompiledSortTable.sort(Array(0), Array(true))
+    Seq[AnyRef](Long.box(3), null, Double.box(1.5), Long.box(2)).foreach(value => table.add(Array(value)))
+
+    column(table, 0) should equal(Seq(1.5, 2, 3, null))
+  }
+
+  test("should sort descending with nulls first") {
+    val table = CompiledSortTable.sort(Array(0), Array(false))
+    Seq[AnyRef]("b", null, "c", "a").foreach(value => table.add(Array(value)))
+
+    column(table, 0) should equal(Seq(null, "c", "b", "a"))
+  }
+
+  test("should sort on the second key when the first one is equal") {
+    val table = CompiledSortTable.sort(Array(1, 0), Array(true, false))
+    table.add(Array[AnyRef]("x", Long.box(2)))
+    table.add(Array[AnyRef]("y", Long.box(1)))
+    table.add(Array[AnyRef]("z", Long.box(2)))
+
+    column(table, 0) should equal(Seq("y", "z", "x"))
+  }
+
+  test("should only keep the top rows") {
+    val table = CompiledSortTable.top(Array(0), Array(true), 2)
+    (10 to 1 by -1).foreach(i => table.add(Array[AnyRef](Long.box(i))))
+
+    column(table, 0) should equal(Seq(1, 2))
+  }
+
+  test("should keep nothing with a limit of zero") {
+    val table = CompiledSortTable.top(Array(0), Array(true), 0)
+    table.add(Array[AnyRef](Long.box(1)))
+
+    table.next() should equal(false)
+  }
+
+  test("should not compare values of different types") {
+    val table = CompiledSortTable.sort(Array(0), Array(true))
+    table.add(Array[AnyRef]("a"))
+    table.add(Array[AnyRef](Long.box(1)))
+
+    an [IncomparableValuesException] should be thrownBy table.next()
+  }
+
+  private def column(table: CompiledSortTable, offset: Int): Seq[Any] = {
+    val values = Seq.newBuilder[Any]
+    while (table.next()) values += table.get(offset)
+    values.result()
+  }
+}
@@ -27,13 +27,15 @@ import org.neo4j.collection.primitive.PrimitiveLongIterator
 import org.neo4j.cypher.internal.compiler.v3_1.executionplan.ExecutionPlanBuilder.tracer
 import org.neo4j.cypher.internal.compiler.v3_1.executionplan.InternalExecutionResult
 import org.neo4j.cypher.internal.compiler.v3_1.planner.LogicalPlanningTestSupport
+import org.neo4j.cypher.internal.compiler.v3_1.planner.logical.{Ascending, Descending}
+import org.neo4j.cypher.internal.compiler.v3_1.planner.logical.plans
 import org.neo4j.cypher.internal.compiler.v3_1.planner.logical.plans._
 import org.neo4j.cypher.internal.compiler.v3_1.spi.{InternalResultRow, InternalResultVisitor, QueryContext}
 import org.neo4j.cypher.internal.compiler.v3_1.{CostBasedPlannerName, NormalMode, TaskCloser}
 import org.neo4j.cypher.internal.frontend.v3_1.ast._
 import org.neo4j.cypher.internal.frontend.v3_1.symbols._
 import org.neo4j.cypher.internal.frontend.v3_1.test_helpers.CypherFunSuite
-import org.neo4j.cypher.internal.frontend.v3_1.{ParameterNotFoundException, SemanticDirection, SemanticTable}
+import org.neo4j.cypher.internal.frontend.v3_1.{IncomparableValuesException, ParameterNotFoundException, PropertyKeyId, SemanticDirection, SemanticTable}
 import org.neo4j.cypher.internal.spi.TransactionalContextWrapperv3_1
 import org.neo4j.cypher.internal.spi.v3_1.codegen.GeneratedQueryStructure
 import org.neo4j.graphdb.{Direction, Node, Relationship}
@@ -42,7 +44,7 @@ import org.neo4j.kernel.impl.api.RelationshipVisitor
 import org.neo4j.kernel.impl.api.store.RelationshipIterator
 import org.neo4j.kernel.impl.core.{NodeManager, NodeProxy, RelationshipProxy}
 
-import scala.collection.JavaConverters
+import scala.collection.{JavaConverters, mutable}
 
 class CodeGeneratorTest extends CypherFunSuite with LogicalPlanningTestSupport {
 
@@ -563,6 +565,250 @@ class CodeGeneratorTest extends CypherFunSuite with LogicalPlanningTestSupport {
     ))
   }
 
+  test("sort on the count of an aggregation") { // MATCH (a)-[r]->(b) RETURN b, count(*) AS c ORDER BY c DESC
+    //given
+    val plan = ProduceResult(List("b", "c"), Sort(countIncomingRelationships, Seq(Descending(IdName("c"))))(solved))
+
+    //when
+    val compiled = compileAndExecute(plan)
+
+    //then
+    val result = getResult(compiled, "b", "c")
+    result.take(2) should equal(List(Map("b" -> dNode, "c" -> 3), Map("b" -> eNode, "c" -> 2)))
+    result.drop(2).toSet should equal(Set(Map("b" -> hNode, "c" -> 1), Map("b" -> iNode, "c" -> 1)))
+  }
+
+  test("limit on top of sort only keeps the top rows") { // MATCH (a)-[r]->(b) RETURN b, count(*) AS c ORDER BY c DESC LIMIT 2
+    //given
+    val plan = ProduceResult(List("b", "c"),
+      plans.Limit(Sort(countIncomingRelationships, Seq(Descending(IdName("c"))))(solved),
+            SignedDecimalIntegerLiteral("2")(pos), DoNotIncludeTies)(solved))
+
+    //when
+    val compiled = compileAndExecute(plan)
+
+    //then
+    val result = getResult(compiled, "b", "c")
+    result should equal(List(Map("b" -> dNode, "c" -> 3), Map("b" -> eNode, "c" -> 2)))
+  }
+
+  test("label scan + var length expand") { // MATCH (a:T3)-[r*1..2]->(b) RETURN a, b, r
+    //given
+    val plan = ProduceResult(List("a", "b", "r"),
+      VarExpand(NodeByLabelScan(IdName("a"), lblName("T3"), Set.empty)(solved), IdName("a"),
+                SemanticDirection.OUTGOING, SemanticDirection.OUTGOING, Seq.empty, IdName("b"), IdName("r"),
+                VarPatternLength(1, Some(2)))(solved))
+
+    //when
+    val compiled = compileAndExecute(plan)
+
+    //then
+    val hToI = relMap(16L).relationship
+    val iToH = relMap(17L).relationship
+    val result = getResult(compiled, "a", "b", "r")
+    result.toSet should equal(Set(
+      Map("a" -> hNode, "b" -> iNode, "r" -> Seq(hToI)),
+      Map("a" -> hNode, "b" -> hNode, "r" -> Seq(hToI, iToH)),
+      Map("a" -> iNode, "b" -> hNode, "r" -> Seq(iToH)),
+      Map("a" -> iNode, "b" -> iNode, "r" -> Seq(iToH, hToI))))
+  }
+
+  test("label scan + var length expand with node predicates") { // MATCH p = (a:T1)-[r*1..2]-(b) WHERE NONE(n IN nodes(p) WHERE n:T2) RETURN a, b
+    //given
+    val plan = ProduceResult(List("a", "b"),
+      VarExpand(NodeByLabelScan(IdName("a"), lblName("T1"), Set.empty)(solved), IdName("a"),
+                SemanticDirection.BOTH, SemanticDirection.BOTH, Seq.empty, IdName("b"), IdName("r"),
+                VarPatternLength(1, Some(2)), ExpandAll,
+                Seq(varFor("n") -> Not(HasLabels(varFor("n"), Seq(LabelName("T2")(pos)))(pos))(pos)))(solved))
+
+    //when
+    val compiled = compileAndExecute(plan)
+
+    //then
+    val result = getResult(compiled, "a", "b")
+    result.toSet should equal(Set(
+      Map("a" -> aNode, "b" -> dNode),
+      Map("a" -> aNode, "b" -> bNode),
+      Map("a" -> bNode, "b" -> dNode),
+      Map("a" -> bNode, "b" -> aNode),
+      Map("a" -> cNode, "b" -> eNode)))
+  }
+
+  test("label scan + var length expand with relationship predicates") { // MATCH p = (a:T1)-[r*1..2]-(b) WHERE NONE(x IN rels(p) WHERE x.weight = 12) RETURN a, b
+    //given
+    val plan = ProduceResult(List("a", "b"),
+      VarExpand(NodeByLabelScan(IdName("a"), lblName("T1"), Set.empty)(solved), IdName("a"),
+                SemanticDirection.BOTH, SemanticDirection.BOTH, Seq.empty, IdName("b"), IdName("r"),
+                VarPatternLength(1, Some(2)), ExpandAll,
+                Seq(varFor("x") -> Not(Equals(prop("x", "weight"), literalInt(12))(pos))(pos)))(solved))
+
+    //when
+    val compiled = compileAndExecute(plan)
+
+    //then
+    val result = getResult(compiled, "a", "b")
+    result.toSet should equal(Set(
+      Map("a" -> aNode, "b" -> dNode),
+      Map("a" -> aNode, "b" -> fNode),
+      Map("a" -> cNode, "b" -> eNode),
+      Map("a" -> cNode, "b" -> gNode)))
+  }
+
+  test("var length expand into bound end nodes") { // MATCH (a:T3), (b:T3) MATCH (a)-[r*1..2]->(b) RETURN a, b, r
+    //given
+    val lhs = NodeByLabelScan(IdName("a"), lblName("T3"), Set.empty)(solved)
+    val rhs = NodeByLabelScan(IdName("b"), lblName("T3"), Set.empty)(solved)
+    val plan = ProduceResult(List("a", "b", "r"),
+      VarExpand(CartesianProduct(lhs, rhs)(solved), IdName("a"),
+                SemanticDirection.OUTGOING, SemanticDirection.OUTGOING, Seq.empty, IdName("b"), IdName("r"),
+                VarPatternLength(1, Some(2)), ExpandInto)(solved))
+
+    //when
+    val compiled = compileAndExecute(plan)
+
+    //then
+    val hToI = relMap(16L).relationship
+    val iToH = relMap(17L).relationship
+    val result = getResult(compiled, "a", "b", "r")
+    result.toSet should equal(Set(
+      Map("a" -> hNode, "b" -> iNode, "r" -> Seq(hToI)),
+      Map("a" -> hNode, "b" -> hNode, "r" -> Seq(hToI, iToH)),
+      Map("a" -> iNode, "b" -> hNode, "r" -> Seq(iToH)),
+      Map("a" -> iNode, "b" -> iNode, "r" -> Seq(iToH, hToI))))
+  }
+
+  test("var length expand from an optional node") { // MATCH (a:T3) OPTIONAL MATCH (a)<-[r:R1]-(b) MATCH (b)-[r2*1..2]->(c) RETURN a, b, c, r2
+    //given
+    val optionalExpand = OptionalExpand(NodeByLabelScan(IdName("a"), lblName("T3"), Set.empty)(solved), IdName("a"),
+                                        SemanticDirection.INCOMING, Seq(RelTypeName("R1")(pos)), IdName("b"),
+                                        IdName("r"), ExpandAll)(solved)
+    val plan = ProduceResult(List("a", "b", "c", "r2"),
+      VarExpand(optionalExpand, IdName("b"), SemanticDirection.OUTGOING, SemanticDirection.OUTGOING, Seq.empty,
+                IdName("c"), IdName("r2"), VarPatternLength(1, Some(2)))(solved))
+
+    //when
+    val compiled = compileAndExecute(plan)
+
+    //then
+    val result = getResult(compiled, "a", "b", "c", "r2")
+    result.toSet should equal(Set(
+      Map("a" -> hNode, "b" -> null, "c" -> null, "r2" -> null),
+      Map("a" -> iNode, "b" -> null, "c" -> null, "r2" -> null)))
+  }
+
+  test("count of a property per group") { // MATCH (a)-[r]->(b) RETURN b, count(a.value) AS c
+    //given
+    val plan = ProduceResult(List("b", "c"), aggregateIncomingValues("count"))
+
+    //when
+    val compiled = compileAndExecute(plan)
+
+    //then
+    val result = getResult(compiled, "b", "c")
+    result.toSet should equal(Set(
+      Map("b" -> dNode, "c" -> 2), Map("b" -> eNode, "c" -> 2), Map("b" -> iNode, "c" -> 1), Map("b" -> hNode, "c" -> 1)))
+  }
+
+  test("sum of a property per group") { // MATCH (a)-[r]->(b) RETURN b, sum(a.value) AS c
+    //given
+    val plan = ProduceResult(List("b", "c"), aggregateIncomingValues("sum"))
+
+    //when
+    val compiled = compileAndExecute(plan)
+
+    //then
+    val result = getResult(compiled, "b", "c")
+    result.toSet should equal(Set(
+      Map("b" -> dNode, "c" -> 10), Map("b" -> eNode, "c" -> 80), Map("b" -> iNode, "c" -> 70), Map("b" -> hNode, "c" -> 80)))
+  }
+
+  test("min of a property per group") { // MATCH (a)-[r]->(b) RETURN b, min(a.value) AS c
+    //given
+    val plan = ProduceResult(List("b", "c"), aggregateIncomingValues("min"))
+
+    //when
+    val compiled = compileAndExecute(plan)
+
+    //then
+    val result = getResult(compiled, "b", "c")
+    result.toSet should equal(Set(
+      Map("b" -> dNode, "c" -> 0), Map("b" -> eNode, "c" -> 20), Map("b" -> iNode, "c" -> 70), Map("b" -> hNode, "c" -> 80)))
+  }
+
+  test("max of a property per group") { // MATCH (a)-[r]->(b) RETURN b, max(a.value) AS c
+    //given
+    val plan = ProduceResult(List("b", "c"), aggregateIncomingValues("max"))
+
+    //when
+    val compiled = compileAndExecute(plan)
+
+    //then
+    val result = getResult(compiled, "b", "c")
+    result.toSet should equal(Set(
+      Map("b" -> dNode, "c" -> 10), Map("b" -> eNode, "c" -> 60), Map("b" -> iNode, "c" -> 70), Map("b" -> hNode, "c" -> 80)))
+  }
+
+  test("collect of a property per group") { // MATCH (a)-[r]->(b) RETURN b, collect(a.value) AS c
+    //given
+    val plan = ProduceResult(List("b", "c"), aggregateIncomingValues("collect"))
+
+    //when
+    val compiled = compileAndExecute(plan)
+
+    //then
+    val result = getResult(compiled, "b", "c").map(row => row("b") -> row("c").asInstanceOf[Seq[Any]].toSet).toMap
+    result should equal(Map(
+      dNode -> Set(0, 10), eNode -> Set(20, 60), iNode -> Set(70), hNode -> Set(80)))
+  }
+
+  test("aggregation without grouping keys") { // MATCH (a) RETURN count(a.value) AS c, sum(a.value) AS s, min(a.value) AS mn, max(a.value) AS mx
+    //given
+    val plan = ProduceResult(List("c", "s", "mn", "mx"),
+      Aggregation(AllNodesScan(IdName("a"), Set.empty)(solved), Map.empty, Map(
+        "c" -> aggregate("count", prop("a", "value")),
+        "s" -> aggregate("sum", prop("a", "value")),
+        "mn" -> aggregate("min", prop("a", "value")),
+        "mx" -> aggregate("max", prop("a", "value"))))(solved))
+
+    //when
+    val compiled = compileAndExecute(plan)
+
+    //then
+    val result = getResult(compiled, "c", "s", "mn", "mx")
+    result should equal(List(Map("c" -> 8, "s" -> 310, "mn" -> 0, "mx" -> 80)))
+  }
+
+  test("aggregation without grouping keys of no rows") { // MATCH (a:T3)<-[r:R1]-(b) RETURN count(b.value) AS c, sum(b.value) AS s, min(b.value) AS mn, collect(b.value) AS l
+    //given
+    val plan = ProduceResult(List("c", "s", "mn", "l"),
+      Aggregation(
+        Expand(NodeByLabelScan(IdName("a"), lblName("T3"), Set.empty)(solved), IdName("a"),
+               SemanticDirection.INCOMING, Seq(RelTypeName("R1")(pos)), IdName("b"), IdName("r"), ExpandAll)(solved),
+        Map.empty, Map(
+          "c" -> aggregate("count", prop("b", "value")),
+          "s" -> aggregate("sum", prop("b", "value")),
+          "mn" -> aggregate("min", prop("b", "value")),
+          "l" -> aggregate("collect", prop("b", "value"))))(solved))
+
+    //when
+    val compiled = compileAndExecute(plan)
+
+    //then
+    val result = getResult(compiled, "c", "s", "mn", "l")
+    result should equal(List(Map("c" -> 0, "s" -> 0, "mn" -> null, "l" -> Seq.empty)))
+  }
+
+  test("sort on nodes fails like the interpreted runtime") { // MATCH (a) RETURN a ORDER BY a
+    //given
+    val plan = ProduceResult(List("a"), Sort(AllNodesScan(IdName("a"), Set.empty)(solved), Seq(Ascending(IdName("a"))))(solved))
+
+    //when
+    val compiled = compileAndExecute(plan)
+
+    //then
+    intercept[IncomparableValuesException](getResult(compiled, "a"))
+  }
+
   test("project literal") {
     val plan = ProduceResult(List("a"), Projection(SingleRow()(solved), Map("a" -> SignedDecimalIntegerLiteral("1")(pos)))(solved))
     val compiled = compileAndExecute(plan)
@@ -888,6 +1134,21 @@ class CodeGeneratorTest extends CypherFunSuite with LogicalPlanningTestSupport {
     result.toSet should equal(Set(Map(name -> 1)))
   }
 
+  private def countIncomingRelationships =
+    Aggregation(
+      Expand(AllNodesScan(IdName("a"), Set.empty)(solved), IdName("a"),
+             SemanticDirection.OUTGOING, Seq.empty, IdName("b"), IdName("r"), ExpandAll)(solved),
+      Map("b" -> varFor("b")), Map("c" -> CountStar()(pos)))(solved)
+
+  private def aggregateIncomingValues(function: String) =
+    Aggregation(
+      Expand(AllNodesScan(IdName("a"), Set.empty)(solved), IdName("a"),
+             SemanticDirection.OUTGOING, Seq.empty, IdName("b"), IdName("r"), ExpandAll)(solved),
+      Map("b" -> varFor("b")), Map("c" -> aggregate(function, prop("a", "value"))))(solved)
+
+  private def aggregate(function: String, argument: Expression) =
+    FunctionInvocation(FunctionName(function)(pos), argument)(pos)
+
   private def compile(plan: LogicalPlan) = {
     generator.generate(plan, newMockedPlanContext, semanticTable, CostBasedPlannerName.default)
   }
@@ -910,6 +1171,7 @@ class CodeGeneratorTest extends CypherFunSuite with LogicalPlanningTestSupport {
    */
   private val labelTokens = Map("T1" -> 1, "T2" -> 2, "T3" -> 3)
   private val relTokens = Map("R1" -> 1, "R2" -> 2, "R3" -> 3)
+  private val propertyTokens = Map("value" -> 1, "weight" -> 2)
 
   private val aNode = mockNode(0L, "a")
   private val bNode = mockNode(1L, "b")
@@ -933,6 +1195,10 @@ class CodeGeneratorTest extends CypherFunSuite with LogicalPlanningTestSupport {
   when(semanticTable.isNode(varFor("i"))).thenReturn(true)
   when(semanticTable.isRelationship(varFor("r1"))).thenReturn(true)
   when(semanticTable.isRelationship(varFor("r2"))).thenReturn(true)
+  when(semanticTable.seen(varFor("n"))).thenReturn(true)
+  when(semanticTable.isNode(varFor("n"))).thenReturn(true)
+  when(semanticTable.isRelationship(varFor("x"))).thenReturn(true)
+  when(semanticTable.resolvedPropertyKeyNames).thenReturn(mutable.Map.empty[String, PropertyKeyId])
 
   private val allNodes = Seq(aNode, bNode, cNode, dNode, eNode, fNode, gNode, hNode, iNode)
   private val nodesForLabel = Map("T1" -> Seq(aNode, bNode, cNode), "T2" -> Seq(fNode, gNode), "T3" -> Seq(hNode, iNode))
@@ -1015,16 +1281,33 @@ class CodeGeneratorTest extends CypherFunSuite with LogicalPlanningTestSupport {
       visitor.visit(relId, -1, rel.from.getId, rel.to.getId)
     }
   })
+  when(ro.propertyKeyGetForName(anyString())).thenAnswer(new Answer[Int] {
+    override def answer(invocationOnMock: InvocationOnMock): Int = {
+      val propertyKey = invocationOnMock.getArguments.apply(0).asInstanceOf[String]
+      propertyTokens(propertyKey)
+    }
+  })
+  // every node has a value of ten times its id, except for f which has none
+  when(ro.nodeGetProperty(anyLong(), anyInt())).thenAnswer(new Answer[AnyRef] {
+    override def answer(invocationOnMock: InvocationOnMock): AnyRef = {
+      val nodeId = invocationOnMock.getArguments.apply(0).asInstanceOf[Long]
+      if (nodeId == fNode.getId) null else Long.box(nodeId * 10)
+    }
+  })
+  // every relationship has a weight equal to its id
+  when(ro.relationshipGetProperty(anyLong(), anyInt())).thenAnswer(new Answer[AnyRef] {
+    override def answer(invocationOnMock: InvocationOnMock): AnyRef =
+      Long.box(invocationOnMock.getArguments.apply(0).asInstanceOf[Long])
+  })
   when(ro.nodeGetDegree(anyLong(), any())).thenReturn(1)
   when(ro.nodeGetDegree(anyLong(), any(), anyInt())).thenReturn(1)
   when(ro.nodeHasLabel(anyLong(), anyInt())).thenAnswer(new Answer[Boolean] {
     override def answer(invocationOnMock: InvocationOnMock) = {
       val nodeId = invocationOnMock.getArguments.apply(0).asInstanceOf[Long]
       val labelId = invocationOnMock.getArguments.apply(1).asInstanceOf[Int]
-      val label = labelTokens.map {
-        case (labelName, t) if t == labelId => Some(labelName)
-        case _ => None
-      }.head
+      val label = labelTokens.collectFirst {
+        case (labelName, t) if t == labelId => labelName
+      }
       label.exists(l => nodesForLabel.contains(l) && nodesForLabel(l).exists(_.getId == nodeId)
       )
     }
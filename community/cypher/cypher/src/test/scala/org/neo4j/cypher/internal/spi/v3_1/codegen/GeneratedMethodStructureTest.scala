@@ -110,6 +110,102 @@ class GeneratedMethodStructureTest extends CypherFunSuite {
            inner.allNodesScan("foo")
          }
        }),
+        Operation("count rows into a LongToCount table", m => {
+          m.declare("a", CodeGenType.primitiveNode)
+          m.allocateProbeTable("table", LongToCountTable)
+          m.updateProbeTableCount("table", LongToCountTable, Seq("a"))
+          m.iterateCountTable("table", LongToCountTable, Seq("b"), "count") { inner =>
+            inner.allNodesScan("foo")
+          }
+        }),
+        Operation("count rows into a LongsToCount table", m => {
+          m.declare("a", CodeGenType.primitiveNode)
+          m.declare("b", CodeGenType.primitiveRel)
+          m.allocateProbeTable("table", LongsToCountTable)
+          m.updateProbeTableCount("table", LongsToCountTable, Seq("a", "b"))
+          m.iterateCountTable("table", LongsToCountTable, Seq("c", "d"), "count") { inner =>
+            inner.allNodesScan("foo")
+          }
+        }),
+        Operation("count rows without grouping keys", m => {
+          m.allocateProbeTable("table", LongsToCountTable)
+          m.updateProbeTableCount("table", LongsToCountTable, Seq.empty)
+          m.iterateCountTable("table", LongsToCountTable, Seq.empty, "count") { inner =>
+            inner.allNodesScan("foo")
+          }
+        }),
+        Operation("aggregate rows without grouping keys", m => {
+          val table = AggregationTableType(0, Seq(CountStarAggregation, SumAggregation, CollectAggregation))
+          m.allocateProbeTable("table", table)
+          m.updateAggregationTable("table", table, Seq.empty,
+                                   Seq(Expression.constant(null), Expression.constant("a"), Expression.constant("b")))
+          m.iterateAggregationTable("table", table, Seq.empty, Seq("count", "sum", "collect")) { inner =>
+            inner.allNodesScan("foo")
+          }
+        }),
+        Operation("aggregate rows into groups of one key", m => {
+          val table = AggregationTableType(1, Seq(CountAggregation, MinAggregation))
+          m.declare("a", CodeGenType.primitiveNode)
+          m.allocateProbeTable("table", table)
+          m.updateAggregationTable("table", table, Seq("a"), Seq(Expression.constant("a"), Expression.constant("b")))
+          m.iterateAggregationTable("table", table, Seq("b"), Seq("count", "min")) { inner =>
+            inner.allNodesScan("foo")
+          }
+        }),
+        Operation("aggregate rows into groups of several keys", m => {
+          val table = AggregationTableType(2, Seq(MaxAggregation))
+          m.declare("a", CodeGenType.primitiveNode)
+          m.declare("b", CodeGenType.primitiveRel)
+          m.allocateProbeTable("table", table)
+          m.updateAggregationTable("table", table, Seq("a", "b"), Seq(Expression.constant("a")))
+          m.iterateAggregationTable("table", table, Seq("c", "d"), Seq("max")) { inner =>
+            inner.allNodesScan("foo")
+          }
+        }),
+        Operation("sort rows on a node", m => {
+          val table = SortTableType(Seq(CodeGenType.primitiveNode, CodeGenType.Any), Seq(SortKey(0, ascending = true)))
+          m.declare("a", CodeGenType.primitiveNode)
+          m.declare("b", CodeGenType.Any)
+          m.allocateSortTable("table", table, None)
+          m.addToSortTable("table", table, Seq("a", "b"))
+          m.iterateSortTable("table", table, Seq("c", "d")) { inner =>
+            inner.allNodesScan("foo")
+          }
+        }),
+        Operation("sort rows in a sort table", m => {
+          val table = SortTableType(Seq(CodeGenType.primitiveNode, CodeGenType.Any), Seq(SortKey(1, ascending = false)))
+          m.declare("a", CodeGenType.primitiveNode)
+          m.declare("b", CodeGenType.Any)
+          m.allocateSortTable("table", table, None)
+          m.addToSortTable("table", table, Seq("a", "b"))
+          m.iterateSortTable("table", table, Seq("c", "d")) { inner =>
+            inner.allNodesScan("foo")
+          }
+        }),
+        Operation("keep the top rows in a sort table", m => {
+          val table = SortTableType(Seq(CodeGenType.primitiveInt, CodeGenType.primitiveFloat),
+                                    Seq(SortKey(0, ascending = true), SortKey(1, ascending = false)))
+          m.declare("a", CodeGenType.primitiveInt)
+          m.declare("b", CodeGenType.primitiveFloat)
+          m.allocateSortTable("table", table, Some(Expression.constant(java.lang.Long.valueOf(3))))
+          m.addToSortTable("table", table, Seq("a", "b"))
+          m.iterateSortTable("table", table, Seq("c", "d")) { inner =>
+            inner.allNodesScan("foo")
+          }
+        }),
+        Operation("skip rows using a counter", m => {
+          m.declareCounter("counter", Expression.constant(java.lang.Long.valueOf(3)))
+          m.allNodesScan("nodeIter")
+          m.whileLoop(m.hasNextNode("nodeIter")) { body =>
+            body.nextNode("node", "nodeIter")
+            body.ifNotStatement(body.counterGreaterThanZero("counter")) { inner =>
+              inner.createRelExtractor("r")
+            }
+            body.ifStatement(body.counterGreaterThanZero("counter")) { inner =>
+              inner.decreaseCounter("counter")
+            }
+          }
+        }),
         Operation("Method invocation", m => {
           m.invokeMethod(LongToCountTable, "v1", "inner") { inner => {
             inner.allocateProbeTable("v1", LongToCountTable)
@@ -199,6 +295,42 @@ class GeneratedMethodStructureTest extends CypherFunSuite {
         }
       }
     }),
+    Operation("var length paths for node", (m) => {
+      m.declare("node", CodeGenType.primitiveNode)
+      m.lookupRelationshipTypeId("a", "A")
+      m.nodeGetVarLengthPaths("paths", "node", SemanticDirection.OUTGOING, Seq("a"), 1, Some(3), reversed = false,
+                              toNodeVar = None, filterNodes = false, filterRelationships = false)
+      m.whileLoop(m.hasNextPath("paths")) { body =>
+        body.nextPath("to", "paths", "rels")
+      }
+    }),
+    Operation("unbounded var length paths of any type", (m) => {
+      m.declare("node", CodeGenType.primitiveNode)
+      m.nodeGetVarLengthPaths("paths", "node", SemanticDirection.BOTH, Seq.empty, 0, None, reversed = true,
+                              toNodeVar = None, filterNodes = false, filterRelationships = false)
+      m.whileLoop(m.hasNextPath("paths")) { body =>
+        body.nextPath("to", "paths", "rels")
+      }
+    }),
+    Operation("filtered var length paths into a bound node", (m) => {
+      m.declare("node", CodeGenType.primitiveNode)
+      m.declare("end", CodeGenType.primitiveNode)
+      m.nodeGetVarLengthPaths("paths", "node", SemanticDirection.OUTGOING, Seq.empty, 1, Some(3), reversed = false,
+                              toNodeVar = Some("end"), filterNodes = true, filterRelationships = true)
+      m.whileLoop(m.hasNextPath("paths")) { body =>
+        body.ifStatement(body.pathNodeCandidate("paths")) { inner =>
+          inner.nextPathCandidate("candidateNode", "paths")
+          inner.decidePathCandidate("paths", inner.andExpression(Expression.constant(true), Expression.constant(false)))
+        }
+        body.ifStatement(body.pathRelationshipCandidate("paths")) { inner =>
+          inner.nextPathCandidate("candidateRel", "paths")
+          inner.decidePathCandidate("paths", Expression.constant(true))
+        }
+        body.ifStatement(body.pathReady("paths")) { inner =>
+          inner.nextPath("to", "paths", "rels")
+        }
+      }
+    }),
     Operation("all node scan", _.allNodesScan("foo"))
   )
 
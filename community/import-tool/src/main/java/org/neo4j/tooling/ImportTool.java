@@ -58,6 +58,7 @@ import org.neo4j.kernel.impl.util.Validators;
 import org.neo4j.kernel.internal.Version;
 import org.neo4j.kernel.lifecycle.LifeSupport;
 import org.neo4j.unsafe.impl.batchimport.BatchImporter;
+import org.neo4j.unsafe.impl.batchimport.IndexDeclaration;
 import org.neo4j.unsafe.impl.batchimport.ParallelBatchImporter;
 import org.neo4j.unsafe.impl.batchimport.cache.idmapping.string.DuplicateInputIdException;
 import org.neo4j.unsafe.impl.batchimport.input.Collector;
@@ -104,7 +105,8 @@ public class ImportTool
     {
         STORE_DIR( "into", null,
                 "<store-dir>",
-                "Database directory to import into. " + "Must not contain existing database." ),
+                "Database directory to import into. " + "Must not contain existing database, unless "
+                        + "importing incrementally." ),
         NODE_DATA( "nodes", null,
                 "[:Label1:Label2] \"<file1>" + MULTI_FILE_DELIMITER + "<file2>" + MULTI_FILE_DELIMITER + "...\"",
                 "Node CSV header and data. Multiple files will be logically seen as one big file "
@@ -208,7 +210,24 @@ public class ImportTool
                         + GraphDatabaseSettings.array_block_size.name() ),
         PAGE_SIZE( "page-size", Format.bytes( org.neo4j.unsafe.impl.batchimport.Configuration.DEFAULT.pageSize() ),
                 "<page size in bytes",
-                "Page size in bytes, or e.g. 4M or 8k" );
+                "Page size in bytes, or e.g. 4M or 8k" ),
+        INCREMENTAL( "incremental", Boolean.FALSE,
+                "<true/false>",
+                "(advanced) Whether or not to append the data to an existing database. The database must have "
+                        + "been cleanly shut down and must not have any indexes or constraints. Relationships can "
+                        + "refer to nodes of earlier imports by their input ids if those imports were done with "
+                        + "--persist-id-mapping. The database is left as it is if the import fails, and "
+                        + "is then likely to be inconsistent, so make sure to have a backup of it." ),
+        PERSIST_ID_MAPPING( "persist-id-mapping", Boolean.FALSE,
+                "<true/false>",
+                "(advanced) Whether or not to keep the mapping from input ids to node ids in the database "
+                        + "directory, so that later incremental imports can refer to the imported nodes by their "
+                        + "input ids. Only applies to input ids which are not actual node ids." ),
+        INDEX( "index", null,
+                "<Label:propertyKey>",
+                "(advanced) Schema index to create and populate as part of the import, instead of having the "
+                        + "database populate it after the import. Can be specified multiple times. "
+                        + "Can not be combined with --incremental." );
 
         private final String key;
         private final Object defaultValue;
@@ -330,7 +349,8 @@ public class ImportTool
         Input input = null;
         int badTolerance;
         Charset inputEncoding;
-        boolean skipBadRelationships, skipDuplicateNodes, ignoreExtraColumns;
+        boolean skipBadRelationships, skipDuplicateNodes, ignoreExtraColumns, incremental, persistIdMapping;
+        Collection<IndexDeclaration> indexes;
         Config dbConfig;
         OutputStream badOutput = null;
         int pageSize = UNSPECIFIED;
@@ -339,8 +359,19 @@ public class ImportTool
         boolean success = false;
         try
         {
+            incremental = args.getBoolean( Options.INCREMENTAL.key(),
+                    (Boolean)Options.INCREMENTAL.defaultValue(), true );
+            persistIdMapping = args.getBoolean( Options.PERSIST_ID_MAPPING.key(),
+                    (Boolean)Options.PERSIST_ID_MAPPING.defaultValue(), true );
+            indexes = args.interpretOptions( Options.INDEX.key(), Converters.<IndexDeclaration>optional(),
+                    TO_INDEX_DECLARATION );
+            if ( incremental && !indexes.isEmpty() )
+            {
+                throw new IllegalArgumentException( "Indexes can not be populated by an incremental import" );
+            }
             storeDir = args.interpretOption( Options.STORE_DIR.key(), Converters.<File>mandatory(),
-                    Converters.toFile(), Validators.DIRECTORY_IS_WRITABLE, Validators.CONTAINS_NO_EXISTING_DATABASE );
+                    Converters.toFile(), Validators.DIRECTORY_IS_WRITABLE,
+                    incremental ? Validators.<File>emptyValidator() : Validators.CONTAINS_NO_EXISTING_DATABASE );
 
             File badFile = new File( storeDir, BAD_FILE_NAME );
             badOutput = new BufferedOutputStream( fs.openAsOutputStream( badFile, false ) );
@@ -371,7 +402,8 @@ public class ImportTool
                 pageSize = toIntExact( parseLongWithUnit( args.get( Options.PAGE_SIZE.key(),
                         String.valueOf( UNSPECIFIED ) ) ) );
             }
-            configuration = importConfiguration( processors, defaultSettingsSuitableForTests, dbConfig, pageSize );
+            configuration = importConfiguration( processors, defaultSettingsSuitableForTests, dbConfig, pageSize,
+                    persistIdMapping, indexes );
             input = new CsvInput( nodeData( inputEncoding, nodesFiles ), defaultFormatNodeFileHeader(),
                     relationshipData( inputEncoding, relationshipsFiles ), defaultFormatRelationshipFileHeader(),
                     idType, csvConfiguration( args, defaultSettingsSuitableForTests ), badCollector,
@@ -399,7 +431,7 @@ public class ImportTool
         LogService logService = life.add( StoreLogService.inLogsDirectory( fs, storeDir ) );
 
         life.start();
-        BatchImporter importer = new ParallelBatchImporter( storeDir,
+        ParallelBatchImporter importer = new ParallelBatchImporter( storeDir,
                 configuration,
                 logService,
                 ExecutionMonitors.defaultVisible(),
@@ -408,7 +440,14 @@ public class ImportTool
         success = false;
         try
         {
-            importer.doImport( input );
+            if ( incremental )
+            {
+                importer.doIncrementalImport( input );
+            }
+            else
+            {
+                importer.doImport( input );
+            }
             success = true;
         }
         catch ( Exception e )
@@ -431,7 +470,12 @@ public class ImportTool
             }
 
             life.shutdown();
-            if ( !success )
+            if ( !success && incremental )
+            {
+                System.err.println( "The incremental import failed, the database in " + storeDir +
+                        " has been left as it is and is likely to be inconsistent" );
+            }
+            else if ( !success )
             {
                 try
                 {
@@ -517,7 +561,8 @@ public class ImportTool
     }
 
     private static org.neo4j.unsafe.impl.batchimport.Configuration importConfiguration( final Number processors,
-            final boolean defaultSettingsSuitableForTests, final Config dbConfig, int pageSize )
+            final boolean defaultSettingsSuitableForTests, final Config dbConfig, int pageSize,
+            boolean persistIdMapping, Collection<IndexDeclaration> indexes )
     {
         return new org.neo4j.unsafe.impl.batchimport.Configuration.Default()
         {
@@ -545,6 +590,18 @@ public class ImportTool
                 // Let's call super if not specifically configured, so that proper calculations can be made
                 return pageSize == UNSPECIFIED ? super.pageSize() : pageSize;
             }
+
+            @Override
+            public boolean persistIdMapping()
+            {
+                return persistIdMapping;
+            }
+
+            @Override
+            public Collection<IndexDeclaration> indexes()
+            {
+                return indexes;
+            }
         };
     }
 
@@ -769,6 +826,16 @@ public class ImportTool
 
     private static final Function<String,IdType> TO_ID_TYPE = from -> IdType.valueOf( from.toUpperCase() );
 
+    private static final Function<String,IndexDeclaration> TO_INDEX_DECLARATION = from ->
+    {
+        int separator = from.indexOf( ':' );
+        if ( separator <= 0 || separator == from.length() - 1 )
+        {
+            throw new IllegalArgumentException( "Invalid index '" + from + "', expected <Label:propertyKey>" );
+        }
+        return new IndexDeclaration( from.substring( 0, separator ), from.substring( separator + 1 ) );
+    };
+
     private static final Function<String,Character> CHARACTER_CONVERTER = new CharacterConverter();
 
     static final Validator<File[]> FILES_EXISTS = files -> {
@@ -47,6 +47,8 @@ import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.ResourceIterator;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.graphdb.factory.GraphDatabaseSettings;
+import org.neo4j.graphdb.schema.IndexDefinition;
+import org.neo4j.graphdb.schema.Schema;
 import org.neo4j.helpers.collection.FilteringIterator;
 import org.neo4j.helpers.collection.Iterables;
 import org.neo4j.helpers.collection.Iterators;
@@ -73,6 +75,7 @@ import static org.hamcrest.CoreMatchers.containsString;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -877,6 +880,72 @@ public class ImportToolTest
         }
     }
 
+    @Test
+    public void shouldPopulateDeclaredIndexesDuringImport() throws Exception
+    {
+        // GIVEN
+        File nodeData = file( fileName( "nodes.csv" ) );
+        try ( PrintStream writer = writer( nodeData, Charset.defaultCharset() ) )
+        {
+            writer.println( ":ID,name,:LABEL" );
+            writer.println( "a,Alice,Person" );
+            writer.println( "b,Bob,Person" );
+            writer.println( "c,Carol,Robot" );
+            writer.println( "a,Mallory,Person" );
+        }
+
+        // WHEN
+        importTool(
+                "--into", dbRule.getStoreDirAbsolutePath(),
+                "--skip-duplicate-nodes",
+                "--index", "Person:name",
+                "--nodes", nodeData.getAbsolutePath() );
+
+        // THEN
+        GraphDatabaseService db = dbRule.getGraphDatabaseAPI();
+        try ( Transaction tx = db.beginTx() )
+        {
+            IndexDefinition index = Iterables.single( db.schema().getIndexes() );
+            assertEquals( "Person", index.getLabel().name() );
+            assertEquals( "name", Iterables.single( index.getPropertyKeys() ) );
+            assertEquals( Schema.IndexState.ONLINE, db.schema().getIndexState( index ) );
+
+            assertEquals( "a", db.findNode( label( "Person" ), "name", "Alice" ).getProperty( "id" ) );
+            assertEquals( "b", db.findNode( label( "Person" ), "name", "Bob" ).getProperty( "id" ) );
+            assertNull( db.findNode( label( "Person" ), "name", "Carol" ) );
+            assertNull( db.findNode( label( "Person" ), "name", "Mallory" ) );
+            tx.success();
+        }
+        finally
+        {
+            db.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldNotAllowIndexesInIncrementalImport() throws Exception
+    {
+        // GIVEN
+        List<String> nodeIds = nodeIds();
+        Configuration config = Configuration.COMMAS;
+
+        // WHEN
+        try
+        {
+            importTool(
+                    "--into", dbRule.getStoreDirAbsolutePath(),
+                    "--incremental",
+                    "--index", "Person:name",
+                    "--nodes", nodeData( true, config, nodeIds, TRUE ).getAbsolutePath() );
+            fail( "Should have failed" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            // THEN
+            assertThat( e.getMessage(), containsString( "incremental" ) );
+        }
+    }
+
     @Test
     public void shouldLogRelationshipsReferringToMissingNode() throws Exception
     {
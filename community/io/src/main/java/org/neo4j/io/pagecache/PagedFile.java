@@ -25,6 +25,8 @@ import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.nio.file.OpenOption;
 
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+
 /**
  * The representation of a file that has been mapped into the associated page cache.
  */
@@ -58,17 +60,29 @@ public interface PagedFile extends AutoCloseable
     int PF_NO_GROW = 1 << 2;
     /**
      * Read-ahead hint for sequential forward scanning.
+     * <p>
+     * When the cursor observes that pages are pinned in sequential order, starting from the initial page, it will
+     * fault in a window of the following pages with a single vectored read. The size of the window adapts to how
+     * much of the previous window the cursor ended up using.
      */
-    int PF_READ_AHEAD = 1 << 3; // TBD
+    int PF_READ_AHEAD = 1 << 3;
     /**
-     * Do not load in the page if it is not loaded already. Only useful with
-     * exclusive locking when you want to overwrite the whole page anyway.
+     * Do not load in the page if it is not loaded already.
+     * <p>
+     * The {@link PageCursor#next()} and {@link PageCursor#next(long)} methods will still return {@code true} for
+     * pages that are within the range of the file, but if the page is not in memory, then the cursor will not be
+     * bound to any page, and {@link PageCursor#getCurrentPageId()} will return
+     * {@link PageCursor#UNBOUND_PAGE_ID}. Accesses to an unbound cursor will raise the out-of-bounds flag.
      */
-    int PF_NO_FAULT = 1 << 4; // TBD
+    int PF_NO_FAULT = 1 << 4;
     /**
      * Do not update page access statistics.
+     * <p>
+     * Pages that are pinned, or faulted in, by such a cursor will not count as recently used, and will thus be among
+     * the first to be evicted, unless other cursors access them. This is useful for large scans, that would
+     * otherwise push the hot working set out of the page cache.
      */
-    int PF_TRANSIENT = 1 << 5; // TBD
+    int PF_TRANSIENT = 1 << 5;
 
     /**
      * Initiate an IO interaction with the contents of the paged file.
@@ -153,6 +167,33 @@ public interface PagedFile extends AutoCloseable
      */
     long getLastPageId() throws IOException;
 
+    /**
+     * Get the ids of the pages that have been pinned with {@link #PF_SHARED_WRITE_LOCK} since the given
+     * {@link System#nanoTime()}, in ascending order.
+     * <p>
+     * The modified pages are tracked for as long as the file stays mapped, in epochs started by
+     * {@link #startModifiedPagesEpoch()}. The result includes all pages pinned since the start of the newest epoch
+     * that started at or before the given time, so it may include pages that were pinned somewhat before it. If the
+     * time is before the file was mapped, at {@link #mappedNanoTime()}, the result is all pages pinned since then.
+     * Pages that are pinned concurrently with the iteration may or may not be included.
+     */
+    PrimitiveLongIterator modifiedPagesSince( long nanoTime );
+
+    /**
+     * Start a new epoch of {@link #modifiedPagesSince(long) modified page} tracking, so that the pages pinned since
+     * any later time no longer include the pages that were pinned before now.
+     *
+     * @return the value of {@link System#nanoTime()} at which the epoch started. Any page that is pinned for writing
+     * after that time is included in the modified pages since that time.
+     */
+    long startModifiedPagesEpoch();
+
+    /**
+     * Get the value of {@link System#nanoTime()} at the time this file was mapped, which is when the tracking of
+     * {@link #modifiedPagesSince(long) modified pages} started.
+     */
+    long mappedNanoTime();
+
     /**
      * Release a handle to a paged file.
      * <p>
@@ -350,9 +350,9 @@ public class SingleFilePageSwapper implements PageSwapper
                 startFilePageId, channel, fileOffset, srcs );
         if ( bytesRead == -1 )
         {
-            for ( Page page : pages )
+            for ( int i = 0; i < length; i++ )
             {
-                UnsafeUtil.setMemory( page.address(), filePageSize, MuninnPageCache.ZERO_BYTE );
+                UnsafeUtil.setMemory( pages[arrayOffset + i].address(), filePageSize, MuninnPageCache.ZERO_BYTE );
             }
             return 0;
         }
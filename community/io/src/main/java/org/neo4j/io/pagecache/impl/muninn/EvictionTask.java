@@ -20,22 +20,33 @@
 package org.neo4j.io.pagecache.impl.muninn;
 
 /**
- * This Runnable runs the eviction algorithm. Only one is expected for each page cache.
+ * This Runnable runs the eviction algorithm for a partition of the pages. Only one is expected for each partition.
  *
  * Interrupting the thread running this runnable, will be interpreted as a shutdown signal.
  *
- * @see MuninnPageCache#continuouslySweepPages()
+ * @see MuninnPageCache#continuouslySweepPages(PagePartition)
  */
 final class EvictionTask extends BackgroundTask
 {
-    public EvictionTask( MuninnPageCache pageCache )
+    private final PagePartition partition;
+    private final boolean partitioned;
+
+    public EvictionTask( MuninnPageCache pageCache, PagePartition partition, boolean partitioned )
     {
         super( pageCache );
+        this.partition = partition;
+        this.partitioned = partitioned;
+    }
+
+    @Override
+    protected String taskName()
+    {
+        return partitioned ? super.taskName() + "-" + partition.index : super.taskName();
     }
 
     @Override
     protected void run( MuninnPageCache pageCache )
     {
-        pageCache.continuouslySweepPages();
+        pageCache.continuouslySweepPages( partition );
     }
 }
@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.impl.muninn;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.neo4j.collection.primitive.PrimitiveLongCollections.PrimitiveLongBaseIterator;
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+
+/**
+ * Concurrent bitmaps of the ids of the pages in a file, that have been pinned for writing.
+ *
+ * The pages are tracked in epochs. Each epoch has its own bitmap, and the pages are only marked in the newest one.
+ * The pages pinned since a given time are the union of the bitmaps of the newest epoch that started at or before
+ * that time, and all the epochs after it. A new epoch is started for every copy of the store that is made, so
+ * the pages sent to bring such a copy up to date don't include the pages that were modified before it.
+ * Only a few epochs are kept. When there are too many, the two oldest are merged into one, which makes the pages
+ * modified since then a superset of what they would otherwise be.
+ *
+ * The bitmaps are split into chunks that are allocated as the file grows, so files with large gaps don't cost
+ * anything for the gaps. Pages that are already marked are only read, not written, so hot pages don't cause any
+ * contention on the cache lines of the bitmap.
+ */
+final class ModifiedPages
+{
+    private static final int chunkSizePower = 12;
+    private static final int chunkSize = 1 << chunkSizePower;
+    private static final int pagesPerChunkPower = chunkSizePower + 6;
+    private static final int maxEpochs = 8;
+
+    // Oldest first. Only the last epoch is marked, except by racing writers that may still mark the one before it.
+    private volatile Epoch[] epochs;
+
+    ModifiedPages( long startNanoTime )
+    {
+        epochs = new Epoch[] {new Epoch( startNanoTime )};
+    }
+
+    void mark( long filePageId )
+    {
+        Epoch[] epochs = this.epochs;
+        epochs[epochs.length - 1].mark( filePageId );
+    }
+
+    /**
+     * Start a new epoch. The start time is taken after the new epoch is visible to writers, so that any page that
+     * is pinned for writing after that time is marked in the new epoch, or a later one.
+     *
+     * @return the {@link System#nanoTime()} at which the new epoch started.
+     */
+    synchronized long startEpoch()
+    {
+        Epoch[] epochs = this.epochs;
+        Epoch[] grown;
+        if ( epochs.length == maxEpochs )
+        {
+            grown = new Epoch[maxEpochs];
+            grown[0] = epochs[0].union( epochs[1] );
+            System.arraycopy( epochs, 2, grown, 1, maxEpochs - 2 );
+        }
+        else
+        {
+            grown = Arrays.copyOf( epochs, epochs.length + 1 );
+        }
+        Epoch epoch = new Epoch( 0 );
+        grown[grown.length - 1] = epoch;
+        this.epochs = grown;
+        epoch.startNanoTime = System.nanoTime();
+        return epoch.startNanoTime;
+    }
+
+    /**
+     * @return the ids of the pages that have been pinned for writing since the given time, in ascending order, or
+     * since the first epoch started if the time is before that.
+     */
+    synchronized PrimitiveLongIterator since( long nanoTime )
+    {
+        Epoch[] epochs = this.epochs;
+        int first = epochs.length - 1;
+        while ( first > 0 && epochs[first].startNanoTime - nanoTime > 0 )
+        {
+            first--;
+        }
+        AtomicLongArray[][] bitmaps = new AtomicLongArray[epochs.length - first][];
+        for ( int i = 0; i < bitmaps.length; i++ )
+        {
+            bitmaps[i] = epochs[first + i].chunks;
+        }
+        return iterator( bitmaps );
+    }
+
+    private static PrimitiveLongIterator iterator( AtomicLongArray[][] bitmaps )
+    {
+        int maxChunks = 0;
+        for ( AtomicLongArray[] bitmap : bitmaps )
+        {
+            maxChunks = Math.max( maxChunks, bitmap.length );
+        }
+        int chunkCount = maxChunks;
+        return new PrimitiveLongBaseIterator()
+        {
+            private long filePageId;
+
+            @Override
+            protected boolean fetchNext()
+            {
+                while ( filePageId >>> pagesPerChunkPower < chunkCount )
+                {
+                    int chunkId = (int) (filePageId >>> pagesPerChunkPower);
+                    int index = (int) (filePageId >>> 6) & (chunkSize - 1);
+                    boolean chunkAllocated = false;
+                    long word = 0;
+                    for ( AtomicLongArray[] bitmap : bitmaps )
+                    {
+                        if ( chunkId < bitmap.length && bitmap[chunkId] != null )
+                        {
+                            chunkAllocated = true;
+                            word |= bitmap[chunkId].get( index );
+                        }
+                    }
+                    if ( !chunkAllocated )
+                    {
+                        filePageId = ((long) chunkId + 1) << pagesPerChunkPower;
+                        continue;
+                    }
+                    word &= -1L << (filePageId & 63);
+                    if ( word == 0 )
+                    {
+                        filePageId = ((filePageId >>> 6) + 1) << 6;
+                        continue;
+                    }
+                    long pageId = (filePageId & ~63L) + Long.numberOfTrailingZeros( word );
+                    filePageId = pageId + 1;
+                    return next( pageId );
+                }
+                return false;
+            }
+        };
+    }
+
+    private static final class Epoch
+    {
+        // Guarded by the monitor lock on ModifiedPages
+        private long startNanoTime;
+        private volatile AtomicLongArray[] chunks = new AtomicLongArray[0];
+
+        Epoch( long startNanoTime )
+        {
+            this.startNanoTime = startNanoTime;
+        }
+
+        void mark( long filePageId )
+        {
+            AtomicLongArray chunk = chunk( (int) (filePageId >>> pagesPerChunkPower) );
+            int index = (int) (filePageId >>> 6) & (chunkSize - 1);
+            long bit = 1L << (filePageId & 63);
+            long word;
+            do
+            {
+                word = chunk.get( index );
+            }
+            while ( (word & bit) == 0 && !chunk.compareAndSet( index, word, word | bit ) );
+        }
+
+        private AtomicLongArray chunk( int chunkId )
+        {
+            AtomicLongArray[] chunks = this.chunks;
+            if ( chunkId < chunks.length && chunks[chunkId] != null )
+            {
+                return chunks[chunkId];
+            }
+            return allocateChunk( chunkId );
+        }
+
+        private synchronized AtomicLongArray allocateChunk( int chunkId )
+        {
+            AtomicLongArray[] chunks = this.chunks;
+            if ( chunkId >= chunks.length )
+            {
+                AtomicLongArray[] grown = new AtomicLongArray[chunkId + 1];
+                System.arraycopy( chunks, 0, grown, 0, chunks.length );
+                chunks = grown;
+            }
+            if ( chunks[chunkId] == null )
+            {
+                chunks[chunkId] = new AtomicLongArray( chunkSize );
+            }
+            this.chunks = chunks;
+            return chunks[chunkId];
+        }
+
+        /**
+         * Merge this epoch with the one that follows it. Neither of them may be marked any more.
+         */
+        Epoch union( Epoch next )
+        {
+            Epoch union = new Epoch( startNanoTime );
+            AtomicLongArray[][] bitmaps = {chunks, next.chunks};
+            for ( AtomicLongArray[] bitmap : bitmaps )
+            {
+                for ( int chunkId = 0; chunkId < bitmap.length; chunkId++ )
+                {
+                    if ( bitmap[chunkId] != null )
+                    {
+                        AtomicLongArray target = union.chunk( chunkId );
+                        for ( int index = 0; index < chunkSize; index++ )
+                        {
+                            target.set( index, target.get( index ) | bitmap[chunkId].get( index ) );
+                        }
+                    }
+                }
+            }
+            return union;
+        }
+    }
+}
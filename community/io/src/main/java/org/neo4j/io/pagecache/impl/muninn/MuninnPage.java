@@ -20,6 +20,7 @@
 package org.neo4j.io.pagecache.impl.muninn;
 
 import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.neo4j.io.pagecache.Page;
 import org.neo4j.io.pagecache.PageCursor;
@@ -36,10 +37,19 @@ import static java.lang.String.format;
 final class MuninnPage extends SequenceLock implements Page
 {
     private static final long usageStampOffset = UnsafeUtil.getFieldOffset( MuninnPage.class, "usageStamp" );
+    private static final long cachePageHeaderOffset =
+            UnsafeUtil.getFieldOffset( MuninnPage.class, "cachePageHeader" );
+    private static final int DIRTY_FLAG = 0x80;
+    private static final int SIZE_EXPONENT_MASK = 0x7F;
 
-    // The sign bit is used as a dirty flag for the page.
-    // The other 7 bits are used as an exponent for computing the cache page size (as a power of two).
-    private byte cachePageHeader;
+    // The 0x80 bit is used as a dirty flag for the page.
+    // The low 7 bits are used as an exponent for computing the cache page size (as a power of two).
+    // The dirty flag is only ever changed with compare-and-swap, so the transitions between clean and dirty can be
+    // counted exactly in the dirty page counter of the page cache.
+    private volatile int cachePageHeader;
+
+    // Counts the dirty pages of the page cache, so the background flusher doesn't have to scan all the pages.
+    private final LongAdder dirtyPageCounter;
 
     // We keep this reference to prevent the MemoryManager from becoming
     // finalizable until all our pages are finalizable or collected.
@@ -60,10 +70,11 @@ final class MuninnPage extends SequenceLock implements Page
     private PageSwapper swapper;
     private long filePageId = PageCursor.UNBOUND_PAGE_ID;
 
-    public MuninnPage( int cachePageSize, MemoryManager memoryManager )
+    public MuninnPage( int cachePageSize, MemoryManager memoryManager, LongAdder dirtyPageCounter )
     {
-        this.cachePageHeader = (byte) (31 - Integer.numberOfLeadingZeros( cachePageSize ));
+        this.cachePageHeader = 31 - Integer.numberOfLeadingZeros( cachePageSize );
         this.memoryManager = memoryManager;
+        this.dirtyPageCounter = dirtyPageCounter;
         getCachePageId(); // initialize our identity hashCode
     }
 
@@ -75,7 +86,7 @@ final class MuninnPage extends SequenceLock implements Page
     @Override
     public int size()
     {
-        return 1 << (cachePageHeader & 0x7F);
+        return 1 << (cachePageHeader & SIZE_EXPONENT_MASK);
     }
 
     @Override
@@ -89,17 +100,37 @@ final class MuninnPage extends SequenceLock implements Page
      */
     boolean isDirty()
     {
-        return (cachePageHeader & ~0x7F) != 0;
+        return (cachePageHeader & DIRTY_FLAG) != 0;
     }
 
     public void markAsDirty()
     {
-        cachePageHeader |= ~0x7F;
+        int header;
+        do
+        {
+            header = cachePageHeader;
+            if ( (header & DIRTY_FLAG) != 0 )
+            {
+                return;
+            }
+        }
+        while ( !UnsafeUtil.compareAndSwapInt( this, cachePageHeaderOffset, header, header | DIRTY_FLAG ) );
+        dirtyPageCounter.increment();
     }
 
     public void markAsClean()
     {
-        cachePageHeader &= 0x7F;
+        int header;
+        do
+        {
+            header = cachePageHeader;
+            if ( (header & DIRTY_FLAG) == 0 )
+            {
+                return;
+            }
+        }
+        while ( !UnsafeUtil.compareAndSwapInt( this, cachePageHeaderOffset, header, header & ~DIRTY_FLAG ) );
+        dirtyPageCounter.decrement();
     }
 
     /** Increment the usage stamp to at most 4. */
@@ -171,15 +202,7 @@ final class MuninnPage extends SequenceLock implements Page
             long filePageId,
             PageFaultEvent faultEvent ) throws IOException
     {
-        if ( this.swapper != null || this.filePageId != PageCursor.UNBOUND_PAGE_ID )
-        {
-            String msg = format(
-                    "Cannot fault page {filePageId = %s, swapper = %s} into " +
-                    "cache page %s. Already bound to {filePageId = " +
-                    "%s, swapper = %s}.",
-                    filePageId, swapper, getCachePageId(), this.filePageId, this.swapper );
-            throw new IllegalStateException( msg );
-        }
+        assertUnbound( swapper, filePageId );
 
         // Note: It is important that we assign the filePageId before we swap
         // the page in. If the swapping fails, the page will be considered
@@ -195,6 +218,57 @@ final class MuninnPage extends SequenceLock implements Page
         this.swapper = swapper; // Page now considered isBoundTo( swapper, filePageId )
     }
 
+    /**
+     * Assign the file page binding of this page ahead of a vectored page fault through
+     * {@link #faultVectored(PageSwapper, long, MuninnPage[], int, PageFaultEvent)}.
+     * <p>
+     * Just like with {@link #fault(PageSwapper, long, PageFaultEvent)}, the page is considered loaded but unbound
+     * until the swapping-in has succeeded, so if the vectored fault never happens or fails, then the page will
+     * eventually be returned to the freelist by eviction.
+     * <p>
+     * NOTE: This method MUST be called while holding the exclusive page lock.
+     */
+    void prepareVectoredFault( PageSwapper swapper, long filePageId )
+    {
+        assertUnbound( swapper, filePageId );
+        this.filePageId = filePageId; // Page now considered isLoaded()
+    }
+
+    /**
+     * Swap in the contents of the given consecutive pages with a single vectored read. The pages must have been
+     * prepared with {@link #prepareVectoredFault(PageSwapper, long)}, for consecutive file page ids starting at the
+     * given {@code startFilePageId}.
+     * <p>
+     * NOTE: This method MUST be called while holding the exclusive page lock on all the given pages.
+     */
+    static void faultVectored(
+            PageSwapper swapper,
+            long startFilePageId,
+            MuninnPage[] pages,
+            int length,
+            PageFaultEvent faultEvent ) throws IOException
+    {
+        long bytesRead = swapper.read( startFilePageId, pages, 0, length );
+        faultEvent.addBytesRead( bytesRead );
+        for ( int i = 0; i < length; i++ )
+        {
+            pages[i].swapper = swapper; // Page now considered isBoundTo( swapper, filePageId )
+        }
+    }
+
+    private void assertUnbound( PageSwapper swapper, long filePageId )
+    {
+        if ( this.swapper != null || this.filePageId != PageCursor.UNBOUND_PAGE_ID )
+        {
+            String msg = format(
+                    "Cannot fault page {filePageId = %s, swapper = %s} into " +
+                    "cache page %s. Already bound to {filePageId = " +
+                    "%s, swapper = %s}.",
+                    filePageId, swapper, getCachePageId(), this.filePageId, this.swapper );
+            throw new IllegalStateException( msg );
+        }
+    }
+
     /**
      * NOTE: This method MUST be called while holding the page write lock.
      */
@@ -30,6 +30,7 @@ import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.LockSupport;
 
 import org.neo4j.io.pagecache.IOLimiter;
@@ -109,20 +110,33 @@ public class MuninnPageCache implements PageCache
     private static final int pagesToKeepFree = getInteger(
             MuninnPageCache.class, "pagesToKeepFree", 30 );
 
+    // The number of partitions to split the pages into. Each partition has its own freelist, clock arm and eviction
+    // thread. Zero means that the number of partitions is chosen based on the number of processors and pages.
+    private static final int evictionPartitions = getInteger(
+            MuninnPageCache.class, "evictionPartitions", 0 );
+
+    // When automatically choosing the number of partitions, each partition will have at least this many pages.
+    private static final int minPagesPerPartition = getInteger(
+            MuninnPageCache.class, "minPagesPerPartition", 16384 );
+
+    // When automatically choosing the number of partitions, there will be one partition for this many processors.
+    private static final int processorsPerPartition = getInteger(
+            MuninnPageCache.class, "processorsPerPartition", 4 );
+
     // This is how many times that, during cooperative eviction, we'll iterate through the entire set of pages looking
     // for a page to evict, before we give up and throw CacheLiveLockException. This MUST be greater than 1.
     private static final int cooperativeEvictionLiveLockThreshold = getInteger(
             MuninnPageCache.class, "cooperativeEvictionLiveLockThreshold", 100 );
 
+    // How often the background flusher wakes up to check if the number of dirty pages is above its target.
+    private static final int backgroundFlushIntervalMillis = getInteger(
+            MuninnPageCache.class, "backgroundFlushIntervalMillis", 100 );
+
     // This is a pre-allocated constant, so we can throw it without allocating any objects:
     @SuppressWarnings( "ThrowableInstanceNeverThrown" )
     private static final IOException oomException = new IOException(
             "OutOfMemoryError encountered in the page cache background eviction thread" );
 
-    // The field offset to unsafely access the freelist field.
-    private static final long freelistOffset =
-            UnsafeUtil.getFieldOffset( MuninnPageCache.class, "freelist" );
-
     // This is used as a poison-pill signal in the freelist, to inform any
     // page faulting thread that it is now no longer possible to queue up and
     // wait for more pages to be evicted, because the page cache has been shut
@@ -146,13 +160,13 @@ public class MuninnPageCache implements PageCache
     private final int pageCacheId;
     private final PageSwapperFactory swapperFactory;
     private final int cachePageSize;
-    private final int keepFree;
     private final PageCacheTracer tracer;
     private final MuninnPage[] pages;
     // All PageCursors are initialised with their pointers pointing to the victim page. This way, we can do branch-free
     // bounds checking of page accesses without fear of segfaulting newly allocated cursors.
     final long victimPage;
 
+    // Each partition has a freelist of the pages in that partition.
     // The freelist is a thread-safe linked-list of 2 types of objects. A link
     // can either be a MuninnPage or a FreePage.
     // Initially, most of the links are MuninnPages that are ready for the
@@ -165,21 +179,14 @@ public class MuninnPageCache implements PageCache
     // exhibit the ABA-problem. In other words, eviction will never add
     // MuninnPages to the freelist; it will only add free pages through a new
     // FreePage object.
-    @SuppressWarnings( "unused" ) // This field is accessed via Unsafe.
-    private volatile Object freelist;
+    // Page faulting threads grab pages from the freelist of their home
+    // partition, which is picked by their thread id, and only look at the
+    // freelists of the other partitions when their home partition has run dry.
+    private final PagePartition[] partitions;
 
     // Linked list of mappings - guarded by synchronized(this)
     private volatile FileMapping mappedFiles;
 
-    // The thread that runs the eviction algorithm. We unpark this when we've run out of
-    // free pages to grab.
-    private volatile Thread evictionThread;
-    // True if the eviction thread is currently parked, without someone having
-    // signalled it to wake up. This is used as a weak guard for unparking the
-    // eviction thread, because calling unpark too much (from many page
-    // faulting threads) can cause contention on the locks protecting that
-    // threads scheduling meta-data in the OS kernel.
-    private volatile boolean evictorParked;
     private volatile IOException evictorException;
 
     // Flag for when page cache is closed - writes guarded by synchronized(this), reads can be unsynchronized
@@ -191,11 +198,42 @@ public class MuninnPageCache implements PageCache
     // 'true' (the default) if we should print any exceptions we get when unmapping a file.
     private boolean printExceptionsOnClose;
 
+    // The percentage of the pages that the background flusher allows to be dirty, before it starts writing them out.
+    // 100 means that background flushing is disabled, which is the default.
+    private volatile int backgroundFlushDirtyRatio = 100;
+
+    // Throttles the writes of the background flusher, typically the same limiter as is used by checkpoints.
+    private volatile IOLimiter backgroundFlushLimiter = IOLimiter.unlimited();
+
+    // The number of dirty pages in the page cache, kept up to date by the pages when they are marked as dirty or clean.
+    private final LongAdder dirtyPageCounter = new LongAdder();
+
+    // The thread that runs the background flusher, if it is enabled.
+    private volatile Thread backgroundFlushThread;
+
+    // The index of the mapped file where the next background flush will start. Only accessed by the background
+    // flush thread.
+    private int backgroundFlushFileIndex;
+
     public MuninnPageCache(
             PageSwapperFactory swapperFactory,
             int maxPages,
             int cachePageSize,
             PageCacheTracer tracer )
+    {
+        this( swapperFactory, maxPages, cachePageSize, tracer, evictionPartitions );
+    }
+
+    /**
+     * Create a page cache with the given number of eviction partitions, or with an automatically chosen number of
+     * partitions if the given count is zero.
+     */
+    MuninnPageCache(
+            PageSwapperFactory swapperFactory,
+            int maxPages,
+            int cachePageSize,
+            PageCacheTracer tracer,
+            int partitionCount )
     {
         verifyHacks();
         verifyCachePageSizeIsPowerOfTwo( cachePageSize );
@@ -204,43 +242,67 @@ public class MuninnPageCache implements PageCache
         this.pageCacheId = pageCacheIdCounter.incrementAndGet();
         this.swapperFactory = swapperFactory;
         this.cachePageSize = cachePageSize;
-        this.keepFree = Math.min( pagesToKeepFree, maxPages / 2 );
         this.tracer = tracer;
         this.pages = new MuninnPage[maxPages];
+        this.partitions = createPartitions( maxPages, partitionCount );
         this.printExceptionsOnClose = true;
 
         long alignment = swapperFactory.getRequiredBufferAlignment();
         long expectedMaxMemory = ((long) maxPages) * cachePageSize; // cast to long prevents overflow
         MemoryManager memoryManager = new MemoryManager( expectedMaxMemory, alignment );
         this.victimPage = VictimPageReference.getVictimPage( cachePageSize );
-        Object pageList = null;
-        int pageIndex = maxPages;
-        while ( pageIndex --> 0 )
+        for ( PagePartition partition : partitions )
         {
-            MuninnPage page = new MuninnPage( cachePageSize, memoryManager );
-            page.tryExclusiveLock(); // All pages in the free-list are exclusively locked, and unlocked by page fault.
-            pages[pageIndex] = page;
-
-            if ( pageList == null )
-            {
-                FreePage freePage = new FreePage( page );
-                freePage.setNext( null );
-                pageList = freePage;
-            }
-            else if ( pageList instanceof FreePage
-                    && ((FreePage) pageList).count < keepFree )
-            {
-                FreePage freePage = new FreePage( page );
-                freePage.setNext( (FreePage) pageList );
-                pageList = freePage;
-            }
-            else
+            Object pageList = null;
+            int pageIndex = partition.endPageIndex;
+            while ( pageIndex --> partition.firstPageIndex )
             {
-                page.nextFree = pageList;
-                pageList = page;
+                MuninnPage page = new MuninnPage( cachePageSize, memoryManager, dirtyPageCounter );
+                page.tryExclusiveLock(); // All pages in the free-list are exclusively locked, and unlocked by fault.
+                pages[pageIndex] = page;
+
+                if ( pageList == null )
+                {
+                    FreePage freePage = new FreePage( page );
+                    freePage.setNext( null );
+                    pageList = freePage;
+                }
+                else if ( pageList instanceof FreePage
+                        && ((FreePage) pageList).count < partition.keepFree )
+                {
+                    FreePage freePage = new FreePage( page );
+                    freePage.setNext( (FreePage) pageList );
+                    pageList = freePage;
+                }
+                else
+                {
+                    page.nextFree = pageList;
+                    pageList = page;
+                }
             }
+            partition.initialiseFreelist( pageList );
         }
-        UnsafeUtil.putObjectVolatile( this, freelistOffset, pageList );
+    }
+
+    private static PagePartition[] createPartitions( int maxPages, int partitionCount )
+    {
+        if ( partitionCount <= 0 )
+        {
+            int processors = Runtime.getRuntime().availableProcessors();
+            partitionCount = Math.min( processors / processorsPerPartition, maxPages / minPagesPerPartition );
+        }
+        // Every partition must have at least two pages, so it can keep one free while the other is in use.
+        partitionCount = Math.max( 1, Math.min( partitionCount, maxPages / 2 ) );
+
+        PagePartition[] partitions = new PagePartition[partitionCount];
+        for ( int i = 0; i < partitionCount; i++ )
+        {
+            int firstPageIndex = (int) (((long) maxPages) * i / partitionCount);
+            int endPageIndex = (int) (((long) maxPages) * (i + 1) / partitionCount);
+            int keepFree = Math.min( pagesToKeepFree, (endPageIndex - firstPageIndex) / 2 );
+            partitions[i] = new PagePartition( i, firstPageIndex, endPageIndex, keepFree );
+        }
+        return partitions;
     }
 
     private static void verifyHacks()
@@ -402,7 +464,14 @@ public class MuninnPageCache implements PageCache
 
         try
         {
-            backgroundThreadExecutor.execute( new EvictionTask( this ) );
+            for ( PagePartition partition : partitions )
+            {
+                backgroundThreadExecutor.execute( new EvictionTask( this, partition, partitions.length > 1 ) );
+            }
+            if ( backgroundFlushDirtyRatio < 100 )
+            {
+                backgroundThreadExecutor.execute( new BackgroundFlushTask( this ) );
+            }
         }
         catch ( Exception e )
         {
@@ -485,6 +554,43 @@ public class MuninnPageCache implements PageCache
         this.printExceptionsOnClose = enabled;
     }
 
+    /**
+     * Enable the background flusher, which writes out dirty pages in between the flushes of the page cache, whenever
+     * more than the given percentage of the pages in the cache are dirty. This spreads the write IO out over time,
+     * and makes the work left for the next {@link #flushAndForce()} smaller. A ratio of 100 disables the background
+     * flusher.
+     * <p>
+     * This must be called before any files are mapped, because that is when the background threads are started.
+     *
+     * @param percent the percentage, between 0 and 100 inclusive, of the pages that are allowed to be dirty.
+     */
+    public synchronized void setBackgroundFlushDirtyRatio( int percent )
+    {
+        if ( percent < 0 || percent > 100 )
+        {
+            throw new IllegalArgumentException( "The dirty page ratio must be between 0 and 100, but was " + percent );
+        }
+        if ( threadsInitialised )
+        {
+            throw new IllegalStateException(
+                    "The background flusher must be configured before any files are mapped by the page cache" );
+        }
+        this.backgroundFlushDirtyRatio = percent;
+    }
+
+    /**
+     * Set the {@link IOLimiter} that throttles the writes of the background flusher. Unless this is called, the
+     * background flusher writes at full speed.
+     */
+    public void setBackgroundFlushIOLimiter( IOLimiter limiter )
+    {
+        if ( limiter == null )
+        {
+            throw new IllegalArgumentException( "IOPSLimiter cannot be null" );
+        }
+        this.backgroundFlushLimiter = limiter;
+    }
+
     @Override
     public void flushAndForce() throws IOException
     {
@@ -555,8 +661,13 @@ public class MuninnPageCache implements PageCache
             pages[i] = null;
         }
 
-        interrupt( evictionThread );
-        evictionThread = null;
+        for ( PagePartition partition : partitions )
+        {
+            interrupt( partition.evictionThread );
+            partition.evictionThread = null;
+        }
+        interrupt( backgroundFlushThread );
+        backgroundFlushThread = null;
     }
 
     private void interrupt( Thread thread )
@@ -609,9 +720,14 @@ public class MuninnPageCache implements PageCache
         return pageCacheId;
     }
 
+    int partitionCount()
+    {
+        return partitions.length;
+    }
+
     MuninnPage grabFreeAndExclusivelyLockedPage( PageFaultEvent faultEvent ) throws IOException
     {
-        // Review the comment on the freelist field before making changes to
+        // Review the comment on the partitions field before making changes to
         // this part of the code.
         // Whatever the case, we're going to the head-pointer of the freelist,
         // and in doing so, we can discover a number of things.
@@ -626,25 +742,50 @@ public class MuninnPageCache implements PageCache
         // been emptied for whatever it contained before. New FreePage objects
         // are eventually going to be added to the freelist, but we are not
         // going to wait around for that to happen. If the freelist is empty,
-        // then we do our own eviction to get a free page.
+        // then we wake up the evictor of the partition, and look at the
+        // freelists of the other partitions. If they are all empty, then we do
+        // our own eviction to get a free page.
         // If we find a FreePage object on the freelist, then it is important
         // to check and see if it is the shutdownSignal instance. If that's the
         // case, then the page cache has been shut down, and we should throw an
         // exception from our page fault routine.
+        int homePartition = homePartitionIndex();
+        for ( int i = 0; i < partitions.length; i++ )
+        {
+            int partitionIndex = homePartition + i;
+            partitionIndex = partitionIndex < partitions.length ? partitionIndex : partitionIndex - partitions.length;
+            MuninnPage page = grabFreeAndExclusivelyLockedPage( partitions[partitionIndex] );
+            if ( page != null )
+            {
+                return page;
+            }
+        }
+        return cooperativelyEvict( faultEvent );
+    }
+
+    private int homePartitionIndex()
+    {
+        // Threads stick to the same home partition, so the pages they fault in tend to stay in the same part of memory,
+        // and so the freelist traffic from different threads is spread over the partitions.
+        return partitions.length == 1 ? 0 : (int) (Thread.currentThread().getId() % partitions.length);
+    }
+
+    private MuninnPage grabFreeAndExclusivelyLockedPage( PagePartition partition ) throws IOException
+    {
         Object current;
         for (;;)
         {
             assertHealthy();
-            current = getFreelistHead();
+            current = partition.getFreelistHead();
             if ( current == null )
             {
-                unparkEvictor();
-                return cooperativelyEvict( faultEvent );
+                partition.unparkEvictor();
+                return null;
             }
             else if ( current instanceof MuninnPage )
             {
                 MuninnPage page = (MuninnPage) current;
-                if ( compareAndSetFreelistHead( page, page.nextFree ) )
+                if ( partition.compareAndSetFreelistHead( page, page.nextFree ) )
                 {
                     return page;
                 }
@@ -657,7 +798,7 @@ public class MuninnPageCache implements PageCache
                     throw new IllegalStateException( "The PageCache has been shut down." );
                 }
 
-                if ( compareAndSetFreelistHead( freePage, freePage.next ) )
+                if ( partition.compareAndSetFreelistHead( freePage, freePage.next ) )
                 {
                     return freePage.page;
                 }
@@ -731,80 +872,124 @@ public class MuninnPageCache implements PageCache
                 "your database." );
     }
 
-    private void unparkEvictor()
+    /**
+     * Scan through all the pages of the given partition, one by one, and decrement their usage stamps.
+     * If a usage reaches zero, we try-write-locking it, and if we get that lock,
+     * we evict the page. If we don't, we move on to the next page.
+     * Once we have enough free pages, we park our thread. Page-faulting will
+     * unpark our thread as needed.
+     */
+    void continuouslySweepPages( PagePartition partition )
     {
-        if ( evictorParked )
+        partition.evictionThread = Thread.currentThread();
+        int clockArm = partition.firstPageIndex;
+
+        while ( !closed )
         {
-            evictorParked = false;
-            LockSupport.unpark( evictionThread );
+            int pageCountToEvict = parkUntilEvictionRequired( partition );
+            try ( EvictionRunEvent evictionRunEvent = tracer.beginPageEvictions( pageCountToEvict ) )
+            {
+                clockArm = evictPages( partition, pageCountToEvict, clockArm, evictionRunEvent );
+            }
         }
-    }
 
-    private void parkEvictor( long parkNanos )
-    {
-        // Only called from the background eviction thread!
-        evictorParked = true;
-        LockSupport.parkNanos( this, parkNanos );
-        evictorParked = false;
+        // The last thing we do, is signalling the shutdown of the cache via
+        // the freelist. This signal is looked out for in grabFreePage.
+        partition.getAndSetFreelistHead( shutdownSignal );
     }
 
-    private Object getFreelistHead()
+    /**
+     * Periodically look at the number of dirty pages, and if there are more of them than the configured dirty page ratio allows,
+     * write out the excess pages in file page order, without forcing them. The file pages are visited in a round-robin
+     * fashion across calls, so all dirty pages are eventually written out even if the budget is small.
+     */
+    void continuouslyFlushDirtyPages()
     {
-        return UnsafeUtil.getObjectVolatile( this, freelistOffset );
-    }
+        backgroundFlushThread = Thread.currentThread();
+        long parkNanos = TimeUnit.MILLISECONDS.toNanos( backgroundFlushIntervalMillis );
+        int targetDirtyPages = (int) (((long) pages.length) * backgroundFlushDirtyRatio / 100);
 
-    private boolean compareAndSetFreelistHead( Object expected, Object update )
-    {
-        return UnsafeUtil.compareAndSwapObject(
-                this, freelistOffset, expected, update );
+        while ( !closed )
+        {
+            LockSupport.parkNanos( this, parkNanos );
+            if ( Thread.interrupted() || closed )
+            {
+                break;
+            }
+
+            int dirtyPages = countDirtyPages();
+            tracer.observedDirtyPages( dirtyPages );
+            if ( dirtyPages > targetDirtyPages )
+            {
+                backgroundFlush( dirtyPages - targetDirtyPages );
+            }
+        }
     }
 
-    private Object getAndSetFreelistHead( Object newFreelistHead )
+    private int countDirtyPages()
     {
-        return UnsafeUtil.getAndSetObject(
-                this, freelistOffset, newFreelistHead );
+        // The counter can be off by the pages that are concurrently changing state, but never by more than that.
+        long dirtyPages = dirtyPageCounter.sum();
+        return (int) Math.max( 0, Math.min( dirtyPages, pages.length ) );
     }
 
-    /**
-     * Scan through all the pages, one by one, and decrement their usage stamps.
-     * If a usage reaches zero, we try-write-locking it, and if we get that lock,
-     * we evict the page. If we don't, we move on to the next page.
-     * Once we have enough free pages, we park our thread. Page-faulting will
-     * unpark our thread as needed.
-     */
-    void continuouslySweepPages()
+    private void backgroundFlush( int pageBudget )
     {
-        evictionThread = Thread.currentThread();
-        int clockArm = 0;
+        FileMapping first = mappedFiles;
+        int fileCount = 0;
+        for ( FileMapping mapping = first; mapping != null; mapping = mapping.next )
+        {
+            fileCount++;
+        }
+        if ( fileCount == 0 )
+        {
+            return;
+        }
 
-        while ( !closed )
+        // Start with a different file every time, so a large file at the head of the list cannot starve the others.
+        int startIndex = backgroundFlushFileIndex++ % fileCount;
+        FileMapping start = first;
+        for ( int i = 0; i < startIndex; i++ )
         {
-            int pageCountToEvict = parkUntilEvictionRequired( keepFree );
-            try ( EvictionRunEvent evictionRunEvent = tracer.beginPageEvictions( pageCountToEvict ) )
+            start = start.next;
+        }
+
+        IOLimiter limiter = backgroundFlushLimiter;
+        try ( MajorFlushEvent backgroundFlush = tracer.beginBackgroundFlush() )
+        {
+            FlushEventOpportunity flushOpportunity = backgroundFlush.flushEventOpportunity();
+            FileMapping mapping = start;
+            for ( int i = 0; i < fileCount && pageBudget > 0 && !closed; i++ )
             {
-                clockArm = evictPages( pageCountToEvict, clockArm, evictionRunEvent );
+                try
+                {
+                    pageBudget -= mapping.pagedFile.flushDirtyPages( flushOpportunity, pageBudget, limiter );
+                }
+                catch ( IOException ignore )
+                {
+                    // The file might have been unmapped and closed concurrently. Either way, the pages that could not
+                    // be written stay dirty, and will be written out by the next checkpoint or eviction.
+                }
+                mapping = mapping.next == null ? first : mapping.next;
             }
         }
-
-        // The last thing we do, is signalling the shutdown of the cache via
-        // the freelist. This signal is looked out for in grabFreePage.
-        getAndSetFreelistHead( shutdownSignal );
     }
 
-    private int parkUntilEvictionRequired( int keepFree )
+    private int parkUntilEvictionRequired( PagePartition partition )
     {
         // Park until we're either interrupted, or the number of free pages drops
         // bellow keepFree.
+        int keepFree = partition.keepFree;
         long parkNanos = TimeUnit.MILLISECONDS.toNanos( 10 );
         for (;;)
         {
-            parkEvictor( parkNanos );
+            partition.parkEvictor( parkNanos );
             if ( Thread.interrupted() || closed )
             {
                 return 0;
             }
 
-            Object freelistHead = getFreelistHead();
+            Object freelistHead = partition.getFreelistHead();
 
             if ( freelistHead == null )
             {
@@ -821,13 +1006,29 @@ public class MuninnPageCache implements PageCache
         }
     }
 
+    /**
+     * Evict pages from the partition that the given clock arm is in.
+     */
     int evictPages( int pageCountToEvict, int clockArm, EvictionRunEvent evictionRunEvent )
+    {
+        for ( PagePartition partition : partitions )
+        {
+            if ( partition.contains( clockArm ) )
+            {
+                return evictPages( partition, pageCountToEvict, clockArm, evictionRunEvent );
+            }
+        }
+        throw new IllegalArgumentException( "Clock arm " + clockArm + " is not within the page cache" );
+    }
+
+    private int evictPages( PagePartition partition, int pageCountToEvict, int clockArm,
+            EvictionRunEvent evictionRunEvent )
     {
         while ( pageCountToEvict > 0 && !closed )
         {
-            if ( clockArm == pages.length )
+            if ( clockArm == partition.endPageIndex )
             {
-                clockArm = 0;
+                clockArm = partition.firstPageIndex;
             }
             MuninnPage page = pages[clockArm];
 
@@ -864,13 +1065,13 @@ public class MuninnPageCache implements PageCache
                             FreePage freePage = null;
                             do
                             {
-                                current = getFreelistHead();
+                                current = partition.getFreelistHead();
                                 freePage = freePage == null?
                                            new FreePage( page ) : freePage;
                                 freePage.setNext( (FreePage) current );
                                 nextListHead = freePage;
                             }
-                            while ( !compareAndSetFreelistHead( current, nextListHead ) );
+                            while ( !partition.compareAndSetFreelistHead( current, nextListHead ) );
                         }
                     }
                     finally
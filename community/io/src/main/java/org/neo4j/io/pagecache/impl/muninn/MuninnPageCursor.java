@@ -27,12 +27,14 @@ import org.neo4j.concurrent.BinaryLatch;
 import org.neo4j.io.pagecache.CursorException;
 import org.neo4j.io.pagecache.PageCursor;
 import org.neo4j.io.pagecache.PageSwapper;
+import org.neo4j.io.pagecache.PagedFile;
 import org.neo4j.io.pagecache.tracing.PageCacheTracer;
 import org.neo4j.io.pagecache.tracing.PageFaultEvent;
 import org.neo4j.io.pagecache.tracing.PinEvent;
 import org.neo4j.unsafe.impl.internal.dragons.UnsafeUtil;
 
 import static org.neo4j.unsafe.impl.internal.dragons.FeatureToggles.flag;
+import static org.neo4j.unsafe.impl.internal.dragons.FeatureToggles.getInteger;
 
 abstract class MuninnPageCursor extends PageCursor
 {
@@ -44,6 +46,15 @@ abstract class MuninnPageCursor extends PageCursor
 
     private static final boolean boundsCheck = flag( MuninnPageCursor.class, "boundsCheck", true );
 
+    // The bounds of the read-ahead window of PF_READ_AHEAD cursors, in pages. The window starts out at the minimum
+    // size, and then doubles every time the cursor consumes a whole window, and halves every time pages in the window
+    // go unused. The maximum is further limited to a fraction of the page cache size, so read-ahead can't end up
+    // evicting the pages it read ahead, before they are used.
+    private static final int readAheadMinPages = getInteger( MuninnPageCursor.class, "readAheadMinPages", 4 );
+    private static final int readAheadMaxPages = getInteger( MuninnPageCursor.class, "readAheadMaxPages", 64 );
+    private static final int readAheadMaxCacheFraction =
+            getInteger( MuninnPageCursor.class, "readAheadMaxCacheFraction", 16 );
+
     // Size of the respective primitive types in bytes.
     private static final int SIZE_OF_BYTE = Byte.BYTES;
     private static final int SIZE_OF_SHORT = Short.BYTES;
@@ -66,6 +77,16 @@ abstract class MuninnPageCursor extends PageCursor
     private int filePageSize;
     private int offset;
     private boolean outOfBounds;
+    // The read-ahead window is the range of file pages, from readAheadStart (inclusive) to readAheadEnd (exclusive),
+    // that this cursor has faulted in ahead of time, and not yet pinned.
+    private MuninnPage[] readAheadPages;
+    private int readAheadMaxWindowSize;
+    private int readAheadWindowSize;
+    private long readAheadLastPageId;
+    private long readAheadStart;
+    private long readAheadEnd;
+    private long readAheadHits;
+    private long readAheadWaste;
     // This is a String with the exception message if usePreciseCursorErrorStackTraces is false, otherwise it is a
     // CursorExceptionWithPreciseStackTrace with the message and stack trace pointing more or less directly at the
     // offending code.
@@ -81,6 +102,9 @@ abstract class MuninnPageCursor extends PageCursor
     {
         this.swapper = pagedFile.swapper;
         this.tracer = pagedFile.tracer;
+        this.readAheadMaxWindowSize = Math.min(
+                readAheadMaxPages, pagedFile.pageCache.maxCachedPages() / readAheadMaxCacheFraction );
+        this.readAheadWindowSize = readAheadMinPages;
     }
 
     final void initialiseFlags( MuninnPagedFile pagedFile, long pageId, int pf_flags )
@@ -96,6 +120,9 @@ abstract class MuninnPageCursor extends PageCursor
     {
         nextPageId = pageId;
         currentPageId = UNBOUND_PAGE_ID;
+        // A cursor with the read-ahead hint is expected to scan forward from the initial page, so we don't need to
+        // observe two sequential pins before we start reading ahead.
+        readAheadLastPageId = pageId - 1;
     }
 
     public final void reset( MuninnPage page )
@@ -128,6 +155,7 @@ abstract class MuninnPageCursor extends PageCursor
         do
         {
             cursor.unpinCurrentPage();
+            cursor.completeReadAhead();
             cursor.releaseCursor();
             // We null out the pagedFile field to allow it and its (potentially big) translation table to be garbage
             // collected when the file is unmapped, since the cursors can stick around in thread local caches, etc.
@@ -199,6 +227,9 @@ abstract class MuninnPageCursor extends PageCursor
 
     /**
      * Pin the desired file page to this cursor, page faulting it into memory if it isn't there already.
+     * <p>
+     * If this cursor has the {@link PagedFile#PF_NO_FAULT} flag, and the page is not in memory, then the cursor is
+     * left without a page.
      * @param filePageId The file page id we want to pin this cursor to.
      * @param writeLock 'true' if we will be taking a write lock on the page as part of the pin.
      * @throws IOException if anything goes wrong with the pin, most likely during a page fault.
@@ -246,6 +277,12 @@ abstract class MuninnPageCursor extends PageCursor
                 }
                 item = null;
             }
+            else if ( item == null && (pf_flags & PagedFile.PF_NO_FAULT) != 0 )
+            {
+                // The page is not in memory, and we are not allowed to fault it in, so we leave the cursor unbound.
+                pinEvent.done();
+                return;
+            }
             else
             {
                 item = uncommonPin( item, filePageId, chunkOffset, chunk );
@@ -364,11 +401,108 @@ abstract class MuninnPageCursor extends PageCursor
         pinEvent.done();
     }
 
+    /**
+     * Read ahead of the given file page, if this cursor has been opened with {@link PagedFile#PF_READ_AHEAD}, and the
+     * given page continues a sequential access pattern. This must be called before the given page is pinned.
+     * <p>
+     * The pages are faulted in with a single vectored read, into a window of pages that follow the given page.
+     * The window size adapts to the access pattern: if the cursor consumes the whole window, the window grows,
+     * and if the cursor moves away from the window without pinning all of its pages, the window shrinks.
+     * @param filePageId The file page id that is about to be pinned.
+     * @param lastPageId The id of the last page in the file.
+     * @throws IOException if the page fault of the read-ahead pages failed.
+     */
+    final void readAhead( long filePageId, long lastPageId ) throws IOException
+    {
+        // Cursors that are not allowed to fault don't read ahead either.
+        int readAheadMask = PagedFile.PF_READ_AHEAD | PagedFile.PF_NO_FAULT;
+        if ( (pf_flags & readAheadMask) != PagedFile.PF_READ_AHEAD | readAheadMaxWindowSize < readAheadMinPages )
+        {
+            return;
+        }
+        boolean sequential = filePageId == readAheadLastPageId + 1;
+        readAheadLastPageId = filePageId;
+        if ( filePageId >= readAheadStart & filePageId < readAheadEnd )
+        {
+            readAheadHits++;
+            readAheadWaste += filePageId - readAheadStart;
+            readAheadStart = filePageId + 1;
+            if ( readAheadStart < readAheadEnd )
+            {
+                return;
+            }
+            // We have consumed the whole window, so we're not reading far enough ahead to keep up with the scan.
+            readAheadWindowSize = Math.min( readAheadWindowSize << 1, readAheadMaxWindowSize );
+            completeReadAhead();
+        }
+        else
+        {
+            completeReadAhead();
+            if ( !sequential )
+            {
+                return;
+            }
+        }
+
+        long startFilePageId = filePageId + 1;
+        if ( startFilePageId <= lastPageId )
+        {
+            if ( readAheadPages == null )
+            {
+                readAheadPages = new MuninnPage[readAheadMaxWindowSize];
+            }
+            int pageCount = pagedFile.readAhead( startFilePageId, lastPageId, readAheadPages, readAheadWindowSize );
+            readAheadStart = startFilePageId;
+            readAheadEnd = startFilePageId + pageCount;
+        }
+    }
+
+    /**
+     * Report the outcome of the current read-ahead window, if any, to the tracer, and forget about the window.
+     */
+    private void completeReadAhead()
+    {
+        long unused = readAheadEnd - readAheadStart;
+        if ( unused > 0 )
+        {
+            readAheadWaste += unused;
+            readAheadWindowSize = Math.max( readAheadWindowSize >>> 1, readAheadMinPages );
+        }
+        if ( readAheadHits + readAheadWaste > 0 )
+        {
+            tracer.readAheadCompleted( readAheadHits, readAheadWaste );
+            readAheadHits = 0;
+            readAheadWaste = 0;
+        }
+        readAheadStart = 0;
+        readAheadEnd = 0;
+    }
+
     long assertPagedFileStillMappedAndGetIdOfLastPage()
     {
         return pagedFile.getLastPageId();
     }
 
+    /**
+     * Bind this cursor to the given file page id, if the preceding {@link #pin(long, boolean)} call found a page,
+     * or leave it unbound otherwise, which can only happen with {@link PagedFile#PF_NO_FAULT}.
+     */
+    final void bindCurrentPageId( long filePageId )
+    {
+        currentPageId = page != null ? filePageId : UNBOUND_PAGE_ID;
+    }
+
+    /**
+     * Update the usage statistics of the given page, unless this cursor has the {@link PagedFile#PF_TRANSIENT} flag.
+     */
+    final void incrementUsage( MuninnPage page )
+    {
+        if ( (pf_flags & PagedFile.PF_TRANSIENT) == 0 )
+        {
+            page.incrementUsage();
+        }
+    }
+
     protected abstract void unpinCurrentPage();
 
     protected abstract void convertPageFaultLock( MuninnPage page );
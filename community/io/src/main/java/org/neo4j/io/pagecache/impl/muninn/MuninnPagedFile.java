@@ -25,6 +25,8 @@ import java.io.IOException;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.concurrent.BinaryLatch;
 import org.neo4j.io.pagecache.IOLimiter;
 import org.neo4j.io.pagecache.PageCursor;
 import org.neo4j.io.pagecache.PageEvictionCallback;
@@ -67,9 +69,17 @@ final class MuninnPagedFile implements PagedFile, Flushable
     final PageSwapper swapper;
     private final CursorPool cursorPool;
 
+    // The pages that have been pinned by write cursors since this file was mapped, and when it was mapped.
+    private final long mappedNanoTime = System.nanoTime();
+    private final ModifiedPages modifiedPages = new ModifiedPages( mappedNanoTime );
+
     // Guarded by the monitor lock on MuninnPageCache (map and unmap)
     private boolean deleteOnClose;
 
+    // The file page id where the next background flush of this file will start. Only accessed by the background
+    // flush thread.
+    private long backgroundFlushPageId;
+
     /**
      * The header state includes both the reference count of the PagedFile – 15 bits – and the ID of the last page in
      * the file – 48 bits, plus an empty file marker bit. Because our pages are usually 2^13 bytes, this means that we
@@ -177,6 +187,29 @@ final class MuninnPagedFile implements PagedFile, Flushable
         return swapper.file();
     }
 
+    void markModified( long filePageId )
+    {
+        modifiedPages.mark( filePageId );
+    }
+
+    @Override
+    public PrimitiveLongIterator modifiedPagesSince( long nanoTime )
+    {
+        return modifiedPages.since( nanoTime );
+    }
+
+    @Override
+    public long startModifiedPagesEpoch()
+    {
+        return modifiedPages.startEpoch();
+    }
+
+    @Override
+    public long mappedNanoTime()
+    {
+        return mappedNanoTime;
+    }
+
     public void close() throws IOException
     {
         pageCache.unmap( this );
@@ -309,6 +342,76 @@ final class MuninnPagedFile implements PagedFile, Flushable
         swapper.force();
     }
 
+    /**
+     * Write out at most the given number of dirty pages, without forcing them, in ascending file page order.
+     * This is used by the background flusher to trickle dirty pages out in between checkpoints, so each call continues
+     * where the previous call stopped, and wraps around to the start of the file when it reaches the end.
+     * Pages that are concurrently being flushed or evicted are skipped, rather than waited for.
+     *
+     * @return the number of pages that were written.
+     */
+    int flushDirtyPages( FlushEventOpportunity flushOpportunity, int maxPages, IOLimiter limiter ) throws IOException
+    {
+        Object[][] tt = this.translationTable;
+        long pageCount = ((long) tt.length) << translationTableChunkSizePower;
+        long filePageId = backgroundFlushPageId < pageCount ? backgroundFlushPageId : 0;
+        MuninnPage[] pages = new MuninnPage[Math.min( maxPages, translationTableChunkSize )];
+        int pagesFlushed = 0;
+        int pagesGrabbed = 0;
+        long limiterStamp = IOLimiter.INITIAL_STAMP;
+        for ( long visited = 0; visited < pageCount && pagesFlushed + pagesGrabbed < maxPages; visited++ )
+        {
+            if ( filePageId == pageCount )
+            {
+                filePageId = 0;
+            }
+            if ( pagesGrabbed > 0 && (filePageId & translationTableChunkSizeMask) == 0 )
+            {
+                // An IO vector must not wrap around or span chunks.
+                vectoredFlush( pages, pagesGrabbed, flushOpportunity, false );
+                pagesFlushed += pagesGrabbed;
+                limiterStamp = limiter.maybeLimitIO( limiterStamp, pagesGrabbed, this );
+                pagesGrabbed = 0;
+            }
+            Object element = UnsafeUtil.getObjectVolatile(
+                    tt[computeChunkId( filePageId )], computeChunkOffset( filePageId ) );
+            boolean grabbed = false;
+            if ( element instanceof MuninnPage )
+            {
+                MuninnPage page = (MuninnPage) element;
+                if ( page.isDirty() && page.tryFlushLock() )
+                {
+                    if ( page.isBoundTo( swapper, filePageId ) && page.isDirty() )
+                    {
+                        pages[pagesGrabbed] = page;
+                        pagesGrabbed++;
+                        grabbed = true;
+                    }
+                    else
+                    {
+                        page.unlockFlush();
+                    }
+                }
+            }
+            if ( pagesGrabbed > 0 && (!grabbed || pagesGrabbed == pages.length) )
+            {
+                vectoredFlush( pages, pagesGrabbed, flushOpportunity, false );
+                pagesFlushed += pagesGrabbed;
+                limiterStamp = limiter.maybeLimitIO( limiterStamp, pagesGrabbed, this );
+                pagesGrabbed = 0;
+            }
+            filePageId++;
+        }
+        if ( pagesGrabbed > 0 )
+        {
+            vectoredFlush( pages, pagesGrabbed, flushOpportunity, false );
+            pagesFlushed += pagesGrabbed;
+            limiter.maybeLimitIO( limiterStamp, pagesGrabbed, this );
+        }
+        backgroundFlushPageId = filePageId;
+        return pagesFlushed;
+    }
+
     private void vectoredFlush(
             MuninnPage[] pages, int pagesGrabbed, FlushEventOpportunity flushOpportunity, boolean forClosing )
             throws IOException
@@ -496,6 +599,97 @@ final class MuninnPagedFile implements PagedFile, Flushable
         return pageCache.grabFreeAndExclusivelyLockedPage( faultEvent );
     }
 
+    /**
+     * Fault in a run of consecutive file pages, starting at the given filePageId, with a single vectored read.
+     * <p>
+     * The run is cut short at the first page that is already in the translation table, or being faulted in by
+     * another thread, since we never want to wait for anyone else's page fault. It is also cut short at the end of
+     * the translation table chunk, at the end of the given scratch array, and the end of the file.
+     * <p>
+     * The read-ahead pages are left unlocked and with a zero usage count, so that if nobody ends up pinning them,
+     * they will be among the first pages to go when eviction comes around.
+     *
+     * @param startFilePageId The file page id of the first page to read ahead.
+     * @param lastPageId The id of the last page in the file.
+     * @param pages The scratch array used for collecting the pages for the vectored read. It will be cleared before
+     * this method returns.
+     * @param maxPageCount The maximum number of pages to read ahead. Must not be greater than the length of the
+     * scratch array.
+     * @return The number of pages that were faulted in, possibly zero.
+     */
+    int readAhead( long startFilePageId, long lastPageId, MuninnPage[] pages, int maxPageCount ) throws IOException
+    {
+        int chunkId = computeChunkId( startFilePageId );
+        Object[][] tt = translationTable;
+        if ( tt.length <= chunkId )
+        {
+            tt = expandCapacity( chunkId );
+        }
+        Object[] chunk = tt[chunkId];
+        long pageLimit = translationTableChunkSize - (startFilePageId & translationTableChunkSizeMask);
+        pageLimit = Math.min( pageLimit, lastPageId - startFilePageId + 1 );
+        pageLimit = Math.min( pageLimit, maxPageCount );
+
+        // All the slots we claim share the same latch, which we release once the whole run has been faulted in.
+        BinaryLatch latch = new BinaryLatch();
+        int pageCount = 0;
+        while ( pageCount < pageLimit &&
+                UnsafeUtil.compareAndSwapObject(
+                        chunk, computeChunkOffset( startFilePageId + pageCount ), null, latch ) )
+        {
+            pageCount++;
+        }
+        if ( pageCount == 0 )
+        {
+            return 0;
+        }
+
+        PageFaultEvent faultEvent = tracer.beginReadAhead( startFilePageId, pageCount, swapper );
+        int pagesGrabbed = 0;
+        try
+        {
+            while ( pagesGrabbed < pageCount )
+            {
+                MuninnPage page = grabFreeAndExclusivelyLockedPage( faultEvent );
+                pages[pagesGrabbed] = page;
+                pagesGrabbed++;
+                page.initBuffer();
+                page.prepareVectoredFault( swapper, startFilePageId + pagesGrabbed - 1 );
+            }
+            // Check if we're racing with unmapping, before the swapper gets a chance to reopen the file channel.
+            getLastPageId();
+            MuninnPage.faultVectored( swapper, startFilePageId, pages, pageCount, faultEvent );
+        }
+        catch ( Throwable throwable )
+        {
+            // Unlock the pages so the eviction thread can pick up our trash, and unstuck the latched slots.
+            for ( int i = 0; i < pageCount; i++ )
+            {
+                if ( i < pagesGrabbed )
+                {
+                    pages[i].unlockExclusive();
+                    pages[i] = null;
+                }
+                UnsafeUtil.putObjectVolatile( chunk, computeChunkOffset( startFilePageId + i ), null );
+            }
+            latch.release();
+            faultEvent.done( throwable );
+            throw throwable;
+        }
+        for ( int i = 0; i < pageCount; i++ )
+        {
+            // Publish the page in the translation table before we release the exclusive lock, as we could otherwise
+            // race with eviction, and the onEvict callback expects to find a MuninnPage object in the table.
+            MuninnPage page = pages[i];
+            UnsafeUtil.putObjectVolatile( chunk, computeChunkOffset( startFilePageId + i ), page );
+            page.unlockExclusive();
+            pages[i] = null;
+        }
+        latch.release();
+        faultEvent.done();
+        return pageCount;
+    }
+
     /**
      * Remove the mapping of the given filePageId from the translation table, and return the evicted page object.
      * @param filePageId The id of the file page to evict.
@@ -57,8 +57,9 @@ final class MuninnReadPageCursor extends MuninnPageCursor
         {
             return false;
         }
+        readAhead( nextPageId, lastPageId );
         pin( nextPageId, false );
-        currentPageId = nextPageId;
+        bindCurrentPageId( nextPageId );
         nextPageId++;
         return true;
     }
@@ -79,7 +80,7 @@ final class MuninnReadPageCursor extends MuninnPageCursor
     protected void pinCursorToPage( MuninnPage page, long filePageId, PageSwapper swapper )
     {
         reset( page );
-        page.incrementUsage();
+        incrementUsage( page );
     }
 
     @Override
@@ -132,6 +133,11 @@ final class MuninnReadPageCursor extends MuninnPageCursor
             page = null;
             // Then try pin again.
             pin( currentPageId, false );
+            if ( page == null )
+            {
+                // The page got evicted, and we are not allowed to fault it back in.
+                clearPageState();
+            }
         }
     }
 
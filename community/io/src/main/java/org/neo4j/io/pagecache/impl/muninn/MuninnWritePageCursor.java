@@ -43,6 +43,7 @@ final class MuninnWritePageCursor extends MuninnPageCursor
             // Mark the page as dirty *after* our write access, to make sure it's dirty even if it was concurrently
             // flushed
             page.markAsDirty();
+            pagedFile.markModified( currentPageId );
             pinEvent.done();
             unlockPage( page );
         }
@@ -69,8 +70,9 @@ final class MuninnWritePageCursor extends MuninnPageCursor
                 pagedFile.increaseLastPageIdTo( nextPageId );
             }
         }
+        readAhead( nextPageId, lastPageId );
         pin( nextPageId, true );
-        currentPageId = nextPageId;
+        bindCurrentPageId( nextPageId );
         nextPageId++;
         return true;
     }
@@ -99,7 +101,7 @@ final class MuninnWritePageCursor extends MuninnPageCursor
         // after the reset() call, which means that if we throw, the cursor will
         // be closed and the page lock will be released.
         assertPagedFileStillMappedAndGetIdOfLastPage();
-        page.incrementUsage();
+        incrementUsage( page );
     }
 
     @Override
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.impl.muninn;
+
+import java.util.concurrent.locks.LockSupport;
+
+import org.neo4j.unsafe.impl.internal.dragons.UnsafeUtil;
+
+/**
+ * A contiguous range of the pages in the MuninnPageCache, with its own freelist, clock arm and eviction thread.
+ *
+ * Splitting the cache into partitions spreads the CAS traffic on the freelist heads over multiple cache lines, and
+ * lets multiple eviction threads sweep the cache in parallel.
+ */
+final class PagePartition
+{
+    // The field offset to unsafely access the freelist field.
+    private static final long freelistOffset =
+            UnsafeUtil.getFieldOffset( PagePartition.class, "freelist" );
+
+    final int index;
+    // The index of the first page in this partition, in the MuninnPageCache.pages array.
+    final int firstPageIndex;
+    // The index one past the last page in this partition, in the MuninnPageCache.pages array.
+    final int endPageIndex;
+    // Keep this many pages free and ready for use in faulting.
+    final int keepFree;
+
+    // See the comment on the MuninnPageCache.partitions field.
+    @SuppressWarnings( "unused" ) // This field is accessed via Unsafe.
+    private volatile Object freelist;
+
+    // The thread that runs the eviction algorithm for this partition. We unpark this when we've run out of
+    // free pages to grab.
+    volatile Thread evictionThread;
+    // True if the eviction thread is currently parked, without someone having
+    // signalled it to wake up. This is used as a weak guard for unparking the
+    // eviction thread, because calling unpark too much (from many page
+    // faulting threads) can cause contention on the locks protecting that
+    // threads scheduling meta-data in the OS kernel.
+    private volatile boolean evictorParked;
+
+    PagePartition( int index, int firstPageIndex, int endPageIndex, int keepFree )
+    {
+        this.index = index;
+        this.firstPageIndex = firstPageIndex;
+        this.endPageIndex = endPageIndex;
+        this.keepFree = keepFree;
+    }
+
+    boolean contains( int pageIndex )
+    {
+        return firstPageIndex <= pageIndex && pageIndex < endPageIndex;
+    }
+
+    void initialiseFreelist( Object pageList )
+    {
+        UnsafeUtil.putObjectVolatile( this, freelistOffset, pageList );
+    }
+
+    Object getFreelistHead()
+    {
+        return UnsafeUtil.getObjectVolatile( this, freelistOffset );
+    }
+
+    boolean compareAndSetFreelistHead( Object expected, Object update )
+    {
+        return UnsafeUtil.compareAndSwapObject(
+                this, freelistOffset, expected, update );
+    }
+
+    Object getAndSetFreelistHead( Object newFreelistHead )
+    {
+        return UnsafeUtil.getAndSetObject(
+                this, freelistOffset, newFreelistHead );
+    }
+
+    void unparkEvictor()
+    {
+        if ( evictorParked )
+        {
+            evictorParked = false;
+            LockSupport.unpark( evictionThread );
+        }
+    }
+
+    void parkEvictor( long parkNanos )
+    {
+        // Only called from the background eviction thread of this partition!
+        evictorParked = true;
+        LockSupport.parkNanos( this, parkNanos );
+        evictorParked = false;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "PagePartition[" + index + ": " + firstPageIndex + " to " + endPageIndex + "]";
+    }
+}
@@ -74,4 +74,35 @@ public interface PageCacheCounters
      * @return The number of page evictions that have thrown exceptions thus far.
      */
     long evictionExceptions();
+
+    /**
+     * @return The number of pages that have been faulted in ahead of time by read-ahead cursors thus far.
+     */
+    long readAheadPages();
+
+    /**
+     * @return The number of read-ahead pages that were subsequently pinned by the cursor that read them ahead.
+     */
+    long readAheadHits();
+
+    /**
+     * @return The number of read-ahead pages that the cursor that read them ahead never ended up pinning.
+     */
+    long readAheadWaste();
+
+    /**
+     * @return The number of pages that have been loaded by warming up the page cache from a profile of previously
+     * resident pages.
+     */
+    long warmedUpPages();
+
+    /**
+     * @return The number of pages that have been written out by the background flusher thus far.
+     */
+    long backgroundFlushedPages();
+
+    /**
+     * @return The number of dirty pages in the page cache, as last observed by the background flusher.
+     */
+    long dirtyPages();
 }
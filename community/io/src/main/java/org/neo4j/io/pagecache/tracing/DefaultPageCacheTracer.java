@@ -92,6 +92,12 @@ public class DefaultPageCacheTracer implements PageCacheTracer
     protected final AtomicLong filesMapped = new AtomicLong();
     protected final AtomicLong filesUnmapped = new AtomicLong();
     protected final AtomicLong evictionExceptions = new AtomicLong();
+    protected final AtomicLong readAheadPages = new AtomicLong();
+    protected final AtomicLong readAheadHits = new AtomicLong();
+    protected final AtomicLong readAheadWaste = new AtomicLong();
+    protected final AtomicLong warmedUpPages = new AtomicLong();
+    protected final AtomicLong backgroundFlushedPages = new AtomicLong();
+    protected final AtomicLong dirtyPages = new AtomicLong();
 
     private final FlushEvent flushEvent = new FlushEvent()
     {
@@ -128,6 +134,42 @@ public class DefaultPageCacheTracer implements PageCacheTracer
         }
     };
 
+    private final FlushEvent backgroundFlushEvent = new FlushEvent()
+    {
+        @Override
+        public void addBytesWritten( long bytes )
+        {
+            bytesWritten.getAndAdd( bytes );
+        }
+
+        @Override
+        public void done()
+        {
+            flushes.getAndIncrement();
+        }
+
+        @Override
+        public void done( IOException exception )
+        {
+            done();
+        }
+
+        @Override
+        public void addPagesFlushed( int pageCount )
+        {
+            backgroundFlushedPages.getAndAdd( pageCount );
+        }
+    };
+
+    private final FlushEventOpportunity backgroundFlushEventOpportunity = new FlushEventOpportunity()
+    {
+        @Override
+        public FlushEvent beginFlush( long filePageId, int cachePageId, PageSwapper swapper )
+        {
+            return backgroundFlushEvent;
+        }
+    };
+
     private final EvictionEvent evictionEvent = new EvictionEvent()
     {
         @Override
@@ -210,6 +252,38 @@ public class DefaultPageCacheTracer implements PageCacheTracer
         }
     };
 
+    private final PageFaultEvent readAheadEvent = new PageFaultEvent()
+    {
+        @Override
+        public void addBytesRead( long bytes )
+        {
+            bytesRead.getAndAdd( bytes );
+        }
+
+        @Override
+        public void done()
+        {
+            // The faults are counted when the read-ahead begins, since we know the page count at that point.
+        }
+
+        @Override
+        public void done( Throwable throwable )
+        {
+            done();
+        }
+
+        @Override
+        public EvictionEvent beginEviction()
+        {
+            return evictionEvent;
+        }
+
+        @Override
+        public void setCachePageId( int cachePageId )
+        {
+        }
+    };
+
     private final PinEvent pinTracingEvent = new PinEvent()
     {
         @Override
@@ -263,6 +337,20 @@ public class DefaultPageCacheTracer implements PageCacheTracer
         }
     };
 
+    private final MajorFlushEvent backgroundMajorFlushEvent = new MajorFlushEvent()
+    {
+        @Override
+        public FlushEventOpportunity flushEventOpportunity()
+        {
+            return backgroundFlushEventOpportunity;
+        }
+
+        @Override
+        public void close()
+        {
+        }
+    };
+
     @Override
     public void mappedFile( File file )
     {
@@ -325,6 +413,45 @@ public class DefaultPageCacheTracer implements PageCacheTracer
         return majorFlushEvent;
     }
 
+    @Override
+    public PageFaultEvent beginReadAhead( long startFilePageId, int pageCount, PageSwapper swapper )
+    {
+        faults.getAndAdd( pageCount );
+        readAheadPages.getAndAdd( pageCount );
+        return readAheadEvent;
+    }
+
+    @Override
+    public void readAheadCompleted( long pagesHit, long pagesWasted )
+    {
+        if ( pagesHit > 0 )
+        {
+            readAheadHits.getAndAdd( pagesHit );
+        }
+        if ( pagesWasted > 0 )
+        {
+            readAheadWaste.getAndAdd( pagesWasted );
+        }
+    }
+
+    @Override
+    public void warmedUp( long pageCount )
+    {
+        warmedUpPages.getAndAdd( pageCount );
+    }
+
+    @Override
+    public MajorFlushEvent beginBackgroundFlush()
+    {
+        return backgroundMajorFlushEvent;
+    }
+
+    @Override
+    public void observedDirtyPages( long pageCount )
+    {
+        dirtyPages.set( pageCount );
+    }
+
     @Override
     public long faults()
     {
@@ -384,4 +511,40 @@ public class DefaultPageCacheTracer implements PageCacheTracer
     {
         return evictionExceptions.get();
     }
+
+    @Override
+    public long readAheadPages()
+    {
+        return readAheadPages.get();
+    }
+
+    @Override
+    public long readAheadHits()
+    {
+        return readAheadHits.get();
+    }
+
+    @Override
+    public long readAheadWaste()
+    {
+        return readAheadWaste.get();
+    }
+
+    @Override
+    public long warmedUpPages()
+    {
+        return warmedUpPages.get();
+    }
+
+    @Override
+    public long backgroundFlushedPages()
+    {
+        return backgroundFlushedPages.get();
+    }
+
+    @Override
+    public long dirtyPages()
+    {
+        return dirtyPages.get();
+    }
 }
@@ -70,6 +70,33 @@ public interface PageCacheTracer extends PageCacheCounters
             return MajorFlushEvent.NULL;
         }
 
+        @Override
+        public PageFaultEvent beginReadAhead( long startFilePageId, int pageCount, PageSwapper swapper )
+        {
+            return PageFaultEvent.NULL;
+        }
+
+        @Override
+        public void readAheadCompleted( long pagesHit, long pagesWasted )
+        {
+        }
+
+        @Override
+        public void warmedUp( long pageCount )
+        {
+        }
+
+        @Override
+        public MajorFlushEvent beginBackgroundFlush()
+        {
+            return MajorFlushEvent.NULL;
+        }
+
+        @Override
+        public void observedDirtyPages( long pageCount )
+        {
+        }
+
         @Override
         public long faults()
         {
@@ -130,6 +157,42 @@ public interface PageCacheTracer extends PageCacheCounters
             return 0;
         }
 
+        @Override
+        public long readAheadPages()
+        {
+            return 0;
+        }
+
+        @Override
+        public long readAheadHits()
+        {
+            return 0;
+        }
+
+        @Override
+        public long readAheadWaste()
+        {
+            return 0;
+        }
+
+        @Override
+        public long warmedUpPages()
+        {
+            return 0;
+        }
+
+        @Override
+        public long backgroundFlushedPages()
+        {
+            return 0;
+        }
+
+        @Override
+        public long dirtyPages()
+        {
+            return 0;
+        }
+
         @Override
         public String toString()
         {
@@ -170,4 +233,35 @@ public interface PageCacheTracer extends PageCacheCounters
      * The PageCache wants to flush all its bound pages.
      */
     MajorFlushEvent beginCacheFlush();
+
+    /**
+     * A read-ahead cursor is about to fault in the given number of consecutive pages, starting at the given file
+     * page id, with a single vectored read.
+     */
+    PageFaultEvent beginReadAhead( long startFilePageId, int pageCount, PageSwapper swapper );
+
+    /**
+     * A read-ahead cursor is done with a window of pages it read ahead, either because the window has been
+     * consumed, because the access pattern stopped being sequential, or because the cursor was closed.
+     *
+     * @param pagesHit the number of read-ahead pages that were subsequently pinned by the cursor.
+     * @param pagesWasted the number of read-ahead pages that were never pinned by the cursor.
+     */
+    void readAheadCompleted( long pagesHit, long pagesWasted );
+
+    /**
+     * The given number of pages, that were found in a profile of previously resident pages, have been loaded into
+     * the page cache by a page cache warmer.
+     */
+    void warmedUp( long pageCount );
+
+    /**
+     * The background flusher is about to write out some of the dirty pages, in between the flushes of the page cache.
+     */
+    MajorFlushEvent beginBackgroundFlush();
+
+    /**
+     * The background flusher has counted the given number of dirty pages in the page cache.
+     */
+    void observedDirtyPages( long pageCount );
 }
@@ -26,6 +26,7 @@ import java.nio.channels.WritableByteChannel;
 import java.util.Objects;
 
 import org.neo4j.adversaries.Adversary;
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
 import org.neo4j.io.pagecache.IOLimiter;
 import org.neo4j.io.pagecache.PageCursor;
 import org.neo4j.io.pagecache.PagedFile;
@@ -90,6 +91,24 @@ public class AdversarialPagedFile implements PagedFile
         return delegate.getLastPageId();
     }
 
+    @Override
+    public PrimitiveLongIterator modifiedPagesSince( long nanoTime )
+    {
+        return delegate.modifiedPagesSince( nanoTime );
+    }
+
+    @Override
+    public long startModifiedPagesEpoch()
+    {
+        return delegate.startModifiedPagesEpoch();
+    }
+
+    @Override
+    public long mappedNanoTime()
+    {
+        return delegate.mappedNanoTime();
+    }
+
     @Override
     public void close() throws IOException
     {
@@ -23,6 +23,8 @@ import java.io.IOException;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+
 public class DelegatingPagedFile implements PagedFile
 {
     private final PagedFile delegate;
@@ -47,6 +49,21 @@ public class DelegatingPagedFile implements PagedFile
         return delegate.getLastPageId();
     }
 
+    public PrimitiveLongIterator modifiedPagesSince( long nanoTime )
+    {
+        return delegate.modifiedPagesSince( nanoTime );
+    }
+
+    public long startModifiedPagesEpoch()
+    {
+        return delegate.startModifiedPagesEpoch();
+    }
+
+    public long mappedNanoTime()
+    {
+        return delegate.mappedNanoTime();
+    }
+
     public int pageSize()
     {
         return delegate.pageSize();
@@ -85,6 +85,7 @@ import static org.neo4j.io.pagecache.PagedFile.PF_NO_FAULT;
 import static org.neo4j.io.pagecache.PagedFile.PF_NO_GROW;
 import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_READ_LOCK;
 import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_WRITE_LOCK;
+import static org.neo4j.io.pagecache.PagedFile.PF_TRANSIENT;
 import static org.neo4j.test.ByteArrayMatcher.byteArray;
 import static org.neo4j.test.ThreadTestUtils.fork;
 
@@ -792,6 +793,76 @@ public abstract class PageCacheTest<T extends PageCache> extends PageCacheTestSu
         }
     }
 
+    @Test( timeout = SHORT_TIMEOUT_MILLIS )
+    public void noFaultReadCursorMustNotBindToPagesThatAreNotInMemory() throws IOException
+    {
+        generateFileWithRecords( file( "a" ), recordsPerFilePage * 2, recordSize );
+        PageCache cache = getPageCache( fs, maxPages, pageCachePageSize, PageCacheTracer.NULL );
+        try ( PagedFile pagedFile = cache.map( file( "a" ), filePageSize ) )
+        {
+            try ( PageCursor cursor = pagedFile.io( 1, PF_SHARED_READ_LOCK ) )
+            {
+                assertTrue( cursor.next() );
+            }
+            try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_READ_LOCK | PF_NO_FAULT ) )
+            {
+                assertTrue( cursor.next() );
+                assertThat( cursor.getCurrentPageId(), is( PageCursor.UNBOUND_PAGE_ID ) );
+                assertTrue( cursor.next() );
+                assertThat( cursor.getCurrentPageId(), is( 1L ) );
+                verifyRecordsMatchExpected( cursor );
+                assertFalse( cursor.next() );
+            }
+        }
+    }
+
+    @Test( timeout = SHORT_TIMEOUT_MILLIS )
+    public void noFaultWriteCursorMustNotBindToPagesThatAreNotInMemory() throws IOException
+    {
+        PageCache cache = getPageCache( fs, maxPages, pageCachePageSize, PageCacheTracer.NULL );
+        try ( PagedFile pagedFile = cache.map( file( "a" ), filePageSize ) )
+        {
+            try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_WRITE_LOCK | PF_NO_FAULT ) )
+            {
+                assertTrue( cursor.next() );
+                assertThat( cursor.getCurrentPageId(), is( PageCursor.UNBOUND_PAGE_ID ) );
+                cursor.putLong( 1 );
+                assertTrue( cursor.checkAndClearBoundsFlag() );
+            }
+            try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_WRITE_LOCK ) )
+            {
+                assertTrue( cursor.next() );
+                cursor.putLong( 1 );
+            }
+            try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_WRITE_LOCK | PF_NO_FAULT ) )
+            {
+                assertTrue( cursor.next() );
+                assertThat( cursor.getCurrentPageId(), is( 0L ) );
+                assertThat( cursor.getLong(), is( 1L ) );
+            }
+        }
+    }
+
+    @Test( timeout = SHORT_TIMEOUT_MILLIS )
+    public void transientCursorsMustReadAndWriteLikeOtherCursors() throws IOException
+    {
+        generateFileWithRecords( file( "a" ), recordCount, recordSize );
+        PageCache cache = getPageCache( fs, maxPages, pageCachePageSize, PageCacheTracer.NULL );
+
+        int recordId = 0;
+        try ( PagedFile pagedFile = cache.map( file( "a" ), filePageSize );
+              PageCursor cursor = pagedFile.io( 0L, PF_SHARED_READ_LOCK | PF_TRANSIENT ) )
+        {
+            while ( cursor.next() )
+            {
+                verifyRecordsMatchExpected( cursor );
+                recordId += recordsPerFilePage;
+            }
+        }
+
+        assertThat( recordId, is( recordCount ) );
+    }
+
     @Test( timeout = SHORT_TIMEOUT_MILLIS, expected = IllegalArgumentException.class )
     public void specifyingBothReadAndWriteLocksMustThrow() throws IOException
     {
@@ -174,6 +174,33 @@ public class RecordingPageCacheTracer implements PageCacheTracer
         return MajorFlushEvent.NULL;
     }
 
+    @Override
+    public PageFaultEvent beginReadAhead( long startFilePageId, int pageCount, PageSwapper swapper )
+    {
+        return PageFaultEvent.NULL;
+    }
+
+    @Override
+    public void readAheadCompleted( long pagesHit, long pagesWasted )
+    {
+    }
+
+    @Override
+    public void warmedUp( long pageCount )
+    {
+    }
+
+    @Override
+    public MajorFlushEvent beginBackgroundFlush()
+    {
+        return MajorFlushEvent.NULL;
+    }
+
+    @Override
+    public void observedDirtyPages( long pageCount )
+    {
+    }
+
     @Override
     public long faults()
     {
@@ -234,6 +261,42 @@ public class RecordingPageCacheTracer implements PageCacheTracer
         return 0;
     }
 
+    @Override
+    public long readAheadPages()
+    {
+        return 0;
+    }
+
+    @Override
+    public long readAheadHits()
+    {
+        return 0;
+    }
+
+    @Override
+    public long readAheadWaste()
+    {
+        return 0;
+    }
+
+    @Override
+    public long warmedUpPages()
+    {
+        return 0;
+    }
+
+    @Override
+    public long backgroundFlushedPages()
+    {
+        return 0;
+    }
+
+    @Override
+    public long dirtyPages()
+    {
+        return 0;
+    }
+
     public <T extends Event> T observe( Class<T> type ) throws InterruptedException
     {
         return type.cast( record.take() );
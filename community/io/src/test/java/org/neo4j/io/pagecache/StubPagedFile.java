@@ -23,6 +23,9 @@ import java.io.IOException;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 
+import org.neo4j.collection.primitive.PrimitiveLongCollections;
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+
 public class StubPagedFile implements PagedFile
 {
     private final int pageSize;
@@ -69,6 +72,24 @@ public class StubPagedFile implements PagedFile
         return lastPageId;
     }
 
+    @Override
+    public PrimitiveLongIterator modifiedPagesSince( long nanoTime )
+    {
+        return PrimitiveLongCollections.emptyIterator();
+    }
+
+    @Override
+    public long startModifiedPagesEpoch()
+    {
+        return System.nanoTime();
+    }
+
+    @Override
+    public long mappedNanoTime()
+    {
+        return 0;
+    }
+
     @Override
     public void close() throws IOException
     {
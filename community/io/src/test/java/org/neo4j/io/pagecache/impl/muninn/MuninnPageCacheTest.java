@@ -24,23 +24,32 @@ import org.junit.Test;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.neo4j.collection.primitive.PrimitiveLongCollections;
 import org.neo4j.graphdb.mockfs.DelegatingFileSystemAbstraction;
 import org.neo4j.graphdb.mockfs.DelegatingStoreChannel;
 import org.neo4j.io.fs.FileSystemAbstraction;
 import org.neo4j.io.fs.StoreChannel;
 import org.neo4j.io.pagecache.PageCacheTest;
 import org.neo4j.io.pagecache.PageCursor;
+import org.neo4j.io.pagecache.PageSwapperFactory;
 import org.neo4j.io.pagecache.PagedFile;
 import org.neo4j.io.pagecache.RecordingPageCacheTracer;
+import org.neo4j.io.pagecache.impl.SingleFilePageSwapperFactory;
+import org.neo4j.io.pagecache.tracing.DefaultPageCacheTracer;
 import org.neo4j.io.pagecache.tracing.DelegatingPageCacheTracer;
 import org.neo4j.io.pagecache.tracing.EvictionRunEvent;
 import org.neo4j.io.pagecache.tracing.MajorFlushEvent;
 import org.neo4j.io.pagecache.tracing.PageCacheTracer;
 
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
@@ -48,7 +57,9 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_WRITE_LOCK;
 import static org.neo4j.io.pagecache.PagedFile.PF_NO_GROW;
+import static org.neo4j.io.pagecache.PagedFile.PF_READ_AHEAD;
 import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_READ_LOCK;
+import static org.neo4j.io.pagecache.PagedFile.PF_TRANSIENT;
 import static org.neo4j.io.pagecache.RecordingPageCacheTracer.Evict;
 import static org.neo4j.io.pagecache.RecordingPageCacheTracer.Fault;
 
@@ -285,6 +296,380 @@ public class MuninnPageCacheTest extends PageCacheTest<MuninnPageCache>
         }
     }
 
+    @Test
+    public void mustEvictPagesPinnedByTransientCursorsFirst() throws Exception
+    {
+        writeInitialDataTo( file( "a" ) );
+        RecordingPageCacheTracer tracer = new RecordingPageCacheTracer();
+
+        MuninnPageCache pageCache = createPageCache( fs, 4, 8, blockCacheFlush( tracer ) );
+        PagedFile pagedFile = pageCache.map( file( "a" ), 8 );
+
+        for ( int i = 0; i < 2; i++ )
+        {
+            try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_READ_LOCK ) )
+            {
+                assertTrue( cursor.next() );
+            }
+        }
+        try ( PageCursor cursor = pagedFile.io( 1, PF_SHARED_READ_LOCK | PF_TRANSIENT ) )
+        {
+            assertTrue( cursor.next() );
+        }
+        assertThat( tracer.observe( Fault.class ).pageId, is( 0L ) );
+        assertThat( tracer.observe( Fault.class ).pageId, is( 1L ) );
+
+        // The page that was only pinned by a transient cursor has no usage, so the eviction sweep takes it first.
+        int clockArm = pageCache.evictPages( 1, 0, tracer.beginPageEvictions( 1 ) );
+        assertThat( clockArm, is( 2 ) );
+        assertThat( tracer.observe( Evict.class ).pageId, is( 1L ) );
+    }
+
+    @Test
+    public void mustEvictPagesWithinThePartitionOfTheClockArm() throws Exception
+    {
+        generateFileWithRecords( file( "a" ), recordCount, recordSize );
+        MuninnPageCache pageCache = createPartitionedPageCache( 128, 2, PageCacheTracer.NULL );
+        try
+        {
+            assertThat( pageCache.partitionCount(), is( 2 ) );
+            try ( PagedFile pagedFile = pageCache.map( file( "a" ), filePageSize );
+                  PageCursor cursor = pagedFile.io( 0, PF_SHARED_READ_LOCK ) )
+            {
+                // Our home partition has 64 pages and keeps 30 of them free, so after these faults, its freelist
+                // holds exactly the pages it wants to keep free, and the background eviction thread stays parked.
+                for ( int i = 0; i < 34; i++ )
+                {
+                    assertTrue( cursor.next() );
+                }
+            }
+
+            // Our pages came from the front of our home partition. A clock arm near the end of the partition must
+            // wrap around to the start of the partition, rather than move on to the next one.
+            int firstPageIndex = (int) (Thread.currentThread().getId() % 2) * 64;
+            assertThat( pageCache.evictPages( 1, firstPageIndex + 60, EvictionRunEvent.NULL ),
+                    is( firstPageIndex + 1 ) );
+        }
+        finally
+        {
+            pageCache.close();
+        }
+    }
+
+    @Test( timeout = SEMI_LONG_TIMEOUT_MILLIS )
+    public void mustReadConcurrentlyFromMultiplePartitions() throws Exception
+    {
+        generateFileWithRecords( file( "a" ), recordCount, recordSize );
+        DefaultPageCacheTracer tracer = new DefaultPageCacheTracer();
+        MuninnPageCache pageCache = createPartitionedPageCache( maxPages, 4, tracer );
+        try
+        {
+            assertThat( pageCache.partitionCount(), is( 4 ) );
+            try ( PagedFile pagedFile = pageCache.map( file( "a" ), filePageSize ) )
+            {
+                List<Future<?>> scans = new ArrayList<>();
+                for ( int i = 0; i < 4; i++ )
+                {
+                    scans.add( executor.submit( () ->
+                    {
+                        int recordId = 0;
+                        try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_READ_LOCK ) )
+                        {
+                            while ( cursor.next() )
+                            {
+                                verifyRecordsMatchExpected( cursor );
+                                recordId += recordsPerFilePage;
+                            }
+                        }
+                        assertThat( recordId, is( recordCount ) );
+                        return null;
+                    } ) );
+                }
+                for ( Future<?> scan : scans )
+                {
+                    scan.get();
+                }
+            }
+            assertThat( tracer.evictions(), greaterThan( 0L ) );
+        }
+        finally
+        {
+            pageCache.close();
+        }
+    }
+
+    @Test( timeout = SEMI_LONG_TIMEOUT_MILLIS )
+    public void mustWriteOutDirtyPagesInTheBackgroundWhenAboveTheDirtyRatio() throws Exception
+    {
+        generateFileWithRecords( file( "a" ), recordCount, recordSize );
+        DefaultPageCacheTracer tracer = new DefaultPageCacheTracer();
+        MuninnPageCache pageCache = createPageCache( fs, 256, pageCachePageSize, tracer );
+        pageCache.setBackgroundFlushDirtyRatio( 0 );
+
+        try ( PagedFile pagedFile = pageCache.map( file( "a" ), filePageSize ) )
+        {
+            try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_WRITE_LOCK ) )
+            {
+                for ( int i = 0; i < 20; i++ )
+                {
+                    assertTrue( cursor.next() );
+                    cursor.putLong( x );
+                }
+            }
+
+            while ( tracer.backgroundFlushedPages() < 20 )
+            {
+                Thread.sleep( 10 );
+            }
+
+            // The background flusher has already written out all the dirty pages, so a flush finds nothing to write.
+            long flushes = tracer.flushes();
+            pagedFile.flushAndForce();
+            assertThat( tracer.flushes(), is( flushes ) );
+        }
+    }
+
+    @Test( timeout = SEMI_LONG_TIMEOUT_MILLIS )
+    public void backgroundFlushMustCountDirtyPagesAndGoThroughTheIOLimiter() throws Exception
+    {
+        generateFileWithRecords( file( "a" ), recordCount, recordSize );
+        DefaultPageCacheTracer tracer = new DefaultPageCacheTracer();
+        MuninnPageCache pageCache = createPageCache( fs, 256, pageCachePageSize, tracer );
+        pageCache.setBackgroundFlushDirtyRatio( 0 );
+        AtomicInteger limitedIOs = new AtomicInteger();
+        pageCache.setBackgroundFlushIOLimiter( ( previousStamp, recentlyCompletedIOs, flushable ) ->
+        {
+            limitedIOs.addAndGet( recentlyCompletedIOs );
+            return previousStamp;
+        } );
+
+        try ( PagedFile pagedFile = pageCache.map( file( "a" ), filePageSize ) )
+        {
+            try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_WRITE_LOCK ) )
+            {
+                for ( int i = 0; i < 20; i++ )
+                {
+                    assertTrue( cursor.next() );
+                    cursor.putLong( x );
+                }
+            }
+
+            while ( tracer.backgroundFlushedPages() < 20 )
+            {
+                Thread.sleep( 10 );
+            }
+
+            // The dirty page counter must come back down to zero, once the flusher has written everything out.
+            while ( tracer.dirtyPages() != 0 )
+            {
+                Thread.sleep( 10 );
+            }
+            assertThat( (long) limitedIOs.get(), is( tracer.backgroundFlushedPages() ) );
+        }
+    }
+
+    @Test( timeout = SEMI_LONG_TIMEOUT_MILLIS )
+    public void backgroundFlushMustOnlyWriteOutDirtyPagesAboveTheDirtyRatio() throws Exception
+    {
+        generateFileWithRecords( file( "a" ), recordCount, recordSize );
+        DefaultPageCacheTracer tracer = new DefaultPageCacheTracer();
+        MuninnPageCache pageCache = createPartitionedPageCache( 256, 1, tracer );
+        pageCache.setBackgroundFlushDirtyRatio( 50 );
+
+        try ( PagedFile pagedFile = pageCache.map( file( "a" ), filePageSize ) )
+        {
+            // 100 dirty pages is below half of the 256 pages, so the flusher must leave them for the checkpoint.
+            dirtyPages( pagedFile, 0, 100 );
+            while ( tracer.dirtyPages() != 100 )
+            {
+                Thread.sleep( 10 );
+            }
+            assertThat( tracer.backgroundFlushedPages(), is( 0L ) );
+
+            // 200 dirty pages is above the ratio, so the flusher must write out the excess, and no more than that.
+            dirtyPages( pagedFile, 100, 200 );
+            while ( tracer.backgroundFlushedPages() < 72 )
+            {
+                Thread.sleep( 10 );
+            }
+            while ( tracer.dirtyPages() != 128 )
+            {
+                Thread.sleep( 10 );
+            }
+            assertThat( tracer.backgroundFlushedPages(), is( 72L ) );
+        }
+    }
+
+    private void dirtyPages( PagedFile pagedFile, long fromPageId, long toPageId ) throws IOException
+    {
+        try ( PageCursor cursor = pagedFile.io( fromPageId, PF_SHARED_WRITE_LOCK ) )
+        {
+            for ( long pageId = fromPageId; pageId < toPageId; pageId++ )
+            {
+                assertTrue( cursor.next() );
+                cursor.putLong( x );
+            }
+        }
+    }
+
+    private MuninnPageCache createPartitionedPageCache( int maxPages, int partitionCount, PageCacheTracer tracer )
+    {
+        PageSwapperFactory swapperFactory = new SingleFilePageSwapperFactory();
+        swapperFactory.setFileSystemAbstraction( fs );
+        return new MuninnPageCache( swapperFactory, maxPages, pageCachePageSize, tracer, partitionCount );
+    }
+
+    @Test( timeout = SEMI_LONG_TIMEOUT_MILLIS )
+    public void mustReadAheadWhenScanningWithReadAheadHint() throws Exception
+    {
+        generateFileWithRecords( file( "a" ), recordCount, recordSize );
+        DefaultPageCacheTracer tracer = new DefaultPageCacheTracer();
+        MuninnPageCache pageCache = createPageCache( fs, 256, pageCachePageSize, tracer );
+
+        int recordId = 0;
+        try ( PagedFile pagedFile = pageCache.map( file( "a" ), filePageSize );
+              PageCursor cursor = pagedFile.io( 0, PF_SHARED_READ_LOCK | PF_READ_AHEAD ) )
+        {
+            while ( cursor.next() )
+            {
+                verifyRecordsMatchExpected( cursor );
+                recordId += recordsPerFilePage;
+            }
+        }
+
+        assertThat( recordId, is( recordCount ) );
+        assertThat( tracer.readAheadPages(), greaterThan( 0L ) );
+        assertThat( tracer.readAheadHits(), is( tracer.readAheadPages() ) );
+        assertThat( tracer.readAheadWaste(), is( 0L ) );
+    }
+
+    @Test( timeout = SEMI_LONG_TIMEOUT_MILLIS )
+    public void mustNotReadAheadWithoutReadAheadHint() throws Exception
+    {
+        generateFileWithRecords( file( "a" ), recordCount, recordSize );
+        DefaultPageCacheTracer tracer = new DefaultPageCacheTracer();
+        MuninnPageCache pageCache = createPageCache( fs, 256, pageCachePageSize, tracer );
+
+        try ( PagedFile pagedFile = pageCache.map( file( "a" ), filePageSize );
+              PageCursor cursor = pagedFile.io( 0, PF_SHARED_READ_LOCK ) )
+        {
+            while ( cursor.next() )
+            {
+                verifyRecordsMatchExpected( cursor );
+            }
+        }
+
+        assertThat( tracer.readAheadPages(), is( 0L ) );
+    }
+
+    @Test( timeout = SEMI_LONG_TIMEOUT_MILLIS )
+    public void mustCountUnusedReadAheadPagesAsWaste() throws Exception
+    {
+        generateFileWithRecords( file( "a" ), recordCount, recordSize );
+        DefaultPageCacheTracer tracer = new DefaultPageCacheTracer();
+        MuninnPageCache pageCache = createPageCache( fs, 256, pageCachePageSize, tracer );
+
+        try ( PagedFile pagedFile = pageCache.map( file( "a" ), filePageSize ) )
+        {
+            try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_READ_LOCK | PF_READ_AHEAD ) )
+            {
+                assertTrue( cursor.next() );
+                assertTrue( cursor.next() );
+                // Jumping away from the read-ahead window must not count the window as hit.
+                assertTrue( cursor.next( 400 ) );
+                verifyRecordsMatchExpected( cursor );
+            }
+        }
+
+        assertThat( tracer.readAheadPages(), greaterThan( 0L ) );
+        assertThat( tracer.readAheadHits(), is( 1L ) );
+        assertThat( tracer.readAheadWaste(), is( tracer.readAheadPages() - 1 ) );
+    }
+
+    @Test( timeout = SEMI_LONG_TIMEOUT_MILLIS )
+    public void mustTrackPagesPinnedForWritingSinceTheFileWasMapped() throws Exception
+    {
+        File file = file( "a" );
+        writeInitialDataTo( file );
+        MuninnPageCache pageCache = createPageCache( fs, 30, pageCachePageSize, PageCacheTracer.NULL );
+        long mappedNanoTime;
+        try ( PagedFile pagedFile = pageCache.map( file, filePageSize ) )
+        {
+            mappedNanoTime = pagedFile.mappedNanoTime();
+            try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_READ_LOCK ) )
+            {
+                assertTrue( cursor.next() );
+            }
+            assertFalse( pagedFile.modifiedPagesSince( mappedNanoTime ).hasNext() );
+
+            for ( long pageId : new long[] {200, 3, 64, 3, 1} )
+            {
+                try ( PageCursor cursor = pagedFile.io( pageId, PF_SHARED_WRITE_LOCK ) )
+                {
+                    assertTrue( cursor.next() );
+                    cursor.putLong( pageId );
+                }
+            }
+            long[] modifiedPages = PrimitiveLongCollections.asArray( pagedFile.modifiedPagesSince( mappedNanoTime ) );
+            assertArrayEquals( new long[] {1, 3, 64, 200}, modifiedPages );
+        }
+
+        try ( PagedFile pagedFile = pageCache.map( file, filePageSize ) )
+        {
+            assertFalse( pagedFile.modifiedPagesSince( mappedNanoTime ).hasNext() );
+            assertThat( pagedFile.mappedNanoTime(), greaterThan( mappedNanoTime ) );
+        }
+    }
+
+    @Test( timeout = SEMI_LONG_TIMEOUT_MILLIS )
+    public void mustTrackModifiedPagesSinceTheStartOfEachEpoch() throws Exception
+    {
+        File file = file( "a" );
+        writeInitialDataTo( file );
+        MuninnPageCache pageCache = createPageCache( fs, 30, pageCachePageSize, PageCacheTracer.NULL );
+        try ( PagedFile pagedFile = pageCache.map( file, filePageSize ) )
+        {
+            long mappedNanoTime = pagedFile.mappedNanoTime();
+            writeToPages( pagedFile, 1, 100 );
+            long firstEpoch = pagedFile.startModifiedPagesEpoch();
+            writeToPages( pagedFile, 2, 100 );
+            long secondEpoch = pagedFile.startModifiedPagesEpoch();
+            writeToPages( pagedFile, 3, 5000 );
+
+            assertArrayEquals( new long[] {1, 2, 3, 100, 5000},
+                    PrimitiveLongCollections.asArray( pagedFile.modifiedPagesSince( mappedNanoTime ) ) );
+            assertArrayEquals( new long[] {2, 3, 100, 5000},
+                    PrimitiveLongCollections.asArray( pagedFile.modifiedPagesSince( firstEpoch ) ) );
+            assertArrayEquals( new long[] {3, 5000},
+                    PrimitiveLongCollections.asArray( pagedFile.modifiedPagesSince( secondEpoch ) ) );
+            assertArrayEquals( new long[] {3, 5000},
+                    PrimitiveLongCollections.asArray( pagedFile.modifiedPagesSince( System.nanoTime() ) ) );
+
+            // Starting more epochs than are kept merges the oldest ones, which must not lose any pages
+            for ( int i = 0; i < 20; i++ )
+            {
+                pagedFile.startModifiedPagesEpoch();
+            }
+            writeToPages( pagedFile, 4 );
+            assertArrayEquals( new long[] {1, 2, 3, 4, 100, 5000},
+                    PrimitiveLongCollections.asArray( pagedFile.modifiedPagesSince( mappedNanoTime ) ) );
+            assertArrayEquals( new long[] {2, 3, 4, 100, 5000},
+                    PrimitiveLongCollections.asArray( pagedFile.modifiedPagesSince( firstEpoch ) ) );
+        }
+    }
+
+    private static void writeToPages( PagedFile pagedFile, long... pageIds ) throws IOException
+    {
+        for ( long pageId : pageIds )
+        {
+            try ( PageCursor cursor = pagedFile.io( pageId, PF_SHARED_WRITE_LOCK ) )
+            {
+                assertTrue( cursor.next() );
+                cursor.putLong( pageId );
+            }
+        }
+    }
+
     @Test( expected = IllegalStateException.class, timeout = SEMI_LONG_TIMEOUT_MILLIS )
     public void mustThrowIfMappingFileWouldOverflowReferenceCount() throws Exception
     {
@@ -116,4 +116,62 @@ public class DelegatingPageCacheTracer implements PageCacheTracer
     {
         return delegate.evictions();
     }
+
+    public PageFaultEvent beginReadAhead( long startFilePageId, int pageCount, PageSwapper swapper )
+    {
+        return delegate.beginReadAhead( startFilePageId, pageCount, swapper );
+    }
+
+    public void readAheadCompleted( long pagesHit, long pagesWasted )
+    {
+        delegate.readAheadCompleted( pagesHit, pagesWasted );
+    }
+
+    @Override
+    public void warmedUp( long pageCount )
+    {
+        delegate.warmedUp( pageCount );
+    }
+
+    @Override
+    public MajorFlushEvent beginBackgroundFlush()
+    {
+        return delegate.beginBackgroundFlush();
+    }
+
+    @Override
+    public void observedDirtyPages( long pageCount )
+    {
+        delegate.observedDirtyPages( pageCount );
+    }
+
+    public long readAheadPages()
+    {
+        return delegate.readAheadPages();
+    }
+
+    public long readAheadHits()
+    {
+        return delegate.readAheadHits();
+    }
+
+    public long readAheadWaste()
+    {
+        return delegate.readAheadWaste();
+    }
+
+    public long warmedUpPages()
+    {
+        return delegate.warmedUpPages();
+    }
+
+    public long backgroundFlushedPages()
+    {
+        return delegate.backgroundFlushedPages();
+    }
+
+    public long dirtyPages()
+    {
+        return delegate.dirtyPages();
+    }
 }
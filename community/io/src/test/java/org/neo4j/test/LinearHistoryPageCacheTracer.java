@@ -564,6 +564,33 @@ public final class LinearHistoryPageCacheTracer implements PageCacheTracer
         return add( new MajorFlushHEvent( null ) );
     }
 
+    @Override
+    public PageFaultEvent beginReadAhead( long startFilePageId, int pageCount, PageSwapper swapper )
+    {
+        return add( new PageFaultHEvent() );
+    }
+
+    @Override
+    public void readAheadCompleted( long pagesHit, long pagesWasted )
+    {
+    }
+
+    @Override
+    public void warmedUp( long pageCount )
+    {
+    }
+
+    @Override
+    public MajorFlushEvent beginBackgroundFlush()
+    {
+        return add( new MajorFlushHEvent( null ) );
+    }
+
+    @Override
+    public void observedDirtyPages( long pageCount )
+    {
+    }
+
     @Override
     public long faults()
     {
@@ -624,6 +651,42 @@ public final class LinearHistoryPageCacheTracer implements PageCacheTracer
         return 0;
     }
 
+    @Override
+    public long readAheadPages()
+    {
+        return 0;
+    }
+
+    @Override
+    public long readAheadHits()
+    {
+        return 0;
+    }
+
+    @Override
+    public long readAheadWaste()
+    {
+        return 0;
+    }
+
+    @Override
+    public long warmedUpPages()
+    {
+        return 0;
+    }
+
+    @Override
+    public long backgroundFlushedPages()
+    {
+        return 0;
+    }
+
+    @Override
+    public long dirtyPages()
+    {
+        return 0;
+    }
+
     private class HistoryPrinter implements Consumer<HEvent>
     {
         private final List<HEvent> concurrentIntervals;
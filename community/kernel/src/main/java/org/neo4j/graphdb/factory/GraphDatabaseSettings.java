@@ -166,6 +166,12 @@ public abstract class GraphDatabaseSettings
     @Description( "The number of Cypher query execution plans that are cached." )
     public static Setting<Integer> query_cache_size = setting( "dbms.query_cache_size", INTEGER, "1000", min( 0 ) );
 
+    @Description( "Write the queries in the Cypher plan cache to the store directory on shutdown, and plan them " +
+            "again in the background on the next startup, so that the cache is warm after a restart." )
+    @Internal
+    public static final Setting<Boolean> cypher_plan_cache_persistence =
+            setting( "unsupported.cypher.plan_cache_persistence", BOOLEAN, FALSE );
+
     @Description( "The threshold when a plan is considered stale. If any of the underlying" +
                   " statistics used to create the plan has changed more than this value, " +
                   "the plan is considered stale and will be replanned. " +
@@ -194,6 +200,13 @@ public abstract class GraphDatabaseSettings
     public static Setting<Long> cypher_idp_solver_duration_threshold = setting(
             "unsupported.cypher.idp_solver_duration_threshold", LONG, "1000", min( 10L ) );
 
+    @Description( "The amount of memory, in bytes, that a single sorting or aggregating operator in a read-only " +
+                  "Cypher query may use before it starts spilling rows to temporary files. The default, 0, keeps " +
+                  "everything in memory." )
+    @Internal
+    public static final Setting<Long> cypher_operator_memory_budget = setting(
+            "unsupported.cypher.operator_memory_budget", BYTES, "0", min( 0L ) );
+
     @Description("The minimum lifetime of a query plan before a query is considered for replanning")
     public static Setting<Long> cypher_min_replan_interval = setting( "cypher.min_replan_interval", DURATION, "1s" );
 
@@ -219,6 +232,12 @@ public abstract class GraphDatabaseSettings
     @Description("The maximum time interval of a transaction within which it should be completed.")
     public static final Setting<Long> transaction_timeout = setting( "dbms.transaction.timeout", DURATION, String.valueOf( UNSPECIFIED_TIMEOUT ) );
 
+    @Description( "The maximum amount of heap that the state of a single transaction may use, as estimated by the " +
+                  "database. Operations of a transaction whose state has grown beyond this are rejected, and the " +
+                  "transaction has to be rolled back. The default of 0 means that there is no limit." )
+    public static final Setting<Long> transaction_state_max_size =
+            setting( "dbms.transaction.state_max_size", BYTES, "0", min( 0L ) );
+
     @Description( "The maximum amount of time to wait for running transactions to complete before allowing "
                   + "initiated database shutdown to continue" )
     @Internal
@@ -343,6 +362,18 @@ public abstract class GraphDatabaseSettings
     public static final Setting<Boolean> multi_threaded_schema_index_population_enabled =
             setting( "unsupported.dbms.multi_threaded_schema_index_population_enabled", BOOLEAN, TRUE );
 
+    @Description( "Keep numbers and short strings of schema indexes in native indexes in the page cache, " +
+                  "instead of in Lucene. Indexes are rebuilt on startup when this setting changes." )
+    @Internal
+    public static final Setting<Boolean> native_schema_index_enabled =
+            setting( "unsupported.dbms.index.native_schema_index_enabled", BOOLEAN, FALSE );
+
+    @Description( "Keep the label scan store in the page cache, instead of in Lucene. The label scan store is " +
+                  "rebuilt on startup when this setting changes, and after a crash." )
+    @Internal
+    public static final Setting<Boolean> native_label_scan_store_enabled =
+            setting( "unsupported.dbms.index.native_label_scan_store_enabled", BOOLEAN, FALSE );
+
     // Store settings
     @Description("Make Neo4j keep the logical transaction logs for being able to backup the database. " +
             "Can be used for specifying the threshold to prune logical logs after. For example \"10 days\" will " +
@@ -357,10 +388,17 @@ public abstract class GraphDatabaseSettings
     public static final Setting<Long> logical_log_rotation_threshold = setting( "dbms.tx_log.rotation.size", BYTES, "250M", min( 1024*1024L /*1Mb*/ ) );
 
     @Description("Use a quick approach for rebuilding the ID generators. This give quicker recovery time, " +
-            "but will limit the ability to reuse the space of deleted entities.")
+            "since only the IDs free at the last checkpoint and the IDs freed by recovered transactions are " +
+            "considered for reuse, instead of scanning the stores for the space of all deleted entities.")
     @Internal
     public static final Setting<Boolean> rebuild_idgenerators_fast = setting("unsupported.dbms.id_generator_fast_rebuild_enabled", BOOLEAN, TRUE );
 
+    @Description("Number of IDs each thread allocates at a time for nodes, relationships, properties and " +
+            "other high volume records, so that concurrent transactions don't contend for the ID generators. " +
+            "`0` allocates every ID directly from the ID generator.")
+    @Internal
+    public static final Setting<Integer> id_batch_size_per_thread = setting( "unsupported.dbms.id_generator_batch_size_per_thread", INTEGER, "0", min( 0 ) );
+
     // Store memory settings
     @Description("Target size for pages of mapped memory. If set to 0, then a reasonable default is chosen, " +
                  "depending on the storage device used.")
@@ -422,6 +460,15 @@ public abstract class GraphDatabaseSettings
     public static final Setting<String> pagecache_swapper =
             setting( "dbms.memory.pagecache.swapper", STRING, (String) null );
 
+    @Description( "The percentage of the page cache that is allowed to be dirty, before a background flusher starts " +
+                  "writing out dirty pages in between checkpoints. This spreads the write IO out over time, and makes " +
+                  "checkpoints shorter. The default of 50 keeps at least half of the page cache clean, so page faults can " +
+                  "usually evict a clean page instead of waiting for a dirty one to be written out, while still " +
+                  "leaving plenty of room for pages that are written to repeatedly between checkpoints. " +
+                  "Setting this to 100 disables the background flusher." )
+    public static final Setting<Integer> pagecache_background_flush_dirty_ratio = setting(
+            "dbms.memory.pagecache.background_flush.dirty_ratio", INTEGER, "50", min( 0 ), max( 100 ) );
+
     /**
      * Block size properties values depends from selected record format.
      * We can't figured out record format until it will be selected by corresponding edition.
@@ -26,6 +26,8 @@ import java.lang.reflect.Method;
 import java.time.Clock;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.LockSupport;
@@ -40,6 +42,7 @@ import org.neo4j.helpers.collection.Visitor;
 import org.neo4j.io.fs.FileSystemAbstraction;
 import org.neo4j.io.pagecache.IOLimiter;
 import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.io.pagecache.PagedFile;
 import org.neo4j.kernel.api.KernelAPI;
 import org.neo4j.kernel.api.TokenNameLookup;
 import org.neo4j.kernel.api.exceptions.KernelException;
@@ -258,6 +261,7 @@ public class NeoStoreDataSource implements Lifecycle, IndexProviders
     }
 
     public static final String DEFAULT_DATA_SOURCE_NAME = "nioneodb";
+    private static final int MAX_PAGE_CHANGE_TRACKING_POINTS = 16;
 
     private final Monitors monitors;
     private final Tracers tracers;
@@ -308,6 +312,12 @@ public class NeoStoreDataSource implements Lifecycle, IndexProviders
     private TransactionLogModule transactionLogModule;
     private KernelModule kernelModule;
 
+    // The times since which the page cache has tracked the changes to the mapped store files, oldest first, each
+    // with the last transaction that was committed at that time. Guarded by the monitor lock on this data source.
+    private final long[] pageChangeTrackingNanoTimes = new long[MAX_PAGE_CHANGE_TRACKING_POINTS];
+    private final long[] pageChangeTrackingTransactionIds = new long[MAX_PAGE_CHANGE_TRACKING_POINTS];
+    private int pageChangeTrackingPoints;
+
     /**
      * Note that the tremendous number of dependencies for this class, clearly, is an architecture smell. It is part
      * of the ongoing work on introducing the Kernel API, where components that were previously spread throughout the
@@ -471,6 +481,7 @@ public class NeoStoreDataSource implements Lifecycle, IndexProviders
                     transactionIdStore,
                     logVersionRepository,
                     monitors.newMonitor( RecoveryVisitor.Monitor.class ), monitors.newMonitor( Recovery.Monitor.class ),
+                    monitors.newMonitor( LogFileRecoverer.Monitor.class ),
                     transactionLogModule.logFiles(), startupStatistics,
                     storageEngine, logEntryReader );
 
@@ -540,6 +551,15 @@ public class NeoStoreDataSource implements Lifecycle, IndexProviders
          * kernel panics.
          */
         databaseHealth.healed();
+
+        // Nothing is applying transactions yet, so the last closed transaction is also the last committed one
+        long startedTransactionId =
+                dependencies.resolveDependency( TransactionIdStore.class ).getLastClosedTransactionId();
+        synchronized ( this )
+        {
+            pageChangeTrackingPoints = 0;
+            addPageChangeTrackingPoint( System.nanoTime(), startedTransactionId );
+        }
     }
 
     private static RecordFormats selectStoreFormats( Config config, File storeDir, FileSystemAbstraction fs,
@@ -734,6 +754,7 @@ public class NeoStoreDataSource implements Lifecycle, IndexProviders
             LogVersionRepository logVersionRepository,
             RecoveryVisitor.Monitor recoveryVisitorMonitor,
             Recovery.Monitor recoveryMonitor,
+            LogFileRecoverer.Monitor logFileRecovererMonitor,
             final PhysicalLogFiles logFiles,
             final StartupStatisticsProvider startupStatistics,
             StorageEngine storageEngine,
@@ -743,7 +764,8 @@ public class NeoStoreDataSource implements Lifecycle, IndexProviders
                 recoveryVisitorMonitor );
 
         final Visitor<LogVersionedStoreChannel,Exception> logFileRecoverer =
-                new LogFileRecoverer( logEntryReader, recoveryVisitor );
+                new LogFileRecoverer( logEntryReader, recoveryVisitor, logFiles, fileSystemAbstraction,
+                        logFileRecovererMonitor );
 
         final LatestCheckPointFinder checkPointFinder =
                 new LatestCheckPointFinder( logFiles, fileSystemAbstraction, logEntryReader );
@@ -864,6 +886,7 @@ public class NeoStoreDataSource implements Lifecycle, IndexProviders
         {
             return;
         }
+        pageChangeTrackingPoints = 0;
 
         CheckPointer checkPointer = transactionLogModule.checkPointing();
 
@@ -957,6 +980,93 @@ public class NeoStoreDataSource implements Lifecycle, IndexProviders
         return kernelModule.fileListing().listStoreFiles( includeLogs );
     }
 
+    /**
+     * Start a new epoch of {@link PagedFile#modifiedPagesSince(long) modified page} tracking in the mapped store
+     * files, before making a copy of the store. Pages that were changed before now are then no longer needed to
+     * bring that copy up to date later, when it is at, or past, the last transaction committed now.
+     */
+    public synchronized void startPageChangeEpoch() throws IOException
+    {
+        if ( pageChangeTrackingPoints == 0 )
+        {
+            return;
+        }
+        try ( ResourceIterator<StoreFileMetadata> files = listStoreFiles( false ) )
+        {
+            while ( files.hasNext() )
+            {
+                Optional<PagedFile> mapping = pageCache.getExistingMapping( files.next().file() );
+                if ( mapping.isPresent() )
+                {
+                    try ( PagedFile pagedFile = mapping.get() )
+                    {
+                        pagedFile.startModifiedPagesEpoch();
+                    }
+                }
+            }
+        }
+        // Transactions committed after this are applied after the new epochs started, so their changes are tracked
+        long nanoTime = System.nanoTime();
+        addPageChangeTrackingPoint( nanoTime,
+                dependencies.resolveDependency( TransactionIdStore.class ).getLastCommittedTransactionId() );
+    }
+
+    private void addPageChangeTrackingPoint( long nanoTime, long transactionId )
+    {
+        if ( pageChangeTrackingPoints == MAX_PAGE_CHANGE_TRACKING_POINTS )
+        {
+            // Drop the second oldest point, since the oldest one is still valid and covers more copies
+            int remaining = MAX_PAGE_CHANGE_TRACKING_POINTS - 2;
+            System.arraycopy( pageChangeTrackingNanoTimes, 2, pageChangeTrackingNanoTimes, 1, remaining );
+            System.arraycopy( pageChangeTrackingTransactionIds, 2, pageChangeTrackingTransactionIds, 1, remaining );
+            pageChangeTrackingPoints--;
+        }
+        pageChangeTrackingNanoTimes[pageChangeTrackingPoints] = nanoTime;
+        pageChangeTrackingTransactionIds[pageChangeTrackingPoints] = transactionId;
+        pageChangeTrackingPoints++;
+    }
+
+    /**
+     * Get the latest time since which the page cache has tracked all changes that a copy of the store at the given
+     * transaction may be missing. That is the start of the last {@link #startPageChangeEpoch() epoch} when the last
+     * committed transaction was not after the given one, or the start of this data source, after recovery.
+     *
+     * @param transactionId the last transaction id of the copy of the store.
+     * @return the {@link System#nanoTime()} to get the {@link PagedFile#modifiedPagesSince(long) modified pages}
+     * since, or an empty optional if the transaction is older than what the page cache has tracked.
+     */
+    public synchronized OptionalLong getPageChangeTrackingNanoTime( long transactionId )
+    {
+        for ( int i = pageChangeTrackingPoints - 1; i >= 0; i-- )
+        {
+            if ( pageChangeTrackingTransactionIds[i] <= transactionId )
+            {
+                return OptionalLong.of( pageChangeTrackingNanoTimes[i] );
+            }
+        }
+        return OptionalLong.empty();
+    }
+
+    /**
+     * Get the page cache mapping of the given store file, if it has been mapped ever since the given time, so that
+     * its {@link PagedFile#modifiedPagesSince(long) modified pages} since then are all the pages that may have changed.
+     *
+     * @param file the store file.
+     * @param nanoTime a {@link #getPageChangeTrackingNanoTime(long) page change tracking time}.
+     * @return the mapping, which must be closed, or an empty optional if the file isn't mapped, or was mapped after
+     * the given time.
+     */
+    public Optional<PagedFile> getMappingTrackingChangesSince( File file, long nanoTime ) throws IOException
+    {
+        Optional<PagedFile> mapping = pageCache.getExistingMapping( file );
+        if ( mapping.isPresent() && mapping.get().mappedNanoTime() - nanoTime > 0 )
+        {
+            mapping.get().close();
+            return Optional.empty();
+        }
+        return mapping;
+    }
+
     public void registerDiagnosticsWith( DiagnosticsManager manager )
     {
         storageEngine.registerDiagnostics( manager );
@@ -53,6 +53,13 @@ public interface KernelTransactionHandle
      */
     long startTime();
 
+    /**
+     * An estimate of the heap held by the transaction state of the underlying transaction.
+     *
+     * @return the estimated number of bytes, or {@code 0} if the underlying transaction has been closed.
+     */
+    long estimatedTxStateHeapUsage();
+
     /**
      * Check if the underlying transaction is open.
      *
@@ -39,6 +39,12 @@ import org.neo4j.storageengine.api.txstate.ReadableTransactionState;
  */
 public interface TransactionState extends ReadableTransactionState
 {
+    /**
+     * @return a rough estimate of the number of bytes of heap held by this transaction state. The estimate only grows
+     * as changes are made, also when later changes in the same transaction undo earlier ones.
+     */
+    long estimatedHeapUsage();
+
     // ENTITY RELATED
 
     void relationshipDoCreate( long id, int relationshipTypeId, long startNodeId, long endNodeId );
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.guard;
+
+import org.neo4j.kernel.impl.api.KernelStatement;
+import org.neo4j.kernel.impl.api.KernelTransactionImplementation;
+
+/**
+ * Guard that checks the estimated heap usage of the transaction state of kernel transactions.
+ * As soon as the transaction state has grown larger than the limit {@link GuardTxStateSizeException} will be thrown.
+ *
+ * @see KernelTransactionImplementation#estimatedTxStateHeapUsage()
+ */
+public class TxStateSizeGuard implements Guard
+{
+    private final long maxTxStateSize;
+
+    public TxStateSizeGuard( long maxTxStateSize )
+    {
+        this.maxTxStateSize = maxTxStateSize;
+    }
+
+    @Override
+    public void check( KernelStatement statement )
+    {
+        long usage = statement.getTransaction().estimatedTxStateHeapUsage();
+        if ( usage > maxTxStateSize )
+        {
+            throw new GuardTxStateSizeException( "Transaction state is estimated to use " + usage +
+                    " bytes, which is more than the limit of " + maxTxStateSize + " bytes." );
+        }
+    }
+}
@@ -402,6 +402,16 @@ public class KernelTransactionImplementation implements KernelTransaction, TxSta
         return txState != null && txState.hasChanges();
     }
 
+    /**
+     * @return an estimate of the heap held by the transaction state of this transaction, in bytes.
+     * @see TransactionState#estimatedHeapUsage()
+     */
+    public long estimatedTxStateHeapUsage()
+    {
+        TransactionState state = txState;
+        return state == null ? 0 : state.estimatedHeapUsage();
+    }
+
     private void markAsClosed( long txId )
     {
         assertTransactionOpen();
@@ -75,6 +75,13 @@ class KernelTransactionImplementationHandle implements KernelTransactionHandle
         return startTime;
     }
 
+    @Override
+    public long estimatedTxStateHeapUsage()
+    {
+        long usage = tx.estimatedTxStateHeapUsage();
+        return isOpen() ? usage : 0;
+    }
+
     @Override
     public boolean isOpen()
     {
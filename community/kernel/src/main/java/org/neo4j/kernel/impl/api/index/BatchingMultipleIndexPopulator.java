@@ -35,10 +35,12 @@ import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntPredicate;
 import java.util.function.Supplier;
 
 import org.neo4j.function.Predicates;
 import org.neo4j.helpers.Exceptions;
+import org.neo4j.helpers.collection.Visitor;
 import org.neo4j.kernel.api.exceptions.index.IndexEntryConflictException;
 import org.neo4j.kernel.api.exceptions.index.IndexPopulationFailedKernelException;
 import org.neo4j.kernel.api.index.IndexConfiguration;
@@ -63,6 +65,10 @@ import static org.neo4j.helpers.NamedThreadFactory.daemon;
  * the queue using {@link MultipleIndexUpdater}. If queue size never reaches {@link #QUEUE_THRESHOLD} than all queued
  * concurrent updates are flushed after the store scan in {@link #flipAfterPopulation()}.
  * <p>
+ * The store scan itself reads {@link #SCAN_PARTITIONS} ranges of node ids concurrently, see
+ * {@link IndexStoreView#visitNodesInPartitions(int, IntPredicate, IntPredicate, Visitor)}. Nodes are then not visited
+ * in id order, so the {@link PartitionedStoreScan} decides which queued updates are applied.
+ * <p>
  * Inner {@link ExecutorService executor} is shut down after the store scan completes.
  */
 public class BatchingMultipleIndexPopulator extends MultipleIndexPopulator
@@ -71,6 +77,7 @@ public class BatchingMultipleIndexPopulator extends MultipleIndexPopulator
     static final String TASK_QUEUE_SIZE_NAME = "task_queue_size";
     static final String AWAIT_TIMEOUT_MINUTES_NAME = "await_timeout_minutes";
     static final String BATCH_SIZE_NAME = "batch_size";
+    static final String SCAN_PARTITIONS_NAME = "scan_partitions";
 
     private static final String EOL = System.lineSeparator();
     private static final String FLUSH_THREAD_NAME_PREFIX = "Index Population Flush Thread";
@@ -80,10 +87,13 @@ public class BatchingMultipleIndexPopulator extends MultipleIndexPopulator
             getNumberOfPopulationWorkers() * 2 );
     private final int AWAIT_TIMEOUT_MINUTES = FeatureToggles.getInteger( getClass(), AWAIT_TIMEOUT_MINUTES_NAME, 30 );
     private final int BATCH_SIZE = FeatureToggles.getInteger( getClass(), BATCH_SIZE_NAME, 10_000 );
+    private final int SCAN_PARTITIONS = FeatureToggles.getInteger( getClass(), SCAN_PARTITIONS_NAME,
+            getNumberOfPopulationWorkers() );
 
     private final AtomicLong activeTasks = new AtomicLong();
     private final ExecutorService executor;
     private final Map<IndexPopulation,List<NodePropertyUpdate>> batchedUpdates = new HashMap<>();
+    private PartitionedStoreScan<IndexPopulationFailedKernelException> storeScan;
 
     /**
      * Creates a new multi-threaded populator for the given store view.
@@ -119,6 +129,16 @@ public class BatchingMultipleIndexPopulator extends MultipleIndexPopulator
         return new BatchingStoreScan<>( storeScan );
     }
 
+    @Override
+    protected StoreScan<IndexPopulationFailedKernelException> visitNodes( IntPredicate labelIdFilter,
+            IntPredicate propertyKeyIdFilter,
+            Visitor<NodePropertyUpdates,IndexPopulationFailedKernelException> propertyUpdatesVisitor )
+    {
+        storeScan = storeView.visitNodesInPartitions( SCAN_PARTITIONS, labelIdFilter, propertyKeyIdFilter,
+                propertyUpdatesVisitor );
+        return storeScan;
+    }
+
     @Override
     protected IndexPopulation createPopulation( IndexPopulator populator,
             IndexDescriptor descriptor, IndexConfiguration config, SchemaIndexProvider.Descriptor providerDescriptor,
@@ -136,7 +156,14 @@ public class BatchingMultipleIndexPopulator extends MultipleIndexPopulator
             log.debug( "Populating from queue." + EOL + this );
             flushAll();
             awaitCompletion();
-            super.populateFromQueue( currentlyIndexedNodeId );
+            if ( storeScan == null )
+            {
+                super.populateFromQueue( currentlyIndexedNodeId );
+            }
+            else
+            {
+                populateFromQueueIfAvailable( storeScan::hasVisited, storeScan::isInFlight );
+            }
             log.debug( "Drained queue and all batched updates." + EOL + this );
         }
     }
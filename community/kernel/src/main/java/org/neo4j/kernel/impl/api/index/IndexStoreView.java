@@ -47,6 +47,23 @@ public interface IndexStoreView extends PropertyAccessor
             Visitor<NodePropertyUpdates, FAILURE> propertyUpdateVisitor,
             Visitor<NodeLabelUpdate, FAILURE> labelUpdateVisitor );
 
+    /**
+     * Retrieve all nodes in the database which has got one or more of the given labels AND
+     * one or more of the given property key ids, reading the node store in up to {@code partitions}
+     * ranges of node ids concurrently. The visitor is called from the thread running the scan only.
+     * <p>
+     * By default the nodes are read sequentially, in a single partition, using
+     * {@link #visitNodes(IntPredicate, IntPredicate, Visitor, Visitor)}.
+     *
+     * @return a {@link PartitionedStoreScan} to start and to stop the scan.
+     */
+    default <FAILURE extends Exception> PartitionedStoreScan<FAILURE> visitNodesInPartitions( int partitions,
+            IntPredicate labelIdFilter, IntPredicate propertyKeyIdFilter,
+            Visitor<NodePropertyUpdates, FAILURE> propertyUpdateVisitor )
+    {
+        return new SinglePartitionStoreScan<>( this, labelIdFilter, propertyKeyIdFilter, propertyUpdateVisitor );
+    }
+
     /**
      * Produces {@link NodePropertyUpdate} objects from reading node {@code nodeId}, its labels and properties
      * and puts those updates into {@code target}.
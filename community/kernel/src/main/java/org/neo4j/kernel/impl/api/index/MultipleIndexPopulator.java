@@ -20,6 +20,7 @@
 package org.neo4j.kernel.impl.api.index;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -30,6 +31,7 @@ import java.util.Queue;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.function.IntPredicate;
+import java.util.function.LongPredicate;
 
 import org.neo4j.collection.primitive.PrimitiveLongSet;
 import org.neo4j.function.ThrowingConsumer;
@@ -85,12 +87,16 @@ public class MultipleIndexPopulator implements IndexPopulator
     // to have fast #size() method since it might be drained in batches
     protected final Queue<NodePropertyUpdate> queue = new LinkedBlockingQueue<>();
 
+    // Queued updates for nodes that a partitioned scan has read, but not yet visited. They can only be applied once
+    // the scan has visited their nodes. Only accessed by the thread populating from the queue.
+    private final Queue<NodePropertyUpdate> deferredQueue = new ArrayDeque<>();
+
     // Populators are added into this list. The same thread adding populators will later call #indexAllNodes.
     // Multiple concurrent threads might fail individual populations.
     // Failed populations are removed from this list while iterating over it.
     private final List<IndexPopulation> populations = new CopyOnWriteArrayList<>();
 
-    private final IndexStoreView storeView;
+    protected final IndexStoreView storeView;
     private final LogProvider logProvider;
     protected final Log log;
 
@@ -156,7 +162,14 @@ public class MultipleIndexPopulator implements IndexPopulator
         IntPredicate labelIdFilter = (labelId) -> contains( labelIds, labelId );
         IntPredicate propertyKeyIdFilter = (propertyKeyId) -> contains( propertyKeyIds, propertyKeyId );
 
-        return storeView.visitNodes( labelIdFilter, propertyKeyIdFilter, new NodePopulationVisitor(), null );
+        return visitNodes( labelIdFilter, propertyKeyIdFilter, new NodePopulationVisitor() );
+    }
+
+    protected StoreScan<IndexPopulationFailedKernelException> visitNodes( IntPredicate labelIdFilter,
+            IntPredicate propertyKeyIdFilter,
+            Visitor<NodePropertyUpdates,IndexPopulationFailedKernelException> propertyUpdatesVisitor )
+    {
+        return storeView.visitNodes( labelIdFilter, propertyKeyIdFilter, propertyUpdatesVisitor, null );
     }
 
     /**
@@ -313,30 +326,52 @@ public class MultipleIndexPopulator implements IndexPopulator
 
     protected void populateFromQueue( long currentlyIndexedNodeId )
     {
-        populateFromQueueIfAvailable( currentlyIndexedNodeId );
+        populateFromQueueIfAvailable( nodeId -> nodeId <= currentlyIndexedNodeId, nodeId -> false );
     }
 
-    private void populateFromQueueIfAvailable( long currentlyIndexedNodeId )
+    /**
+     * Applies queued updates for nodes that the scan has visited, and drops those for nodes it has yet to read,
+     * since the scan will see them. Updates for nodes that are in flight, read but not yet visited, are kept until
+     * a later call.
+     *
+     * @param visited whether the scan has visited the node with the given id.
+     * @param inFlight whether the scan has read, but not yet visited, the node with the given id.
+     */
+    protected void populateFromQueueIfAvailable( LongPredicate visited, LongPredicate inFlight )
     {
-        if ( !queue.isEmpty() )
+        if ( !queue.isEmpty() || !deferredQueue.isEmpty() )
         {
             try ( MultipleIndexUpdater updater = newPopulatingUpdater( storeView ) )
             {
-                do
+                // deferred updates are older than the queued ones, so they go first
+                for ( int deferred = deferredQueue.size(); deferred > 0; deferred-- )
+                {
+                    populateFromQueue( updater, deferredQueue.poll(), visited, inFlight );
+                }
+                while ( !queue.isEmpty() )
                 {
                     // no need to check for null as nobody else is emptying this queue
-                    NodePropertyUpdate update = queue.poll();
-                    // TODO: We see updates twice here from IndexStatisticsTest
-                    if ( update.getNodeId() <= currentlyIndexedNodeId )
-                    {
-                        updater.process( update );
-                    }
+                    populateFromQueue( updater, queue.poll(), visited, inFlight );
                 }
-                while ( !queue.isEmpty() );
             }
         }
     }
 
+    private void populateFromQueue( MultipleIndexUpdater updater, NodePropertyUpdate update,
+            LongPredicate visited, LongPredicate inFlight )
+    {
+        // The scan may have read a node after this update was applied to it, in which case the populator sees the
+        // same change twice. Populating updaters apply updates idempotently, see IndexPopulator#newPopulatingUpdater
+        if ( visited.test( update.getNodeId() ) )
+        {
+            updater.process( update );
+        }
+        else if ( inFlight.test( update.getNodeId() ) )
+        {
+            deferredQueue.add( update );
+        }
+    }
+
     private void forEachPopulation( ThrowingConsumer<IndexPopulation,Exception> action )
     {
         for ( IndexPopulation population : populations )
@@ -498,7 +533,7 @@ public class MultipleIndexPopulator implements IndexPopulator
         private void flip() throws FlipFailedKernelException
         {
             flipper.flip( () -> {
-                populateFromQueueIfAvailable( Long.MAX_VALUE );
+                populateFromQueueIfAvailable( nodeId -> true, nodeId -> false );
                 IndexSample sample = populator.sampleResult();
                 storeView.replaceIndexCounts( descriptor, sample.uniqueValues(), sample.sampleSize(),
                         sample.indexSize() );
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.api.index;
+
+/**
+ * A {@link StoreScan} that reads several ranges of node ids concurrently. Updates are still handed to the visitor
+ * from the thread running the scan, but one batch of a partition at a time, so nodes are not visited in id order
+ * and a node can have been read some time before it is visited.
+ */
+public interface PartitionedStoreScan<FAILURE extends Exception> extends StoreScan<FAILURE>
+{
+    /**
+     * @param nodeId id of the node.
+     * @return whether what the scan read for the node has been handed to the visitor.
+     */
+    boolean hasVisited( long nodeId );
+
+    /**
+     * @param nodeId id of the node.
+     * @return whether the scan has read the node, but not yet handed what it read to the visitor.
+     */
+    boolean isInFlight( long nodeId );
+}
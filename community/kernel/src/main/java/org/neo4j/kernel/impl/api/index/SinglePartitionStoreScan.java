@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.api.index;
+
+import java.util.function.IntPredicate;
+
+import org.neo4j.helpers.collection.Visitor;
+import org.neo4j.storageengine.api.schema.PopulationProgress;
+
+/**
+ * A {@link PartitionedStoreScan} with a single partition, for store views that can only scan the node store
+ * sequentially, using {@link IndexStoreView#visitNodes(IntPredicate, IntPredicate, Visitor, Visitor)}.
+ * Nodes are then visited in id order, so no node is ever in flight.
+ */
+class SinglePartitionStoreScan<FAILURE extends Exception> implements PartitionedStoreScan<FAILURE>
+{
+    private final StoreScan<FAILURE> scan;
+    private long visitedUpTo = -1;
+
+    SinglePartitionStoreScan( IndexStoreView storeView, IntPredicate labelIdFilter, IntPredicate propertyKeyIdFilter,
+            Visitor<NodePropertyUpdates,FAILURE> propertyUpdateVisitor )
+    {
+        this.scan = storeView.visitNodes( labelIdFilter, propertyKeyIdFilter, updates ->
+        {
+            visitedUpTo = updates.getNodeId();
+            return propertyUpdateVisitor.visit( updates );
+        }, null );
+    }
+
+    @Override
+    public boolean hasVisited( long nodeId )
+    {
+        return nodeId <= visitedUpTo;
+    }
+
+    @Override
+    public boolean isInFlight( long nodeId )
+    {
+        return false;
+    }
+
+    @Override
+    public void run() throws FAILURE
+    {
+        scan.run();
+    }
+
+    @Override
+    public void stop()
+    {
+        scan.stop();
+    }
+
+    @Override
+    public PopulationProgress getProgress()
+    {
+        return scan.getProgress();
+    }
+}
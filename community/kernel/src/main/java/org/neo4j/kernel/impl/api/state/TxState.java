@@ -19,6 +19,7 @@
  */
 package org.neo4j.kernel.impl.api.state;
 
+import java.lang.reflect.Array;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -30,6 +31,7 @@ import org.neo4j.collection.primitive.Primitive;
 import org.neo4j.collection.primitive.PrimitiveIntIterator;
 import org.neo4j.collection.primitive.PrimitiveIntObjectMap;
 import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.collection.primitive.PrimitiveLongObjectMap;
 import org.neo4j.collection.primitive.PrimitiveLongSet;
 import org.neo4j.cursor.Cursor;
 import org.neo4j.helpers.collection.Iterables;
@@ -58,6 +60,7 @@ import org.neo4j.kernel.impl.api.cursor.TxSingleRelationshipCursor;
 import org.neo4j.kernel.impl.api.store.RelationshipIterator;
 import org.neo4j.kernel.impl.util.InstanceCache;
 import org.neo4j.kernel.impl.util.diffsets.DiffSets;
+import org.neo4j.kernel.impl.util.diffsets.PrimitiveLongDiffSets;
 import org.neo4j.kernel.impl.util.diffsets.RelationshipDiffSets;
 import org.neo4j.storageengine.api.Direction;
 import org.neo4j.storageengine.api.LabelItem;
@@ -93,47 +96,56 @@ import static org.neo4j.kernel.impl.api.PropertyValueComparison.SuperType.STRING
  */
 public final class TxState implements TransactionState, RelationshipVisitor.Home
 {
-    private Map<Integer/*Label ID*/, LabelState.Mutable> labelStatesMap;
+    /*
+     * Rough per-change heap costs, used for the estimate returned by #estimatedHeapUsage(). An entity id costs up to
+     * a boxed Long and a hash set entry in some diff set, and a state object costs the object itself, its
+     * collections, and a slot in one of the primitive state maps.
+     */
+    private static final long ENTITY_ID_HEAP_SIZE = 48;
+    private static final long STATE_HEAP_SIZE = 128;
+    private static final long PROPERTY_HEAP_SIZE = 64;
+
+    private PrimitiveLongObjectMap<LabelState.Mutable> labelStatesMap;
     private static final LabelState.Defaults LABEL_STATE = new LabelState.Defaults()
     {
         @Override
-        Map<Integer, LabelState.Mutable> getMap( TxState state )
+        PrimitiveLongObjectMap<LabelState.Mutable> getMap( TxState state )
         {
             return state.labelStatesMap;
         }
 
         @Override
-        void setMap( TxState state, Map<Integer, LabelState.Mutable> map )
+        void setMap( TxState state, PrimitiveLongObjectMap<LabelState.Mutable> map )
         {
             state.labelStatesMap = map;
         }
     };
-    private Map<Long/*Node ID*/, NodeStateImpl> nodeStatesMap;
+    private PrimitiveLongObjectMap<NodeStateImpl> nodeStatesMap;
     private static final NodeStateImpl.Defaults NODE_STATE = new NodeStateImpl.Defaults()
     {
         @Override
-        Map<Long, NodeStateImpl> getMap( TxState state )
+        PrimitiveLongObjectMap<NodeStateImpl> getMap( TxState state )
         {
             return state.nodeStatesMap;
         }
 
         @Override
-        void setMap( TxState state, Map<Long, NodeStateImpl> map )
+        void setMap( TxState state, PrimitiveLongObjectMap<NodeStateImpl> map )
         {
             state.nodeStatesMap = map;
         }
     };
-    private Map<Long/*Relationship ID*/, RelationshipStateImpl> relationshipStatesMap;
+    private PrimitiveLongObjectMap<RelationshipStateImpl> relationshipStatesMap;
     private static final RelationshipStateImpl.Defaults RELATIONSHIP_STATE = new RelationshipStateImpl.Defaults()
     {
         @Override
-        Map<Long, RelationshipStateImpl> getMap( TxState state )
+        PrimitiveLongObjectMap<RelationshipStateImpl> getMap( TxState state )
         {
             return state.relationshipStatesMap;
         }
 
         @Override
-        void setMap( TxState state, Map<Long, RelationshipStateImpl> map )
+        void setMap( TxState state, PrimitiveLongObjectMap<RelationshipStateImpl> map )
         {
             state.relationshipStatesMap = map;
         }
@@ -151,7 +163,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
     private PropertyChanges propertyChangesForNodes;
 
     // Tracks added and removed nodes, not modified nodes
-    private DiffSets<Long> nodes;
+    private PrimitiveLongDiffSets nodes;
 
     // Tracks added and removed relationships, not modified relationships
     private RelationshipDiffSets<Long> relationships;
@@ -179,6 +191,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
     private InstanceCache<TxSingleLabelCursor> singleLabelCursor;
 
     private boolean hasChanges, hasDataChanges;
+    private long estimatedHeapUsage;
 
     public TxState()
     {
@@ -501,13 +514,57 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
         return hasChanges;
     }
 
+    @Override
+    public long estimatedHeapUsage()
+    {
+        return estimatedHeapUsage;
+    }
+
+    /** Called by {@link StateDefaults} whenever it creates the state of a node, relationship or label. */
+    void stateCreated()
+    {
+        estimatedHeapUsage += STATE_HEAP_SIZE;
+    }
+
+    private void entityIdsAdded( int count )
+    {
+        estimatedHeapUsage += count * ENTITY_ID_HEAP_SIZE;
+    }
+
+    private void propertyAdded( DefinedProperty property, int copies )
+    {
+        estimatedHeapUsage += copies * (PROPERTY_HEAP_SIZE + estimatedHeapUsage( property.value() ));
+    }
+
+    private static long estimatedHeapUsage( Object value )
+    {
+        if ( value instanceof String )
+        {
+            return 40 + 2L * ((String) value).length();
+        }
+        if ( value instanceof String[] )
+        {
+            long size = 16;
+            for ( String string : (String[]) value )
+            {
+                size += 8 + estimatedHeapUsage( string );
+            }
+            return size;
+        }
+        if ( value != null && value.getClass().isArray() )
+        {
+            return 16 + 8L * Array.getLength( value );
+        }
+        return 16;
+    }
+
     @Override
     public Iterable<NodeState> modifiedNodes()
     {
         return NODE_STATE.values( this );
     }
 
-    private DiffSets<Long> getOrCreateLabelStateNodeDiffSets( int labelId )
+    private PrimitiveLongDiffSets getOrCreateLabelStateNodeDiffSets( int labelId )
     {
         return LABEL_STATE.getOrCreate( this, labelId ).getOrCreateNodeDiffSets();
     }
@@ -560,6 +617,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
     public void nodeDoCreate( long id )
     {
         nodes().add( id );
+        entityIdsAdded( 1 );
         dataChanged();
     }
 
@@ -570,6 +628,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
         {
             recordNodeDeleted( nodeId );
         }
+        entityIdsAdded( 1 );
 
         if ( nodeStatesMap != null )
         {
@@ -592,6 +651,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
     public void relationshipDoCreate( long id, int relationshipTypeId, long startNodeId, long endNodeId )
     {
         relationships().add( id );
+        entityIdsAdded( 3 );
 
         if ( startNodeId == endNodeId )
         {
@@ -627,6 +687,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
         {
             recordRelationshipDeleted( id );
         }
+        entityIdsAdded( 3 );
 
         if ( startNodeId == endNodeId )
         {
@@ -684,6 +745,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
             nodeState.addProperty( newProperty );
             nodePropertyChanges().addProperty( nodeId, newProperty.propertyKeyId(), newProperty.value() );
         }
+        propertyAdded( newProperty, 2 );
         dataChanged();
     }
 
@@ -700,6 +762,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
         {
             getOrCreateRelationshipState( relationshipId ).addProperty( newProperty );
         }
+        propertyAdded( newProperty, 1 );
         dataChanged();
     }
 
@@ -714,6 +777,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
         {
             getOrCreateGraphState().addProperty( newProperty );
         }
+        propertyAdded( newProperty, 1 );
         dataChanged();
     }
 
@@ -723,6 +787,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
         getOrCreateNodeState( nodeId ).removeProperty( removedProperty );
         nodePropertyChanges().removeProperty( nodeId, removedProperty.propertyKeyId(),
                 removedProperty.value() );
+        propertyAdded( removedProperty, 2 );
         dataChanged();
     }
 
@@ -730,6 +795,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
     public void relationshipDoRemoveProperty( long relationshipId, DefinedProperty removedProperty )
     {
         getOrCreateRelationshipState( relationshipId ).removeProperty( removedProperty );
+        propertyAdded( removedProperty, 1 );
         dataChanged();
     }
 
@@ -737,6 +803,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
     public void graphDoRemoveProperty( DefinedProperty removedProperty )
     {
         getOrCreateGraphState().removeProperty( removedProperty );
+        propertyAdded( removedProperty, 1 );
         dataChanged();
     }
 
@@ -745,6 +812,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
     {
         getOrCreateLabelStateNodeDiffSets( labelId ).add( nodeId );
         getOrCreateNodeStateLabelDiffSets( nodeId ).add( labelId );
+        entityIdsAdded( 2 );
         dataChanged();
     }
 
@@ -753,6 +821,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
     {
         getOrCreateLabelStateNodeDiffSets( labelId ).remove( nodeId );
         getOrCreateNodeStateLabelDiffSets( nodeId ).remove( labelId );
+        entityIdsAdded( 2 );
         dataChanged();
     }
 
@@ -995,11 +1064,11 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
         return ReadableDiffSets.Empty.ifNull( nodes );
     }
 
-    private DiffSets<Long> nodes()
+    private PrimitiveLongDiffSets nodes()
     {
         if ( nodes == null )
         {
-            nodes = new DiffSets<>();
+            nodes = new PrimitiveLongDiffSets();
         }
         return nodes;
     }
@@ -1421,6 +1490,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
         if ( before != null )
         {
             before.remove( nodeId );
+            entityIdsAdded( 1 );
             if ( before.getRemoved().contains( nodeId ) )
             {
                 getOrCreateNodeState( nodeId ).addIndexDiff( before );
@@ -1435,6 +1505,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
         if ( after != null )
         {
             after.add( nodeId );
+            entityIdsAdded( 1 );
             if ( after.getAdded().contains( nodeId ) )
             {
                 getOrCreateNodeState( nodeId ).addIndexDiff( after );
@@ -25,6 +25,8 @@ import org.neo4j.collection.primitive.PrimitiveLongIterator;
 import org.neo4j.graphdb.Resource;
 import org.neo4j.kernel.impl.locking.LockService;
 import org.neo4j.kernel.impl.store.NeoStores;
+import org.neo4j.kernel.impl.store.NodeStore;
+import org.neo4j.kernel.impl.store.RecordCursor;
 import org.neo4j.kernel.impl.store.RecordCursors;
 import org.neo4j.kernel.impl.store.record.NodeRecord;
 
@@ -37,6 +39,8 @@ import static org.neo4j.kernel.impl.store.record.RecordLoad.CHECK;
 public class StoreIteratorNodeCursor extends StoreAbstractNodeCursor
 {
     private PrimitiveLongIterator iterator;
+    private RecordCursor<NodeRecord> nodeCursor;
+    private boolean scanCursor;
     private final Consumer<StoreIteratorNodeCursor> instanceCache;
 
     public StoreIteratorNodeCursor( NodeRecord nodeRecord,
@@ -53,6 +57,23 @@ public class StoreIteratorNodeCursor extends StoreAbstractNodeCursor
     public StoreIteratorNodeCursor init( PrimitiveLongIterator iterator )
     {
         this.iterator = iterator;
+        this.nodeCursor = cursors.node();
+        this.scanCursor = false;
+        return this;
+    }
+
+    /**
+     * Initialize this cursor to read the nodes of the given iterator through a
+     * {@link org.neo4j.kernel.impl.store.CommonAbstractStore#newScanRecordCursor scan cursor} of its own, instead of
+     * the shared node record cursor, for instance when iterating over all nodes. The scan cursor is released when
+     * this cursor is closed.
+     */
+    public StoreIteratorNodeCursor initScan( PrimitiveLongIterator iterator, NodeStore nodeStore )
+    {
+        this.iterator = iterator;
+        this.nodeCursor = nodeStore.newScanRecordCursor( nodeRecord )
+                .acquire( nodeStore.getNumberOfReservedLowIds(), CHECK );
+        this.scanCursor = true;
         return this;
     }
 
@@ -61,7 +82,7 @@ public class StoreIteratorNodeCursor extends StoreAbstractNodeCursor
     {
         while ( iterator != null && iterator.hasNext() )
         {
-            if ( cursors.node().next( iterator.next(), nodeRecord, CHECK ) )
+            if ( nodeCursor.next( iterator.next(), nodeRecord, CHECK ) )
             {
                 return true;
             }
@@ -78,6 +99,12 @@ public class StoreIteratorNodeCursor extends StoreAbstractNodeCursor
             ((Resource) iterator).close();
         }
         iterator = null;
+        if ( scanCursor )
+        {
+            nodeCursor.close();
+            scanCursor = false;
+        }
+        nodeCursor = null;
 
         instanceCache.accept( this );
     }
@@ -153,7 +153,8 @@ public class StoreStatement implements StorageStatement
     @Override
     public Cursor<NodeItem> nodesGetAllCursor()
     {
-        return acquireIteratorNodeCursor( new AllStoreIdIterator( nodeStore ) );
+        neoStores.assertOpen();
+        return iteratorNodeCursor.get().initScan( new AllStoreIdIterator( nodeStore ), nodeStore );
     }
 
     @Override
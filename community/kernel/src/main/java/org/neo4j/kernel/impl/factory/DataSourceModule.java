@@ -37,6 +37,7 @@ import org.neo4j.graphdb.spatial.Point;
 import org.neo4j.helpers.Service;
 import org.neo4j.io.fs.FileSystemAbstraction;
 import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.io.pagecache.impl.muninn.MuninnPageCache;
 import org.neo4j.kernel.AvailabilityGuard;
 import org.neo4j.kernel.DatabaseAvailability;
 import org.neo4j.kernel.NeoStoreDataSource;
@@ -50,6 +51,7 @@ import org.neo4j.kernel.builtinprocs.SpecialBuiltInProcedures;
 import org.neo4j.kernel.configuration.Config;
 import org.neo4j.kernel.guard.Guard;
 import org.neo4j.kernel.guard.TimeoutGuard;
+import org.neo4j.kernel.guard.TxStateSizeGuard;
 import org.neo4j.kernel.impl.api.NonTransactionalTokenNameLookup;
 import org.neo4j.kernel.impl.api.SchemaWriteGuard;
 import org.neo4j.kernel.impl.api.dbms.NonTransactionalDbmsOperations;
@@ -152,13 +154,18 @@ public class DataSourceModule
 
         // Factories for things that needs to be created later
         PageCache pageCache = platformModule.pageCache;
+        if ( pageCache instanceof MuninnPageCache && editionModule.ioLimiter != null )
+        {
+            // The background flusher of the page cache is held to the same IO limit as checkpoints
+            ((MuninnPageCache) pageCache).setBackgroundFlushIOLimiter( editionModule.ioLimiter );
+        }
 
         StartupStatisticsProvider startupStatistics = deps.satisfyDependency( new StartupStatisticsProvider() );
 
         SchemaWriteGuard schemaWriteGuard = deps.satisfyDependency( editionModule.schemaWriteGuard );
 
         Clock clock = getClock();
-        Guard guard = createGuard( deps, clock, logging );
+        Guard guard = createGuard( deps, clock, logging, config );
 
         kernelEventHandlers = new KernelEventHandlers( logging.getInternalLog( KernelEventHandlers.class ) );
 
@@ -354,11 +361,21 @@ public class DataSourceModule
         };
     }
 
-    private Guard createGuard( Dependencies deps, Clock clock, LogService logging )
+    private Guard createGuard( Dependencies deps, Clock clock, LogService logging, Config config )
     {
         TimeoutGuard guard = createGuard( clock, logging );
         deps.satisfyDependency( guard );
-        return guard;
+        long maxTxStateSize = config.get( GraphDatabaseSettings.transaction_state_max_size );
+        if ( maxTxStateSize == 0 )
+        {
+            return guard;
+        }
+        Guard txStateSizeGuard = new TxStateSizeGuard( maxTxStateSize );
+        return statement ->
+        {
+            guard.check( statement );
+            txStateSizeGuard.check( statement );
+        };
     }
 
     protected TimeoutGuard createGuard( Clock clock, LogService logging )
@@ -0,0 +1,677 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.btree;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.io.pagecache.PageCursor;
+import org.neo4j.io.pagecache.PagedFile;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static org.neo4j.io.pagecache.PagedFile.PF_READ_AHEAD;
+import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_READ_LOCK;
+import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_WRITE_LOCK;
+
+/**
+ * A B+tree of fixed size keys and values, stored in a single file accessed through the {@link PageCache}.
+ * <p>
+ * There can be one {@link BTreeWriter writer} at a time, and any number of concurrent {@link SeekCursor readers}.
+ * Readers don't take any locks; they read pages optimistically and retry a read if the page was changed while it
+ * was being read, see {@link PageCursor#shouldRetry()}. For this to work with splits happening under the feet of
+ * readers, the tree follows these rules:
+ * <ul>
+ * <li>Leaves are linked to their right sibling, and a split moves the upper half of a node to a new right sibling,
+ * which is fully written before it is linked in.</li>
+ * <li>Keys only ever move to the right. Nodes are never merged, so a tree doesn't shrink when entries are removed.
+ * </li>
+ * </ul>
+ * A reader that descends through a node which is concurrently split may end up in a leaf to the left of where its
+ * key now is, but never to the right of it, and it simply moves right along the leaves until it gets there.
+ * <p>
+ * The tree is crash safe. Every {@link #force() checkpoint} starts a new generation, and the nodes written before the
+ * last checkpoint are never changed: the first time a writer changes such a node in a generation, it changes a copy
+ * of it instead, and links the copy into the tree in place of the original, all the way up to the root. The pages of
+ * the originals can be reused once the next checkpoint has made the copies durable. This way the tree of the last
+ * checkpoint stays intact on disk, whichever pages the page cache happens to flush in between. The only thing
+ * written to such a node is a new right sibling, into the one of its two right sibling slots that the checkpoint
+ * doesn't use, see {@link TreeNode}.
+ * <p>
+ * A checkpoint writes the ids of the free pages to pages that are free in the trees of both the last and the new
+ * checkpoint and flushes all pages, then writes the root, the head of the free list and the {@link #userData() user
+ * data} to one of the two header pages, alternating between them, and flushes again. The tree is opened from the newest header
+ * page with a valid checksum, so a tree that was not {@link #close() closed} cleanly is opened as it was at the last
+ * checkpoint, see {@link #wasCleanlyClosed()}. Anything written after the last checkpoint must then be written again,
+ * which is what recovery of the transactions after the last checkpoint of the database does.
+ * <p>
+ * A node records the generation it was written in, and pointers to nodes are never older than the nodes they point
+ * to. A reader that follows a pointer to a node newer than the pointer has come across a reused page, and starts over
+ * from the root.
+ *
+ * @param <KEY> type of keys
+ * @param <VALUE> type of values
+ */
+public class BTree<KEY,VALUE> implements Closeable
+{
+    private static final long MAGIC = 0x4E656F4254726565L; // "NeoBTree"
+    private static final int FORMAT_VERSION = 1;
+    private static final long FIRST_NODE_PAGE_ID = 2; // pages 0 and 1 are the header pages
+
+    private static final int MAGIC_OFFSET = 0;
+    private static final int FORMAT_VERSION_OFFSET = 8;
+    private static final int PAGE_SIZE_OFFSET = 12;
+    private static final int LAYOUT_OFFSET = 16;
+    private static final int KEY_SIZE_OFFSET = 24;
+    private static final int VALUE_SIZE_OFFSET = 28;
+    private static final int ROOT_OFFSET = 32;
+    private static final int LAST_ID_OFFSET = 40;
+    private static final int GENERATION_OFFSET = 48;
+    private static final int FREE_LIST_OFFSET = 56;
+    private static final int CLEAN_OFFSET = 64;
+    private static final int USER_DATA_LENGTH_OFFSET = 68;
+    private static final int CHECKSUM_OFFSET = 72;
+    private static final int USER_DATA_OFFSET = 80;
+
+    // Pages listing the free pages of a checkpoint: [type:1][unused:3][count:4][generation:8][next:8][ids...]
+    private static final byte FREE_LIST = 3;
+    private static final int FREE_LIST_COUNT_OFFSET = 4;
+    private static final int FREE_LIST_GENERATION_OFFSET = 8;
+    private static final int FREE_LIST_NEXT_OFFSET = 16;
+    private static final int FREE_LIST_IDS_OFFSET = 24;
+
+    final PagedFile pagedFile;
+    final Layout<KEY,VALUE> layout;
+    final TreeNode<KEY,VALUE> node;
+    private final File file;
+    private final ReentrantLock writerLock = new ReentrantLock();
+    private final boolean wasCleanlyClosed;
+
+    private volatile Root root;
+    // Guarded by the writer lock.
+    private long stableGeneration;
+    private long unstableGeneration;
+    private long lastId;
+    private byte[] userData;
+    private PageIdList reusablePages = new PageIdList();
+    private PageIdList freedPages = new PageIdList();
+    private PageIdList freeListPages = new PageIdList();
+    private boolean closed;
+
+    /**
+     * Opens the tree in the given file, or creates a new empty tree if the file is empty or doesn't exist.
+     *
+     * @throws IOException on I/O error, or if the file contains a tree of a different layout.
+     */
+    public BTree( PageCache pageCache, File file, Layout<KEY,VALUE> layout ) throws IOException
+    {
+        this.file = file;
+        this.layout = layout;
+        this.pagedFile = pageCache.map( file, pageCache.pageSize(), CREATE );
+        try
+        {
+            this.node = new TreeNode<>( pagedFile.pageSize(), layout );
+            if ( pagedFile.getLastPageId() < 0 )
+            {
+                wasCleanlyClosed = true;
+                create();
+            }
+            else
+            {
+                wasCleanlyClosed = open();
+            }
+            // Until closed, a crash leaves changes after the last checkpoint behind, which are forgotten on open.
+            checkpoint( false );
+        }
+        catch ( Throwable e )
+        {
+            pagedFile.close();
+            throw e;
+        }
+    }
+
+    private void create() throws IOException
+    {
+        stableGeneration = 0;
+        unstableGeneration = 1;
+        lastId = FIRST_NODE_PAGE_ID - 1;
+        userData = new byte[0];
+        long rootId = allocatePage();
+        try ( PageCursor cursor = pagedFile.io( rootId, PF_SHARED_WRITE_LOCK ) )
+        {
+            cursor.next();
+            node.initialize( cursor, TreeNode.LEAF, unstableGeneration );
+        }
+        root = new Root( rootId, unstableGeneration );
+    }
+
+    private boolean open() throws IOException
+    {
+        Header header = readLatestHeader( pagedFile, file );
+        checkHeader( header );
+        stableGeneration = header.generation;
+        unstableGeneration = header.generation + 1;
+        lastId = header.lastId;
+        userData = header.userData;
+        readFreeList( header.freeListHead );
+        if ( !header.clean )
+        {
+            clearCrashedRightSiblings();
+        }
+        try ( PageCursor cursor = pagedFile.io( header.root, PF_SHARED_READ_LOCK ) )
+        {
+            if ( !cursor.next() )
+            {
+                throw new IOException( "Root " + header.root + " of the tree in " + file + " is missing" );
+            }
+            root = new Root( header.root, TreeNode.generation( cursor ) );
+        }
+        return header.clean;
+    }
+
+    private void checkHeader( Header header ) throws IOException
+    {
+        if ( header.pageSize != pagedFile.pageSize() || header.layout != layout.identifier() ||
+             header.keySize != layout.keySize() || header.valueSize != layout.valueSize() )
+        {
+            throw new IOException( "Tree in " + file + " was created with page size " + header.pageSize +
+                    ", layout " + header.layout + ", key size " + header.keySize + " and value size " +
+                    header.valueSize + ", which doesn't match page size " + pagedFile.pageSize() + ", layout " +
+                    layout.identifier() + ", key size " + layout.keySize() + " and value size " +
+                    layout.valueSize() );
+        }
+    }
+
+    private void readFreeList( long pageId ) throws IOException
+    {
+        try ( PageCursor cursor = pagedFile.io( FIRST_NODE_PAGE_ID, PF_SHARED_READ_LOCK ) )
+        {
+            while ( pageId != TreeNode.NO_NODE )
+            {
+                if ( !cursor.next( pageId ) || TreeNode.type( cursor ) != FREE_LIST )
+                {
+                    throw new IOException( "Free list page " + pageId + " of the tree in " + file + " is broken" );
+                }
+                freeListPages.add( pageId );
+                int count = cursor.getInt( FREE_LIST_COUNT_OFFSET );
+                cursor.setOffset( FREE_LIST_IDS_OFFSET );
+                for ( int i = 0; i < count; i++ )
+                {
+                    reusablePages.add( cursor.getLong() );
+                }
+                pageId = cursor.getLong( FREE_LIST_NEXT_OFFSET );
+            }
+        }
+    }
+
+    /**
+     * A writer that crashed may have pointed nodes of the last checkpoint to right siblings that were never
+     * checkpointed. Those pointers live in the slot the checkpoint doesn't use, and are cleared here so that they
+     * are not mistaken for newer pointers in the generations to come.
+     */
+    private void clearCrashedRightSiblings() throws IOException
+    {
+        try ( PageCursor reader = pagedFile.io( FIRST_NODE_PAGE_ID, PF_SHARED_READ_LOCK | PF_READ_AHEAD );
+              PageCursor writer = pagedFile.io( FIRST_NODE_PAGE_ID, PF_SHARED_WRITE_LOCK ) )
+        {
+            for ( long pageId = FIRST_NODE_PAGE_ID; pageId <= lastId && reader.next( pageId ); pageId++ )
+            {
+                byte type = TreeNode.type( reader );
+                if ( (type == TreeNode.LEAF || type == TreeNode.INTERNAL) &&
+                     TreeNode.generation( reader ) <= stableGeneration &&
+                     TreeNode.hasCrashedRightSibling( reader, stableGeneration ) )
+                {
+                    writer.next( pageId );
+                    TreeNode.clearCrashedRightSiblings( writer, stableGeneration );
+                }
+            }
+        }
+    }
+
+    /**
+     * @return whether or not the tree was closed cleanly the last time it was used. If not, the tree has been opened
+     * as it was at its last checkpoint, and any changes made after it must be made again.
+     */
+    public boolean wasCleanlyClosed()
+    {
+        return wasCleanlyClosed;
+    }
+
+    /**
+     * Seek the entries with keys in the given range, in key order.
+     *
+     * @param fromInclusive lower bound of the range, inclusive.
+     * @param toExclusive upper bound of the range, exclusive.
+     * @return a cursor over the entries in the range, which must be closed when done.
+     */
+    public SeekCursor<KEY,VALUE> seek( KEY fromInclusive, KEY toExclusive ) throws IOException
+    {
+        return new SeekCursor<>( this, pagedFile.io( root.id, PF_SHARED_READ_LOCK ), fromInclusive, toExclusive );
+    }
+
+    /**
+     * Get the writer of this tree, waiting for any other writer to close first.
+     *
+     * @return the writer, which must be closed when done.
+     */
+    public BTreeWriter<KEY,VALUE> writer() throws IOException
+    {
+        writerLock.lock();
+        try
+        {
+            assertOpen();
+            return new BTreeWriter<>( this, pagedFile.io( root.id, PF_SHARED_WRITE_LOCK ), writerLock );
+        }
+        catch ( Throwable e )
+        {
+            writerLock.unlock();
+            throw e;
+        }
+    }
+
+    /**
+     * @return a copy of the user data stored in the header of this tree.
+     */
+    public byte[] userData()
+    {
+        writerLock.lock();
+        try
+        {
+            return userData.clone();
+        }
+        finally
+        {
+            writerLock.unlock();
+        }
+    }
+
+    /**
+     * Set the user data stored in the header of this tree. It is written on the next {@link #force()} or
+     * {@link #close()}.
+     */
+    public void setUserData( byte[] data )
+    {
+        int maxLength = pagedFile.pageSize() - USER_DATA_OFFSET;
+        if ( data.length > maxLength )
+        {
+            throw new IllegalArgumentException( "User data of " + data.length + " bytes doesn't fit in the " +
+                    maxLength + " bytes available" );
+        }
+        writerLock.lock();
+        try
+        {
+            userData = data.clone();
+        }
+        finally
+        {
+            writerLock.unlock();
+        }
+    }
+
+    /**
+     * Checkpoint the tree: make all changes so far durable, so that the tree is opened as it is now after a crash.
+     * The tree is still considered unclean until closed.
+     */
+    public void force() throws IOException
+    {
+        writerLock.lock();
+        try
+        {
+            assertOpen();
+            checkpoint( false );
+        }
+        finally
+        {
+            writerLock.unlock();
+        }
+    }
+
+    /**
+     * Checkpoint the tree, mark it as cleanly closed and unmap the file.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        writerLock.lock();
+        try
+        {
+            if ( closed )
+            {
+                return;
+            }
+            closed = true;
+            try
+            {
+                checkpoint( true );
+            }
+            finally
+            {
+                pagedFile.close();
+            }
+        }
+        finally
+        {
+            writerLock.unlock();
+        }
+    }
+
+    Root root()
+    {
+        return root;
+    }
+
+    void setRoot( long id, long generation )
+    {
+        this.root = new Root( id, generation );
+    }
+
+    long stableGeneration()
+    {
+        return stableGeneration;
+    }
+
+    long unstableGeneration()
+    {
+        return unstableGeneration;
+    }
+
+    long allocatePage()
+    {
+        return reusablePages.isEmpty() ? ++lastId : reusablePages.removeLast();
+    }
+
+    /**
+     * Release the page of a node that is part of the last checkpoint. It can be reused after the next checkpoint.
+     */
+    void freePage( long pageId )
+    {
+        freedPages.add( pageId );
+    }
+
+    private void assertOpen()
+    {
+        if ( closed )
+        {
+            throw new IllegalStateException( "Tree in " + file + " has been closed" );
+        }
+    }
+
+    private void checkpoint( boolean clean ) throws IOException
+    {
+        long generation = unstableGeneration;
+        // Pages free in the tree of this checkpoint, which includes the free list pages of the previous checkpoint
+        PageIdList freePages = new PageIdList();
+        freePages.addAll( freedPages );
+        freePages.addAll( freeListPages );
+        // The free list goes in pages that are free in the trees of both checkpoints, so that a crash before the new
+        // header is written leaves the previous checkpoint intact
+        int idsPerPage = (pagedFile.pageSize() - FREE_LIST_IDS_OFFSET) / Long.BYTES;
+        int listPageCount = (reusablePages.size() + freePages.size() + idsPerPage - 1) / idsPerPage;
+        PageIdList newFreeListPages = new PageIdList();
+        for ( int i = 0; i < listPageCount; i++ )
+        {
+            newFreeListPages.add( allocatePage() );
+        }
+        freePages.addAll( reusablePages );
+        writeFreeList( newFreeListPages, freePages, idsPerPage, generation );
+
+        pagedFile.flushAndForce();
+        writeHeader( generation, newFreeListPages.isEmpty() ? TreeNode.NO_NODE : newFreeListPages.get( 0 ), clean );
+        pagedFile.flushAndForce();
+
+        stableGeneration = generation;
+        unstableGeneration = generation + 1;
+        reusablePages = freePages;
+        freedPages = new PageIdList();
+        freeListPages = newFreeListPages;
+    }
+
+    private void writeFreeList( PageIdList listPages, PageIdList freePages, int idsPerPage, long generation )
+            throws IOException
+    {
+        try ( PageCursor cursor = pagedFile.io( FIRST_NODE_PAGE_ID, PF_SHARED_WRITE_LOCK ) )
+        {
+            for ( int page = 0; page < listPages.size(); page++ )
+            {
+                if ( !cursor.next( listPages.get( page ) ) )
+                {
+                    throw new IOException( "Could not write free list page " + listPages.get( page ) );
+                }
+                int from = Math.min( page * idsPerPage, freePages.size() );
+                int count = Math.min( idsPerPage, freePages.size() - from );
+                cursor.putByte( 0, FREE_LIST );
+                cursor.putInt( FREE_LIST_COUNT_OFFSET, count );
+                cursor.putLong( FREE_LIST_GENERATION_OFFSET, generation );
+                cursor.putLong( FREE_LIST_NEXT_OFFSET,
+                        page + 1 < listPages.size() ? listPages.get( page + 1 ) : TreeNode.NO_NODE );
+                cursor.setOffset( FREE_LIST_IDS_OFFSET );
+                for ( int i = 0; i < count; i++ )
+                {
+                    cursor.putLong( freePages.get( from + i ) );
+                }
+            }
+        }
+    }
+
+    private void writeHeader( long generation, long freeListHead, boolean clean ) throws IOException
+    {
+        ByteBuffer fields = ByteBuffer.allocate( CHECKSUM_OFFSET );
+        fields.putLong( MAGIC_OFFSET, MAGIC );
+        fields.putInt( FORMAT_VERSION_OFFSET, FORMAT_VERSION );
+        fields.putInt( PAGE_SIZE_OFFSET, pagedFile.pageSize() );
+        fields.putLong( LAYOUT_OFFSET, layout.identifier() );
+        fields.putInt( KEY_SIZE_OFFSET, layout.keySize() );
+        fields.putInt( VALUE_SIZE_OFFSET, layout.valueSize() );
+        fields.putLong( ROOT_OFFSET, root.id );
+        fields.putLong( LAST_ID_OFFSET, lastId );
+        fields.putLong( GENERATION_OFFSET, generation );
+        fields.putLong( FREE_LIST_OFFSET, freeListHead );
+        fields.put( CLEAN_OFFSET, (byte) (clean ? 1 : 0) );
+        fields.putInt( USER_DATA_LENGTH_OFFSET, userData.length );
+
+        // Alternate between the header pages, so that the header of the previous checkpoint is intact until this
+        // one has been written completely
+        try ( PageCursor cursor = pagedFile.io( headerPageId( generation ), PF_SHARED_WRITE_LOCK ) )
+        {
+            cursor.next();
+            cursor.putBytes( fields.array() );
+            cursor.putLong( CHECKSUM_OFFSET, checksum( fields.array(), userData ) );
+            cursor.setOffset( USER_DATA_OFFSET );
+            cursor.putBytes( userData );
+        }
+    }
+
+    private static long headerPageId( long generation )
+    {
+        return generation & 1;
+    }
+
+    private static long checksum( byte[] fields, byte[] userData )
+    {
+        CRC32 crc = new CRC32();
+        crc.update( fields );
+        crc.update( userData );
+        return crc.getValue();
+    }
+
+    /**
+     * Read the header of the latest checkpoint, i.e. the header page with the highest generation that is intact.
+     */
+    private static Header readLatestHeader( PagedFile pagedFile, File file ) throws IOException
+    {
+        Header latest = null;
+        try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_READ_LOCK ) )
+        {
+            for ( long pageId = 0; pageId < FIRST_NODE_PAGE_ID && cursor.next( pageId ); pageId++ )
+            {
+                Header header;
+                do
+                {
+                    header = readHeader( cursor );
+                }
+                while ( cursor.shouldRetry() );
+                if ( header != null && (latest == null || header.generation > latest.generation) )
+                {
+                    latest = header;
+                }
+            }
+        }
+        if ( latest == null )
+        {
+            throw new IOException( file + " is not a tree file of format version " + FORMAT_VERSION );
+        }
+        return latest;
+    }
+
+    /**
+     * @return the header at the cursor, or {@code null} if the page doesn't contain an intact header.
+     */
+    private static Header readHeader( PageCursor cursor )
+    {
+        byte[] fields = new byte[CHECKSUM_OFFSET];
+        cursor.setOffset( 0 );
+        cursor.getBytes( fields );
+        ByteBuffer buffer = ByteBuffer.wrap( fields );
+        if ( buffer.getLong( MAGIC_OFFSET ) != MAGIC || buffer.getInt( FORMAT_VERSION_OFFSET ) != FORMAT_VERSION )
+        {
+            return null;
+        }
+        int userDataLength = buffer.getInt( USER_DATA_LENGTH_OFFSET );
+        if ( userDataLength < 0 || userDataLength > cursor.getCurrentPageSize() - USER_DATA_OFFSET )
+        {
+            return null;
+        }
+        byte[] userData = new byte[userDataLength];
+        cursor.setOffset( USER_DATA_OFFSET );
+        cursor.getBytes( userData );
+        if ( cursor.getLong( CHECKSUM_OFFSET ) != checksum( fields, userData ) )
+        {
+            return null;
+        }
+
+        Header header = new Header();
+        header.pageSize = buffer.getInt( PAGE_SIZE_OFFSET );
+        header.layout = buffer.getLong( LAYOUT_OFFSET );
+        header.keySize = buffer.getInt( KEY_SIZE_OFFSET );
+        header.valueSize = buffer.getInt( VALUE_SIZE_OFFSET );
+        header.root = buffer.getLong( ROOT_OFFSET );
+        header.lastId = buffer.getLong( LAST_ID_OFFSET );
+        header.generation = buffer.getLong( GENERATION_OFFSET );
+        header.freeListHead = buffer.getLong( FREE_LIST_OFFSET );
+        header.clean = buffer.get( CLEAN_OFFSET ) != 0;
+        header.userData = userData;
+        return header;
+    }
+
+    /**
+     * Read the user data of the last checkpoint of a tree without opening it, which leaves the tree untouched.
+     *
+     * @return the user data of the tree, as of its last checkpoint.
+     * @throws IOException on I/O error, or if the file doesn't contain a tree.
+     */
+    public static byte[] readCheckpointedUserData( PageCache pageCache, File file ) throws IOException
+    {
+        try ( PagedFile pagedFile = pageCache.map( file, pageCache.pageSize() ) )
+        {
+            if ( pagedFile.getLastPageId() < 0 )
+            {
+                throw new IOException( file + " is empty" );
+            }
+            return readLatestHeader( pagedFile, file ).userData;
+        }
+    }
+
+    /**
+     * The root of the tree, and the generation of the root node.
+     */
+    static final class Root
+    {
+        final long id;
+        final long generation;
+
+        Root( long id, long generation )
+        {
+            this.id = id;
+            this.generation = generation;
+        }
+    }
+
+    private static class Header
+    {
+        int pageSize;
+        long layout;
+        int keySize;
+        int valueSize;
+        long root;
+        long lastId;
+        long generation;
+        long freeListHead;
+        boolean clean;
+        byte[] userData;
+    }
+
+    private static class PageIdList
+    {
+        private long[] ids = new long[16];
+        private int size;
+
+        void add( long id )
+        {
+            if ( size == ids.length )
+            {
+                ids = Arrays.copyOf( ids, size * 2 );
+            }
+            ids[size++] = id;
+        }
+
+        void addAll( PageIdList other )
+        {
+            for ( int i = 0; i < other.size; i++ )
+            {
+                add( other.ids[i] );
+            }
+        }
+
+        long get( int index )
+        {
+            return ids[index];
+        }
+
+        long removeLast()
+        {
+            return ids[--size];
+        }
+
+        int size()
+        {
+            return size;
+        }
+
+        boolean isEmpty()
+        {
+            return size == 0;
+        }
+    }
+}
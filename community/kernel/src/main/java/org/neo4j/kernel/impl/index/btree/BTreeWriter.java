@@ -0,0 +1,363 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.btree;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.locks.Lock;
+
+import org.neo4j.io.pagecache.PageCursor;
+
+import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_WRITE_LOCK;
+
+/**
+ * The single writer of a {@link BTree}, holding the writer lock of the tree until closed.
+ * <p>
+ * All changes are made in place, one page at a time, in an order that keeps the tree readable for concurrent
+ * {@link SeekCursor readers}: a new node is fully written before it is linked into the tree. A node that is part of
+ * the last checkpoint is first copied to a new page, and the copy linked in place of it, see {@link BTree}.
+ */
+public class BTreeWriter<KEY,VALUE> implements Closeable
+{
+    private static final int MAX_DEPTH = 64;
+
+    private final BTree<KEY,VALUE> tree;
+    private final TreeNode<KEY,VALUE> node;
+    private final Layout<KEY,VALUE> layout;
+    private final PageCursor cursor;
+    private final Lock writerLock;
+    private final long[] path = new long[MAX_DEPTH];
+    private final int[] childPositions = new int[MAX_DEPTH];
+    private final KEY readKey;
+    private final byte[] separator;
+    private final byte[] scratch;
+    private boolean closed;
+
+    BTreeWriter( BTree<KEY,VALUE> tree, PageCursor cursor, Lock writerLock )
+    {
+        this.tree = tree;
+        this.node = tree.node;
+        this.layout = tree.layout;
+        this.cursor = cursor;
+        this.writerLock = writerLock;
+        this.readKey = layout.newKey();
+        this.separator = new byte[layout.keySize()];
+        this.scratch = new byte[tree.pagedFile.pageSize()];
+    }
+
+    /**
+     * Insert the given entry, or overwrite the value of the entry if the key is already in the tree.
+     */
+    public void put( KEY key, VALUE value ) throws IOException
+    {
+        int depth = descendTo( key, true );
+        int keyCount = TreeNode.keyCount( cursor );
+        int pos = node.search( cursor, true, keyCount, key, readKey, true );
+        if ( pos < keyCount && keyEquals( pos, key ) )
+        {
+            node.writeValue( cursor, pos, value );
+            return;
+        }
+
+        node.shiftEntries( cursor, true, pos, keyCount, 1, scratch );
+        node.writeLeafEntry( cursor, pos, key, value );
+        TreeNode.setKeyCount( cursor, ++keyCount );
+        if ( keyCount > node.leafMaxKeyCount )
+        {
+            splitLeaf( depth, keyCount );
+        }
+    }
+
+    /**
+     * Remove the entry with the given key, if it's in the tree.
+     *
+     * @param into receives the value of the removed entry, if any.
+     * @return whether or not an entry was removed.
+     */
+    public boolean remove( KEY key, VALUE into ) throws IOException
+    {
+        // Look before copying the path to the leaf, removing a key that isn't there should not change any page
+        descendTo( key, false );
+        if ( !leafContains( key ) )
+        {
+            return false;
+        }
+
+        descendTo( key, true );
+        int keyCount = TreeNode.keyCount( cursor );
+        int pos = node.search( cursor, true, keyCount, key, readKey, true );
+        if ( into != null )
+        {
+            node.readValue( cursor, pos, into );
+        }
+        node.shiftEntries( cursor, true, pos + 1, keyCount, -1, scratch );
+        TreeNode.setKeyCount( cursor, keyCount - 1 );
+        return true;
+    }
+
+    /**
+     * Read the value of the entry with the given key.
+     *
+     * @return whether or not the key is in the tree.
+     */
+    public boolean get( KEY key, VALUE into ) throws IOException
+    {
+        descendTo( key, false );
+        int keyCount = TreeNode.keyCount( cursor );
+        int pos = node.search( cursor, true, keyCount, key, readKey, true );
+        if ( pos == keyCount || !keyEquals( pos, key ) )
+        {
+            return false;
+        }
+        node.readValue( cursor, pos, into );
+        return true;
+    }
+
+    private boolean leafContains( KEY key )
+    {
+        int keyCount = TreeNode.keyCount( cursor );
+        int pos = node.search( cursor, true, keyCount, key, readKey, true );
+        return pos < keyCount && keyEquals( pos, key );
+    }
+
+    private boolean keyEquals( int pos, KEY key )
+    {
+        node.readKey( cursor, true, pos, readKey );
+        return layout.compare( readKey, key ) == 0;
+    }
+
+    /**
+     * Position the cursor at the leaf where the key belongs, remembering the path there.
+     *
+     * @param writable whether or not to make the nodes on the path writable, see {@link #makeWritable(int, long)}.
+     * @return the depth of the leaf.
+     */
+    private int descendTo( KEY key, boolean writable ) throws IOException
+    {
+        int depth = 0;
+        long pageId = tree.root().id;
+        goTo( pageId );
+        if ( writable )
+        {
+            pageId = makeWritable( depth, pageId );
+        }
+        while ( !TreeNode.isLeaf( cursor ) )
+        {
+            int childPos = node.search( cursor, false, TreeNode.keyCount( cursor ), key, readKey, false );
+            path[depth] = pageId;
+            childPositions[depth] = childPos;
+            depth++;
+            pageId = node.child( cursor, childPos );
+            goTo( pageId );
+            if ( writable )
+            {
+                pageId = makeWritable( depth, pageId );
+            }
+        }
+        path[depth] = pageId;
+        return depth;
+    }
+
+    /**
+     * Make the node the cursor is at, at the given depth of the current path, writable in this generation. A node
+     * written before the last checkpoint is copied to a new page, which takes its place in its parent, or as root,
+     * and in the right sibling of its left neighbour if it is a leaf. The parent has already been made writable.
+     *
+     * @return the id of the node to write to, which the cursor is at.
+     */
+    private long makeWritable( int depth, long pageId ) throws IOException
+    {
+        long unstableGeneration = tree.unstableGeneration();
+        if ( TreeNode.generation( cursor ) == unstableGeneration )
+        {
+            return pageId;
+        }
+
+        boolean leaf = TreeNode.isLeaf( cursor );
+        long copyId = tree.allocatePage();
+        try ( PageCursor copy = tree.pagedFile.io( copyId, PF_SHARED_WRITE_LOCK ) )
+        {
+            copy.next();
+            cursor.setOffset( 0 );
+            cursor.getBytes( scratch );
+            copy.putBytes( scratch );
+            TreeNode.setGeneration( copy, unstableGeneration );
+            TreeNode.copyRightSibling( cursor, copy );
+        }
+
+        if ( depth == 0 )
+        {
+            tree.setRoot( copyId, unstableGeneration );
+        }
+        else
+        {
+            goTo( path[depth - 1] );
+            node.setChild( cursor, childPositions[depth - 1], copyId );
+        }
+        if ( leaf )
+        {
+            linkFromLeftSibling( depth, copyId );
+        }
+        tree.freePage( pageId );
+        goTo( copyId );
+        return copyId;
+    }
+
+    /**
+     * Point the leaf to the left of the leaf at the given depth of the current path to the given right sibling.
+     */
+    private void linkFromLeftSibling( int depth, long rightSibling ) throws IOException
+    {
+        int level = depth - 1;
+        while ( level >= 0 && childPositions[level] == 0 )
+        {
+            level--;
+        }
+        if ( level < 0 )
+        {
+            return; // left most leaf
+        }
+
+        // The right most leaf of the subtree to the left
+        goTo( path[level] );
+        long pageId = node.child( cursor, childPositions[level] - 1 );
+        goTo( pageId );
+        while ( !TreeNode.isLeaf( cursor ) )
+        {
+            pageId = node.child( cursor, TreeNode.keyCount( cursor ) );
+            goTo( pageId );
+        }
+        TreeNode.setRightSibling( cursor, rightSibling, tree.unstableGeneration() );
+    }
+
+    private void splitLeaf( int depth, int keyCount ) throws IOException
+    {
+        long unstableGeneration = tree.unstableGeneration();
+        int leftCount = keyCount - keyCount / 2;
+        int rightCount = keyCount - leftCount;
+        long rightId = tree.allocatePage();
+        try ( PageCursor right = tree.pagedFile.io( rightId, PF_SHARED_WRITE_LOCK ) )
+        {
+            right.next();
+            node.initialize( right, TreeNode.LEAF, unstableGeneration );
+            copy( node.leafEntryOffset( leftCount ), right, node.leafEntryOffset( 0 ),
+                    rightCount * node.leafEntrySize );
+            TreeNode.setKeyCount( right, rightCount );
+            TreeNode.copyRightSibling( cursor, right );
+        }
+
+        cursor.setOffset( node.leafEntryOffset( leftCount ) );
+        cursor.getBytes( separator );
+        TreeNode.setRightSibling( cursor, rightId, unstableGeneration );
+        TreeNode.setKeyCount( cursor, leftCount );
+
+        insertInParent( depth - 1, rightId );
+    }
+
+    /**
+     * Insert the {@link #separator} key, with the given child to the right of it, in the parent at the given level.
+     */
+    private void insertInParent( int level, long rightChild ) throws IOException
+    {
+        if ( level < 0 )
+        {
+            long newRoot = tree.allocatePage();
+            goTo( newRoot );
+            node.initialize( cursor, TreeNode.INTERNAL, tree.unstableGeneration() );
+            node.setChild( cursor, 0, path[0] );
+            writeInternalEntry( 0, rightChild );
+            TreeNode.setKeyCount( cursor, 1 );
+            tree.setRoot( newRoot, tree.unstableGeneration() );
+            return;
+        }
+
+        goTo( path[level] );
+        int keyCount = TreeNode.keyCount( cursor );
+        int pos = childPositions[level];
+        node.shiftEntries( cursor, false, pos, keyCount, 1, scratch );
+        writeInternalEntry( pos, rightChild );
+        TreeNode.setKeyCount( cursor, ++keyCount );
+        if ( keyCount > node.internalMaxKeyCount )
+        {
+            splitInternal( level, keyCount );
+        }
+    }
+
+    private void splitInternal( int level, int keyCount ) throws IOException
+    {
+        // The key in the middle moves up to the parent, and its right child becomes the left most child of the
+        // new right node.
+        int leftCount = keyCount / 2;
+        int rightCount = keyCount - leftCount - 1;
+        long rightId = tree.allocatePage();
+        try ( PageCursor right = tree.pagedFile.io( rightId, PF_SHARED_WRITE_LOCK ) )
+        {
+            right.next();
+            node.initialize( right, TreeNode.INTERNAL, tree.unstableGeneration() );
+            node.setChild( right, 0, node.child( cursor, leftCount + 1 ) );
+            copy( node.internalKeyOffset( leftCount + 1 ), right, node.internalKeyOffset( 0 ),
+                    rightCount * node.internalEntrySize );
+            TreeNode.setKeyCount( right, rightCount );
+        }
+
+        cursor.setOffset( node.internalKeyOffset( leftCount ) );
+        cursor.getBytes( separator );
+        TreeNode.setKeyCount( cursor, leftCount );
+
+        insertInParent( level - 1, rightId );
+    }
+
+    private void copy( int sourceOffset, PageCursor target, int targetOffset, int length )
+    {
+        cursor.setOffset( sourceOffset );
+        cursor.getBytes( scratch, 0, length );
+        target.setOffset( targetOffset );
+        target.putBytes( scratch, 0, length );
+    }
+
+    private void writeInternalEntry( int pos, long rightChild )
+    {
+        cursor.setOffset( node.internalKeyOffset( pos ) );
+        cursor.putBytes( separator );
+        cursor.putLong( rightChild );
+    }
+
+    private void goTo( long pageId ) throws IOException
+    {
+        if ( !cursor.next( pageId ) )
+        {
+            throw new IllegalStateException( "Could not go to tree node " + pageId );
+        }
+    }
+
+    /**
+     * Release the writer lock. Changes are not durable until the next {@link BTree#force() checkpoint}.
+     */
+    @Override
+    public void close()
+    {
+        if ( !closed )
+        {
+            closed = true;
+            cursor.close();
+            writerLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.btree;
+
+import java.util.Comparator;
+
+import org.neo4j.io.pagecache.PageCursor;
+
+/**
+ * Describes the fixed size keys and values stored in a {@link BTree}: how to create, copy, compare and serialize them.
+ * <p>
+ * Keys are compared with {@link #compare(Object, Object)} and must be unique in a tree, so any entity id that makes
+ * an index entry unique has to be part of the key.
+ *
+ * @param <KEY> type of keys
+ * @param <VALUE> type of values
+ */
+public interface Layout<KEY,VALUE> extends Comparator<KEY>
+{
+    /**
+     * @return a unique identifier of this layout, stored in the tree header so that a tree is not opened with a
+     * layout it wasn't created with.
+     */
+    long identifier();
+
+    KEY newKey();
+
+    void copyKey( KEY key, KEY into );
+
+    VALUE newValue();
+
+    /**
+     * @return number of bytes a serialized key occupies.
+     */
+    int keySize();
+
+    /**
+     * @return number of bytes a serialized value occupies, may be 0.
+     */
+    int valueSize();
+
+    /**
+     * Write the key at the current offset of the cursor, using exactly {@link #keySize()} bytes.
+     */
+    void writeKey( PageCursor cursor, KEY key );
+
+    /**
+     * Write the value at the current offset of the cursor, using exactly {@link #valueSize()} bytes.
+     */
+    void writeValue( PageCursor cursor, VALUE value );
+
+    /**
+     * Read a key from the current offset of the cursor. The bytes read may be inconsistent, if the read happens to
+     * race with a writer, so this method must never throw on unexpected data. The caller will retry the read.
+     */
+    void readKey( PageCursor cursor, KEY into );
+
+    /**
+     * Read a value from the current offset of the cursor, with the same consistency concerns as
+     * {@link #readKey(PageCursor, Object)}.
+     */
+    void readValue( PageCursor cursor, VALUE into );
+}
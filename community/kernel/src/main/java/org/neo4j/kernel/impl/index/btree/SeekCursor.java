@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.btree;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.neo4j.io.pagecache.PageCursor;
+
+/**
+ * Reads the entries of a {@link BTree} in a range of keys, in key order, without taking any locks.
+ * <p>
+ * Every read of a page is retried until it is consistent, see {@link PageCursor#shouldRetry()}, and nothing read
+ * during an inconsistent read is acted upon. Instead of keeping a position within a leaf between calls to
+ * {@link #next()}, the cursor searches the current leaf for the first key after the last one it returned, so entries
+ * being shifted around, or moved to a new right sibling, by a concurrent writer are neither missed nor seen twice.
+ * Entries inserted or removed by a concurrent writer may or may not be seen.
+ * <p>
+ * A node newer than the pointer the cursor followed to it has been written to a page that was reused after the
+ * pointer was read, in which case the cursor goes back to the root and searches for its position again.
+ */
+public class SeekCursor<KEY,VALUE> implements Closeable
+{
+    private final BTree<KEY,VALUE> tree;
+    private final PageCursor cursor;
+    private final TreeNode<KEY,VALUE> node;
+    private final Layout<KEY,VALUE> layout;
+    private final KEY fromInclusive;
+    private final KEY toExclusive;
+    private final KEY key;
+    private final VALUE value;
+    private final KEY lastKey;
+    private final KEY readKey;
+    private long pointerGeneration;
+    private boolean hasLastKey;
+    private boolean initialized;
+    private boolean exhausted;
+
+    SeekCursor( BTree<KEY,VALUE> tree, PageCursor cursor, KEY fromInclusive, KEY toExclusive )
+    {
+        this.tree = tree;
+        this.cursor = cursor;
+        this.node = tree.node;
+        this.layout = tree.layout;
+        this.fromInclusive = layout.newKey();
+        this.toExclusive = layout.newKey();
+        layout.copyKey( fromInclusive, this.fromInclusive );
+        layout.copyKey( toExclusive, this.toExclusive );
+        this.key = layout.newKey();
+        this.value = layout.newValue();
+        this.lastKey = layout.newKey();
+        this.readKey = layout.newKey();
+    }
+
+    /**
+     * Move to the next entry in the range.
+     *
+     * @return whether or not there was a next entry, in which case it can be read with {@link #key()} and
+     * {@link #value()}.
+     */
+    public boolean next() throws IOException
+    {
+        if ( exhausted )
+        {
+            return false;
+        }
+        if ( !initialized )
+        {
+            initialized = true;
+            descendToLeaf();
+        }
+
+        while ( true )
+        {
+            byte type;
+            long generation;
+            boolean found;
+            long rightSibling;
+            long rightSiblingGeneration;
+            do
+            {
+                type = TreeNode.type( cursor );
+                generation = TreeNode.generation( cursor );
+                int keyCount = node.safeKeyCount( cursor, true );
+                rightSibling = TreeNode.rightSibling( cursor );
+                rightSiblingGeneration = TreeNode.rightSiblingGeneration( cursor );
+                int pos = hasLastKey
+                          ? node.search( cursor, true, keyCount, lastKey, readKey, false )
+                          : node.search( cursor, true, keyCount, fromInclusive, readKey, true );
+                found = pos < keyCount;
+                if ( found )
+                {
+                    node.readKey( cursor, true, pos, key );
+                    node.readValue( cursor, pos, value );
+                }
+            }
+            while ( cursor.shouldRetry() );
+
+            if ( type != TreeNode.LEAF || generation > pointerGeneration )
+            {
+                descendToLeaf();
+                continue;
+            }
+            if ( found )
+            {
+                if ( layout.compare( key, toExclusive ) >= 0 )
+                {
+                    exhausted = true;
+                    return false;
+                }
+                layout.copyKey( key, lastKey );
+                hasLastKey = true;
+                return true;
+            }
+            if ( rightSibling == TreeNode.NO_NODE || !cursor.next( rightSibling ) )
+            {
+                exhausted = true;
+                return false;
+            }
+            pointerGeneration = rightSiblingGeneration;
+        }
+    }
+
+    /**
+     * Descend from the root to the leaf where the entry after the last one returned belongs, or the first entry in
+     * the range if none has been returned yet.
+     */
+    private void descendToLeaf() throws IOException
+    {
+        KEY searchKey = hasLastKey ? lastKey : fromInclusive;
+        BTree.Root root = tree.root();
+        goTo( root.id );
+        pointerGeneration = root.generation;
+        while ( true )
+        {
+            byte type;
+            long generation;
+            long child = TreeNode.NO_NODE;
+            do
+            {
+                type = TreeNode.type( cursor );
+                generation = TreeNode.generation( cursor );
+                if ( type == TreeNode.INTERNAL )
+                {
+                    int keyCount = node.safeKeyCount( cursor, false );
+                    int childPos = node.search( cursor, false, keyCount, searchKey, readKey, false );
+                    child = node.child( cursor, childPos );
+                }
+            }
+            while ( cursor.shouldRetry() );
+
+            if ( (type != TreeNode.LEAF && type != TreeNode.INTERNAL) || generation > pointerGeneration )
+            {
+                root = tree.root();
+                goTo( root.id );
+                pointerGeneration = root.generation;
+                continue;
+            }
+            if ( type == TreeNode.LEAF )
+            {
+                return;
+            }
+            goTo( child );
+            pointerGeneration = generation;
+        }
+    }
+
+    private void goTo( long pageId ) throws IOException
+    {
+        if ( !cursor.next( pageId ) )
+        {
+            throw new IllegalStateException( "Could not go to tree node " + pageId );
+        }
+    }
+
+    /**
+     * @return the key of the current entry. The instance is reused between calls to {@link #next()}.
+     */
+    public KEY key()
+    {
+        return key;
+    }
+
+    /**
+     * @return the value of the current entry. The instance is reused between calls to {@link #next()}.
+     */
+    public VALUE value()
+    {
+        return value;
+    }
+
+    @Override
+    public void close()
+    {
+        exhausted = true;
+        cursor.close();
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.btree;
+
+import org.neo4j.io.pagecache.PageCursor;
+
+/**
+ * Layout of the tree nodes in the pages of a {@link BTree}.
+ * <p>
+ * Every node starts with a header of the node type, the key count, the generation the node was written in and two
+ * slots for the id of the right sibling node, each with the generation it was written in:
+ * <pre>
+ * [type:1][unused:3][keyCount:4][generation:8][rightSiblingA:8][generationA:8][rightSiblingB:8][generationB:8]
+ * </pre>
+ * followed by the entries. A leaf holds {@code [key][value]} entries in key order. An internal node holds the left
+ * most child id followed by {@code [key][child]} pairs, where the child to the right of a key holds the keys greater
+ * than or equal to that key:
+ * <pre>
+ * leaf:     [header][key0 value0][key1 value1]...
+ * internal: [header][child0][key0 child1][key1 child2]...
+ * </pre>
+ * Every node has room for one entry more than its max key count, so that an entry can always be inserted in the
+ * page before the node is split. This means a node is always modified in place, one page at a time.
+ * <p>
+ * A node that is part of the last checkpoint is never changed, except for its right sibling, which is written to
+ * whichever slot the checkpoint doesn't use. The slot with the highest generation is the right sibling.
+ */
+final class TreeNode<KEY,VALUE>
+{
+    static final byte LEAF = 1;
+    static final byte INTERNAL = 2;
+    static final long NO_NODE = -1;
+
+    private static final int TYPE_OFFSET = 0;
+    private static final int KEY_COUNT_OFFSET = 4;
+    private static final int GENERATION_OFFSET = 8;
+    private static final int RIGHT_SIBLING_A_OFFSET = 16;
+    private static final int RIGHT_SIBLING_B_OFFSET = 32;
+    private static final int HEADER_SIZE = 48;
+    private static final int CHILD_SIZE = 8;
+
+    private final Layout<KEY,VALUE> layout;
+    final int keySize;
+    final int leafEntrySize;
+    final int internalEntrySize;
+    final int leafMaxKeyCount;
+    final int internalMaxKeyCount;
+
+    TreeNode( int pageSize, Layout<KEY,VALUE> layout )
+    {
+        this.layout = layout;
+        this.keySize = layout.keySize();
+        this.leafEntrySize = keySize + layout.valueSize();
+        this.internalEntrySize = keySize + CHILD_SIZE;
+        this.leafMaxKeyCount = (pageSize - HEADER_SIZE) / leafEntrySize - 1;
+        this.internalMaxKeyCount = (pageSize - HEADER_SIZE - CHILD_SIZE) / internalEntrySize - 1;
+        if ( leafMaxKeyCount < 2 || internalMaxKeyCount < 3 )
+        {
+            throw new IllegalArgumentException( "Page size " + pageSize + " is too small for keys of " + keySize +
+                    " bytes and values of " + layout.valueSize() + " bytes" );
+        }
+    }
+
+    void initialize( PageCursor cursor, byte type, long generation )
+    {
+        cursor.putByte( TYPE_OFFSET, type );
+        cursor.putInt( KEY_COUNT_OFFSET, 0 );
+        cursor.putLong( GENERATION_OFFSET, generation );
+        writeSlot( cursor, RIGHT_SIBLING_A_OFFSET, NO_NODE, 0 );
+        writeSlot( cursor, RIGHT_SIBLING_B_OFFSET, NO_NODE, 0 );
+    }
+
+    static boolean isLeaf( PageCursor cursor )
+    {
+        return cursor.getByte( TYPE_OFFSET ) == LEAF;
+    }
+
+    static int keyCount( PageCursor cursor )
+    {
+        return cursor.getInt( KEY_COUNT_OFFSET );
+    }
+
+    static void setKeyCount( PageCursor cursor, int keyCount )
+    {
+        cursor.putInt( KEY_COUNT_OFFSET, keyCount );
+    }
+
+    /**
+     * Key count of a node read without any locks, which may be garbage if racing with a writer. Clamped to the
+     * range the node has room for, so that reading on will stay within the page until the read is retried.
+     */
+    int safeKeyCount( PageCursor cursor, boolean leaf )
+    {
+        int keyCount = keyCount( cursor );
+        int max = (leaf ? leafMaxKeyCount : internalMaxKeyCount) + 1;
+        return keyCount < 0 ? 0 : keyCount > max ? max : keyCount;
+    }
+
+    static long generation( PageCursor cursor )
+    {
+        return cursor.getLong( GENERATION_OFFSET );
+    }
+
+    static void setGeneration( PageCursor cursor, long generation )
+    {
+        cursor.putLong( GENERATION_OFFSET, generation );
+    }
+
+    static long rightSibling( PageCursor cursor )
+    {
+        return cursor.getLong( newestRightSiblingSlot( cursor ) );
+    }
+
+    /**
+     * @return the generation the {@link #rightSibling(PageCursor) right sibling} was written in.
+     */
+    static long rightSiblingGeneration( PageCursor cursor )
+    {
+        return cursor.getLong( newestRightSiblingSlot( cursor ) + 8 );
+    }
+
+    /**
+     * Point the node to a new right sibling, without touching the slot that the last checkpoint uses, i.e. the one
+     * with the highest generation unless that is the unstable generation itself.
+     */
+    static void setRightSibling( PageCursor cursor, long rightSibling, long unstableGeneration )
+    {
+        long generationA = cursor.getLong( RIGHT_SIBLING_A_OFFSET + 8 );
+        long generationB = cursor.getLong( RIGHT_SIBLING_B_OFFSET + 8 );
+        int slot = generationA == unstableGeneration ? RIGHT_SIBLING_A_OFFSET
+                 : generationB == unstableGeneration ? RIGHT_SIBLING_B_OFFSET
+                 : generationA < generationB ? RIGHT_SIBLING_A_OFFSET : RIGHT_SIBLING_B_OFFSET;
+        writeSlot( cursor, slot, rightSibling, unstableGeneration );
+    }
+
+    /**
+     * Let a new node take over the right sibling of the node the cursor is at, as the only pointer of its own.
+     */
+    static void copyRightSibling( PageCursor from, PageCursor to )
+    {
+        writeSlot( to, RIGHT_SIBLING_A_OFFSET, rightSibling( from ), rightSiblingGeneration( from ) );
+        writeSlot( to, RIGHT_SIBLING_B_OFFSET, NO_NODE, 0 );
+    }
+
+    /**
+     * @return whether or not the node has a right sibling written after the given stable generation, i.e. by a writer
+     * that crashed before the next checkpoint.
+     */
+    static boolean hasCrashedRightSibling( PageCursor cursor, long stableGeneration )
+    {
+        return cursor.getLong( RIGHT_SIBLING_A_OFFSET + 8 ) > stableGeneration ||
+               cursor.getLong( RIGHT_SIBLING_B_OFFSET + 8 ) > stableGeneration;
+    }
+
+    /**
+     * Forget any right sibling written after the given stable generation.
+     */
+    static void clearCrashedRightSiblings( PageCursor cursor, long stableGeneration )
+    {
+        for ( int slot : new int[]{RIGHT_SIBLING_A_OFFSET, RIGHT_SIBLING_B_OFFSET} )
+        {
+            if ( cursor.getLong( slot + 8 ) > stableGeneration )
+            {
+                writeSlot( cursor, slot, NO_NODE, 0 );
+            }
+        }
+    }
+
+    private static int newestRightSiblingSlot( PageCursor cursor )
+    {
+        return cursor.getLong( RIGHT_SIBLING_A_OFFSET + 8 ) >= cursor.getLong( RIGHT_SIBLING_B_OFFSET + 8 )
+               ? RIGHT_SIBLING_A_OFFSET : RIGHT_SIBLING_B_OFFSET;
+    }
+
+    private static void writeSlot( PageCursor cursor, int slot, long id, long generation )
+    {
+        cursor.putLong( slot, id );
+        cursor.putLong( slot + 8, generation );
+    }
+
+    static byte type( PageCursor cursor )
+    {
+        return cursor.getByte( TYPE_OFFSET );
+    }
+
+    int leafEntryOffset( int pos )
+    {
+        return HEADER_SIZE + pos * leafEntrySize;
+    }
+
+    int internalKeyOffset( int pos )
+    {
+        return HEADER_SIZE + CHILD_SIZE + pos * internalEntrySize;
+    }
+
+    int childOffset( int pos )
+    {
+        return pos == 0 ? HEADER_SIZE : internalKeyOffset( pos - 1 ) + keySize;
+    }
+
+    long child( PageCursor cursor, int pos )
+    {
+        return cursor.getLong( childOffset( pos ) );
+    }
+
+    void setChild( PageCursor cursor, int pos, long child )
+    {
+        cursor.putLong( childOffset( pos ), child );
+    }
+
+    void readKey( PageCursor cursor, boolean leaf, int pos, KEY into )
+    {
+        cursor.setOffset( leaf ? leafEntryOffset( pos ) : internalKeyOffset( pos ) );
+        layout.readKey( cursor, into );
+    }
+
+    void readValue( PageCursor cursor, int pos, VALUE into )
+    {
+        cursor.setOffset( leafEntryOffset( pos ) + keySize );
+        layout.readValue( cursor, into );
+    }
+
+    void writeLeafEntry( PageCursor cursor, int pos, KEY key, VALUE value )
+    {
+        cursor.setOffset( leafEntryOffset( pos ) );
+        layout.writeKey( cursor, key );
+        layout.writeValue( cursor, value );
+    }
+
+    void writeValue( PageCursor cursor, int pos, VALUE value )
+    {
+        cursor.setOffset( leafEntryOffset( pos ) + keySize );
+        layout.writeValue( cursor, value );
+    }
+
+    /**
+     * Binary search for the position of the first key in the node that is greater than, or if {@code inclusive}
+     * greater than or equal to, the given key.
+     *
+     * @return a position between 0 and keyCount, inclusive.
+     */
+    int search( PageCursor cursor, boolean leaf, int keyCount, KEY key, KEY readKey, boolean inclusive )
+    {
+        int lo = 0;
+        int hi = keyCount;
+        while ( lo < hi )
+        {
+            int mid = (lo + hi) >>> 1;
+            readKey( cursor, leaf, mid, readKey );
+            int comparison = layout.compare( readKey, key );
+            if ( comparison < 0 || (comparison == 0 && !inclusive) )
+            {
+                lo = mid + 1;
+            }
+            else
+            {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Move the entries in {@code [fromPos, keyCount)} of a node the given number of positions, within the same page.
+     */
+    void shiftEntries( PageCursor cursor, boolean leaf, int fromPos, int keyCount, int positions, byte[] scratch )
+    {
+        int entrySize = leaf ? leafEntrySize : internalEntrySize;
+        int offset = leaf ? leafEntryOffset( fromPos ) : internalKeyOffset( fromPos );
+        int length = (keyCount - fromPos) * entrySize;
+        if ( length > 0 )
+        {
+            cursor.setOffset( offset );
+            cursor.getBytes( scratch, 0, length );
+            cursor.setOffset( offset + positions * entrySize );
+            cursor.putBytes( scratch, 0, length );
+        }
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.labelscan;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.neo4j.helpers.collection.PrefetchingIterator;
+import org.neo4j.kernel.api.labelscan.AllEntriesLabelScanReader;
+import org.neo4j.kernel.api.labelscan.NodeLabelRange;
+import org.neo4j.kernel.impl.index.btree.BTree;
+import org.neo4j.kernel.impl.index.btree.SeekCursor;
+
+import static org.neo4j.kernel.impl.index.labelscan.NativeLabelScanStore.RANGE_SIZE;
+
+/**
+ * {@link AllEntriesLabelScanReader} of a {@link NativeLabelScanStore}. Since the tree is ordered by label first,
+ * this reader walks the ranges of every label side by side, and combines the entries of the same range into one
+ * {@link NodeLabelRange}.
+ */
+class NativeAllEntriesLabelScanReader implements AllEntriesLabelScanReader
+{
+    private final BTree<LabelScanKey,LabelScanValue> tree;
+    private final List<SeekCursor<LabelScanKey,LabelScanValue>> cursors = new ArrayList<>();
+
+    NativeAllEntriesLabelScanReader( BTree<LabelScanKey,LabelScanValue> tree )
+    {
+        this.tree = tree;
+    }
+
+    @Override
+    public long maxCount()
+    {
+        // There can't be more ranges than there are entries in the tree
+        try ( SeekCursor<LabelScanKey,LabelScanValue> cursor = tree.seek( new LabelScanKey().set( 0, 0 ),
+                new LabelScanKey().set( Integer.MAX_VALUE, Long.MAX_VALUE ) ) )
+        {
+            long count = 0;
+            while ( cursor.next() )
+            {
+                count++;
+            }
+            return count;
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    @Override
+    public Iterator<NodeLabelRange> iterator()
+    {
+        try
+        {
+            List<Integer> labels = new ArrayList<>();
+            for ( int labelId = NativeLabelScanReader.nextLabel( tree, 0 ); labelId != -1;
+                  labelId = NativeLabelScanReader.nextLabel( tree, labelId + 1L ) )
+            {
+                labels.add( labelId );
+            }
+            return new RangeIterator( labels );
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    @Override
+    public void close() throws Exception
+    {
+        for ( SeekCursor<LabelScanKey,LabelScanValue> cursor : cursors )
+        {
+            cursor.close();
+        }
+        cursors.clear();
+    }
+
+    private class RangeIterator extends PrefetchingIterator<NodeLabelRange>
+    {
+        private final long[] labelIds;
+        private final List<SeekCursor<LabelScanKey,LabelScanValue>> labelCursors = new ArrayList<>();
+        // The current range and bits of every label, or -1 as range if there are no more ranges of that label.
+        private final long[] idRanges;
+        private final long[] bits;
+
+        RangeIterator( List<Integer> labels ) throws IOException
+        {
+            labelIds = new long[labels.size()];
+            idRanges = new long[labels.size()];
+            bits = new long[labels.size()];
+            for ( int i = 0; i < labelIds.length; i++ )
+            {
+                int labelId = labels.get( i );
+                labelIds[i] = labelId;
+                SeekCursor<LabelScanKey,LabelScanValue> cursor = tree.seek(
+                        new LabelScanKey().set( labelId, 0 ), new LabelScanKey().set( labelId, Long.MAX_VALUE ) );
+                cursors.add( cursor );
+                labelCursors.add( cursor );
+                advance( i );
+            }
+        }
+
+        private void advance( int labelIndex ) throws IOException
+        {
+            SeekCursor<LabelScanKey,LabelScanValue> cursor = labelCursors.get( labelIndex );
+            if ( cursor.next() )
+            {
+                idRanges[labelIndex] = cursor.key().idRange;
+                bits[labelIndex] = cursor.value().bits;
+            }
+            else
+            {
+                idRanges[labelIndex] = -1;
+            }
+        }
+
+        @Override
+        protected NodeLabelRange fetchNextOrNull()
+        {
+            long idRange = Long.MAX_VALUE;
+            for ( long range : idRanges )
+            {
+                if ( range != -1 && range < idRange )
+                {
+                    idRange = range;
+                }
+            }
+            if ( idRange == Long.MAX_VALUE )
+            {
+                return null;
+            }
+
+            long[] rangeLabels = new long[labelIds.length];
+            long[] rangeBits = new long[labelIds.length];
+            int count = 0;
+            try
+            {
+                for ( int i = 0; i < labelIds.length; i++ )
+                {
+                    if ( idRanges[i] == idRange )
+                    {
+                        rangeLabels[count] = labelIds[i];
+                        rangeBits[count] = bits[i];
+                        count++;
+                        advance( i );
+                    }
+                }
+            }
+            catch ( IOException e )
+            {
+                throw new UncheckedIOException( e );
+            }
+            return new NativeNodeLabelRange( idRange, Arrays.copyOf( rangeLabels, count ),
+                    Arrays.copyOf( rangeBits, count ) );
+        }
+    }
+
+    /**
+     * The nodes of one range and their labels, made up of the bitmaps of all labels in that range.
+     */
+    private static class NativeNodeLabelRange implements NodeLabelRange
+    {
+        private final long idRange;
+        private final long[] labelIds;
+        private final long[] bits;
+
+        NativeNodeLabelRange( long idRange, long[] labelIds, long[] bits )
+        {
+            this.idRange = idRange;
+            this.labelIds = labelIds;
+            this.bits = bits;
+        }
+
+        @Override
+        public int id()
+        {
+            return (int) idRange;
+        }
+
+        @Override
+        public long[] nodes()
+        {
+            long allBits = 0;
+            for ( long labelBits : bits )
+            {
+                allBits |= labelBits;
+            }
+            long[] nodes = new long[Long.bitCount( allBits )];
+            for ( int i = 0; i < nodes.length; i++ )
+            {
+                nodes[i] = idRange * RANGE_SIZE + Long.numberOfTrailingZeros( allBits );
+                allBits &= allBits - 1;
+            }
+            return nodes;
+        }
+
+        @Override
+        public long[] labels( long nodeId )
+        {
+            if ( nodeId / RANGE_SIZE != idRange )
+            {
+                throw new IllegalArgumentException( "Unknown nodeId: " + nodeId );
+            }
+            long bit = 1L << (nodeId % RANGE_SIZE);
+            long[] labels = new long[labelIds.length];
+            int count = 0;
+            for ( int i = 0; i < labelIds.length; i++ )
+            {
+                if ( (bits[i] & bit) != 0 )
+                {
+                    labels[count++] = labelIds[i];
+                }
+            }
+            if ( count == 0 )
+            {
+                throw new IllegalArgumentException( "Unknown nodeId: " + nodeId );
+            }
+            return Arrays.copyOf( labels, count );
+        }
+
+        @Override
+        public String toString()
+        {
+            return "NodeLabelRange[range=" + idRange + ", labels=" + Arrays.toString( labelIds ) + "]";
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.labelscan;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.neo4j.collection.primitive.PrimitiveLongCollections;
+import org.neo4j.collection.primitive.PrimitiveLongCollections.PrimitiveLongBaseIterator;
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.kernel.impl.index.btree.BTree;
+import org.neo4j.kernel.impl.index.btree.SeekCursor;
+import org.neo4j.storageengine.api.schema.LabelScanReader;
+
+import static org.neo4j.kernel.impl.index.labelscan.NativeLabelScanStore.RANGE_SIZE;
+
+/**
+ * {@link LabelScanReader} of a {@link NativeLabelScanStore}. The nodes of a label are read by walking the ranges of
+ * the label in order, which are next to each other in the tree. Reads don't take any locks, so changes that are
+ * written to the store while a read is in progress may or may not be seen by it.
+ */
+class NativeLabelScanReader implements LabelScanReader
+{
+    private final BTree<LabelScanKey,LabelScanValue> tree;
+    private final List<LabelIterator> openIterators = new ArrayList<>();
+
+    NativeLabelScanReader( BTree<LabelScanKey,LabelScanValue> tree )
+    {
+        this.tree = tree;
+    }
+
+    @Override
+    public PrimitiveLongIterator nodesWithLabel( int labelId )
+    {
+        try
+        {
+            LabelIterator iterator = new LabelIterator( tree.seek(
+                    new LabelScanKey().set( labelId, 0 ), new LabelScanKey().set( labelId, Long.MAX_VALUE ) ) );
+            openIterators.add( iterator );
+            return iterator;
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    @Override
+    public PrimitiveLongIterator labelsForNode( long nodeId )
+    {
+        long idRange = nodeId / RANGE_SIZE;
+        long bit = 1L << (nodeId % RANGE_SIZE);
+        long[] labels = new long[4];
+        int labelCount = 0;
+        try
+        {
+            for ( int labelId = nextLabel( tree, 0 ); labelId != -1; labelId = nextLabel( tree, labelId + 1L ) )
+            {
+                try ( SeekCursor<LabelScanKey,LabelScanValue> cursor = tree.seek(
+                        new LabelScanKey().set( labelId, idRange ), new LabelScanKey().set( labelId, idRange + 1 ) ) )
+                {
+                    if ( cursor.next() && (cursor.value().bits & bit) != 0 )
+                    {
+                        if ( labelCount == labels.length )
+                        {
+                            labels = Arrays.copyOf( labels, labelCount * 2 );
+                        }
+                        labels[labelCount++] = labelId;
+                    }
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+        return PrimitiveLongCollections.iterator( Arrays.copyOf( labels, labelCount ) );
+    }
+
+    /**
+     * @return the lowest label id, that is equal to or greater than {@code fromLabelId}, which has any nodes in the
+     * tree, or {@code -1} if there is no such label.
+     */
+    static int nextLabel( BTree<LabelScanKey,LabelScanValue> tree, long fromLabelId ) throws IOException
+    {
+        if ( fromLabelId > Integer.MAX_VALUE )
+        {
+            return -1;
+        }
+        try ( SeekCursor<LabelScanKey,LabelScanValue> cursor = tree.seek(
+                new LabelScanKey().set( (int) fromLabelId, 0 ),
+                new LabelScanKey().set( Integer.MAX_VALUE, Long.MAX_VALUE ) ) )
+        {
+            return cursor.next() ? cursor.key().labelId : -1;
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        for ( LabelIterator iterator : openIterators )
+        {
+            iterator.close();
+        }
+        openIterators.clear();
+    }
+
+    private static class LabelIterator extends PrimitiveLongBaseIterator
+    {
+        private final SeekCursor<LabelScanKey,LabelScanValue> cursor;
+        private long baseNodeId;
+        private long bits;
+        private boolean closed;
+
+        LabelIterator( SeekCursor<LabelScanKey,LabelScanValue> cursor )
+        {
+            this.cursor = cursor;
+        }
+
+        @Override
+        protected boolean fetchNext()
+        {
+            try
+            {
+                while ( bits == 0 )
+                {
+                    if ( closed || !cursor.next() )
+                    {
+                        close();
+                        return false;
+                    }
+                    baseNodeId = cursor.key().idRange * RANGE_SIZE;
+                    bits = cursor.value().bits;
+                }
+                int offset = Long.numberOfTrailingZeros( bits );
+                bits &= bits - 1;
+                return next( baseNodeId + offset );
+            }
+            catch ( IOException e )
+            {
+                throw new UncheckedIOException( e );
+            }
+        }
+
+        void close()
+        {
+            if ( !closed )
+            {
+                closed = true;
+                cursor.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.labelscan;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.kernel.api.labelscan.AllEntriesLabelScanReader;
+import org.neo4j.kernel.api.labelscan.LabelScanStore;
+import org.neo4j.kernel.api.labelscan.LabelScanWriter;
+import org.neo4j.kernel.impl.api.scan.LabelScanStoreProvider;
+import org.neo4j.kernel.impl.api.scan.LabelScanStoreProvider.FullStoreChangeStream;
+import org.neo4j.kernel.impl.index.btree.BTree;
+import org.neo4j.kernel.impl.store.UnderlyingStorageException;
+import org.neo4j.logging.Log;
+import org.neo4j.logging.LogProvider;
+import org.neo4j.storageengine.api.schema.LabelScanReader;
+
+import static org.neo4j.helpers.collection.Iterators.asResourceIterator;
+import static org.neo4j.helpers.collection.Iterators.iterator;
+
+/**
+ * {@link LabelScanStore} that keeps a bitmap of the nodes of every label, for every range of
+ * {@value #RANGE_SIZE} node ids, in a {@link BTree} in the page cache.
+ * <p>
+ * The tree is changed in place and isn't consistent on disk until it has been closed, so a store that wasn't shut
+ * down cleanly is rebuilt from the node store when it starts. Transactions that are recovered before that are
+ * applied to the emptied store, which is fine since the rebuild sets the labels of all nodes as they are after
+ * recovery.
+ */
+public class NativeLabelScanStore implements LabelScanStore
+{
+    /**
+     * The number of node ids covered by every bitmap in the store.
+     */
+    public static final int RANGE_SIZE = Long.SIZE;
+
+    private final PageCache pageCache;
+    private final FileSystemAbstraction fs;
+    private final File storeDir;
+    private final File storeFile;
+    // We get in a full store stream here in case we need to fully rebuild the store if it's missing or unclean.
+    private final FullStoreChangeStream fullStoreStream;
+    private final Log log;
+    private BTree<LabelScanKey,LabelScanValue> tree;
+    private boolean needsRebuild;
+
+    public NativeLabelScanStore( PageCache pageCache, FileSystemAbstraction fs, File storeDir,
+            FullStoreChangeStream fullStoreStream, LogProvider logProvider )
+    {
+        this.pageCache = pageCache;
+        this.fs = fs;
+        this.storeDir = storeDir;
+        this.storeFile = getStoreFile( storeDir );
+        this.fullStoreStream = fullStoreStream;
+        this.log = logProvider.getLog( getClass() );
+    }
+
+    public static File getStoreFile( File storeDir )
+    {
+        return new File( new File( new File( new File( storeDir, "schema" ), "label" ), "native" ), "labelscan.db" );
+    }
+
+    @Override
+    public void init() throws IOException
+    {
+        // The Lucene label scan store doesn't see any of the changes made to this store, so it must be rebuilt if
+        // it is ever used again.
+        File luceneStoreDirectory = LabelScanStoreProvider.getStoreDirectory( storeDir );
+        if ( fs.fileExists( luceneStoreDirectory ) )
+        {
+            fs.deleteRecursively( luceneStoreDirectory );
+        }
+
+        if ( !fs.fileExists( storeFile ) )
+        {
+            log.info( "No native label scan store found, this might just be first use. Preparing to rebuild." );
+            fs.mkdirs( storeFile.getParentFile() );
+            needsRebuild = true;
+            tree = new BTree<>( pageCache, storeFile, LabelScanLayout.INSTANCE );
+            return;
+        }
+
+        try
+        {
+            tree = new BTree<>( pageCache, storeFile, LabelScanLayout.INSTANCE );
+            if ( tree.wasCleanlyClosed() )
+            {
+                return;
+            }
+            log.warn( "Native label scan store was not shut down cleanly. Preparing to rebuild." );
+            tree.close();
+        }
+        catch ( IOException e )
+        {
+            log.warn( "Native label scan store could not be read. Preparing to rebuild.", e );
+        }
+        fs.deleteFile( storeFile );
+        needsRebuild = true;
+        tree = new BTree<>( pageCache, storeFile, LabelScanLayout.INSTANCE );
+    }
+
+    @Override
+    public void start() throws IOException
+    {
+        if ( needsRebuild )
+        {   // we saw in init() that we need to rebuild the store, so do it here after the
+            // neostore has been properly started.
+            log.info( "Rebuilding native label scan store, this may take a while" );
+            long numberOfNodes;
+            try ( LabelScanWriter writer = newWriter() )
+            {
+                numberOfNodes = fullStoreStream.applyTo( writer );
+            }
+            tree.force();
+            log.info( "Native label scan store rebuilt (roughly " + numberOfNodes + " nodes)" );
+            needsRebuild = false;
+        }
+    }
+
+    @Override
+    public void stop()
+    {   // Not needed
+    }
+
+    @Override
+    public void shutdown() throws IOException
+    {
+        if ( tree != null )
+        {
+            tree.close();
+            tree = null;
+        }
+    }
+
+    @Override
+    public LabelScanReader newReader()
+    {
+        return new NativeLabelScanReader( tree );
+    }
+
+    @Override
+    public LabelScanWriter newWriter()
+    {
+        try
+        {
+            return new NativeLabelScanWriter( tree.writer() );
+        }
+        catch ( IOException e )
+        {
+            throw new UnderlyingStorageException( e );
+        }
+    }
+
+    @Override
+    public void force() throws UnderlyingStorageException
+    {
+        try
+        {
+            if ( tree != null )
+            {
+                tree.force();
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new UnderlyingStorageException( e );
+        }
+    }
+
+    @Override
+    public AllEntriesLabelScanReader allNodeLabelRanges()
+    {
+        return new NativeAllEntriesLabelScanReader( tree );
+    }
+
+    @Override
+    public ResourceIterator<File> snapshotStoreFiles() throws IOException
+    {
+        // A copy of the file is never marked as cleanly shut down, so it is rebuilt wherever it is restored.
+        return asResourceIterator( iterator( storeFile ) );
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.labelscan;
+
+import java.io.File;
+import java.util.function.Supplier;
+
+import org.neo4j.graphdb.factory.GraphDatabaseSettings;
+import org.neo4j.helpers.Service;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.kernel.NeoStoreDataSource;
+import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.extension.KernelExtensionFactory;
+import org.neo4j.kernel.impl.api.index.IndexStoreView;
+import org.neo4j.kernel.impl.api.scan.LabelScanStoreProvider;
+import org.neo4j.kernel.impl.logging.LogService;
+import org.neo4j.kernel.impl.spi.KernelContext;
+import org.neo4j.kernel.lifecycle.Lifecycle;
+
+import static org.neo4j.kernel.impl.api.scan.LabelScanStoreProvider.fullStoreLabelUpdateStream;
+
+/**
+ * Provides the {@link NativeLabelScanStore}, with a priority higher than that of the Lucene label scan store if
+ * {@link GraphDatabaseSettings#native_label_scan_store_enabled} is set, and lower otherwise.
+ */
+@Service.Implementation( KernelExtensionFactory.class )
+public class NativeLabelScanStoreExtension extends KernelExtensionFactory<NativeLabelScanStoreExtension.Dependencies>
+{
+    private static final int ENABLED_PRIORITY = 50;
+    private static final int DISABLED_PRIORITY = 0;
+
+    public interface Dependencies
+    {
+        Config getConfig();
+
+        PageCache pageCache();
+
+        /**
+         * @return a {@link Supplier} of {@link IndexStoreView}, sort of like a delayed dependency lookup.
+         * This is because we need the {@link IndexStoreView} dependency, although at the stage where we
+         * grab dependencies, in {@link Lifecycle#init() init} that is, the {@link NeoStoreDataSource} hasn't been
+         * {@link Lifecycle#start() started} yet and so haven't provided it.
+         */
+        Supplier<IndexStoreView> indexStoreView();
+
+        LogService getLogService();
+    }
+
+    public NativeLabelScanStoreExtension()
+    {
+        super( "native-scan-store" );
+    }
+
+    @Override
+    public LabelScanStoreProvider newInstance( KernelContext context, Dependencies dependencies ) throws Throwable
+    {
+        boolean enabled = dependencies.getConfig().get( GraphDatabaseSettings.native_label_scan_store_enabled );
+        if ( !enabled )
+        {
+            // Another label scan store is going to be used, so a native store left from earlier is out of date
+            FileSystemAbstraction fs = context.fileSystem();
+            File storeFile = NativeLabelScanStore.getStoreFile( context.storeDir() );
+            if ( fs.fileExists( storeFile ) )
+            {
+                fs.deleteFile( storeFile );
+            }
+        }
+
+        NativeLabelScanStore scanStore = new NativeLabelScanStore( dependencies.pageCache(), context.fileSystem(),
+                context.storeDir(), fullStoreLabelUpdateStream( dependencies.indexStoreView() ),
+                dependencies.getLogService().getInternalLogProvider() );
+        return new LabelScanStoreProvider( scanStore, enabled ? ENABLED_PRIORITY : DISABLED_PRIORITY );
+    }
+}
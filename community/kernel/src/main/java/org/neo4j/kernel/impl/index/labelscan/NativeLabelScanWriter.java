@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.labelscan;
+
+import java.io.IOException;
+
+import org.neo4j.collection.primitive.Primitive;
+import org.neo4j.collection.primitive.PrimitiveIntObjectMap;
+import org.neo4j.kernel.api.labelscan.LabelScanWriter;
+import org.neo4j.kernel.api.labelscan.NodeLabelUpdate;
+import org.neo4j.kernel.impl.index.btree.BTreeWriter;
+
+import static java.lang.String.format;
+import static org.neo4j.kernel.impl.index.labelscan.NativeLabelScanStore.RANGE_SIZE;
+
+/**
+ * {@link LabelScanWriter} of a {@link NativeLabelScanStore}. Since updates come in node id order, the changes of
+ * every label are collected in a bitmap of the current range of that label, and the bitmap is merged into the tree
+ * once an update for a later range of the same label comes along, or the writer is closed. This way, bulk updates
+ * like a rebuild of the store only touch every entry in the tree once.
+ */
+class NativeLabelScanWriter implements LabelScanWriter
+{
+    private final BTreeWriter<LabelScanKey,LabelScanValue> writer;
+    private final PrimitiveIntObjectMap<PendingRange> pendingRanges = Primitive.intObjectMap();
+    private final LabelScanKey key = new LabelScanKey();
+    private final LabelScanValue value = new LabelScanValue();
+    private long currentRange = -1;
+
+    NativeLabelScanWriter( BTreeWriter<LabelScanKey,LabelScanValue> writer )
+    {
+        this.writer = writer;
+    }
+
+    @Override
+    public void write( NodeLabelUpdate update ) throws IOException
+    {
+        long nodeId = update.getNodeId();
+        long idRange = nodeId / RANGE_SIZE;
+        if ( idRange < currentRange )
+        {
+            throw new IllegalArgumentException( format( "NodeLabelUpdates must be supplied in order of ascending " +
+                    "node id. Current range:%d, node id of this update:%d", currentRange, nodeId ) );
+        }
+        currentRange = idRange;
+
+        long bit = 1L << (nodeId % RANGE_SIZE);
+        long[] labelsBefore = update.getLabelsBefore();
+        long[] labelsAfter = update.getLabelsAfter();
+        for ( long labelId : labelsBefore )
+        {
+            if ( !contains( labelsAfter, labelId ) )
+            {
+                PendingRange range = pendingRange( (int) labelId, idRange );
+                range.added &= ~bit;
+                range.removed |= bit;
+            }
+        }
+        for ( long labelId : labelsAfter )
+        {
+            if ( !contains( labelsBefore, labelId ) )
+            {
+                PendingRange range = pendingRange( (int) labelId, idRange );
+                range.added |= bit;
+                range.removed &= ~bit;
+            }
+        }
+    }
+
+    private static boolean contains( long[] labels, long labelId )
+    {
+        for ( long label : labels )
+        {
+            if ( label == labelId )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private PendingRange pendingRange( int labelId, long idRange ) throws IOException
+    {
+        PendingRange range = pendingRanges.get( labelId );
+        if ( range == null )
+        {
+            range = new PendingRange( labelId );
+            pendingRanges.put( labelId, range );
+        }
+        else if ( range.idRange != idRange )
+        {
+            merge( range );
+        }
+        range.idRange = idRange;
+        return range;
+    }
+
+    private void merge( PendingRange range ) throws IOException
+    {
+        key.set( range.labelId, range.idRange );
+        long bits = writer.get( key, value ) ? value.bits : 0;
+        long newBits = (bits | range.added) & ~range.removed;
+        if ( newBits == 0 )
+        {
+            if ( bits != 0 )
+            {
+                writer.remove( key, null );
+            }
+        }
+        else if ( newBits != bits )
+        {
+            value.bits = newBits;
+            writer.put( key, value );
+        }
+        range.added = 0;
+        range.removed = 0;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            pendingRanges.visitEntries( ( labelId, range ) ->
+            {
+                merge( range );
+                return false;
+            } );
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+
+    private static class PendingRange
+    {
+        private final int labelId;
+        private long idRange;
+        private long added;
+        private long removed;
+
+        PendingRange( int labelId )
+        {
+            this.labelId = labelId;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.kernel.api.exceptions.EntityNotFoundException;
+import org.neo4j.kernel.api.exceptions.PropertyNotFoundException;
+import org.neo4j.kernel.api.exceptions.index.IndexEntryConflictException;
+import org.neo4j.kernel.api.index.InternalIndexState;
+import org.neo4j.kernel.api.index.PreexistingIndexEntryConflictException;
+import org.neo4j.kernel.api.index.PropertyAccessor;
+import org.neo4j.kernel.api.properties.Property;
+import org.neo4j.kernel.impl.index.btree.BTree;
+import org.neo4j.kernel.impl.index.btree.SeekCursor;
+import org.neo4j.string.UTF8;
+
+/**
+ * The {@link BTree} of a native schema index, with the index state kept in the user data of the tree header.
+ * The state is read as of the last checkpoint of the tree, which is also what the tree is opened as after a crash,
+ * so an index that was online at the last checkpoint comes up online and gets the updates after it from recovery.
+ */
+class NativeSchemaIndex
+{
+    private static final byte POPULATING = 0;
+    private static final byte ONLINE = 1;
+    private static final byte FAILED = 2;
+
+    private final PageCache pageCache;
+    private final FileSystemAbstraction fs;
+    private final File file;
+    private BTree<SchemaIndexKey,Void> tree;
+
+    NativeSchemaIndex( PageCache pageCache, FileSystemAbstraction fs, File file )
+    {
+        this.pageCache = pageCache;
+        this.fs = fs;
+        this.file = file;
+    }
+
+    /**
+     * Create a new empty index, replacing any existing one.
+     */
+    void create() throws IOException
+    {
+        if ( fs.fileExists( file ) )
+        {
+            fs.deleteFile( file );
+        }
+        fs.mkdirs( file.getParentFile() );
+        open();
+        tree.setUserData( new byte[]{POPULATING} );
+    }
+
+    void open() throws IOException
+    {
+        tree = new BTree<>( pageCache, file, SchemaIndexLayout.INSTANCE );
+    }
+
+    BTree<SchemaIndexKey,Void> tree()
+    {
+        return tree;
+    }
+
+    File file()
+    {
+        return file;
+    }
+
+    void markAsOnline()
+    {
+        tree.setUserData( new byte[]{ONLINE} );
+    }
+
+    void markAsFailed( String failure )
+    {
+        byte[] message = UTF8.encode( failure );
+        // Make room for the state byte, and truncate the message if it doesn't fit in the tree header
+        int length = Math.min( message.length, 1024 );
+        byte[] userData = new byte[1 + length];
+        userData[0] = FAILED;
+        System.arraycopy( message, 0, userData, 1, length );
+        tree.setUserData( userData );
+    }
+
+    void force() throws IOException
+    {
+        tree.force();
+    }
+
+    void close() throws IOException
+    {
+        if ( tree != null )
+        {
+            tree.close();
+            tree = null;
+        }
+    }
+
+    void drop() throws IOException
+    {
+        close();
+        fs.deleteFile( file );
+    }
+
+    static InternalIndexState readState( PageCache pageCache, FileSystemAbstraction fs, File file ) throws IOException
+    {
+        byte[] userData = fs.fileExists( file ) ? BTree.readCheckpointedUserData( pageCache, file ) : null;
+        if ( userData == null || userData.length == 0 )
+        {
+            return InternalIndexState.POPULATING;
+        }
+        switch ( userData[0] )
+        {
+        case ONLINE:
+            return InternalIndexState.ONLINE;
+        case FAILED:
+            return InternalIndexState.FAILED;
+        default:
+            return InternalIndexState.POPULATING;
+        }
+    }
+
+    static String readFailure( PageCache pageCache, FileSystemAbstraction fs, File file ) throws IOException
+    {
+        byte[] userData = fs.fileExists( file ) ? BTree.readCheckpointedUserData( pageCache, file ) : null;
+        if ( userData == null || userData.length == 0 || userData[0] != FAILED )
+        {
+            return null;
+        }
+        return UTF8.decode( userData, 1, userData.length - 1 );
+    }
+
+    /**
+     * Verify that no two nodes in the given range of keys have the same property value. Nodes whose values have
+     * the same key are checked against their actual property values, since numbers are indexed as doubles.
+     */
+    void verifyUniqueness( PropertyAccessor accessor, int propertyKeyId, SchemaIndexKey from, SchemaIndexKey to )
+            throws IOException, IndexEntryConflictException
+    {
+        SchemaIndexKey groupKey = new SchemaIndexKey();
+        List<Long> group = new ArrayList<>();
+        try ( SeekCursor<SchemaIndexKey,Void> cursor = tree.seek( from, to ) )
+        {
+            while ( cursor.next() )
+            {
+                SchemaIndexKey key = cursor.key();
+                if ( group.isEmpty() || key.compareValueTo( groupKey ) != 0 )
+                {
+                    verifyUniqueness( accessor, propertyKeyId, group );
+                    group.clear();
+                    key.copyTo( groupKey );
+                }
+                group.add( key.entityId );
+            }
+        }
+        verifyUniqueness( accessor, propertyKeyId, group );
+    }
+
+    void verifyUniqueness( PropertyAccessor accessor, int propertyKeyId, Object value )
+            throws IOException, IndexEntryConflictException
+    {
+        SchemaIndexKey from = new SchemaIndexKey();
+        SchemaIndexKey to = new SchemaIndexKey();
+        from.from( value, Long.MIN_VALUE );
+        to.from( value, Long.MAX_VALUE );
+        verifyUniqueness( accessor, propertyKeyId, from, to );
+    }
+
+    private static void verifyUniqueness( PropertyAccessor accessor, int propertyKeyId, List<Long> nodeIds )
+            throws IndexEntryConflictException
+    {
+        if ( nodeIds.size() < 2 )
+        {
+            return;
+        }
+        try
+        {
+            Object[] values = new Object[nodeIds.size()];
+            for ( int i = 0; i < values.length; i++ )
+            {
+                Property property = accessor.getProperty( nodeIds.get( i ), propertyKeyId );
+                values[i] = property.value();
+                for ( int j = 0; j < i; j++ )
+                {
+                    if ( property.valueEquals( values[j] ) )
+                    {
+                        throw new PreexistingIndexEntryConflictException( values[j], nodeIds.get( j ),
+                                nodeIds.get( i ) );
+                    }
+                }
+            }
+        }
+        catch ( EntityNotFoundException | PropertyNotFoundException e )
+        {
+            throw new IllegalStateException( "Indexed node should exist and have the indexed property, nodes: " +
+                    Arrays.toString( nodeIds.toArray() ), e );
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import java.io.IOException;
+import java.util.Collection;
+
+import org.neo4j.kernel.api.exceptions.index.IndexEntryConflictException;
+import org.neo4j.kernel.api.index.IndexConfiguration;
+import org.neo4j.kernel.api.index.IndexDescriptor;
+import org.neo4j.kernel.api.index.IndexPopulator;
+import org.neo4j.kernel.api.index.IndexUpdater;
+import org.neo4j.kernel.api.index.NodePropertyUpdate;
+import org.neo4j.kernel.api.index.PropertyAccessor;
+import org.neo4j.storageengine.api.schema.IndexSample;
+
+/**
+ * {@link IndexPopulator} of a {@link NativeSchemaIndex}. Entries go straight into the tree, and the sample is taken
+ * from the tree once population is done, which is cheap compared to building the index.
+ */
+class NativeSchemaIndexPopulator implements IndexPopulator
+{
+    private final NativeSchemaIndex index;
+    private final IndexDescriptor descriptor;
+    private final IndexConfiguration configuration;
+
+    NativeSchemaIndexPopulator( NativeSchemaIndex index, IndexDescriptor descriptor,
+            IndexConfiguration configuration )
+    {
+        this.index = index;
+        this.descriptor = descriptor;
+        this.configuration = configuration;
+    }
+
+    @Override
+    public void create() throws IOException
+    {
+        index.create();
+    }
+
+    @Override
+    public void drop() throws IOException
+    {
+        index.drop();
+    }
+
+    @Override
+    public void add( Collection<NodePropertyUpdate> updates ) throws IndexEntryConflictException, IOException
+    {
+        try ( NativeSchemaIndexUpdater updater = new NativeSchemaIndexUpdater( index ) )
+        {
+            for ( NodePropertyUpdate update : updates )
+            {
+                updater.add( update.getNodeId(), update.getValueAfter() );
+            }
+        }
+    }
+
+    @Override
+    public void verifyDeferredConstraints( PropertyAccessor accessor ) throws IndexEntryConflictException, IOException
+    {
+        if ( configuration.isUnique() )
+        {
+            SchemaIndexKey from = new SchemaIndexKey();
+            SchemaIndexKey to = new SchemaIndexKey();
+            from.lowest( SchemaIndexKey.NUMBER );
+            to.lowest( SchemaIndexKey.END );
+            index.verifyUniqueness( accessor, descriptor.getPropertyKeyId(), from, to );
+        }
+    }
+
+    @Override
+    public IndexUpdater newPopulatingUpdater( PropertyAccessor accessor ) throws IOException
+    {
+        return configuration.isUnique()
+               ? new NativeSchemaIndexUpdater( index, accessor, descriptor.getPropertyKeyId() )
+               : new NativeSchemaIndexUpdater( index );
+    }
+
+    @Override
+    public void close( boolean populationCompletedSuccessfully ) throws IOException
+    {
+        if ( populationCompletedSuccessfully )
+        {
+            index.markAsOnline();
+        }
+        index.close();
+    }
+
+    @Override
+    public void markAsFailed( String failure ) throws IOException
+    {
+        index.markAsFailed( failure );
+    }
+
+    @Override
+    public void includeSample( NodePropertyUpdate update )
+    {
+        // The sample is taken from the tree when asked for
+    }
+
+    @Override
+    public IndexSample sampleResult()
+    {
+        try ( NativeSchemaIndexReader reader = new NativeSchemaIndexReader( index.tree() ) )
+        {
+            return reader.createSampler().sampleIndex();
+        }
+        catch ( Exception e )
+        {
+            throw new IllegalStateException( "Unable to sample populated index", e );
+        }
+    }
+}
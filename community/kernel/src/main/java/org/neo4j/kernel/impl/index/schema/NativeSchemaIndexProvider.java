@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.kernel.api.index.IndexAccessor;
+import org.neo4j.kernel.api.index.IndexConfiguration;
+import org.neo4j.kernel.api.index.IndexDescriptor;
+import org.neo4j.kernel.api.index.IndexPopulator;
+import org.neo4j.kernel.api.index.InternalIndexState;
+import org.neo4j.kernel.api.index.SchemaIndexProvider;
+import org.neo4j.kernel.impl.api.index.sampling.IndexSamplingConfig;
+import org.neo4j.kernel.impl.api.scan.LabelScanStoreProvider;
+import org.neo4j.kernel.impl.storemigration.StoreMigrationParticipant;
+import org.neo4j.logging.Log;
+import org.neo4j.logging.LogProvider;
+
+/**
+ * Schema index provider keeping every index in a B+tree in the {@link PageCache}, see
+ * {@link org.neo4j.kernel.impl.index.btree.BTree}.
+ * <p>
+ * Seeks are range scans over the tree that don't take any locks or allocate per result, which makes them a lot
+ * cheaper than the equivalent Lucene queries. Only numbers and short strings can be indexed, see
+ * {@link #canIndex(Object)}, so this provider is meant to be used together with one that can index any value, see
+ * {@link org.neo4j.kernel.impl.index.schema.fusion.FusionSchemaIndexProvider}.
+ */
+public class NativeSchemaIndexProvider extends SchemaIndexProvider
+{
+    public static final Descriptor NATIVE_PROVIDER_DESCRIPTOR = new Descriptor( "native", "1.0" );
+
+    private final PageCache pageCache;
+    private final FileSystemAbstraction fs;
+    private final File indexDirectory;
+    private final Log log;
+
+    public NativeSchemaIndexProvider( PageCache pageCache, FileSystemAbstraction fs, File storeDir,
+            LogProvider logProvider )
+    {
+        super( NATIVE_PROVIDER_DESCRIPTOR, 0 );
+        this.pageCache = pageCache;
+        this.fs = fs;
+        this.indexDirectory = getSchemaIndexStoreDirectory( storeDir );
+        this.log = logProvider.getLog( getClass() );
+    }
+
+    /**
+     * @return whether or not the value can be indexed by this provider.
+     */
+    public static boolean canIndex( Object value )
+    {
+        return SchemaIndexKey.supports( value );
+    }
+
+    /**
+     * @return the file of the tree of the given index.
+     */
+    public File indexFile( long indexId )
+    {
+        return new File( new File( indexDirectory, String.valueOf( indexId ) ), "index" );
+    }
+
+    @Override
+    public IndexPopulator getPopulator( long indexId, IndexDescriptor descriptor, IndexConfiguration config,
+            IndexSamplingConfig samplingConfig )
+    {
+        return new NativeSchemaIndexPopulator( index( indexId ), descriptor, config );
+    }
+
+    @Override
+    public IndexAccessor getOnlineAccessor( long indexId, IndexConfiguration config,
+            IndexSamplingConfig samplingConfig ) throws IOException
+    {
+        return new NativeSchemaIndexAccessor( index( indexId ) );
+    }
+
+    @Override
+    public String getPopulationFailure( long indexId ) throws IllegalStateException
+    {
+        String failure = null;
+        try
+        {
+            failure = NativeSchemaIndex.readFailure( pageCache, fs, indexFile( indexId ) );
+        }
+        catch ( IOException e )
+        {
+            log.error( "Failed to read failure of index " + indexId, e );
+        }
+        if ( failure == null )
+        {
+            throw new IllegalStateException( "Index " + indexId + " isn't failed" );
+        }
+        return failure;
+    }
+
+    @Override
+    public InternalIndexState getInitialState( long indexId )
+    {
+        try
+        {
+            return NativeSchemaIndex.readState( pageCache, fs, indexFile( indexId ) );
+        }
+        catch ( IOException e )
+        {
+            log.error( "Failed to open index:" + indexId + ", requesting re-population.", e );
+            return InternalIndexState.POPULATING;
+        }
+    }
+
+    /**
+     * @return whether or not there is a tree for the given index, in any state.
+     */
+    public boolean exists( long indexId )
+    {
+        return fs.fileExists( indexFile( indexId ) );
+    }
+
+    /**
+     * Remove the tree of the given index, if any.
+     */
+    public void drop( long indexId ) throws IOException
+    {
+        File file = indexFile( indexId );
+        if ( fs.fileExists( file ) )
+        {
+            fs.deleteFile( file );
+        }
+    }
+
+    @Override
+    public StoreMigrationParticipant storeMigrationParticipant( FileSystemAbstraction fs, PageCache pageCache,
+            LabelScanStoreProvider labelScanStoreProvider )
+    {
+        return StoreMigrationParticipant.NOT_PARTICIPATING;
+    }
+
+    private NativeSchemaIndex index( long indexId )
+    {
+        return new NativeSchemaIndex( pageCache, fs, indexFile( indexId ) );
+    }
+}
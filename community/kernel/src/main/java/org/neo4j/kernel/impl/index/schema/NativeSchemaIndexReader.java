@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.neo4j.collection.primitive.PrimitiveLongCollections;
+import org.neo4j.collection.primitive.PrimitiveLongCollections.PrimitiveLongBaseIterator;
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.kernel.impl.index.btree.BTree;
+import org.neo4j.kernel.impl.index.btree.SeekCursor;
+import org.neo4j.storageengine.api.schema.IndexReader;
+import org.neo4j.storageengine.api.schema.IndexSample;
+import org.neo4j.storageengine.api.schema.IndexSampler;
+import org.neo4j.string.UTF8;
+
+/**
+ * {@link IndexReader} of a {@link NativeSchemaIndex}. Every lookup is a range seek in the tree, which doesn't take
+ * any locks, and returns the node ids of the entries in the range as they are read from the tree.
+ */
+class NativeSchemaIndexReader implements IndexReader
+{
+    private final BTree<SchemaIndexKey,Void> tree;
+    private final List<HitIterator> openIterators = new ArrayList<>();
+
+    NativeSchemaIndexReader( BTree<SchemaIndexKey,Void> tree )
+    {
+        this.tree = tree;
+    }
+
+    @Override
+    public PrimitiveLongIterator seek( Object value )
+    {
+        if ( !SchemaIndexKey.supports( value ) )
+        {
+            return PrimitiveLongCollections.emptyIterator();
+        }
+        SchemaIndexKey from = new SchemaIndexKey();
+        SchemaIndexKey to = new SchemaIndexKey();
+        from.from( value, Long.MIN_VALUE );
+        to.from( value, Long.MAX_VALUE );
+        return seek( from, to, null, null );
+    }
+
+    @Override
+    public PrimitiveLongIterator rangeSeekByNumberInclusive( Number lower, Number upper )
+    {
+        SchemaIndexKey from = new SchemaIndexKey();
+        SchemaIndexKey to = new SchemaIndexKey();
+        if ( lower == null )
+        {
+            from.lowest( SchemaIndexKey.NUMBER );
+        }
+        else
+        {
+            from.from( lower, Long.MIN_VALUE );
+        }
+        if ( upper == null )
+        {
+            to.lowest( SchemaIndexKey.STRING );
+        }
+        else
+        {
+            to.from( upper, Long.MAX_VALUE );
+        }
+        return seek( from, to, null, null );
+    }
+
+    @Override
+    public PrimitiveLongIterator rangeSeekByString( String lower, boolean includeLower, String upper,
+            boolean includeUpper )
+    {
+        SchemaIndexKey from = new SchemaIndexKey();
+        SchemaIndexKey to = new SchemaIndexKey();
+        if ( lower == null )
+        {
+            from.lowest( SchemaIndexKey.STRING );
+        }
+        else
+        {
+            from.from( lower, includeLower ? Long.MIN_VALUE : Long.MAX_VALUE );
+        }
+        if ( upper == null )
+        {
+            to.lowest( SchemaIndexKey.END );
+        }
+        else
+        {
+            to.from( upper, includeUpper ? Long.MAX_VALUE : Long.MIN_VALUE );
+        }
+        return seek( from, to, null, null );
+    }
+
+    @Override
+    public PrimitiveLongIterator rangeSeekByPrefix( String prefix )
+    {
+        SchemaIndexKey from = new SchemaIndexKey();
+        SchemaIndexKey to = new SchemaIndexKey();
+        from.from( prefix, Long.MIN_VALUE );
+        to.lowest( SchemaIndexKey.END );
+        byte[] prefixBytes = UTF8.encode( prefix );
+        return seek( from, to, null, key -> !key.startsWith( prefixBytes ) );
+    }
+
+    @Override
+    public PrimitiveLongIterator scan()
+    {
+        SchemaIndexKey from = new SchemaIndexKey();
+        SchemaIndexKey to = new SchemaIndexKey();
+        from.lowest( SchemaIndexKey.NUMBER );
+        to.lowest( SchemaIndexKey.END );
+        return seek( from, to, null, null );
+    }
+
+    @Override
+    public PrimitiveLongIterator containsString( String exactTerm )
+    {
+        return scanStrings( key -> key.stringValue().contains( exactTerm ) );
+    }
+
+    @Override
+    public PrimitiveLongIterator endsWith( String suffix )
+    {
+        return scanStrings( key -> key.stringValue().endsWith( suffix ) );
+    }
+
+    private PrimitiveLongIterator scanStrings( Predicate<SchemaIndexKey> filter )
+    {
+        SchemaIndexKey from = new SchemaIndexKey();
+        SchemaIndexKey to = new SchemaIndexKey();
+        from.lowest( SchemaIndexKey.STRING );
+        to.lowest( SchemaIndexKey.END );
+        return seek( from, to, filter, null );
+    }
+
+    @Override
+    public long countIndexedNodes( long nodeId, Object propertyValue )
+    {
+        if ( !SchemaIndexKey.supports( propertyValue ) )
+        {
+            return 0;
+        }
+        SchemaIndexKey from = new SchemaIndexKey();
+        SchemaIndexKey to = new SchemaIndexKey();
+        from.from( propertyValue, nodeId );
+        to.from( propertyValue, nodeId + 1 );
+        return PrimitiveLongCollections.count( seek( from, to, null, null ) );
+    }
+
+    @Override
+    public IndexSampler createSampler()
+    {
+        return () ->
+        {
+            SchemaIndexKey from = new SchemaIndexKey();
+            SchemaIndexKey to = new SchemaIndexKey();
+            SchemaIndexKey previous = new SchemaIndexKey();
+            from.lowest( SchemaIndexKey.NUMBER );
+            to.lowest( SchemaIndexKey.END );
+            long indexSize = 0;
+            long uniqueValues = 0;
+            try ( SeekCursor<SchemaIndexKey,Void> cursor = tree.seek( from, to ) )
+            {
+                while ( cursor.next() )
+                {
+                    if ( indexSize == 0 || cursor.key().compareValueTo( previous ) != 0 )
+                    {
+                        uniqueValues++;
+                        cursor.key().copyTo( previous );
+                    }
+                    indexSize++;
+                }
+            }
+            catch ( IOException e )
+            {
+                throw new UncheckedIOException( e );
+            }
+            return new IndexSample( indexSize, uniqueValues, indexSize );
+        };
+    }
+
+    private PrimitiveLongIterator seek( SchemaIndexKey from, SchemaIndexKey to, Predicate<SchemaIndexKey> filter,
+            Predicate<SchemaIndexKey> stop )
+    {
+        try
+        {
+            HitIterator iterator = new HitIterator( tree.seek( from, to ), filter, stop );
+            openIterators.add( iterator );
+            return iterator;
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        for ( HitIterator iterator : openIterators )
+        {
+            iterator.close();
+        }
+        openIterators.clear();
+    }
+
+    private static class HitIterator extends PrimitiveLongBaseIterator
+    {
+        private final SeekCursor<SchemaIndexKey,Void> cursor;
+        private final Predicate<SchemaIndexKey> filter;
+        private final Predicate<SchemaIndexKey> stop;
+        private boolean closed;
+
+        HitIterator( SeekCursor<SchemaIndexKey,Void> cursor, Predicate<SchemaIndexKey> filter,
+                Predicate<SchemaIndexKey> stop )
+        {
+            this.cursor = cursor;
+            this.filter = filter;
+            this.stop = stop;
+        }
+
+        @Override
+        protected boolean fetchNext()
+        {
+            try
+            {
+                while ( !closed && cursor.next() )
+                {
+                    SchemaIndexKey key = cursor.key();
+                    if ( stop != null && stop.test( key ) )
+                    {
+                        break;
+                    }
+                    if ( filter == null || filter.test( key ) )
+                    {
+                        return next( key.entityId );
+                    }
+                }
+                close();
+                return false;
+            }
+            catch ( IOException e )
+            {
+                throw new UncheckedIOException( e );
+            }
+        }
+
+        void close()
+        {
+            if ( !closed )
+            {
+                closed = true;
+                cursor.close();
+            }
+        }
+    }
+}
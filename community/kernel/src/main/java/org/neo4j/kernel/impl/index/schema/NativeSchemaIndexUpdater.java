@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.neo4j.collection.primitive.PrimitiveLongSet;
+import org.neo4j.kernel.api.exceptions.index.IndexEntryConflictException;
+import org.neo4j.kernel.api.index.IndexUpdater;
+import org.neo4j.kernel.api.index.NodePropertyUpdate;
+import org.neo4j.kernel.api.index.PropertyAccessor;
+import org.neo4j.kernel.impl.index.btree.BTreeWriter;
+import org.neo4j.kernel.impl.index.btree.SeekCursor;
+
+/**
+ * Applies updates to a {@link NativeSchemaIndex}, holding on to the writer of the tree until closed.
+ * <p>
+ * Given a {@link PropertyAccessor}, as when updating a unique index during population, the updater verifies that
+ * the added and changed values are still unique when closed.
+ */
+class NativeSchemaIndexUpdater implements IndexUpdater
+{
+    private final NativeSchemaIndex index;
+    private final BTreeWriter<SchemaIndexKey,Void> writer;
+    private final SchemaIndexKey key = new SchemaIndexKey();
+    private final PropertyAccessor uniquenessAccessor;
+    private final int propertyKeyId;
+    private final List<Object> updatedValues = new ArrayList<>();
+
+    NativeSchemaIndexUpdater( NativeSchemaIndex index ) throws IOException
+    {
+        this( index, null, -1 );
+    }
+
+    NativeSchemaIndexUpdater( NativeSchemaIndex index, PropertyAccessor uniquenessAccessor, int propertyKeyId )
+            throws IOException
+    {
+        this.index = index;
+        this.writer = index.tree().writer();
+        this.uniquenessAccessor = uniquenessAccessor;
+        this.propertyKeyId = propertyKeyId;
+    }
+
+    @Override
+    public void process( NodePropertyUpdate update ) throws IOException
+    {
+        switch ( update.getUpdateMode() )
+        {
+        case ADDED:
+            add( update.getNodeId(), update.getValueAfter() );
+            break;
+        case CHANGED:
+            remove( update.getNodeId(), update.getValueBefore() );
+            add( update.getNodeId(), update.getValueAfter() );
+            break;
+        case REMOVED:
+            remove( update.getNodeId(), update.getValueBefore() );
+            break;
+        default:
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    void add( long nodeId, Object value ) throws IOException
+    {
+        key.from( value, nodeId );
+        writer.put( key, null );
+        if ( uniquenessAccessor != null )
+        {
+            updatedValues.add( value );
+        }
+    }
+
+    private void remove( long nodeId, Object value ) throws IOException
+    {
+        key.from( value, nodeId );
+        writer.remove( key, null );
+    }
+
+    /**
+     * Remove all entries of the given nodes, whose values aren't known. This is only done during recovery, so a
+     * scan of the whole index is acceptable.
+     */
+    @Override
+    public void remove( PrimitiveLongSet nodeIds ) throws IOException
+    {
+        SchemaIndexKey from = new SchemaIndexKey();
+        SchemaIndexKey to = new SchemaIndexKey();
+        from.lowest( SchemaIndexKey.NUMBER );
+        to.lowest( SchemaIndexKey.END );
+        List<SchemaIndexKey> removed = new ArrayList<>();
+        try ( SeekCursor<SchemaIndexKey,Void> cursor = index.tree().seek( from, to ) )
+        {
+            while ( cursor.next() )
+            {
+                if ( nodeIds.contains( cursor.key().entityId ) )
+                {
+                    SchemaIndexKey key = new SchemaIndexKey();
+                    cursor.key().copyTo( key );
+                    removed.add( key );
+                }
+            }
+        }
+        for ( SchemaIndexKey key : removed )
+        {
+            writer.remove( key, null );
+        }
+    }
+
+    @Override
+    public void close() throws IOException, IndexEntryConflictException
+    {
+        writer.close();
+        if ( uniquenessAccessor != null )
+        {
+            for ( Object value : updatedValues )
+            {
+                index.verifyUniqueness( uniquenessAccessor, propertyKeyId, value );
+            }
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import java.util.Arrays;
+
+import org.neo4j.string.UTF8;
+
+/**
+ * Key of an entry in a {@link NativeSchemaIndex}: the indexed property value followed by the id of the node that
+ * has it, which makes keys unique. Numbers and strings are kept apart by their type, and ordered within it.
+ * <p>
+ * Numbers are indexed as doubles, just like Lucene does, so lookups of numbers must be verified against the actual
+ * property values afterwards. Strings are indexed as their UTF-8 bytes, which sorts them in code point order.
+ * Only strings of up to {@link #MAX_STRING_BYTES} bytes are stored in the tree, but a key used as a search bound
+ * may be a string of any length.
+ */
+class SchemaIndexKey
+{
+    static final byte NUMBER = 1;
+    static final byte STRING = 2;
+    // Sorts after all keys of actual values.
+    static final byte END = 3;
+
+    static final int MAX_STRING_BYTES = 46;
+
+    byte type;
+    long numberBits;
+    byte[] stringBytes = new byte[MAX_STRING_BYTES];
+    int stringLength;
+    long entityId;
+
+    /**
+     * @return whether or not the value can be stored in a native schema index.
+     */
+    static boolean supports( Object value )
+    {
+        if ( value instanceof Number )
+        {
+            return true;
+        }
+        if ( value instanceof String )
+        {
+            String string = (String) value;
+            return string.length() <= MAX_STRING_BYTES && UTF8.encode( string ).length <= MAX_STRING_BYTES;
+        }
+        return false;
+    }
+
+    void from( Object value, long entityId )
+    {
+        this.entityId = entityId;
+        if ( value instanceof Number )
+        {
+            type = NUMBER;
+            numberBits = sortableBits( ((Number) value).doubleValue() );
+        }
+        else if ( value instanceof String )
+        {
+            type = STRING;
+            setString( UTF8.encode( (String) value ) );
+        }
+        else
+        {
+            throw new IllegalArgumentException( "Native schema indexes don't support value " + value );
+        }
+    }
+
+    /**
+     * Make this the lowest key of the given type, sorting before all keys of actual values of that type.
+     */
+    void lowest( byte type )
+    {
+        this.type = type;
+        numberBits = Long.MIN_VALUE;
+        stringLength = 0;
+        entityId = Long.MIN_VALUE;
+    }
+
+    void setString( byte[] bytes )
+    {
+        if ( bytes.length > stringBytes.length )
+        {
+            stringBytes = new byte[bytes.length];
+        }
+        System.arraycopy( bytes, 0, stringBytes, 0, bytes.length );
+        stringLength = bytes.length;
+    }
+
+    String stringValue()
+    {
+        return UTF8.decode( stringBytes, 0, stringLength );
+    }
+
+    boolean startsWith( byte[] prefix )
+    {
+        if ( type != STRING || stringLength < prefix.length )
+        {
+            return false;
+        }
+        for ( int i = 0; i < prefix.length; i++ )
+        {
+            if ( stringBytes[i] != prefix[i] )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compare the property values of two keys, ignoring the entity ids.
+     */
+    int compareValueTo( SchemaIndexKey other )
+    {
+        int comparison = Byte.compare( type, other.type );
+        if ( comparison != 0 )
+        {
+            return comparison;
+        }
+        if ( type == NUMBER )
+        {
+            return Long.compare( numberBits, other.numberBits );
+        }
+        if ( type == STRING )
+        {
+            int length = Math.min( stringLength, other.stringLength );
+            for ( int i = 0; i < length; i++ )
+            {
+                comparison = Integer.compare( stringBytes[i] & 0xFF, other.stringBytes[i] & 0xFF );
+                if ( comparison != 0 )
+                {
+                    return comparison;
+                }
+            }
+            return Integer.compare( stringLength, other.stringLength );
+        }
+        return 0;
+    }
+
+    void copyTo( SchemaIndexKey into )
+    {
+        into.type = type;
+        into.numberBits = numberBits;
+        if ( stringLength > into.stringBytes.length )
+        {
+            into.stringBytes = new byte[stringLength];
+        }
+        System.arraycopy( stringBytes, 0, into.stringBytes, 0, stringLength );
+        into.stringLength = stringLength;
+        into.entityId = entityId;
+    }
+
+    /**
+     * Encode a double as a long that has the same sort order when compared as signed longs.
+     */
+    static long sortableBits( double value )
+    {
+        long bits = Double.doubleToLongBits( value );
+        return bits ^ ((bits >> 63) & 0x7FFFFFFFFFFFFFFFL);
+    }
+
+    @Override
+    public String toString()
+    {
+        String value = type == NUMBER ? String.valueOf( numberBits ) :
+                       type == STRING ? Arrays.toString( Arrays.copyOf( stringBytes, stringLength ) ) : "END";
+        return "[type=" + type + ",value=" + value + ",entityId=" + entityId + "]";
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import org.neo4j.io.pagecache.PageCursor;
+import org.neo4j.kernel.impl.index.btree.Layout;
+
+/**
+ * {@link Layout} of the keys of a {@link NativeSchemaIndex}, which has no values. A key is stored as
+ * <pre>
+ * [type:1][stringLength:1][number or string bytes:{@value SchemaIndexKey#MAX_STRING_BYTES}][entityId:8]
+ * </pre>
+ */
+class SchemaIndexLayout implements Layout<SchemaIndexKey,Void>
+{
+    private static final long IDENTIFIER = 0x5343484D31L; // "SCHM1"
+    private static final int PAYLOAD_SIZE = SchemaIndexKey.MAX_STRING_BYTES;
+    private static final int KEY_SIZE = 2 + PAYLOAD_SIZE + 8;
+
+    static final SchemaIndexLayout INSTANCE = new SchemaIndexLayout();
+
+    @Override
+    public long identifier()
+    {
+        return IDENTIFIER;
+    }
+
+    @Override
+    public SchemaIndexKey newKey()
+    {
+        return new SchemaIndexKey();
+    }
+
+    @Override
+    public void copyKey( SchemaIndexKey key, SchemaIndexKey into )
+    {
+        key.copyTo( into );
+    }
+
+    @Override
+    public Void newValue()
+    {
+        return null;
+    }
+
+    @Override
+    public int keySize()
+    {
+        return KEY_SIZE;
+    }
+
+    @Override
+    public int valueSize()
+    {
+        return 0;
+    }
+
+    @Override
+    public void writeKey( PageCursor cursor, SchemaIndexKey key )
+    {
+        int offset = cursor.getOffset();
+        cursor.putByte( key.type );
+        if ( key.type == SchemaIndexKey.STRING )
+        {
+            cursor.putByte( (byte) key.stringLength );
+            cursor.putBytes( key.stringBytes, 0, key.stringLength );
+        }
+        else
+        {
+            cursor.putByte( (byte) 0 );
+            cursor.putLong( key.numberBits );
+        }
+        cursor.setOffset( offset + 2 + PAYLOAD_SIZE );
+        cursor.putLong( key.entityId );
+    }
+
+    @Override
+    public void writeValue( PageCursor cursor, Void value )
+    {
+    }
+
+    @Override
+    public void readKey( PageCursor cursor, SchemaIndexKey into )
+    {
+        int offset = cursor.getOffset();
+        into.type = cursor.getByte();
+        int stringLength = cursor.getByte() & 0xFF;
+        if ( into.type == SchemaIndexKey.STRING )
+        {
+            into.stringLength = Math.min( stringLength, PAYLOAD_SIZE );
+            cursor.getBytes( into.stringBytes, 0, into.stringLength );
+        }
+        else
+        {
+            into.numberBits = cursor.getLong();
+        }
+        cursor.setOffset( offset + 2 + PAYLOAD_SIZE );
+        into.entityId = cursor.getLong();
+    }
+
+    @Override
+    public void readValue( PageCursor cursor, Void into )
+    {
+    }
+
+    @Override
+    public int compare( SchemaIndexKey o1, SchemaIndexKey o2 )
+    {
+        int comparison = o1.compareValueTo( o2 );
+        return comparison != 0 ? comparison : Long.compare( o1.entityId, o2.entityId );
+    }
+}
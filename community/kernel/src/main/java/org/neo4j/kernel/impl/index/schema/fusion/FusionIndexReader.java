@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema.fusion;
+
+import org.neo4j.collection.primitive.PrimitiveLongCollections;
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.storageengine.api.schema.IndexReader;
+import org.neo4j.storageengine.api.schema.IndexSample;
+import org.neo4j.storageengine.api.schema.IndexSampler;
+
+import static org.neo4j.helpers.collection.Iterators.iterator;
+import static org.neo4j.kernel.impl.index.schema.fusion.FusionSchemaIndexProvider.isNative;
+
+/**
+ * Reads both parts of a fusion index. Exact lookups and number ranges go to the one part that can hold the values,
+ * while string ranges and scans have to look in both, since long strings go to the fallback index.
+ */
+class FusionIndexReader implements IndexReader
+{
+    private final IndexReader nativeReader;
+    private final IndexReader fallbackReader;
+
+    FusionIndexReader( IndexReader nativeReader, IndexReader fallbackReader )
+    {
+        this.nativeReader = nativeReader;
+        this.fallbackReader = fallbackReader;
+    }
+
+    @Override
+    public PrimitiveLongIterator seek( Object value )
+    {
+        return isNative( value ) ? nativeReader.seek( value ) : fallbackReader.seek( value );
+    }
+
+    @Override
+    public PrimitiveLongIterator rangeSeekByNumberInclusive( Number lower, Number upper )
+    {
+        return nativeReader.rangeSeekByNumberInclusive( lower, upper );
+    }
+
+    @Override
+    public PrimitiveLongIterator rangeSeekByString( String lower, boolean includeLower, String upper,
+            boolean includeUpper )
+    {
+        return concat( nativeReader.rangeSeekByString( lower, includeLower, upper, includeUpper ),
+                fallbackReader.rangeSeekByString( lower, includeLower, upper, includeUpper ) );
+    }
+
+    @Override
+    public PrimitiveLongIterator rangeSeekByPrefix( String prefix )
+    {
+        return concat( nativeReader.rangeSeekByPrefix( prefix ), fallbackReader.rangeSeekByPrefix( prefix ) );
+    }
+
+    @Override
+    public PrimitiveLongIterator scan()
+    {
+        return concat( nativeReader.scan(), fallbackReader.scan() );
+    }
+
+    @Override
+    public PrimitiveLongIterator containsString( String exactTerm )
+    {
+        return concat( nativeReader.containsString( exactTerm ), fallbackReader.containsString( exactTerm ) );
+    }
+
+    @Override
+    public PrimitiveLongIterator endsWith( String suffix )
+    {
+        return concat( nativeReader.endsWith( suffix ), fallbackReader.endsWith( suffix ) );
+    }
+
+    @Override
+    public long countIndexedNodes( long nodeId, Object propertyValue )
+    {
+        return isNative( propertyValue ) ? nativeReader.countIndexedNodes( nodeId, propertyValue )
+                                         : fallbackReader.countIndexedNodes( nodeId, propertyValue );
+    }
+
+    @Override
+    public IndexSampler createSampler()
+    {
+        IndexSampler nativeSampler = nativeReader.createSampler();
+        IndexSampler fallbackSampler = fallbackReader.createSampler();
+        return () ->
+        {
+            IndexSample nativeSample = nativeSampler.sampleIndex();
+            IndexSample fallbackSample = fallbackSampler.sampleIndex();
+            return new IndexSample( nativeSample.indexSize() + fallbackSample.indexSize(),
+                    nativeSample.uniqueValues() + fallbackSample.uniqueValues(),
+                    nativeSample.sampleSize() + fallbackSample.sampleSize() );
+        };
+    }
+
+    private static PrimitiveLongIterator concat( PrimitiveLongIterator first, PrimitiveLongIterator second )
+    {
+        return PrimitiveLongCollections.concat( iterator( first, second ) );
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            nativeReader.close();
+        }
+        finally
+        {
+            fallbackReader.close();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema.fusion;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.kernel.api.index.IndexAccessor;
+import org.neo4j.kernel.api.index.IndexConfiguration;
+import org.neo4j.kernel.api.index.IndexDescriptor;
+import org.neo4j.kernel.api.index.IndexPopulator;
+import org.neo4j.kernel.api.index.InternalIndexState;
+import org.neo4j.kernel.api.index.SchemaIndexProvider;
+import org.neo4j.kernel.impl.api.index.sampling.IndexSamplingConfig;
+import org.neo4j.kernel.impl.api.scan.LabelScanStoreProvider;
+import org.neo4j.kernel.impl.index.schema.NativeSchemaIndexProvider;
+import org.neo4j.kernel.impl.storemigration.StoreMigrationParticipant;
+
+import static org.neo4j.helpers.collection.Iterators.concatResourceIterators;
+import static org.neo4j.helpers.collection.Iterators.iterator;
+
+/**
+ * Schema index provider that keeps the values a {@link NativeSchemaIndexProvider native index} can take in a native
+ * index, and all other values in an index of a fallback provider, typically Lucene.
+ * <p>
+ * This provider takes the place of the fallback provider and has the same descriptor, so indexes created before the
+ * native index was enabled keep working. Such indexes have no native part, and are rebuilt on startup. When the
+ * native index is disabled, all values go to the fallback provider, and indexes that have a native part are rebuilt
+ * for the same reason.
+ * <p>
+ * The native part of an index is crash safe. After an unclean shutdown its tree is opened as of its last checkpoint,
+ * along with the {@link InternalIndexState state} it had then, and recovery applies the updates after it. Copies of
+ * the native files taken from a running database, by backup or store copy, come up the same way. Only an index that
+ * was still populating at the last checkpoint is rebuilt from the store.
+ */
+public class FusionSchemaIndexProvider extends SchemaIndexProvider
+{
+    private final NativeSchemaIndexProvider nativeProvider;
+    private final SchemaIndexProvider fallbackProvider;
+    private final boolean nativeEnabled;
+
+    public FusionSchemaIndexProvider( NativeSchemaIndexProvider nativeProvider, SchemaIndexProvider fallbackProvider,
+            int priority, boolean nativeEnabled )
+    {
+        super( fallbackProvider.getProviderDescriptor(), priority );
+        this.nativeProvider = nativeProvider;
+        this.fallbackProvider = fallbackProvider;
+        this.nativeEnabled = nativeEnabled;
+    }
+
+    @Override
+    public IndexPopulator getPopulator( long indexId, IndexDescriptor descriptor, IndexConfiguration config,
+            IndexSamplingConfig samplingConfig )
+    {
+        IndexPopulator fallbackPopulator = fallbackProvider.getPopulator( indexId, descriptor, config, samplingConfig );
+        if ( !nativeEnabled )
+        {
+            return fallbackPopulator;
+        }
+        return new FusionIndexPopulator(
+                nativeProvider.getPopulator( indexId, descriptor, config, samplingConfig ), fallbackPopulator );
+    }
+
+    @Override
+    public IndexAccessor getOnlineAccessor( long indexId, IndexConfiguration config,
+            IndexSamplingConfig samplingConfig ) throws IOException
+    {
+        IndexAccessor fallbackAccessor = fallbackProvider.getOnlineAccessor( indexId, config, samplingConfig );
+        if ( !nativeEnabled )
+        {
+            return fallbackAccessor;
+        }
+        return new FusionIndexAccessor( nativeProvider.getOnlineAccessor( indexId, config, samplingConfig ),
+                fallbackAccessor );
+    }
+
+    @Override
+    public String getPopulationFailure( long indexId ) throws IllegalStateException
+    {
+        try
+        {
+            return fallbackProvider.getPopulationFailure( indexId );
+        }
+        catch ( IllegalStateException e )
+        {
+            if ( !nativeEnabled )
+            {
+                throw e;
+            }
+            return nativeProvider.getPopulationFailure( indexId );
+        }
+    }
+
+    @Override
+    public InternalIndexState getInitialState( long indexId )
+    {
+        InternalIndexState fallbackState = fallbackProvider.getInitialState( indexId );
+        if ( !nativeEnabled )
+        {
+            if ( nativeProvider.exists( indexId ) )
+            {
+                // The native part of the index holds values the fallback index doesn't have, so it must be rebuilt
+                dropNativeIndex( indexId );
+                return fallbackState == InternalIndexState.FAILED ? fallbackState : InternalIndexState.POPULATING;
+            }
+            return fallbackState;
+        }
+
+        InternalIndexState nativeState = nativeProvider.getInitialState( indexId );
+        if ( fallbackState == InternalIndexState.FAILED || nativeState == InternalIndexState.FAILED )
+        {
+            return InternalIndexState.FAILED;
+        }
+        if ( fallbackState == InternalIndexState.ONLINE && nativeState == InternalIndexState.ONLINE )
+        {
+            return InternalIndexState.ONLINE;
+        }
+        return InternalIndexState.POPULATING;
+    }
+
+    private void dropNativeIndex( long indexId )
+    {
+        try
+        {
+            nativeProvider.drop( indexId );
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    @Override
+    public StoreMigrationParticipant storeMigrationParticipant( FileSystemAbstraction fs, PageCache pageCache,
+            LabelScanStoreProvider labelScanStoreProvider )
+    {
+        return fallbackProvider.storeMigrationParticipant( fs, pageCache, labelScanStoreProvider );
+    }
+
+    @Override
+    public ResourceIterator<File> snapshotMetaFiles()
+    {
+        return concatResourceIterators(
+                iterator( nativeProvider.snapshotMetaFiles(), fallbackProvider.snapshotMetaFiles() ) );
+    }
+
+    @Override
+    public void init() throws Throwable
+    {
+        nativeProvider.init();
+        fallbackProvider.init();
+    }
+
+    @Override
+    public void start() throws Throwable
+    {
+        nativeProvider.start();
+        fallbackProvider.start();
+    }
+
+    @Override
+    public void stop() throws Throwable
+    {
+        fallbackProvider.stop();
+        nativeProvider.stop();
+    }
+
+    @Override
+    public void shutdown() throws Throwable
+    {
+        fallbackProvider.shutdown();
+        nativeProvider.shutdown();
+    }
+
+    /**
+     * @return whether or not the value goes in the native part of a fusion index.
+     */
+    static boolean isNative( Object value )
+    {
+        return NativeSchemaIndexProvider.canIndex( value );
+    }
+}
@@ -32,6 +32,7 @@ import org.neo4j.kernel.impl.util.OsBeanUtil;
 import org.neo4j.logging.Log;
 
 import static org.neo4j.graphdb.factory.GraphDatabaseSettings.mapped_memory_page_size;
+import static org.neo4j.graphdb.factory.GraphDatabaseSettings.pagecache_background_flush_dirty_ratio;
 import static org.neo4j.graphdb.factory.GraphDatabaseSettings.pagecache_memory;
 import static org.neo4j.graphdb.factory.GraphDatabaseSettings.pagecache_swapper;
 
@@ -93,11 +94,13 @@ public class ConfiguringPageCacheFactory
     {
         int cachePageSize = calculatePageSize( config, swapperFactory );
         int maxPages = calculateMaxPages( config, cachePageSize );
-        return new MuninnPageCache(
+        MuninnPageCache pageCache = new MuninnPageCache(
                 swapperFactory,
                 maxPages,
                 cachePageSize,
                 tracer );
+        pageCache.setBackgroundFlushDirtyRatio( config.get( pagecache_background_flush_dirty_ratio ) );
+        return pageCache;
     }
 
     public int calculateMaxPages( Config config, int cachePageSize )
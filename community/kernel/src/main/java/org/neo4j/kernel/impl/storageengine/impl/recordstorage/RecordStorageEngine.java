@@ -20,6 +20,7 @@
 package org.neo4j.kernel.impl.storageengine.impl.recordstorage;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -79,6 +80,7 @@ import org.neo4j.kernel.impl.store.RecordStore;
 import org.neo4j.kernel.impl.store.SchemaStorage;
 import org.neo4j.kernel.impl.store.StoreFactory;
 import org.neo4j.kernel.impl.store.StoreType;
+import org.neo4j.kernel.impl.store.UnderlyingStorageException;
 import org.neo4j.kernel.impl.store.format.RecordFormat;
 import org.neo4j.kernel.impl.store.id.IdGeneratorFactory;
 import org.neo4j.kernel.impl.store.id.IdReuseEligibility;
@@ -90,6 +92,7 @@ import org.neo4j.kernel.impl.transaction.command.IndexBatchTransactionApplier;
 import org.neo4j.kernel.impl.transaction.command.IndexUpdatesWork;
 import org.neo4j.kernel.impl.transaction.command.LabelUpdateWork;
 import org.neo4j.kernel.impl.transaction.command.NeoStoreBatchTransactionApplier;
+import org.neo4j.kernel.impl.transaction.command.ParallelNeoStoreBatchTransactionApplier;
 import org.neo4j.kernel.impl.transaction.state.DefaultSchemaIndexProviderMap;
 import org.neo4j.kernel.impl.transaction.state.IntegrityValidator;
 import org.neo4j.kernel.impl.transaction.state.Loaders;
@@ -132,6 +135,10 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
             RecordStorageEngine.class, "propertyReadLocks", false );
     private static final boolean safeIdBuffering = FeatureToggles.flag(
             RecordStorageEngine.class, "safeIdBuffering", true );
+    // The number of threads to apply the record updates of recovered transactions with. See
+    // ParallelNeoStoreBatchTransactionApplier. A single thread means applying them in the applying thread.
+    private static final int recoveryApplierThreads = FeatureToggles.getInteger(
+            RecordStorageEngine.class, "recoveryApplierThreads", 1 );
 
     private final StoreReadLayer storeLayer;
     private final IndexingService indexingService;
@@ -161,6 +168,7 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
     private final PropertyPhysicalToLogicalConverter indexUpdatesConverter;
     private final Supplier<StorageStatement> storeStatementSupplier;
     private final IdController idController;
+    private ParallelNeoStoreBatchTransactionApplier.Partitions recoveryApplierPartitions;
 
     // Immutable state for creating/applying commands
     private final Loaders loaders;
@@ -219,7 +227,7 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
             schemaStorage = new SchemaStorage( neoStores.getSchemaStore() );
 
             schemaIndexProviderMap = new DefaultSchemaIndexProviderMap( indexProvider );
-            indexStoreView = new NeoStoreIndexStoreView( lockService, neoStores );
+            indexStoreView = new NeoStoreIndexStoreView( lockService, neoStores, scheduler );
             indexingService = IndexingServiceFactory.createIndexingService( config, scheduler, schemaIndexProviderMap,
                     indexStoreView, tokenNameLookup,
                     Iterators.asList( new SchemaStorage( neoStores.getSchemaStore() ).allIndexRules() ), logProvider,
@@ -368,7 +376,15 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
     {
         ArrayList<BatchTransactionApplier> appliers = new ArrayList<>();
         // Graph store application. The order of the decorated store appliers is irrelevant
-        appliers.add( new NeoStoreBatchTransactionApplier( neoStores, cacheAccess, lockService ) );
+        if ( mode == TransactionApplicationMode.RECOVERY && recoveryApplierThreads > 1 )
+        {
+            appliers.add( new ParallelNeoStoreBatchTransactionApplier( neoStores, cacheAccess, lockService,
+                    recoveryApplierPartitions ) );
+        }
+        else
+        {
+            appliers.add( new NeoStoreBatchTransactionApplier( neoStores, cacheAccess, lockService ) );
+        }
         if ( mode.needsHighIdTracking() )
         {
             appliers.add( new HighIdBatchTransactionApplier( neoStores ) );
@@ -416,6 +432,11 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
     {
         indexingService.init();
         labelScanStore.init();
+        if ( recoveryApplierThreads > 1 )
+        {
+            recoveryApplierPartitions = new ParallelNeoStoreBatchTransactionApplier.Partitions(
+                    recoveryApplierThreads );
+        }
     }
 
     @Override
@@ -461,6 +482,11 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
     @Override
     public void shutdown() throws Throwable
     {
+        if ( recoveryApplierPartitions != null )
+        {
+            recoveryApplierPartitions.close();
+            recoveryApplierPartitions = null;
+        }
         labelScanStore.shutdown();
         indexingService.shutdown();
         neoStores.close();
@@ -469,6 +495,17 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
     @Override
     public void flushAndForce( IOLimiter limiter )
     {
+        if ( recoveryApplierPartitions != null )
+        {
+            try
+            {
+                recoveryApplierPartitions.drain();
+            }
+            catch ( IOException e )
+            {
+                throw new UnderlyingStorageException( e );
+            }
+        }
         indexingService.forceAll();
         labelScanStore.force();
         for ( IndexImplementation index : legacyIndexProviderLookup.all() )
@@ -516,9 +553,12 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
             else
             {
                 final RecordStore<AbstractBaseRecord> recordStore = neoStores.getRecordStore( type );
+                // The meta data store keeps its records at fixed positions, regardless of its high id
+                long highId = type == StoreType.META_DATA ? StoreFileMetadata.UNKNOWN_HIGH_ID
+                                                          : recordStore.getHighId();
                 StoreFileMetadata metadata =
                         new StoreFileMetadata( recordStore.getStorageFileName(), Optional.of( type ),
-                                recordStore.getRecordSize() );
+                                recordStore.getRecordSize(), highId );
                 files.add( metadata );
             }
         }
@@ -26,6 +26,9 @@ import java.nio.file.OpenOption;
 import java.nio.file.StandardOpenOption;
 import java.util.Collection;
 
+import org.neo4j.collection.primitive.Primitive;
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.collection.primitive.PrimitiveLongSet;
 import org.neo4j.graphdb.config.Setting;
 import org.neo4j.graphdb.factory.GraphDatabaseSettings;
 import org.neo4j.helpers.collection.Visitor;
@@ -53,6 +56,7 @@ import static org.neo4j.io.pagecache.PageCacheOpenOptions.ANY_PAGE_SIZE;
 import static org.neo4j.io.pagecache.PagedFile.PF_READ_AHEAD;
 import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_READ_LOCK;
 import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_WRITE_LOCK;
+import static org.neo4j.io.pagecache.PagedFile.PF_TRANSIENT;
 import static org.neo4j.kernel.impl.store.record.Record.NULL_REFERENCE;
 import static org.neo4j.kernel.impl.store.record.RecordLoad.CHECK;
 import static org.neo4j.kernel.impl.store.record.RecordLoad.NORMAL;
@@ -75,6 +79,8 @@ public abstract class CommonAbstractStore<RECORD extends AbstractBaseRecord,HEAD
     protected final String storeVersion;
     protected final RecordFormat<RECORD> recordFormat;
     private IdGenerator idGenerator;
+    // ids freed while there's no id generator, i.e. by transactions applied during recovery
+    private final PrimitiveLongSet idsFreedDuringRecovery = Primitive.longSet();
     private boolean storeOk = true;
     private Throwable causeOfStoreNotOk;
     private final String typeDescriptor;
@@ -411,12 +417,16 @@ public abstract class CommonAbstractStore<RECORD extends AbstractBaseRecord,HEAD
         }
 
         log.info( "Rebuilding id generator for[" + getStorageFileName() + "] ..." );
+        boolean fastRebuild = isOnlyFastIdGeneratorRebuildEnabled( configuration );
+        // Read the ids free at the last checkpoint before the id file gets truncated below
+        long[] checkpointedFreeIds = fastRebuild
+                                     ? idGeneratorFactory.readCheckpointedFreeIds( getIdFileName() )
+                                     : new long[0];
         closeIdGenerator();
         createIdGenerator( getIdFileName() );
         openIdGenerator();
 
         long defraggedCount = 0;
-        boolean fastRebuild = isOnlyFastIdGeneratorRebuildEnabled( configuration );
 
         try
         {
@@ -429,23 +439,66 @@ public abstract class CommonAbstractStore<RECORD extends AbstractBaseRecord,HEAD
                     defraggedCount = rebuildIdGeneratorSlow( cursor, getRecordsPerPage(), blockSize, foundHighId );
                 }
             }
+            else
+            {
+                defraggedCount = rebuildIdGeneratorFromCheckpoint( checkpointedFreeIds, foundHighId );
+            }
         }
         catch ( IOException e )
         {
             throw new UnderlyingStorageException( "Unable to rebuild id generator " + getStorageFileName(), e );
         }
+        synchronized ( idsFreedDuringRecovery )
+        {
+            idsFreedDuringRecovery.clear();
+        }
 
         log.info( "[" + getStorageFileName() + "] high id=" + getHighId() + " (defragged=" + defraggedCount + ")" );
         log.info( getStorageFileName() + " rebuild id generator, highId=" + getHighId() +
                   " defragged count=" + defraggedCount );
 
-        if ( !fastRebuild )
+        if ( !fastRebuild || defraggedCount > 0 )
         {
             closeIdGenerator();
             openIdGenerator();
         }
     }
 
+    /**
+     * Frees the ids which were free at the last checkpoint, together with the ids freed by transactions
+     * recovered since then, which makes up all free ids without having to scan the store. Both sets
+     * may contain ids which have been used again after being freed, so only ids of records not in use
+     * are freed.
+     */
+    private long rebuildIdGeneratorFromCheckpoint( long[] checkpointedFreeIds, long foundHighId )
+    {
+        long defragCount = 0;
+        try ( PrimitiveLongSet candidates = Primitive.longSet() )
+        {
+            synchronized ( idsFreedDuringRecovery )
+            {
+                candidates.addAll( idsFreedDuringRecovery.iterator() );
+            }
+            for ( long id : checkpointedFreeIds )
+            {
+                candidates.add( id );
+            }
+
+            int startingId = getNumberOfReservedLowIds();
+            PrimitiveLongIterator iterator = candidates.iterator();
+            while ( iterator.hasNext() )
+            {
+                long id = iterator.next();
+                if ( id >= startingId && id < foundHighId && !IdValidator.isReservedId( id ) && !isInUse( id ) )
+                {
+                    freeId( id );
+                    defragCount++;
+                }
+            }
+        }
+        return defragCount;
+    }
+
     protected boolean isOnlyFastIdGeneratorRebuildEnabled( Config config )
     {
         return config.get( Configuration.rebuild_idgenerators_fast );
@@ -574,7 +627,27 @@ public abstract class CommonAbstractStore<RECORD extends AbstractBaseRecord,HEAD
         {
             generator.freeId( id );
         }
-        // else we're deleting records as part of applying transactions during recovery, and that's fine
+        else
+        {
+            // We're deleting records as part of applying transactions during recovery, and that's fine.
+            // Remember the id so that the id generator can be rebuilt without scanning the store
+            synchronized ( idsFreedDuringRecovery )
+            {
+                idsFreedDuringRecovery.add( id );
+            }
+        }
+    }
+
+    /**
+     * Makes the free ids of this store's {@link IdGenerator} durable, see {@link IdGenerator#checkpoint()}.
+     */
+    public void checkpointIdGenerator()
+    {
+        IdGenerator generator = this.idGenerator;
+        if ( generator != null && storeOk )
+        {
+            generator.checkpoint();
+        }
     }
 
     /**
@@ -1102,7 +1175,7 @@ public abstract class CommonAbstractStore<RECORD extends AbstractBaseRecord,HEAD
     @Override
     public <EXCEPTION extends Exception> void scanAllRecords( Visitor<RECORD,EXCEPTION> visitor ) throws EXCEPTION
     {
-        try ( RecordCursor<RECORD> cursor = newRecordCursor( newRecord() ) )
+        try ( RecordCursor<RECORD> cursor = newScanRecordCursor( newRecord() ) )
         {
             long highId = getHighId();
             cursor.acquire( getNumberOfReservedLowIds(), CHECK );
@@ -1128,6 +1201,25 @@ public abstract class CommonAbstractStore<RECORD extends AbstractBaseRecord,HEAD
 
     @Override
     public RecordCursor<RECORD> newRecordCursor( final RECORD record )
+    {
+        return newRecordCursor( record, PF_SHARED_READ_LOCK );
+    }
+
+    /**
+     * Instantiates a new record cursor, just like {@link #newRecordCursor(AbstractBaseRecord)}, but meant for
+     * scanning through the records of this store in increasing id order. The pages of the scan are read ahead, and
+     * they don't count as recently used by the page cache, such that a scan through a big store won't push the hot
+     * working set out of the page cache.
+     *
+     * @param record instance to use when reading record data.
+     * @return a new {@link RecordCursor} instance for scanning the records in this store.
+     */
+    public RecordCursor<RECORD> newScanRecordCursor( final RECORD record )
+    {
+        return newRecordCursor( record, PF_SHARED_READ_LOCK | PF_READ_AHEAD | PF_TRANSIENT );
+    }
+
+    private RecordCursor<RECORD> newRecordCursor( final RECORD record, final int pf_flags )
     {
         return new RecordCursor<RECORD>()
         {
@@ -1213,7 +1305,7 @@ public abstract class CommonAbstractStore<RECORD extends AbstractBaseRecord,HEAD
                 this.mode = mode;
                 try
                 {
-                    this.pageCursor = storeFile.io( pageIdForRecord( id ), PF_SHARED_READ_LOCK );
+                    this.pageCursor = storeFile.io( pageIdForRecord( id ), pf_flags );
                 }
                 catch ( IOException e )
                 {
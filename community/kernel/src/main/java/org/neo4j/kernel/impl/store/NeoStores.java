@@ -208,6 +208,10 @@ public class NeoStores implements AutoCloseable
                 counts.rotate( getMetaDataStore().getLastCommittedTransactionId() );
             }
             pageCache.flushAndForce( limiter );
+            for ( CommonAbstractStore store : instantiatedRecordStores() )
+            {
+                store.checkpointIdGenerator();
+            }
         }
         catch ( IOException e )
         {
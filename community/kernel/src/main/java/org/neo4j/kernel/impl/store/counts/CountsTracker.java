@@ -61,6 +61,11 @@ import static org.neo4j.kernel.impl.store.counts.keys.CountsKeyFactory.relations
  * (big endian) order. These store files are immutable, and on store-flush the implementation swaps the read and write
  * file in a {@linkplain Rotation.Strategy#LEFT_RIGHT left/right pattern}.
  *
+ * Most flushes only change a small part of the counts, so a flush only writes the counts that changed since the last
+ * complete store file, into a delta file next to it. Once the delta holds more than a quarter as many counts as the
+ * complete store file, the flush {@linkplain Rotation#compactionRatio() compacts} them into a new complete store
+ * file instead.
+ *
  * This class defines {@linkplain KeyFormat the key serialisation format},
  * {@linkplain CountsUpdater the value serialisation format}, and
  * {@linkplain #HEADER_FIELDS the header fields}.
@@ -70,7 +75,8 @@ import static org.neo4j.kernel.impl.store.counts.keys.CountsKeyFactory.relations
  * The pattern of immutable store files, and rotation strategy, et.c. is defined in the
  * {@code kvstore}-package, see {@link org.neo4j.kernel.impl.store.kvstore.KeyValueStoreFile} for a good entry point.
  */
-@Rotation(value = Rotation.Strategy.LEFT_RIGHT, parameters = {CountsTracker.LEFT, CountsTracker.RIGHT})
+@Rotation(value = Rotation.Strategy.LEFT_RIGHT, parameters = {CountsTracker.LEFT, CountsTracker.RIGHT},
+        compactionRatio = 4)
 public class CountsTracker extends AbstractKeyValueStore<CountsKey>
         implements CountsVisitor.Visitable, CountsAccessor
 {
@@ -205,6 +211,17 @@ public class CountsTracker extends AbstractKeyValueStore<CountsKey>
         return new CountsUpdater( updater() );
     }
 
+    /**
+     * @return an updater which applies count changes on top of the current counts, outside of any transaction.
+     * Used for adding the counts of data imported into a store which already has counts. The updater may only be
+     * used, and closed, by the thread that created it. The changes are only made durable by the next
+     * {@link #rotate(long) rotation}.
+     */
+    public CountsAccessor.Updater updateCounts()
+    {
+        return new CountsUpdater( updater() );
+    }
+
     public CountsAccessor.Updater reset( long txId )
     {
         return new CountsUpdater( resetter( txId ) );
@@ -66,6 +66,17 @@ class BufferingIdGenerator extends IdGenerator.Delegate
         buffer.clear();
     }
 
+    @Override
+    public void checkpoint()
+    {
+        // Ids in the buffer are only part of the checkpoint once they're released to the actual id generator
+        if ( buffer != null )
+        {
+            buffer.maintenance();
+        }
+        super.checkpoint();
+    }
+
     @Override
     public void close()
     {
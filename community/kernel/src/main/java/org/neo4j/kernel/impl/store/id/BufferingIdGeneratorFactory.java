@@ -110,6 +110,12 @@ public class BufferingIdGeneratorFactory implements IdGeneratorFactory
         delegate.create( filename, highId, throwIfFileExists );
     }
 
+    @Override
+    public long[] readCheckpointedFreeIds( File filename )
+    {
+        return delegate.readCheckpointedFreeIds( filename );
+    }
+
     @Override
     public IdGenerator get( IdType idType )
     {
@@ -20,19 +20,31 @@
 package org.neo4j.kernel.impl.store.id;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.kernel.impl.store.UnderlyingStorageException;
 import org.neo4j.kernel.impl.store.id.configuration.CommunityIdTypeConfigurationProvider;
 import org.neo4j.kernel.impl.store.id.configuration.IdTypeConfiguration;
 import org.neo4j.kernel.impl.store.id.configuration.IdTypeConfigurationProvider;
 
 public class DefaultIdGeneratorFactory implements IdGeneratorFactory
 {
+    /**
+     * Id types which see enough allocations to benefit from per thread id batches. Token and schema ids
+     * are left out, since batching those would only spread out their, typically few, ids.
+     */
+    private static final Set<IdType> PER_THREAD_BATCHED_TYPES = EnumSet.of( IdType.NODE, IdType.RELATIONSHIP,
+            IdType.PROPERTY, IdType.STRING_BLOCK, IdType.ARRAY_BLOCK, IdType.NODE_LABELS, IdType.RELATIONSHIP_GROUP );
+
     private final Map<IdType, IdGenerator> generators = new HashMap<>();
     private final FileSystemAbstraction fs;
     private final IdTypeConfigurationProvider idTypeConfigurationProvider;
+    private final int idBatchSizePerThread;
 
     public DefaultIdGeneratorFactory( FileSystemAbstraction fs )
     {
@@ -40,9 +52,20 @@ public class DefaultIdGeneratorFactory implements IdGeneratorFactory
     }
 
     public DefaultIdGeneratorFactory( FileSystemAbstraction fs, IdTypeConfigurationProvider idTypeConfigurationProvider)
+    {
+        this( fs, idTypeConfigurationProvider, 0 );
+    }
+
+    /**
+     * @param idBatchSizePerThread number of ids each thread allocates at a time for the high volume id types,
+     * or {@code 0} to let every id allocation go to the underlying id generator.
+     */
+    public DefaultIdGeneratorFactory( FileSystemAbstraction fs, IdTypeConfigurationProvider idTypeConfigurationProvider,
+            int idBatchSizePerThread )
     {
         this.fs = fs;
         this.idTypeConfigurationProvider = idTypeConfigurationProvider;
+        this.idBatchSizePerThread = idBatchSizePerThread;
     }
 
     @Override
@@ -57,6 +80,10 @@ public class DefaultIdGeneratorFactory implements IdGeneratorFactory
     {
         IdTypeConfiguration idTypeConfiguration = idTypeConfigurationProvider.getIdTypeConfiguration( idType );
         IdGenerator generator = instantiate( fs, fileName, grabSize, maxId, idTypeConfiguration.allowAggressiveReuse(), highId );
+        if ( idBatchSizePerThread > 0 && PER_THREAD_BATCHED_TYPES.contains( idType ) )
+        {
+            generator = new PerThreadBatchingIdGenerator( generator, idBatchSizePerThread );
+        }
         generators.put( idType, generator );
         return generator;
     }
@@ -78,4 +105,17 @@ public class DefaultIdGeneratorFactory implements IdGeneratorFactory
     {
         IdGeneratorImpl.createGenerator( fs, fileName, highId, throwIfFileExists );
     }
+
+    @Override
+    public long[] readCheckpointedFreeIds( File fileName )
+    {
+        try
+        {
+            return IdGeneratorImpl.readFreeIds( fs, fileName );
+        }
+        catch ( IOException e )
+        {
+            throw new UnderlyingStorageException( "Unable to read free ids from " + fileName, e );
+        }
+    }
 }
@@ -193,6 +193,20 @@ public class FreeIdKeeper implements Closeable
         channel.force( false );
     }
 
+    /*
+     * Writes the freeIds list to disk and forces the channel, without closing it. The ids already read into
+     * readFromDisk are still present in the part of the file that has been read, so after this method returns
+     * every id known to this keeper can be found somewhere in the file.
+     */
+    public void checkpoint() throws IOException
+    {
+        if ( !freeIds.isEmpty() )
+        {
+            writeIdBatch( ByteBuffer.allocate( threshold * ID_ENTRY_SIZE ) );
+        }
+        channel.force( false );
+    }
+
     /*
      * writes to disk, after the current channel.position(), the contents of the freeIds list. If aggressiveReuse
      * is set, it will also forward the maxReadPosition to the end of the file.
@@ -31,4 +31,16 @@ public interface IdGeneratorFactory
 
     IdGenerator get( IdType idType );
 
+    /**
+     * Reads the ids written to an id file by its last {@link IdGenerator#checkpoint() checkpoint}, also if that
+     * id file wasn't cleanly closed. Used when rebuilding an id generator after an unclean shutdown.
+     * Some of the returned ids may have been handed out again after that checkpoint.
+     *
+     * @param filename the id file to read.
+     * @return ids which were free at the last checkpoint, or an empty array if none are known.
+     */
+    default long[] readCheckpointedFreeIds( File filename )
+    {
+        return new long[0];
+    }
 }
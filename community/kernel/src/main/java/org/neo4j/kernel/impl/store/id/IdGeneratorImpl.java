@@ -22,6 +22,7 @@ package org.neo4j.kernel.impl.store.id;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.neo4j.io.fs.FileSystemAbstraction;
@@ -298,6 +299,28 @@ public class IdGeneratorImpl implements IdGenerator
         }
     }
 
+    /**
+     * Writes the defragged ids in memory to file, leaving the file sticky. The ids can then be read back with
+     * {@link #readFreeIds(FileSystemAbstraction, File)} if this generator is never closed.
+     */
+    @Override
+    public synchronized void checkpoint()
+    {
+        if ( isClosed() )
+        {
+            return;
+        }
+
+        try
+        {
+            keeper.checkpoint();
+        }
+        catch ( IOException e )
+        {
+            throw new UnderlyingStorageException( "Unable to checkpoint id generator " + file, e );
+        }
+    }
+
     private boolean isClosed()
     {
         return highId.get() == -1;
@@ -372,6 +395,37 @@ public class IdGeneratorImpl implements IdGenerator
         }
     }
 
+    /**
+     * Raises the high id of an id generator file, keeping the free ids already written to it. Falls back to
+     * {@link #createGenerator(FileSystemAbstraction, File, long, boolean) creating a new file} if there's no such
+     * file or if it wasn't cleanly closed, since the free ids of a sticky file can't be trusted.
+     */
+    public static void updateHighId( FileSystemAbstraction fs, File fileName, long highId )
+    {
+        if ( fs.fileExists( fileName ) )
+        {
+            try ( StoreChannel channel = fs.open( fileName, "rw" ) )
+            {
+                long existingHighId = readHighIdFromHeader( channel, fileName ).getLong();
+                ByteBuffer buffer = ByteBuffer.allocate( HEADER_SIZE );
+                buffer.put( CLEAN_GENERATOR ).putLong( max( existingHighId, highId ) ).flip();
+                channel.position( 0 );
+                channel.write( buffer );
+                channel.force( false );
+                return;
+            }
+            catch ( InvalidIdGeneratorException e )
+            {
+                // Sticky or broken, write a new one below
+            }
+            catch ( IOException e )
+            {
+                throw new UnderlyingStorageException( "Unable to update id generator " + fileName, e );
+            }
+        }
+        createGenerator( fs, fileName, highId, false );
+    }
+
     // initialize the id generator and performs a simple validation
     private synchronized void initGenerator()
     {
@@ -446,6 +500,54 @@ public class IdGeneratorImpl implements IdGenerator
         }
     }
 
+    /**
+     * Reads all ids written to the id generator file, whether or not it was cleanly closed. For a sticky file
+     * these are the ids that were free at the last {@link #checkpoint()}, plus ids which have since been handed
+     * out again, so callers must check each id before reusing it. Duplicates may also occur.
+     *
+     * @return the ids in the file, or an empty array if there's no such file.
+     */
+    public static long[] readFreeIds( FileSystemAbstraction fileSystem, File file ) throws IOException
+    {
+        if ( !fileSystem.fileExists( file ) )
+        {
+            return new long[0];
+        }
+        try ( StoreChannel channel = fileSystem.open( file, "r" ) )
+        {
+            int idsInFile = (int) (max( 0, channel.size() - HEADER_SIZE ) / FreeIdKeeper.ID_ENTRY_SIZE);
+            long[] ids = new long[idsInFile];
+            ByteBuffer buffer = ByteBuffer.allocate( FreeIdKeeper.ID_ENTRY_SIZE * 1024 );
+            long position = HEADER_SIZE;
+            int count = 0;
+            for ( int read = 0; read < idsInFile; )
+            {
+                buffer.clear();
+                buffer.limit( Math.min( buffer.capacity(), (idsInFile - read) * FreeIdKeeper.ID_ENTRY_SIZE ) );
+                while ( buffer.hasRemaining() )
+                {
+                    int bytesRead = channel.read( buffer, position + buffer.position() );
+                    if ( bytesRead == -1 )
+                    {
+                        throw new InvalidIdGeneratorException( "Unexpected end of id file " + file );
+                    }
+                }
+                position += buffer.limit();
+                buffer.flip();
+                while ( buffer.hasRemaining() )
+                {
+                    long id = buffer.getLong();
+                    read++;
+                    if ( id != FreeIdKeeper.NO_RESULT )
+                    {
+                        ids[count++] = id;
+                    }
+                }
+            }
+            return count == ids.length ? ids : Arrays.copyOf( ids, count );
+        }
+    }
+
     public synchronized void dumpFreeIds() throws IOException
     {
         keeper.dumpFreeIds();
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.store.id;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.neo4j.kernel.impl.store.id.validation.IdValidator;
+
+/**
+ * Hands out ids from a batch, {@link IdGenerator#nextIdBatch(int) allocated} per thread from the
+ * underlying {@link IdGenerator}, so that threads allocating ids don't all contend for its monitor.
+ * Ids left in the batches when closing are freed, i.e. returned to the underlying id generator.
+ */
+class PerThreadBatchingIdGenerator extends IdGenerator.Delegate
+{
+    private final int batchSize;
+    private final ThreadLocal<IdBatch> currentBatch = new ThreadLocal<>();
+    private final Set<IdBatch> batches = ConcurrentHashMap.newKeySet();
+
+    PerThreadBatchingIdGenerator( IdGenerator delegate, int batchSize )
+    {
+        super( delegate );
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public long nextId()
+    {
+        IdBatch batch = currentBatch.get();
+        long id;
+        while ( batch == null || (id = batch.next()) == IdBatch.EXHAUSTED )
+        {
+            if ( batch != null )
+            {
+                batches.remove( batch );
+            }
+            batch = new IdBatch( nextIdBatch( batchSize ) );
+            batches.add( batch );
+            currentBatch.set( batch );
+        }
+        return id;
+    }
+
+    @Override
+    public void close()
+    {
+        for ( IdBatch batch : batches )
+        {
+            for ( long id; (id = batch.next()) != IdBatch.EXHAUSTED; )
+            {
+                freeId( id );
+            }
+        }
+        batches.clear();
+        super.close();
+    }
+
+    @Override
+    public void delete()
+    {
+        batches.clear();
+        super.delete();
+    }
+
+    /**
+     * Ids of an {@link IdRange}, defragged ids first. Only used by the thread owning it, except when closing.
+     */
+    private static class IdBatch
+    {
+        static final long EXHAUSTED = -1;
+
+        private final long[] defragIds;
+        private final long rangeEnd;
+        private int defragCursor;
+        private long rangeCursor;
+
+        IdBatch( IdRange range )
+        {
+            this.defragIds = range.getDefragIds();
+            this.rangeCursor = range.getRangeStart();
+            this.rangeEnd = range.getRangeStart() + range.getRangeLength();
+        }
+
+        synchronized long next()
+        {
+            if ( defragCursor < defragIds.length )
+            {
+                return defragIds[defragCursor++];
+            }
+            while ( rangeCursor < rangeEnd )
+            {
+                long id = rangeCursor++;
+                if ( !IdValidator.isReservedId( id ) )
+                {
+                    return id;
+                }
+            }
+            return EXHAUSTED;
+        }
+    }
+}
@@ -66,7 +66,8 @@ public abstract class AbstractKeyValueStore<Key> extends LifecycleAdapter
             monitor = RotationMonitor.NONE;
         }
         this.format = new Format( headerFields );
-        this.rotationStrategy = rotation.value().create( fs, pages, format, monitor, base, rotation.parameters() );
+        this.rotationStrategy = rotation.value().create( fs, pages, format, monitor, base, rotation.compactionRatio(),
+                rotation.parameters() );
         this.rotationTimerFactory = timerFactory;
         this.state = new DeadState.Stopped<>( format, getClass().getAnnotation( State.class ).value() );
     }
@@ -254,6 +255,13 @@ public abstract class AbstractKeyValueStore<Key> extends LifecycleAdapter
             {
                 existingFiles.add( candidateFile );
             }
+            for ( File deltaFile : rotationStrategy.deltaFiles( candidateFile ) )
+            {
+                if ( deltaFile.exists() )
+                {
+                    existingFiles.add( deltaFile );
+                }
+            }
         }
         return existingFiles;
     }
@@ -109,4 +109,11 @@ public abstract class ActiveState<Key> extends ProgressiveState<Key>
     protected abstract Factory factory();
 
     protected abstract long applied();
+
+    /**
+     * @return the entries that have been changed in this state, sorted by key, with their current values.
+     */
+    protected abstract DataProvider changes() throws IOException;
+
+    protected abstract int changedEntries();
 }
@@ -363,6 +363,21 @@ class ConcurrentMapState<Key> extends ActiveState<Key>
         return dataProvider( store, changes );
     }
 
+    /**
+     * This method is expected to be called under a lock preventing modification to the state.
+     */
+    @Override
+    protected DataProvider changes() throws IOException
+    {
+        return new UpdateProvider( sortedUpdates( store.keyFormat(), changes ) );
+    }
+
+    @Override
+    protected int changedEntries()
+    {
+        return changes.size();
+    }
+
     private static <Key> DataProvider dataProvider( ReadableState<Key> store, ConcurrentMap<Key, byte[]> changes )
             throws IOException
     {
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.store.kvstore;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.neo4j.helpers.collection.Pair;
+
+/**
+ * The stored state of a store that {@linkplain RotationStrategy#incremental() rotates incrementally}: a complete
+ * store file, and optionally a delta file that holds the most recent value of every entry that has changed since the
+ * complete store file was written.
+ * <p>
+ * Rotating this state writes a new delta by merging the previous delta with the changes of the rotated state, so the
+ * cost of a rotation scales with the number of entries changed since the complete store file was written, rather
+ * than with the total number of entries. Once the delta grows too large compared to the complete store file, the
+ * rotation instead compacts everything into a new complete store file.
+ * <p>
+ * The complete store file is shared between the states before and after a rotation that writes a delta, and is closed
+ * when the last of them is closed.
+ */
+final class DeltaState<Key> extends ReadableState<Key>
+{
+    private final KeyFormat<Key> keys;
+    private final File basePath;
+    private final SharedFile base;
+    private final File deltaPath;
+    private final KeyValueStoreFile delta;
+    private final int entryCount;
+
+    private DeltaState( KeyFormat<Key> keys, File basePath, SharedFile base, File deltaPath, KeyValueStoreFile delta )
+            throws IOException
+    {
+        this.keys = keys;
+        this.basePath = basePath;
+        this.base = base;
+        this.deltaPath = deltaPath;
+        this.delta = delta;
+        this.entryCount = delta == null ? base.file.entryCount() : mergedEntryCount( keys, base.file, delta );
+    }
+
+    static <Key> DeltaState<Key> open( KeyFormat<Key> keys, RotationStrategy rotation, File path,
+            KeyValueStoreFile store ) throws IOException
+    {
+        Pair<File,KeyValueStoreFile> delta = rotation.openDelta( path, store.headers() );
+        try
+        {
+            return delta == null
+                   ? new DeltaState<>( keys, path, new SharedFile( store ), null, null )
+                   : new DeltaState<>( keys, path, new SharedFile( store ), delta.first(), delta.other() );
+        }
+        catch ( IOException | RuntimeException e )
+        {
+            if ( delta != null )
+            {
+                delta.other().close();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    protected KeyFormat<Key> keyFormat()
+    {
+        return keys;
+    }
+
+    @Override
+    protected Headers headers()
+    {
+        return delta == null ? base.file.headers() : delta.headers();
+    }
+
+    @Override
+    protected long version()
+    {
+        return keys.version( headers() );
+    }
+
+    @Override
+    protected boolean lookup( Key key, ValueSink sink ) throws IOException
+    {
+        KeyFormat.Searcher<Key> search = new KeyFormat.Searcher<>( keys, key );
+        return (delta != null && delta.scan( search, sink )) || base.file.scan( search, sink );
+    }
+
+    @Override
+    protected DataProvider dataProvider() throws IOException
+    {
+        if ( delta == null )
+        {
+            return base.file.dataProvider();
+        }
+        return keys.filter( new KeyValueMerger( base.file.dataProvider(), delta.dataProvider(),
+                keys.keySize(), keys.valueSize() ) );
+    }
+
+    @Override
+    protected int storedEntryCount()
+    {
+        return entryCount;
+    }
+
+    @Override
+    Pair<File,ReadableState<Key>> rotate( RotationStrategy strategy, File file, Headers headers,
+            ActiveState<Key> state ) throws IOException
+    {
+        long deltaEntries = (delta == null ? 0 : delta.entryCount()) + state.changedEntries();
+        if ( strategy.shouldCompact( deltaEntries, base.file.entryCount() ) )
+        {
+            return super.rotate( strategy, file, headers, state );
+        }
+        DataProvider changes = state.changes();
+        if ( delta != null )
+        {
+            changes = new KeyValueMerger( delta.dataProvider(), changes, keys.keySize(), keys.valueSize() );
+        }
+        Pair<File,KeyValueStoreFile> next = strategy.nextDelta( basePath, deltaPath, headers, changes );
+        SharedFile shared = base.retain();
+        try
+        {
+            return Pair.of( basePath, new DeltaState<>( keys, basePath, shared, next.first(), next.other() ) );
+        }
+        catch ( IOException | RuntimeException e )
+        {
+            next.other().close();
+            shared.release();
+            throw e;
+        }
+    }
+
+    @Override
+    void close() throws IOException
+    {
+        try
+        {
+            if ( delta != null )
+            {
+                delta.close();
+            }
+        }
+        finally
+        {
+            base.release();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return getClass().getSimpleName() + "[" + basePath + (deltaPath == null ? "" : " + " + deltaPath) + "]";
+    }
+
+    /**
+     * The number of entries of the merged state: those of the complete store file that are not overridden by the
+     * delta, and those of the delta that the {@linkplain KeyFormat#filter(DataProvider) key format would store}.
+     */
+    private static int mergedEntryCount( KeyFormat<?> keys, KeyValueStoreFile base, KeyValueStoreFile delta )
+            throws IOException
+    {
+        int count = base.entryCount();
+        BigEndianByteArrayBuffer key = new BigEndianByteArrayBuffer( keys.keySize() );
+        BigEndianByteArrayBuffer value = new BigEndianByteArrayBuffer( keys.valueSize() );
+        KeyValueVisitor ignore = ( k, v ) -> false;
+        try ( DataProvider entries = delta.dataProvider() )
+        {
+            while ( entries.visit( key, value ) )
+            {
+                if ( base.scan( key::read, ignore ) )
+                {
+                    count--;
+                }
+            }
+        }
+        try ( DataProvider stored = keys.filter( delta.dataProvider() ) )
+        {
+            while ( stored.visit( key, value ) )
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static final class SharedFile
+    {
+        final KeyValueStoreFile file;
+        private int references = 1;
+
+        SharedFile( KeyValueStoreFile file )
+        {
+            this.file = file;
+        }
+
+        synchronized SharedFile retain()
+        {
+            if ( references == 0 )
+            {
+                throw new IllegalStateException( "Store file already closed: " + file );
+            }
+            references++;
+            return this;
+        }
+
+        synchronized void release() throws IOException
+        {
+            if ( --references == 0 )
+            {
+                file.close();
+            }
+        }
+    }
+}
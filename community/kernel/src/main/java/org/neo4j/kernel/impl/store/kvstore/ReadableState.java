@@ -19,8 +19,11 @@
  */
 package org.neo4j.kernel.impl.store.kvstore;
 
+import java.io.File;
 import java.io.IOException;
 
+import org.neo4j.helpers.collection.Pair;
+
 import static org.neo4j.kernel.impl.store.kvstore.DataProvider.EMPTY_DATA_PROVIDER;
 
 abstract class ReadableState<Key>
@@ -39,6 +42,24 @@ abstract class ReadableState<Key>
 
     abstract void close() throws IOException;
 
+    /**
+     * Write the next store file, from this state with the changes of the given state applied.
+     *
+     * @return the path of the store file that the next state is rooted in, and the next state.
+     */
+    Pair<File,ReadableState<Key>> rotate( RotationStrategy strategy, File file, Headers headers,
+            ActiveState<Key> state ) throws IOException
+    {
+        Pair<File,KeyValueStoreFile> next = strategy.next( file, headers, keyFormat().filter( state.dataProvider() ) );
+        return Pair.of( next.first(), store( keyFormat(), strategy, next.first(), next.other() ) );
+    }
+
+    static <Key> ReadableState<Key> store( KeyFormat<Key> keys, RotationStrategy rotation, File path,
+            KeyValueStoreFile store ) throws IOException
+    {
+        return rotation.incremental() ? DeltaState.open( keys, rotation, path, store ) : store( keys, store );
+    }
+
     static <Key> ReadableState<Key> store( final KeyFormat<Key> keys, final KeyValueStoreFile store )
     {
         return new ReadableState<Key>()
@@ -38,13 +38,21 @@ public @interface Rotation
 
     String[] parameters() default {".a", ".b"};
 
+    /**
+     * When positive, a rotation only writes the entries that changed since the last complete store file, into a delta
+     * file next to it, until the delta would hold more than {@code 1/compactionRatio} as many entries as the complete
+     * store file. At that point the delta is compacted into a new complete store file instead.
+     * When zero, every rotation writes a complete store file.
+     */
+    int compactionRatio() default 0;
+
     enum Strategy
     {
         LEFT_RIGHT
         {
             @Override
             RotationStrategy create( FileSystemAbstraction fs, PageCache pages, ProgressiveFormat format,
-                                     RotationMonitor monitor, File base,
+                                     RotationMonitor monitor, File base, int compactionRatio,
                                      String[] parameters )
             {
                 if ( parameters == null || parameters.length != 2 )
@@ -54,21 +62,22 @@ public @interface Rotation
                 String parent = base.getParent();
                 String l = base.getName() + parameters[0], r = base.getName() + parameters[1];
                 final File left = new File( parent, l ), right = new File( parent, r );
-                return new RotationStrategy.LeftRight( fs, pages, format, monitor, left, right );
+                return new RotationStrategy.LeftRight( fs, pages, format, monitor, compactionRatio, left, right );
             }
         },
         INCREMENTING
         {
             @Override
             RotationStrategy create( FileSystemAbstraction fs, PageCache pages, ProgressiveFormat format,
-                                     RotationMonitor monitor, File base,
+                                     RotationMonitor monitor, File base, int compactionRatio,
                                      String[] parameters )
             {
-                return new RotationStrategy.Incrementing( fs, pages, format, monitor, base );
+                return new RotationStrategy.Incrementing( fs, pages, format, monitor, compactionRatio, base );
             }
         };
 
         abstract RotationStrategy create( FileSystemAbstraction fs, PageCache pages, ProgressiveFormat format,
-                                          RotationMonitor monitor, File base, String... parameters );
+                                          RotationMonitor monitor, File base, int compactionRatio,
+                                          String... parameters );
     }
 }
@@ -82,9 +82,9 @@ abstract class RotationState<Key> extends ProgressiveState<Key>
                     }
                 }
             }
-            Pair<File, KeyValueStoreFile> next = strategy
-                    .next( file(), updateHeaders( headersUpdater ), keyFormat().filter( preState.dataProvider() ) );
-            return postState.create( ReadableState.store( preState.keyFormat(), next.other() ), next.first() );
+            Pair<File, ReadableState<Key>> next =
+                    preState.store.rotate( strategy, file(), updateHeaders( headersUpdater ), preState );
+            return postState.create( next.other(), next.first() );
         }
 
         @Override
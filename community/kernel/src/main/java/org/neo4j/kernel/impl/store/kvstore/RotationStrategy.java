@@ -31,18 +31,21 @@ import org.neo4j.io.pagecache.PageCache;
 
 abstract class RotationStrategy
 {
+    private static final String[] DELTA_SUFFIXES = {".delta.a", ".delta.b"};
     protected final FileSystemAbstraction fs;
     protected final PageCache pages;
     private final ProgressiveFormat format;
     private final RotationMonitor monitor;
+    private final int compactionRatio;
 
     RotationStrategy( FileSystemAbstraction fs, PageCache pages, ProgressiveFormat format,
-                      RotationMonitor monitor )
+                      RotationMonitor monitor, int compactionRatio )
     {
         this.fs = fs;
         this.pages = pages;
         this.format = format;
         this.monitor = monitor;
+        this.compactionRatio = compactionRatio;
     }
 
     protected abstract File initialFile();
@@ -87,9 +90,54 @@ abstract class RotationStrategy
         return result == null ? null : Pair.of( path, result );
     }
 
+    /**
+     * Open the most recent delta of the given store file, if it has one.
+     *
+     * @param base the store file to find the delta for.
+     * @param baseHeaders the headers of the store file, a delta is only valid if its headers are greater than these.
+     * @return the path and the opened delta, or {@code null} if there is no valid delta.
+     */
+    public final Pair<File, KeyValueStoreFile> openDelta( File base, Headers baseHeaders ) throws IOException
+    {
+        KeyValueStoreFile result = null;
+        File path = null;
+        for ( File candidatePath : deltaFiles( base ) )
+        {
+            KeyValueStoreFile file;
+            if ( fs.fileExists( candidatePath ) )
+            {
+                try
+                {
+                    file = format.openStore( fs, pages, candidatePath );
+                }
+                catch ( Exception e )
+                {
+                    monitor.failedToOpenStoreFile( candidatePath, e );
+                    continue;
+                }
+                if ( format.compareHeaders( baseHeaders, file.headers() ) < 0 &&
+                     (result == null || format.compareHeaders( result.headers(), file.headers() ) < 0) )
+                {
+                    if ( result != null )
+                    {
+                        result.close();
+                    }
+                    result = file;
+                    path = candidatePath;
+                }
+                else
+                {
+                    file.close();
+                }
+            }
+        }
+        return result == null ? null : Pair.of( path, result );
+    }
+
     public final Pair<File, KeyValueStoreFile> create( DataProvider initialData, long version ) throws IOException
     {
         File path = initialFile();
+        deleteDeltas( path );
         return Pair.of( path, format.createStore(
                 fs, pages, path, format.keySize(), format.valueSize(), format.initialHeaders( version ),
                 initialData ) );
@@ -103,6 +151,8 @@ abstract class RotationStrategy
         KeyValueStoreFile store;
         try
         {
+            // any deltas of the file we are about to replace are older than the file we are rotating from
+            deleteDeltas( path );
             store = format.createStore( fs, pages, path, format.keySize(), format.valueSize(), headers, data );
         }
         catch ( Exception e )
@@ -114,6 +164,74 @@ abstract class RotationStrategy
         return Pair.of( path, store );
     }
 
+    /**
+     * Write the next delta of the given store file, alternating between the delta files of the store file so that the
+     * previous delta stays intact until the new one has been completely written.
+     *
+     * @param base the store file that the delta applies to.
+     * @param previous the delta that is currently in use, or {@code null} if there is none.
+     * @param headers the headers of the new delta.
+     * @param data all entries that differ from the store file, sorted by key.
+     * @return the path and the opened new delta.
+     */
+    public final Pair<File, KeyValueStoreFile> nextDelta( File base, File previous, Headers headers,
+            DataProvider data ) throws IOException
+    {
+        File[] deltas = deltaFiles( base );
+        File path = deltas[0].equals( previous ) ? deltas[1] : deltas[0];
+        File source = previous == null ? base : previous;
+        monitor.beforeRotation( source, path, headers );
+        KeyValueStoreFile store;
+        try
+        {
+            store = format.createStore( fs, pages, path, format.keySize(), format.valueSize(), headers, data );
+        }
+        catch ( Exception e )
+        {
+            monitor.rotationFailed( source, path, headers, e );
+            throw e;
+        }
+        monitor.rotationSucceeded( source, path, headers );
+        return Pair.of( path, store );
+    }
+
+    /**
+     * Rotations write a delta rather than a complete store file, as long as the delta has at most
+     * {@code 1/compactionRatio} as many entries as the store file it applies to.
+     *
+     * @return {@code true} if rotations may write deltas.
+     */
+    final boolean incremental()
+    {
+        return compactionRatio > 0;
+    }
+
+    final boolean shouldCompact( long deltaEntries, long baseEntries )
+    {
+        return deltaEntries * compactionRatio > baseEntries;
+    }
+
+    final File[] deltaFiles( File base )
+    {
+        File[] deltas = new File[DELTA_SUFFIXES.length];
+        for ( int i = 0; i < deltas.length; i++ )
+        {
+            deltas[i] = new File( base.getParent(), base.getName() + DELTA_SUFFIXES[i] );
+        }
+        return deltas;
+    }
+
+    private void deleteDeltas( File base ) throws IOException
+    {
+        for ( File delta : deltaFiles( base ) )
+        {
+            if ( fs.fileExists( delta ) && !fs.deleteFile( delta ) )
+            {
+                throw new IOException( "Failed to delete stale delta: " + delta );
+            }
+        }
+    }
+
     final KeyValueStoreFile openStoreFile( File path ) throws IOException
     {
         return format.openStore( fs, pages, path );
@@ -125,9 +243,9 @@ abstract class RotationStrategy
         private final File right;
 
         LeftRight( FileSystemAbstraction fs, PageCache pages, ProgressiveFormat format,
-                   RotationMonitor monitor, File left, File right )
+                   RotationMonitor monitor, int compactionRatio, File left, File right )
         {
-            super( fs, pages, format, monitor );
+            super( fs, pages, format, monitor, compactionRatio );
             this.left = left;
             this.right = right;
         }
@@ -168,9 +286,9 @@ abstract class RotationStrategy
         private final File base;
 
         public Incrementing( FileSystemAbstraction fs, PageCache pages, ProgressiveFormat format,
-                             RotationMonitor monitor, File base )
+                             RotationMonitor monitor, int compactionRatio, File base )
         {
-            super( fs, pages, format, monitor );
+            super( fs, pages, format, monitor, compactionRatio );
             this.base = base;
         }
 
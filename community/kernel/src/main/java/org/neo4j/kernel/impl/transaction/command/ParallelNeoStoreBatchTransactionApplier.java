@@ -0,0 +1,395 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.command;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.neo4j.collection.primitive.Primitive;
+import org.neo4j.collection.primitive.PrimitiveLongIntMap;
+import org.neo4j.helpers.NamedThreadFactory;
+import org.neo4j.kernel.impl.api.BatchTransactionApplier;
+import org.neo4j.kernel.impl.api.TransactionApplier;
+import org.neo4j.kernel.impl.core.CacheAccessBackDoor;
+import org.neo4j.kernel.impl.locking.LockGroup;
+import org.neo4j.kernel.impl.locking.LockService;
+import org.neo4j.kernel.impl.store.NeoStores;
+import org.neo4j.kernel.impl.store.NodeStore;
+import org.neo4j.kernel.impl.store.PropertyStore;
+import org.neo4j.kernel.impl.store.RecordStore;
+import org.neo4j.kernel.impl.store.RelationshipStore;
+import org.neo4j.kernel.impl.store.record.AbstractBaseRecord;
+import org.neo4j.kernel.impl.store.record.DynamicRecord;
+import org.neo4j.kernel.impl.store.record.NodeRecord;
+import org.neo4j.kernel.impl.store.record.PropertyBlock;
+import org.neo4j.kernel.impl.store.record.PropertyRecord;
+import org.neo4j.kernel.impl.store.record.RelationshipGroupRecord;
+import org.neo4j.kernel.impl.store.record.RelationshipRecord;
+import org.neo4j.storageengine.api.CommandsToApply;
+
+/**
+ * A replacement for {@link NeoStoreBatchTransactionApplier} for recovery, which applies the record updates of node,
+ * relationship, relationship group and property commands concurrently, on a number of partition threads.
+ * <p>
+ * Record updates are partitioned by store and record page, so all updates to any given record are applied by the
+ * same partition thread, in the order they appear in the log. Dynamic records, i.e. property values and node labels,
+ * are written together with the record that owns them, but a dynamic record can be owned by different records in
+ * different transactions. The partition that last wrote each dynamic record is therefore tracked, and all partitions
+ * are drained before a dynamic record is written from a different partition. The same goes for records with
+ * secondary units, since a secondary unit can be reused as a record of its own, as well as for schema rule commands
+ * since index appliers may depend on the store being up to date at that point.
+ * <p>
+ * All other commands are rare, and don't touch any of the partitioned stores, so they are applied directly by the
+ * thread applying the batch. The other appliers of the batch only work off of the commands themselves during
+ * recovery, which is why they can keep running in transaction order on the applying thread.
+ * <p>
+ * The partition threads are owned by {@link Partitions}, which lives as long as the storage engine and is shared
+ * by the appliers of all batches. Closing an applier doesn't wait for its updates, so that one batch can be
+ * applied while the updates of the previous one are still being written. {@link Partitions#drain()} has to be
+ * called before the store is flushed, which makes everything applied so far part of the checkpoint.
+ * <p>
+ * Recovery runs before the database accepts any reads or writes, so unlike {@link NeoStoreTransactionApplier} the
+ * partitioned updates don't take any entity locks.
+ */
+public class ParallelNeoStoreBatchTransactionApplier extends BatchTransactionApplier.Adapter
+{
+    private static final int NODE_STORE = 0;
+    private static final int RELATIONSHIP_STORE = 1;
+    private static final int RELATIONSHIP_GROUP_STORE = 2;
+    private static final int PROPERTY_STORE = 3;
+
+    private final NeoStores neoStores;
+    private final CacheAccessBackDoor cacheAccess;
+    private final LockService lockService;
+    private final NodeStore nodeStore;
+    private final RelationshipStore relationshipStore;
+    private final RecordStore<RelationshipGroupRecord> relationshipGroupStore;
+    private final PropertyStore propertyStore;
+    private final Partitions partitions;
+
+    public ParallelNeoStoreBatchTransactionApplier( NeoStores neoStores, CacheAccessBackDoor cacheAccess,
+            LockService lockService, Partitions partitions )
+    {
+        this.neoStores = neoStores;
+        this.cacheAccess = cacheAccess;
+        this.lockService = lockService;
+        this.nodeStore = neoStores.getNodeStore();
+        this.relationshipStore = neoStores.getRelationshipStore();
+        this.relationshipGroupStore = neoStores.getRelationshipGroupStore();
+        this.propertyStore = neoStores.getPropertyStore();
+        this.partitions = partitions;
+    }
+
+    @Override
+    public TransactionApplier startTx( CommandsToApply transaction )
+    {
+        throw new RuntimeException( "ParallelNeoStoreBatchTransactionApplier requires a LockGroup" );
+    }
+
+    @Override
+    public TransactionApplier startTx( CommandsToApply transaction, LockGroup lockGroup ) throws IOException
+    {
+        partitions.assertNoFailure();
+        return new PartitioningTransactionApplier( new NeoStoreTransactionApplier( neoStores, cacheAccess,
+                lockService, transaction.transactionId(), lockGroup ) );
+    }
+
+    @Override
+    public void close() throws Exception
+    {
+        partitions.assertNoFailure();
+    }
+
+    /**
+     * Records with secondary units are applied by the calling thread, after all partitions have been drained, since
+     * the secondary unit may be the same record as some other record that another partition updates.
+     *
+     * @return {@code true} if the record was applied, otherwise it is up to the caller to apply it.
+     */
+    private <RECORD extends AbstractBaseRecord> boolean applyIfUsingSecondaryUnit( RECORD record,
+            RecordStore<RECORD> store ) throws IOException
+    {
+        if ( record.hasSecondaryUnitId() || record.requiresSecondaryUnit() )
+        {
+            partitions.drain();
+            store.updateRecord( record );
+            return true;
+        }
+        return false;
+    }
+
+    private class PartitioningTransactionApplier extends TransactionApplier.Adapter
+    {
+        private final NeoStoreTransactionApplier delegate;
+
+        PartitioningTransactionApplier( NeoStoreTransactionApplier delegate )
+        {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void close() throws Exception
+        {
+            delegate.close();
+        }
+
+        @Override
+        public boolean visitNodeCommand( Command.NodeCommand command ) throws IOException
+        {
+            NodeRecord record = command.getAfter();
+            if ( applyIfUsingSecondaryUnit( record, nodeStore ) )
+            {
+                return false;
+            }
+            int partition = partitions.partitionOf( NODE_STORE, record.getId(), nodeStore.getRecordsPerPage() );
+            partitions.claimDynamicRecords( record.getDynamicLabelRecords(), partitions.labelRecordPartitions,
+                    partition );
+            partitions.apply( partition, () -> nodeStore.updateRecord( record ) );
+            return false;
+        }
+
+        @Override
+        public boolean visitRelationshipCommand( Command.RelationshipCommand command ) throws IOException
+        {
+            RelationshipRecord record = command.getAfter();
+            if ( applyIfUsingSecondaryUnit( record, relationshipStore ) )
+            {
+                return false;
+            }
+            int partition = partitions.partitionOf( RELATIONSHIP_STORE, record.getId(),
+                    relationshipStore.getRecordsPerPage() );
+            partitions.apply( partition, () -> relationshipStore.updateRecord( record ) );
+            return false;
+        }
+
+        @Override
+        public boolean visitRelationshipGroupCommand( Command.RelationshipGroupCommand command ) throws IOException
+        {
+            RelationshipGroupRecord record = command.getAfter();
+            if ( applyIfUsingSecondaryUnit( record, relationshipGroupStore ) )
+            {
+                return false;
+            }
+            int partition = partitions.partitionOf( RELATIONSHIP_GROUP_STORE, record.getId(),
+                    relationshipGroupStore.getRecordsPerPage() );
+            partitions.apply( partition, () -> relationshipGroupStore.updateRecord( record ) );
+            return false;
+        }
+
+        @Override
+        public boolean visitPropertyCommand( Command.PropertyCommand command ) throws IOException
+        {
+            PropertyRecord record = command.getAfter();
+            if ( applyIfUsingSecondaryUnit( record, propertyStore ) )
+            {
+                return false;
+            }
+            int partition = partitions.partitionOf( PROPERTY_STORE, record.getId(),
+                    propertyStore.getRecordsPerPage() );
+            // The string and array stores are both tracked as one, which only means that we sometimes drain
+            // when we didn't strictly have to.
+            for ( PropertyBlock block : record )
+            {
+                if ( !block.isLight() )
+                {
+                    partitions.claimDynamicRecords( block.getValueRecords(),
+                            partitions.propertyValueRecordPartitions, partition );
+                }
+            }
+            partitions.claimDynamicRecords( record.getDeletedRecords(), partitions.propertyValueRecordPartitions,
+                    partition );
+            partitions.apply( partition, () -> propertyStore.updateRecord( record ) );
+            return false;
+        }
+
+        @Override
+        public boolean visitRelationshipTypeTokenCommand( Command.RelationshipTypeTokenCommand command )
+                throws IOException
+        {
+            return delegate.visitRelationshipTypeTokenCommand( command );
+        }
+
+        @Override
+        public boolean visitLabelTokenCommand( Command.LabelTokenCommand command ) throws IOException
+        {
+            return delegate.visitLabelTokenCommand( command );
+        }
+
+        @Override
+        public boolean visitPropertyKeyTokenCommand( Command.PropertyKeyTokenCommand command ) throws IOException
+        {
+            return delegate.visitPropertyKeyTokenCommand( command );
+        }
+
+        @Override
+        public boolean visitSchemaRuleCommand( Command.SchemaRuleCommand command ) throws IOException
+        {
+            partitions.drain();
+            return delegate.visitSchemaRuleCommand( command );
+        }
+
+        @Override
+        public boolean visitNeoStoreCommand( Command.NeoStoreCommand command ) throws IOException
+        {
+            return delegate.visitNeoStoreCommand( command );
+        }
+    }
+
+    /**
+     * The partition threads applying record updates, together with the partitions owning dynamic records. They are
+     * created once and shared by the appliers of all batches, which are applied by one thread at a time.
+     */
+    public static class Partitions implements AutoCloseable
+    {
+        // Drain all partitions and forget about the dynamic record owners if this many dynamic records are being
+        // tracked, so that the memory used for tracking them stays bounded.
+        private static final int MAX_TRACKED_DYNAMIC_RECORDS = 1_000_000;
+
+        private final ExecutorService[] executors;
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final PrimitiveLongIntMap labelRecordPartitions = Primitive.longIntMap();
+        private final PrimitiveLongIntMap propertyValueRecordPartitions = Primitive.longIntMap();
+
+        public Partitions( int partitionCount )
+        {
+            this.executors = new ExecutorService[partitionCount];
+            NamedThreadFactory threadFactory = NamedThreadFactory.daemon( "recovery-applier" );
+            for ( int i = 0; i < partitionCount; i++ )
+            {
+                executors[i] = Executors.newSingleThreadExecutor( threadFactory );
+            }
+        }
+
+        private int partitionOf( int store, long recordId, int recordsPerPage )
+        {
+            long pageId = recordId / recordsPerPage;
+            return (int) ((pageId + store) % executors.length);
+        }
+
+        private void apply( int partition, Runnable update )
+        {
+            executors[partition].execute( () ->
+            {
+                if ( failure.get() == null )
+                {
+                    try
+                    {
+                        update.run();
+                    }
+                    catch ( Throwable e )
+                    {
+                        failure.compareAndSet( null, e );
+                    }
+                }
+            } );
+        }
+
+        /**
+         * Waits for all partitions to finish the updates given to them so far. Called by the thread applying the
+         * batches, or once no batch is being applied.
+         */
+        public void drain() throws IOException
+        {
+            CountDownLatch drained = new CountDownLatch( executors.length );
+            for ( ExecutorService executor : executors )
+            {
+                executor.execute( drained::countDown );
+            }
+            try
+            {
+                drained.await();
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                throw new IOException( "Interrupted while waiting for recovered transactions to be applied", e );
+            }
+            labelRecordPartitions.clear();
+            propertyValueRecordPartitions.clear();
+            assertNoFailure();
+        }
+
+        private void assertNoFailure() throws IOException
+        {
+            Throwable cause = failure.get();
+            if ( cause != null )
+            {
+                // Surface the failure the same way as if the update had been applied by this thread
+                if ( cause instanceof RuntimeException )
+                {
+                    throw (RuntimeException) cause;
+                }
+                if ( cause instanceof Error )
+                {
+                    throw (Error) cause;
+                }
+                throw new IOException( "Failed to apply recovered transaction", cause );
+            }
+        }
+
+        private void claimDynamicRecords( Iterable<DynamicRecord> records, PrimitiveLongIntMap owners,
+                int partition ) throws IOException
+        {
+            for ( DynamicRecord record : records )
+            {
+                long id = record.getId();
+                if ( owners.containsKey( id ) && owners.get( id ) != partition )
+                {
+                    drain();
+                    break;
+                }
+            }
+            if ( owners.size() > MAX_TRACKED_DYNAMIC_RECORDS )
+            {
+                drain();
+            }
+            for ( DynamicRecord record : records )
+            {
+                owners.put( record.getId(), partition );
+            }
+        }
+
+        @Override
+        public void close() throws Exception
+        {
+            try
+            {
+                drain();
+            }
+            finally
+            {
+                for ( ExecutorService executor : executors )
+                {
+                    executor.shutdown();
+                }
+                for ( ExecutorService executor : executors )
+                {
+                    executor.awaitTermination( 1, TimeUnit.MINUTES );
+                }
+                labelRecordPartitions.close();
+                propertyValueRecordPartitions.close();
+            }
+        }
+    }
+}
@@ -22,6 +22,8 @@ package org.neo4j.kernel.impl.transaction.log;
 import java.io.Flushable;
 import java.io.IOException;
 import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
@@ -51,6 +53,8 @@ import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryStart.checksum
  */
 public class BatchingTransactionAppender extends LifecycleAdapter implements TransactionAppender
 {
+    private static final int MAX_RETAINED_TRANSACTION_LOG_BUFFERS = 16;
+
     // For the graph store and schema indexes order-of-updates are managed by the high level entity locks
     // such that changes are applied to the affected records in the same order that they are written to the
     // log. For the legacy indexes there are no such locks, and hence no such ordering. This queue below
@@ -65,10 +69,13 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
     private final LogPositionMarker positionMarker = new LogPositionMarker();
     private final DatabaseHealth databaseHealth;
     private final Lock forceLock = new ReentrantLock();
+    // Buffers that each committing thread serializes its transactions into before taking the logFile monitor,
+    // one buffer per transaction in the batch. Reused between appends on the same thread.
+    private final ThreadLocal<List<TransactionLogBuffer>> transactionLogBuffers = ThreadLocal.withInitial(
+            ArrayList::new );
 
     private FlushablePositionAwareChannel writer;
     private TransactionLogWriter transactionLogWriter;
-    private IndexCommandDetector indexCommandDetector;
 
     public BatchingTransactionAppender( LogFile logFile, LogRotation logRotation,
             TransactionMetadataCache transactionMetadataCache, TransactionIdStore transactionIdStore,
@@ -86,7 +93,6 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
     public void start() throws Throwable
     {
         this.writer = logFile.getWriter();
-        this.indexCommandDetector = new IndexCommandDetector();
         this.transactionLogWriter = new TransactionLogWriter( new LogEntryWriter( writer ) );
     }
 
@@ -100,15 +106,23 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
 
         // Assigned base tx id just to make compiler happy
         long lastTransactionId = TransactionIdStore.BASE_TX_ID;
-        // Synchronized with logFile to get absolute control over concurrent rotations happening
-        synchronized ( logFile )
+        List<TransactionLogBuffer> buffers = transactionLogBuffers.get();
+        try ( SerializeTransactionEvent serialiseEvent = logAppendEvent.beginSerializeTransaction() )
         {
-            // Assert that kernel is healthy before making any changes
-            databaseHealth.assertHealthy( IOException.class );
-            try ( SerializeTransactionEvent serialiseEvent = logAppendEvent.beginSerializeTransaction() )
+            // Serialize the commands of all transactions in this batch before taking the logFile monitor, so that
+            // large transactions don't hold up all other committers. Nothing has been written to the log if this
+            // fails, so there's no need to panic.
+            serialize( batch, buffers );
+
+            // Synchronized with logFile to get absolute control over concurrent rotations happening
+            synchronized ( logFile )
             {
+                // Assert that kernel is healthy before making any changes
+                databaseHealth.assertHealthy( IOException.class );
+
                 // Append all transactions in this batch to the log under the same logFile monitor
                 TransactionToApply tx = batch;
+                int index = 0;
                 while ( tx != null )
                 {
                     long transactionId = transactionIdStore.nextCommittingTransactionId();
@@ -119,13 +133,18 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
                     // really recover from and would point to a bug somewhere.
                     matchAgainstExpectedTransactionIdIfAny( transactionId, tx );
 
-                    TransactionCommitment commitment = appendToLog( tx.transactionRepresentation(), transactionId );
+                    TransactionCommitment commitment = appendToLog(
+                            tx.transactionRepresentation(), buffers.get( index++ ), transactionId );
                     tx.commitment( commitment, transactionId );
                     tx = tx.next();
                     lastTransactionId = transactionId;
                 }
             }
         }
+        finally
+        {
+            release( buffers );
+        }
 
         // At this point we've appended all transactions in this batch, but we can't mark any of them
         // as committed since they haven't been forced to disk yet. So here we force, or potentially
@@ -139,6 +158,32 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
         return lastTransactionId;
     }
 
+    private void serialize( TransactionToApply batch, List<TransactionLogBuffer> buffers ) throws IOException
+    {
+        int index = 0;
+        for ( TransactionToApply tx = batch; tx != null; tx = tx.next() )
+        {
+            if ( index == buffers.size() )
+            {
+                buffers.add( new TransactionLogBuffer() );
+            }
+            buffers.get( index++ ).serialize( tx.transactionRepresentation() );
+        }
+    }
+
+    private void release( List<TransactionLogBuffer> buffers )
+    {
+        // Don't let the occasional large batch make this thread hold on to lots of buffers
+        while ( buffers.size() > MAX_RETAINED_TRANSACTION_LOG_BUFFERS )
+        {
+            buffers.remove( buffers.size() - 1 );
+        }
+        for ( TransactionLogBuffer buffer : buffers )
+        {
+            buffer.release();
+        }
+    }
+
     private void matchAgainstExpectedTransactionIdIfAny( long transactionId, TransactionToApply tx )
     {
         long expectedTransactionId = tx.transactionId();
@@ -186,13 +231,9 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
      * @return A TransactionCommitment instance with metadata about the committed transaction, such as whether or not
      * this transaction contains any legacy index changes.
      */
-    private TransactionCommitment appendToLog( TransactionRepresentation transaction, long transactionId )
-            throws IOException
+    private TransactionCommitment appendToLog( TransactionRepresentation transaction, TransactionLogBuffer buffer,
+            long transactionId ) throws IOException
     {
-        // Reset command writer so that we, after we've written the transaction, can ask it whether or
-        // not any legacy index command was written. If so then there's additional ordering to care about below.
-        indexCommandDetector.reset();
-
         // The outcome of this try block is either of:
         // a) transaction successfully appended, at which point we return a Commitment to be used after force
         // b) transaction failed to be appended, at which point a kernel panic is issued
@@ -202,7 +243,10 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
         try
         {
             LogPosition logPositionBeforeCommit = writer.getCurrentPosition( positionMarker ).newPosition();
-            transactionLogWriter.append( transaction, transactionId );
+            // The start entry and commands have already been serialized into the buffer, so only the commit
+            // entry, which contains the transaction id, needs to be serialized here.
+            buffer.writeTo( writer );
+            transactionLogWriter.appendCommit( transactionId, transaction.getTimeCommitted() );
             LogPosition logPositionAfterCommit = writer.getCurrentPosition( positionMarker ).newPosition();
 
             long transactionChecksum = checksum(
@@ -211,8 +255,8 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
                     transactionId, logPositionBeforeCommit, transaction.getMasterId(), transaction.getAuthorId(),
                     transactionChecksum, transaction.getTimeCommitted() );
 
-            transaction.accept( indexCommandDetector );
-            boolean hasLegacyIndexChanges = indexCommandDetector.hasWrittenAnyLegacyIndexCommand();
+            // If the transaction contains any legacy index command then there's additional ordering to care about
+            boolean hasLegacyIndexChanges = buffer.hasLegacyIndexChanges();
             if ( hasLegacyIndexChanges )
             {
                 // Offer this transaction id to the queue so that the legacy index applier can take part in the ordering
@@ -19,65 +19,264 @@
  */
 package org.neo4j.kernel.impl.transaction.log;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
 import org.neo4j.helpers.collection.CloseableVisitor;
 import org.neo4j.helpers.collection.Visitor;
+import org.neo4j.io.fs.FileSystemAbstraction;
 import org.neo4j.kernel.impl.transaction.CommittedTransactionRepresentation;
 import org.neo4j.kernel.impl.transaction.log.entry.LogEntryReader;
 import org.neo4j.kernel.impl.transaction.state.RecoverableTransaction;
 
 import static org.neo4j.kernel.impl.transaction.log.LogVersionBridge.NO_MORE_CHANNELS;
 
+/**
+ * Reads the transactions of log files and hands them to a visitor, for recovery.
+ * <p>
+ * Log entries are read and decoded by a separate reader thread, which stays up to {@value #READ_AHEAD_TRANSACTIONS}
+ * transactions ahead of the visitor, so that decoding the log and applying the transactions happen in parallel.
+ */
 public class LogFileRecoverer implements Visitor<LogVersionedStoreChannel,Exception>
 {
+    public interface Monitor
+    {
+        /**
+         * Called periodically while transactions are being recovered.
+         *
+         * @param position the position in the log up to which transactions have been recovered.
+         * @param bytesRecovered the number of log bytes that have been recovered so far.
+         * @param bytesToRecover the total number of log bytes to recover.
+         * @param estimatedMillisRemaining the estimated time, in milliseconds, until all transactions are recovered.
+         */
+        void recoveryProgress( LogPosition position, long bytesRecovered, long bytesToRecover,
+                long estimatedMillisRemaining );
+    }
+
+    public static final Monitor NO_MONITOR = ( position, bytesRecovered, bytesToRecover, millisRemaining ) -> {};
+
+    static final int READ_AHEAD_TRANSACTIONS = 1000;
+    private static final long PROGRESS_REPORT_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis( 10 );
+
     private final LogEntryReader<ReadableClosablePositionAwareChannel> logEntryReader;
     private final CloseableVisitor<RecoverableTransaction,Exception> visitor;
+    private final PhysicalLogFiles logFiles;
+    private final FileSystemAbstraction fs;
+    private final Monitor monitor;
+
+    // Progress of the recovery as a whole, across all visited log files
+    private long startTimeMillis;
+    private long lastReportTimeMillis;
+    private long bytesToRecover = -1;
+    private long bytesRecoveredInPreviousLogs;
 
     public LogFileRecoverer( LogEntryReader<ReadableClosablePositionAwareChannel> logEntryReader,
             CloseableVisitor<RecoverableTransaction,Exception> visitor )
+    {
+        this( logEntryReader, visitor, null, null, NO_MONITOR );
+    }
+
+    /**
+     * @param logFiles the log files being recovered, used for estimating the remaining recovery time.
+     * @param fs the file system that the log files are on.
+     * @param monitor the monitor to report recovery progress to.
+     */
+    public LogFileRecoverer( LogEntryReader<ReadableClosablePositionAwareChannel> logEntryReader,
+            CloseableVisitor<RecoverableTransaction,Exception> visitor, PhysicalLogFiles logFiles,
+            FileSystemAbstraction fs, Monitor monitor )
     {
         this.logEntryReader = logEntryReader;
         this.visitor = visitor;
+        this.logFiles = logFiles;
+        this.fs = fs;
+        this.monitor = monitor;
     }
 
     @Override
     public boolean visit( LogVersionedStoreChannel channel ) throws Exception
     {
         final ReadableLogChannel recoveredDataChannel = new ReadAheadLogChannel( channel, NO_MORE_CHANNELS );
+        long startOffset = channel.position();
+        startProgress( channel.getVersion(), startOffset );
 
         try ( final PhysicalTransactionCursor<ReadableClosablePositionAwareChannel> physicalTransactionCursor =
                       new PhysicalTransactionCursor<>( recoveredDataChannel, logEntryReader ) )
         {
-            RecoverableTransaction recoverableTransaction = new RecoverableTransaction()
+            TransactionReader reader = new TransactionReader( physicalTransactionCursor, recoveredDataChannel );
+            reader.start();
+            // The reader is ahead of the visitor, so if the visitor stops early the position of the cursor
+            // is past the last transaction that was visited
+            long lastVisitedPosition = -1;
+            try
             {
-                @Override
-                public CommittedTransactionRepresentation representation()
+                DecodedTransaction transaction;
+                while ( (transaction = reader.take()) != END )
                 {
-                    return physicalTransactionCursor.get();
+                    if ( visitor.visit( transaction ) )
+                    {
+                        lastVisitedPosition = transaction.positionAfterTx.getByteOffset();
+                        break;
+                    }
+                    reportProgress( transaction.positionAfterTx, startOffset );
                 }
-
-                @Override
-                public LogPosition positionAfterTx()
-                {
-                    long version = recoveredDataChannel.getVersion();
-                    long byteOffset = physicalTransactionCursor.lastKnownGoodPosition();
-                    return new LogPosition( version, byteOffset );
-                }
-            };
-
-            while ( physicalTransactionCursor.next() && !visitor.visit( recoverableTransaction ) )
+            }
+            finally
             {
+                reader.stopAndJoin();
             }
+            reader.rethrowFailure();
 
             // Now that all ok transactions have been read, if needed truncate the position to cut
             // off any potentially broken transactions
-            long lastKnownGoodPosition = physicalTransactionCursor.lastKnownGoodPosition();
+            long lastKnownGoodPosition = lastVisitedPosition != -1
+                                         ? lastVisitedPosition : physicalTransactionCursor.lastKnownGoodPosition();
             if ( channel.position() > lastKnownGoodPosition )
             {
                 channel.truncate( lastKnownGoodPosition );
             }
+            bytesRecoveredInPreviousLogs += lastKnownGoodPosition - startOffset;
         }
 
         visitor.close();
         return true;
     }
+
+    private void startProgress( long logVersion, long startOffset )
+    {
+        if ( bytesToRecover != -1 || logFiles == null )
+        {
+            return;
+        }
+        startTimeMillis = lastReportTimeMillis = System.currentTimeMillis();
+        bytesToRecover = -startOffset;
+        for ( long version = logVersion; logFiles.versionExists( version ); version++ )
+        {
+            bytesToRecover += fs.getFileSize( logFiles.getLogFileForVersion( version ) );
+        }
+    }
+
+    private void reportProgress( LogPosition position, long startOffset )
+    {
+        long now = System.currentTimeMillis();
+        if ( bytesToRecover <= 0 || now - lastReportTimeMillis < PROGRESS_REPORT_INTERVAL_MILLIS )
+        {
+            return;
+        }
+        lastReportTimeMillis = now;
+        long bytesRecovered = bytesRecoveredInPreviousLogs + position.getByteOffset() - startOffset;
+        long millisRemaining = bytesRecovered == 0 ? -1 :
+                (long) ((now - startTimeMillis) * ((double) (bytesToRecover - bytesRecovered) / bytesRecovered));
+        monitor.recoveryProgress( position, bytesRecovered, bytesToRecover, Math.max( millisRemaining, -1 ) );
+    }
+
+    private static final DecodedTransaction END = new DecodedTransaction( null, null );
+
+    private static class DecodedTransaction implements RecoverableTransaction
+    {
+        private final CommittedTransactionRepresentation representation;
+        private final LogPosition positionAfterTx;
+
+        DecodedTransaction( CommittedTransactionRepresentation representation, LogPosition positionAfterTx )
+        {
+            this.representation = representation;
+            this.positionAfterTx = positionAfterTx;
+        }
+
+        @Override
+        public CommittedTransactionRepresentation representation()
+        {
+            return representation;
+        }
+
+        @Override
+        public LogPosition positionAfterTx()
+        {
+            return positionAfterTx;
+        }
+    }
+
+    /**
+     * Reads and decodes transactions from a log file ahead of the visitor.
+     */
+    private static class TransactionReader extends Thread
+    {
+        private final PhysicalTransactionCursor<ReadableClosablePositionAwareChannel> cursor;
+        private final ReadableLogChannel channel;
+        private final BlockingQueue<DecodedTransaction> transactions =
+                new ArrayBlockingQueue<>( READ_AHEAD_TRANSACTIONS );
+        private volatile boolean stopped;
+        private volatile Throwable failure;
+
+        TransactionReader( PhysicalTransactionCursor<ReadableClosablePositionAwareChannel> cursor,
+                ReadableLogChannel channel )
+        {
+            super( "recovery-log-reader" );
+            this.cursor = cursor;
+            this.channel = channel;
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                while ( !stopped && cursor.next() )
+                {
+                    LogPosition positionAfterTx = new LogPosition( channel.getVersion(), cursor.lastKnownGoodPosition() );
+                    put( new DecodedTransaction( cursor.get(), positionAfterTx ) );
+                }
+            }
+            catch ( Throwable e )
+            {
+                failure = e;
+            }
+            finally
+            {
+                put( END );
+            }
+        }
+
+        private void put( DecodedTransaction transaction )
+        {
+            try
+            {
+                // Don't block forever, since the visitor may have stopped taking transactions
+                boolean added = false;
+                while ( !stopped && !added )
+                {
+                    added = transactions.offer( transaction, 10, TimeUnit.MILLISECONDS );
+                }
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                stopped = true;
+            }
+        }
+
+        DecodedTransaction take() throws InterruptedException
+        {
+            return transactions.take();
+        }
+
+        void stopAndJoin() throws InterruptedException
+        {
+            stopped = true;
+            join();
+        }
+
+        void rethrowFailure() throws Exception
+        {
+            Throwable cause = failure;
+            if ( cause instanceof Exception )
+            {
+                throw (Exception) cause;
+            }
+            if ( cause != null )
+            {
+                throw (Error) cause;
+            }
+        }
+    }
 }
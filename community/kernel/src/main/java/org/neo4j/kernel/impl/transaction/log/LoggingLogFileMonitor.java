@@ -27,9 +27,10 @@ import org.neo4j.kernel.recovery.Recovery;
 import org.neo4j.logging.Log;
 
 import static java.lang.String.format;
+import static org.neo4j.helpers.Format.duration;
 
 public class LoggingLogFileMonitor implements PhysicalLogFile.Monitor, RecoveryVisitor.Monitor, LogRotation.Monitor,
-        Recovery.Monitor
+        Recovery.Monitor, LogFileRecoverer.Monitor
 {
     private int numberOfRecoveredTransactions;
     private long firstTransactionRecovered, lastTransactionRecovered;
@@ -51,6 +52,15 @@ public class LoggingLogFileMonitor implements PhysicalLogFile.Monitor, RecoveryV
     {
     }
 
+    @Override
+    public void recoveryProgress( LogPosition position, long bytesRecovered, long bytesToRecover,
+            long estimatedMillisRemaining )
+    {
+        log.info( format( "Recovery in progress at %s, %d%% of %d MiB recovered, estimated time remaining: %s",
+                position, bytesRecovered * 100 / bytesToRecover, bytesToRecover >> 20,
+                estimatedMillisRemaining < 0 ? "unknown" : duration( estimatedMillisRemaining ) ) );
+    }
+
     @Override
     public void recoveryCompleted()
     {
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.neo4j.io.ByteUnit;
+import org.neo4j.kernel.impl.transaction.TransactionRepresentation;
+import org.neo4j.kernel.impl.transaction.log.entry.LogEntryWriter;
+
+/**
+ * A growable, in-memory {@link FlushableChannel} that a committing thread serializes the start entry and commands of
+ * a transaction into, before it takes the log file monitor in {@link BatchingTransactionAppender}. Under the monitor
+ * the serialized bytes are then copied into the log in bulk, followed by the commit entry.
+ * <p>
+ * Instances are meant to be reused by the same thread. The buffer grows to fit the largest transaction serialized
+ * into it, but is shrunk back on {@link #release()} if it has grown beyond a limit, so that a single huge
+ * transaction doesn't make a thread hold on to a huge buffer forever.
+ */
+final class TransactionLogBuffer implements FlushableChannel
+{
+    private static final int DEFAULT_INITIAL_CAPACITY = (int) ByteUnit.kibiBytes( 8 );
+    private static final int DEFAULT_MAX_RETAINED_CAPACITY = (int) ByteUnit.mebiBytes( 1 );
+    private static final Flushable NO_OP_FLUSHABLE = () -> { };
+
+    private final int initialCapacity;
+    private final int maxRetainedCapacity;
+    private final TransactionLogWriter transactionLogWriter;
+    private final IndexCommandDetector indexCommandDetector = new IndexCommandDetector();
+    private ByteBuffer buffer;
+    private boolean hasLegacyIndexChanges;
+
+    TransactionLogBuffer()
+    {
+        this( DEFAULT_INITIAL_CAPACITY, DEFAULT_MAX_RETAINED_CAPACITY );
+    }
+
+    TransactionLogBuffer( int initialCapacity, int maxRetainedCapacity )
+    {
+        this.initialCapacity = initialCapacity;
+        this.maxRetainedCapacity = maxRetainedCapacity;
+        this.buffer = ByteBuffer.allocate( initialCapacity );
+        this.transactionLogWriter = new TransactionLogWriter( new LogEntryWriter( this ) );
+    }
+
+    /**
+     * Replaces the contents of this buffer with the start entry and commands of the given transaction.
+     */
+    void serialize( TransactionRepresentation transaction ) throws IOException
+    {
+        buffer.clear();
+        transactionLogWriter.appendStartAndCommands( transaction );
+
+        indexCommandDetector.reset();
+        transaction.accept( indexCommandDetector );
+        hasLegacyIndexChanges = indexCommandDetector.hasWrittenAnyLegacyIndexCommand();
+    }
+
+    /**
+     * @return whether or not the last serialized transaction contains any legacy index commands.
+     */
+    boolean hasLegacyIndexChanges()
+    {
+        return hasLegacyIndexChanges;
+    }
+
+    int size()
+    {
+        return buffer.position();
+    }
+
+    int capacity()
+    {
+        return buffer.capacity();
+    }
+
+    /**
+     * Copies the serialized bytes into the given channel.
+     */
+    void writeTo( FlushableChannel channel ) throws IOException
+    {
+        channel.put( buffer.array(), buffer.position() );
+    }
+
+    /**
+     * Clears this buffer, and shrinks it back to its initial capacity if it has grown too large to be kept around.
+     */
+    void release()
+    {
+        if ( buffer.capacity() > maxRetainedCapacity )
+        {
+            buffer = ByteBuffer.allocate( initialCapacity );
+        }
+        buffer.clear();
+    }
+
+    private ByteBuffer bufferWithGuaranteedSpace( int spaceInBytes )
+    {
+        if ( buffer.remaining() < spaceInBytes )
+        {
+            long required = (long) buffer.position() + spaceInBytes;
+            int newCapacity = (int) Math.min( Integer.MAX_VALUE - 8, Math.max( required, buffer.capacity() * 2L ) );
+            if ( newCapacity < required )
+            {
+                throw new IllegalStateException( "Transaction too large to be serialized into a single buffer, " +
+                        required + " bytes required" );
+            }
+            ByteBuffer grown = ByteBuffer.allocate( newCapacity );
+            buffer.flip();
+            grown.put( buffer );
+            buffer = grown;
+        }
+        return buffer;
+    }
+
+    @Override
+    public Flushable prepareForFlush() throws IOException
+    {
+        // Everything written is already in memory, which is where it stays until it's copied with writeTo.
+        return NO_OP_FLUSHABLE;
+    }
+
+    @Override
+    public FlushableChannel put( byte value ) throws IOException
+    {
+        bufferWithGuaranteedSpace( 1 ).put( value );
+        return this;
+    }
+
+    @Override
+    public FlushableChannel putShort( short value ) throws IOException
+    {
+        bufferWithGuaranteedSpace( 2 ).putShort( value );
+        return this;
+    }
+
+    @Override
+    public FlushableChannel putInt( int value ) throws IOException
+    {
+        bufferWithGuaranteedSpace( 4 ).putInt( value );
+        return this;
+    }
+
+    @Override
+    public FlushableChannel putLong( long value ) throws IOException
+    {
+        bufferWithGuaranteedSpace( 8 ).putLong( value );
+        return this;
+    }
+
+    @Override
+    public FlushableChannel putFloat( float value ) throws IOException
+    {
+        bufferWithGuaranteedSpace( 4 ).putFloat( value );
+        return this;
+    }
+
+    @Override
+    public FlushableChannel putDouble( double value ) throws IOException
+    {
+        bufferWithGuaranteedSpace( 8 ).putDouble( value );
+        return this;
+    }
+
+    @Override
+    public FlushableChannel put( byte[] value, int length ) throws IOException
+    {
+        bufferWithGuaranteedSpace( length ).put( value, 0, length );
+        return this;
+    }
+
+    @Override
+    public void close()
+    {
+    }
+}
@@ -34,6 +34,16 @@ public class TransactionLogWriter
     }
 
     public void append( TransactionRepresentation transaction, long transactionId ) throws IOException
+    {
+        appendStartAndCommands( transaction );
+        appendCommit( transactionId, transaction.getTimeCommitted() );
+    }
+
+    /**
+     * Writes everything of the given transaction except the commit entry, which is the only part that depends on
+     * the transaction id. This allows a transaction to be serialized before its transaction id has been assigned.
+     */
+    public void appendStartAndCommands( TransactionRepresentation transaction ) throws IOException
     {
         writer.writeStartEntry( transaction.getMasterId(), transaction.getAuthorId(),
                 transaction.getTimeStarted(), transaction.getLatestCommittedTxWhenStarted(),
@@ -41,9 +51,11 @@ public class TransactionLogWriter
 
         // Write all the commands to the log channel
         writer.serialize( transaction );
+    }
 
-        // Write commit record
-        writer.writeCommitEntry( transactionId, transaction.getTimeCommitted() );
+    public void appendCommit( long transactionId, long timeCommitted ) throws IOException
+    {
+        writer.writeCommitEntry( transactionId, timeCommitted );
     }
 
     public void checkPoint( LogPosition logPosition ) throws IOException
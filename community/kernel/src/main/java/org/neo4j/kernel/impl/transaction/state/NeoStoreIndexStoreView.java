@@ -35,6 +35,7 @@ import org.neo4j.kernel.api.properties.Property;
 import org.neo4j.kernel.impl.api.CountsAccessor;
 import org.neo4j.kernel.impl.api.index.IndexStoreView;
 import org.neo4j.kernel.impl.api.index.NodePropertyUpdates;
+import org.neo4j.kernel.impl.api.index.PartitionedStoreScan;
 import org.neo4j.kernel.impl.api.index.StoreScan;
 import org.neo4j.kernel.impl.locking.Lock;
 import org.neo4j.kernel.impl.locking.LockService;
@@ -47,6 +48,7 @@ import org.neo4j.kernel.impl.store.record.NodeRecord;
 import org.neo4j.kernel.impl.store.record.PropertyBlock;
 import org.neo4j.kernel.impl.store.record.PropertyRecord;
 import org.neo4j.kernel.impl.store.record.Record;
+import org.neo4j.kernel.impl.util.JobScheduler;
 import org.neo4j.register.Register.DoubleLongRegister;
 import org.neo4j.storageengine.api.EntityType;
 import org.neo4j.storageengine.api.schema.PopulationProgress;
@@ -63,13 +65,24 @@ public class NeoStoreIndexStoreView implements IndexStoreView
     private final NodeStore nodeStore;
     private final LockService locks;
     private final CountsTracker counts;
+    private final JobScheduler scheduler;
 
     public NeoStoreIndexStoreView( LockService locks, NeoStores neoStores )
+    {
+        this( locks, neoStores, null );
+    }
+
+    /**
+     * @param scheduler used to read the partitions of {@link #visitNodesInPartitions(int, IntPredicate, IntPredicate,
+     * Visitor)} concurrently, or {@code null} to scan sequentially.
+     */
+    public NeoStoreIndexStoreView( LockService locks, NeoStores neoStores, JobScheduler scheduler )
     {
         this.locks = locks;
         this.propertyStore = neoStores.getPropertyStore();
         this.nodeStore = neoStores.getNodeStore();
         this.counts = neoStores.getCounts();
+        this.scheduler = scheduler;
     }
 
     @Override
@@ -116,6 +129,20 @@ public class NeoStoreIndexStoreView implements IndexStoreView
                 propertyUpdatesVisitor, labelIdFilter, propertyKeyIdFilter );
     }
 
+    @Override
+    public <FAILURE extends Exception> PartitionedStoreScan<FAILURE> visitNodesInPartitions( int partitions,
+            IntPredicate labelIdFilter, IntPredicate propertyKeyIdFilter,
+            Visitor<NodePropertyUpdates,FAILURE> propertyUpdatesVisitor )
+    {
+        if ( scheduler == null )
+        {
+            return IndexStoreView.super.visitNodesInPartitions( partitions, labelIdFilter, propertyKeyIdFilter,
+                    propertyUpdatesVisitor );
+        }
+        return new PartitionedNodeStoreScan<>( nodeStore, locks, propertyStore, scheduler, propertyUpdatesVisitor,
+                labelIdFilter, propertyKeyIdFilter, partitions );
+    }
+
     @Override
     public void nodeAsUpdates( long nodeId, Collection<NodePropertyUpdate> target )
     {
@@ -204,7 +231,7 @@ public class NeoStoreIndexStoreView implements IndexStoreView
         @Override
         public void run() throws FAILURE
         {
-            PrimitiveLongIterator nodeIds = new StoreIdIterator( nodeStore );
+            PrimitiveLongIterator nodeIds = nodeIds();
             continueScanning = true;
             while ( continueScanning && nodeIds.hasNext() )
             {
@@ -220,6 +247,11 @@ public class NeoStoreIndexStoreView implements IndexStoreView
             }
         }
 
+        protected PrimitiveLongIterator nodeIds()
+        {
+            return new StoreIdIterator( nodeStore );
+        }
+
         @Override
         public void stop()
         {
@@ -253,7 +285,16 @@ public class NeoStoreIndexStoreView implements IndexStoreView
                 labelUpdateVisitor, Visitor<NodePropertyUpdates,FAILURE> propertyUpdatesVisitor,
                 IntPredicate labelIdFilter, IntPredicate propertyKeyIdFilter )
         {
-            super( nodeStore, locks, nodeStore.getHighId() );
+            this( nodeStore, locks, propertyStore, labelUpdateVisitor, propertyUpdatesVisitor, labelIdFilter,
+                    propertyKeyIdFilter, nodeStore.getHighId() );
+        }
+
+        StoreViewNodeStoreScan( NodeStore nodeStore, LockService locks, PropertyStore propertyStore,
+                Visitor<NodeLabelUpdate,FAILURE> labelUpdateVisitor,
+                Visitor<NodePropertyUpdates,FAILURE> propertyUpdatesVisitor,
+                IntPredicate labelIdFilter, IntPredicate propertyKeyIdFilter, long totalCount )
+        {
+            super( nodeStore, locks, totalCount );
             this.propertyStore = propertyStore;
             this.labelUpdateVisitor = labelUpdateVisitor;
             this.propertyUpdatesVisitor = propertyUpdatesVisitor;
@@ -0,0 +1,343 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.state;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.IntPredicate;
+
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.helpers.collection.Visitor;
+import org.neo4j.kernel.impl.api.index.NodePropertyUpdates;
+import org.neo4j.kernel.impl.api.index.PartitionedStoreScan;
+import org.neo4j.kernel.impl.locking.LockService;
+import org.neo4j.kernel.impl.store.NodeStore;
+import org.neo4j.kernel.impl.store.PropertyStore;
+import org.neo4j.kernel.impl.transaction.state.NeoStoreIndexStoreView.StoreViewNodeStoreScan;
+import org.neo4j.kernel.impl.util.JobScheduler;
+import org.neo4j.kernel.impl.util.JobScheduler.JobHandle;
+import org.neo4j.storageengine.api.schema.PopulationProgress;
+
+import static org.neo4j.helpers.Exceptions.launderedException;
+import static org.neo4j.kernel.impl.util.JobScheduler.Groups.indexPopulation;
+
+/**
+ * A {@link PartitionedStoreScan} that splits the node store into ranges of node ids, each read by a
+ * {@link StoreViewNodeStoreScan} in an index population job of its own. Partitions only collect the updates they read into batches,
+ * which are then handed to the visitor by the thread running this scan, so the visitor doesn't have to be thread safe.
+ * <p>
+ * The last partition is open ended and follows the high id of the node store, like a single scan would, so that
+ * nodes created during the scan are seen as well.
+ */
+class PartitionedNodeStoreScan<FAILURE extends Exception> implements PartitionedStoreScan<FAILURE>
+{
+    private static final long MIN_PARTITION_SIZE = 100_000;
+    private static final int BATCH_SIZE = 1_000;
+    private static final int MAX_NODES_PER_BATCH = 10_000;
+
+    private final NodeStore nodeStore;
+    private final JobScheduler scheduler;
+    private final Visitor<NodePropertyUpdates,FAILURE> propertyUpdatesVisitor;
+    private final long totalCount;
+    private final List<Partition> partitions;
+    private final BlockingQueue<Batch> batches;
+    private volatile boolean continueScanning;
+
+    PartitionedNodeStoreScan( NodeStore nodeStore, LockService locks, PropertyStore propertyStore,
+            JobScheduler scheduler, Visitor<NodePropertyUpdates,FAILURE> propertyUpdatesVisitor,
+            IntPredicate labelIdFilter, IntPredicate propertyKeyIdFilter, int maxPartitions )
+    {
+        this.nodeStore = nodeStore;
+        this.scheduler = scheduler;
+        this.propertyUpdatesVisitor = propertyUpdatesVisitor;
+        this.totalCount = nodeStore.getHighId();
+
+        long lowId = nodeStore.getNumberOfReservedLowIds();
+        long nodes = Math.max( 0, totalCount - lowId );
+        int partitionCount = (int) Math.max( 1, Math.min( maxPartitions, nodes / MIN_PARTITION_SIZE ) );
+        long partitionSize = nodes / partitionCount;
+        this.partitions = new ArrayList<>( partitionCount );
+        for ( int i = 0; i < partitionCount; i++ )
+        {
+            long fromId = lowId + i * partitionSize;
+            long toId = i == partitionCount - 1 ? Long.MAX_VALUE : fromId + partitionSize;
+            partitions.add( new Partition( locks, propertyStore, labelIdFilter, propertyKeyIdFilter, fromId, toId ) );
+        }
+        this.batches = new ArrayBlockingQueue<>( partitionCount * 4 );
+    }
+
+    @Override
+    public void run() throws FAILURE
+    {
+        continueScanning = true;
+        List<JobHandle> readers = new ArrayList<>( partitions.size() );
+        try
+        {
+            for ( Partition partition : partitions )
+            {
+                readers.add( scheduler.schedule( indexPopulation, partition ) );
+            }
+
+            int runningPartitions = partitions.size();
+            while ( runningPartitions > 0 )
+            {
+                Batch batch = nextBatch();
+                if ( batch.failure != null )
+                {
+                    throw launderedException( batch.failure );
+                }
+                if ( continueScanning )
+                {
+                    for ( NodePropertyUpdates updates : batch.updates )
+                    {
+                        propertyUpdatesVisitor.visit( updates );
+                    }
+                }
+                batch.partition.visitedUpTo = batch.upToNodeId;
+                if ( batch.last )
+                {
+                    runningPartitions--;
+                }
+            }
+        }
+        finally
+        {
+            stop();
+            for ( JobHandle reader : readers )
+            {
+                reader.cancel( true );
+            }
+        }
+    }
+
+    private Batch nextBatch()
+    {
+        try
+        {
+            return batches.take();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( "Interrupted while waiting for the node store scan", e );
+        }
+    }
+
+    @Override
+    public void stop()
+    {
+        continueScanning = false;
+        for ( Partition partition : partitions )
+        {
+            partition.scan.stop();
+        }
+    }
+
+    @Override
+    public PopulationProgress getProgress()
+    {
+        if ( totalCount > 0 )
+        {
+            long completed = 0;
+            for ( Partition partition : partitions )
+            {
+                completed += partition.scan.getProgress().getCompleted();
+            }
+            return new PopulationProgress( completed, totalCount );
+        }
+
+        // nothing to do 100% completed
+        return PopulationProgress.DONE;
+    }
+
+    @Override
+    public boolean hasVisited( long nodeId )
+    {
+        return nodeId <= partitionOf( nodeId ).visitedUpTo;
+    }
+
+    @Override
+    public boolean isInFlight( long nodeId )
+    {
+        Partition partition = partitionOf( nodeId );
+        return nodeId > partition.visitedUpTo && nodeId <= partition.readUpTo;
+    }
+
+    private Partition partitionOf( long nodeId )
+    {
+        for ( int i = partitions.size() - 1; i > 0; i-- )
+        {
+            Partition partition = partitions.get( i );
+            if ( nodeId >= partition.fromId )
+            {
+                return partition;
+            }
+        }
+        return partitions.get( 0 );
+    }
+
+    /**
+     * A range of node ids, read by its own {@link StoreViewNodeStoreScan}. The updates it reads are cut into batches
+     * between nodes, so that a partition never waits for the thread visiting the batches while holding a node lock.
+     */
+    private class Partition implements Runnable, PrimitiveLongIterator
+    {
+        private final long fromId;
+        private final long toId;
+        private final StoreViewNodeStoreScan<RuntimeException> scan;
+
+        // Highest node id this partition has started to read, and the highest one the visitor has been handed
+        private volatile long readUpTo;
+        private volatile long visitedUpTo;
+
+        private List<NodePropertyUpdates> updates = new ArrayList<>();
+        private long batchFromId;
+        private long nextId;
+        private long highId;
+
+        Partition( LockService locks, PropertyStore propertyStore, IntPredicate labelIdFilter,
+                IntPredicate propertyKeyIdFilter, long fromId, long toId )
+        {
+            this.fromId = fromId;
+            this.toId = toId;
+            this.readUpTo = fromId - 1;
+            this.visitedUpTo = fromId - 1;
+            this.batchFromId = fromId;
+            this.nextId = fromId;
+            this.scan = new StoreViewNodeStoreScan<RuntimeException>( nodeStore, locks, propertyStore, null,
+                    this::collect, labelIdFilter, propertyKeyIdFilter, totalCount )
+            {
+                @Override
+                protected PrimitiveLongIterator nodeIds()
+                {
+                    return Partition.this;
+                }
+            };
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                if ( continueScanning )
+                {
+                    scan.run();
+                }
+                handOff( new Batch( this, updates, Long.MAX_VALUE, true ) );
+            }
+            catch ( InterruptedException e )
+            {
+                // The scan is being stopped, nobody is waiting for our batches anymore
+            }
+            catch ( Throwable failure )
+            {
+                try
+                {
+                    handOff( new Batch( this, failure ) );
+                }
+                catch ( InterruptedException e )
+                {
+                    // The scan is being stopped, nobody is waiting for our batches anymore
+                }
+            }
+        }
+
+        private boolean collect( NodePropertyUpdates nodeUpdates )
+        {
+            // The scan reuses its updates container, so copy what it found for this node
+            NodePropertyUpdates copy = new NodePropertyUpdates();
+            copy.initForNodeId( nodeUpdates.getNodeId() );
+            copy.addAll( nodeUpdates.getPropertyUpdates() );
+            updates.add( copy );
+            return false;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            if ( nextId >= highId )
+            {
+                highId = Math.min( toId, nodeStore.getHighId() );
+            }
+            return nextId < highId;
+        }
+
+        @Override
+        public long next()
+        {
+            if ( !hasNext() )
+            {
+                throw new NoSuchElementException( "No more node ids in [" + fromId + ", " + toId + ")" );
+            }
+            if ( updates.size() >= BATCH_SIZE || nextId - batchFromId >= MAX_NODES_PER_BATCH )
+            {
+                try
+                {
+                    handOff( new Batch( this, updates, nextId - 1, false ) );
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                    scan.stop();
+                }
+                updates = new ArrayList<>();
+                batchFromId = nextId;
+            }
+            readUpTo = nextId;
+            return nextId++;
+        }
+
+        private void handOff( Batch batch ) throws InterruptedException
+        {
+            batches.put( batch );
+        }
+    }
+
+    private class Batch
+    {
+        private final Partition partition;
+        private final List<NodePropertyUpdates> updates;
+        private final long upToNodeId;
+        private final boolean last;
+        private final Throwable failure;
+
+        Batch( Partition partition, List<NodePropertyUpdates> updates, long upToNodeId, boolean last )
+        {
+            this.partition = partition;
+            this.updates = updates;
+            this.upToNodeId = upToNodeId;
+            this.last = last;
+            this.failure = null;
+        }
+
+        Batch( Partition partition, Throwable failure )
+        {
+            this.partition = partition;
+            this.updates = null;
+            this.upToNodeId = partition.visitedUpTo;
+            this.last = true;
+            this.failure = failure;
+        }
+    }
+}
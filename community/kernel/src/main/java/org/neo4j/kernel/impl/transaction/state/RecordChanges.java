@@ -19,9 +19,9 @@
  */
 package org.neo4j.kernel.impl.transaction.state;
 
-import java.util.HashMap;
-import java.util.Map;
-
+import org.neo4j.collection.primitive.Primitive;
+import org.neo4j.collection.primitive.PrimitiveLongCollections;
+import org.neo4j.collection.primitive.PrimitiveLongObjectMap;
 import org.neo4j.helpers.collection.Iterables;
 import org.neo4j.kernel.impl.util.statistics.IntCounter;
 import org.neo4j.kernel.impl.util.statistics.LocalIntCounter;
@@ -37,9 +37,9 @@ import org.neo4j.kernel.impl.util.statistics.LocalIntCounter;
  * @param <RECORD>
  * @param <ADDITIONAL>
  */
-public class RecordChanges<KEY,RECORD,ADDITIONAL> implements RecordAccess<KEY,RECORD,ADDITIONAL>
+public class RecordChanges<KEY extends Number,RECORD,ADDITIONAL> implements RecordAccess<KEY,RECORD,ADDITIONAL>
 {
-    private Map<KEY, RecordProxy<KEY,RECORD,ADDITIONAL>> recordChanges = new HashMap<>();
+    private PrimitiveLongObjectMap<RecordProxy<KEY,RECORD,ADDITIONAL>> recordChanges = Primitive.longObjectMap();
     private final Loader<KEY,RECORD,ADDITIONAL> loader;
     private final IntCounter changeCounter;
 
@@ -60,13 +60,13 @@ public class RecordChanges<KEY,RECORD,ADDITIONAL> implements RecordAccess<KEY,RE
     @Override
     public RecordProxy<KEY, RECORD, ADDITIONAL> getIfLoaded( KEY key )
     {
-        return recordChanges.get( key );
+        return recordChanges.get( key.longValue() );
     }
 
     @Override
     public RecordProxy<KEY, RECORD, ADDITIONAL> getOrLoad( KEY key, ADDITIONAL additionalData )
     {
-        RecordProxy<KEY, RECORD, ADDITIONAL> result = recordChanges.get( key );
+        RecordProxy<KEY, RECORD, ADDITIONAL> result = recordChanges.get( key.longValue() );
         if ( result == null )
         {
             RECORD record = loader.load( key, additionalData );
@@ -80,7 +80,7 @@ public class RecordChanges<KEY,RECORD,ADDITIONAL> implements RecordAccess<KEY,RE
     {
         RecordChange<KEY, RECORD, ADDITIONAL> recordChange =
                 new RecordChange<>( recordChanges, changeCounter, key, newRecord, loader, false, additionalData );
-        recordChanges.put( key, recordChange );
+        recordChanges.put( key.longValue(), recordChange );
         recordChange.forChangingData();
     }
 
@@ -100,7 +100,7 @@ public class RecordChanges<KEY,RECORD,ADDITIONAL> implements RecordAccess<KEY,RE
         else
         {
             // Let's not allow the internal maps to grow too big over time.
-            recordChanges = new HashMap<>();
+            recordChanges = Primitive.longObjectMap();
         }
         changeCounter.clear();
     }
@@ -108,7 +108,7 @@ public class RecordChanges<KEY,RECORD,ADDITIONAL> implements RecordAccess<KEY,RE
     @Override
     public RecordProxy<KEY, RECORD, ADDITIONAL> create( KEY key, ADDITIONAL additionalData )
     {
-        if ( recordChanges.containsKey( key ) )
+        if ( recordChanges.containsKey( key.longValue() ) )
         {
             throw new IllegalStateException( key + " already exists" );
         }
@@ -116,19 +116,22 @@ public class RecordChanges<KEY,RECORD,ADDITIONAL> implements RecordAccess<KEY,RE
         RECORD record = loader.newUnused( key, additionalData );
         RecordChange<KEY, RECORD, ADDITIONAL> change =
                 new RecordChange<>( recordChanges, changeCounter, key, record, loader,  true, additionalData);
-        recordChanges.put( key, change );
+        recordChanges.put( key.longValue(), change );
         return change;
     }
 
     @Override
     public Iterable<RecordProxy<KEY,RECORD,ADDITIONAL>> changes()
     {
-        return Iterables.filter( RecordProxy::isChanged, recordChanges.values() );
+        PrimitiveLongObjectMap<RecordProxy<KEY,RECORD,ADDITIONAL>> changes = recordChanges;
+        return Iterables.filter( RecordProxy::isChanged,
+                () -> PrimitiveLongCollections.map( changes::get, changes.iterator() ) );
     }
 
-    public static class RecordChange<KEY,RECORD,ADDITIONAL> implements RecordProxy<KEY, RECORD, ADDITIONAL>
+    public static class RecordChange<KEY extends Number,RECORD,ADDITIONAL>
+            implements RecordProxy<KEY, RECORD, ADDITIONAL>
     {
-        private final Map<KEY, RecordProxy<KEY, RECORD, ADDITIONAL>> allChanges;
+        private final PrimitiveLongObjectMap<RecordProxy<KEY, RECORD, ADDITIONAL>> allChanges;
         private final IntCounter changeCounter;
         private final Loader<KEY,RECORD,ADDITIONAL> loader;
 
@@ -140,9 +143,9 @@ public class RecordChanges<KEY,RECORD,ADDITIONAL> implements RecordAccess<KEY,RE
         private RECORD before;
         private boolean changed;
 
-        public RecordChange(Map<KEY, RecordProxy<KEY, RECORD, ADDITIONAL>> allChanges, IntCounter changeCounter,
-                KEY key, RECORD record, Loader<KEY, RECORD, ADDITIONAL> loader, boolean created,
-                ADDITIONAL additionalData)
+        public RecordChange(PrimitiveLongObjectMap<RecordProxy<KEY, RECORD, ADDITIONAL>> allChanges,
+                IntCounter changeCounter, KEY key, RECORD record, Loader<KEY, RECORD, ADDITIONAL> loader,
+                boolean created, ADDITIONAL additionalData)
         {
             this.allChanges = allChanges;
             this.changeCounter = changeCounter;
@@ -187,7 +190,7 @@ public class RecordChanges<KEY,RECORD,ADDITIONAL> implements RecordAccess<KEY,RE
             ensureHasBeforeRecordImage();
             if ( !this.changed )
             {
-                RecordProxy<KEY, RECORD, ADDITIONAL> previous = this.allChanges.put( key, this );
+                RecordProxy<KEY, RECORD, ADDITIONAL> previous = this.allChanges.put( key.longValue(), this );
 
                 if( previous == null || !previous.isChanged() )
                 {
@@ -100,6 +100,9 @@ public interface JobScheduler extends Lifecycle
         /** Session workers, these perform the work of actually executing client queries.  */
         public static final Group sessionWorker = new Group( "Session", NEW_THREAD );
 
+        /** Session workers shared by all sessions, when Bolt is configured with a worker pool. */
+        public static final Group boltWorkerPool = new Group( "BoltWorkerPool", NEW_THREAD );
+
         /** Background index population */
         public static final Group indexPopulation = new Group( "IndexPopulation", POOLED );
 
@@ -171,6 +174,16 @@ public interface JobScheduler extends Lifecycle
          * Native security.
          */
         public static Group nativeSecurity = new Group( "NativeSecurity", POOLED );
+
+        /**
+         * Profiling and warming up the page cache.
+         */
+        public static final Group pageCacheWarmer = new Group( "PageCacheWarmer", POOLED );
+
+        /**
+         * Re-planning the persisted Cypher plan cache after startup.
+         */
+        public static final Group cypherPlanCacheWarmer = new Group( "CypherPlanCacheWarmer", POOLED );
     }
 
     interface JobHandle
@@ -0,0 +1,328 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.util.diffsets;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.neo4j.collection.primitive.Primitive;
+import org.neo4j.collection.primitive.PrimitiveIntIterator;
+import org.neo4j.collection.primitive.PrimitiveLongCollections;
+import org.neo4j.collection.primitive.PrimitiveLongCollections.PrimitiveLongBaseIterator;
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.collection.primitive.PrimitiveLongSet;
+import org.neo4j.graphdb.Resource;
+import org.neo4j.helpers.collection.Iterators;
+import org.neo4j.kernel.api.exceptions.schema.ConstraintValidationKernelException;
+import org.neo4j.kernel.api.exceptions.schema.CreateConstraintFailureException;
+import org.neo4j.storageengine.api.txstate.DiffSetsVisitor;
+import org.neo4j.storageengine.api.txstate.ReadableDiffSets;
+
+import static java.lang.String.format;
+
+/**
+ * {@link DiffSets} of entity ids, kept in primitive long sets so that a transaction adding or removing many entities
+ * doesn't pay for a boxed id and a hash map entry per entity.
+ * <p>
+ * Iterating over the added or removed elements has the same semantics as iterating over {@link DiffSets}: elements
+ * added during the iteration are not returned, and elements removed during the iteration are not returned once
+ * removed.
+ */
+public class PrimitiveLongDiffSets implements ReadableDiffSets<Long>
+{
+    private PrimitiveLongSet addedElements;
+    private PrimitiveLongSet removedElements;
+
+    public PrimitiveLongDiffSets()
+    {
+        this( null, null );
+    }
+
+    private PrimitiveLongDiffSets( PrimitiveLongSet addedElements, PrimitiveLongSet removedElements )
+    {
+        this.addedElements = addedElements;
+        this.removedElements = removedElements;
+    }
+
+    public boolean add( long element )
+    {
+        boolean wasRemoved = removedElements != null && removedElements.remove( element );
+        // Add to the addedElements only if it was not removed from the removedElements
+        return wasRemoved || added( true ).add( element );
+    }
+
+    public boolean remove( long element )
+    {
+        boolean removedFromAddedElements = addedElements != null && addedElements.remove( element );
+        // Add to the removedElements only if it was not removed from the addedElements.
+        return removedFromAddedElements || removed( true ).add( element );
+    }
+
+    public boolean isAdded( long element )
+    {
+        return addedElements != null && addedElements.contains( element );
+    }
+
+    public boolean isRemoved( long element )
+    {
+        return removedElements != null && removedElements.contains( element );
+    }
+
+    @Override
+    public boolean isAdded( Long element )
+    {
+        return isAdded( element.longValue() );
+    }
+
+    @Override
+    public boolean isRemoved( Long element )
+    {
+        return isRemoved( element.longValue() );
+    }
+
+    @Override
+    public Set<Long> getAdded()
+    {
+        return new BoxedView( addedElements );
+    }
+
+    @Override
+    public Set<Long> getRemoved()
+    {
+        return new BoxedView( removedElements );
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return size( addedElements ) == 0 && size( removedElements ) == 0;
+    }
+
+    @Override
+    public int delta()
+    {
+        return size( addedElements ) - size( removedElements );
+    }
+
+    @Override
+    public Iterator<Long> apply( Iterator<Long> source )
+    {
+        if ( isEmpty() )
+        {
+            return source;
+        }
+        Iterator<Long> result = Iterators.filter( item -> !isRemoved( item ) && !isAdded( item ), source );
+        return size( addedElements ) == 0 ? result : Iterators.concat( result, getAdded().iterator() );
+    }
+
+    @Override
+    public PrimitiveLongIterator augment( PrimitiveLongIterator source )
+    {
+        return isEmpty() ? source : new DiffApplyingIterator( source, true );
+    }
+
+    @Override
+    public PrimitiveIntIterator augment( PrimitiveIntIterator source )
+    {
+        throw new UnsupportedOperationException( "Diff sets of long ids can't be applied to int ids" );
+    }
+
+    @Override
+    public PrimitiveLongIterator augmentWithRemovals( PrimitiveLongIterator source )
+    {
+        return size( removedElements ) == 0 ? source : new DiffApplyingIterator( source, false );
+    }
+
+    @Override
+    public PrimitiveLongDiffSets filterAdded( Predicate<Long> addedFilter )
+    {
+        PrimitiveLongSet filteredAdded = Primitive.longSet();
+        PrimitiveLongIterator added = iterator( addedElements );
+        while ( added.hasNext() )
+        {
+            long element = added.next();
+            if ( addedFilter.test( element ) )
+            {
+                filteredAdded.add( element );
+            }
+        }
+        return new PrimitiveLongDiffSets( filteredAdded, PrimitiveLongCollections.asSet( iterator( removedElements ) ) );
+    }
+
+    @Override
+    public void accept( DiffSetsVisitor<Long> visitor )
+            throws ConstraintValidationKernelException, CreateConstraintFailureException
+    {
+        PrimitiveLongIterator added = iterator( addedElements );
+        while ( added.hasNext() )
+        {
+            visitor.visitAdded( added.next() );
+        }
+        PrimitiveLongIterator removed = iterator( removedElements );
+        while ( removed.hasNext() )
+        {
+            visitor.visitRemoved( removed.next() );
+        }
+    }
+
+    public void clear()
+    {
+        if ( addedElements != null )
+        {
+            addedElements.clear();
+        }
+        if ( removedElements != null )
+        {
+            removedElements.clear();
+        }
+    }
+
+    private PrimitiveLongSet added( boolean create )
+    {
+        if ( addedElements == null && create )
+        {
+            addedElements = Primitive.longSet();
+        }
+        return addedElements;
+    }
+
+    private PrimitiveLongSet removed( boolean create )
+    {
+        if ( removedElements == null && create )
+        {
+            removedElements = Primitive.longSet();
+        }
+        return removedElements;
+    }
+
+    private static int size( PrimitiveLongSet set )
+    {
+        return set == null ? 0 : set.size();
+    }
+
+    /**
+     * Iterates over the elements of the set as of now, skipping elements that are removed from it during the
+     * iteration.
+     */
+    private static PrimitiveLongIterator iterator( PrimitiveLongSet set )
+    {
+        if ( set == null || set.isEmpty() )
+        {
+            return PrimitiveLongCollections.emptyIterator();
+        }
+        long[] elements = PrimitiveLongCollections.asArray( set.iterator() );
+        return new PrimitiveLongBaseIterator()
+        {
+            private int index;
+
+            @Override
+            protected boolean fetchNext()
+            {
+                while ( index < elements.length )
+                {
+                    long element = elements[index++];
+                    if ( set.contains( element ) )
+                    {
+                        return next( element );
+                    }
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public String toString()
+    {
+        return format( "{+%s, -%s}", getAdded(), getRemoved() );
+    }
+
+    /**
+     * Applies the diff sets to a source iterator, or only the removals. If the source is a {@link Resource}, then so
+     * is this iterator.
+     */
+    private class DiffApplyingIterator extends PrimitiveLongBaseIterator implements Resource
+    {
+        private final PrimitiveLongIterator source;
+        private PrimitiveLongIterator added;
+
+        DiffApplyingIterator( PrimitiveLongIterator source, boolean withAdded )
+        {
+            this.source = source;
+            this.added = withAdded ? iterator( addedElements ) : null;
+        }
+
+        @Override
+        protected boolean fetchNext()
+        {
+            while ( source.hasNext() )
+            {
+                long element = source.next();
+                if ( !isRemoved( element ) && (added == null || !isAdded( element )) )
+                {
+                    return next( element );
+                }
+            }
+            return added != null && added.hasNext() && next( added.next() );
+        }
+
+        @Override
+        public void close()
+        {
+            if ( source instanceof Resource )
+            {
+                ((Resource) source).close();
+            }
+        }
+    }
+
+    /**
+     * Read only view of a primitive set as a set of boxed ids.
+     */
+    private static class BoxedView extends AbstractSet<Long>
+    {
+        private final PrimitiveLongSet set;
+
+        BoxedView( PrimitiveLongSet set )
+        {
+            this.set = set;
+        }
+
+        @Override
+        public boolean contains( Object o )
+        {
+            return set != null && o instanceof Long && set.contains( (Long) o );
+        }
+
+        @Override
+        public int size()
+        {
+            return PrimitiveLongDiffSets.size( set );
+        }
+
+        @Override
+        public Iterator<Long> iterator()
+        {
+            return PrimitiveLongCollections.toIterator( PrimitiveLongDiffSets.iterator( set ) );
+        }
+    }
+}
@@ -26,15 +26,24 @@ import org.neo4j.kernel.impl.store.StoreType;
 
 public class StoreFileMetadata
 {
+    public static final long UNKNOWN_HIGH_ID = -1;
+
     private final File file;
     private final Optional<StoreType> storeType;
     private final int recordSize;
+    private final long highId;
 
     public StoreFileMetadata( File file, Optional<StoreType> storeType, int recordSize )
+    {
+        this( file, storeType, recordSize, UNKNOWN_HIGH_ID );
+    }
+
+    public StoreFileMetadata( File file, Optional<StoreType> storeType, int recordSize, long highId )
     {
         this.file = file;
         this.storeType = storeType;
         this.recordSize = recordSize;
+        this.highId = highId;
     }
 
     public File file()
@@ -51,4 +60,14 @@ public class StoreFileMetadata
     {
         return recordSize;
     }
+
+    /**
+     * @return the high id of the record store in this file when the file was listed, or {@link #UNKNOWN_HIGH_ID}
+     * if the file isn't a plain array of records. Records are laid out back to back from the start of the file,
+     * so nothing beyond {@code highId * recordSize} bytes was in use at that point.
+     */
+    public long highId()
+    {
+        return highId;
+    }
 }
@@ -46,6 +46,8 @@ import static org.neo4j.unsafe.impl.batchimport.staging.Step.ORDER_SEND_DOWNSTRE
  */
 public class BatchInsertRelationshipsStage extends Stage
 {
+    private final BatchInsertRelationshipsStep inserter;
+
     public BatchInsertRelationshipsStage( Configuration config, IdMapper idMapper,
             InputIterator<InputRelationship> relationships, BatchingNeoStores store, long nextRelationshipId )
     {
@@ -54,7 +56,12 @@ public class BatchInsertRelationshipsStage extends Stage
         add( new RelationshipPreparationStep( control(), config, idMapper ) );
         add( new PropertyEncoderStep<>( control(), config, store.getPropertyKeyRepository(),
                 store.getPropertyStore() ) );
-        add( new BatchInsertRelationshipsStep( control(), config, store,
+        add( inserter = new BatchInsertRelationshipsStep( control(), config, store,
                 store.getRelationshipTypeRepository(), nextRelationshipId ) );
     }
+
+    public long getNextRelationshipId()
+    {
+        return inserter.getNextRelationshipId();
+    }
 }
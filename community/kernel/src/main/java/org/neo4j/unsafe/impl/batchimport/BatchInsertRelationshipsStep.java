@@ -25,7 +25,6 @@ import org.neo4j.kernel.impl.locking.Locks;
 import org.neo4j.kernel.impl.locking.NoOpClient;
 import org.neo4j.kernel.impl.store.PropertyStore;
 import org.neo4j.kernel.impl.store.RecordStore;
-import org.neo4j.kernel.impl.store.id.IdSequence;
 import org.neo4j.kernel.impl.store.record.PropertyBlock;
 import org.neo4j.kernel.impl.store.record.RelationshipGroupRecord;
 import org.neo4j.kernel.impl.store.record.RelationshipRecord;
@@ -56,7 +55,7 @@ public class BatchInsertRelationshipsStep extends ProcessorStep<Batch<InputRelat
 
     // Reusable instances for less GC
     private final ReusableIteratorCostume<PropertyBlock> blockIterator = new ReusableIteratorCostume<>();
-    private final IdSequence relationshipIdGenerator;
+    private final BatchingIdSequence relationshipIdGenerator;
 
     public BatchInsertRelationshipsStep( StageControl control, Configuration config, BatchingNeoStores store,
             ToIntFunction<Object> typeToId, long nextRelationshipId )
@@ -131,4 +130,9 @@ public class BatchInsertRelationshipsStep extends ProcessorStep<Batch<InputRelat
         recordAccess.close();
         super.done();
     }
+
+    public long getNextRelationshipId()
+    {
+        return relationshipIdGenerator.peek();
+    }
 }
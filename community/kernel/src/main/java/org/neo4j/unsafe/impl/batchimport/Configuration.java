@@ -19,6 +19,9 @@
  */
 package org.neo4j.unsafe.impl.batchimport;
 
+import java.util.Collection;
+import java.util.Collections;
+
 import org.neo4j.kernel.configuration.Config;
 
 import static java.lang.Math.min;
@@ -55,6 +58,20 @@ public interface Configuration extends org.neo4j.unsafe.impl.batchimport.staging
 
     int pageSize();
 
+    /**
+     * @return whether or not to keep the mapping from input ids to node ids in the store directory after
+     * the import, so that the input ids of the imported nodes can be referred to by a later incremental import,
+     * see {@link ParallelBatchImporter#doIncrementalImport(org.neo4j.unsafe.impl.batchimport.input.Input)}.
+     * This only applies to imports where the input ids have to be mapped, i.e. they are not actual node ids.
+     */
+    boolean persistIdMapping();
+
+    /**
+     * @return schema indexes to populate while importing the nodes, so that they are online right after the import.
+     * Not supported for incremental imports.
+     */
+    Collection<IndexDeclaration> indexes();
+
     class Default
             extends org.neo4j.unsafe.impl.batchimport.staging.Configuration.Default
             implements Configuration
@@ -93,6 +110,18 @@ public interface Configuration extends org.neo4j.unsafe.impl.batchimport.staging
         {
             return calculateOptimalPageSize( pageCacheMemory(), 60 );
         }
+
+        @Override
+        public boolean persistIdMapping()
+        {
+            return false;
+        }
+
+        @Override
+        public Collection<IndexDeclaration> indexes()
+        {
+            return Collections.emptyList();
+        }
     }
 
     Configuration DEFAULT = new Default();
@@ -144,6 +173,18 @@ public interface Configuration extends org.neo4j.unsafe.impl.batchimport.staging
         {
             return defaults.pageSize();
         }
+
+        @Override
+        public boolean persistIdMapping()
+        {
+            return defaults.persistIdMapping();
+        }
+
+        @Override
+        public Collection<IndexDeclaration> indexes()
+        {
+            return defaults.indexes();
+        }
     }
 
     public static Configuration withBatchSize( Configuration config, int batchSize )
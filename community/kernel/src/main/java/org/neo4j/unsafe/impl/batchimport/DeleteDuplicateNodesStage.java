@@ -35,10 +35,10 @@ import org.neo4j.unsafe.impl.batchimport.store.BatchingNeoStores;
 public class DeleteDuplicateNodesStage extends Stage
 {
     public DeleteDuplicateNodesStage( Configuration config, PrimitiveLongIterator duplicateNodeIds,
-            BatchingNeoStores neoStore )
+            BatchingNeoStores neoStore, SchemaIndexPopulation indexes )
     {
         super( "DEDUP", config );
         add( new DeleteDuplicateNodesStep( control(), config, duplicateNodeIds,
-                neoStore.getNodeStore(), neoStore.getLabelScanStore() ) );
+                neoStore.getNodeStore(), neoStore.getLabelScanStore(), indexes ) );
     }
 }
@@ -22,6 +22,7 @@ package org.neo4j.unsafe.impl.batchimport;
 import java.io.IOException;
 
 import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.kernel.api.exceptions.index.IndexEntryConflictException;
 import org.neo4j.kernel.api.labelscan.LabelScanStore;
 import org.neo4j.kernel.api.labelscan.LabelScanWriter;
 import org.neo4j.kernel.impl.store.NodeStore;
@@ -38,23 +39,26 @@ public class DeleteDuplicateNodesStep extends LonelyProcessingStep
     private final NodeStore nodeStore;
     private final PrimitiveLongIterator nodeIds;
     private final LabelScanWriter labelScanWriter;
+    private final SchemaIndexPopulation indexes;
 
     public DeleteDuplicateNodesStep( StageControl control, Configuration config, PrimitiveLongIterator nodeIds,
-            NodeStore nodeStore, LabelScanStore labelScanStore )
+            NodeStore nodeStore, LabelScanStore labelScanStore, SchemaIndexPopulation indexes )
     {
         super( control, "DEDUP", config );
         this.nodeStore = nodeStore;
         this.nodeIds = nodeIds;
         this.labelScanWriter = labelScanStore.newWriter();
+        this.indexes = indexes;
     }
 
     @Override
-    protected void process() throws IOException
+    protected void process() throws IOException, IndexEntryConflictException
     {
         NodeRecord record = nodeStore.newRecord();
         while ( nodeIds.hasNext() )
         {
             long duplicateNodeId = nodeIds.next();
+            indexes.remove( duplicateNodeId );
             record.setId( duplicateNodeId );
             nodeStore.updateRecord( record );
             labelScanWriter.write( labelChanges( duplicateNodeId, EMPTY_LONG_ARRAY, EMPTY_LONG_ARRAY ) );
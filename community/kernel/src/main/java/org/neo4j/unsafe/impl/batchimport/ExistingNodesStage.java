@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport;
+
+import org.neo4j.kernel.impl.store.NodeStore;
+import org.neo4j.kernel.impl.store.record.NodeRecord;
+import org.neo4j.unsafe.impl.batchimport.cache.NodeRelationshipCache;
+import org.neo4j.unsafe.impl.batchimport.input.Input;
+import org.neo4j.unsafe.impl.batchimport.staging.ReadRecordsStep;
+import org.neo4j.unsafe.impl.batchimport.staging.Stage;
+
+import static org.neo4j.unsafe.impl.batchimport.RecordIdIterator.forwards;
+
+/**
+ * Reads the nodes which existed before an {@link ParallelBatchImporter#doIncrementalImport(Input) incremental import}
+ * and {@link NodeRelationshipCache#markAsExisting(long, boolean) tells the cache} which of them are dense,
+ * since relationships of the import are added to their existing chains. Runs after {@link CalculateDenseNodesStage}.
+ */
+public class ExistingNodesStage extends Stage
+{
+    public ExistingNodesStage( Configuration config, NodeStore nodeStore, NodeRelationshipCache cache,
+            long firstNewNodeId )
+    {
+        super( "Existing nodes", config );
+        cache.setFirstNewNodeId( firstNewNodeId );
+        add( new ReadRecordsStep<>( control(), config, nodeStore,
+                forwards( nodeStore.getNumberOfReservedLowIds(), firstNewNodeId, config ) ) );
+        add( new RecordProcessorStep<>( control(), "MARK", config, new Processor( cache ), true ) );
+    }
+
+    private static class Processor implements RecordProcessor<NodeRecord>
+    {
+        private final NodeRelationshipCache cache;
+
+        Processor( NodeRelationshipCache cache )
+        {
+            this.cache = cache;
+        }
+
+        @Override
+        public boolean process( NodeRecord node )
+        {
+            cache.markAsExisting( node.getId(), node.isDense() );
+            return false;
+        }
+
+        @Override
+        public void done()
+        {   // Nothing to do here
+        }
+    }
+}
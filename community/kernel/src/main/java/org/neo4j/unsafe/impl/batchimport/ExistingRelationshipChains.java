@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport;
+
+import org.neo4j.graphdb.Direction;
+import org.neo4j.kernel.impl.store.RecordStore;
+import org.neo4j.kernel.impl.store.record.NodeRecord;
+import org.neo4j.kernel.impl.store.record.RelationshipGroupRecord;
+import org.neo4j.kernel.impl.store.record.RelationshipRecord;
+import org.neo4j.unsafe.impl.batchimport.input.Input;
+import org.neo4j.unsafe.impl.batchimport.store.BatchingNeoStores;
+
+import static java.lang.Math.toIntExact;
+
+import static org.neo4j.kernel.impl.store.record.Record.NO_NEXT_RELATIONSHIP;
+import static org.neo4j.kernel.impl.store.record.RecordLoad.NORMAL;
+
+/**
+ * Access to the relationship chains of nodes which existed in the store before an
+ * {@link ParallelBatchImporter#doIncrementalImport(Input) incremental import}. Relationships of the import
+ * are prepended to these chains: {@link RelationshipEncoderStep} points the last new relationship of a chain
+ * to the {@link #firstRelationship(long, int, Direction) existing head}, {@link NodeFirstRelationshipProcessor}
+ * {@link #putGroup(NodeRecord, int, long, long, long) updates the group} of a dense node in place and
+ * {@link LinkExistingChainsStage} finally points the existing heads back to the new relationships.
+ * <p>
+ * Only records of nodes which have relationships in the import are read, together with their groups
+ * and chain heads.
+ */
+public class ExistingRelationshipChains
+{
+    private static final long NULL = NO_NEXT_RELATIONSHIP.intValue();
+
+    private final RecordStore<NodeRecord> nodeStore;
+    private final RecordStore<RelationshipGroupRecord> groupStore;
+    private final RecordStore<RelationshipRecord> relationshipStore;
+    private final long firstNewNodeId;
+
+    public ExistingRelationshipChains( BatchingNeoStores neoStores, long firstNewNodeId )
+    {
+        this.nodeStore = neoStores.getNodeStore();
+        this.groupStore = neoStores.getRelationshipGroupStore();
+        this.relationshipStore = neoStores.getRelationshipStore();
+        this.firstNewNodeId = firstNewNodeId;
+    }
+
+    /**
+     * @param nodeId node id.
+     * @return whether or not the node existed before this import.
+     */
+    public boolean contains( long nodeId )
+    {
+        return nodeId < firstNewNodeId;
+    }
+
+    /**
+     * Safe to call from multiple threads, since all records are read into new instances.
+     *
+     * @param nodeId node which existed before this import.
+     * @param type relationship type, only used if the node is dense.
+     * @param direction direction of the chain, only used if the node is dense.
+     * @return the first relationship of the chain, or {@code -1} if there is no such chain.
+     */
+    public long firstRelationship( long nodeId, int type, Direction direction )
+    {
+        NodeRecord node = nodeStore.getRecord( nodeId, nodeStore.newRecord(), NORMAL );
+        if ( !node.isDense() )
+        {
+            return node.getNextRel();
+        }
+
+        RelationshipGroupRecord group = groupStore.newRecord();
+        for ( long groupId = node.getNextRel(); groupId != NULL; groupId = group.getNext() )
+        {
+            groupStore.getRecord( groupId, group, NORMAL );
+            if ( group.getType() > type )
+            {   // Groups are sorted by type
+                break;
+            }
+            if ( group.getType() == type )
+            {
+                switch ( direction )
+                {
+                case OUTGOING: return group.getFirstOut();
+                case INCOMING: return group.getFirstIn();
+                default: return group.getFirstLoop();
+                }
+            }
+        }
+        return NULL;
+    }
+
+    /**
+     * @param nodeId node which existed before this import.
+     * @param firstRelationshipId first relationship in one of the chains of that node.
+     * @return the degree of the chain, which the first relationship in a chain stores instead of a previous pointer.
+     */
+    public int degree( long nodeId, long firstRelationshipId )
+    {
+        RelationshipRecord relationship = relationshipStore.getRecord( firstRelationshipId,
+                relationshipStore.newRecord(), NORMAL );
+        return toIntExact( relationship.getFirstNode() == nodeId
+                ? relationship.getFirstPrevRel()
+                : relationship.getSecondPrevRel() );
+    }
+
+    /**
+     * Sets new chain heads in the group of the given type, for a dense node which existed before this import.
+     * The group is created and inserted in type order if the node didn't have one for this type.
+     * Must be called by a single thread.
+     *
+     * @param node dense node which existed before this import.
+     * @param type relationship type.
+     * @param out new head of the outgoing chain, or {@code -1} to keep the existing one.
+     * @param in new head of the incoming chain, or {@code -1} to keep the existing one.
+     * @param loop new head of the loop chain, or {@code -1} to keep the existing one.
+     * @return the first group of the node after the change.
+     */
+    public long putGroup( NodeRecord node, int type, long out, long in, long loop )
+    {
+        RelationshipGroupRecord previous = null;
+        RelationshipGroupRecord group = null;
+        long groupId = node.getNextRel();
+        while ( groupId != NULL )
+        {
+            RelationshipGroupRecord candidate = groupStore.getRecord( groupId, groupStore.newRecord(), NORMAL );
+            if ( candidate.getType() >= type )
+            {
+                group = candidate.getType() == type ? candidate : null;
+                break;
+            }
+            previous = candidate;
+            groupId = candidate.getNext();
+        }
+
+        if ( group == null )
+        {   // groupId is now the group of the next higher type, if any
+            group = new RelationshipGroupRecord( groupStore.nextId() );
+            group.initialize( true, type, NULL, NULL, NULL, node.getId(), groupId );
+            if ( previous != null )
+            {
+                previous.setNext( group.getId() );
+                groupStore.updateRecord( previous );
+            }
+        }
+        if ( out != NULL )
+        {
+            group.setFirstOut( out );
+        }
+        if ( in != NULL )
+        {
+            group.setFirstIn( in );
+        }
+        if ( loop != NULL )
+        {
+            group.setFirstLoop( loop );
+        }
+        groupStore.prepareForCommit( group );
+        groupStore.updateRecord( group );
+        return previous == null ? group.getId() : node.getNextRel();
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport;
+
+import java.util.Objects;
+
+/**
+ * A schema index which the {@link ParallelBatchImporter} populates as part of the import, given by label name
+ * and property key name. The importer creates any label or property key token which doesn't exist already.
+ */
+public class IndexDeclaration
+{
+    private final String label;
+    private final String propertyKey;
+
+    public IndexDeclaration( String label, String propertyKey )
+    {
+        this.label = Objects.requireNonNull( label );
+        this.propertyKey = Objects.requireNonNull( propertyKey );
+    }
+
+    public String label()
+    {
+        return label;
+    }
+
+    public String propertyKey()
+    {
+        return propertyKey;
+    }
+
+    @Override
+    public boolean equals( Object o )
+    {
+        if ( this == o )
+        {
+            return true;
+        }
+        if ( o == null || getClass() != o.getClass() )
+        {
+            return false;
+        }
+        IndexDeclaration that = (IndexDeclaration) o;
+        return label.equals( that.label ) && propertyKey.equals( that.propertyKey );
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * label.hashCode() + propertyKey.hashCode();
+    }
+
+    @Override
+    public String toString()
+    {
+        return ":" + label + "(" + propertyKey + ")";
+    }
+}
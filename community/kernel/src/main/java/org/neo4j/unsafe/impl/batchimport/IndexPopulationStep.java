@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport;
+
+import org.neo4j.kernel.impl.store.PropertyStore;
+import org.neo4j.kernel.impl.store.record.NodeRecord;
+import org.neo4j.kernel.impl.store.record.PropertyBlock;
+import org.neo4j.kernel.impl.store.record.PropertyRecord;
+import org.neo4j.unsafe.impl.batchimport.input.InputNode;
+import org.neo4j.unsafe.impl.batchimport.staging.BatchSender;
+import org.neo4j.unsafe.impl.batchimport.staging.Configuration;
+import org.neo4j.unsafe.impl.batchimport.staging.ProcessorStep;
+import org.neo4j.unsafe.impl.batchimport.staging.StageControl;
+import org.neo4j.unsafe.impl.batchimport.store.BatchingTokenRepository.BatchingPropertyKeyTokenRepository;
+
+/**
+ * Feeds the labels and property values of the nodes in the {@link Batch batches} passing by into a
+ * {@link SchemaIndexPopulation}.
+ */
+public class IndexPopulationStep extends ProcessorStep<Batch<InputNode,NodeRecord>>
+{
+    private final SchemaIndexPopulation indexes;
+    private final BatchingPropertyKeyTokenRepository propertyKeys;
+    private final PropertyStore propertyStore;
+
+    public IndexPopulationStep( StageControl control, Configuration config, SchemaIndexPopulation indexes,
+            BatchingPropertyKeyTokenRepository propertyKeys, PropertyStore propertyStore )
+    {
+        super( control, "INDEX", config, 1 );
+        this.indexes = indexes;
+        this.propertyKeys = propertyKeys;
+        this.propertyStore = propertyStore;
+    }
+
+    @Override
+    protected void process( Batch<InputNode,NodeRecord> batch, BatchSender sender ) throws Throwable
+    {
+        int length = batch.input.length;
+        for ( int i = 0; i < length; i++ )
+        {
+            long[] labels = batch.labels[i];
+            NodeRecord node = batch.records[i];
+            if ( labels == null || labels.length == 0 || !node.inUse() )
+            {
+                continue;
+            }
+
+            InputNode input = batch.input[i];
+            if ( input.hasFirstPropertyId() )
+            {
+                // The properties are already in the store
+                for ( PropertyRecord record : propertyStore.getPropertyRecordChain( input.firstPropertyId() ) )
+                {
+                    for ( PropertyBlock block : record )
+                    {
+                        if ( indexes.indexes( block.getKeyIndexId() ) )
+                        {
+                            indexes.add( node.getId(), labels, block.getKeyIndexId(),
+                                    block.getType().getValue( block, propertyStore ) );
+                        }
+                    }
+                }
+            }
+            else
+            {
+                Object[] properties = input.properties();
+                for ( int p = 0; p < properties.length; p += 2 )
+                {
+                    int propertyKeyId = propertyKeys.getOrCreateId( properties[p] );
+                    if ( indexes.indexes( propertyKeyId ) )
+                    {
+                        indexes.add( node.getId(), labels, propertyKeyId, properties[p + 1] );
+                    }
+                }
+            }
+        }
+        indexes.flush();
+        sender.send( batch );
+    }
+}
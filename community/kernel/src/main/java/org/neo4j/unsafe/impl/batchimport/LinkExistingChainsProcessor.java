@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport;
+
+import org.neo4j.kernel.impl.store.RecordStore;
+import org.neo4j.kernel.impl.store.record.RelationshipRecord;
+
+import static org.neo4j.kernel.impl.store.record.Record.NO_NEXT_RELATIONSHIP;
+import static org.neo4j.kernel.impl.store.record.RecordLoad.NORMAL;
+
+/**
+ * Points chain heads of nodes which existed before the import back to the last new relationship in each chain,
+ * i.e. the new relationship which has the existing head as its "next" relationship. The existing head is
+ * no longer first in its chain and so its degree is replaced by the "prev" pointer. The degree of the whole chain
+ * has already been set in the new first relationship by {@link RelationshipLinkbackStage}.
+ */
+public class LinkExistingChainsProcessor implements RecordProcessor<RelationshipRecord>
+{
+    private final RecordStore<RelationshipRecord> store;
+    private final ExistingRelationshipChains existingChains;
+    private final long firstRelationshipId;
+    private final RelationshipRecord head;
+
+    public LinkExistingChainsProcessor( RecordStore<RelationshipRecord> store,
+            ExistingRelationshipChains existingChains, long firstRelationshipId )
+    {
+        this.store = store;
+        this.existingChains = existingChains;
+        this.firstRelationshipId = firstRelationshipId;
+        this.head = store.newRecord();
+    }
+
+    @Override
+    public boolean process( RelationshipRecord record )
+    {
+        link( record.getId(), record.getFirstNode(), record.getFirstNextRel() );
+        if ( record.getFirstNode() != record.getSecondNode() )
+        {
+            link( record.getId(), record.getSecondNode(), record.getSecondNextRel() );
+        }
+        return false;
+    }
+
+    private void link( long relationshipId, long nodeId, long nextRel )
+    {
+        if ( nextRel == NO_NEXT_RELATIONSHIP.intValue() || nextRel >= firstRelationshipId ||
+                !existingChains.contains( nodeId ) )
+        {
+            return;
+        }
+
+        store.getRecord( nextRel, head, NORMAL );
+        if ( head.getFirstNode() == nodeId )
+        {
+            head.setFirstPrevRel( relationshipId );
+            head.setFirstInFirstChain( false );
+        }
+        if ( head.getSecondNode() == nodeId )
+        {
+            head.setSecondPrevRel( relationshipId );
+            head.setFirstInSecondChain( false );
+        }
+        store.updateRecord( head );
+    }
+
+    @Override
+    public void done()
+    {   // Nothing to do here
+    }
+}
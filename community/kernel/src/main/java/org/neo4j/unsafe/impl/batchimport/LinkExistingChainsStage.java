@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport;
+
+import org.neo4j.kernel.impl.store.RelationshipStore;
+import org.neo4j.kernel.impl.store.record.RelationshipRecord;
+import org.neo4j.unsafe.impl.batchimport.input.Input;
+import org.neo4j.unsafe.impl.batchimport.staging.ReadRecordsStep;
+import org.neo4j.unsafe.impl.batchimport.staging.Stage;
+
+import static org.neo4j.unsafe.impl.batchimport.RecordIdIterator.forwards;
+
+/**
+ * Last part of prepending relationships to the chains of nodes which existed before an
+ * {@link ParallelBatchImporter#doIncrementalImport(Input) incremental import}. Relationships of the import have
+ * their "next" pointers set to the existing chain heads already, this stage sets the "prev" pointers of those
+ * heads, which are no longer first in their chains. Steps:
+ *
+ * <ol>
+ * <li>{@link ReadRecordsStep} reads the relationships of the import from store.</li>
+ * <li>{@link RecordProcessorStep} / {@link LinkExistingChainsProcessor} updates the existing head which
+ * a relationship points to, if any. This is random access, but only once per chain that got new relationships.
+ * </li>
+ * </ol>
+ */
+public class LinkExistingChainsStage extends Stage
+{
+    public LinkExistingChainsStage( Configuration config, RelationshipStore store,
+            ExistingRelationshipChains existingChains, long firstRelationshipId, long highRelationshipId )
+    {
+        super( "Relationship --> Existing relationship", config );
+        add( new ReadRecordsStep<>( control(), config, store,
+                forwards( firstRelationshipId, highRelationshipId, config ) ) );
+        add( new RecordProcessorStep<>( control(), "LINK", config,
+                new LinkExistingChainsProcessor( store, existingChains, firstRelationshipId ), true ) );
+    }
+}
@@ -36,10 +36,21 @@ public class NodeCountsStage extends Stage
 {
     public NodeCountsStage( Configuration config, NodeLabelsCache cache, NodeStore nodeStore,
             int highLabelId, CountsAccessor.Updater countsUpdater, StatsProvider... additionalStatsProviders )
+    {
+        this( config, cache, nodeStore, highLabelId, countsUpdater, 0, additionalStatsProviders );
+    }
+
+    /**
+     * @param firstNodeId nodes with lower ids than this are already accounted for in the counts store and are
+     * only read to populate the {@link NodeLabelsCache}.
+     */
+    public NodeCountsStage( Configuration config, NodeLabelsCache cache, NodeStore nodeStore,
+            int highLabelId, CountsAccessor.Updater countsUpdater, long firstNodeId,
+            StatsProvider... additionalStatsProviders )
     {
         super( "Node counts", config );
         add( new ReadRecordsStep<>( control(), config, nodeStore, allIn( nodeStore, config ) ) );
         add( new RecordProcessorStep<>( control(), "COUNT", config, new NodeCountsProcessor(
-                nodeStore, cache, highLabelId, countsUpdater ), true, additionalStatsProviders ) );
+                nodeStore, cache, highLabelId, countsUpdater, firstNodeId ), true, additionalStatsProviders ) );
     }
 }
@@ -26,7 +26,8 @@ import org.neo4j.unsafe.impl.batchimport.cache.ByteArray;
 import org.neo4j.unsafe.impl.batchimport.staging.ReadRecordsStep;
 import org.neo4j.unsafe.impl.batchimport.staging.Stage;
 
-import static org.neo4j.unsafe.impl.batchimport.RecordIdIterator.allIn;
+import static java.lang.Math.max;
+import static org.neo4j.unsafe.impl.batchimport.RecordIdIterator.forwards;
 
 /**
  * Updates dense nodes with which will be the {@link NodeRecord#setNextRel(long) first group} to point to,
@@ -36,9 +37,21 @@ public class NodeFirstGroupStage extends Stage
 {
     public NodeFirstGroupStage( Configuration config, RecordStore<RelationshipGroupRecord> groupStore,
             RecordStore<NodeRecord> nodeStore, ByteArray cache )
+    {
+        this( config, groupStore, nodeStore, cache, 0 );
+    }
+
+    /**
+     * @param firstGroupId id of the first group written by the {@link RelationshipGroupDefragmenter}. Groups below
+     * it belong to nodes which already had their groups before the import, and are left alone.
+     */
+    public NodeFirstGroupStage( Configuration config, RecordStore<RelationshipGroupRecord> groupStore,
+            RecordStore<NodeRecord> nodeStore, ByteArray cache, long firstGroupId )
     {
         super( "Node --> Group", config );
-        add( new ReadRecordsStep<>( control(), config, groupStore, allIn( groupStore, config ) ) );
+        add( new ReadRecordsStep<>( control(), config, groupStore,
+                forwards( max( firstGroupId, groupStore.getNumberOfReservedLowIds() ), groupStore.getHighId(),
+                        config ) ) );
         add( new NodeSetFirstGroupStep( control(), config, nodeStore, cache ) );
         add( new UpdateRecordsStep<>( control(), config, nodeStore ) );
     }
@@ -32,25 +32,37 @@ import org.neo4j.unsafe.impl.batchimport.cache.NodeRelationshipCache.GroupVisito
  *
  * This step also creates {@link RelationshipGroupRecord group records} for the dense nodes as it encounters
  * dense nodes, where it gets all relationship group information from {@link NodeRelationshipCache}.
+ * Dense nodes which existed before the import already have their groups, which are
+ * {@link ExistingRelationshipChains#putGroup(NodeRecord, int, long, long, long) updated in place} instead.
  */
 public class NodeFirstRelationshipProcessor implements RecordProcessor<NodeRecord>, GroupVisitor
 {
     private final RecordStore<RelationshipGroupRecord> relGroupStore;
     private final NodeRelationshipCache cache;
     private final int relationshipType;
+    private final ExistingRelationshipChains existingChains;
+    private NodeRecord currentNode;
 
     public NodeFirstRelationshipProcessor( RecordStore<RelationshipGroupRecord> relGroupStore,
             NodeRelationshipCache cache, int relationshipType )
+    {
+        this( relGroupStore, cache, relationshipType, null );
+    }
+
+    public NodeFirstRelationshipProcessor( RecordStore<RelationshipGroupRecord> relGroupStore,
+            NodeRelationshipCache cache, int relationshipType, ExistingRelationshipChains existingChains )
     {
         this.relGroupStore = relGroupStore;
         this.cache = cache;
         this.relationshipType = relationshipType;
+        this.existingChains = existingChains;
     }
 
     @Override
     public boolean process( NodeRecord node )
     {
         long nodeId = node.getId();
+        currentNode = node;
         long firstRel = cache.getFirstRel( nodeId, this );
         if ( firstRel != -1 )
         {
@@ -66,6 +78,11 @@ public class NodeFirstRelationshipProcessor implements RecordProcessor<NodeRecor
     @Override
     public long visit( long nodeId, long next, long out, long in, long loop )
     {
+        if ( existingChains != null && existingChains.contains( nodeId ) )
+        {
+            return existingChains.putGroup( currentNode, relationshipType, out, in, loop );
+        }
+
         // Here we'll use the already generated id (below) from the previous visit, if that so happened
         long id = relGroupStore.nextId();
         RelationshipGroupRecord groupRecord = new RelationshipGroupRecord( id );
@@ -43,11 +43,23 @@ public class NodeFirstRelationshipStage extends Stage
     public NodeFirstRelationshipStage( String topic, Configuration config, NodeStore nodeStore,
             RecordStore<RelationshipGroupRecord> relationshipGroupStore, NodeRelationshipCache cache,
             boolean denseNodes, int relationshipType )
+    {
+        this( topic, config, nodeStore, relationshipGroupStore, cache, denseNodes, relationshipType, null );
+    }
+
+    /**
+     * @param existingChains chains of nodes which existed before this import, where groups of dense nodes are
+     * updated in place instead of being created in {@code relationshipGroupStore}. {@code null} if there
+     * are no such nodes.
+     */
+    public NodeFirstRelationshipStage( String topic, Configuration config, NodeStore nodeStore,
+            RecordStore<RelationshipGroupRecord> relationshipGroupStore, NodeRelationshipCache cache,
+            boolean denseNodes, int relationshipType, ExistingRelationshipChains existingChains )
     {
         super( "Node --> Relationship" + topic, config );
         add( new ReadNodeRecordsByCacheStep( control(), config, nodeStore, cache, denseNodes ) );
-        add( new RecordProcessorStep<>( control(), "LINK", config,
-                new NodeFirstRelationshipProcessor( relationshipGroupStore, cache, relationshipType ), false ) );
+        add( new RecordProcessorStep<>( control(), "LINK", config, new NodeFirstRelationshipProcessor(
+                relationshipGroupStore, cache, relationshipType, existingChains ), false ) );
         add( new UpdateRecordsStep<>( control(), config, nodeStore ) );
     }
 }
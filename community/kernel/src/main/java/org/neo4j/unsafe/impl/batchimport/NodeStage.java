@@ -54,6 +54,8 @@ import static org.neo4j.unsafe.impl.batchimport.staging.Step.ORDER_SEND_DOWNSTRE
  * It also assigns real store node ids from {@link InputNode#id() input ids} and stores them in {@link IdMapper}
  * for use in other upcoming stages.</li>
  * <li>{@link LabelScanStorePopulationStep} populates the {@link LabelScanStore} with the node labels.</li>
+ * <li>{@link IndexPopulationStep} populates the {@link SchemaIndexPopulation schema indexes} declared for the import,
+ * if there are any.</li>
  * <li>{@link EntityStoreUpdaterStep} forms {@link PropertyRecord property records} out of previously encoded
  * {@link PropertyBlock} and writes those as well as the {@link NodeRecord} to store.</li>
  * </ol>
@@ -66,7 +68,7 @@ public class NodeStage extends Stage
     public NodeStage( Configuration config, IoMonitor writeMonitor,
             InputIterable<InputNode> nodes, IdMapper idMapper, IdGenerator idGenerator,
             BatchingNeoStores neoStore, InputCache inputCache, LabelScanStore labelScanStore,
-            EntityStoreUpdaterStep.Monitor storeUpdateMonitor,
+            SchemaIndexPopulation indexes, EntityStoreUpdaterStep.Monitor storeUpdateMonitor,
             NodeRelationshipCache cache,
             StatsProvider memoryUsage ) throws IOException
     {
@@ -84,6 +86,11 @@ public class NodeStage extends Stage
         add( new NodeEncoderStep( control(), config, idMapper, idGenerator,
                 neoStore.getLabelRepository(), nodeStore, memoryUsage ) );
         add( new LabelScanStorePopulationStep( control(), config, labelScanStore ) );
+        if ( indexes.hasIndexes() )
+        {
+            add( new IndexPopulationStep( control(), config, indexes, neoStore.getPropertyKeyRepository(),
+                    propertyStore ) );
+        }
         add( new EntityStoreUpdaterStep<>( control(), config, nodeStore, propertyStore, writeMonitor,
                 storeUpdateMonitor ) );
     }
@@ -30,8 +30,10 @@ import org.neo4j.io.fs.DefaultFileSystemAbstraction;
 import org.neo4j.io.fs.FileSystemAbstraction;
 import org.neo4j.kernel.configuration.Config;
 import org.neo4j.kernel.impl.api.CountsAccessor;
+import org.neo4j.kernel.impl.api.CountsRecordState;
 import org.neo4j.kernel.impl.logging.LogService;
 import org.neo4j.kernel.impl.store.RelationshipStore;
+import org.neo4j.kernel.impl.store.counts.CountsTracker;
 import org.neo4j.kernel.impl.store.format.RecordFormatSelector;
 import org.neo4j.kernel.impl.store.format.RecordFormats;
 import org.neo4j.logging.Log;
@@ -41,7 +43,10 @@ import org.neo4j.unsafe.impl.batchimport.cache.MemoryStatsVisitor;
 import org.neo4j.unsafe.impl.batchimport.cache.NodeLabelsCache;
 import org.neo4j.unsafe.impl.batchimport.cache.NodeRelationshipCache;
 import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdGenerator;
+import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdGenerators;
 import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdMapper;
+import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdMappingSegment;
+import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IncrementalIdMapper;
 import org.neo4j.unsafe.impl.batchimport.input.Collector;
 import org.neo4j.unsafe.impl.batchimport.input.Input;
 import org.neo4j.unsafe.impl.batchimport.input.InputCache;
@@ -125,7 +130,36 @@ public class ParallelBatchImporter implements BatchImporter
     @Override
     public void doImport( Input input ) throws IOException
     {
-        log.info( "Import starting" );
+        doImport( input, false );
+    }
+
+    /**
+     * Imports the input into a store which may already contain data, appending nodes and relationships to it.
+     * The store must have been cleanly shut down and must not have any indexes or constraints.
+     * <p>
+     * Nodes of this import get ids after the existing nodes. All relationships are imported like in
+     * {@link #doImport(Input)}, where relationships connecting to existing nodes are prepended to the existing
+     * relationship chains of those nodes, see {@link ExistingRelationshipChains}. Existing nodes stay dense or
+     * sparse, whatever they are in the store. Input ids of relationships are resolved against
+     * the nodes of this import first and then against the id mappings which previous imports have persisted,
+     * see {@link Configuration#persistIdMapping()}. Counts and the label scan store are updated with the new data.
+     *
+     * @param input {@link Input} containing the data to append to the store.
+     * @throws IOException on I/O error, or if the store cannot be imported into.
+     */
+    public void doIncrementalImport( Input input ) throws IOException
+    {
+        doImport( input, true );
+    }
+
+    private void doImport( Input input, boolean incremental ) throws IOException
+    {
+        if ( incremental && !config.indexes().isEmpty() )
+        {
+            throw new IllegalArgumentException( "An incremental import can not populate indexes, " +
+                    "since they would also have to cover the existing nodes" );
+        }
+        log.info( incremental ? "Incremental import starting" : "Import starting" );
 
         // Things that we need to close later. The reason they're not in the try-with-resource statement
         // is that we need to close, and set to null, at specific points preferably. So use good ol' finally block.
@@ -135,23 +169,41 @@ public class ParallelBatchImporter implements BatchImporter
         boolean hasBadEntries = false;
         File badFile = new File( storeDir, Configuration.BAD_FILE_NAME );
         CountingStoreUpdateMonitor storeUpdateMonitor = new CountingStoreUpdateMonitor();
-        RecordFormats recordFormats = RecordFormatSelector.selectForConfig( dbConfig, NullLogProvider.getInstance() );
+        RecordFormats recordFormats = incremental
+                ? BatchingNeoStores.selectRecordFormats( fileSystem, storeDir, dbConfig,
+                        NullLogProvider.getInstance() )
+                : RecordFormatSelector.selectForConfig( dbConfig, NullLogProvider.getInstance() );
         try ( BatchingNeoStores neoStore = new BatchingNeoStores( fileSystem, storeDir, recordFormats, config, logService,
-                additionalInitialIds, dbConfig );
-              CountsAccessor.Updater countsUpdater = neoStore.getCountsStore().reset(
-                    neoStore.getLastCommittedTransactionId() );
+                additionalInitialIds, dbConfig, incremental );
+              SchemaIndexPopulation indexes = new SchemaIndexPopulation( neoStore, config.indexes(), dbConfig );
               InputCache inputCache = new InputCache( fileSystem, storeDir, recordFormats, config ) )
         {
             Collector badCollector = input.badCollector();
             // Some temporary caches and indexes in the import
             IoMonitor writeMonitor = new IoMonitor( neoStore.getIoTracer() );
+            // Everything below these ids existed before this import
+            long firstNodeId = neoStore.getNodeStore().getHighId();
+            long firstRelationshipId = neoStore.getRelationshipStore().getHighId();
             IdMapper idMapper = input.idMapper();
             IdGenerator idGenerator = input.idGenerator();
+            if ( incremental )
+            {
+                if ( idMapper.needsPreparation() )
+                {
+                    idMapper = new IncrementalIdMapper( idMapper, firstNodeId,
+                            IdMappingSegment.loadAll( fileSystem, storeDir, AUTO ) );
+                }
+                idGenerator = idGenerator.dependsOnInput()
+                        ? IdGenerators.notBelow( idGenerator, firstNodeId )
+                        : IdGenerators.startingFrom( firstNodeId );
+            }
+            boolean persistIdMapping = config.persistIdMapping() && idMapper.needsPreparation() &&
+                    !idGenerator.dependsOnInput();
             nodeRelationshipCache = new NodeRelationshipCache( AUTO, config.denseNodeThreshold() );
             StatsProvider memoryUsageStats = new MemoryUsageStatsProvider( nodeRelationshipCache, idMapper );
             InputIterable<InputNode> nodes = input.nodes();
             InputIterable<InputRelationship> relationships = input.relationships();
-            InputIterable<InputNode> cachedNodes = cachedForSure( nodes, inputCache.nodes( MAIN, true ) );
+            InputIterable<InputNode> cachedNodes = cachedForSure( nodes, inputCache.nodes( MAIN, !persistIdMapping ) );
             InputIterable<InputRelationship> cachedRelationships =
                     cachedForSure( relationships, inputCache.relationships( MAIN, true ) );
 
@@ -159,7 +211,7 @@ public class ParallelBatchImporter implements BatchImporter
 
             // Stage 1 -- nodes, properties, labels
             NodeStage nodeStage = new NodeStage( config, writeMonitor,
-                    nodes, idMapper, idGenerator, neoStore, inputCache, neoStore.getLabelScanStore(),
+                    nodes, idMapper, idGenerator, neoStore, inputCache, neoStore.getLabelScanStore(), indexes,
                     storeUpdateMonitor, nodeRelationshipCache, memoryUsageStats );
             executeStages( nodeStage );
             if ( idMapper.needsPreparation() )
@@ -169,7 +221,13 @@ public class ParallelBatchImporter implements BatchImporter
                 PrimitiveLongIterator duplicateNodeIds = badCollector.leftOverDuplicateNodesIds();
                 if ( duplicateNodeIds.hasNext() )
                 {
-                    executeStages( new DeleteDuplicateNodesStage( config, duplicateNodeIds, neoStore ) );
+                    executeStages( new DeleteDuplicateNodesStage( config, duplicateNodeIds, neoStore, indexes ) );
+                }
+                if ( persistIdMapping )
+                {
+                    long mappedNodes =
+                            IdMappingSegment.write( fileSystem, storeDir, cachedNodes, idMapper, firstNodeId );
+                    log.info( "Persisted id mapping of " + mappedNodes + " nodes" );
                 }
             }
 
@@ -179,10 +237,31 @@ public class ParallelBatchImporter implements BatchImporter
                     relationships, nodeRelationshipCache, idMapper, badCollector, inputCache, neoStore );
             executeStages( calculateDenseNodesStage );
 
-            importRelationships( nodeRelationshipCache, storeUpdateMonitor, neoStore, writeMonitor,
-                    idMapper, cachedRelationships, inputCache,
+            // Relationships connecting to nodes which existed before this import are prepended to their chains
+            ExistingRelationshipChains existingChains = null;
+            Object[] minorityRelationshipTypes = calculateDenseNodesStage.getRelationshipTypes( 100 );
+            if ( incremental && firstNodeId > 0 )
+            {
+                existingChains = new ExistingRelationshipChains( neoStore, firstNodeId );
+                executeStages( new ExistingNodesStage( withBatchSize( config,
+                        neoStore.getNodeStore().getRecordsPerPage() ), neoStore.getNodeStore(),
+                        nodeRelationshipCache, firstNodeId ) );
+                // Inserting relationships one by one doesn't know about existing chains
+                minorityRelationshipTypes = new Object[0];
+            }
+
+            long nextRelationshipId = importRelationships( nodeRelationshipCache, storeUpdateMonitor, neoStore,
+                    writeMonitor, idMapper, cachedRelationships, inputCache,
                     calculateDenseNodesStage.getRelationshipTypes( Long.MAX_VALUE ),
-                    calculateDenseNodesStage.getRelationshipTypes( 100 ) );
+                    minorityRelationshipTypes, firstRelationshipId, existingChains );
+
+            if ( existingChains != null )
+            {
+                // Stage 5c -- point the previous heads of existing chains to the new relationships
+                executeStages( new LinkExistingChainsStage( withBatchSize( config,
+                        relationshipStore.getRecordsPerPage() ), relationshipStore, existingChains,
+                        firstRelationshipId, nextRelationshipId ) );
+            }
 
             // Release this potentially really big piece of cached data
             long peakMemoryUsage = totalMemoryUsageOf( idMapper, nodeRelationshipCache );
@@ -198,12 +277,39 @@ public class ParallelBatchImporter implements BatchImporter
             // Stage 6 -- count nodes per label and labels per node
             nodeLabelsCache = new NodeLabelsCache( AUTO, neoStore.getLabelRepository().getHighId() );
             memoryUsageStats = new MemoryUsageStatsProvider( nodeLabelsCache );
-            executeStages( new NodeCountsStage( config, nodeLabelsCache, neoStore.getNodeStore(),
-                    neoStore.getLabelRepository().getHighId(), countsUpdater, memoryUsageStats ) );
-            // Stage 7 -- count label-[type]->label
-            executeStages( new RelationshipCountsStage( config, nodeLabelsCache, relationshipStore,
-                    neoStore.getLabelRepository().getHighId(),
-                    neoStore.getRelationshipTypeRepository().getHighId(), countsUpdater, AUTO ) );
+            CountsTracker counts = neoStore.getCountsStore();
+            // The counts store updater may only be used by the thread which opened it, so when importing into an
+            // existing store the counts are gathered here and added to the counts store afterwards
+            CountsRecordState importedCounts = incremental ? new CountsRecordState() : null;
+            try ( CountsAccessor.Updater countsUpdater = incremental
+                    ? importedCounts
+                    : counts.reset( neoStore.getLastCommittedTransactionId() ) )
+            {
+                executeStages( new NodeCountsStage( config, nodeLabelsCache, neoStore.getNodeStore(),
+                        neoStore.getLabelRepository().getHighId(), countsUpdater, firstNodeId, memoryUsageStats ) );
+                // Stage 7 -- count label-[type]->label
+                executeStages( new RelationshipCountsStage( config, nodeLabelsCache, relationshipStore,
+                        neoStore.getLabelRepository().getHighId(),
+                        neoStore.getRelationshipTypeRepository().getHighId(), countsUpdater, AUTO,
+                        firstRelationshipId ) );
+            }
+            if ( incremental )
+            {
+                try ( CountsAccessor.Updater updater = counts.updateCounts() )
+                {
+                    importedCounts.accept( new CountsAccessor.Initializer( updater, null ) );
+                }
+            }
+
+            // Stage 8 -- bring the indexes online and store their samples, which a counts reset would have cleared
+            if ( indexes.hasIndexes() )
+            {
+                indexes.complete( counts );
+            }
+            if ( incremental || indexes.hasIndexes() )
+            {
+                counts.rotate( neoStore.getLastCommittedTransactionId() );
+            }
 
             // We're done, do some final logging about it
             long totalTimeMillis = currentTimeMillis() - startTime;
@@ -252,10 +358,11 @@ public class ParallelBatchImporter implements BatchImporter
         return total.getHeapUsage() + total.getOffHeapUsage();
     }
 
-    private void importRelationships( NodeRelationshipCache nodeRelationshipCache,
+    private long importRelationships( NodeRelationshipCache nodeRelationshipCache,
             CountingStoreUpdateMonitor storeUpdateMonitor, BatchingNeoStores neoStore,
             IoMonitor writeMonitor, IdMapper idMapper, InputIterable<InputRelationship> relationships,
-            InputCache inputCache, Object[] allRelationshipTypes, Object[] minorityRelationshipTypes )
+            InputCache inputCache, Object[] allRelationshipTypes, Object[] minorityRelationshipTypes,
+            long firstRelationshipId, ExistingRelationshipChains existingChains )
     {
         // Imports the relationships from the Input. This isn't a straight forward as importing nodes,
         // since keeping track of and updating heads of relationship chains in scenarios where most nodes
@@ -277,7 +384,7 @@ public class ParallelBatchImporter implements BatchImporter
                 neoStore.getRelationshipTypeRepository(),
                 inputCache );
 
-        long nextRelationshipId = 0;
+        long nextRelationshipId = firstRelationshipId;
         Configuration relationshipConfig = withBatchSize( config,
                 neoStore.getRelationshipStore().getRecordsPerPage() );
         Configuration nodeConfig = withBatchSize( config, neoStore.getNodeStore().getRecordsPerPage() );
@@ -293,13 +400,13 @@ public class ParallelBatchImporter implements BatchImporter
                     (i+1) + "/" + allRelationshipTypes.length + ")";
             final RelationshipStage relationshipStage = new RelationshipStage( topic, config,
                     writeMonitor, perType, idMapper, neoStore, nodeRelationshipCache,
-                    storeUpdateMonitor, nextRelationshipId );
+                    storeUpdateMonitor, nextRelationshipId, existingChains );
             executeStages( relationshipStage );
 
             // Stage 4a -- set node nextRel fields for dense nodes
             executeStages( new NodeFirstRelationshipStage( topic, nodeConfig, neoStore.getNodeStore(),
                     neoStore.getTemporaryRelationshipGroupStore(), nodeRelationshipCache, true/*dense*/,
-                    currentTypeId ) );
+                    currentTypeId, existingChains ) );
 
             // Stage 5a -- link relationship chains together for dense nodes
             nodeRelationshipCache.setForwardScan( false );
@@ -321,14 +428,17 @@ public class ParallelBatchImporter implements BatchImporter
         // Stage 5b -- link relationship chains together for sparse nodes
         nodeRelationshipCache.setForwardScan( false );
         executeStages( new RelationshipLinkbackStage( topic, relationshipConfig, neoStore.getRelationshipStore(),
-                nodeRelationshipCache, 0, nextRelationshipId, false/*sparse*/ ) );
+                nodeRelationshipCache, firstRelationshipId, nextRelationshipId, false/*sparse*/ ) );
 
         if ( minorityRelationshipTypes.length > 0 )
         {
             // Do some batch insertion style random-access insertions for super small minority types
-            executeStages( new BatchInsertRelationshipsStage( config, idMapper,
-                    perTypeIterator.getMinorityRelationships(), neoStore, nextRelationshipId ) );
+            BatchInsertRelationshipsStage minorityStage = new BatchInsertRelationshipsStage( config, idMapper,
+                    perTypeIterator.getMinorityRelationships(), neoStore, nextRelationshipId );
+            executeStages( minorityStage );
+            nextRelationshipId = minorityStage.getNextRelationshipId();
         }
+        return nextRelationshipId;
     }
 
     private void executeStages( Stage... stages )
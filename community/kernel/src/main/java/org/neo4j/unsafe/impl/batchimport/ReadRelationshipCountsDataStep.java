@@ -38,9 +38,16 @@ public class ReadRelationshipCountsDataStep extends ReadRecordsStep<Relationship
     private final long highestId;
 
     public ReadRelationshipCountsDataStep( StageControl control, Configuration config, RelationshipStore store )
+    {
+        this( control, config, store, 0 );
+    }
+
+    public ReadRelationshipCountsDataStep( StageControl control, Configuration config, RelationshipStore store,
+            long firstRelationshipId )
     {
         super( control, config, store, allIn( store, config ) );
         this.highestId = highId - 1;
+        this.id = firstRelationshipId - 1;
     }
 
     @Override
@@ -34,9 +34,20 @@ public class RelationshipCountsStage extends Stage
     public RelationshipCountsStage( Configuration config, NodeLabelsCache cache, RelationshipStore relationshipStore,
             int highLabelId, int highRelationshipTypeId, CountsAccessor.Updater countsUpdater,
             NumberArrayFactory cacheFactory )
+    {
+        this( config, cache, relationshipStore, highLabelId, highRelationshipTypeId, countsUpdater, cacheFactory, 0 );
+    }
+
+    /**
+     * @param firstRelationshipId relationships with lower ids than this are already accounted for in the
+     * counts store and are not counted again.
+     */
+    public RelationshipCountsStage( Configuration config, NodeLabelsCache cache, RelationshipStore relationshipStore,
+            int highLabelId, int highRelationshipTypeId, CountsAccessor.Updater countsUpdater,
+            NumberArrayFactory cacheFactory, long firstRelationshipId )
     {
         super( "Relationship counts", config );
-        add( new ReadRelationshipCountsDataStep( control(), config, relationshipStore ) );
+        add( new ReadRelationshipCountsDataStep( control(), config, relationshipStore, firstRelationshipId ) );
         add( new ProcessRelationshipCountsDataStep( control(), cache, config,
                 highLabelId, highRelationshipTypeId, countsUpdater, cacheFactory ) );
     }
@@ -19,6 +19,7 @@
  */
 package org.neo4j.unsafe.impl.batchimport;
 
+import org.neo4j.graphdb.Direction;
 import org.neo4j.kernel.impl.store.record.RelationshipRecord;
 import org.neo4j.unsafe.impl.batchimport.cache.NodeRelationshipCache;
 import org.neo4j.unsafe.impl.batchimport.input.InputRelationship;
@@ -28,21 +29,37 @@ import org.neo4j.unsafe.impl.batchimport.staging.StageControl;
 import static org.neo4j.graphdb.Direction.BOTH;
 import static org.neo4j.graphdb.Direction.INCOMING;
 import static org.neo4j.graphdb.Direction.OUTGOING;
+import static org.neo4j.kernel.impl.store.record.Record.NO_NEXT_RELATIONSHIP;
 
 /**
  * Creates batches of relationship records, with the "next" relationship
  * pointers set to the next relationships (previously created) in their respective chains. The previous
  * relationship ids are kept in {@link NodeRelationshipCache node cache}, which is a point of scalability issues,
  * although mitigated using multi-pass techniques.
+ *
+ * The last new relationship in a chain of a node which existed before the import gets the
+ * {@link ExistingRelationshipChains#firstRelationship(long, int, Direction) existing head} as its "next"
+ * relationship and the degree of the existing chain is added to the cached count.
  */
 public class RelationshipEncoderStep extends ForkedProcessorStep<Batch<InputRelationship,RelationshipRecord>>
 {
     private final NodeRelationshipCache cache;
+    private final ExistingRelationshipChains existingChains;
 
     public RelationshipEncoderStep( StageControl control, Configuration config, NodeRelationshipCache cache )
+    {
+        this( control, config, cache, null );
+    }
+
+    /**
+     * @param existingChains chains of nodes which existed before this import, or {@code null} if there are none.
+     */
+    public RelationshipEncoderStep( StageControl control, Configuration config, NodeRelationshipCache cache,
+            ExistingRelationshipChains existingChains )
     {
         super( control, "RELATIONSHIP", config, 0 );
         this.cache = cache;
+        this.existingChains = existingChains;
     }
 
     @Override
@@ -64,8 +81,9 @@ public class RelationshipEncoderStep extends ForkedProcessorStep<Batch<InputRela
             boolean loop = startNode == endNode;
             if ( startNode % processors == id )
             {
-                long firstNextRel = cache.getAndPutRelationship(
-                        startNode, loop ? BOTH : OUTGOING, relationship.getId(), true );
+                Direction direction = loop ? BOTH : OUTGOING;
+                long firstNextRel = nextRel( relationship, startNode, direction,
+                        cache.getAndPutRelationship( startNode, direction, relationship.getId(), true ) );
                 relationship.setFirstNextRel( firstNextRel );
                 if ( loop )
                 {
@@ -75,9 +93,27 @@ public class RelationshipEncoderStep extends ForkedProcessorStep<Batch<InputRela
 
             if ( !loop && endNode % processors == id )
             {
-                relationship.setSecondNextRel( cache.getAndPutRelationship(
-                        endNode, INCOMING, relationship.getId(), true ) );
+                relationship.setSecondNextRel( nextRel( relationship, endNode, INCOMING,
+                        cache.getAndPutRelationship( endNode, INCOMING, relationship.getId(), true ) ) );
             }
         }
     }
+
+    private long nextRel( RelationshipRecord relationship, long nodeId, Direction direction, long cachedNextRel )
+    {
+        if ( cachedNextRel != NO_NEXT_RELATIONSHIP.intValue() || existingChains == null ||
+                !existingChains.contains( nodeId ) )
+        {
+            return cachedNextRel;
+        }
+
+        // This is the first relationship of this import in this chain, i.e. the last one when traversing it.
+        // Continue into the chain which the node already had before this import
+        long existingHead = existingChains.firstRelationship( nodeId, relationship.getType(), direction );
+        if ( existingHead != NO_NEXT_RELATIONSHIP.intValue() )
+        {
+            cache.addCount( nodeId, direction, existingChains.degree( nodeId, existingHead ) );
+        }
+        return existingHead;
+    }
 }
@@ -63,6 +63,8 @@ public class RelationshipGroupDefragmenter
                 RecordStore<RelationshipGroupRecord> fromStore = neoStore.getTemporaryRelationshipGroupStore();
                 // and write into the main relationship group store
                 RecordStore<RelationshipGroupRecord> toStore = neoStore.getRelationshipGroupStore();
+                // which may already contain groups of nodes that existed before this import
+                long firstGroupId = toStore.getHighId();
 
                 // Count all nodes, how many groups each node has each
                 Configuration groupConfig =
@@ -88,7 +90,8 @@ public class RelationshipGroupDefragmenter
                 ByteArray groupCountCache = groupCache.getGroupCountCache();
                 groupCountCache.clear();
                 Configuration nodeConfig = withBatchSize( config, neoStore.getNodeStore().getRecordsPerPage() );
-                executeStage( new NodeFirstGroupStage( nodeConfig, toStore, neoStore.getNodeStore(), groupCountCache ) );
+                executeStage( new NodeFirstGroupStage( nodeConfig, toStore, neoStore.getNodeStore(), groupCountCache,
+                        firstGroupId ) );
             }
             catch ( Throwable t )
             {
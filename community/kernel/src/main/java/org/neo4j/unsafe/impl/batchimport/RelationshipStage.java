@@ -77,6 +77,19 @@ public class RelationshipStage extends Stage
             InputIterator<InputRelationship> relationships, IdMapper idMapper, BatchingNeoStores neoStore,
             NodeRelationshipCache cache, EntityStoreUpdaterStep.Monitor storeUpdateMonitor,
             long firstRelationshipId )
+    {
+        this( topic, config, writeMonitor, relationships, idMapper, neoStore, cache, storeUpdateMonitor,
+                firstRelationshipId, null );
+    }
+
+    /**
+     * @param existingChains chains of nodes which existed before this import, which relationships connecting
+     * to such nodes are prepended to. {@code null} if there are no such nodes.
+     */
+    public RelationshipStage( String topic, Configuration config, IoMonitor writeMonitor,
+            InputIterator<InputRelationship> relationships, IdMapper idMapper, BatchingNeoStores neoStore,
+            NodeRelationshipCache cache, EntityStoreUpdaterStep.Monitor storeUpdateMonitor,
+            long firstRelationshipId, ExistingRelationshipChains existingChains )
     {
         super( "Relationships" + topic, config, ORDER_SEND_DOWNSTREAM );
         add( new InputIteratorBatcherStep<>( control(), config, relationships, InputRelationship.class ) );
@@ -87,7 +100,7 @@ public class RelationshipStage extends Stage
         add( new RelationshipPreparationStep( control(), config, idMapper ) );
         add( new RelationshipRecordPreparationStep( control(), config, neoStore.getRelationshipTypeRepository() ) );
         add( new PropertyEncoderStep<>( control(), config, neoStore.getPropertyKeyRepository(), propertyStore ) );
-        add( new RelationshipEncoderStep( control(), config, cache ) );
+        add( new RelationshipEncoderStep( control(), config, cache, existingChains ) );
         add( new EntityStoreUpdaterStep<>( control(), config, relationshipStore, propertyStore, writeMonitor,
                 storeUpdateMonitor ) );
     }
@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import org.neo4j.kernel.api.exceptions.index.IndexEntryConflictException;
+import org.neo4j.kernel.api.index.IndexConfiguration;
+import org.neo4j.kernel.api.index.IndexDescriptor;
+import org.neo4j.kernel.api.index.IndexPopulator;
+import org.neo4j.kernel.api.index.IndexUpdater;
+import org.neo4j.kernel.api.index.NodePropertyUpdate;
+import org.neo4j.kernel.api.index.SchemaIndexProvider;
+import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.impl.api.CountsAccessor;
+import org.neo4j.kernel.impl.api.index.sampling.IndexSamplingConfig;
+import org.neo4j.kernel.impl.locking.LockService;
+import org.neo4j.kernel.impl.store.SchemaStore;
+import org.neo4j.kernel.impl.store.counts.CountsTracker;
+import org.neo4j.kernel.impl.store.record.DynamicRecord;
+import org.neo4j.kernel.impl.store.record.IndexRule;
+import org.neo4j.kernel.impl.transaction.state.NeoStoreIndexStoreView;
+import org.neo4j.storageengine.api.schema.IndexSample;
+import org.neo4j.unsafe.impl.batchimport.store.BatchingNeoStores;
+
+/**
+ * Populates the {@link IndexDeclaration declared} schema indexes of an import from the nodes as they are being
+ * imported, instead of having the database scan the whole store to populate them after the import.
+ * <p>
+ * The index rules are only written to the schema store when the population is {@link #complete(CountsTracker)
+ * completed}, at which point the indexes are marked as online and their samples are written to the counts store.
+ * An import which fails before that leaves no index rules behind.
+ */
+public class SchemaIndexPopulation implements AutoCloseable
+{
+    private final BatchingNeoStores neoStore;
+    private final IndexRule[] rules;
+    private final IndexPopulator[] populators;
+    private final List<List<NodePropertyUpdate>> pendingUpdates = new ArrayList<>();
+    private final NeoStoreIndexStoreView storeView;
+    private boolean completed;
+
+    public SchemaIndexPopulation( BatchingNeoStores neoStore, Collection<IndexDeclaration> indexes, Config dbConfig )
+            throws IOException
+    {
+        this.neoStore = neoStore;
+        List<IndexDeclaration> distinctIndexes = new ArrayList<>( new LinkedHashSet<>( indexes ) );
+        this.rules = new IndexRule[distinctIndexes.size()];
+        this.populators = new IndexPopulator[distinctIndexes.size()];
+        this.storeView = new NeoStoreIndexStoreView( LockService.NO_LOCK_SERVICE, neoStore.getNeoStores() );
+        if ( distinctIndexes.isEmpty() )
+        {
+            return;
+        }
+
+        SchemaIndexProvider provider = neoStore.getSchemaIndexProvider();
+        SchemaStore schemaStore = neoStore.getNeoStores().getSchemaStore();
+        IndexSamplingConfig samplingConfig = new IndexSamplingConfig( dbConfig );
+        for ( int i = 0; i < rules.length; i++ )
+        {
+            IndexDeclaration index = distinctIndexes.get( i );
+            int labelId = neoStore.getLabelRepository().getOrCreateId( index.label() );
+            int propertyKeyId = neoStore.getPropertyKeyRepository().getOrCreateId( index.propertyKey() );
+            rules[i] = IndexRule.indexRule( schemaStore.nextId(), labelId, propertyKeyId,
+                    provider.getProviderDescriptor() );
+            populators[i] = provider.getPopulator( rules[i].getId(), new IndexDescriptor( labelId, propertyKeyId ),
+                    IndexConfiguration.NON_UNIQUE, samplingConfig );
+            populators[i].create();
+            pendingUpdates.add( new ArrayList<>() );
+        }
+    }
+
+    /**
+     * @return whether or not there are any indexes to populate.
+     */
+    public boolean hasIndexes()
+    {
+        return rules.length > 0;
+    }
+
+    /**
+     * @param propertyKeyId property key id to check.
+     * @return whether or not any index is on the given property key.
+     */
+    public boolean indexes( int propertyKeyId )
+    {
+        for ( IndexRule rule : rules )
+        {
+            if ( rule.getPropertyKey() == propertyKeyId )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Queues a property value of an imported node for the indexes on its labels and the property key.
+     * Queued values are added to the indexes on {@link #flush()}.
+     * Must only be called by one thread, the same thread every time.
+     *
+     * @param nodeId id of the imported node.
+     * @param labels label ids of the imported node.
+     * @param propertyKeyId property key id of the property.
+     * @param value property value.
+     */
+    public void add( long nodeId, long[] labels, int propertyKeyId, Object value )
+    {
+        for ( int i = 0; i < rules.length; i++ )
+        {
+            if ( rules[i].getPropertyKey() == propertyKeyId && contains( labels, rules[i].getLabel() ) )
+            {
+                NodePropertyUpdate update = NodePropertyUpdate.add( nodeId, propertyKeyId, value, labels );
+                pendingUpdates.get( i ).add( update );
+                populators[i].includeSample( update );
+            }
+        }
+    }
+
+    /**
+     * Adds all queued values to the indexes. Must only be called by the thread calling
+     * {@link #add(long, long[], int, Object)}.
+     */
+    public void flush() throws IOException, IndexEntryConflictException
+    {
+        for ( int i = 0; i < rules.length; i++ )
+        {
+            List<NodePropertyUpdate> updates = pendingUpdates.get( i );
+            if ( !updates.isEmpty() )
+            {
+                populators[i].add( updates );
+                updates.clear();
+            }
+        }
+    }
+
+    /**
+     * Removes a node which was imported and then found to be a duplicate from the indexes, by reading
+     * its labels and properties from the store. Must be called before the node record is deleted.
+     *
+     * @param nodeId id of the node to remove.
+     */
+    public void remove( long nodeId ) throws IOException, IndexEntryConflictException
+    {
+        if ( !hasIndexes() )
+        {
+            return;
+        }
+
+        List<NodePropertyUpdate> properties = new ArrayList<>();
+        storeView.nodeAsUpdates( nodeId, properties );
+        for ( NodePropertyUpdate property : properties )
+        {
+            for ( int i = 0; i < rules.length; i++ )
+            {
+                if ( rules[i].getPropertyKey() == property.getPropertyKeyId() &&
+                        property.forLabel( rules[i].getLabel() ) )
+                {
+                    try ( IndexUpdater updater = populators[i].newPopulatingUpdater( storeView ) )
+                    {
+                        updater.process( NodePropertyUpdate.remove( nodeId, property.getPropertyKeyId(),
+                                property.getValueAfter(), labelsOf( property ) ) );
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks all indexes as online, writes their index rules to the schema store and their samples to the
+     * given counts store. The counts store needs to be rotated for the samples to become durable.
+     *
+     * @param counts counts store to write the index samples to.
+     */
+    public void complete( CountsTracker counts ) throws IOException, IndexEntryConflictException
+    {
+        flush();
+        SchemaStore schemaStore = neoStore.getNeoStores().getSchemaStore();
+        try ( CountsAccessor.IndexStatsUpdater stats = counts.updateIndexCounts() )
+        {
+            for ( int i = 0; i < rules.length; i++ )
+            {
+                IndexRule rule = rules[i];
+                IndexSample sample = populators[i].sampleResult();
+                populators[i].close( true );
+                populators[i] = null;
+                for ( DynamicRecord record : schemaStore.allocateFrom( rule ) )
+                {
+                    schemaStore.updateRecord( record );
+                }
+                stats.replaceIndexSample( rule.getLabel(), rule.getPropertyKey(),
+                        sample.uniqueValues(), sample.sampleSize() );
+                stats.replaceIndexUpdateAndSize( rule.getLabel(), rule.getPropertyKey(), 0L, sample.indexSize() );
+            }
+        }
+        completed = true;
+    }
+
+    /**
+     * Closes the populators of an import which didn't {@link #complete(CountsTracker) complete}.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if ( !completed )
+        {
+            for ( IndexPopulator populator : populators )
+            {
+                if ( populator != null )
+                {
+                    populator.close( false );
+                }
+            }
+            completed = true;
+        }
+    }
+
+    private static boolean contains( long[] labels, int labelId )
+    {
+        for ( long label : labels )
+        {
+            if ( label == labelId )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long[] labelsOf( NodePropertyUpdate update )
+    {
+        long[] labels = new long[update.getNumberOfLabelsAfter()];
+        for ( int i = 0; i < labels.length; i++ )
+        {
+            labels[i] = update.getLabelAfter( i );
+        }
+        return labels;
+    }
+}
@@ -80,6 +80,9 @@ public class NodeRelationshipCache implements MemoryStatsVisitor.Visitable
     private volatile boolean forward = true;
     private final int chunkSize;
     private final NumberArrayFactory arrayFactory;
+    // Nodes which existed in the store before this import and are sparse there, one bit per node
+    private LongArray existingSparseNodes;
+    private long firstNewNodeId;
 
     public NodeRelationshipCache( NumberArrayFactory arrayFactory, int denseNodeThreshold )
     {
@@ -165,6 +168,65 @@ public class NodeRelationshipCache implements MemoryStatsVisitor.Visitable
         return count;
     }
 
+    private static void addCount( ByteArray array, long index, int offset, int delta )
+    {
+        int bits = array.getInt( index, offset );
+        int count = getCount( array, index, offset ) + delta;
+        assertValidCount( index, count );
+        int changeBits = bits == 0xFFFFFFFF ? 0 : bits & NODE_CHANGED_MASKS;
+        array.setInt( index, offset, changeBits | count );
+    }
+
+    /**
+     * Makes this cache aware of nodes which existed in the store before this import, i.e. nodes with lower ids
+     * than {@code firstNewNodeId}. Relationships of this import are prepended to the existing chains of such nodes,
+     * so they must stay dense or sparse as they are in the store, see {@link #markAsExisting(long, boolean)}.
+     *
+     * @param firstNewNodeId id of the first node created by this import.
+     */
+    public void setFirstNewNodeId( long firstNewNodeId )
+    {
+        this.firstNewNodeId = firstNewNodeId;
+        this.existingSparseNodes = arrayFactory.newLongArray( (firstNewNodeId >>> 6) + 1, 0 );
+    }
+
+    /**
+     * Decides whether or not a node which existed before this import is dense, instead of letting its count
+     * decide that. Only has an effect on nodes that have relationships in this import. Must be called by a
+     * single thread, after all counts have been {@link #incrementCount(long) incremented}.
+     *
+     * @param nodeId node which existed before this import.
+     * @param dense whether or not this node is dense in the store.
+     */
+    public void markAsExisting( long nodeId, boolean dense )
+    {
+        ByteArray array = this.array.at( nodeId );
+        int count = getCount( array, nodeId, SPARSE_COUNT_OFFSET );
+        if ( count == 0 )
+        {
+            return;
+        }
+
+        if ( dense )
+        {
+            if ( count < denseNodeThreshold )
+            {
+                addCount( array, nodeId, SPARSE_COUNT_OFFSET, denseNodeThreshold - count );
+            }
+        }
+        else
+        {
+            long index = nodeId >>> 6;
+            existingSparseNodes.set( index, existingSparseNodes.get( index ) | (1L << (nodeId & 63)) );
+        }
+    }
+
+    private boolean isExistingSparse( long nodeId )
+    {
+        return existingSparseNodes != null && nodeId < firstNewNodeId &&
+                (existingSparseNodes.get( nodeId >>> 6 ) & (1L << (nodeId & 63))) != 0;
+    }
+
     /**
      * @param nodeId node to check whether dense or not.
      * @return whether or not the given {@code nodeId} is dense. A node is sparse if it has less relationships,
@@ -181,6 +243,10 @@ public class NodeRelationshipCache implements MemoryStatsVisitor.Visitable
         {   // We haven't initialized the rel group cache yet
             return false;
         }
+        if ( isExistingSparse( nodeId ) )
+        {   // Sparse in the store, regardless of how many relationships it has
+            return false;
+        }
 
         return getCount( array, nodeId, SPARSE_COUNT_OFFSET ) >= denseNodeThreshold;
     }
@@ -381,6 +447,30 @@ public class NodeRelationshipCache implements MemoryStatsVisitor.Visitable
         return getCount( array, nodeId, SPARSE_COUNT_OFFSET );
     }
 
+    /**
+     * Adds to the count (degree) of a relationship chain, the same count as {@link #getCount(long, Direction)}
+     * returns. Used for nodes which existed before this import, where the relationships of this import are
+     * prepended to a chain which already has a degree in the store.
+     *
+     * @param nodeId node to add count for.
+     * @param direction {@link Direction} to add count for, if the node is dense.
+     * @param count count to add.
+     */
+    public void addCount( long nodeId, Direction direction, int count )
+    {
+        ByteArray array = this.array.at( nodeId );
+        if ( isDense( array, nodeId ) )
+        {
+            long id = getRelationshipId( array, nodeId );
+            assert id != EMPTY : "No relationship group for dense node " + nodeId;
+            relGroupCache.addCount( id, direction, count );
+        }
+        else
+        {
+            addCount( array, nodeId, SPARSE_COUNT_OFFSET, count );
+        }
+    }
+
     public interface GroupVisitor
     {
         /**
@@ -446,6 +536,12 @@ public class NodeRelationshipCache implements MemoryStatsVisitor.Visitable
             return count;
         }
 
+        void addCount( long relGroupIndex, Direction direction, int count )
+        {
+            long index = rebase( relGroupIndex );
+            NodeRelationshipCache.addCount( this.array.at( index ), index, countOffset( direction ), count );
+        }
+
         /**
          * Compensate for test value of index (to avoid allocating all your RAM)
          */
@@ -541,6 +637,10 @@ public class NodeRelationshipCache implements MemoryStatsVisitor.Visitable
     {
         array.close();
         relGroupCache.close();
+        if ( existingSparseNodes != null )
+        {
+            existingSparseNodes.close();
+        }
     }
 
     @Override
@@ -548,6 +648,7 @@ public class NodeRelationshipCache implements MemoryStatsVisitor.Visitable
     {
         nullSafeMemoryStatsVisitor( array, visitor );
         relGroupCache.acceptMemoryStatsVisitor( visitor );
+        nullSafeMemoryStatsVisitor( existingSparseNodes, visitor );
     }
 
     static void nullSafeMemoryStatsVisitor( MemoryStatsVisitor.Visitable visitable, MemoryStatsVisitor visitor )
@@ -89,6 +89,36 @@ public class IdGenerators
         };
     }
 
+    /**
+     * @param actual {@link IdGenerator} to get the ids from.
+     * @param lowestId lowest id which may be generated.
+     * @return an {@link IdGenerator} which returns the ids of {@code actual}, but fails for ids lower than
+     * {@code lowestId}. This is for when importing into a store which already has nodes below that id.
+     */
+    public static IdGenerator notBelow( final IdGenerator actual, final long lowestId )
+    {
+        return new IdGenerator()
+        {
+            @Override
+            public long generate( Object inputId )
+            {
+                long id = actual.generate( inputId );
+                if ( id < lowestId )
+                {
+                    throw new IllegalArgumentException( "Node id " + id + " is already in use, " +
+                            "ids of imported nodes must be " + lowestId + " or higher" );
+                }
+                return id;
+            }
+
+            @Override
+            public boolean dependsOnInput()
+            {
+                return actual.dependsOnInput();
+            }
+        };
+    }
+
     /**
      * @return an {@link IdGenerator} that returns ids incrementally, starting from 0.
      */
@@ -0,0 +1,379 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport.cache.idmapping;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.neo4j.helpers.progress.ProgressListener;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.unsafe.impl.batchimport.InputIterable;
+import org.neo4j.unsafe.impl.batchimport.InputIterator;
+import org.neo4j.unsafe.impl.batchimport.cache.MemoryStatsVisitor;
+import org.neo4j.unsafe.impl.batchimport.cache.NumberArrayFactory;
+import org.neo4j.unsafe.impl.batchimport.input.Collector;
+import org.neo4j.unsafe.impl.batchimport.input.Collectors;
+import org.neo4j.unsafe.impl.batchimport.input.Group;
+import org.neo4j.unsafe.impl.batchimport.input.InputException;
+import org.neo4j.unsafe.impl.batchimport.input.InputNode;
+
+/**
+ * The input id --> node id mapping of the nodes of one import, kept in a file in the store directory so that
+ * later incremental imports can refer to those nodes by their input ids. Each import which
+ * {@link org.neo4j.unsafe.impl.batchimport.Configuration#persistIdMapping() persists its id mapping} writes
+ * one such file, named {@value #FILE_NAME_PREFIX} followed by a sequence number.
+ * <p>
+ * The file starts with a byte saying whether the input ids are strings or longs, followed by the first node id
+ * of that import. Then follows the entries in ascending node id order, each starting with a marker byte
+ * which also says whether or not the entry starts a new {@link Group}, in which case the group id and name follows.
+ * Then comes the node id and the input id. Nodes which were removed as duplicates are not included.
+ * <p>
+ * When loaded, a segment is an {@link IdMapper} of its own, so that it can be prepared independently of the
+ * mapping of other imports.
+ */
+public class IdMappingSegment implements MemoryStatsVisitor.Visitable
+{
+    public static final String FILE_NAME_PREFIX = "import.idmapping.";
+
+    private static final byte STRING_IDS = 0;
+    private static final byte LONG_IDS = 1;
+    private static final byte END_OF_ENTRIES = 0;
+    private static final byte SAME_GROUP = 1;
+    private static final byte NEW_GROUP = 2;
+
+    // Placeholder for input ids of nodes which were removed as duplicates
+    private static final Object GAP = new Object();
+
+    private final IdMapper idMapper;
+    private final long firstNodeId;
+    private final Map<String,Group> groups;
+
+    private IdMappingSegment( IdMapper idMapper, long firstNodeId, Map<String,Group> groups )
+    {
+        this.idMapper = idMapper;
+        this.firstNodeId = firstNodeId;
+        this.groups = groups;
+    }
+
+    /**
+     * @param inputId input id of a node in this segment.
+     * @param groupName name of the group the input id belongs to.
+     * @return the node id for the given input id, or {@link IdMapper#ID_NOT_FOUND} if it isn't in this segment.
+     */
+    public long get( Object inputId, String groupName )
+    {
+        Group group = groups.get( groupName );
+        if ( group == null )
+        {
+            return IdMapper.ID_NOT_FOUND;
+        }
+        long index = idMapper.get( inputId, group );
+        return index == IdMapper.ID_NOT_FOUND ? IdMapper.ID_NOT_FOUND : firstNodeId + index;
+    }
+
+    @Override
+    public void acceptMemoryStatsVisitor( MemoryStatsVisitor visitor )
+    {
+        idMapper.acceptMemoryStatsVisitor( visitor );
+    }
+
+    public void close()
+    {
+        idMapper.close();
+    }
+
+    /**
+     * Writes a new segment with the mapping of the given nodes. Nodes are assumed to have gotten sequential node ids,
+     * in the order of the given input, starting at {@code firstNodeId}.
+     *
+     * @param fs {@link FileSystemAbstraction} to write the segment with.
+     * @param storeDir directory to write the segment into.
+     * @param nodes the imported nodes.
+     * @param idMapper prepared {@link IdMapper}, used for excluding nodes which were removed as duplicates.
+     * @param firstNodeId node id of the first node in {@code nodes}.
+     * @return the number of mapped nodes written into the segment.
+     * @throws IOException on I/O error.
+     */
+    public static long write( FileSystemAbstraction fs, File storeDir, InputIterable<InputNode> nodes,
+            IdMapper idMapper, long firstNodeId ) throws IOException
+    {
+        File file = new File( storeDir, FILE_NAME_PREFIX + nextSequenceNumber( fs, storeDir ) );
+        long count = 0;
+        try ( DataOutputStream out = new DataOutputStream(
+                      new BufferedOutputStream( fs.openAsOutputStream( file, false ) ) );
+              InputIterator<InputNode> iterator = nodes.iterator() )
+        {
+            Group currentGroup = null;
+            byte idType = -1;
+            for ( long nodeId = firstNodeId; iterator.hasNext(); nodeId++ )
+            {
+                InputNode node = iterator.next();
+                Object inputId = node.id();
+                Group group = node.group();
+                if ( idMapper.get( inputId, group ) != nodeId )
+                {
+                    // This node was removed as a duplicate of another node
+                    continue;
+                }
+
+                if ( idType == -1 )
+                {
+                    idType = inputId instanceof String ? STRING_IDS : LONG_IDS;
+                    out.writeByte( idType );
+                    out.writeLong( firstNodeId );
+                }
+                if ( currentGroup == null || currentGroup.id() != group.id() )
+                {
+                    out.writeByte( NEW_GROUP );
+                    out.writeInt( group.id() );
+                    out.writeUTF( group.name() );
+                    currentGroup = group;
+                }
+                else
+                {
+                    out.writeByte( SAME_GROUP );
+                }
+                out.writeLong( nodeId );
+                writeInputId( out, idType, inputId );
+                count++;
+            }
+            out.writeByte( END_OF_ENTRIES );
+        }
+        if ( count == 0 )
+        {
+            fs.deleteFile( file );
+        }
+        return count;
+    }
+
+    /**
+     * Loads all segments which have been written into the given directory.
+     *
+     * @param fs {@link FileSystemAbstraction} to read the segments with.
+     * @param storeDir directory to read the segments from.
+     * @param cacheFactory {@link NumberArrayFactory} for the caches of the loaded segments.
+     * @return the loaded segments, in the order they were written.
+     * @throws IOException on I/O error.
+     */
+    public static List<IdMappingSegment> loadAll( FileSystemAbstraction fs, File storeDir,
+            NumberArrayFactory cacheFactory ) throws IOException
+    {
+        List<IdMappingSegment> segments = new ArrayList<>();
+        try
+        {
+            for ( File file : segmentFiles( fs, storeDir ) )
+            {
+                segments.add( load( fs, file, cacheFactory ) );
+            }
+        }
+        catch ( IOException | RuntimeException e )
+        {
+            for ( IdMappingSegment segment : segments )
+            {
+                segment.close();
+            }
+            throw e;
+        }
+        return segments;
+    }
+
+    private static IdMappingSegment load( FileSystemAbstraction fs, File file, NumberArrayFactory cacheFactory )
+            throws IOException
+    {
+        Map<String,Group> groups = new HashMap<>();
+        IdMapper idMapper;
+        long firstNodeId;
+        try ( DataInputStream in = new DataInputStream( new BufferedInputStream( fs.openAsInputStream( file ) ) ) )
+        {
+            byte idType = in.readByte();
+            firstNodeId = in.readLong();
+            idMapper = idType == STRING_IDS ? IdMappers.strings( cacheFactory ) : IdMappers.longs( cacheFactory );
+            Group group = null;
+            byte marker;
+            while ( (marker = in.readByte()) != END_OF_ENTRIES )
+            {
+                if ( marker == NEW_GROUP )
+                {
+                    group = new Group.Adapter( in.readInt(), in.readUTF() );
+                    groups.put( group.name(), group );
+                }
+                long nodeId = in.readLong();
+                idMapper.put( readInputId( in, idType ), nodeId - firstNodeId, group );
+            }
+        }
+        catch ( EOFException e )
+        {
+            throw new IOException( "Id mapping segment " + file + " is incomplete", e );
+        }
+
+        Collector collector = Collectors.silentBadCollector( 0 );
+        idMapper.prepare( inputIds( fs, file ), collector, ProgressListener.NONE );
+        return new IdMappingSegment( idMapper, firstNodeId, groups );
+    }
+
+    /**
+     * @return the input ids of the segment in the given file, one for each node id from the first one,
+     * as required by {@link IdMapper#prepare(InputIterable, Collector, ProgressListener)}.
+     */
+    private static InputIterable<Object> inputIds( FileSystemAbstraction fs, File file )
+    {
+        return new InputIterable<Object>()
+        {
+            @Override
+            public InputIterator<Object> iterator()
+            {
+                try
+                {
+                    DataInputStream in = new DataInputStream(
+                            new BufferedInputStream( fs.openAsInputStream( file ) ) );
+                    return new InputIterator.Adapter<Object>()
+                    {
+                        private final byte idType = in.readByte();
+                        private final long firstNodeId = in.readLong();
+                        private long expectedNodeId = firstNodeId;
+                        private long nextNodeId = -1;
+                        private Object nextInputId;
+
+                        @Override
+                        protected Object fetchNextOrNull()
+                        {
+                            try
+                            {
+                                if ( nextNodeId == -1 )
+                                {
+                                    byte marker = in.readByte();
+                                    if ( marker == END_OF_ENTRIES )
+                                    {
+                                        return null;
+                                    }
+                                    if ( marker == NEW_GROUP )
+                                    {
+                                        in.readInt();
+                                        in.readUTF();
+                                    }
+                                    nextNodeId = in.readLong();
+                                    nextInputId = readInputId( in, idType );
+                                }
+                                if ( expectedNodeId++ < nextNodeId )
+                                {
+                                    return GAP;
+                                }
+                                nextNodeId = -1;
+                                return nextInputId;
+                            }
+                            catch ( IOException e )
+                            {
+                                throw new InputException( "Unable to read id mapping segment " + file, e );
+                            }
+                        }
+
+                        @Override
+                        public String sourceDescription()
+                        {
+                            return file.getName();
+                        }
+
+                        @Override
+                        public void close()
+                        {
+                            try
+                            {
+                                in.close();
+                            }
+                            catch ( IOException e )
+                            {
+                                throw new InputException( "Unable to close id mapping segment " + file, e );
+                            }
+                        }
+                    };
+                }
+                catch ( IOException e )
+                {
+                    throw new InputException( "Unable to read id mapping segment " + file, e );
+                }
+            }
+
+            @Override
+            public boolean supportsMultiplePasses()
+            {
+                return true;
+            }
+        };
+    }
+
+    private static void writeInputId( DataOutputStream out, byte idType, Object inputId ) throws IOException
+    {
+        if ( idType == STRING_IDS )
+        {
+            byte[] bytes = inputId.toString().getBytes( StandardCharsets.UTF_8 );
+            out.writeInt( bytes.length );
+            out.write( bytes );
+        }
+        else
+        {
+            out.writeLong( ((Number) inputId).longValue() );
+        }
+    }
+
+    private static Object readInputId( DataInputStream in, byte idType ) throws IOException
+    {
+        if ( idType == STRING_IDS )
+        {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully( bytes );
+            return new String( bytes, StandardCharsets.UTF_8 );
+        }
+        return in.readLong();
+    }
+
+    private static File[] segmentFiles( FileSystemAbstraction fs, File storeDir )
+    {
+        File[] files = fs.listFiles( storeDir, ( dir, name ) -> name.startsWith( FILE_NAME_PREFIX ) );
+        if ( files == null )
+        {
+            return new File[0];
+        }
+        Arrays.sort( files, Comparator.comparingLong( IdMappingSegment::sequenceNumber ) );
+        return files;
+    }
+
+    private static long nextSequenceNumber( FileSystemAbstraction fs, File storeDir )
+    {
+        File[] files = segmentFiles( fs, storeDir );
+        return files.length == 0 ? 0 : sequenceNumber( files[files.length - 1] ) + 1;
+    }
+
+    private static long sequenceNumber( File file )
+    {
+        return Long.parseLong( file.getName().substring( FILE_NAME_PREFIX.length() ) );
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport.cache.idmapping;
+
+import java.util.List;
+
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.helpers.progress.ProgressListener;
+import org.neo4j.unsafe.impl.batchimport.InputIterable;
+import org.neo4j.unsafe.impl.batchimport.cache.MemoryStatsVisitor;
+import org.neo4j.unsafe.impl.batchimport.input.Collector;
+import org.neo4j.unsafe.impl.batchimport.input.Group;
+import org.neo4j.unsafe.impl.batchimport.input.InputRelationship;
+
+/**
+ * {@link IdMapper} for an import into a store which already contains nodes. Nodes of this import get node ids
+ * from {@code firstNodeId} and upwards and are mapped by the {@link IdMapper} of the input, although relative to
+ * {@code firstNodeId} so that it doesn't have to cover the existing nodes. Input ids which aren't found among
+ * the nodes of this import are looked up in the {@link IdMappingSegment segments} of previous imports, newest first,
+ * so that {@link InputRelationship relationships} can refer to existing nodes.
+ */
+public class IncrementalIdMapper implements IdMapper
+{
+    private final IdMapper idMapper;
+    private final long firstNodeId;
+    private final IdMappingSegment[] existing;
+
+    /**
+     * @param idMapper {@link IdMapper} for the nodes of this import.
+     * @param firstNodeId node id of the first node of this import.
+     * @param existing segments of previous imports, in the order they were written.
+     */
+    public IncrementalIdMapper( IdMapper idMapper, long firstNodeId, List<IdMappingSegment> existing )
+    {
+        this.idMapper = idMapper;
+        this.firstNodeId = firstNodeId;
+        this.existing = existing.toArray( new IdMappingSegment[existing.size()] );
+    }
+
+    @Override
+    public void put( Object inputId, long actualId, Group group )
+    {
+        idMapper.put( inputId, actualId - firstNodeId, group );
+    }
+
+    @Override
+    public boolean needsPreparation()
+    {
+        return idMapper.needsPreparation();
+    }
+
+    @Override
+    public void prepare( InputIterable<Object> allIds, Collector collector, ProgressListener progress )
+    {
+        idMapper.prepare( allIds, new OffsetCollector( collector ), progress );
+    }
+
+    @Override
+    public long get( Object inputId, Group group )
+    {
+        long id = idMapper.get( inputId, group );
+        if ( id != ID_NOT_FOUND )
+        {
+            return firstNodeId + id;
+        }
+        for ( int i = existing.length - 1; i >= 0; i-- )
+        {
+            id = existing[i].get( inputId, group.name() );
+            if ( id != ID_NOT_FOUND )
+            {
+                return id;
+            }
+        }
+        return ID_NOT_FOUND;
+    }
+
+    @Override
+    public void acceptMemoryStatsVisitor( MemoryStatsVisitor visitor )
+    {
+        idMapper.acceptMemoryStatsVisitor( visitor );
+        for ( IdMappingSegment segment : existing )
+        {
+            segment.acceptMemoryStatsVisitor( visitor );
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        idMapper.close();
+        for ( IdMappingSegment segment : existing )
+        {
+            segment.close();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return getClass().getSimpleName() + "[" + idMapper + ", existing segments:" + existing.length + "]";
+    }
+
+    /**
+     * Translates the node ids of duplicates reported by the wrapped {@link IdMapper} back to actual node ids.
+     */
+    private class OffsetCollector implements Collector
+    {
+        private final Collector actual;
+
+        OffsetCollector( Collector actual )
+        {
+            this.actual = actual;
+        }
+
+        @Override
+        public void collectBadRelationship( InputRelationship relationship, Object specificValue )
+        {
+            actual.collectBadRelationship( relationship, specificValue );
+        }
+
+        @Override
+        public void collectDuplicateNode( Object id, long actualId, String group, String firstSource,
+                String otherSource )
+        {
+            actual.collectDuplicateNode( id, firstNodeId + actualId, group, firstSource, otherSource );
+        }
+
+        @Override
+        public void collectExtraColumns( String source, long row, String value )
+        {
+            actual.collectExtraColumns( source, row, value );
+        }
+
+        @Override
+        public int badEntries()
+        {
+            return actual.badEntries();
+        }
+
+        @Override
+        public PrimitiveLongIterator leftOverDuplicateNodesIds()
+        {
+            return actual.leftOverDuplicateNodesIds();
+        }
+
+        @Override
+        public void close()
+        {   // The actual collector is closed by whoever owns it
+        }
+    }
+}
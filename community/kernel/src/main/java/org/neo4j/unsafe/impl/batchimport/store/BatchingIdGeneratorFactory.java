@@ -29,7 +29,7 @@ import org.neo4j.kernel.impl.store.id.IdGeneratorFactory;
 import org.neo4j.kernel.impl.store.id.IdRange;
 import org.neo4j.kernel.impl.store.id.IdType;
 
-import static org.neo4j.kernel.impl.store.id.IdGeneratorImpl.createGenerator;
+import static org.neo4j.kernel.impl.store.id.IdGeneratorImpl.updateHighId;
 
 /**
  * Batching version of an {@link IdGeneratorFactory} where all {@link IdGenerator id generators} are
@@ -119,7 +119,9 @@ public class BatchingIdGeneratorFactory implements IdGeneratorFactory
         @Override
         public void close()
         {
-            createGenerator( fs, fileName, idSequence.peek(), false );
+            // Ids are only ever handed out from the high id, so free ids of a store that an import appended to
+            // are still free afterwards
+            updateHighId( fs, fileName, idSequence.peek() );
         }
 
         @Override
@@ -29,6 +29,7 @@ import org.neo4j.io.fs.FileSystemAbstraction;
 import org.neo4j.io.pagecache.PageCache;
 import org.neo4j.io.pagecache.tracing.DefaultPageCacheTracer;
 import org.neo4j.io.pagecache.tracing.PageCacheTracer;
+import org.neo4j.kernel.api.index.SchemaIndexProvider;
 import org.neo4j.kernel.api.labelscan.LabelScanStore;
 import org.neo4j.kernel.configuration.Config;
 import org.neo4j.kernel.extension.KernelExtensionFactory;
@@ -38,8 +39,10 @@ import org.neo4j.kernel.extension.dependency.HighestSelectionStrategy;
 import org.neo4j.kernel.impl.api.index.IndexStoreView;
 import org.neo4j.kernel.impl.api.scan.LabelScanStoreProvider;
 import org.neo4j.kernel.impl.factory.DatabaseInfo;
+import org.neo4j.kernel.impl.locking.LockService;
 import org.neo4j.kernel.impl.logging.LogService;
 import org.neo4j.kernel.impl.pagecache.ConfiguringPageCacheFactory;
+import org.neo4j.kernel.impl.recovery.RecoveryRequiredChecker;
 import org.neo4j.kernel.impl.spi.KernelContext;
 import org.neo4j.kernel.impl.spi.SimpleKernelContext;
 import org.neo4j.kernel.impl.store.NeoStores;
@@ -50,8 +53,10 @@ import org.neo4j.kernel.impl.store.RelationshipStore;
 import org.neo4j.kernel.impl.store.StoreFactory;
 import org.neo4j.kernel.impl.store.UnderlyingStorageException;
 import org.neo4j.kernel.impl.store.counts.CountsTracker;
+import org.neo4j.kernel.impl.store.format.RecordFormatSelector;
 import org.neo4j.kernel.impl.store.format.RecordFormats;
 import org.neo4j.kernel.impl.store.record.RelationshipGroupRecord;
+import org.neo4j.kernel.impl.transaction.state.NeoStoreIndexStoreView;
 import org.neo4j.kernel.impl.util.Dependencies;
 import org.neo4j.kernel.lifecycle.LifeSupport;
 import org.neo4j.logging.LogProvider;
@@ -91,6 +96,7 @@ public class BatchingNeoStores implements AutoCloseable
     private final NeoStores neoStores;
     private final LifeSupport life = new LifeSupport();
     private final LabelScanStore labelScanStore;
+    private final KernelExtensions extensions;
     private final IoTracer ioTracer;
     private final RecordFormats recordFormats;
 
@@ -100,6 +106,19 @@ public class BatchingNeoStores implements AutoCloseable
 
     public BatchingNeoStores( FileSystemAbstraction fileSystem, File storeDir, RecordFormats recordFormats,
             Configuration config, LogService logService, AdditionalInitialIds initialIds, Config dbConfig )
+    {
+        this( fileSystem, storeDir, recordFormats, config, logService, initialIds, dbConfig, false );
+    }
+
+    /**
+     * @param incremental whether or not the import is allowed to append data to a store which already
+     * contains data. Such a store must have been cleanly shut down and must not have any schema rules,
+     * since neither recovery nor index population is done as part of an import. The transaction meta data
+     * of an existing store is kept as it is.
+     */
+    public BatchingNeoStores( FileSystemAbstraction fileSystem, File storeDir, RecordFormats recordFormats,
+            Configuration config, LogService logService, AdditionalInitialIds initialIds, Config dbConfig,
+            boolean incremental )
     {
         this.fileSystem = fileSystem;
         this.recordFormats = recordFormats;
@@ -118,12 +137,23 @@ public class BatchingNeoStores implements AutoCloseable
         final PageCacheTracer tracer = new DefaultPageCacheTracer();
         this.pageCache = createPageCache( fileSystem, neo4jConfig, logProvider, tracer );
         this.ioTracer = tracer::bytesWritten;
+        if ( incremental )
+        {
+            assertRecoveryNotRequired( fileSystem, storeDir, pageCache );
+        }
         this.neoStores = newStoreFactory( DEFAULT_NAME ).openAllNeoStores( true );
-        if ( alreadyContainsData( neoStores ) )
+        boolean containsData = alreadyContainsData( neoStores );
+        if ( containsData && !incremental )
         {
             neoStores.close();
             throw new IllegalStateException( storeDir + " already contains data, cannot do import here" );
         }
+        if ( incremental && neoStores.getSchemaStore().loadAllSchemaRules().hasNext() )
+        {
+            neoStores.close();
+            throw new IllegalStateException( storeDir + " contains indexes or constraints, which an incremental " +
+                    "import cannot keep up to date. Drop them before the import and create them again afterwards" );
+        }
         try
         {
             neoStores.rebuildCountStoreIfNeeded();
@@ -132,10 +162,13 @@ public class BatchingNeoStores implements AutoCloseable
         {
             throw new UnderlyingStorageException( e );
         }
-        neoStores.getMetaDataStore().setLastCommittedAndClosedTransactionId(
-                initialIds.lastCommittedTransactionId(), initialIds.lastCommittedTransactionChecksum(),
-                BASE_TX_COMMIT_TIMESTAMP, initialIds.lastCommittedTransactionLogByteOffset(),
-                initialIds.lastCommittedTransactionLogVersion() );
+        if ( !containsData )
+        {
+            neoStores.getMetaDataStore().setLastCommittedAndClosedTransactionId(
+                    initialIds.lastCommittedTransactionId(), initialIds.lastCommittedTransactionChecksum(),
+                    BASE_TX_COMMIT_TIMESTAMP, initialIds.lastCommittedTransactionLogByteOffset(),
+                    initialIds.lastCommittedTransactionLogVersion() );
+        }
         this.propertyKeyRepository = new BatchingPropertyKeyTokenRepository(
                 neoStores.getPropertyKeyTokenStore() );
         this.labelRepository = new BatchingLabelTokenRepository(
@@ -151,15 +184,21 @@ public class BatchingNeoStores implements AutoCloseable
         Dependencies dependencies = new Dependencies();
         dependencies.satisfyDependency( neo4jConfig );
         dependencies.satisfyDependency( fileSystem );
+        dependencies.satisfyDependency( pageCache );
         dependencies.satisfyDependency( this );
         dependencies.satisfyDependency( logService );
-        dependencies.satisfyDependency( IndexStoreView.EMPTY );
+        // The label scan store may need to be rebuilt when it's started. When appending to a store that must
+        // happen from the existing nodes, otherwise their labels would be lost
+        dependencies.satisfyDependency( incremental
+                ? new NeoStoreIndexStoreView( LockService.NO_LOCK_SERVICE, neoStores )
+                : IndexStoreView.EMPTY );
         KernelContext kernelContext = new SimpleKernelContext( fileSystem, storeDir, DatabaseInfo.UNKNOWN,
                 dependencies );
         @SuppressWarnings( { "unchecked", "rawtypes" } )
         KernelExtensions extensions = life.add( new KernelExtensions(
                 kernelContext, (Iterable) Service.load( KernelExtensionFactory.class ),
                 dependencies, UnsatisfiedDependencyStrategies.ignore() ) );
+        this.extensions = extensions;
         life.start();
         labelScanStore = life.add( extensions.resolveDependency( LabelScanStoreProvider.class,
                 HighestSelectionStrategy.getInstance() ).getLabelScanStore() );
@@ -172,6 +211,39 @@ public class BatchingNeoStores implements AutoCloseable
                 log.getLog( BatchingNeoStores.class ) ).getOrCreatePageCache();
     }
 
+    private static void assertRecoveryNotRequired( FileSystemAbstraction fileSystem, File storeDir,
+            PageCache pageCache )
+    {
+        try
+        {
+            if ( new RecoveryRequiredChecker( fileSystem, pageCache ).isRecoveryRequiredAt( storeDir ) )
+            {
+                pageCache.close();
+                throw new IllegalStateException( storeDir + " was not cleanly shut down and needs recovery " +
+                        "before more data can be imported into it. Start and stop a database on it first" );
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new UnderlyingStorageException( e );
+        }
+    }
+
+    /**
+     * Selects the {@link RecordFormats} of an existing store, or the configured ones if there's no store
+     * in {@code storeDir} yet. Incremental imports must write the same format as the existing data.
+     */
+    public static RecordFormats selectRecordFormats( FileSystemAbstraction fileSystem, File storeDir,
+            Config dbConfig, LogProvider logProvider ) throws IOException
+    {
+        try ( PageCache pageCache = createPageCache( fileSystem, dbConfig, NullLogProvider.getInstance(),
+                PageCacheTracer.NULL ) )
+        {
+            return RecordFormatSelector.selectForStoreOrConfig( dbConfig, storeDir, fileSystem, pageCache,
+                    logProvider );
+        }
+    }
+
     private boolean alreadyContainsData( NeoStores neoStores )
     {
         return neoStores.getNodeStore().getHighId() > 0 || neoStores.getRelationshipStore().getHighId() > 0;
@@ -291,6 +363,15 @@ public class BatchingNeoStores implements AutoCloseable
         return labelScanStore;
     }
 
+    /**
+     * @return the {@link SchemaIndexProvider} which a database on this store would use for new indexes.
+     * @throws IllegalArgumentException if there's no {@link SchemaIndexProvider} on the class path.
+     */
+    public SchemaIndexProvider getSchemaIndexProvider()
+    {
+        return extensions.resolveDependency( SchemaIndexProvider.class, HighestSelectionStrategy.getInstance() );
+    }
+
     public NeoStores getNeoStores()
     {
         return neoStores;
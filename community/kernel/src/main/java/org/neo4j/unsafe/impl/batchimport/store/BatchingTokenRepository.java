@@ -48,12 +48,23 @@ public abstract class BatchingTokenRepository<RECORD extends TokenRecord, TOKEN
 {
     private final Map<String,Integer> tokens = new HashMap<>();
     private final TokenStore<RECORD, TOKEN> store;
+    // Tokens with ids below this one already exist in the store and are not created again in close()
+    private final int firstCreatedId;
     private int highId;
 
     public BatchingTokenRepository( TokenStore<RECORD,TOKEN> store )
     {
         this.store = store;
         this.highId = (int)store.getHighId();
+        this.firstCreatedId = highId;
+        if ( highId > 0 )
+        {
+            // Importing into a store which already has tokens, make them known so that they get reused
+            for ( TOKEN token : store.getTokens( Integer.MAX_VALUE ) )
+            {
+                tokens.put( token.name(), token.id() );
+            }
+        }
     }
 
     /**
@@ -196,7 +207,10 @@ public abstract class BatchingTokenRepository<RECORD extends TokenRecord, TOKEN
         Map<Integer,String> sorted = new TreeMap<>();
         for ( Map.Entry<String,Integer> entry : tokens.entrySet() )
         {
-            sorted.put( entry.getValue(), entry.getKey() );
+            if ( entry.getValue() >= firstCreatedId )
+            {
+                sorted.put( entry.getValue(), entry.getKey() );
+            }
         }
         return sorted.entrySet();
     }
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.guard;
+
+import org.junit.Test;
+
+import org.neo4j.kernel.api.KernelTransaction;
+import org.neo4j.kernel.api.exceptions.Status;
+import org.neo4j.kernel.api.security.AccessMode;
+import org.neo4j.kernel.impl.api.KernelStatement;
+import org.neo4j.kernel.impl.api.KernelTransactionImplementation;
+import org.neo4j.kernel.impl.api.KernelTransactionTestBase;
+import org.neo4j.kernel.impl.locking.StatementLocks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+public class TxStateSizeGuardTest extends KernelTransactionTestBase
+{
+    @Test
+    public void allowToProceedWhileTransactionStateIsWithinLimit()
+    {
+        KernelTransactionImplementation transaction = newInitializedTransaction();
+        KernelStatement statement = transaction.acquireStatement();
+        transaction.txState().nodeDoCreate( 1 );
+
+        new TxStateSizeGuard( 1024 * 1024 ).check( statement );
+    }
+
+    @Test
+    public void detectTransactionStateLargerThanLimit()
+    {
+        KernelTransactionImplementation transaction = newInitializedTransaction();
+        KernelStatement statement = transaction.acquireStatement();
+        TxStateSizeGuard guard = new TxStateSizeGuard( 1024 );
+
+        for ( long nodeId = 0; transaction.estimatedTxStateHeapUsage() <= 1024; nodeId++ )
+        {
+            guard.check( statement );
+            transaction.txState().nodeDoCreate( nodeId );
+        }
+
+        try
+        {
+            guard.check( statement );
+            fail( "Should have failed" );
+        }
+        catch ( GuardTxStateSizeException e )
+        {
+            assertEquals( Status.Transaction.TransactionStateTooLarge, e.status() );
+            assertTrue( e.getMessage().contains( "limit of 1024 bytes" ) );
+        }
+    }
+
+    private KernelTransactionImplementation newInitializedTransaction()
+    {
+        KernelTransactionImplementation transaction = newNotInitializedTransaction();
+        transaction.initialize( 1L, 2L, mock( StatementLocks.class ), KernelTransaction.Type.implicit,
+                AccessMode.Static.FULL, 0L );
+        return transaction;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.api;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.neo4j.kernel.impl.util.diffsets.PrimitiveLongDiffSets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.neo4j.collection.primitive.PrimitiveLongCollections.iterator;
+import static org.neo4j.collection.primitive.PrimitiveLongCollections.toIterator;
+import static org.neo4j.helpers.collection.Iterators.asSet;
+
+public class PrimitiveLongDiffSetsTest
+{
+    @Test
+    public void shouldCancelOutAddAndRemoveOfSameElement() throws Exception
+    {
+        // given
+        PrimitiveLongDiffSets diffSets = new PrimitiveLongDiffSets();
+
+        // when
+        diffSets.add( 1 );
+        diffSets.add( 2 );
+        diffSets.remove( 2 );
+        diffSets.remove( 3 );
+        diffSets.add( 3 );
+
+        // then
+        assertEquals( asSet( 1L ), diffSets.getAdded() );
+        assertTrue( diffSets.getRemoved().isEmpty() );
+        assertTrue( diffSets.isAdded( 1 ) );
+        assertFalse( diffSets.isAdded( 2 ) );
+        assertFalse( diffSets.isRemoved( 3 ) );
+        assertEquals( 1, diffSets.delta() );
+    }
+
+    @Test
+    public void shouldAugmentSourceWithAddedAndWithoutRemovedElements() throws Exception
+    {
+        // given
+        PrimitiveLongDiffSets diffSets = new PrimitiveLongDiffSets();
+        diffSets.add( 17 );
+        diffSets.add( 18 );
+        diffSets.remove( 3 );
+
+        // when
+        Set<Long> augmented = asSet( toIterator( diffSets.augment( iterator( 1, 3, 17 ) ) ) );
+        Set<Long> withRemovals = asSet( toIterator( diffSets.augmentWithRemovals( iterator( 1, 3, 17 ) ) ) );
+
+        // then
+        assertEquals( asSet( 1L, 17L, 18L ), augmented );
+        assertEquals( asSet( 1L, 17L ), withRemovals );
+    }
+
+    @Test
+    public void shouldNotSeeElementsAddedOrRemovedDuringIteration() throws Exception
+    {
+        // given
+        PrimitiveLongDiffSets diffSets = new PrimitiveLongDiffSets();
+        for ( long element = 0; element < 100; element++ )
+        {
+            diffSets.add( element );
+        }
+
+        // when
+        Set<Long> seen = new HashSet<>();
+        Iterator<Long> added = diffSets.getAdded().iterator();
+        while ( added.hasNext() )
+        {
+            long element = added.next();
+            assertTrue( seen.add( element ) );
+            diffSets.add( element + 100 );
+            if ( !seen.contains( 99 - element ) )
+            {
+                diffSets.remove( 99 - element );
+            }
+        }
+
+        // then
+        assertEquals( 50, seen.size() );
+        for ( long element : seen )
+        {
+            assertTrue( element < 100 );
+        }
+    }
+}
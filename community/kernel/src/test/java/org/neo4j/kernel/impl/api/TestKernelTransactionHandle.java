@@ -59,6 +59,13 @@ public class TestKernelTransactionHandle implements KernelTransactionHandle
         return tx.startTime();
     }
 
+    @Override
+    public long estimatedTxStateHeapUsage()
+    {
+        return tx instanceof KernelTransactionImplementation
+               ? ((KernelTransactionImplementation) tx).estimatedTxStateHeapUsage() : 0;
+    }
+
     @Override
     public boolean isOpen()
     {
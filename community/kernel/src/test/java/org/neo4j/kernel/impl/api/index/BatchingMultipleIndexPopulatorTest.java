@@ -43,6 +43,7 @@ import static java.util.Collections.singletonList;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
@@ -120,6 +121,48 @@ public class BatchingMultipleIndexPopulatorTest
         verify( updater2 ).process( update2 );
     }
 
+    @Test
+    @SuppressWarnings( "unchecked" )
+    public void populateFromQueueDefersUpdatesForNodesInFlightOfPartitionedScan() throws Exception
+    {
+        setProperty( QUEUE_THRESHOLD_NAME, 1 );
+
+        IndexStoreView storeView = mock( IndexStoreView.class );
+        PartitionedStoreScan<Exception> storeScan = mock( PartitionedStoreScan.class );
+        when( storeView.visitNodesInPartitions( anyInt(), any(), any(), any() ) ).thenReturn( storeScan );
+
+        BatchingMultipleIndexPopulator batchingPopulator = new BatchingMultipleIndexPopulator(
+                storeView, mock( ExecutorService.class ), NullLogProvider.getInstance() );
+
+        IndexPopulator populator = addPopulator( batchingPopulator, 1 );
+        IndexUpdater updater = mock( IndexUpdater.class );
+        when( populator.newPopulatingUpdater( any() ) ).thenReturn( updater );
+        batchingPopulator.indexAllNodes();
+
+        NodePropertyUpdate visited = NodePropertyUpdate.add( 1, 1, "foo", new long[]{1} );
+        NodePropertyUpdate inFlight = NodePropertyUpdate.add( 2, 1, "bar", new long[]{1} );
+        NodePropertyUpdate notRead = NodePropertyUpdate.add( 3, 1, "baz", new long[]{1} );
+        when( storeScan.hasVisited( 1 ) ).thenReturn( true );
+        when( storeScan.isInFlight( 2 ) ).thenReturn( true );
+        batchingPopulator.queue( visited );
+        batchingPopulator.queue( inFlight );
+        batchingPopulator.queue( notRead );
+
+        batchingPopulator.populateFromQueue( 42 );
+
+        verify( updater ).process( visited );
+        verify( updater, never() ).process( inFlight );
+        verify( updater, never() ).process( notRead );
+
+        when( storeScan.hasVisited( 2 ) ).thenReturn( true );
+        batchingPopulator.queue( NodePropertyUpdate.add( 4, 1, "qux", new long[]{1} ) );
+
+        batchingPopulator.populateFromQueue( 42 );
+
+        verify( updater ).process( inFlight );
+        verify( updater, never() ).process( notRead );
+    }
+
     @Test
     public void executorShutdownAfterStoreScanCompletes() throws Exception
     {
@@ -145,10 +188,10 @@ public class BatchingMultipleIndexPopulatorTest
     public void executorForcefullyShutdownIfStoreScanFails() throws Exception
     {
         IndexStoreView storeView = mock( IndexStoreView.class );
-        StoreScan<Exception> failingStoreScan = mock( StoreScan.class );
+        PartitionedStoreScan<Exception> failingStoreScan = mock( PartitionedStoreScan.class );
         RuntimeException scanError = new RuntimeException();
         doThrow( scanError ).when( failingStoreScan ).run();
-        when( storeView.visitNodes( any(), any(), any(), any() ) ).thenReturn( failingStoreScan );
+        when( storeView.visitNodesInPartitions( anyInt(), any(), any(), any() ) ).thenReturn( failingStoreScan );
 
         ExecutorService executor = mock( ExecutorService.class );
         when( executor.awaitTermination( anyLong(), any() ) ).thenReturn( true );
@@ -295,8 +338,8 @@ public class BatchingMultipleIndexPopulatorTest
     private static IndexStoreView newStoreView( NodePropertyUpdate... updates )
     {
         IndexStoreView storeView = mock( IndexStoreView.class );
-        when( storeView.visitNodes( any(), any(), any(), any() ) ).thenAnswer( invocation -> {
-            Object visitorArg = invocation.getArguments()[2];
+        when( storeView.visitNodesInPartitions( anyInt(), any(), any(), any() ) ).thenAnswer( invocation -> {
+            Object visitorArg = invocation.getArguments()[3];
             Visitor<NodePropertyUpdates,IndexPopulationFailedKernelException> visitor =
                     (Visitor<NodePropertyUpdates,IndexPopulationFailedKernelException>) visitorArg;
             return new NodePropertyUpdatesScan( updates, visitor );
@@ -325,12 +368,13 @@ public class BatchingMultipleIndexPopulatorTest
         FeatureToggles.clear( BatchingMultipleIndexPopulator.class, name );
     }
 
-    private static class NodePropertyUpdatesScan implements StoreScan<IndexPopulationFailedKernelException>
+    private static class NodePropertyUpdatesScan implements PartitionedStoreScan<IndexPopulationFailedKernelException>
     {
         final NodePropertyUpdate[] updates;
         final Visitor<NodePropertyUpdates,IndexPopulationFailedKernelException> visitor;
 
         boolean stop;
+        long visitedUpTo = -1;
 
         NodePropertyUpdatesScan( NodePropertyUpdate[] updates,
                 Visitor<NodePropertyUpdates,IndexPopulationFailedKernelException> visitor )
@@ -352,11 +396,24 @@ public class BatchingMultipleIndexPopulatorTest
                 }
                 nodePropertyUpdates.initForNodeId( update.getNodeId() );
                 nodePropertyUpdates.add( update );
+                visitedUpTo = update.getNodeId();
                 visitor.visit( nodePropertyUpdates );
                 nodePropertyUpdates.reset();
             }
         }
 
+        @Override
+        public boolean hasVisited( long nodeId )
+        {
+            return nodeId <= visitedUpTo;
+        }
+
+        @Override
+        public boolean isInFlight( long nodeId )
+        {
+            return false;
+        }
+
         @Override
         public void stop()
         {
@@ -27,6 +27,7 @@ import org.neo4j.storageengine.api.NodeItem;
 import org.neo4j.storageengine.api.RelationshipItem;
 import org.neo4j.storageengine.api.StorageStatement;
 
+import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertFalse;
 import static junit.framework.TestCase.assertTrue;
 import static org.neo4j.graphdb.RelationshipType.withName;
@@ -85,6 +86,35 @@ public class DiskLayerNodeAndRelTest extends DiskLayerTest
         assertFalse( relationshipExists( neverExisted ) );
     }
 
+    @Test
+    public void shouldScanAllNodesWithInterleavedCursorsInOneStatement() throws Exception
+    {
+        // Given
+        long first = createLabeledNode( db, map() ).getId();
+        long second = createLabeledNode( db, map() ).getId();
+
+        // When
+        try ( StorageStatement statement = disk.newStatement();
+              Cursor<NodeItem> outer = statement.nodesGetAllCursor() )
+        {
+            int pairs = 0;
+            while ( outer.next() )
+            {
+                try ( Cursor<NodeItem> inner = statement.nodesGetAllCursor() )
+                {
+                    while ( inner.next() )
+                    {
+                        assertTrue( inner.get().id() == first || inner.get().id() == second );
+                        pairs++;
+                    }
+                }
+            }
+
+            // Then
+            assertEquals( 4, pairs );
+        }
+    }
+
     private boolean nodeExists( long id )
     {
         try ( StorageStatement statement = disk.newStatement() )
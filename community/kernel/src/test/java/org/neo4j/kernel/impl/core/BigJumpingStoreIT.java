@@ -39,6 +39,7 @@ import org.neo4j.graphdb.Transaction;
 import org.neo4j.helpers.collection.Iterables;
 import org.neo4j.io.fs.FileSystemAbstraction;
 import org.neo4j.kernel.GraphDatabaseDependencies;
+import org.neo4j.kernel.configuration.Config;
 import org.neo4j.kernel.impl.factory.CommunityEditionModule;
 import org.neo4j.kernel.impl.factory.DatabaseInfo;
 import org.neo4j.kernel.impl.factory.EditionModule;
@@ -75,7 +76,7 @@ public class BigJumpingStoreIT
                 {
                     @Override
                     protected IdGeneratorFactory createIdGeneratorFactory( FileSystemAbstraction fs,
-                            IdTypeConfigurationProvider idTypeConfigurationProvider )
+                            IdTypeConfigurationProvider idTypeConfigurationProvider, Config config )
                     {
                         return new JumpingIdGeneratorFactory( SIZE_PER_JUMP );
                     }
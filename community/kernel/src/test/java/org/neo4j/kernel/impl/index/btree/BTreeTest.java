@@ -0,0 +1,479 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.btree;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.neo4j.graphdb.mockfs.EphemeralFileSystemAbstraction;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.io.pagecache.PageCursor;
+import org.neo4j.test.rule.PageCacheRule;
+import org.neo4j.test.rule.fs.EphemeralFileSystemRule;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BTreeTest
+{
+    @Rule
+    public final EphemeralFileSystemRule fsRule = new EphemeralFileSystemRule();
+    @Rule
+    public final PageCacheRule pageCacheRule = new PageCacheRule();
+
+    private PageCache pageCache;
+    private File file;
+
+    @Before
+    public void setUp()
+    {
+        FileSystemAbstraction fs = fsRule.get();
+        pageCache = pageCacheRule.getPageCache( fs );
+        file = new File( "tree" ).getAbsoluteFile();
+    }
+
+    @Test
+    public void shouldSeekWhatWasPut() throws Exception
+    {
+        TreeMap<Long,Long> expected = new TreeMap<>();
+        Random random = new Random( 42 );
+        try ( BTree<long[],long[]> tree = new BTree<>( pageCache, file, new LongLayout() ) )
+        {
+            try ( BTreeWriter<long[],long[]> writer = tree.writer() )
+            {
+                for ( int i = 0; i < 50_000; i++ )
+                {
+                    long key = random.nextInt( 100_000 );
+                    writer.put( key( key ), key( key * 2 ) );
+                    expected.put( key, key * 2 );
+                }
+                for ( int i = 0; i < 25_000; i++ )
+                {
+                    long key = random.nextInt( 100_000 );
+                    assertEquals( expected.remove( key ) != null, writer.remove( key( key ), null ) );
+                }
+            }
+
+            assertSeek( tree, expected, Long.MIN_VALUE, Long.MAX_VALUE );
+            assertSeek( tree, expected, 1_000, 2_000 );
+            assertSeek( tree, expected, 99_999, 200_000 );
+        }
+    }
+
+    @Test
+    public void shouldGetAndOverwriteValues() throws Exception
+    {
+        try ( BTree<long[],long[]> tree = new BTree<>( pageCache, file, new LongLayout() );
+              BTreeWriter<long[],long[]> writer = tree.writer() )
+        {
+            long[] value = new long[1];
+            assertFalse( writer.get( key( 1 ), value ) );
+
+            writer.put( key( 1 ), key( 10 ) );
+            writer.put( key( 1 ), key( 11 ) );
+
+            assertTrue( writer.get( key( 1 ), value ) );
+            assertEquals( 11, value[0] );
+        }
+    }
+
+    @Test
+    public void shouldRememberUserDataAndCleanShutdownAcrossRestarts() throws Exception
+    {
+        try ( BTree<long[],long[]> tree = new BTree<>( pageCache, file, new LongLayout() ) )
+        {
+            assertTrue( tree.wasCleanlyClosed() );
+            tree.setUserData( new byte[]{1, 2, 3} );
+            try ( BTreeWriter<long[],long[]> writer = tree.writer() )
+            {
+                writer.put( key( 5 ), key( 6 ) );
+            }
+            assertArrayEquals( new byte[0], BTree.readCheckpointedUserData( pageCache, file ) );
+        }
+
+        assertArrayEquals( new byte[]{1, 2, 3}, BTree.readCheckpointedUserData( pageCache, file ) );
+        try ( BTree<long[],long[]> tree = new BTree<>( pageCache, file, new LongLayout() ) )
+        {
+            assertTrue( tree.wasCleanlyClosed() );
+            TreeMap<Long,Long> expected = new TreeMap<>();
+            expected.put( 5L, 6L );
+            assertSeek( tree, expected, Long.MIN_VALUE, Long.MAX_VALUE );
+        }
+    }
+
+    @Test
+    public void shouldRecoverToLastCheckpointAfterCrash() throws Exception
+    {
+        // given a tree that crashes after a checkpoint, with changes both before and after it
+        TreeMap<Long,Long> checkpointed = new TreeMap<>();
+        EphemeralFileSystemAbstraction crashedFs;
+        try ( BTree<long[],long[]> tree = new BTree<>( pageCache, file, new LongLayout() ) )
+        {
+            try ( BTreeWriter<long[],long[]> writer = tree.writer() )
+            {
+                for ( long key = 0; key < 10_000; key++ )
+                {
+                    writer.put( key( key ), key( key ) );
+                    checkpointed.put( key, key );
+                }
+            }
+            tree.setUserData( new byte[]{1} );
+            tree.force();
+
+            tree.setUserData( new byte[]{2} );
+            try ( BTreeWriter<long[],long[]> writer = tree.writer() )
+            {
+                for ( long key = 0; key < 10_000; key += 2 )
+                {
+                    writer.remove( key( key ), null );
+                    writer.put( key( key + 20_000 ), key( key ) );
+                }
+            }
+            // the page cache may write out any of the changes after the checkpoint before the crash
+            tree.pagedFile.flushAndForce();
+            crashedFs = fsRule.get().snapshot();
+        }
+
+        // when
+        PageCache crashedPageCache = pageCacheRule.getPageCache( crashedFs );
+        assertArrayEquals( new byte[]{1}, BTree.readCheckpointedUserData( crashedPageCache, file ) );
+        try ( BTree<long[],long[]> tree = new BTree<>( crashedPageCache, file, new LongLayout() ) )
+        {
+            // then
+            assertFalse( tree.wasCleanlyClosed() );
+            assertArrayEquals( new byte[]{1}, tree.userData() );
+            assertSeek( tree, checkpointed, Long.MIN_VALUE, Long.MAX_VALUE );
+
+            // and the tree can be written to again
+            try ( BTreeWriter<long[],long[]> writer = tree.writer() )
+            {
+                for ( long key = 10_000; key < 20_000; key++ )
+                {
+                    writer.put( key( key ), key( key ) );
+                    checkpointed.put( key, key );
+                }
+            }
+            assertSeek( tree, checkpointed, Long.MIN_VALUE, Long.MAX_VALUE );
+        }
+    }
+
+    @Test
+    public void shouldReusePagesFreedBeforeLastCheckpoint() throws Exception
+    {
+        try ( BTree<long[],long[]> tree = new BTree<>( pageCache, file, new LongLayout() ) )
+        {
+            TreeMap<Long,Long> expected = new TreeMap<>();
+            for ( int round = 0; round < 20; round++ )
+            {
+                try ( BTreeWriter<long[],long[]> writer = tree.writer() )
+                {
+                    for ( long key = 0; key < 5_000; key++ )
+                    {
+                        writer.put( key( key ), key( key + round ) );
+                        expected.put( key, key + round );
+                    }
+                }
+                tree.force();
+            }
+            assertSeek( tree, expected, Long.MIN_VALUE, Long.MAX_VALUE );
+
+            // Every round copies the whole tree, which would grow the file twentyfold without reuse
+            long pagesAfterFirstRounds = tree.pagedFile.getLastPageId();
+            for ( int round = 0; round < 20; round++ )
+            {
+                try ( BTreeWriter<long[],long[]> writer = tree.writer() )
+                {
+                    for ( long key = 0; key < 5_000; key++ )
+                    {
+                        writer.put( key( key ), key( key ) );
+                    }
+                }
+                tree.force();
+            }
+            assertTrue( tree.pagedFile.getLastPageId() <= pagesAfterFirstRounds + 2 );
+        }
+    }
+
+    @Test
+    public void readersShouldSeeConsistentViewWhileWriterReusesPages() throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool( 2 );
+        try ( BTree<long[],long[]> tree = new BTree<>( pageCache, file, new LongLayout() ) )
+        {
+            try ( BTreeWriter<long[],long[]> writer = tree.writer() )
+            {
+                for ( long key = 0; key < 10_000; key++ )
+                {
+                    writer.put( key( key ), key( key ) );
+                }
+            }
+
+            AtomicBoolean done = new AtomicBoolean();
+            Future<?>[] readers = new Future[2];
+            for ( int i = 0; i < readers.length; i++ )
+            {
+                readers[i] = executor.submit( () ->
+                {
+                    while ( !done.get() )
+                    {
+                        long count = 0;
+                        long previous = -1;
+                        try ( SeekCursor<long[],long[]> cursor = tree.seek( key( 0 ), key( 10_000 ) ) )
+                        {
+                            while ( cursor.next() )
+                            {
+                                long key = cursor.key()[0];
+                                assertTrue( key > previous );
+                                assertEquals( key, cursor.value()[0] );
+                                previous = key;
+                                count++;
+                            }
+                        }
+                        assertEquals( 10_000, count );
+                    }
+                    return null;
+                } );
+            }
+
+            try
+            {
+                // Every checkpoint makes the pages copied away from before it reusable
+                for ( int round = 0; round < 50; round++ )
+                {
+                    try ( BTreeWriter<long[],long[]> writer = tree.writer() )
+                    {
+                        for ( long key = round; key < 10_000; key += 50 )
+                        {
+                            writer.put( key( key ), key( key ) );
+                        }
+                    }
+                    tree.force();
+                }
+            }
+            finally
+            {
+                done.set( true );
+            }
+            for ( Future<?> reader : readers )
+            {
+                reader.get();
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldNotOpenTreeWithDifferentLayout() throws Exception
+    {
+        new BTree<>( pageCache, file, new LongLayout() ).close();
+        try
+        {
+            new BTree<>( pageCache, file, new LongLayout()
+            {
+                @Override
+                public long identifier()
+                {
+                    return 1337;
+                }
+            } );
+            fail( "Should not open a tree with a different layout" );
+        }
+        catch ( IOException e )
+        {
+            // Good
+        }
+    }
+
+    @Test
+    public void readersShouldSeeConsistentViewWhileWriterSplitsNodes() throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool( 2 );
+        try ( BTree<long[],long[]> tree = new BTree<>( pageCache, file, new LongLayout() ) )
+        {
+            // Even keys are there from the start, and odd keys are inserted while the readers are seeking
+            try ( BTreeWriter<long[],long[]> writer = tree.writer() )
+            {
+                for ( long key = 0; key < 20_000; key += 2 )
+                {
+                    writer.put( key( key ), key( key ) );
+                }
+            }
+
+            AtomicBoolean done = new AtomicBoolean();
+            Future<?>[] readers = new Future[2];
+            for ( int i = 0; i < readers.length; i++ )
+            {
+                readers[i] = executor.submit( () ->
+                {
+                    while ( !done.get() )
+                    {
+                        long evenKeys = 0;
+                        long previous = -1;
+                        try ( SeekCursor<long[],long[]> cursor = tree.seek( key( 0 ), key( 20_000 ) ) )
+                        {
+                            while ( cursor.next() )
+                            {
+                                long key = cursor.key()[0];
+                                assertTrue( key > previous );
+                                assertEquals( key, cursor.value()[0] );
+                                previous = key;
+                                evenKeys += (key & 1) == 0 ? 1 : 0;
+                            }
+                        }
+                        assertEquals( 10_000, evenKeys );
+                    }
+                    return null;
+                } );
+            }
+
+            try
+            {
+                for ( long key = 1; key < 20_000; key += 2 )
+                {
+                    try ( BTreeWriter<long[],long[]> writer = tree.writer() )
+                    {
+                        writer.put( key( key ), key( key ) );
+                    }
+                }
+            }
+            finally
+            {
+                done.set( true );
+            }
+            for ( Future<?> reader : readers )
+            {
+                reader.get();
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    private static void assertSeek( BTree<long[],long[]> tree, TreeMap<Long,Long> expected, long from, long to )
+            throws IOException
+    {
+        Iterator<Map.Entry<Long,Long>> entries = expected.subMap( from, true, to, false ).entrySet().iterator();
+        try ( SeekCursor<long[],long[]> cursor = tree.seek( key( from ), key( to ) ) )
+        {
+            while ( cursor.next() )
+            {
+                Map.Entry<Long,Long> entry = entries.next();
+                assertEquals( entry.getKey().longValue(), cursor.key()[0] );
+                assertEquals( entry.getValue().longValue(), cursor.value()[0] );
+            }
+        }
+        assertFalse( entries.hasNext() );
+    }
+
+    private static long[] key( long value )
+    {
+        return new long[]{value};
+    }
+
+    private static class LongLayout implements Layout<long[],long[]>
+    {
+        @Override
+        public long identifier()
+        {
+            return 42;
+        }
+
+        @Override
+        public long[] newKey()
+        {
+            return new long[1];
+        }
+
+        @Override
+        public void copyKey( long[] key, long[] into )
+        {
+            into[0] = key[0];
+        }
+
+        @Override
+        public long[] newValue()
+        {
+            return new long[1];
+        }
+
+        @Override
+        public int keySize()
+        {
+            return Long.BYTES;
+        }
+
+        @Override
+        public int valueSize()
+        {
+            return Long.BYTES;
+        }
+
+        @Override
+        public void writeKey( PageCursor cursor, long[] key )
+        {
+            cursor.putLong( key[0] );
+        }
+
+        @Override
+        public void writeValue( PageCursor cursor, long[] value )
+        {
+            cursor.putLong( value[0] );
+        }
+
+        @Override
+        public void readKey( PageCursor cursor, long[] into )
+        {
+            into[0] = cursor.getLong();
+        }
+
+        @Override
+        public void readValue( PageCursor cursor, long[] into )
+        {
+            into[0] = cursor.getLong();
+        }
+
+        @Override
+        public int compare( long[] o1, long[] o2 )
+        {
+            return Long.compare( o1[0], o2[0] );
+        }
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.labelscan;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.neo4j.collection.primitive.PrimitiveLongCollections;
+import org.neo4j.graphdb.mockfs.EphemeralFileSystemAbstraction;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.kernel.api.labelscan.LabelScanWriter;
+import org.neo4j.kernel.api.labelscan.NodeLabelRange;
+import org.neo4j.kernel.api.labelscan.NodeLabelUpdate;
+import org.neo4j.kernel.impl.api.scan.LabelScanStoreProvider;
+import org.neo4j.kernel.impl.api.scan.LabelScanStoreProvider.FullStoreChangeStream;
+import org.neo4j.kernel.lifecycle.LifeSupport;
+import org.neo4j.logging.NullLogProvider;
+import org.neo4j.storageengine.api.schema.LabelScanReader;
+import org.neo4j.test.rule.PageCacheRule;
+import org.neo4j.test.rule.fs.EphemeralFileSystemRule;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.neo4j.kernel.api.labelscan.NodeLabelUpdate.labelChanges;
+
+public class NativeLabelScanStoreTest
+{
+    private static final long[] NO_LABELS = new long[0];
+
+    @Rule
+    public final EphemeralFileSystemRule fsRule = new EphemeralFileSystemRule();
+    @Rule
+    public final PageCacheRule pageCacheRule = new PageCacheRule();
+
+    private final File storeDir = new File( "store" ).getAbsoluteFile();
+    private EphemeralFileSystemAbstraction fs;
+    private PageCache pageCache;
+    private LifeSupport life;
+    private NativeLabelScanStore store;
+    private List<NodeLabelUpdate> fullStoreUpdates;
+
+    @Before
+    public void setUp()
+    {
+        fs = fsRule.get();
+        pageCache = pageCacheRule.getPageCache( fs );
+    }
+
+    @After
+    public void shutdown()
+    {
+        if ( life != null )
+        {
+            life.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldUpdateIndexOnAddedAndRemovedLabels() throws Exception
+    {
+        start( Collections.emptyList() );
+
+        write( labelChanges( 5, NO_LABELS, new long[]{1, 2} ) );
+        assertNodes( 1, 5 );
+        assertNodes( 2, 5 );
+
+        write( labelChanges( 5, new long[]{1, 2}, new long[]{2, 3} ) );
+        assertNodes( 1 );
+        assertNodes( 2, 5 );
+        assertNodes( 3, 5 );
+
+        write( labelChanges( 5, new long[]{2, 3}, NO_LABELS ) );
+        assertNodes( 2 );
+        assertNodes( 3 );
+    }
+
+    @Test
+    public void shouldFindNodesAcrossManyRanges() throws Exception
+    {
+        start( Collections.emptyList() );
+        List<NodeLabelUpdate> updates = new ArrayList<>();
+        long[] expected = new long[10_000];
+        for ( int i = 0; i < expected.length; i++ )
+        {
+            expected[i] = i * 3;
+            updates.add( labelChanges( expected[i], NO_LABELS, new long[]{i % 2 == 0 ? 1 : 2, 3} ) );
+        }
+
+        write( updates.toArray( new NodeLabelUpdate[updates.size()] ) );
+
+        assertNodes( 3, expected );
+        try ( LabelScanReader reader = store.newReader() )
+        {
+            assertEquals( 5_000, PrimitiveLongCollections.count( reader.nodesWithLabel( 1 ) ) );
+            assertArrayEquals( new long[]{2, 3}, sorted( PrimitiveLongCollections.asArray(
+                    reader.labelsForNode( 3 ) ) ) );
+        }
+    }
+
+    @Test
+    public void shouldNotAcceptUpdatesOfEarlierRanges() throws Exception
+    {
+        start( Collections.emptyList() );
+
+        try ( LabelScanWriter writer = store.newWriter() )
+        {
+            writer.write( labelChanges( 1_000, NO_LABELS, new long[]{1} ) );
+            writer.write( labelChanges( 10, NO_LABELS, new long[]{1} ) );
+            fail( "Should have failed" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            // Good
+        }
+    }
+
+    @Test
+    public void shouldScanAllRangesWithTheirLabels() throws Exception
+    {
+        long nodeId1 = 10, nodeId2 = 11, nodeId3 = 1280;
+        start( asList(
+                labelChanges( nodeId1, NO_LABELS, new long[]{1} ),
+                labelChanges( nodeId2, NO_LABELS, new long[]{1, 2} ),
+                labelChanges( nodeId3, NO_LABELS, new long[]{2} ) ) );
+
+        Iterator<NodeLabelRange> ranges = store.allNodeLabelRanges().iterator();
+        NodeLabelRange range1 = ranges.next();
+        NodeLabelRange range2 = ranges.next();
+        assertFalse( ranges.hasNext() );
+
+        assertArrayEquals( new long[]{nodeId1, nodeId2}, range1.nodes() );
+        assertArrayEquals( new long[]{1}, range1.labels( nodeId1 ) );
+        assertArrayEquals( new long[]{1, 2}, range1.labels( nodeId2 ) );
+        assertArrayEquals( new long[]{nodeId3}, range2.nodes() );
+        assertArrayEquals( new long[]{2}, range2.labels( nodeId3 ) );
+    }
+
+    @Test
+    public void shouldRebuildFromScratchIfStoreIsMissing() throws Exception
+    {
+        start( asList( labelChanges( 1, NO_LABELS, new long[]{1} ), labelChanges( 2, NO_LABELS, new long[]{1, 2} ) ) );
+
+        assertNodes( 1, 1, 2 );
+        assertNodes( 2, 2 );
+    }
+
+    @Test
+    public void shouldKeepContentsOverCleanRestart() throws Exception
+    {
+        start( Collections.emptyList() );
+        write( labelChanges( 1, NO_LABELS, new long[]{1} ) );
+        life.shutdown();
+
+        start( asList( labelChanges( 2, NO_LABELS, new long[]{1} ) ) );
+
+        assertNodes( 1, 1 );
+    }
+
+    @Test
+    public void shouldRebuildAfterUncleanShutdown() throws Exception
+    {
+        start( Collections.emptyList() );
+        write( labelChanges( 1, NO_LABELS, new long[]{1} ) );
+        store.force();
+        // Take a copy of the store file as it is on disk while the store is running, i.e. as after a crash
+        File storeFile = NativeLabelScanStore.getStoreFile( storeDir );
+        File crashedFile = new File( storeDir, "crashed" );
+        fs.copyFile( storeFile, crashedFile );
+        life.shutdown();
+        fs.deleteFile( storeFile );
+        fs.copyFile( crashedFile, storeFile );
+
+        start( asList( labelChanges( 2, NO_LABELS, new long[]{1} ) ) );
+
+        assertNodes( 1, 2 );
+    }
+
+    @Test
+    public void shouldDeleteLuceneLabelScanStoreWhenStarted() throws Exception
+    {
+        File luceneStoreDirectory = LabelScanStoreProvider.getStoreDirectory( storeDir );
+        File luceneFile = new File( luceneStoreDirectory, "segments_1" );
+        fs.mkdirs( luceneStoreDirectory );
+        fs.create( luceneFile ).close();
+
+        start( Collections.emptyList() );
+
+        assertFalse( fs.fileExists( luceneFile ) );
+        assertTrue( fs.fileExists( NativeLabelScanStore.getStoreFile( storeDir ) ) );
+    }
+
+    private void start( List<NodeLabelUpdate> existingData )
+    {
+        fullStoreUpdates = existingData;
+        life = new LifeSupport();
+        store = life.add( new NativeLabelScanStore( pageCache, fs, storeDir, asStream(),
+                NullLogProvider.getInstance() ) );
+        life.start();
+    }
+
+    private FullStoreChangeStream asStream()
+    {
+        return writer ->
+        {
+            long count = 0;
+            for ( NodeLabelUpdate update : fullStoreUpdates )
+            {
+                writer.write( update );
+                count++;
+            }
+            return count;
+        };
+    }
+
+    private void write( NodeLabelUpdate... updates ) throws IOException
+    {
+        try ( LabelScanWriter writer = store.newWriter() )
+        {
+            for ( NodeLabelUpdate update : updates )
+            {
+                writer.write( update );
+            }
+        }
+    }
+
+    private void assertNodes( int labelId, long... expectedNodeIds )
+    {
+        try ( LabelScanReader reader = store.newReader() )
+        {
+            assertArrayEquals( expectedNodeIds, PrimitiveLongCollections.asArray( reader.nodesWithLabel( labelId ) ) );
+        }
+    }
+
+    private static long[] sorted( long[] input )
+    {
+        Arrays.sort( input );
+        return input;
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.neo4j.collection.primitive.PrimitiveLongCollections;
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.graphdb.mockfs.EphemeralFileSystemAbstraction;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.kernel.api.index.IndexAccessor;
+import org.neo4j.kernel.api.index.IndexConfiguration;
+import org.neo4j.kernel.api.index.IndexDescriptor;
+import org.neo4j.kernel.api.index.IndexPopulator;
+import org.neo4j.kernel.api.index.IndexUpdater;
+import org.neo4j.kernel.api.index.InternalIndexState;
+import org.neo4j.kernel.api.index.NodePropertyUpdate;
+import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.impl.api.index.IndexUpdateMode;
+import org.neo4j.kernel.impl.api.index.sampling.IndexSamplingConfig;
+import org.neo4j.logging.NullLogProvider;
+import org.neo4j.storageengine.api.schema.IndexReader;
+import org.neo4j.test.rule.PageCacheRule;
+import org.neo4j.test.rule.fs.EphemeralFileSystemRule;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NativeSchemaIndexProviderTest
+{
+    private static final long INDEX_ID = 1;
+    private static final int PROPERTY_KEY = 3;
+    private static final long[] LABELS = {2};
+
+    @Rule
+    public final EphemeralFileSystemRule fsRule = new EphemeralFileSystemRule();
+    @Rule
+    public final PageCacheRule pageCacheRule = new PageCacheRule();
+
+    private NativeSchemaIndexProvider provider;
+    private final IndexSamplingConfig samplingConfig = new IndexSamplingConfig( Config.empty() );
+
+    @Before
+    public void setUp()
+    {
+        FileSystemAbstraction fs = fsRule.get();
+        provider = new NativeSchemaIndexProvider( pageCacheRule.getPageCache( fs ), fs,
+                new File( "store" ).getAbsoluteFile(), NullLogProvider.getInstance() );
+    }
+
+    @Test
+    public void shouldOnlyIndexNumbersAndShortStrings()
+    {
+        assertTrue( NativeSchemaIndexProvider.canIndex( 42 ) );
+        assertTrue( NativeSchemaIndexProvider.canIndex( 4.2d ) );
+        assertTrue( NativeSchemaIndexProvider.canIndex( "short" ) );
+        assertFalse( NativeSchemaIndexProvider.canIndex( new String( new char[100] ) ) );
+        assertFalse( NativeSchemaIndexProvider.canIndex( true ) );
+        assertFalse( NativeSchemaIndexProvider.canIndex( new int[]{1} ) );
+    }
+
+    @Test
+    public void shouldBeOnlineAfterSuccessfulPopulation() throws Exception
+    {
+        populate( NodePropertyUpdate.add( 1, PROPERTY_KEY, 10, LABELS ) );
+
+        assertEquals( InternalIndexState.ONLINE, provider.getInitialState( INDEX_ID ) );
+    }
+
+    @Test
+    public void shouldRememberPopulationFailure() throws Exception
+    {
+        IndexPopulator populator = provider.getPopulator( INDEX_ID, new IndexDescriptor( 2, PROPERTY_KEY ),
+                IndexConfiguration.NON_UNIQUE, samplingConfig );
+        populator.create();
+        populator.markAsFailed( "boom" );
+        populator.close( false );
+
+        assertEquals( InternalIndexState.FAILED, provider.getInitialState( INDEX_ID ) );
+        assertEquals( "boom", provider.getPopulationFailure( INDEX_ID ) );
+    }
+
+    @Test
+    public void shouldSeekAndRangeSeekPopulatedValues() throws Exception
+    {
+        populate( NodePropertyUpdate.add( 1, PROPERTY_KEY, 10, LABELS ),
+                NodePropertyUpdate.add( 2, PROPERTY_KEY, 20.5, LABELS ),
+                NodePropertyUpdate.add( 3, PROPERTY_KEY, -5L, LABELS ),
+                NodePropertyUpdate.add( 4, PROPERTY_KEY, "apple", LABELS ),
+                NodePropertyUpdate.add( 5, PROPERTY_KEY, "apricot", LABELS ),
+                NodePropertyUpdate.add( 6, PROPERTY_KEY, "banana", LABELS ),
+                NodePropertyUpdate.add( 7, PROPERTY_KEY, 10, LABELS ) );
+
+        try ( IndexAccessor accessor = provider.getOnlineAccessor( INDEX_ID, IndexConfiguration.NON_UNIQUE,
+                samplingConfig );
+              IndexReader reader = accessor.newReader() )
+        {
+            assertNodes( reader.seek( 10 ), 1, 7 );
+            assertNodes( reader.seek( 10.0d ), 1, 7 );
+            assertNodes( reader.seek( "apple" ), 4 );
+            assertNodes( reader.rangeSeekByNumberInclusive( -5, 20 ), 1, 3, 7 );
+            assertNodes( reader.rangeSeekByNumberInclusive( null, null ), 1, 2, 3, 7 );
+            assertNodes( reader.rangeSeekByString( "apple", false, "banana", true ), 5, 6 );
+            assertNodes( reader.rangeSeekByPrefix( "ap" ), 4, 5 );
+            assertNodes( reader.scan(), 1, 2, 3, 4, 5, 6, 7 );
+            assertEquals( 1, reader.countIndexedNodes( 1, 10 ) );
+            assertEquals( 0, reader.countIndexedNodes( 1, 20.5 ) );
+        }
+    }
+
+    @Test
+    public void shouldApplyUpdatesToOnlineIndex() throws Exception
+    {
+        populate( NodePropertyUpdate.add( 1, PROPERTY_KEY, 10, LABELS ),
+                NodePropertyUpdate.add( 2, PROPERTY_KEY, "a", LABELS ) );
+
+        try ( IndexAccessor accessor = provider.getOnlineAccessor( INDEX_ID, IndexConfiguration.NON_UNIQUE,
+                samplingConfig ) )
+        {
+            try ( IndexUpdater updater = accessor.newUpdater( IndexUpdateMode.ONLINE ) )
+            {
+                updater.process( NodePropertyUpdate.change( 1, PROPERTY_KEY, 10, LABELS, 11, LABELS ) );
+                updater.process( NodePropertyUpdate.remove( 2, PROPERTY_KEY, "a", LABELS ) );
+                updater.process( NodePropertyUpdate.add( 3, PROPERTY_KEY, "b", LABELS ) );
+            }
+
+            try ( IndexReader reader = accessor.newReader() )
+            {
+                assertNodes( reader.seek( 10 ) );
+                assertNodes( reader.seek( 11 ), 1 );
+                assertNodes( reader.seek( "a" ) );
+                assertNodes( reader.seek( "b" ), 3 );
+            }
+        }
+    }
+
+    @Test
+    public void shouldComeUpOnlineAsOfLastCheckpointAfterCrash() throws Exception
+    {
+        // given an online index that is being written to when the database crashes
+        populate( NodePropertyUpdate.add( 1, PROPERTY_KEY, 10, LABELS ) );
+        IndexAccessor accessor = provider.getOnlineAccessor( INDEX_ID, IndexConfiguration.NON_UNIQUE,
+                samplingConfig );
+        try ( IndexUpdater updater = accessor.newUpdater( IndexUpdateMode.ONLINE ) )
+        {
+            updater.process( NodePropertyUpdate.add( 2, PROPERTY_KEY, 20, LABELS ) );
+        }
+        accessor.force();
+        try ( IndexUpdater updater = accessor.newUpdater( IndexUpdateMode.ONLINE ) )
+        {
+            updater.process( NodePropertyUpdate.add( 3, PROPERTY_KEY, 30, LABELS ) );
+        }
+        EphemeralFileSystemAbstraction crashedFs = fsRule.get().snapshot();
+        accessor.close();
+
+        // when
+        NativeSchemaIndexProvider restartedProvider = new NativeSchemaIndexProvider(
+                pageCacheRule.getPageCache( crashedFs ), crashedFs, new File( "store" ).getAbsoluteFile(),
+                NullLogProvider.getInstance() );
+
+        // then the index has what it had at the checkpoint, and recovery applies the rest
+        assertEquals( InternalIndexState.ONLINE, restartedProvider.getInitialState( INDEX_ID ) );
+        try ( IndexAccessor restarted = restartedProvider.getOnlineAccessor( INDEX_ID,
+                IndexConfiguration.NON_UNIQUE, samplingConfig );
+              IndexReader reader = restarted.newReader() )
+        {
+            assertNodes( reader.scan(), 1, 2 );
+        }
+    }
+
+    private void populate( NodePropertyUpdate... updates ) throws Exception
+    {
+        IndexPopulator populator = provider.getPopulator( INDEX_ID, new IndexDescriptor( 2, PROPERTY_KEY ),
+                IndexConfiguration.NON_UNIQUE, samplingConfig );
+        populator.create();
+        populator.add( Arrays.asList( updates ) );
+        populator.close( true );
+    }
+
+    private static void assertNodes( PrimitiveLongIterator nodes, long... expected )
+    {
+        long[] actual = PrimitiveLongCollections.asArray( nodes );
+        Arrays.sort( actual );
+        assertArrayEquals( expected, actual );
+    }
+}
@@ -35,6 +35,7 @@ import static java.util.concurrent.TimeUnit.MINUTES;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
@@ -245,6 +246,38 @@ public class IdGeneratorImplTest
         assertEquals( 30, idGenerator.nextId() );
     }
 
+    @Test
+    public void shouldReadCheckpointedFreeIdsFromStickyFile() throws Exception
+    {
+        // GIVEN
+        IdGeneratorImpl.createGenerator( fsr.get(), file, 0, false );
+        IdGeneratorImpl idGenerator = new IdGeneratorImpl( fsr.get(), file, 5, 100, false, 0 );
+        for ( int i = 0; i < 20; i++ )
+        {
+            idGenerator.nextId();
+        }
+        for ( int i = 0; i < 12; i += 2 )
+        {
+            idGenerator.freeId( i );
+        }
+        // the first five freed ids are written to file as a batch, the last one only kept in memory
+        assertArrayEquals( new long[]{0, 2, 4, 6, 8}, IdGeneratorImpl.readFreeIds( fsr.get(), file ) );
+
+        // WHEN
+        idGenerator.checkpoint();
+
+        // THEN the file is still sticky, but all free ids can be read from it
+        assertArrayEquals( new long[]{0, 2, 4, 6, 8, 10}, IdGeneratorImpl.readFreeIds( fsr.get(), file ) );
+        try
+        {
+            IdGeneratorImpl.readHighId( fsr.get(), file );
+            fail( "Should have failed" );
+        }
+        catch ( InvalidIdGeneratorException e )
+        {   // good
+        }
+    }
+
     public static void main( String[] args )
     {
         // Leave it opened
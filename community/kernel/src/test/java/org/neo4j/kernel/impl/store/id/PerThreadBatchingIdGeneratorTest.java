@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.store.id;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.neo4j.test.rule.fs.EphemeralFileSystemRule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PerThreadBatchingIdGeneratorTest
+{
+    @Rule
+    public final EphemeralFileSystemRule fsr = new EphemeralFileSystemRule();
+    private final File file = new File( "ids" );
+
+    @Test
+    public void shouldHandOutUniqueIdsFromConcurrentThreads() throws Exception
+    {
+        // GIVEN
+        IdGeneratorImpl.createGenerator( fsr.get(), file, 0, false );
+        IdGenerator idGenerator = new PerThreadBatchingIdGenerator(
+                new IdGeneratorImpl( fsr.get(), file, 100, Long.MAX_VALUE, false, 0 ), 10 );
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool( 4 );
+
+        // WHEN
+        try
+        {
+            List<Future<?>> futures = new ArrayList<>();
+            for ( int i = 0; i < 4; i++ )
+            {
+                futures.add( executor.submit( () ->
+                {
+                    for ( int j = 0; j < 1_005; j++ )
+                    {
+                        assertTrue( ids.add( idGenerator.nextId() ) );
+                    }
+                } ) );
+            }
+            for ( Future<?> future : futures )
+            {
+                future.get();
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+
+        // THEN
+        assertEquals( 4 * 1_005, ids.size() );
+    }
+
+    @Test
+    public void shouldFreeIdsLeftInBatchesOnClose() throws Exception
+    {
+        // GIVEN
+        IdGeneratorImpl.createGenerator( fsr.get(), file, 0, false );
+        IdGenerator idGenerator = new PerThreadBatchingIdGenerator(
+                new IdGeneratorImpl( fsr.get(), file, 100, Long.MAX_VALUE, false, 0 ), 10 );
+        for ( int i = 0; i < 3; i++ )
+        {
+            assertEquals( i, idGenerator.nextId() );
+        }
+        assertEquals( 10, idGenerator.getHighId() );
+
+        // WHEN
+        idGenerator.close();
+
+        // THEN the seven ids never handed out are reused next time
+        idGenerator = new IdGeneratorImpl( fsr.get(), file, 100, Long.MAX_VALUE, false, 0 );
+        assertEquals( 7, idGenerator.getDefragCount() );
+        assertEquals( 3, idGenerator.nextId() );
+    }
+}
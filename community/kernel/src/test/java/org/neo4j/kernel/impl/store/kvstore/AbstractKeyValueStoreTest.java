@@ -45,7 +45,9 @@ import org.neo4j.time.Clocks;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.neo4j.kernel.impl.store.kvstore.DataProvider.EMPTY_DATA_PROVIDER;
 import static org.neo4j.test.rule.Resources.InitialLifecycle.STARTED;
 import static org.neo4j.test.rule.Resources.TestPath.FILE_IN_EXISTING_DIRECTORY;
@@ -392,6 +394,62 @@ public class AbstractKeyValueStoreTest
         store.prepareRotation( 10L ).rotate();
     }
 
+    @Test
+    public void shouldOnlyWriteChangedEntriesWhenRotatingIncrementally() throws Exception
+    {
+        String storeFile;
+        try ( Lifespan life = new Lifespan() )
+        {
+            Store store = life.add( new IncrementalStore() );
+            for ( long txId = 2; txId <= 9; txId++ )
+            {
+                updateStore( store, txId );
+            }
+            store.prepareRotation( 9 ).rotate();
+            storeFile = store.currentFile().getName();
+            assertEquals( 8, store.totalEntriesStored() );
+
+            // when
+            updateStore( store, 10 );
+            try ( EntryUpdater<String> updater = store.updater( 11 ).get() )
+            {
+                updater.apply( "key 2", store.value( "changed" ) );
+            }
+            store.prepareRotation( 11 ).rotate();
+
+            // then
+            assertEquals( "only a delta should be written", storeFile, store.currentFile().getName() );
+            File delta = store.rotationStrategy.deltaFiles( store.currentFile() )[0];
+            assertTrue( resourceManager.fileSystem().fileExists( delta ) );
+            assertEquals( 11L, store.headers().get( TX_ID ).longValue() );
+            assertEquals( 9, store.totalEntriesStored() );
+        }
+
+        try ( Lifespan life = new Lifespan() )
+        {
+            Store store = life.add( new IncrementalStore() );
+            assertEquals( storeFile, store.currentFile().getName() );
+            assertEquals( 11L, store.headers().get( TX_ID ).longValue() );
+            assertEquals( 9, store.totalEntriesStored() );
+            assertEquals( "changed", store.get( "key 2" ) );
+            assertEquals( "value 3", store.get( "key 3" ) );
+            assertEquals( "value 10", store.get( "key 10" ) );
+
+            // when
+            for ( long txId = 12; txId <= 20; txId++ )
+            {
+                updateStore( store, txId );
+            }
+            store.prepareRotation( 20 ).rotate();
+
+            // then
+            assertNotEquals( "the delta should be compacted", storeFile, store.currentFile().getName() );
+            assertEquals( 18, store.totalEntriesStored() );
+            assertEquals( "changed", store.get( "key 2" ) );
+            assertEquals( "value 20", store.get( "key 20" ) );
+        }
+    }
+
     private Store createTestStore()
     {
         return createTestStore( TimeUnit.SECONDS.toMillis( 100 ) );
@@ -469,6 +527,28 @@ public class AbstractKeyValueStoreTest
         void write( WritableBuffer key, WritableBuffer value );
     }
 
+    @Rotation( value = Rotation.Strategy.LEFT_RIGHT, compactionRatio = 2 )
+    class IncrementalStore extends Store
+    {
+        IncrementalStore()
+        {
+            super( TimeUnit.SECONDS.toMillis( 100 ), TX_ID );
+        }
+
+        @SuppressWarnings( "unchecked" )
+        @Override
+        <Value> Value initialHeader( HeaderField<Value> field )
+        {
+            return field == TX_ID ? (Value) (Object) 1L : super.initialHeader( field );
+        }
+
+        @Override
+        protected int compareHeaders( Headers lhs, Headers rhs )
+        {
+            return Long.compare( lhs.get( TX_ID ), rhs.get( TX_ID ) );
+        }
+    }
+
     @Rotation( Rotation.Strategy.INCREMENTING )
     class Store extends AbstractKeyValueStore<String>
     {
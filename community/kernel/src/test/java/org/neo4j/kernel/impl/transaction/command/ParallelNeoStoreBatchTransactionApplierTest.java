@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.command;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.impl.api.TransactionToApply;
+import org.neo4j.kernel.impl.core.CacheAccessBackDoor;
+import org.neo4j.kernel.impl.locking.LockService;
+import org.neo4j.kernel.impl.store.NeoStores;
+import org.neo4j.kernel.impl.store.NodeStore;
+import org.neo4j.kernel.impl.store.StoreFactory;
+import org.neo4j.kernel.impl.store.id.DefaultIdGeneratorFactory;
+import org.neo4j.kernel.impl.store.record.DynamicRecord;
+import org.neo4j.kernel.impl.store.record.NodeRecord;
+import org.neo4j.kernel.impl.transaction.log.PhysicalTransactionRepresentation;
+import org.neo4j.logging.NullLogProvider;
+import org.neo4j.storageengine.api.StorageCommand;
+import org.neo4j.test.rule.PageCacheRule;
+import org.neo4j.test.rule.fs.EphemeralFileSystemRule;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.neo4j.kernel.impl.store.record.RecordLoad.NORMAL;
+
+public class ParallelNeoStoreBatchTransactionApplierTest
+{
+    private static final int PARTITIONS = 4;
+    private static final int BATCH_SIZE = 30;
+
+    @Rule
+    public final EphemeralFileSystemRule fsr = new EphemeralFileSystemRule();
+    @Rule
+    public final PageCacheRule pageCacheRule = new PageCacheRule();
+    private NeoStores neoStores;
+    private ParallelNeoStoreBatchTransactionApplier.Partitions partitions;
+
+    @Before
+    public void before()
+    {
+        FileSystemAbstraction fs = fsr.get();
+        File storeDir = new File( "dir" );
+        StoreFactory storeFactory = new StoreFactory( storeDir, Config.empty(), new DefaultIdGeneratorFactory( fs ),
+                pageCacheRule.getPageCache( fs ), fs, NullLogProvider.getInstance() );
+        neoStores = storeFactory.openAllNeoStores( true );
+        partitions = new ParallelNeoStoreBatchTransactionApplier.Partitions( PARTITIONS );
+    }
+
+    @After
+    public void after() throws Exception
+    {
+        partitions.close();
+        neoStores.close();
+    }
+
+    @Test
+    public void shouldApplyUpdatesToTheSameRecordInTransactionOrder() throws Exception
+    {
+        // GIVEN nodes on different pages, which are updated by every transaction
+        NodeStore nodeStore = neoStores.getNodeStore();
+        long[] nodeIds = new long[PARTITIONS * 2];
+        for ( int i = 0; i < nodeIds.length; i++ )
+        {
+            nodeIds[i] = i * (long) nodeStore.getRecordsPerPage() + i;
+        }
+        List<TransactionToApply> transactions = new ArrayList<>();
+        for ( long txId = 2; txId < 1_000; txId++ )
+        {
+            List<StorageCommand> commands = new ArrayList<>();
+            for ( long nodeId : nodeIds )
+            {
+                commands.add( new Command.NodeCommand( new NodeRecord( nodeId ), node( nodeId, txId ) ) );
+            }
+            transactions.add( transaction( txId, commands ) );
+        }
+
+        // WHEN
+        apply( transactions );
+
+        // THEN the last update to every node wins
+        for ( long nodeId : nodeIds )
+        {
+            NodeRecord record = nodeStore.getRecord( nodeId, nodeStore.newRecord(), NORMAL );
+            assertEquals( 999, record.getNextRel() );
+        }
+    }
+
+    @Test
+    public void shouldApplyDynamicRecordReusedByRecordInOtherPartition() throws Exception
+    {
+        // GIVEN two nodes on different pages, that one after the other own the same dynamic label record
+        NodeStore nodeStore = neoStores.getNodeStore();
+        long firstNode = 0;
+        long secondNode = nodeStore.getRecordsPerPage();
+        long dynamicRecordId = neoStores.getNodeStore().getDynamicLabelStore().nextId();
+
+        NodeRecord first = node( firstNode, 1 );
+        first.setLabelField( 0, Collections.singletonList( labels( dynamicRecordId, new byte[]{1, 2, 3} ) ) );
+        NodeRecord second = node( secondNode, 1 );
+        second.setLabelField( 0, Collections.singletonList( labels( dynamicRecordId, new byte[]{4, 5, 6} ) ) );
+
+        // WHEN
+        List<TransactionToApply> transactions = new ArrayList<>();
+        for ( long txId = 2; txId < 100; txId += 2 )
+        {
+            transactions.add( transaction( txId,
+                    Collections.singletonList( new Command.NodeCommand( new NodeRecord( firstNode ), first ) ) ) );
+            transactions.add( transaction( txId + 1,
+                    Collections.singletonList( new Command.NodeCommand( new NodeRecord( secondNode ), second ) ) ) );
+        }
+        apply( transactions );
+
+        // THEN the dynamic record has the data of the last update
+        DynamicRecord record = nodeStore.getDynamicLabelStore().getRecord( dynamicRecordId,
+                nodeStore.getDynamicLabelStore().newRecord(), NORMAL );
+        assertArrayEquals( new byte[]{4, 5, 6}, record.getData() );
+    }
+
+    private void apply( List<TransactionToApply> transactions ) throws Exception
+    {
+        // in batches that share the partitions, like the batches of recovery do
+        for ( int from = 0; from < transactions.size(); from += BATCH_SIZE )
+        {
+            List<TransactionToApply> batch = transactions.subList( from,
+                    Math.min( from + BATCH_SIZE, transactions.size() ) );
+            ParallelNeoStoreBatchTransactionApplier applier = new ParallelNeoStoreBatchTransactionApplier(
+                    neoStores, mock( CacheAccessBackDoor.class ), LockService.NO_LOCK_SERVICE, partitions );
+            CommandHandlerContract.apply( applier, batch.toArray( new TransactionToApply[batch.size()] ) );
+        }
+        partitions.drain();
+    }
+
+    private static TransactionToApply transaction( long txId, List<StorageCommand> commands )
+    {
+        return new TransactionToApply( new PhysicalTransactionRepresentation( commands ), txId );
+    }
+
+    private static NodeRecord node( long nodeId, long nextRel )
+    {
+        NodeRecord record = new NodeRecord( nodeId, false, nextRel, -1 );
+        record.setInUse( true );
+        return record;
+    }
+
+    private static DynamicRecord labels( long id, byte[] data )
+    {
+        DynamicRecord record = new DynamicRecord( id );
+        record.setInUse( true );
+        record.setStartRecord( true );
+        record.setData( data );
+        return record;
+    }
+}
@@ -29,6 +29,7 @@ import java.io.Flushable;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.neo4j.kernel.impl.api.TransactionToApply;
 import org.neo4j.kernel.impl.store.record.NodeRecord;
@@ -53,9 +54,9 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.anyByte;
-import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.RETURNS_MOCKS;
@@ -224,6 +225,70 @@ public class BatchingTransactionAppenderTest
         }
     }
 
+    @Test
+    public void shouldSerializeCommandsOutsideOfTheLogFileMonitor() throws Exception
+    {
+        // GIVEN
+        when( logFile.getWriter() ).thenReturn( channel );
+        when( transactionIdStore.nextCommittingTransactionId() ).thenReturn( 2L, 3L );
+        TransactionAppender appender = life.add( new BatchingTransactionAppender( logFile, NO_ROTATION, positionCache,
+                transactionIdStore, BYPASS, databaseHealth ) );
+        AtomicInteger commandsSerializedUnderMonitor = new AtomicInteger();
+        Collection<StorageCommand> commands = new ArrayList<>();
+        commands.add( serializationChannel ->
+        {
+            if ( Thread.holdsLock( logFile ) )
+            {
+                commandsSerializedUnderMonitor.incrementAndGet();
+            }
+            serializationChannel.put( (byte) 0 );
+        } );
+
+        // WHEN
+        appender.append( batchOf(
+                transaction( commands, new byte[0], 0, 0, 0, 1, 0 ),
+                transaction( commands, new byte[0], 0, 0, 0, 1, 0 ) ), logAppendEvent );
+
+        // THEN
+        assertEquals( 0, commandsSerializedUnderMonitor.get() );
+    }
+
+    @Test
+    public void shouldAppendBatchOfSmallAndLargeTransactions() throws Exception
+    {
+        // GIVEN
+        when( logFile.getWriter() ).thenReturn( channel );
+        when( transactionIdStore.nextCommittingTransactionId() ).thenReturn( 2L, 3L, 4L );
+        TransactionAppender appender = life.add( new BatchingTransactionAppender( logFile, NO_ROTATION, positionCache,
+                transactionIdStore, BYPASS, databaseHealth ) );
+        Collection<StorageCommand> largeCommands = new ArrayList<>();
+        for ( int i = 0; i < 5; i++ )
+        {
+            largeCommands.addAll( singleCreateNodeCommand( i ) );
+        }
+
+        // WHEN
+        appender.append( batchOf(
+                transaction( singleCreateNodeCommand( 5 ), new byte[0], 0, 0, 0, 1, 0 ),
+                transaction( largeCommands, new byte[0], 0, 0, 0, 1, 0 ),
+                transaction( singleCreateNodeCommand( 6 ), new byte[0], 0, 0, 0, 1, 0 ) ), logAppendEvent );
+
+        // THEN
+        LogEntryReader<ReadableLogChannel> logEntryReader = new VersionAwareLogEntryReader<>();
+        try ( PhysicalTransactionCursor<ReadableLogChannel> reader =
+                      new PhysicalTransactionCursor<>( channel, logEntryReader ) )
+        {
+            int[] expectedCommandCounts = {1, 5, 1};
+            for ( int i = 0; i < expectedCommandCounts.length; i++ )
+            {
+                assertTrue( reader.next() );
+                CommittedTransactionRepresentation tx = reader.get();
+                assertEquals( 2L + i, tx.getCommitEntry().getTxId() );
+                assertEquals( expectedCommandCounts[i], commandCount( tx.getTransactionRepresentation() ) );
+            }
+        }
+    }
+
     @Test
     public void shouldNotCallTransactionClosedOnFailedAppendedTransaction() throws Exception
     {
@@ -232,7 +297,7 @@ public class BatchingTransactionAppenderTest
         String failureMessage = "Forces a failure";
         FlushablePositionAwareChannel channel = spy( new InMemoryClosableChannel() );
         IOException failure = new IOException( failureMessage );
-        when( channel.putInt( anyInt() ) ).thenThrow( failure );
+        when( channel.putLong( anyLong() ) ).thenThrow( failure );
         when( logFile.getWriter() ).thenReturn( channel );
         when( transactionIdStore.nextCommittingTransactionId() ).thenReturn( txId );
         Mockito.reset( databaseHealth );
@@ -363,6 +428,17 @@ public class BatchingTransactionAppenderTest
         return tx;
     }
 
+    private int commandCount( TransactionRepresentation transaction ) throws IOException
+    {
+        AtomicInteger count = new AtomicInteger();
+        transaction.accept( command ->
+        {
+            count.incrementAndGet();
+            return false;
+        } );
+        return count.get();
+    }
+
     private Collection<StorageCommand> singleCreateNodeCommand( long id )
     {
         Collection<StorageCommand> commands = new ArrayList<>();
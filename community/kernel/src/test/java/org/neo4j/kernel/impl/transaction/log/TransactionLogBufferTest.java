@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.neo4j.kernel.impl.index.IndexCommand.AddNodeCommand;
+import org.neo4j.kernel.impl.store.record.NodeRecord;
+import org.neo4j.kernel.impl.transaction.TransactionRepresentation;
+import org.neo4j.kernel.impl.transaction.command.Command.NodeCommand;
+import org.neo4j.kernel.impl.transaction.log.entry.LogEntryWriter;
+import org.neo4j.storageengine.api.StorageCommand;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TransactionLogBufferTest
+{
+    @Test
+    public void shouldSerializeTheSameBytesAsTheTransactionLogWriter() throws Exception
+    {
+        // GIVEN
+        TransactionLogBuffer buffer = new TransactionLogBuffer();
+        TransactionRepresentation transaction = transaction( nodeCommands( 3 ) );
+
+        // WHEN
+        buffer.serialize( transaction );
+
+        // THEN
+        assertArrayEquals( expectedBytes( transaction ), writtenBytes( buffer ) );
+    }
+
+    @Test
+    public void shouldGrowToFitLargeTransactionsAndShrinkWhenReleased() throws Exception
+    {
+        // GIVEN
+        TransactionLogBuffer buffer = new TransactionLogBuffer( 16, 64 );
+        TransactionRepresentation transaction = transaction( nodeCommands( 5 ) );
+
+        // WHEN
+        buffer.serialize( transaction );
+
+        // THEN
+        assertTrue( buffer.capacity() > 64 );
+        assertArrayEquals( expectedBytes( transaction ), writtenBytes( buffer ) );
+        buffer.release();
+        assertEquals( 16, buffer.capacity() );
+        assertEquals( 0, buffer.size() );
+    }
+
+    @Test
+    public void shouldReplacePreviouslySerializedTransaction() throws Exception
+    {
+        // GIVEN
+        TransactionLogBuffer buffer = new TransactionLogBuffer();
+        buffer.serialize( transaction( nodeCommands( 5 ) ) );
+
+        // WHEN
+        TransactionRepresentation transaction = transaction( nodeCommands( 1 ) );
+        buffer.serialize( transaction );
+
+        // THEN
+        assertArrayEquals( expectedBytes( transaction ), writtenBytes( buffer ) );
+    }
+
+    @Test
+    public void shouldDetectLegacyIndexCommands() throws Exception
+    {
+        // GIVEN
+        TransactionLogBuffer buffer = new TransactionLogBuffer();
+        Collection<StorageCommand> commands = nodeCommands( 1 );
+        AddNodeCommand indexCommand = new AddNodeCommand();
+        indexCommand.init( 1, 2, 3, "value" );
+        commands.add( indexCommand );
+
+        // WHEN
+        buffer.serialize( transaction( commands ) );
+
+        // THEN
+        assertTrue( buffer.hasLegacyIndexChanges() );
+        buffer.serialize( transaction( nodeCommands( 1 ) ) );
+        assertFalse( buffer.hasLegacyIndexChanges() );
+    }
+
+    private byte[] expectedBytes( TransactionRepresentation transaction ) throws IOException
+    {
+        InMemoryClosableChannel channel = new InMemoryClosableChannel();
+        new TransactionLogWriter( new LogEntryWriter( channel ) ).appendStartAndCommands( transaction );
+        return bytes( channel );
+    }
+
+    private byte[] writtenBytes( TransactionLogBuffer buffer ) throws IOException
+    {
+        InMemoryClosableChannel channel = new InMemoryClosableChannel();
+        buffer.writeTo( channel );
+        assertEquals( buffer.size(), channel.writerPosition() );
+        return bytes( channel );
+    }
+
+    private byte[] bytes( InMemoryClosableChannel channel ) throws IOException
+    {
+        byte[] bytes = new byte[channel.writerPosition()];
+        channel.get( bytes, bytes.length );
+        return bytes;
+    }
+
+    private TransactionRepresentation transaction( Collection<StorageCommand> commands )
+    {
+        PhysicalTransactionRepresentation tx = new PhysicalTransactionRepresentation( commands );
+        tx.setHeader( new byte[]{1, 2, 3}, 1, 2, 3, 4, 5, -1 );
+        return tx;
+    }
+
+    private Collection<StorageCommand> nodeCommands( int count )
+    {
+        Collection<StorageCommand> commands = new ArrayList<>();
+        for ( int id = 0; id < count; id++ )
+        {
+            NodeRecord before = new NodeRecord( id );
+            NodeRecord after = new NodeRecord( id );
+            after.setInUse( true );
+            commands.add( new NodeCommand( before, after ) );
+        }
+        return commands;
+    }
+}
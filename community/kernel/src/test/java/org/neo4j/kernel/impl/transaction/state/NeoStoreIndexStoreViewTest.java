@@ -43,6 +43,7 @@ import org.neo4j.kernel.api.index.NodePropertyUpdate;
 import org.neo4j.kernel.api.labelscan.NodeLabelUpdate;
 import org.neo4j.kernel.api.properties.Property;
 import org.neo4j.kernel.impl.api.index.NodePropertyUpdates;
+import org.neo4j.kernel.impl.api.index.PartitionedStoreScan;
 import org.neo4j.kernel.impl.api.index.StoreScan;
 import org.neo4j.kernel.impl.core.ThreadToStatementContextBridge;
 import org.neo4j.kernel.impl.locking.Lock;
@@ -51,10 +52,12 @@ import org.neo4j.kernel.impl.storageengine.impl.recordstorage.RecordStorageEngin
 import org.neo4j.kernel.impl.store.NeoStores;
 import org.neo4j.kernel.impl.store.record.NodeRecord;
 import org.neo4j.kernel.impl.store.record.RecordLoad;
+import org.neo4j.kernel.impl.util.JobScheduler;
 import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import org.neo4j.test.rule.EmbeddedDatabaseRule;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
@@ -124,6 +127,28 @@ public class NeoStoreIndexStoreViewTest
             ), visitor.getUpdates() );
     }
 
+    @Test
+    public void shouldScanExistingNodesForALabelInPartitions() throws Exception
+    {
+        // given
+        NodeUpdateCollectingVisitor visitor = new NodeUpdateCollectingVisitor();
+        JobScheduler scheduler = graphDb.getDependencyResolver().resolveDependency( JobScheduler.class );
+        PartitionedStoreScan<Exception> storeScan = new NeoStoreIndexStoreView( locks, neoStores, scheduler )
+            .visitNodesInPartitions( 4, (id) -> id == labelId, (id) -> id == propertyKeyId, visitor );
+
+        // when
+        storeScan.run();
+
+        // then
+        assertEquals(
+            asSet(
+                NodePropertyUpdate.add( alistair.getId(), propertyKeyId, "Alistair", new long[] { labelId } ),
+                NodePropertyUpdate.add( stefan.getId(), propertyKeyId, "Stefan", new long[] { labelId } )
+            ), visitor.getUpdates() );
+        assertTrue( storeScan.hasVisited( stefan.getId() ) );
+        assertFalse( storeScan.isInFlight( stefan.getId() ) );
+    }
+
     @Test
     public void shouldIgnoreDeletedNodesDuringScan() throws Exception
     {
@@ -97,6 +97,58 @@ public class NodeRelationshipCacheTest
         assertTrue( cache.isDense( 25 ) );
     }
 
+    @Test
+    public void shouldKeepExistingNodesDenseOrSparseAsInStore() throws Exception
+    {
+        // GIVEN nodes 0-2 existed before the import, where 0 was dense and 1 and 2 sparse
+        cache = new NodeRelationshipCache( NumberArrayFactory.AUTO, 5, 100, base );
+        cache.setHighNodeId( 5 );
+        increment( cache, 0, 2 );
+        increment( cache, 1, 8 );
+        increment( cache, 2, 3 );
+        increment( cache, 3, 8 );
+
+        // WHEN
+        cache.setFirstNewNodeId( 3 );
+        cache.markAsExisting( 0, true );
+        cache.markAsExisting( 1, false );
+        cache.markAsExisting( 2, false );
+
+        // THEN
+        assertTrue( cache.isDense( 0 ) );
+        assertFalse( cache.isDense( 1 ) );
+        assertFalse( cache.isDense( 2 ) );
+        assertTrue( cache.isDense( 3 ) );
+        assertFalse( cache.isDense( 4 ) );
+    }
+
+    @Test
+    public void shouldAddExistingDegreeToCounts() throws Exception
+    {
+        // GIVEN a sparse and a dense node which existed before the import
+        cache = new NodeRelationshipCache( NumberArrayFactory.AUTO, 5, 100, base );
+        cache.setHighNodeId( 2 );
+        increment( cache, 0, 8 );
+        increment( cache, 1, 2 );
+        cache.setFirstNewNodeId( 2 );
+        cache.markAsExisting( 0, false );
+        cache.markAsExisting( 1, true );
+        cache.setForwardScan( true );
+        cache.getAndPutRelationship( 0, OUTGOING, 10, true );
+        cache.getAndPutRelationship( 1, INCOMING, 11, true );
+        cache.getAndPutRelationship( 1, INCOMING, 12, true );
+
+        // WHEN
+        cache.addCount( 0, OUTGOING, 100 );
+        cache.addCount( 1, INCOMING, 50 );
+
+        // THEN
+        assertEquals( 108, cache.getCount( 0, OUTGOING ) );
+        assertEquals( 52, cache.getCount( 1, INCOMING ) );
+        assertEquals( 0, cache.getCount( 1, OUTGOING ) );
+        assertFalse( cache.isDense( 0 ) );
+    }
+
     @Test
     public void shouldGoThroughThePhases() throws Exception
     {
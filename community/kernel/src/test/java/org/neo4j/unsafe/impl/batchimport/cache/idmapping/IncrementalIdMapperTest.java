@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport.cache.idmapping;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.test.rule.fs.EphemeralFileSystemRule;
+import org.neo4j.unsafe.impl.batchimport.InputIterable;
+import org.neo4j.unsafe.impl.batchimport.input.Collectors;
+import org.neo4j.unsafe.impl.batchimport.input.InputNode;
+
+import static org.junit.Assert.assertEquals;
+import static org.neo4j.helpers.progress.ProgressListener.NONE;
+import static org.neo4j.unsafe.impl.batchimport.cache.NumberArrayFactory.AUTO;
+import static org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdMapper.ID_NOT_FOUND;
+import static org.neo4j.unsafe.impl.batchimport.input.Group.GLOBAL;
+import static org.neo4j.unsafe.impl.batchimport.input.SimpleInputIteratorWrapper.wrap;
+
+public class IncrementalIdMapperTest
+{
+    @Rule
+    public final EphemeralFileSystemRule fsRule = new EphemeralFileSystemRule();
+
+    private FileSystemAbstraction fs;
+    private final File storeDir = new File( "store" ).getAbsoluteFile();
+
+    @Before
+    public void setUp() throws IOException
+    {
+        fs = fsRule.get();
+        fs.mkdirs( storeDir );
+    }
+
+    @Test
+    public void shouldFindNodesOfPreviousImportsInPersistedSegments() throws Exception
+    {
+        // GIVEN
+        importAndPersist( 0, "a", "b", "c" );
+        importAndPersist( 3, "d", "e" );
+
+        // WHEN
+        IdMapper idMapper = prepare( incremental( 5 ), 5, "f", "a" );
+
+        // THEN
+        assertEquals( 1, idMapper.get( "b", GLOBAL ) );
+        assertEquals( 4, idMapper.get( "e", GLOBAL ) );
+        assertEquals( 5, idMapper.get( "f", GLOBAL ) );
+        assertEquals( 6, idMapper.get( "a", GLOBAL ) );
+        assertEquals( ID_NOT_FOUND, idMapper.get( "g", GLOBAL ) );
+        idMapper.close();
+    }
+
+    @Test
+    public void shouldNotPersistNodesRemovedAsDuplicates() throws Exception
+    {
+        // GIVEN
+        long written = importAndPersist( 0, "a", "b", "a" );
+
+        // WHEN
+        IdMapper idMapper = prepare( incremental( 3 ), 3 );
+
+        // THEN
+        assertEquals( 2, written );
+        assertEquals( 0, idMapper.get( "a", GLOBAL ) );
+        assertEquals( 1, idMapper.get( "b", GLOBAL ) );
+        idMapper.close();
+    }
+
+    @Test
+    public void shouldNotWriteEmptySegments() throws Exception
+    {
+        // WHEN
+        long written = importAndPersist( 0 );
+
+        // THEN
+        assertEquals( 0, written );
+        assertEquals( 0, IdMappingSegment.loadAll( fs, storeDir, AUTO ).size() );
+    }
+
+    private long importAndPersist( long firstNodeId, String... ids ) throws Exception
+    {
+        IdMapper idMapper = prepare( incremental( firstNodeId ), firstNodeId, ids );
+        try
+        {
+            return IdMappingSegment.write( fs, storeDir, nodes( ids ), idMapper, firstNodeId );
+        }
+        finally
+        {
+            idMapper.close();
+        }
+    }
+
+    private IdMapper incremental( long firstNodeId ) throws Exception
+    {
+        return new IncrementalIdMapper( IdMappers.strings( AUTO ), firstNodeId,
+                IdMappingSegment.loadAll( fs, storeDir, AUTO ) );
+    }
+
+    private static IdMapper prepare( IdMapper idMapper, long firstNodeId, String... ids )
+    {
+        List<Object> allIds = new ArrayList<>();
+        for ( int i = 0; i < ids.length; i++ )
+        {
+            idMapper.put( ids[i], firstNodeId + i, GLOBAL );
+            allIds.add( ids[i] );
+        }
+        idMapper.prepare( wrap( "ids", allIds ), Collectors.silentBadCollector( ids.length ), NONE );
+        return idMapper;
+    }
+
+    private static InputIterable<InputNode> nodes( String... ids )
+    {
+        List<InputNode> nodes = new ArrayList<>();
+        for ( String id : ids )
+        {
+            nodes.add( new InputNode( "source", 0, 0, id, new Object[0], null, new String[0], null ) );
+        }
+        return wrap( "nodes", nodes );
+    }
+}
@@ -19,13 +19,20 @@
  */
 package org.neo4j.kernel.api.impl.schema;
 
+import java.io.File;
+
 import org.neo4j.helpers.Service;
+import org.neo4j.graphdb.factory.GraphDatabaseSettings;
 import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.PageCache;
 import org.neo4j.kernel.api.impl.index.storage.DirectoryFactory;
 import org.neo4j.kernel.api.index.SchemaIndexProvider;
 import org.neo4j.kernel.configuration.Config;
 import org.neo4j.kernel.extension.KernelExtensionFactory;
 import org.neo4j.kernel.impl.factory.GraphDatabaseFacadeFactory;
+import org.neo4j.kernel.impl.factory.OperationalMode;
+import org.neo4j.kernel.impl.index.schema.NativeSchemaIndexProvider;
+import org.neo4j.kernel.impl.index.schema.fusion.FusionSchemaIndexProvider;
 import org.neo4j.kernel.impl.logging.LogService;
 import org.neo4j.kernel.impl.spi.KernelContext;
 import org.neo4j.logging.LogProvider;
@@ -45,6 +52,8 @@ public class LuceneSchemaIndexProviderFactory extends
     {
         Config getConfig();
 
+        PageCache pageCache();
+
         LogService getLogging();
     }
 
@@ -54,7 +63,7 @@ public class LuceneSchemaIndexProviderFactory extends
     }
 
     @Override
-    public LuceneSchemaIndexProvider newInstance( KernelContext context, Dependencies dependencies ) throws Throwable
+    public SchemaIndexProvider newInstance( KernelContext context, Dependencies dependencies ) throws Throwable
     {
         Config config = dependencies.getConfig();
         LogProvider logging = dependencies.getLogging().getInternalLogProvider();
@@ -63,7 +72,24 @@ public class LuceneSchemaIndexProviderFactory extends
         FileSystemAbstraction fileSystem = context.fileSystem();
         DirectoryFactory directoryFactory = directoryFactory( ephemeral, fileSystem );
 
-        return new LuceneSchemaIndexProvider( fileSystem, directoryFactory, context.storeDir(), logging, config,
-                context.databaseInfo().operationalMode );
+        return newSchemaIndexProvider( dependencies.pageCache(), fileSystem, directoryFactory, context.storeDir(),
+                logging, config, context.databaseInfo().operationalMode );
+    }
+
+    /**
+     * Create the schema index provider of a database: a Lucene index, with a native index in front of it when
+     * {@link GraphDatabaseSettings#native_schema_index_enabled enabled}. Tools that read schema indexes outside of
+     * a running database must use this too, since entries kept in the native index are invisible to Lucene.
+     */
+    public static SchemaIndexProvider newSchemaIndexProvider( PageCache pageCache, FileSystemAbstraction fileSystem,
+            DirectoryFactory directoryFactory, File storeDir, LogProvider logging, Config config,
+            OperationalMode operationalMode )
+    {
+        LuceneSchemaIndexProvider luceneProvider = new LuceneSchemaIndexProvider( fileSystem, directoryFactory,
+                storeDir, logging, config, operationalMode );
+        NativeSchemaIndexProvider nativeProvider = new NativeSchemaIndexProvider( pageCache, fileSystem, storeDir,
+                logging );
+        return new FusionSchemaIndexProvider( nativeProvider, luceneProvider, 1,
+                config.get( GraphDatabaseSettings.native_schema_index_enabled ) );
     }
 }
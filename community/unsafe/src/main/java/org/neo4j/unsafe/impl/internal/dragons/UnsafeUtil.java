@@ -276,6 +276,15 @@ public final class UnsafeUtil
         return unsafe.compareAndSwapLong( obj, offset, expected, update );
     }
 
+    /**
+     * Same as compareAndSwapLong, but for int fields.
+     */
+    public static boolean compareAndSwapInt(
+            Object obj, long offset, int expected, int update )
+    {
+        return unsafe.compareAndSwapInt( obj, offset, expected, update );
+    }
+
     /**
      * Same as compareAndSwapLong, but for object references.
      */
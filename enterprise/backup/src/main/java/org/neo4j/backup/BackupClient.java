@@ -35,6 +35,8 @@ import org.neo4j.com.Serializer;
 import org.neo4j.com.TargetCaller;
 import org.neo4j.com.monitor.RequestMonitor;
 import org.neo4j.com.storecopy.ResponseUnpacker;
+import org.neo4j.com.storecopy.StoreCopyCompression;
+import org.neo4j.com.storecopy.StoreCopyServer;
 import org.neo4j.com.storecopy.StoreWriter;
 import org.neo4j.com.storecopy.ToNetworkStoreWriter;
 import org.neo4j.kernel.impl.store.StoreId;
@@ -66,6 +68,32 @@ class BackupClient extends Client<TheBackupInterface> implements TheBackupInterf
 
     @Override
     public Response<Void> fullBackup( StoreWriter storeWriter, final boolean forensics )
+    {
+        return fullBackup( storeWriter, forensics, StoreCopyCompression.NONE );
+    }
+
+    /**
+     * Like {@link #fullBackup(StoreWriter, boolean)}, but asks the server to compress the store files
+     * with the given codec. Servers which don't support compression send the store files uncompressed.
+     */
+    public Response<Void> fullBackup( StoreWriter storeWriter, final boolean forensics,
+            final StoreCopyCompression compression )
+    {
+        return deltaBackup( storeWriter, forensics, compression, StoreCopyServer.NO_PREVIOUS_COPY );
+    }
+
+    @Override
+    public Response<Void> deltaBackup( StoreWriter storeWriter, boolean forensics, long lastCommittedTxId )
+    {
+        return deltaBackup( storeWriter, forensics, StoreCopyCompression.NONE, lastCommittedTxId );
+    }
+
+    /**
+     * Like {@link #deltaBackup(StoreWriter, boolean, long)}, but asks the server to compress the store files
+     * with the given codec. Servers which don't support delta backups send all store files in full.
+     */
+    public Response<Void> deltaBackup( StoreWriter storeWriter, final boolean forensics,
+            final StoreCopyCompression compression, final long lastCommittedTxId )
     {
         return sendRequest( BackupRequestType.FULL_BACKUP, RequestContext.EMPTY, new Serializer()
         {
@@ -73,6 +101,11 @@ class BackupClient extends Client<TheBackupInterface> implements TheBackupInterf
             public void write( ChannelBuffer buffer ) throws IOException
             {
                 buffer.writeByte( forensics ? (byte) 1 : (byte) 0 );
+                buffer.writeByte( compression.id() );
+                if ( lastCommittedTxId != StoreCopyServer.NO_PREVIOUS_COPY )
+                {
+                    buffer.writeLong( lastCommittedTxId );
+                }
             }
         }, new Protocol.FileStreamsDeserializer( storeWriter ) );
     }
@@ -99,7 +132,13 @@ class BackupClient extends Client<TheBackupInterface> implements TheBackupInterf
                     ChannelBuffer input, ChannelBuffer target )
             {
                 boolean forensics = input.readable() ? booleanOf( input.readByte() ) : false;
-                return master.fullBackup( new ToNetworkStoreWriter( target, new Monitors() ), forensics );
+                StoreCopyCompression compression = input.readable() ? StoreCopyCompression.forId( input.readByte() )
+                                                                    : StoreCopyCompression.NONE;
+                long lastCommittedTxId = input.readable() ? input.readLong() : StoreCopyServer.NO_PREVIOUS_COPY;
+                ToNetworkStoreWriter writer = new ToNetworkStoreWriter( target, new Monitors(), compression );
+                return lastCommittedTxId == StoreCopyServer.NO_PREVIOUS_COPY
+                       ? master.fullBackup( writer, forensics )
+                       : master.deltaBackup( writer, forensics, lastCommittedTxId );
             }
 
             private boolean booleanOf( byte value )
@@ -67,13 +67,7 @@ class BackupImpl implements TheBackupInterface
         try ( StoreWriter storeWriter = writer )
         {
             logger.log( "Full backup started..." );
-            RequestContext copyStartContext = storeCopyServer.flushStoresAndStreamStoreFiles(
-                    FULL_BACKUP_CHECKPOINT_TRIGGER, storeWriter, forensics );
-            ResponsePacker responsePacker = new StoreCopyResponsePacker( logicalTransactionStore,
-                    transactionIdStore, logFileInformation, storeId,
-                    copyStartContext.lastAppliedTransaction() + 1, storeCopyServer.monitor() ); // mandatory transaction id
-            long optionalTransactionId = copyStartContext.lastAppliedTransaction();
-            return responsePacker.packTransactionStreamResponse( anonymous( optionalTransactionId ), null/*no response object*/ );
+            return streamStore( storeWriter, forensics, StoreCopyServer.NO_PREVIOUS_COPY );
         }
         finally
         {
@@ -81,6 +75,31 @@ class BackupImpl implements TheBackupInterface
         }
     }
 
+    @Override
+    public Response<Void> deltaBackup( StoreWriter writer, boolean forensics, long lastCommittedTxId )
+    {
+        try ( StoreWriter storeWriter = writer )
+        {
+            logger.log( "Delta backup since transaction " + lastCommittedTxId + " started..." );
+            return streamStore( storeWriter, forensics, lastCommittedTxId );
+        }
+        finally
+        {
+            logger.log( "Delta backup finished." );
+        }
+    }
+
+    private Response<Void> streamStore( StoreWriter storeWriter, boolean forensics, long previousCopyTxId )
+    {
+        RequestContext copyStartContext = storeCopyServer.flushStoresAndStreamStoreFiles(
+                FULL_BACKUP_CHECKPOINT_TRIGGER, storeWriter, forensics, previousCopyTxId );
+        ResponsePacker responsePacker = new StoreCopyResponsePacker( logicalTransactionStore,
+                transactionIdStore, logFileInformation, storeId,
+                copyStartContext.lastAppliedTransaction() + 1, storeCopyServer.monitor() ); // mandatory transaction id
+        long optionalTransactionId = copyStartContext.lastAppliedTransaction();
+        return responsePacker.packTransactionStreamResponse( anonymous( optionalTransactionId ), null/*no response object*/ );
+    }
+
     @Override
     public Response<Void> incrementalBackup( RequestContext context )
     {
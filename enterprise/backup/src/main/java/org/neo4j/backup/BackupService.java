@@ -35,6 +35,7 @@ import org.neo4j.com.storecopy.ExternallyManagedPageCache;
 import org.neo4j.com.storecopy.ResponseUnpacker;
 import org.neo4j.com.storecopy.ResponseUnpacker.TxHandler;
 import org.neo4j.com.storecopy.StoreCopyClient;
+import org.neo4j.com.storecopy.StoreCopyServer;
 import org.neo4j.com.storecopy.StoreWriter;
 import org.neo4j.com.storecopy.TransactionCommittingResponseUnpacker;
 import org.neo4j.graphdb.DependencyResolver;
@@ -135,14 +136,43 @@ class BackupService
             throw new RuntimeException( "Can only perform a full backup into an empty directory but " +
                     targetDirectory + " is not empty" );
         }
+        return copyStore( sourceHostNameOrIp, sourcePort, targetDirectory, consistencyCheck, tuningConfiguration,
+                timeout, forensics, false );
+    }
+
+    /**
+     * Like a full backup, but into a directory which contains a previous backup. Store files of which only some
+     * pages have changed since that backup are received as those pages only, and patched from the previous backup.
+     * Unlike an incremental backup this works even if the transaction logs since the previous backup are gone.
+     */
+    BackupOutcome doDeltaBackup( String sourceHostNameOrIp, int sourcePort, File targetDirectory,
+            ConsistencyCheck consistencyCheck, Config tuningConfiguration, long timeout, boolean forensics )
+    {
+        if ( !directoryContainsDb( targetDirectory ) )
+        {
+            throw new RuntimeException( targetDirectory + " doesn't contain a database" );
+        }
+        return copyStore( sourceHostNameOrIp, sourcePort, targetDirectory, consistencyCheck, tuningConfiguration,
+                timeout, forensics, true );
+    }
+
+    private BackupOutcome copyStore( final String sourceHostNameOrIp, final int sourcePort, File targetDirectory,
+            ConsistencyCheck consistencyCheck, Config tuningConfiguration, final long timeout, final boolean forensics,
+            boolean updatePreviousBackup )
+    {
         long timestamp = System.currentTimeMillis();
         long lastCommittedTx = -1;
         try ( PageCache pageCache = createPageCache( fileSystem ) )
         {
+            long previousBackupTx = updatePreviousBackup
+                                    ? MetaDataStore.getRecord( pageCache,
+                                            new File( targetDirectory, MetaDataStore.DEFAULT_NAME ),
+                                            MetaDataStore.Position.LAST_TRANSACTION_ID )
+                                    : StoreCopyServer.NO_PREVIOUS_COPY;
             StoreCopyClient storeCopier = new StoreCopyClient( targetDirectory, tuningConfiguration,
                     loadKernelExtensions(), logProvider, new DefaultFileSystemAbstraction(), pageCache,
                     monitors.newMonitor( StoreCopyClient.Monitor.class, getClass() ), forensics );
-            storeCopier.copyStore( new StoreCopyClient.StoreCopyRequester()
+            StoreCopyClient.StoreCopyRequester requester = new StoreCopyClient.StoreCopyRequester()
             {
                 private BackupClient client;
 
@@ -153,7 +183,8 @@ class BackupService
                             StoreId.DEFAULT, timeout, ResponseUnpacker.NO_OP_RESPONSE_UNPACKER, monitors.newMonitor(
                             ByteCounterMonitor.class ), monitors.newMonitor( RequestMonitor.class ), entryReader );
                     client.start();
-                    return client.fullBackup( writer, forensics );
+                    return client.deltaBackup( writer, forensics,
+                            tuningConfiguration.get( OnlineBackupSettings.backup_compression ), previousBackupTx );
                 }
 
                 @Override
@@ -161,7 +192,15 @@ class BackupService
                 {
                     client.stop();
                 }
-            }, CancellationRequest.NEVER_CANCELLED );
+            };
+            if ( updatePreviousBackup )
+            {
+                storeCopier.updateStore( requester, CancellationRequest.NEVER_CANCELLED );
+            }
+            else
+            {
+                storeCopier.copyStore( requester, CancellationRequest.NEVER_CANCELLED );
+            }
 
             bumpDebugDotLogFileVersion( targetDirectory, timestamp );
             boolean consistent = false;
@@ -241,10 +280,21 @@ class BackupService
         }
         catch ( IncrementalBackupNotPossibleException e )
         {
+            log.warn( "Attempt to do incremental backup failed.", e );
+            try
+            {
+                log.info( "Existing backup is too far out of date, only the changed parts of the store files " +
+                        "will be copied." );
+                return doDeltaBackup( sourceHostNameOrIp, sourcePort, targetDirectory, consistencyCheck, config,
+                        timeout, forensics );
+            }
+            catch ( Exception deltaBackupFailure )
+            {
+                log.warn( "Attempt to do delta backup failed.", deltaBackupFailure );
+            }
             try
             {
-                log.warn( "Attempt to do incremental backup failed.", e );
-                log.info( "Existing backup is too far out of date, a new full backup will be performed." );
+                log.info( "A new full backup will be performed." );
                 FileUtils.deleteRecursively( targetDirectory );
                 return doFullBackup( sourceHostNameOrIp, sourcePort, targetDirectory, consistencyCheck, config, timeout,
                         forensics );
@@ -19,13 +19,16 @@
  */
 package org.neo4j.backup;
 
+import org.neo4j.com.storecopy.StoreCopyCompression;
 import org.neo4j.graphdb.config.Setting;
 import org.neo4j.graphdb.factory.Description;
 import org.neo4j.helpers.HostnamePort;
+import org.neo4j.kernel.configuration.Internal;
 
 import static org.neo4j.kernel.configuration.Settings.BOOLEAN;
 import static org.neo4j.kernel.configuration.Settings.HOSTNAME_PORT;
 import static org.neo4j.kernel.configuration.Settings.TRUE;
+import static org.neo4j.kernel.configuration.Settings.optionsIgnoreCase;
 import static org.neo4j.kernel.configuration.Settings.setting;
 
 /**
@@ -40,4 +43,11 @@ public class OnlineBackupSettings
     @Description("Listening server for online backups")
     public static final Setting<HostnamePort> online_backup_server = setting( "dbms.backup.address", HOSTNAME_PORT,
             "127.0.0.1:6362-6372" );
+
+    @Description( "Compression the backup client asks the backup server to compress the store files of a full " +
+                  "backup with, one of `NONE` and `DEFLATE`. Compressing takes processor time on the server, " +
+                  "so it pays off when the network, rather than the disks, limits the backup." )
+    @Internal
+    public static final Setting<StoreCopyCompression> backup_compression = setting(
+            "unsupported.dbms.backup.compression", optionsIgnoreCase( StoreCopyCompression.values() ), "NONE" );
 }
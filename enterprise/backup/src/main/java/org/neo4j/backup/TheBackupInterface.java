@@ -27,5 +27,12 @@ public interface TheBackupInterface
 {
     Response<Void> fullBackup( StoreWriter writer, boolean forensics );
 
+    /**
+     * Like {@link #fullBackup(StoreWriter, boolean)}, but for a backup which already has a copy of the store at the
+     * given transaction, so that store files of which only some pages have changed since then can be sent as those
+     * pages only.
+     */
+    Response<Void> deltaBackup( StoreWriter writer, boolean forensics, long lastCommittedTxId );
+
     Response<Void> incrementalBackup( RequestContext context );
 }
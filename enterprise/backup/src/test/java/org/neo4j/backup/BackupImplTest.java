@@ -35,6 +35,7 @@ import org.neo4j.logging.NullLogProvider;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
@@ -47,8 +48,8 @@ public class BackupImplTest
     public void flushStoreFilesWithCorrectCheckpointTriggerName()
     {
         StoreCopyServer storeCopyServer = mock( StoreCopyServer.class );
-        when( storeCopyServer.flushStoresAndStreamStoreFiles( anyString(), any( StoreWriter.class ), anyBoolean() ) )
-                .thenReturn( RequestContext.EMPTY );
+        when( storeCopyServer.flushStoresAndStreamStoreFiles( anyString(), any( StoreWriter.class ), anyBoolean(),
+                anyLong() ) ).thenReturn( RequestContext.EMPTY );
 
         BackupImpl backup = new BackupImpl( storeCopyServer, new Monitors(), mock( LogicalTransactionStore.class ),
                 mock( TransactionIdStore.class ), mock( LogFileInformation.class ), defaultStoreIdSupplier(),
@@ -57,7 +58,25 @@ public class BackupImplTest
         backup.fullBackup( mock( StoreWriter.class ), false ).close();
 
         verify( storeCopyServer ).flushStoresAndStreamStoreFiles(
-                eq( BackupImpl.FULL_BACKUP_CHECKPOINT_TRIGGER ), any( StoreWriter.class ), eq( false ) );
+                eq( BackupImpl.FULL_BACKUP_CHECKPOINT_TRIGGER ), any( StoreWriter.class ), eq( false ),
+                eq( StoreCopyServer.NO_PREVIOUS_COPY ) );
+    }
+
+    @Test
+    public void streamChangedPagesSinceTheTransactionOfThePreviousBackup()
+    {
+        StoreCopyServer storeCopyServer = mock( StoreCopyServer.class );
+        when( storeCopyServer.flushStoresAndStreamStoreFiles( anyString(), any( StoreWriter.class ), anyBoolean(),
+                anyLong() ) ).thenReturn( RequestContext.EMPTY );
+
+        BackupImpl backup = new BackupImpl( storeCopyServer, new Monitors(), mock( LogicalTransactionStore.class ),
+                mock( TransactionIdStore.class ), mock( LogFileInformation.class ), defaultStoreIdSupplier(),
+                NullLogProvider.getInstance() );
+
+        backup.deltaBackup( mock( StoreWriter.class ), false, 42 ).close();
+
+        verify( storeCopyServer ).flushStoresAndStreamStoreFiles(
+                eq( BackupImpl.FULL_BACKUP_CHECKPOINT_TRIGGER ), any( StoreWriter.class ), eq( false ), eq( 42L ) );
     }
 
     private static Supplier<StoreId> defaultStoreIdSupplier()
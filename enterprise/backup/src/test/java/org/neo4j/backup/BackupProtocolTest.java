@@ -19,6 +19,8 @@
  */
 package org.neo4j.backup;
 
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
 import org.junit.Test;
 
 import org.neo4j.backup.BackupClient.BackupRequestType;
@@ -26,6 +28,7 @@ import org.neo4j.com.RequestContext;
 import org.neo4j.com.Response;
 import org.neo4j.com.monitor.RequestMonitor;
 import org.neo4j.com.storecopy.ResponseUnpacker;
+import org.neo4j.com.storecopy.StoreCopyCompression;
 import org.neo4j.com.storecopy.StoreWriter;
 import org.neo4j.helpers.HostnamePort;
 import org.neo4j.kernel.impl.store.StoreId;
@@ -66,6 +69,19 @@ public class BackupProtocolTest
         verify( backup ).fullBackup( any( StoreWriter.class ), eq( false ) );
     }
 
+    @Test
+    public void shouldAskForDeltaBackupWhenPreviousBackupTransactionIsSpecified() throws Exception
+    {
+        TheBackupInterface backup = mock( TheBackupInterface.class );
+        RequestContext ctx = new RequestContext( 0, 1, 0, -1, 12 );
+        ChannelBuffer input = ChannelBuffers.dynamicBuffer();
+        input.writeByte( 0 );
+        input.writeByte( StoreCopyCompression.NONE.id() );
+        input.writeLong( 42 );
+        BackupRequestType.FULL_BACKUP.getTargetCaller().call( backup, ctx, input, null );
+        verify( backup ).deltaBackup( any( StoreWriter.class ), eq( false ), eq( 42L ) );
+    }
+
     private void shouldGatherForensicsInFullBackupRequest( boolean forensics ) throws Exception
     {
         // GIVEN
@@ -110,6 +126,12 @@ public class BackupProtocolTest
             return Response.EMPTY;
         }
 
+        @Override
+        public Response<Void> deltaBackup( StoreWriter writer, boolean forensics, long lastCommittedTxId )
+        {
+            throw new UnsupportedOperationException( "Should be required" );
+        }
+
         @Override
         public Response<Void> incrementalBackup( RequestContext context )
         {
@@ -96,6 +96,8 @@ import static org.hamcrest.CoreMatchers.anyOf;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -705,6 +707,85 @@ public class BackupServiceIT
         assertEquals( getDbRepresentation(), getBackupDbRepresentation() );
     }
 
+    @Test
+    public void shouldRestoreTheSameStoreFromDeltaBackupsAsFromAFullBackup() throws Exception
+    {
+        // Given
+        defaultBackupPortHostParams();
+        Config defaultConfig = dbRule.getConfigCopy();
+        GraphDatabaseAPI db = dbRule.getGraphDatabaseAPI();
+        StreamedBytesMonitor streamed = new StreamedBytesMonitor();
+        db.getDependencyResolver().resolveDependency( Monitors.class ).addMonitorListener( streamed );
+        BackupService backupService = backupService();
+
+        createNodes( db, 20_000 );
+        backupService.doFullBackup( BACKUP_HOST, backupPort, backupDir.getAbsoluteFile(),
+                ConsistencyCheck.NONE, defaultConfig, BackupClient.BIG_READ_TIMEOUT, false );
+        long fullBackupBytes = streamed.fileBytes;
+
+        // When
+        setNodeIds( db, 0, 200, -1 );
+        rotateAndCheckPoint( db );
+        backupService.doDeltaBackup( BACKUP_HOST, backupPort, backupDir.getAbsoluteFile(),
+                ConsistencyCheck.NONE, defaultConfig, BackupClient.BIG_READ_TIMEOUT, false );
+        long firstDeltaBytes = streamed.fileBytes;
+
+        setNodeIds( db, 15_000, 10, -2 );
+        rotateAndCheckPoint( db );
+        BackupService.BackupOutcome outcome = backupService.doDeltaBackup( BACKUP_HOST, backupPort,
+                backupDir.getAbsoluteFile(), ConsistencyCheck.FULL, defaultConfig, BackupClient.BIG_READ_TIMEOUT,
+                false );
+        long secondDeltaBytes = streamed.fileBytes;
+
+        File fullBackupDir = target.directory( "full_backup_dir" );
+        backupService.doFullBackup( BACKUP_HOST, backupPort, fullBackupDir.getAbsoluteFile(),
+                ConsistencyCheck.NONE, defaultConfig, BackupClient.BIG_READ_TIMEOUT, false );
+
+        // Then
+        db.shutdown();
+        assertTrue( outcome.isConsistent() );
+        assertEquals( DbRepresentation.of( fullBackupDir ), getBackupDbRepresentation() );
+        assertEquals( getDbRepresentation(), getBackupDbRepresentation() );
+        assertThat( firstDeltaBytes, lessThan( fullBackupBytes ) );
+        // The pages changed before the first delta backup are not sent again
+        assertThat( secondDeltaBytes, lessThanOrEqualTo( firstDeltaBytes ) );
+    }
+
+    private static final class StreamedBytesMonitor extends StoreCopyServer.Monitor.Adapter
+    {
+        private volatile long fileBytes;
+
+        @Override
+        public void streamedStoreFiles( long fileBytes, long streamedBytes, long bytesPerSecond )
+        {
+            this.fileBytes = fileBytes;
+        }
+    }
+
+    private void createNodes( GraphDatabaseService db, int count )
+    {
+        try ( Transaction tx = db.beginTx() )
+        {
+            for ( int i = 0; i < count; i++ )
+            {
+                db.createNode().setProperty( "id", (long) i );
+            }
+            tx.success();
+        }
+    }
+
+    private void setNodeIds( GraphDatabaseService db, long firstNodeId, int count, long id )
+    {
+        try ( Transaction tx = db.beginTx() )
+        {
+            for ( long nodeId = firstNodeId; nodeId < firstNodeId + count; nodeId++ )
+            {
+                db.getNodeById( nodeId ).setProperty( "id", id );
+            }
+            tx.success();
+        }
+    }
+
     private void rotateAndCheckPoint( GraphDatabaseAPI db ) throws IOException
     {
         db.getDependencyResolver().resolveDependency( LogRotation.class ).rotateLogFile();
@@ -21,6 +21,7 @@ package org.neo4j.com;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -31,7 +32,10 @@ import org.jboss.netty.handler.codec.frame.LengthFieldBasedFrameDecoder;
 import org.jboss.netty.handler.codec.frame.LengthFieldPrepender;
 import org.jboss.netty.handler.queue.BlockingReadHandler;
 
+import org.neo4j.com.storecopy.DecompressingChannel;
+import org.neo4j.com.storecopy.StoreCopyCompression;
 import org.neo4j.com.storecopy.StoreWriter;
+import org.neo4j.com.storecopy.ToNetworkStoreWriter;
 import org.neo4j.helpers.collection.Visitor;
 import org.neo4j.kernel.NeoStoreDataSource;
 import org.neo4j.kernel.impl.store.StoreId;
@@ -292,12 +296,45 @@ public abstract class Protocol
             while ( 0 != (pathLength = buffer.readUnsignedShort()) )
             {
                 String path = readString( buffer, pathLength );
-                boolean hasData = buffer.readByte() == 1;
-                writer.write( path, hasData ? new BlockLogReader( buffer ) : null, temporaryBuffer, hasData );
+                byte dataFormat = buffer.readByte();
+                switch ( dataFormat )
+                {
+                case ToNetworkStoreWriter.NO_DATA:
+                    writer.write( path, null, temporaryBuffer, false );
+                    break;
+                case ToNetworkStoreWriter.PAGES:
+                    long fileLength = buffer.readLong();
+                    int pageSize = buffer.readInt();
+                    long pageCount = buffer.readLong();
+                    // Closing the pages leaves the buffer after them, even if the writer didn't read them to the end
+                    try ( ReadableByteChannel pages = pageCount > 0 ? readData( buffer, buffer.readByte(), path )
+                                                                    : null )
+                    {
+                        writer.writePages( path, pages, pageCount, pageSize, fileLength, temporaryBuffer );
+                    }
+                    break;
+                default:
+                    writer.write( path, readData( buffer, dataFormat, path ), temporaryBuffer, true );
+                }
             }
             writer.close();
             return null;
         }
+
+        private static ReadableByteChannel readData( ChannelBuffer buffer, byte dataFormat, String path )
+                throws IOException
+        {
+            switch ( dataFormat )
+            {
+            case ToNetworkStoreWriter.DATA:
+                return new BlockLogReader( buffer );
+            case ToNetworkStoreWriter.COMPRESSED_DATA:
+                StoreCopyCompression compression = StoreCopyCompression.forId( buffer.readByte() );
+                return new DecompressingChannel( new BlockLogReader( buffer ), compression );
+            default:
+                throw new IOException( "Unknown data format " + dataFormat + " of store file " + path );
+            }
+        }
     }
 
     public static class TransactionSerializer implements Serializer
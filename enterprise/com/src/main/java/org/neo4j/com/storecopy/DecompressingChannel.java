@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.com.storecopy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+import static org.neo4j.com.storecopy.StoreCopyCompression.BLOCK_SIZE;
+
+/**
+ * Reads the data of a store file which {@link ToNetworkStoreWriter} wrote as compressed blocks, and hands it out
+ * decompressed. Reaches the end of the data first when the underlying channel has been read to its end, so that
+ * whatever follows the file in the stream can be read after it.
+ */
+public class DecompressingChannel implements ReadableByteChannel
+{
+    private final ReadableByteChannel source;
+    private final StoreCopyCompression compression;
+    private final ByteBuffer header = ByteBuffer.allocate( 8 );
+    private final byte[] storedBlock = new byte[BLOCK_SIZE];
+    private final ByteBuffer block = ByteBuffer.allocate( BLOCK_SIZE );
+    private boolean open = true;
+
+    public DecompressingChannel( ReadableByteChannel source, StoreCopyCompression compression )
+    {
+        this.source = source;
+        this.compression = compression;
+        block.limit( 0 );
+    }
+
+    @Override
+    public int read( ByteBuffer dst ) throws IOException
+    {
+        if ( !block.hasRemaining() && !readBlock() )
+        {
+            return -1;
+        }
+
+        int bytes = Math.min( dst.remaining(), block.remaining() );
+        int limit = block.limit();
+        block.limit( block.position() + bytes );
+        dst.put( block );
+        block.limit( limit );
+        return bytes;
+    }
+
+    private boolean readBlock() throws IOException
+    {
+        header.clear();
+        if ( !readFully( header ) )
+        {
+            return false;
+        }
+        header.flip();
+        int length = header.getInt();
+        int storedLength = header.getInt();
+        if ( length <= 0 || length > BLOCK_SIZE || storedLength <= 0 || storedLength > length )
+        {
+            throw new IOException( "Invalid compressed block of " + storedLength + " bytes, " + length +
+                    " bytes uncompressed" );
+        }
+
+        ByteBuffer stored = storedLength == length ? block : ByteBuffer.wrap( storedBlock );
+        stored.clear();
+        stored.limit( storedLength );
+        if ( !readFully( stored ) )
+        {
+            throw new IOException( "Compressed block ended prematurely" );
+        }
+        if ( storedLength < length )
+        {
+            compression.decompress( storedBlock, storedLength, block.array(), length );
+        }
+        block.position( 0 );
+        block.limit( length );
+        return true;
+    }
+
+    /**
+     * @return {@code false} if the end of the source was reached before anything was read.
+     */
+    private boolean readFully( ByteBuffer buffer ) throws IOException
+    {
+        while ( buffer.hasRemaining() )
+        {
+            // Read into a slice, since not all channels of the com protocol respect the position of a buffer
+            ByteBuffer slice = buffer.slice();
+            int read = source.read( slice );
+            if ( read == -1 )
+            {
+                if ( buffer.position() == 0 )
+                {
+                    return false;
+                }
+                throw new IOException( "Compressed block ended prematurely" );
+            }
+            buffer.position( buffer.position() + read );
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isOpen()
+    {
+        return open;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        open = false;
+        source.close();
+    }
+}
@@ -81,6 +81,14 @@ public class StoreCopyClient
 
         void finishReceivingStoreFile( File file );
 
+        /**
+         * Called when all store files have been received.
+         *
+         * @param fileBytes number of bytes written to the received store files.
+         * @param bytesPerSecond number of bytes written to the received store files per second.
+         */
+        void receivedStoreFiles( long fileBytes, long bytesPerSecond );
+
         void startReceivingTransactions( long startTxId );
 
         void finishReceivingTransactions( long endTxId );
@@ -111,6 +119,11 @@ public class StoreCopyClient
             {   // empty
             }
 
+            @Override
+            public void receivedStoreFiles( long fileBytes, long bytesPerSecond )
+            {   // empty
+            }
+
             @Override
             public void startReceivingTransactions( long startTxId )
             {   // empty
@@ -180,6 +193,23 @@ public class StoreCopyClient
 
     public void copyStore( StoreCopyRequester requester, CancellationRequest cancellationRequest )
             throws Exception
+    {
+        copyStore( requester, cancellationRequest, false );
+    }
+
+    /**
+     * Like {@link #copyStore(StoreCopyRequester, CancellationRequest)}, but for a store directory which already
+     * contains a previous copy of the store. Store files that are received as changed pages only are patched from
+     * the previous copy, which is then replaced by the new copy.
+     */
+    public void updateStore( StoreCopyRequester requester, CancellationRequest cancellationRequest )
+            throws Exception
+    {
+        copyStore( requester, cancellationRequest, true );
+    }
+
+    private void copyStore( StoreCopyRequester requester, CancellationRequest cancellationRequest,
+            boolean replacePreviousCopy ) throws Exception
     {
         // Create a temp directory (or clean if present)
         File tempStore = new File( storeDir, TEMP_COPY_DIRECTORY_NAME );
@@ -187,8 +217,9 @@ public class StoreCopyClient
 
         // Request store files and transactions that will need recovery
         monitor.startReceivingStoreFiles();
+        File previousStore = replacePreviousCopy ? storeDir : null;
         try ( Response<?> response = requester.copyStore( decorateWithProgressIndicator(
-                new ToFileStoreWriter( tempStore, monitor ) ) ) )
+                new ToFileStoreWriter( tempStore, previousStore, monitor ) ) ) )
         {
             monitor.finishReceivingStoreFiles();
             // Update highest archived log id
@@ -209,6 +240,17 @@ public class StoreCopyClient
         graphDatabaseService.shutdown();
         monitor.finishRecoveringStore();
 
+        if ( replacePreviousCopy )
+        {
+            for ( File previous : storeDir.listFiles( STORE_FILE_FILTER ) )
+            {
+                if ( !previous.equals( tempStore ) )
+                {
+                    FileUtils.deleteRecursively( previous );
+                }
+            }
+        }
+
         // All is well, move the streamed files to the real store directory
         for ( File candidate : tempStore.listFiles( STORE_FILE_FILTER ) )
         {
@@ -342,6 +384,17 @@ public class StoreCopyClient
                 return written;
             }
 
+            @Override
+            public long writePages( String path, ReadableByteChannel pages, long pageCount, int pageSize,
+                    long fileLength, ByteBuffer temporaryBuffer ) throws IOException
+            {
+                log.info( "Copying %d changed pages of %s", pageCount, path );
+                long written = actual.writePages( path, pages, pageCount, pageSize, fileLength, temporaryBuffer );
+                log.info( "Copied %s %s", path, bytes( written ) );
+                totalFiles++;
+                return written;
+            }
+
             @Override
             public void close()
             {
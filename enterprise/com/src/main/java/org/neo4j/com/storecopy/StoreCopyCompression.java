@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.com.storecopy;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Codecs which the data of store files can be compressed with when they are streamed from a {@link StoreCopyServer}
+ * to a {@link StoreCopyClient}. The client asks for a codec in its request and the server marks every file
+ * it sends compressed with the {@link #id() id} of the codec, so that a client always knows how to read a file,
+ * even from a server which doesn't support compression.
+ * <p>
+ * Files are compressed in blocks of at most {@link #BLOCK_SIZE} bytes, where each block is compressed on its own.
+ */
+public enum StoreCopyCompression
+{
+    NONE( (byte) 0 )
+    {
+        @Override
+        public int compress( byte[] source, int length, byte[] target )
+        {
+            return -1;
+        }
+
+        @Override
+        public void decompress( byte[] source, int length, byte[] target, int decompressedLength ) throws IOException
+        {
+            throw new IOException( "Data was not compressed" );
+        }
+    },
+    DEFLATE( (byte) 1 )
+    {
+        @Override
+        public int compress( byte[] source, int length, byte[] target )
+        {
+            Deflater deflater = new Deflater( Deflater.BEST_SPEED, true );
+            try
+            {
+                deflater.setInput( source, 0, length );
+                deflater.finish();
+                int compressedLength = deflater.deflate( target, 0, target.length );
+                return deflater.finished() ? compressedLength : -1;
+            }
+            finally
+            {
+                deflater.end();
+            }
+        }
+
+        @Override
+        public void decompress( byte[] source, int length, byte[] target, int decompressedLength ) throws IOException
+        {
+            Inflater inflater = new Inflater( true );
+            try
+            {
+                inflater.setInput( source, 0, length );
+                int inflated = inflater.inflate( target, 0, decompressedLength );
+                if ( inflated != decompressedLength )
+                {
+                    throw new IOException( "Expected a block of " + decompressedLength + " bytes, got " + inflated );
+                }
+            }
+            catch ( DataFormatException e )
+            {
+                throw new IOException( e );
+            }
+            finally
+            {
+                inflater.end();
+            }
+        }
+    };
+
+    public static final int BLOCK_SIZE = 64 * 1024;
+
+    private final byte id;
+
+    StoreCopyCompression( byte id )
+    {
+        this.id = id;
+    }
+
+    public byte id()
+    {
+        return id;
+    }
+
+    /**
+     * Compresses a block.
+     *
+     * @param source the data to compress.
+     * @param length number of bytes in {@code source} to compress.
+     * @param target the array to write the compressed data to.
+     * @return the number of bytes written to {@code target}, or {@code -1} if the compressed data didn't fit,
+     * in which case the block should be sent uncompressed.
+     */
+    public abstract int compress( byte[] source, int length, byte[] target );
+
+    /**
+     * Decompresses a block which was compressed with {@link #compress(byte[], int, byte[])}.
+     *
+     * @param source the compressed data.
+     * @param length number of bytes of compressed data in {@code source}.
+     * @param target the array to write the decompressed data to.
+     * @param decompressedLength the number of bytes the block had before it was compressed.
+     * @throws IOException if the compressed data is corrupt.
+     */
+    public abstract void decompress( byte[] source, int length, byte[] target, int decompressedLength )
+            throws IOException;
+
+    public static StoreCopyCompression forId( byte id )
+    {
+        for ( StoreCopyCompression compression : values() )
+        {
+            if ( compression.id == id )
+            {
+                return compression;
+            }
+        }
+        throw new IllegalArgumentException( "Unknown store copy compression " + id );
+    }
+}
@@ -22,15 +22,21 @@ package org.neo4j.com.storecopy;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.OptionalLong;
 
 import org.neo4j.com.RequestContext;
 import org.neo4j.com.Response;
 import org.neo4j.com.ServerFailureException;
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
 import org.neo4j.graphdb.ResourceIterator;
 import org.neo4j.io.ByteUnit;
 import org.neo4j.io.fs.FileSystemAbstraction;
 import org.neo4j.io.fs.StoreChannel;
+import org.neo4j.io.pagecache.PagedFile;
 import org.neo4j.kernel.NeoStoreDataSource;
+import org.neo4j.kernel.impl.store.format.RecordFormat;
 import org.neo4j.kernel.impl.transaction.log.checkpoint.CheckPointer;
 import org.neo4j.kernel.impl.transaction.log.checkpoint.SimpleTriggerInfo;
 import org.neo4j.storageengine.api.StoreFileMetadata;
@@ -47,6 +53,11 @@ import static org.neo4j.io.fs.FileUtils.relativePath;
  */
 public class StoreCopyServer
 {
+    /**
+     * Transaction id telling that the receiver doesn't have a previous copy of the store.
+     */
+    public static final long NO_PREVIOUS_COPY = -1;
+
     public interface Monitor
     {
         void startTryCheckPoint();
@@ -61,6 +72,16 @@ public class StoreCopyServer
 
         void finishStreamingStoreFiles();
 
+        /**
+         * Called when all store files have been streamed successfully.
+         *
+         * @param fileBytes number of bytes read from the store files.
+         * @param streamedBytes number of bytes written to the store writer, fewer than {@code fileBytes}
+         * if the files were compressed.
+         * @param bytesPerSecond number of bytes read from the store files per second.
+         */
+        void streamedStoreFiles( long fileBytes, long streamedBytes, long bytesPerSecond );
+
         void startStreamingTransactions( long startTxId );
 
         void finishStreamingTransactions( long endTxId );
@@ -97,6 +118,11 @@ public class StoreCopyServer
             {   // empty
             }
 
+            @Override
+            public void streamedStoreFiles( long fileBytes, long streamedBytes, long bytesPerSecond )
+            {   // empty
+            }
+
             @Override
             public void startStreamingTransactions( long startTxId )
             {   // empty
@@ -140,9 +166,34 @@ public class StoreCopyServer
      * @return a {@link RequestContext} specifying at which point the store copy started.
      */
     public RequestContext flushStoresAndStreamStoreFiles( String triggerName, StoreWriter writer, boolean includeLogs )
+    {
+        return flushStoresAndStreamStoreFiles( triggerName, writer, includeLogs, NO_PREVIOUS_COPY );
+    }
+
+    /**
+     * Like {@link #flushStoresAndStreamStoreFiles(String, StoreWriter, boolean)}, but for a receiver which has a
+     * previous copy of the store, at the given transaction. Store files of which the page cache has tracked all
+     * changes since then are {@link StoreWriter#writePages(String, ReadableByteChannel, long, int, long, ByteBuffer)
+     * written} as their changed pages only, while other files are written in full.
+     *
+     * @param triggerName name of the component asks for store files.
+     * @param writer store writer to write files to.
+     * @param includeLogs <code>true</code> if transaction logs should be copied, <code>false</code> otherwise.
+     * @param previousCopyTxId the last committed transaction id of the previous copy of the store, or
+     * {@link #NO_PREVIOUS_COPY}.
+     * @return a {@link RequestContext} specifying at which point the store copy started.
+     */
+    public RequestContext flushStoresAndStreamStoreFiles( String triggerName, StoreWriter writer, boolean includeLogs,
+            long previousCopyTxId )
     {
         try
         {
+            OptionalLong changesSince = previousCopyTxId == NO_PREVIOUS_COPY
+                                        ? OptionalLong.empty()
+                                        : dataSource.getPageChangeTrackingNanoTime( previousCopyTxId );
+            // So that a later copy based on this one only needs the pages that are changed from now on
+            dataSource.startPageChangeEpoch();
+
             monitor.startTryCheckPoint();
             long lastAppliedTransaction = checkPointer.tryCheckPoint( new SimpleTriggerInfo( triggerName ) );
             monitor.finishTryCheckPoint();
@@ -150,19 +201,41 @@ public class StoreCopyServer
 
             // Copy the store files
             monitor.startStreamingStoreFiles();
+            long startTime = System.currentTimeMillis();
+            long fileBytes = 0;
+            long streamedBytes = 0;
             try ( ResourceIterator<StoreFileMetadata> files = dataSource.listStoreFiles( includeLogs ) )
             {
                 while ( files.hasNext() )
                 {
-                    File file = files.next().file();
-                    try ( StoreChannel fileChannel = fileSystem.open( file, "r" ) )
+                    StoreFileMetadata meta = files.next();
+                    File file = meta.file();
+                    String path = relativePath( storeDirectory, file );
+                    long length = usedLength( meta );
+                    try ( StoreChannel fileChannel = fileSystem.open( file, "r" );
+                          PagedFile mapping = mappingTrackingChangesSince( file, changesSince ) )
                     {
                         monitor.startStreamingStoreFile( file );
-                        writer.write( relativePath( storeDirectory, file ), fileChannel,
-                                temporaryBuffer, file.length() > 0 );
+                        if ( mapping != null )
+                        {
+                            int pageSize = mapping.pageSize();
+                            long[] pageIds = modifiedPageIds( mapping, changesSince.getAsLong(), length );
+                            PagesChannel pages = new PagesChannel( fileChannel, pageIds, pageSize );
+                            streamedBytes += writer.writePages( path, pages, pageIds.length, pageSize, length,
+                                    temporaryBuffer );
+                            fileBytes += pageIds.length * (long) pageSize;
+                        }
+                        else
+                        {
+                            streamedBytes += writer.write( path, new BoundedChannel( fileChannel, length ),
+                                    temporaryBuffer, length > 0 );
+                            fileBytes += length;
+                        }
                         monitor.finishStreamingStoreFile( file );
                     }
                 }
+                long elapsedMillis = Math.max( 1, System.currentTimeMillis() - startTime );
+                monitor.streamedStoreFiles( fileBytes, streamedBytes, fileBytes * 1000 / elapsedMillis );
             }
             finally
             {
@@ -176,4 +249,173 @@ public class StoreCopyServer
             throw new ServerFailureException( e );
         }
     }
+
+    private PagedFile mappingTrackingChangesSince( File file, OptionalLong changesSince ) throws IOException
+    {
+        if ( !changesSince.isPresent() )
+        {
+            return null;
+        }
+        return dataSource.getMappingTrackingChangesSince( file, changesSince.getAsLong() ).orElse( null );
+    }
+
+    /**
+     * Pages that are modified while they are streamed are brought up to date by the transactions that follow,
+     * just like when streaming whole files.
+     */
+    private static long[] modifiedPageIds( PagedFile mapping, long changesSince, long length )
+    {
+        long[] pageIds = new long[16];
+        int count = 0;
+        PrimitiveLongIterator modifiedPages = mapping.modifiedPagesSince( changesSince );
+        while ( modifiedPages.hasNext() )
+        {
+            long pageId = modifiedPages.next();
+            if ( pageId * mapping.pageSize() >= length )
+            {
+                break;
+            }
+            if ( count == pageIds.length )
+            {
+                pageIds = Arrays.copyOf( pageIds, count * 2 );
+            }
+            pageIds[count++] = pageId;
+        }
+        return Arrays.copyOf( pageIds, count );
+    }
+
+    /**
+     * Record stores are streamed up to their high id, skipping the unused pages at the end of the file.
+     * Records written beyond that after the check point are brought over by the transactions that follow.
+     */
+    private long usedLength( StoreFileMetadata meta )
+    {
+        long length = fileSystem.getFileSize( meta.file() );
+        if ( meta.highId() != StoreFileMetadata.UNKNOWN_HIGH_ID && meta.recordSize() != RecordFormat.NO_RECORD_SIZE )
+        {
+            length = Math.min( length, meta.highId() * meta.recordSize() );
+        }
+        return length;
+    }
+
+    /**
+     * Reads the given pages of a file, each as its page id followed by its contents. Pages that are partly beyond
+     * the end of the file are padded with zeros.
+     */
+    private static class PagesChannel implements ReadableByteChannel
+    {
+        private final StoreChannel channel;
+        private final long[] pageIds;
+        private final int pageSize;
+        private final ByteBuffer page;
+        private int nextPage;
+
+        PagesChannel( StoreChannel channel, long[] pageIds, int pageSize )
+        {
+            this.channel = channel;
+            this.pageIds = pageIds;
+            this.pageSize = pageSize;
+            this.page = ByteBuffer.allocate( Long.BYTES + pageSize );
+            this.page.limit( 0 );
+        }
+
+        @Override
+        public int read( ByteBuffer dst ) throws IOException
+        {
+            if ( !page.hasRemaining() )
+            {
+                if ( nextPage == pageIds.length )
+                {
+                    return -1;
+                }
+                readPage( pageIds[nextPage++] );
+            }
+            int count = Math.min( dst.remaining(), page.remaining() );
+            int limit = page.limit();
+            page.limit( page.position() + count );
+            dst.put( page );
+            page.limit( limit );
+            return count;
+        }
+
+        private void readPage( long pageId ) throws IOException
+        {
+            page.clear();
+            page.putLong( pageId );
+            long position = pageId * pageSize;
+            int read;
+            while ( page.hasRemaining() && (read = channel.read( page, position )) != -1 )
+            {
+                position += read;
+            }
+            while ( page.hasRemaining() )
+            {
+                page.put( (byte) 0 );
+            }
+            page.flip();
+        }
+
+        @Override
+        public boolean isOpen()
+        {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            channel.close();
+        }
+    }
+
+    private static class BoundedChannel implements ReadableByteChannel
+    {
+        private final ReadableByteChannel channel;
+        private long remaining;
+
+        BoundedChannel( ReadableByteChannel channel, long length )
+        {
+            this.channel = channel;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read( ByteBuffer dst ) throws IOException
+        {
+            if ( remaining == 0 )
+            {
+                return -1;
+            }
+            int limit = dst.limit();
+            if ( dst.remaining() > remaining )
+            {
+                dst.limit( dst.position() + (int) remaining );
+            }
+            try
+            {
+                int read = channel.read( dst );
+                if ( read > 0 )
+                {
+                    remaining -= read;
+                }
+                return read;
+            }
+            finally
+            {
+                dst.limit( limit );
+            }
+        }
+
+        @Override
+        public boolean isOpen()
+        {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            channel.close();
+        }
+    }
 }
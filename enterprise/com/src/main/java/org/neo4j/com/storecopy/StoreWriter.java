@@ -32,6 +32,21 @@ public interface StoreWriter extends Closeable
     long write( String path, ReadableByteChannel data, ByteBuffer temporaryBuffer, boolean hasData )
             throws IOException;
 
+    /**
+     * Write some of the pages of a store file, to be applied to a copy of that file which the receiver already has.
+     *
+     * @param path the path of the store file, relative to the store directory.
+     * @param pages the pages to write, each as its page id followed by {@code pageSize} bytes, or {@code null} if
+     * there are no pages.
+     * @param pageCount the number of pages in {@code pages}.
+     * @param pageSize the size of the pages of the store file.
+     * @param fileLength the length of the store file, which the copy should be truncated or extended to.
+     * @param temporaryBuffer buffer to use for reading and writing the pages.
+     * @return the number of bytes written.
+     */
+    long writePages( String path, ReadableByteChannel pages, long pageCount, int pageSize, long fileLength,
+            ByteBuffer temporaryBuffer ) throws IOException;
+
     @Override
     void close();
 }
@@ -25,15 +25,34 @@ import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 
 public class ToFileStoreWriter implements StoreWriter
 {
     private final File basePath;
+    private final File previousStorePath;
     private final StoreCopyClient.Monitor monitor;
+    private long startTime = -1;
+    private long fileBytes;
 
     public ToFileStoreWriter( File graphDbStoreDir, StoreCopyClient.Monitor monitor )
+    {
+        this( graphDbStoreDir, null, monitor );
+    }
+
+    /**
+     * @param graphDbStoreDir the directory to write the store files to.
+     * @param previousStoreDir the directory of a previous copy of the store, which files that are received as
+     * {@link #writePages(String, ReadableByteChannel, long, int, long, ByteBuffer) pages} are patched from,
+     * or {@code null} if there is none.
+     * @param monitor monitor of the received files.
+     */
+    public ToFileStoreWriter( File graphDbStoreDir, File previousStoreDir, StoreCopyClient.Monitor monitor )
     {
         this.basePath = graphDbStoreDir;
+        this.previousStorePath = previousStoreDir;
         this.monitor = monitor;
     }
 
@@ -41,6 +60,10 @@ public class ToFileStoreWriter implements StoreWriter
     public long write( String path, ReadableByteChannel data, ByteBuffer temporaryBuffer,
             boolean hasData ) throws IOException
     {
+        if ( startTime == -1 )
+        {
+            startTime = System.currentTimeMillis();
+        }
         try
         {
             temporaryBuffer.clear();
@@ -58,6 +81,7 @@ public class ToFileStoreWriter implements StoreWriter
                     {
                         temporaryBuffer.flip();
                         totalWritten += temporaryBuffer.limit();
+                        fileBytes += temporaryBuffer.limit();
                         channel.write( temporaryBuffer );
                         temporaryBuffer.clear();
                     }
@@ -75,9 +99,69 @@ public class ToFileStoreWriter implements StoreWriter
         }
     }
 
+    @Override
+    public long writePages( String path, ReadableByteChannel pages, long pageCount, int pageSize, long fileLength,
+            ByteBuffer temporaryBuffer ) throws IOException
+    {
+        if ( startTime == -1 )
+        {
+            startTime = System.currentTimeMillis();
+        }
+        if ( previousStorePath == null )
+        {
+            throw new IOException( "Received changed pages of " + path + ", but there's no previous copy of it" );
+        }
+        File file = new File( basePath, path );
+        file.getParentFile().mkdirs();
+        monitor.startReceivingStoreFile( file );
+        try
+        {
+            Files.copy( new File( previousStorePath, path ).toPath(), file.toPath(), REPLACE_EXISTING );
+            try ( RandomAccessFile randomAccessFile = new RandomAccessFile( file, "rw" ) )
+            {
+                FileChannel channel = randomAccessFile.getChannel();
+                ByteBuffer page = ByteBuffer.allocate( Long.BYTES + pageSize );
+                long totalWritten = 0;
+                for ( long i = 0; i < pageCount; i++ )
+                {
+                    page.clear();
+                    while ( page.hasRemaining() )
+                    {
+                        if ( pages.read( page ) == -1 )
+                        {
+                            throw new IOException( "Received " + i + " of " + pageCount + " changed pages of " + path );
+                        }
+                    }
+                    page.flip();
+                    long position = page.getLong() * pageSize;
+                    if ( position < fileLength )
+                    {
+                        page.limit( page.position() + (int) Math.min( pageSize, fileLength - position ) );
+                        totalWritten += page.remaining();
+                        while ( page.hasRemaining() )
+                        {
+                            position += channel.write( page, position );
+                        }
+                    }
+                }
+                randomAccessFile.setLength( fileLength );
+                fileBytes += totalWritten;
+                return totalWritten;
+            }
+        }
+        finally
+        {
+            monitor.finishReceivingStoreFile( file );
+        }
+    }
+
     @Override
     public void close()
     {
-        // Do nothing
+        if ( startTime != -1 )
+        {
+            long elapsedMillis = Math.max( 1, System.currentTimeMillis() - startTime );
+            monitor.receivedStoreFiles( fileBytes, fileBytes * 1000 / elapsedMillis );
+        }
     }
 }
@@ -22,50 +22,216 @@ package org.neo4j.com.storecopy;
 import org.jboss.netty.buffer.ChannelBuffer;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.neo4j.com.BlockLogBuffer;
 import org.neo4j.com.Protocol;
+import org.neo4j.helpers.NamedThreadFactory;
 import org.neo4j.kernel.monitoring.ByteCounterMonitor;
 import org.neo4j.kernel.monitoring.Monitors;
 
+import static org.neo4j.com.storecopy.StoreCopyCompression.BLOCK_SIZE;
+
+/**
+ * Writes store files to a network buffer, to be read by a {@link org.neo4j.com.Protocol.FileStreamsDeserializer}.
+ * <p>
+ * Each file is written as its path, followed by a byte telling how its data is written: {@link #NO_DATA},
+ * {@link #DATA} for data in {@link BlockLogBuffer blocks}, or {@link #COMPRESSED_DATA} followed by the
+ * {@link StoreCopyCompression#id() id} of the codec, for data in compressed blocks. A compressed block is written
+ * as its uncompressed length, its stored length and its stored bytes, where a stored length equal to the
+ * uncompressed length means that the block didn't compress and is stored as is.
+ * <p>
+ * A file of which only some pages are sent is written with {@link #PAGES}, followed by its length, its page size
+ * and the number of pages, and then, if there are any pages, by the pages the same way as the data of a file.
+ * <p>
+ * Compressing is what limits the throughput of a compressed store copy, so the blocks of a file are compressed
+ * by a number of threads in parallel, while the compressed blocks are written in order.
+ */
 public class ToNetworkStoreWriter implements StoreWriter
 {
     public static final String STORE_COPIER_MONITOR_TAG = "storeCopier";
 
+    public static final byte NO_DATA = 0;
+    public static final byte DATA = 1;
+    public static final byte COMPRESSED_DATA = 2;
+    public static final byte PAGES = 3;
+
+    private static final int COMPRESSED_BLOCK_HEADER_SIZE = 8;
+
     private final ChannelBuffer targetBuffer;
     private final ByteCounterMonitor bufferMonitor;
+    private final StoreCopyCompression compression;
+    private final int parallelism;
+    private ExecutorService compressors;
 
     public ToNetworkStoreWriter( ChannelBuffer targetBuffer, Monitors monitors )
+    {
+        this( targetBuffer, monitors, StoreCopyCompression.NONE );
+    }
+
+    public ToNetworkStoreWriter( ChannelBuffer targetBuffer, Monitors monitors, StoreCopyCompression compression )
     {
         this.targetBuffer = targetBuffer;
+        this.compression = compression;
+        // Leave some of the processors to the database which is being copied
+        this.parallelism = Math.max( 1, Runtime.getRuntime().availableProcessors() / 2 );
         bufferMonitor = monitors.newMonitor( ByteCounterMonitor.class, getClass(), STORE_COPIER_MONITOR_TAG );
     }
 
     @Override
     public long write( String path, ReadableByteChannel data, ByteBuffer temporaryBuffer,
             boolean hasData ) throws IOException
+    {
+        long totalWritten = writePath( path );
+        if ( !hasData )
+        {
+            targetBuffer.writeByte( NO_DATA );
+            return totalWritten + 1;
+        }
+        return totalWritten + writeData( data );
+    }
+
+    @Override
+    public long writePages( String path, ReadableByteChannel pages, long pageCount, int pageSize, long fileLength,
+            ByteBuffer temporaryBuffer ) throws IOException
+    {
+        long totalWritten = writePath( path );
+        targetBuffer.writeByte( PAGES );
+        targetBuffer.writeLong( fileLength );
+        targetBuffer.writeInt( pageSize );
+        targetBuffer.writeLong( pageCount );
+        totalWritten += 1 + 8 + 4 + 8;
+        if ( pageCount > 0 )
+        {
+            totalWritten += writeData( pages );
+        }
+        return totalWritten;
+    }
+
+    private long writePath( String path )
     {
         char[] chars = path.toCharArray();
         targetBuffer.writeShort( chars.length );
         Protocol.writeChars( targetBuffer, chars );
-        targetBuffer.writeByte( hasData ? 1 : 0 );
+        return 2 + chars.length * 2;
+    }
+
+    private long writeData( ReadableByteChannel data ) throws IOException
+    {
+        long totalWritten;
         // TODO Make use of temporaryBuffer?
         BlockLogBuffer buffer = new BlockLogBuffer( targetBuffer, bufferMonitor );
-        long totalWritten = 2 + chars.length*2 + 1;
-        if ( hasData )
+        if ( compression == StoreCopyCompression.NONE )
         {
-            totalWritten += buffer.write( data );
-            buffer.close();
-
+            targetBuffer.writeByte( DATA );
+            totalWritten = 1 + buffer.write( data );
+        }
+        else
+        {
+            targetBuffer.writeByte( COMPRESSED_DATA );
+            targetBuffer.writeByte( compression.id() );
+            totalWritten = 2 + writeCompressed( data, buffer );
         }
+        buffer.close();
         return totalWritten;
     }
 
+    private long writeCompressed( ReadableByteChannel data, BlockLogBuffer buffer ) throws IOException
+    {
+        Deque<Future<byte[]>> pendingBlocks = new ArrayDeque<>();
+        long totalWritten = 0;
+        try
+        {
+            ByteBuffer block;
+            while ( (block = readBlock( data )) != null )
+            {
+                ByteBuffer uncompressed = block;
+                pendingBlocks.add( compressors().submit( () -> compress( uncompressed ) ) );
+                if ( pendingBlocks.size() >= parallelism )
+                {
+                    totalWritten += writeBlock( pendingBlocks.poll(), buffer );
+                }
+            }
+            while ( !pendingBlocks.isEmpty() )
+            {
+                totalWritten += writeBlock( pendingBlocks.poll(), buffer );
+            }
+            return totalWritten;
+        }
+        finally
+        {
+            for ( Future<byte[]> pendingBlock : pendingBlocks )
+            {
+                pendingBlock.cancel( false );
+            }
+        }
+    }
+
+    private static ByteBuffer readBlock( ReadableByteChannel data ) throws IOException
+    {
+        ByteBuffer block = ByteBuffer.allocate( BLOCK_SIZE );
+        while ( block.hasRemaining() && data.read( block ) >= 0 )
+        {   // Keep reading until the block is full or there's no more data
+        }
+        return block.position() == 0 ? null : block;
+    }
+
+    private byte[] compress( ByteBuffer block )
+    {
+        int length = block.position();
+        byte[] compressed = new byte[length];
+        int compressedLength = compression.compress( block.array(), length, compressed );
+        boolean keepCompressed = compressedLength != -1 && compressedLength < length;
+        int storedLength = keepCompressed ? compressedLength : length;
+        ByteBuffer storedBlock = ByteBuffer.allocate( COMPRESSED_BLOCK_HEADER_SIZE + storedLength );
+        storedBlock.putInt( length ).putInt( storedLength );
+        storedBlock.put( keepCompressed ? compressed : block.array(), 0, storedLength );
+        return storedBlock.array();
+    }
+
+    private static long writeBlock( Future<byte[]> pendingBlock, BlockLogBuffer buffer ) throws IOException
+    {
+        try
+        {
+            byte[] block = pendingBlock.get();
+            buffer.put( block, block.length );
+            return block.length;
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted while compressing store file" );
+        }
+        catch ( ExecutionException e )
+        {
+            throw new IOException( e.getCause() );
+        }
+    }
+
+    private ExecutorService compressors()
+    {
+        if ( compressors == null )
+        {
+            compressors = Executors.newFixedThreadPool( parallelism, new NamedThreadFactory( "StoreCopyCompressor" ) );
+        }
+        return compressors;
+    }
+
     @Override
     public void close()
     {
         targetBuffer.writeShort( 0 );
+        if ( compressors != null )
+        {
+            compressors.shutdown();
+        }
     }
 }
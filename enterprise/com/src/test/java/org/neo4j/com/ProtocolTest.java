@@ -22,10 +22,21 @@ package org.neo4j.com;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
 
+import org.neo4j.com.storecopy.StoreCopyCompression;
+import org.neo4j.com.storecopy.StoreWriter;
+import org.neo4j.com.storecopy.ToNetworkStoreWriter;
 import org.neo4j.kernel.NeoStoreDataSource;
 import org.neo4j.kernel.impl.store.record.NodeRecord;
 import org.neo4j.kernel.impl.transaction.TransactionRepresentation;
@@ -34,10 +45,12 @@ import org.neo4j.kernel.impl.transaction.log.InMemoryClosableChannel;
 import org.neo4j.kernel.impl.transaction.log.PhysicalTransactionRepresentation;
 import org.neo4j.kernel.impl.transaction.log.ReadableClosablePositionAwareChannel;
 import org.neo4j.kernel.impl.transaction.log.entry.VersionAwareLogEntryReader;
+import org.neo4j.kernel.monitoring.Monitors;
 import org.neo4j.storageengine.api.StorageCommand;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class ProtocolTest
 {
@@ -70,6 +83,82 @@ public class ProtocolTest
         assertEquals( timeCommitted, readTransaction.getTimeCommitted() );
     }
 
+    @Test
+    public void shouldStreamCompressedStoreFiles() throws Exception
+    {
+        // GIVEN
+        Random random = new Random( 42 );
+        byte[] compressible = new byte[StoreCopyCompression.BLOCK_SIZE * 3 + 17];
+        for ( int i = 0; i < compressible.length; i++ )
+        {
+            compressible[i] = (byte) (i % 7);
+        }
+        byte[] incompressible = new byte[StoreCopyCompression.BLOCK_SIZE + 1];
+        random.nextBytes( incompressible );
+        ChannelBuffer buffer = new ChannelBufferWrapper( new InMemoryClosableChannel() );
+
+        // WHEN
+        ByteBuffer temporaryBuffer = ByteBuffer.allocate( 1024 );
+        try ( ToNetworkStoreWriter writer =
+                new ToNetworkStoreWriter( buffer, new Monitors(), StoreCopyCompression.DEFLATE ) )
+        {
+            writer.write( "empty", null, temporaryBuffer, false );
+            writer.write( "compressible", channel( compressible ), temporaryBuffer, true );
+            writer.write( "incompressible", channel( incompressible ), temporaryBuffer, true );
+        }
+
+        // THEN
+        CollectingStoreWriter collector = new CollectingStoreWriter();
+        new Protocol.FileStreamsDeserializer( collector ).read( buffer, ByteBuffer.allocate( 1024 ) );
+        assertTrue( collector.closed );
+        assertEquals( 3, collector.files.size() );
+        assertArrayEquals( new byte[0], collector.files.get( "empty" ) );
+        assertArrayEquals( compressible, collector.files.get( "compressible" ) );
+        assertArrayEquals( incompressible, collector.files.get( "incompressible" ) );
+    }
+
+    private static ReadableByteChannel channel( byte[] data )
+    {
+        return Channels.newChannel( new ByteArrayInputStream( data ) );
+    }
+
+    private static class CollectingStoreWriter implements StoreWriter
+    {
+        private final Map<String,byte[]> files = new HashMap<>();
+        private boolean closed;
+
+        @Override
+        public long write( String path, ReadableByteChannel data, ByteBuffer temporaryBuffer, boolean hasData )
+                throws IOException
+        {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            if ( hasData )
+            {
+                temporaryBuffer.clear();
+                while ( data.read( temporaryBuffer ) >= 0 )
+                {
+                    out.write( temporaryBuffer.array(), 0, temporaryBuffer.position() );
+                    temporaryBuffer.clear();
+                }
+            }
+            files.put( path, out.toByteArray() );
+            return out.size();
+        }
+
+        @Override
+        public long writePages( String path, ReadableByteChannel pages, long pageCount, int pageSize,
+                long fileLength, ByteBuffer temporaryBuffer ) throws IOException
+        {
+            return write( path, pages, temporaryBuffer, pages != null );
+        }
+
+        @Override
+        public void close()
+        {
+            closed = true;
+        }
+    }
+
     private Collection<StorageCommand> justOneNode()
     {
         NodeRecord node = new NodeRecord( 0 );
@@ -56,6 +56,16 @@ public class CoreEdgeClusterSettings
     public static final Setting<Integer> catchup_batch_size =
             setting( "core_edge.catchup_batch_size", INTEGER, "64" );
 
+    @Description("The maximum size of a batch when catching up (in unit of bytes). A batch always holds at least " +
+                 "one entry, even if that entry alone is larger than this")
+    public static final Setting<Long> catchup_batch_max_size =
+            setting( "core_edge.catchup_batch_max_size", BYTES, "1M", min( 1024L ) );
+
+    @Description("The maximum number of batches that can be in flight to a follower, waiting for a response, when " +
+                 "catching up")
+    public static final Setting<Integer> catchup_max_in_flight_batches =
+            setting( "core_edge.catchup_max_in_flight_batches", INTEGER, "4", min( 1 ) );
+
     @Description("The maximum lag allowed before log shipping pauses (in unit of entries)")
     public static final Setting<Integer> log_shipping_max_lag =
             setting( "core_edge.log_shipping_max_lag", INTEGER, "256" );
@@ -56,7 +56,9 @@ import org.neo4j.kernel.lifecycle.Lifecycle;
 import org.neo4j.logging.LogProvider;
 import org.neo4j.time.Clocks;
 
+import static org.neo4j.coreedge.core.CoreEdgeClusterSettings.catchup_batch_max_size;
 import static org.neo4j.coreedge.core.CoreEdgeClusterSettings.catchup_batch_size;
+import static org.neo4j.coreedge.core.CoreEdgeClusterSettings.catchup_max_in_flight_batches;
 import static org.neo4j.coreedge.core.CoreEdgeClusterSettings.join_catch_up_timeout;
 import static org.neo4j.coreedge.core.CoreEdgeClusterSettings.log_shipping_max_lag;
 import static org.neo4j.coreedge.core.consensus.log.RaftLog.PHYSICAL_LOG_DIRECTORY_NAME;
@@ -128,8 +130,9 @@ public class ConsensusModule
         RaftLogShippingManager logShipping =
                 new RaftLogShippingManager( outbound, logProvider, raftLog, Clocks.systemClock(),
                         myself, raftMembershipManager, electionTimeout,
-                        config.get( catchup_batch_size ),
-                        config.get( log_shipping_max_lag ), inFlightMap );
+                        config.get( catchup_batch_size ), config.get( catchup_batch_max_size ),
+                        config.get( catchup_max_in_flight_batches ),
+                        config.get( log_shipping_max_lag ), inFlightMap, platformModule.monitors );
 
         raftTimeoutService = new DelayedRenewableTimeoutService( Clocks.systemClock(), logProvider );
 
@@ -21,6 +21,10 @@ package org.neo4j.coreedge.core.consensus.shipping;
 
 import java.io.IOException;
 import java.time.Clock;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
 
 import org.neo4j.coreedge.core.consensus.schedule.DelayedRenewableTimeoutService;
 import org.neo4j.coreedge.core.consensus.LeaderContext;
@@ -43,9 +47,7 @@ import static org.neo4j.coreedge.core.consensus.shipping.RaftLogShipper.Mode.PIP
 import static org.neo4j.coreedge.core.consensus.shipping.RaftLogShipper.Timeouts.RESEND;
 
 /// Optimizations
-// TODO: Have several outstanding batches in catchup mode, to bridge the latency gap.
 // TODO: Bisect search for mismatch.
-// TODO: Maximum bound on size of batch in bytes, not just entry count.
 
 // Production ready
 // TODO: Replace sender service with something more appropriate. No need for queue and multiplex capability, in fact
@@ -70,6 +72,8 @@ import static org.neo4j.coreedge.core.consensus.shipping.RaftLogShipper.Timeouts
 public class RaftLogShipper
 {
     private static final long MIN_INDEX = 1L; // we never ship entry zero, which must be bootstrapped or received as part of a snapshot
+    // A rough estimate of the bytes an entry takes up in a batch, on top of the size of its content
+    private static final long ENTRY_OVERHEAD_BYTES = 16;
     private final int TIMER_INACTIVE = 0;
 
     enum Mode
@@ -83,7 +87,9 @@ public class RaftLogShipper
         /**
          * In the catchup mode we are trying to catch up the follower as quickly
          * as possible. The follower receives batches of entries in series until
-         * it is fully caught up.
+         * it is fully caught up, with a window of batches in flight at a time
+         * to bridge the latency of the round trips. Every successful response
+         * from the follower frees up room in the window for more batches.
          */
         CATCHUP,
         /**
@@ -108,8 +114,13 @@ public class RaftLogShipper
     private final MemberId leader;
     private final long retryTimeMillis;
     private final int catchupBatchSize;
+    private final long catchupBatchMaxBytes;
+    private final int maxInFlightCatchupBatches;
     private final int maxAllowedShippingLag;
     private final InFlightMap<Long, RaftLogEntry> inFlightMap;
+    private final RaftLogShippingMonitor monitor;
+    // The last index of each catchup batch that the follower has not yet responded to, oldest batch first
+    private final Deque<Long> inFlightBatches = new ArrayDeque<>();
 
     private DelayedRenewableTimeoutService timeoutService;
     private RenewableTimeout timeout;
@@ -122,10 +133,15 @@ public class RaftLogShipper
     RaftLogShipper( Outbound<MemberId, RaftMessages.RaftMessage> outbound, LogProvider logProvider,
                     ReadableRaftLog raftLog, Clock clock,
                     MemberId leader, MemberId follower, long leaderTerm, long leaderCommit, long retryTimeMillis,
-                    int catchupBatchSize, int maxAllowedShippingLag, InFlightMap<Long, RaftLogEntry> inFlightMap )
+                    int catchupBatchSize, long catchupBatchMaxBytes, int maxInFlightCatchupBatches,
+                    int maxAllowedShippingLag, InFlightMap<Long, RaftLogEntry> inFlightMap,
+                    RaftLogShippingMonitor monitor )
     {
         this.outbound = outbound;
         this.catchupBatchSize = catchupBatchSize;
+        this.catchupBatchMaxBytes = catchupBatchMaxBytes;
+        this.maxInFlightCatchupBatches = maxInFlightCatchupBatches;
+        this.monitor = monitor;
         this.maxAllowedShippingLag = maxAllowedShippingLag;
         this.logProvider = logProvider;
         this.log = logProvider.getLog( getClass() );
@@ -181,6 +197,7 @@ public class RaftLogShipper
                 log.info( "%s: mismatch in mode %s from follower %s, moving to MISMATCH mode",
                         statusAsString(), mode, follower );
                 mode = Mode.MISMATCH;
+                inFlightBatches.clear();
                 sendEmpty( lastSentIndex, leaderContext );
                 break;
 
@@ -199,10 +216,12 @@ public class RaftLogShipper
         switch ( mode )
         {
             case MISMATCH:
-                if ( sendNextBatchAfterMatch( leaderContext ) )
+                inFlightBatches.clear();
+                if ( sendNextBatchesAfterMatch( leaderContext ) )
                 {
                     log.info( "%s: caught up after mismatch, moving to PIPELINE mode", statusAsString() );
                     mode = PIPELINE;
+                    inFlightBatches.clear();
                 }
                 else
                 {
@@ -211,13 +230,11 @@ public class RaftLogShipper
                 }
                 break;
             case CATCHUP:
-                if ( matchIndex >= lastSentIndex )
+                if ( sendNextBatchesAfterMatch( leaderContext ) )
                 {
-                    if ( sendNextBatchAfterMatch( leaderContext ) )
-                    {
-                        log.info( "%s: caught up, moving to PIPELINE mode", statusAsString() );
-                        mode = PIPELINE;
-                    }
+                    log.info( "%s: caught up, moving to PIPELINE mode", statusAsString() );
+                    mode = PIPELINE;
+                    inFlightBatches.clear();
                 }
                 break;
             case PIPELINE:
@@ -259,6 +276,8 @@ public class RaftLogShipper
                               "is %d), moving to CATCHUP mode", statusAsString(), prevLogIndex,
                             maxAllowedShippingLag );
                     mode = Mode.CATCHUP;
+                    // The pipelined entries count as one batch in flight
+                    inFlightBatches.addLast( lastSentIndex );
                     break;
                 }
             }
@@ -314,6 +333,12 @@ public class RaftLogShipper
         if ( lastLeaderContext != null )
         {
             sendEmpty( lastSentIndex, lastLeaderContext );
+            if ( mode == Mode.CATCHUP )
+            {
+                /* Any batches in flight are presumed lost, and only the empty entry is awaiting a response. */
+                inFlightBatches.clear();
+                inFlightBatches.addLast( lastSentIndex );
+            }
         }
     }
 
@@ -352,24 +377,42 @@ public class RaftLogShipper
     }
 
     /**
+     * Sends batches of the entries following those already sent, for as long as there is room for more batches in
+     * flight, after first letting go of the batches that the follower has matched.
+     *
      * Returns true if this sent the last batch.
      */
-    private boolean sendNextBatchAfterMatch( LeaderContext leaderContext )
+    private boolean sendNextBatchesAfterMatch( LeaderContext leaderContext )
     {
+        while ( !inFlightBatches.isEmpty() && inFlightBatches.peekFirst() <= matchIndex )
+        {
+            inFlightBatches.removeFirst();
+        }
+
         long lastIndex = raftLog.appendIndex();
+        long nextIndex = (inFlightBatches.isEmpty() ? matchIndex : lastSentIndex) + 1;
 
-        if ( lastIndex > matchIndex )
+        if ( nextIndex > lastIndex )
         {
-            long endIndex = min( lastIndex, matchIndex + catchupBatchSize );
-
-            scheduleTimeout( retryTimeMillis );
-            sendRange( matchIndex + 1, endIndex, leaderContext );
-            return endIndex == lastIndex;
+            return true;
         }
-        else
+        if ( inFlightBatches.size() >= maxInFlightCatchupBatches )
         {
-            return true;
+            return false;
         }
+
+        scheduleTimeout( retryTimeMillis );
+        while ( inFlightBatches.size() < maxInFlightCatchupBatches && nextIndex <= lastIndex )
+        {
+            long endIndex = sendBatch( nextIndex, lastIndex, leaderContext );
+            if ( endIndex < nextIndex )
+            {
+                return false;
+            }
+            inFlightBatches.addLast( endIndex );
+            nextIndex = endIndex + 1;
+        }
+        return nextIndex > lastIndex;
     }
 
     private void sendCommitUpdate( LeaderContext leaderContext )
@@ -435,20 +478,16 @@ public class RaftLogShipper
         }
     }
 
-    private void sendRange( long startIndex, long endIndex, LeaderContext leaderContext )
+    /**
+     * Sends a batch of entries starting at the given index, bounded by both the number of entries and their size in
+     * bytes. A batch holds at least one entry, however large.
+     *
+     * @return the index of the last entry sent, or -1 if no entries were sent.
+     */
+    private long sendBatch( long startIndex, long lastIndex, LeaderContext leaderContext )
     {
-        if ( startIndex > endIndex )
-        {
-            return;
-        }
-
-        lastSentIndex = endIndex;
-
         try
         {
-            int batchSize = (int) (endIndex - startIndex + 1);
-            RaftLogEntry[] entries = new RaftLogEntry[batchSize];
-
             long prevLogIndex = startIndex - 1;
             long prevLogTerm = raftLog.readEntryTerm( prevLogIndex );
 
@@ -456,26 +495,35 @@ public class RaftLogShipper
             {
                 log.warn( "%s aborting send. Not leader anymore? %s, prevLogTerm=%d",
                         statusAsString(), leaderContext, prevLogTerm );
-                return;
+                return -1;
             }
 
+            List<RaftLogEntry> entries = new ArrayList<>();
+            long batchBytes = 0;
             boolean entryMissing = false;
             try ( InFlightLogEntryReader logEntrySupplier = new InFlightLogEntryReader( raftLog, inFlightMap, false ) )
             {
-                for ( int offset = 0; offset < batchSize; offset++ )
+                for ( long index = startIndex; index <= lastIndex && entries.size() < catchupBatchSize; index++ )
                 {
-                    entries[offset] = logEntrySupplier.get( startIndex + offset );
-                    if ( entries[offset] == null )
+                    RaftLogEntry entry = logEntrySupplier.get( index );
+                    if ( entry == null )
                     {
                         entryMissing = true;
                         break;
                     }
-                    if ( entries[offset].term() > leaderContext.term )
+                    if ( entry.term() > leaderContext.term )
                     {
                         log.warn( "%s aborting send. Not leader anymore? %s, entryTerm=%d",
-                                statusAsString(), leaderContext, entries[offset].term() );
-                        return;
+                                statusAsString(), leaderContext, entry.term() );
+                        return -1;
+                    }
+                    long entryBytes = ENTRY_OVERHEAD_BYTES + entry.content().estimatedSize();
+                    if ( !entries.isEmpty() && batchBytes + entryBytes > catchupBatchMaxBytes )
+                    {
+                        break;
                     }
+                    entries.add( entry );
+                    batchBytes += entryBytes;
                 }
             }
 
@@ -489,18 +537,24 @@ public class RaftLogShipper
                 {
                     log.error( "Could not send compaction info and entries were missing, but log is not behind." );
                 }
+                return -1;
             }
-            else
-            {
-                RaftMessages.AppendEntries.Request appendRequest = new RaftMessages.AppendEntries.Request(
-                        leader, leaderContext.term, prevLogIndex, prevLogTerm, entries, leaderContext.commitIndex );
 
-                outbound.send( follower, appendRequest );
-            }
+            long endIndex = startIndex + entries.size() - 1;
+            lastSentIndex = endIndex;
+
+            RaftMessages.AppendEntries.Request appendRequest = new RaftMessages.AppendEntries.Request(
+                    leader, leaderContext.term, prevLogIndex, prevLogTerm,
+                    entries.toArray( new RaftLogEntry[entries.size()] ), leaderContext.commitIndex );
+
+            outbound.send( follower, appendRequest );
+            monitor.catchupBatchShipped( entries.size(), batchBytes );
+            return endIndex;
         }
         catch ( IOException e )
         {
             log.warn( statusAsString() + " exception during batch send", e );
+            return -1;
         }
     }
 
@@ -520,7 +574,7 @@ public class RaftLogShipper
 
     private String statusAsString()
     {
-        return format( "%s[matchIndex: %d, lastSentIndex: %d, localAppendIndex: %d, mode: %s]", follower, matchIndex,
-                lastSentIndex, raftLog.appendIndex(), mode );
+        return format( "%s[matchIndex: %d, lastSentIndex: %d, localAppendIndex: %d, mode: %s, inFlightBatches: %d]",
+                follower, matchIndex, lastSentIndex, raftLog.appendIndex(), mode, inFlightBatches.size() );
     }
 }
@@ -35,6 +35,7 @@ import org.neo4j.coreedge.messaging.Outbound;
 import org.neo4j.coreedge.core.consensus.outcome.ShipCommand;
 import org.neo4j.coreedge.identity.MemberId;
 import org.neo4j.kernel.lifecycle.LifecycleAdapter;
+import org.neo4j.kernel.monitoring.Monitors;
 import org.neo4j.logging.LogProvider;
 
 import static java.lang.String.format;
@@ -50,8 +51,11 @@ public class RaftLogShippingManager extends LifecycleAdapter implements RaftMemb
     private final RaftMembership membership;
     private final long retryTimeMillis;
     private final int catchupBatchSize;
+    private final long catchupBatchMaxBytes;
+    private final int maxInFlightCatchupBatches;
     private final int maxAllowedShippingLag;
     private final InFlightMap<Long,RaftLogEntry> inFlightMap;
+    private final RaftLogShippingMonitor shippingMonitor;
 
     private Map<MemberId,RaftLogShipper> logShippers = new HashMap<>();
     private LeaderContext lastLeaderContext;
@@ -62,8 +66,9 @@ public class RaftLogShippingManager extends LifecycleAdapter implements RaftMemb
     public RaftLogShippingManager( Outbound<MemberId,RaftMessages.RaftMessage> outbound, LogProvider logProvider,
                                    ReadableRaftLog raftLog,
                                    Clock clock, MemberId myself, RaftMembership membership, long retryTimeMillis,
-                                   int catchupBatchSize, int maxAllowedShippingLag,
-                                   InFlightMap<Long, RaftLogEntry> inFlightMap )
+                                   int catchupBatchSize, long catchupBatchMaxBytes, int maxInFlightCatchupBatches,
+                                   int maxAllowedShippingLag, InFlightMap<Long, RaftLogEntry> inFlightMap,
+                                   Monitors monitors )
     {
         this.outbound = outbound;
         this.logProvider = logProvider;
@@ -73,8 +78,11 @@ public class RaftLogShippingManager extends LifecycleAdapter implements RaftMemb
         this.membership = membership;
         this.retryTimeMillis = retryTimeMillis;
         this.catchupBatchSize = catchupBatchSize;
+        this.catchupBatchMaxBytes = catchupBatchMaxBytes;
+        this.maxInFlightCatchupBatches = maxInFlightCatchupBatches;
         this.maxAllowedShippingLag = maxAllowedShippingLag;
         this.inFlightMap = inFlightMap;
+        this.shippingMonitor = monitors.newMonitor( RaftLogShippingMonitor.class );
         membership.registerListener( this );
     }
 
@@ -123,7 +131,8 @@ public class RaftLogShippingManager extends LifecycleAdapter implements RaftMemb
         {
             logShipper = new RaftLogShipper( outbound, logProvider, raftLog, clock, myself, member,
                     leaderContext.term, leaderContext.commitIndex, retryTimeMillis, catchupBatchSize,
-                    maxAllowedShippingLag, inFlightMap );
+                    catchupBatchMaxBytes, maxInFlightCatchupBatches, maxAllowedShippingLag, inFlightMap,
+                    shippingMonitor );
 
             logShippers.put( member, logShipper );
 
@@ -61,6 +61,12 @@ public class  DistributedOperation implements ReplicatedContent
         return content;
     }
 
+    @Override
+    public long estimatedSize()
+    {
+        return content.estimatedSize();
+    }
+
     public void serialize( WritableChannel channel ) throws IOException
     {
         channel.putLong( globalSession().sessionId().getMostSignificantBits() );
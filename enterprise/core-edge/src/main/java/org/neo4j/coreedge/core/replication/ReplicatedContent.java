@@ -24,4 +24,12 @@ package org.neo4j.coreedge.core.replication;
  */
 public interface ReplicatedContent
 {
+    /**
+     * @return an estimate of the number of bytes this content takes up when marshalled, used for bounding the size
+     * of batches of log entries. Content that is known to be small can keep the default of zero.
+     */
+    default long estimatedSize()
+    {
+        return 0;
+    }
 }
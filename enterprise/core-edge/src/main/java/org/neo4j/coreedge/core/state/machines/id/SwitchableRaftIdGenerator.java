@@ -107,4 +107,10 @@ class SwitchableRaftIdGenerator implements IdGenerator
         delegate.delete();
     }
 
+    @Override
+    public void checkpoint()
+    {
+        delegate.checkpoint();
+    }
+
 }
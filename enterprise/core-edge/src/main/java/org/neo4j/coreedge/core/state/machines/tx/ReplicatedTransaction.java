@@ -39,6 +39,12 @@ public class ReplicatedTransaction implements CoreReplicatedContent
         return txBytes;
     }
 
+    @Override
+    public long estimatedSize()
+    {
+        return txBytes.length;
+    }
+
     @Override
     public void dispatch( CommandDispatcher commandDispatcher, long commandIndex, Consumer<Result> callback )
     {
@@ -86,6 +86,8 @@ public class RaftMachineBuilder
     private long catchupTimeout = 30000;
     private long retryTimeMillis = electionTimeout / 2;
     private int catchupBatchSize = 64;
+    private long catchupBatchMaxBytes = 1024 * 1024;
+    private int maxInFlightCatchupBatches = 4;
     private int maxAllowedShippingLag = 256;
     private StateStorage<RaftMembershipState> raftMembership =
             new InMemoryStateStorage<>( new RaftMembershipState() );
@@ -110,7 +112,8 @@ public class RaftMachineBuilder
         membershipManager.setRecoverFromIndexSupplier( () -> 0 );
         RaftLogShippingManager logShipping =
                 new RaftLogShippingManager( outbound, logProvider, raftLog, clock, member, membershipManager,
-                        retryTimeMillis, catchupBatchSize, maxAllowedShippingLag, inFlightMap );
+                        retryTimeMillis, catchupBatchSize, catchupBatchMaxBytes, maxInFlightCatchupBatches,
+                        maxAllowedShippingLag, inFlightMap, monitors );
         RaftMachine raft = new RaftMachine( member, termState, voteState, raftLog, electionTimeout,
                 heartbeatInterval, renewableTimeoutService, outbound, logProvider,
                 membershipManager, logShipping, inFlightMap, monitors );
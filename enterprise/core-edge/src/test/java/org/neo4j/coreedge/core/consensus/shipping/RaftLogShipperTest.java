@@ -27,6 +27,7 @@ import java.io.IOException;
 import java.time.Clock;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import org.neo4j.coreedge.core.consensus.LeaderContext;
 import org.neo4j.coreedge.core.consensus.OutboundMessageCollector;
@@ -38,6 +39,7 @@ import org.neo4j.coreedge.core.consensus.log.InMemoryRaftLog;
 import org.neo4j.coreedge.core.consensus.log.RaftLog;
 import org.neo4j.coreedge.core.consensus.log.RaftLogEntry;
 import org.neo4j.coreedge.core.consensus.log.segmented.InFlightMap;
+import org.neo4j.coreedge.core.state.machines.tx.ReplicatedTransaction;
 import org.neo4j.coreedge.identity.MemberId;
 import org.neo4j.helpers.collection.Iterables;
 import org.neo4j.logging.Log;
@@ -46,6 +48,7 @@ import org.neo4j.test.matchers.Matchers;
 import org.neo4j.time.Clocks;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static org.hamcrest.CoreMatchers.hasItem;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
@@ -66,6 +69,8 @@ public class RaftLogShipperTest
     private long leaderCommit;
     private long retryTimeMillis;
     private int catchupBatchSize = 64;
+    private long catchupBatchMaxBytes = 1024 * 1024;
+    private int maxInFlightCatchupBatches = 1;
     private int maxAllowedShippingLag = 256;
     private LogProvider logProvider;
     private Log log;
@@ -107,7 +112,8 @@ public class RaftLogShipperTest
     private void startLogShipper()
     {
         logShipper = new RaftLogShipper( outbound, logProvider, raftLog, clock, leader, follower, leaderTerm, leaderCommit,
-                        retryTimeMillis, catchupBatchSize, maxAllowedShippingLag, new InFlightMap<>() );
+                        retryTimeMillis, catchupBatchSize, catchupBatchMaxBytes, maxInFlightCatchupBatches,
+                        maxAllowedShippingLag, new InFlightMap<>(), mock( RaftLogShippingMonitor.class ) );
         logShipper.start();
     }
 
@@ -285,6 +291,85 @@ public class RaftLogShipperTest
         assertEquals( ENTRY_COUNT - 1, matchIndex );
     }
 
+    @Test
+    public void shouldKeepSeveralBatchesInFlightWhenCatchingUp() throws Throwable
+    {
+        // given
+        catchupBatchSize = 2;
+        maxInFlightCatchupBatches = 3;
+        List<RaftLogEntry> entries = new ArrayList<>();
+        for ( int i = 0; i < 10; i++ )
+        {
+            RaftLogEntry entry = new RaftLogEntry( 0, ReplicatedInteger.valueOf( i ) );
+            entries.add( entry );
+            raftLog.append( entry );
+        }
+        startLogShipper();
+        logShipper.onMismatch( 0, new LeaderContext( 0, 0 ) );
+
+        // when
+        outbound.clear();
+        logShipper.onMatch( 0, new LeaderContext( 0, 0 ) );
+
+        // then
+        assertEquals( asList( entries.subList( 1, 3 ), entries.subList( 3, 5 ), entries.subList( 5, 7 ) ),
+                sentEntries() );
+
+        // when the follower has matched the first batch
+        outbound.clear();
+        logShipper.onMatch( 2, new LeaderContext( 0, 0 ) );
+
+        // then there is room for one more batch
+        assertEquals( singletonList( entries.subList( 7, 9 ) ), sentEntries() );
+
+        // when the follower has matched the rest of the batches
+        outbound.clear();
+        logShipper.onMatch( 8, new LeaderContext( 0, 0 ) );
+
+        // then the last entry is sent
+        assertEquals( singletonList( entries.subList( 9, 10 ) ), sentEntries() );
+    }
+
+    @Test
+    public void shouldBoundCatchupBatchesBySize() throws Throwable
+    {
+        // given
+        catchupBatchMaxBytes = 2500;
+        maxInFlightCatchupBatches = 10;
+        RaftLogEntry small1 = new RaftLogEntry( 0, new ReplicatedTransaction( new byte[1000] ) );
+        RaftLogEntry small2 = new RaftLogEntry( 0, new ReplicatedTransaction( new byte[1000] ) );
+        RaftLogEntry small3 = new RaftLogEntry( 0, new ReplicatedTransaction( new byte[1000] ) );
+        RaftLogEntry large = new RaftLogEntry( 0, new ReplicatedTransaction( new byte[5000] ) );
+        raftLog.append( entry0 );
+        raftLog.append( small1 );
+        raftLog.append( small2 );
+        raftLog.append( small3 );
+        raftLog.append( large );
+        startLogShipper();
+        logShipper.onMismatch( 0, new LeaderContext( 0, 0 ) );
+
+        // when
+        outbound.clear();
+        logShipper.onMatch( 0, new LeaderContext( 0, 0 ) );
+
+        // then an entry larger than the bound still gets a batch of its own
+        assertEquals( asList( asList( small1, small2 ), singletonList( small3 ), singletonList( large ) ),
+                sentEntries() );
+    }
+
+    private List<List<RaftLogEntry>> sentEntries()
+    {
+        List<List<RaftLogEntry>> batches = new ArrayList<>();
+        for ( RaftMessages.RaftMessage message : outbound.sentTo( follower ) )
+        {
+            if ( message instanceof AppendEntries.Request )
+            {
+                batches.add( asList( ((AppendEntries.Request) message).entries() ) );
+            }
+        }
+        return batches;
+    }
+
     @Test
     public void shouldSendMostRecentlyAvailableEntryIfPruningHappened() throws IOException
     {
@@ -29,6 +29,7 @@ import org.neo4j.com.Protocol;
 import org.neo4j.com.RequestContext;
 import org.neo4j.com.Response;
 import org.neo4j.com.TargetCaller;
+import org.neo4j.com.storecopy.StoreCopyCompression;
 import org.neo4j.com.storecopy.ToNetworkStoreWriter;
 import org.neo4j.kernel.api.exceptions.TransactionFailureException;
 import org.neo4j.kernel.ha.com.master.HandshakeResult;
@@ -189,7 +190,9 @@ public class HaRequestType210 extends AbstractHaRequestTypes
             public Response<Void> call( Master master, RequestContext context, ChannelBuffer input,
                     final ChannelBuffer target )
             {
-                return master.copyStore( context, new ToNetworkStoreWriter( target, new Monitors() ) );
+                StoreCopyCompression compression = input.readable() ? StoreCopyCompression.forId( input.readByte() )
+                                                                    : StoreCopyCompression.NONE;
+                return master.copyStore( context, new ToNetworkStoreWriter( target, new Monitors(), compression ) );
             }
 
         }, VOID_SERIALIZER, false );
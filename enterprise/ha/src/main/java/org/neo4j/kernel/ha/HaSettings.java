@@ -19,6 +19,7 @@
  */
 package org.neo4j.kernel.ha;
 
+import org.neo4j.com.storecopy.StoreCopyCompression;
 import org.neo4j.graphdb.config.Setting;
 import org.neo4j.graphdb.factory.Description;
 import org.neo4j.helpers.HostnamePort;
@@ -34,6 +35,7 @@ import static org.neo4j.kernel.configuration.Settings.HOSTNAME_PORT;
 import static org.neo4j.kernel.configuration.Settings.INTEGER;
 import static org.neo4j.kernel.configuration.Settings.min;
 import static org.neo4j.kernel.configuration.Settings.options;
+import static org.neo4j.kernel.configuration.Settings.optionsIgnoreCase;
 import static org.neo4j.kernel.configuration.Settings.setting;
 import static org.neo4j.kernel.ha.HaSettings.TxPushStrategy.fixed_ascending;
 
@@ -85,6 +87,12 @@ public class HaSettings
             "tolerance for bandwidth variations." )
     public static final Setting<Long> com_chunk_size = setting( "ha.data_chunk_size", BYTES, "2M", min( 1024L ) );
 
+    @Description( "Compression a slave asks the master to compress the store files with, when it copies the store " +
+                  "from the master. One of `NONE` and `DEFLATE`." )
+    @Internal
+    public static final Setting<StoreCopyCompression> store_copy_compression = setting(
+            "unsupported.ha.store_copy_compression", optionsIgnoreCase( StoreCopyCompression.values() ), "NONE" );
+
     @Description( "Interval of pulling updates from master." )
     public static final Setting<Long> pull_interval = setting( "ha.pull_interval", DURATION, "0s" );
 
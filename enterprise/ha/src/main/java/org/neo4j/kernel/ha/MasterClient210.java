@@ -36,6 +36,7 @@ import org.neo4j.com.Serializer;
 import org.neo4j.com.monitor.RequestMonitor;
 import org.neo4j.com.storecopy.ResponseUnpacker;
 import org.neo4j.com.storecopy.ResponseUnpacker.TxHandler;
+import org.neo4j.com.storecopy.StoreCopyCompression;
 import org.neo4j.com.storecopy.StoreWriter;
 import org.neo4j.kernel.impl.store.id.IdType;
 import org.neo4j.kernel.ha.HaRequestTypes.Type;
@@ -306,10 +307,24 @@ public class MasterClient210 extends Client<Master> implements MasterClient
 
     @Override
     public Response<Void> copyStore( RequestContext context, final StoreWriter writer )
+    {
+        return copyStore( context, writer, StoreCopyCompression.NONE );
+    }
+
+    @Override
+    public Response<Void> copyStore( RequestContext context, StoreWriter writer,
+            final StoreCopyCompression compression )
     {
         context = stripFromTransactions( context );
-        return sendRequest( requestTypes.type( Type.COPY_STORE ), context, EMPTY_SERIALIZER,
-                new Protocol.FileStreamsDeserializer( writer ) );
+        return sendRequest( requestTypes.type( Type.COPY_STORE ), context, new Serializer()
+        {
+            @Override
+            public void write( ChannelBuffer buffer ) throws IOException
+            {
+                // Masters which don't support compression ignore this, and send the files uncompressed
+                buffer.writeByte( compression.id() );
+            }
+        }, new Protocol.FileStreamsDeserializer( writer ) );
     }
 
     private RequestContext stripFromTransactions( RequestContext context )
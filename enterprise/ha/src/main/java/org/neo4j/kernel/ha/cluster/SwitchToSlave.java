@@ -531,7 +531,8 @@ public class SwitchToSlave
                         public Response<?> copyStore( StoreWriter writer )
                         {
                             return masterClient.copyStore( new RequestContext( 0,
-                                config.get( ClusterSettings.server_id ).toIntegerIndex(), 0, BASE_TX_ID, 0 ), writer );
+                                config.get( ClusterSettings.server_id ).toIntegerIndex(), 0, BASE_TX_ID, 0 ), writer,
+                                config.get( HaSettings.store_copy_compression ) );
                         }
 
                         @Override
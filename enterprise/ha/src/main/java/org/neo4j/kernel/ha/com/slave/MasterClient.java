@@ -33,6 +33,7 @@ import org.neo4j.com.ProtocolVersion;
 import org.neo4j.com.RequestContext;
 import org.neo4j.com.Response;
 import org.neo4j.com.storecopy.ResponseUnpacker.TxHandler;
+import org.neo4j.com.storecopy.StoreCopyCompression;
 import org.neo4j.com.storecopy.StoreWriter;
 import org.neo4j.helpers.Exceptions;
 import org.neo4j.kernel.ha.MasterClient214;
@@ -125,6 +126,12 @@ public interface MasterClient extends Master
     @Override
     public Response<Void> copyStore( RequestContext context, final StoreWriter writer );
 
+    /**
+     * Like {@link #copyStore(RequestContext, StoreWriter)}, but asks the master to compress the store files
+     * with the given codec. Masters which don't support compression send the store files uncompressed.
+     */
+    public Response<Void> copyStore( RequestContext context, StoreWriter writer, StoreCopyCompression compression );
+
     public void setComExceptionHandler( ComExceptionHandler handler );
 
     public ProtocolVersion getProtocolVersion();
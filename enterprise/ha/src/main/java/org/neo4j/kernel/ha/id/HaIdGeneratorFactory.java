@@ -107,6 +107,12 @@ public class HaIdGeneratorFactory implements IdGeneratorFactory
         localFactory.create( fileName, highId, false );
     }
 
+    @Override
+    public long[] readCheckpointedFreeIds( File fileName )
+    {
+        return localFactory.readCheckpointedFreeIds( fileName );
+    }
+
     @Override
     public IdGenerator get( IdType idType )
     {
@@ -288,6 +294,12 @@ public class HaIdGeneratorFactory implements IdGeneratorFactory
         {
             delegate.delete();
         }
+
+        @Override
+        public void checkpoint()
+        {
+            delegate.checkpoint();
+        }
     }
 
     private static class SlaveIdGenerator implements IdGenerator
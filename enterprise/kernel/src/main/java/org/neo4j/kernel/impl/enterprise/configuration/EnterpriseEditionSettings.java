@@ -74,4 +74,13 @@ public class EnterpriseEditionSettings
     public static final Setting<Integer> store_security_log_max_archives =
             setting("dbms.logs.security.rotation.keep_number", INTEGER, "7", min(1) );
 
+    @Description( "Periodically record which pages are in the page cache, and load those pages back into the page " +
+                  "cache when the database starts up, so it does not start out with a cold cache." )
+    public static final Setting<Boolean> pagecache_warmup_enabled =
+            setting( "dbms.memory.pagecache.warmup.enable", BOOLEAN, "true" );
+
+    @Description( "How often the contents of the page cache are profiled for the page cache warm-up." )
+    public static final Setting<Long> pagecache_warmup_profiling_interval =
+            setting( "dbms.memory.pagecache.warmup.profile.interval", DURATION, "1m" );
+
 }
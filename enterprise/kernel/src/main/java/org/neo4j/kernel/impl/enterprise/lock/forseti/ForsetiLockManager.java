@@ -19,7 +19,6 @@
  */
 package org.neo4j.kernel.impl.enterprise.lock.forseti;
 
-import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -50,12 +49,12 @@ import org.neo4j.storageengine.api.lock.WaitStrategy;
  * <h2>Locking algorithm</h2>
  * <p/>
  * Forseti is used by acquiring clients, which act as agents on behalf of whoever wants to grab locks. The clients
- * have access to a central map of locks.
+ * have access to a central table of locks per resource type.
  * <p/>
  * To grab a lock, a client must insert itself into the holder list of the lock it wants. The lock may either be a
  * shared lock or an exclusive lock. In the case of a shared lock, the client simply appends itself to the holder list.
- * In the case of an exclusive lock, the client has it's own unique exclusive lock, which it must put into the lock map
- * using a CAS operation.
+ * In the case of an exclusive lock, the client has it's own unique exclusive lock, which it must put into the
+ * {@link LockTable} of the resource type, provided that no other lock is there already.
  * <p/>
  * Once the client is in the holder list, it has the lock.
  * <p/>
@@ -91,8 +90,8 @@ import org.neo4j.storageengine.api.lock.WaitStrategy;
  * be worth investigating fat locks, or in any case optimize the current way SharedLock adds and removes clients from
  * its holder list.
  * <p/>
- * The maps used by Forseti should be replaced by faster concurrent maps, perhaps a striped hopscotch map or something
- * similar.
+ * Shared locks are still allocated when they are first taken on a resource. Encoding the holders of lightly shared
+ * locks directly in the {@link LockTable} slots would make those allocation free as well.
  */
 public class ForsetiLockManager implements Locks
 {
@@ -162,7 +161,7 @@ public class ForsetiLockManager implements Locks
     }
 
     /** Pointers to lock maps, one array per resource type. */
-    private final ConcurrentMap<Long,ForsetiLockManager.Lock>[] lockMaps;
+    private final LockTable[] lockMaps;
 
     /** Reverse lookup resource types by id, used for introspection */
     private final ResourceType[] resourceTypes;
@@ -176,7 +175,7 @@ public class ForsetiLockManager implements Locks
     public ForsetiLockManager( ResourceType... resourceTypes )
     {
         int maxResourceId = findMaxResourceId( resourceTypes );
-        this.lockMaps = new ConcurrentMap[maxResourceId];
+        this.lockMaps = new LockTable[maxResourceId];
         this.resourceTypes = new ResourceType[maxResourceId];
 
         /* Wait strategies per resource type */
@@ -184,7 +183,7 @@ public class ForsetiLockManager implements Locks
 
         for ( ResourceType type : resourceTypes )
         {
-            this.lockMaps[type.typeId()] = new ConcurrentHashMap<>( 16, 0.6f, 512 );
+            this.lockMaps[type.typeId()] = new LockTable();
             waitStrategies[type.typeId()] = type.waitStrategy();
             this.resourceTypes[type.typeId()] = type;
         }
@@ -223,11 +222,8 @@ public class ForsetiLockManager implements Locks
             if ( lockMaps[i] != null )
             {
                 ResourceType type = resourceTypes[i];
-                for ( Map.Entry<Long,Lock> entry : lockMaps[i].entrySet() )
-                {
-                    Lock lock = entry.getValue();
-                    out.visit( type, entry.getKey(), lock.describeWaitList(), 0, System.identityHashCode( lock ) );
-                }
+                lockMaps[i].accept( ( resourceId, lock ) ->
+                        out.visit( type, resourceId, lock.describeWaitList(), 0, System.identityHashCode( lock ) ) );
             }
         }
     }
@@ -258,12 +254,12 @@ public class ForsetiLockManager implements Locks
         // very limited set of integers.
         private final Queue<Integer> unusedIds = new ConcurrentLinkedQueue<>();
         private final ConcurrentMap<Integer,ForsetiClient> clientsById = new ConcurrentHashMap<>();
-        private final ConcurrentMap<Long,ForsetiLockManager.Lock>[] lockMaps;
+        private final LockTable[] lockMaps;
         private final WaitStrategy<AcquireLockTimeoutException>[] waitStrategies;
         private final DeadlockResolutionStrategy deadlockResolutionStrategy = DeadlockStrategies.DEFAULT;
 
         public ForsetiClientFlyweightPool(
-                ConcurrentMap<Long,ForsetiLockManager.Lock>[] lockMaps,
+                LockTable[] lockMaps,
                 WaitStrategy<AcquireLockTimeoutException>[] waitStrategies )
         {
             super( 128, null );
@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.enterprise.lock.forseti;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * The global lock table of a single resource type, mapping resource ids to the {@link ForsetiLockManager.Lock} that
+ * is currently held on them.
+ * <p/>
+ * The table is keyed on primitive longs, so unlike a {@code ConcurrentHashMap<Long,Lock>} it allocates neither boxed
+ * keys nor map nodes when a lock is taken. Together with the re-usable {@link ExclusiveLock} of every
+ * {@link ForsetiClient}, this means that grabbing an uncontended exclusive lock allocates nothing at all.
+ * <p/>
+ * The table is split into a number of stripes, picked by the hash of the resource id, and every stripe is an
+ * open-addressed table with linear probing. Modifications take the write lock of their stripe, while lookups read
+ * the stripe optimistically and only fall back to taking the read lock if a concurrent modification got in the way.
+ * Since resource ids can take any long value, including negative ones, a slot is considered empty when it has no
+ * lock, rather than when it holds a reserved key.
+ */
+class LockTable
+{
+    private static final int INITIAL_STRIPE_CAPACITY = 16;
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+
+    LockTable()
+    {
+        this( Runtime.getRuntime().availableProcessors() * 4 );
+    }
+
+    LockTable( int concurrency )
+    {
+        int stripeCount = Integer.highestOneBit( Math.max( 16, concurrency ) - 1 ) << 1;
+        stripes = new Stripe[stripeCount];
+        stripeMask = stripeCount - 1;
+        for ( int i = 0; i < stripeCount; i++ )
+        {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * @return the lock held on the given resource, or {@code null} if there is none.
+     */
+    ForsetiLockManager.Lock get( long resourceId )
+    {
+        long hash = hash( resourceId );
+        return stripe( hash ).get( resourceId, (int) hash );
+    }
+
+    /**
+     * Put the given lock on the given resource, unless the resource already has a lock.
+     *
+     * @return the lock already held on the resource, or {@code null} if the given lock was put in place.
+     */
+    ForsetiLockManager.Lock putIfAbsent( long resourceId, ForsetiLockManager.Lock lock )
+    {
+        long hash = hash( resourceId );
+        return stripe( hash ).put( resourceId, (int) hash, lock, true );
+    }
+
+    /**
+     * Put the given lock on the given resource, replacing any lock that the resource already has.
+     *
+     * @return the lock that was replaced, or {@code null} if the resource had no lock.
+     */
+    ForsetiLockManager.Lock put( long resourceId, ForsetiLockManager.Lock lock )
+    {
+        long hash = hash( resourceId );
+        return stripe( hash ).put( resourceId, (int) hash, lock, false );
+    }
+
+    /**
+     * Remove any lock from the given resource.
+     *
+     * @return the lock that was removed, or {@code null} if the resource had no lock.
+     */
+    ForsetiLockManager.Lock remove( long resourceId )
+    {
+        long hash = hash( resourceId );
+        return stripe( hash ).remove( resourceId, (int) hash );
+    }
+
+    /**
+     * Visit every lock in the table. The stripes are visited one at a time, so the visitor will not see a consistent
+     * snapshot of the whole table if it is concurrently modified.
+     */
+    void accept( Visitor visitor )
+    {
+        for ( Stripe stripe : stripes )
+        {
+            stripe.accept( visitor );
+        }
+    }
+
+    private Stripe stripe( long hash )
+    {
+        return stripes[(int) (hash >>> 32) & stripeMask];
+    }
+
+    private static long hash( long resourceId )
+    {
+        // The finalisation step of MurmurHash3, so both halves of the hash depend on all bits of the resource id.
+        long h = resourceId;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    interface Visitor
+    {
+        void visit( long resourceId, ForsetiLockManager.Lock lock );
+    }
+
+    /**
+     * The keys and values of a stripe live in a single object, so optimistic readers always see arrays of the same
+     * size, even if they race with a resize.
+     */
+    private static final class Slots
+    {
+        final long[] keys;
+        final ForsetiLockManager.Lock[] locks;
+        final int mask;
+
+        Slots( int capacity )
+        {
+            keys = new long[capacity];
+            locks = new ForsetiLockManager.Lock[capacity];
+            mask = capacity - 1;
+        }
+    }
+
+    private static final class Stripe extends StampedLock
+    {
+        private Slots slots = new Slots( INITIAL_STRIPE_CAPACITY );
+        private int size;
+
+        ForsetiLockManager.Lock get( long resourceId, int hash )
+        {
+            long stamp = tryOptimisticRead();
+            ForsetiLockManager.Lock lock = find( slots, resourceId, hash );
+            if ( !validate( stamp ) )
+            {
+                stamp = readLock();
+                try
+                {
+                    lock = find( slots, resourceId, hash );
+                }
+                finally
+                {
+                    unlockRead( stamp );
+                }
+            }
+            return lock;
+        }
+
+        private static ForsetiLockManager.Lock find( Slots slots, long resourceId, int hash )
+        {
+            // Bound the probing by the capacity, since an optimistic reader may see the slots mid-modification.
+            for ( int i = hash & slots.mask, probes = 0; probes <= slots.mask; i = (i + 1) & slots.mask, probes++ )
+            {
+                ForsetiLockManager.Lock lock = slots.locks[i];
+                if ( lock == null )
+                {
+                    return null;
+                }
+                if ( slots.keys[i] == resourceId )
+                {
+                    return lock;
+                }
+            }
+            return null;
+        }
+
+        ForsetiLockManager.Lock put( long resourceId, int hash, ForsetiLockManager.Lock lock, boolean onlyIfAbsent )
+        {
+            long stamp = writeLock();
+            try
+            {
+                Slots slots = this.slots;
+                int i = hash & slots.mask;
+                for ( ForsetiLockManager.Lock existing; (existing = slots.locks[i]) != null; i = (i + 1) & slots.mask )
+                {
+                    if ( slots.keys[i] == resourceId )
+                    {
+                        if ( !onlyIfAbsent )
+                        {
+                            slots.locks[i] = lock;
+                        }
+                        return existing;
+                    }
+                }
+                slots.keys[i] = resourceId;
+                slots.locks[i] = lock;
+                if ( ++size > (slots.locks.length >>> 1) )
+                {
+                    resize();
+                }
+                return null;
+            }
+            finally
+            {
+                unlockWrite( stamp );
+            }
+        }
+
+        ForsetiLockManager.Lock remove( long resourceId, int hash )
+        {
+            long stamp = writeLock();
+            try
+            {
+                Slots slots = this.slots;
+                int mask = slots.mask;
+                int i = hash & mask;
+                ForsetiLockManager.Lock existing;
+                while ( (existing = slots.locks[i]) != null && slots.keys[i] != resourceId )
+                {
+                    i = (i + 1) & mask;
+                }
+                if ( existing == null )
+                {
+                    return null;
+                }
+
+                // Shift the following entries of the probe sequence back, so lookups never stop at a hole.
+                int hole = i;
+                for ( int j = (i + 1) & mask; slots.locks[j] != null; j = (j + 1) & mask )
+                {
+                    int home = (int) hash( slots.keys[j] ) & mask;
+                    if ( ((j - home) & mask) >= ((j - hole) & mask) )
+                    {
+                        slots.keys[hole] = slots.keys[j];
+                        slots.locks[hole] = slots.locks[j];
+                        hole = j;
+                    }
+                }
+                slots.locks[hole] = null;
+                size--;
+                return existing;
+            }
+            finally
+            {
+                unlockWrite( stamp );
+            }
+        }
+
+        private void resize()
+        {
+            Slots oldSlots = slots;
+            Slots newSlots = new Slots( oldSlots.locks.length << 1 );
+            for ( int i = 0; i < oldSlots.locks.length; i++ )
+            {
+                ForsetiLockManager.Lock lock = oldSlots.locks[i];
+                if ( lock != null )
+                {
+                    long resourceId = oldSlots.keys[i];
+                    int j = (int) hash( resourceId ) & newSlots.mask;
+                    while ( newSlots.locks[j] != null )
+                    {
+                        j = (j + 1) & newSlots.mask;
+                    }
+                    newSlots.keys[j] = resourceId;
+                    newSlots.locks[j] = lock;
+                }
+            }
+            slots = newSlots;
+        }
+
+        void accept( Visitor visitor )
+        {
+            long stamp = readLock();
+            try
+            {
+                Slots slots = this.slots;
+                for ( int i = 0; i < slots.locks.length; i++ )
+                {
+                    ForsetiLockManager.Lock lock = slots.locks[i];
+                    if ( lock != null )
+                    {
+                        visitor.visit( slots.keys[i], lock );
+                    }
+                }
+            }
+            finally
+            {
+                unlockRead( stamp );
+            }
+        }
+    }
+}
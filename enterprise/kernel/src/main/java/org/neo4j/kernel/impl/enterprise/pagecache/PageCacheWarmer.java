@@ -0,0 +1,341 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.enterprise.pagecache;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.io.pagecache.PageCursor;
+import org.neo4j.io.pagecache.PagedFile;
+import org.neo4j.io.pagecache.tracing.PageCacheTracer;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static org.neo4j.io.pagecache.PagedFile.PF_NO_FAULT;
+import static org.neo4j.io.pagecache.PagedFile.PF_READ_AHEAD;
+import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_READ_LOCK;
+import static org.neo4j.io.pagecache.PagedFile.PF_TRANSIENT;
+
+/**
+ * The page cache warmer profiles which pages of the mapped store files are currently in memory, and uses those
+ * profiles to load the same pages back into the page cache after a restart.
+ * <p>
+ * A profile is a gzipped bitmap with one bit per file page, where a set bit means that the page was in memory when
+ * the profile was taken. The profile of a store file is written next to it, with a {@value #SUFFIX_CACHEPROF}
+ * suffix, by first writing a temporary file and then atomically moving it in place.
+ * <p>
+ * Profiling uses {@link PagedFile#PF_NO_FAULT} and {@link PagedFile#PF_TRANSIENT} cursors, so it neither loads
+ * pages nor disturbs the eviction order. Warming up splits the profiles into chunks of pages that are loaded in
+ * ascending page order by a number of parallel workers, using {@link PagedFile#PF_READ_AHEAD} cursors so runs of
+ * consecutive pages are read with vectored reads.
+ */
+public class PageCacheWarmer
+{
+    public static final String SUFFIX_CACHEPROF = ".cacheprof";
+    private static final String SUFFIX_CACHEPROF_TMP = ".cacheprof.tmp";
+
+    // The number of pages covered by each unit of warm-up work. Must be a multiple of 8.
+    private static final int WARMUP_CHUNK_PAGES = 1 << 16;
+
+    private final FileSystemAbstraction fs;
+    private final PageCache pageCache;
+    private final File storeDir;
+    private final PageCacheTracer tracer;
+    private volatile boolean stopped;
+
+    public PageCacheWarmer( FileSystemAbstraction fs, PageCache pageCache, File storeDir, PageCacheTracer tracer )
+    {
+        this.fs = fs;
+        this.pageCache = pageCache;
+        this.storeDir = storeDir;
+        this.tracer = tracer;
+    }
+
+    /**
+     * Allow profiling and warming up to run again, after a previous call to {@link #stop()}.
+     */
+    public void start()
+    {
+        stopped = false;
+    }
+
+    /**
+     * Make any ongoing or future profiling or warm-up stop, and wait for any ongoing profiling or warm-up to notice.
+     * Once this method returns, the warmer no longer holds on to any mapped files.
+     */
+    public void stop()
+    {
+        stopped = true;
+        synchronized ( this )
+        {
+            // Any ongoing profiling or warm-up has now finished.
+        }
+    }
+
+    /**
+     * Write a profile of the pages currently in memory, for every store file that is mapped by the page cache.
+     *
+     * @return the number of pages that were found to be in memory.
+     * @throws IOException if a profile could not be written.
+     */
+    public synchronized long profile() throws IOException
+    {
+        long pagesInMemory = 0;
+        for ( File file : storeFiles() )
+        {
+            if ( stopped )
+            {
+                break;
+            }
+            Optional<PagedFile> mapping = pageCache.getExistingMapping( file );
+            if ( mapping.isPresent() )
+            {
+                try ( PagedFile pagedFile = mapping.get() )
+                {
+                    pagesInMemory += profile( file, pagedFile );
+                }
+            }
+        }
+        return pagesInMemory;
+    }
+
+    private long profile( File file, PagedFile pagedFile ) throws IOException
+    {
+        File tmpProfile = new File( storeDir, file.getName() + SUFFIX_CACHEPROF_TMP );
+        long pagesInMemory = 0;
+        try ( OutputStream out = new BufferedOutputStream(
+                      new GZIPOutputStream( fs.openAsOutputStream( tmpProfile, false ) ) );
+              PageCursor cursor = pagedFile.io( 0, PF_SHARED_READ_LOCK | PF_NO_FAULT | PF_TRANSIENT ) )
+        {
+            int bits = 0;
+            int bitCount = 0;
+            while ( cursor.next() && !stopped )
+            {
+                if ( cursor.getCurrentPageId() != PageCursor.UNBOUND_PAGE_ID )
+                {
+                    bits |= 1 << bitCount;
+                    pagesInMemory++;
+                }
+                if ( ++bitCount == 8 )
+                {
+                    out.write( bits );
+                    bits = 0;
+                    bitCount = 0;
+                }
+            }
+            if ( bitCount > 0 )
+            {
+                out.write( bits );
+            }
+        }
+
+        if ( stopped )
+        {
+            fs.deleteFile( tmpProfile );
+            return 0;
+        }
+        fs.move( tmpProfile, profileFile( file ), REPLACE_EXISTING, ATOMIC_MOVE );
+        return pagesInMemory;
+    }
+
+    /**
+     * Load the pages recorded in the existing profiles into the page cache, for every store file that is mapped by
+     * the page cache and has a profile.
+     *
+     * @param executor the executor to run the warm-up workers on.
+     * @param parallelism the number of warm-up workers to run.
+     * @return the number of pages that were loaded.
+     * @throws IOException if a profile could not be read, or if a page could not be loaded.
+     */
+    public synchronized long reheat( Executor executor, int parallelism ) throws IOException
+    {
+        List<PagedFile> pagedFiles = new ArrayList<>();
+        try
+        {
+            List<WarmupChunk> chunks = new ArrayList<>();
+            for ( File file : storeFiles() )
+            {
+                File profile = profileFile( file );
+                if ( stopped || !fs.fileExists( profile ) )
+                {
+                    continue;
+                }
+                Optional<PagedFile> mapping = pageCache.getExistingMapping( file );
+                if ( mapping.isPresent() )
+                {
+                    PagedFile pagedFile = mapping.get();
+                    pagedFiles.add( pagedFile );
+                    byte[] bitmap = readProfile( profile );
+                    long pageCount = bitmap.length * 8L;
+                    for ( long startPageId = 0; startPageId < pageCount; startPageId += WARMUP_CHUNK_PAGES )
+                    {
+                        long endPageId = Math.min( startPageId + WARMUP_CHUNK_PAGES, pageCount );
+                        chunks.add( new WarmupChunk( pagedFile, bitmap, startPageId, endPageId ) );
+                    }
+                }
+            }
+            return reheat( chunks, executor, parallelism );
+        }
+        finally
+        {
+            for ( PagedFile pagedFile : pagedFiles )
+            {
+                pagedFile.close();
+            }
+        }
+    }
+
+    private long reheat( List<WarmupChunk> chunks, Executor executor, int parallelism ) throws IOException
+    {
+        AtomicInteger nextChunk = new AtomicInteger();
+        List<FutureTask<Long>> workers = new ArrayList<>();
+        for ( int i = 0; i < Math.min( parallelism, chunks.size() ); i++ )
+        {
+            FutureTask<Long> worker = new FutureTask<>( () ->
+            {
+                long pagesLoaded = 0;
+                int chunk;
+                while ( !stopped && (chunk = nextChunk.getAndIncrement()) < chunks.size() )
+                {
+                    pagesLoaded += chunks.get( chunk ).reheat();
+                }
+                return pagesLoaded;
+            } );
+            executor.execute( worker );
+            workers.add( worker );
+        }
+
+        long pagesLoaded = 0;
+        IOException failure = null;
+        for ( FutureTask<Long> worker : workers )
+        {
+            try
+            {
+                pagesLoaded += worker.get();
+            }
+            catch ( InterruptedException e )
+            {
+                stop();
+                Thread.currentThread().interrupt();
+                failure = failure == null ? new InterruptedIOException( "Interrupted while warming up" ) : failure;
+            }
+            catch ( ExecutionException e )
+            {
+                // Make the remaining workers give up, since the warm-up has failed anyway.
+                stop();
+                Throwable cause = e.getCause();
+                if ( failure == null )
+                {
+                    failure = cause instanceof IOException ? (IOException) cause : new IOException( cause );
+                }
+                else
+                {
+                    failure.addSuppressed( cause );
+                }
+            }
+        }
+        if ( failure != null )
+        {
+            throw failure;
+        }
+        return pagesLoaded;
+    }
+
+    private byte[] readProfile( File profile ) throws IOException
+    {
+        try ( InputStream in = new GZIPInputStream( fs.openAsInputStream( profile ) ) )
+        {
+            ByteArrayOutputStream bitmap = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ( (read = in.read( buffer )) != -1 )
+            {
+                bitmap.write( buffer, 0, read );
+            }
+            return bitmap.toByteArray();
+        }
+    }
+
+    private File[] storeFiles()
+    {
+        File[] files = fs.listFiles( storeDir, ( dir, name ) ->
+                !name.endsWith( SUFFIX_CACHEPROF ) && !name.endsWith( SUFFIX_CACHEPROF_TMP ) );
+        return files == null ? new File[0] : files;
+    }
+
+    private File profileFile( File file )
+    {
+        return new File( storeDir, file.getName() + SUFFIX_CACHEPROF );
+    }
+
+    private class WarmupChunk
+    {
+        private final PagedFile pagedFile;
+        private final byte[] bitmap;
+        private final long startPageId;
+        private final long endPageId;
+
+        WarmupChunk( PagedFile pagedFile, byte[] bitmap, long startPageId, long endPageId )
+        {
+            this.pagedFile = pagedFile;
+            this.bitmap = bitmap;
+            this.startPageId = startPageId;
+            this.endPageId = endPageId;
+        }
+
+        long reheat() throws IOException
+        {
+            long pagesLoaded = 0;
+            try ( PageCursor cursor = pagedFile.io( startPageId, PF_SHARED_READ_LOCK | PF_READ_AHEAD ) )
+            {
+                for ( long pageId = startPageId; pageId < endPageId && !stopped; pageId++ )
+                {
+                    if ( (bitmap[(int) (pageId >>> 3)] & (1 << (pageId & 7))) != 0 )
+                    {
+                        if ( !cursor.next( pageId ) )
+                        {
+                            // The file has shrunk since the profile was taken.
+                            break;
+                        }
+                        pagesLoaded++;
+                    }
+                }
+            }
+            tracer.warmedUp( pagesLoaded );
+            return pagesLoaded;
+        }
+    }
+}
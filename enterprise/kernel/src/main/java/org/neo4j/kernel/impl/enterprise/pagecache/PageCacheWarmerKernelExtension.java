@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.enterprise.pagecache;
+
+import java.util.concurrent.TimeUnit;
+
+import org.neo4j.kernel.NeoStoreDataSource;
+import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.impl.transaction.state.DataSourceManager;
+import org.neo4j.kernel.impl.util.JobScheduler;
+import org.neo4j.kernel.lifecycle.LifecycleAdapter;
+import org.neo4j.logging.Log;
+
+import static org.neo4j.kernel.impl.enterprise.configuration.EnterpriseEditionSettings.pagecache_warmup_enabled;
+import static org.neo4j.kernel.impl.enterprise.configuration.EnterpriseEditionSettings.pagecache_warmup_profiling_interval;
+
+/**
+ * Warms up the page cache when the database has started, and then periodically profiles it, using a
+ * {@link PageCacheWarmer}.
+ * <p>
+ * The store files are only mapped once the {@link NeoStoreDataSource} has started, so the work is kicked off when the
+ * data source is registered with the {@link DataSourceManager}, rather than when this extension starts.
+ */
+public class PageCacheWarmerKernelExtension extends LifecycleAdapter implements DataSourceManager.Listener
+{
+    private final JobScheduler scheduler;
+    private final DataSourceManager dataSourceManager;
+    private final PageCacheWarmer pageCacheWarmer;
+    private final Config config;
+    private final Log log;
+    private JobScheduler.JobHandle warmupJob;
+    private JobScheduler.JobHandle profileJob;
+
+    public PageCacheWarmerKernelExtension( JobScheduler scheduler, DataSourceManager dataSourceManager,
+            PageCacheWarmer pageCacheWarmer, Config config, Log log )
+    {
+        this.scheduler = scheduler;
+        this.dataSourceManager = dataSourceManager;
+        this.pageCacheWarmer = pageCacheWarmer;
+        this.config = config;
+        this.log = log;
+    }
+
+    @Override
+    public void init() throws Throwable
+    {
+        if ( config.get( pagecache_warmup_enabled ) )
+        {
+            dataSourceManager.addListener( this );
+        }
+    }
+
+    @Override
+    public void stop() throws Throwable
+    {
+        stopWarming();
+    }
+
+    @Override
+    public synchronized void registered( NeoStoreDataSource dataSource )
+    {
+        stopWarming();
+        pageCacheWarmer.start();
+        warmupJob = scheduler.schedule( JobScheduler.Groups.pageCacheWarmer, this::warmUp );
+        long interval = config.get( pagecache_warmup_profiling_interval );
+        profileJob = scheduler.scheduleRecurring( JobScheduler.Groups.pageCacheWarmer, this::profile,
+                interval, interval, TimeUnit.MILLISECONDS );
+    }
+
+    @Override
+    public synchronized void unregistered( NeoStoreDataSource dataSource )
+    {
+        stopWarming();
+    }
+
+    private synchronized void stopWarming()
+    {
+        pageCacheWarmer.stop();
+        if ( warmupJob != null )
+        {
+            warmupJob.cancel( false );
+            warmupJob = null;
+        }
+        if ( profileJob != null )
+        {
+            profileJob.cancel( false );
+            profileJob = null;
+        }
+    }
+
+    private void warmUp()
+    {
+        try
+        {
+            long start = System.currentTimeMillis();
+            long pagesLoaded = pageCacheWarmer.reheat( scheduler.executor( JobScheduler.Groups.pageCacheWarmer ),
+                    Runtime.getRuntime().availableProcessors() );
+            if ( pagesLoaded > 0 )
+            {
+                log.info( "Page cache warm-up loaded %d pages in %d ms.", pagesLoaded,
+                        System.currentTimeMillis() - start );
+            }
+        }
+        catch ( Throwable e )
+        {
+            log.warn( "Page cache warm-up failed.", e );
+        }
+    }
+
+    private void profile()
+    {
+        try
+        {
+            pageCacheWarmer.profile();
+        }
+        catch ( Throwable e )
+        {
+            log.warn( "Page cache profiling failed.", e );
+        }
+    }
+}
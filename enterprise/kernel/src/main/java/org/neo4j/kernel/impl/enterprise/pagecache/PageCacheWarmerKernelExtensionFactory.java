@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.enterprise.pagecache;
+
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.io.pagecache.tracing.PageCacheTracer;
+import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.extension.KernelExtensionFactory;
+import org.neo4j.kernel.impl.enterprise.configuration.EnterpriseEditionSettings;
+import org.neo4j.kernel.impl.logging.LogService;
+import org.neo4j.kernel.impl.spi.KernelContext;
+import org.neo4j.kernel.impl.transaction.state.DataSourceManager;
+import org.neo4j.kernel.impl.util.JobScheduler;
+import org.neo4j.kernel.lifecycle.Lifecycle;
+
+public class PageCacheWarmerKernelExtensionFactory
+        extends KernelExtensionFactory<PageCacheWarmerKernelExtensionFactory.Dependencies>
+{
+    public interface Dependencies
+    {
+        JobScheduler jobScheduler();
+
+        DataSourceManager dataSourceManager();
+
+        PageCache pageCache();
+
+        PageCacheTracer pageCacheTracer();
+
+        Config config();
+
+        LogService logService();
+    }
+
+    public PageCacheWarmerKernelExtensionFactory()
+    {
+        super( "pagecachewarmer" );
+    }
+
+    @Override
+    public Lifecycle newInstance( KernelContext context, Dependencies dependencies ) throws Throwable
+    {
+        PageCacheWarmer pageCacheWarmer = new PageCacheWarmer( context.fileSystem(), dependencies.pageCache(),
+                context.storeDir(), dependencies.pageCacheTracer() );
+        return new PageCacheWarmerKernelExtension( dependencies.jobScheduler(), dependencies.dataSourceManager(),
+                pageCacheWarmer, dependencies.config(),
+                dependencies.logService().getInternalLog( PageCacheWarmerKernelExtension.class ) );
+    }
+
+    @Override
+    public Class<EnterpriseEditionSettings> getSettingsClass()
+    {
+        return EnterpriseEditionSettings.class;
+    }
+}
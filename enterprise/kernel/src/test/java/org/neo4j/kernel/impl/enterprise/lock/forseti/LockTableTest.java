@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.enterprise.lock.forseti;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.neo4j.kernel.impl.util.collection.SimpleBitSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class LockTableTest
+{
+    @Test
+    public void shouldPutGetAndRemoveLocks() throws Exception
+    {
+        // Given
+        LockTable table = new LockTable();
+        ForsetiLockManager.Lock a = new TestLock();
+        ForsetiLockManager.Lock b = new TestLock();
+
+        // When
+        assertNull( table.putIfAbsent( 42, a ) );
+
+        // Then
+        assertSame( a, table.putIfAbsent( 42, b ) );
+        assertSame( a, table.get( 42 ) );
+        assertSame( a, table.put( 42, b ) );
+        assertSame( b, table.get( 42 ) );
+        assertSame( b, table.remove( 42 ) );
+        assertNull( table.get( 42 ) );
+        assertNull( table.remove( 42 ) );
+    }
+
+    @Test
+    public void shouldAcceptAnyResourceId() throws Exception
+    {
+        // Given
+        LockTable table = new LockTable();
+        long[] resourceIds = {0, -1, Long.MIN_VALUE, Long.MAX_VALUE};
+
+        // When
+        for ( long resourceId : resourceIds )
+        {
+            table.putIfAbsent( resourceId, new TestLock() );
+        }
+
+        // Then
+        AtomicInteger visited = new AtomicInteger();
+        table.accept( ( resourceId, lock ) -> visited.incrementAndGet() );
+        assertEquals( resourceIds.length, visited.get() );
+        for ( long resourceId : resourceIds )
+        {
+            assertSame( table.get( resourceId ), table.remove( resourceId ) );
+        }
+    }
+
+    @Test
+    public void shouldAgreeWithHashMapOverRandomOperations() throws Exception
+    {
+        // Given a table with a single stripe, and a small key space, to get lots of collisions and resizes
+        LockTable table = new LockTable( 1 );
+        Map<Long,ForsetiLockManager.Lock> expected = new HashMap<>();
+        Random random = new Random();
+
+        for ( int i = 0; i < 100_000; i++ )
+        {
+            long resourceId = random.nextInt( 1_000 ) - 500;
+            ForsetiLockManager.Lock lock = new TestLock();
+            switch ( random.nextInt( 4 ) )
+            {
+            case 0:
+                assertSame( expected.putIfAbsent( resourceId, lock ), table.putIfAbsent( resourceId, lock ) );
+                break;
+            case 1:
+                assertSame( expected.put( resourceId, lock ), table.put( resourceId, lock ) );
+                break;
+            case 2:
+                assertSame( expected.remove( resourceId ), table.remove( resourceId ) );
+                break;
+            default:
+                assertSame( expected.get( resourceId ), table.get( resourceId ) );
+            }
+        }
+
+        Map<Long,ForsetiLockManager.Lock> actual = new HashMap<>();
+        table.accept( actual::put );
+        assertEquals( expected, actual );
+    }
+
+    @Test
+    public void shouldLetOneOfManyConcurrentClientsTakeEachLock() throws Exception
+    {
+        // Given
+        LockTable table = new LockTable();
+        int threads = 8;
+        int resources = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool( threads );
+        AtomicInteger winners = new AtomicInteger();
+
+        try
+        {
+            // When
+            Future<?>[] futures = new Future[threads];
+            for ( int t = 0; t < threads; t++ )
+            {
+                futures[t] = executor.submit( () ->
+                {
+                    ForsetiLockManager.Lock mine = new TestLock();
+                    for ( long resourceId = 0; resourceId < resources; resourceId++ )
+                    {
+                        if ( table.putIfAbsent( resourceId, mine ) == null )
+                        {
+                            winners.incrementAndGet();
+                        }
+                    }
+                } );
+            }
+            for ( Future<?> future : futures )
+            {
+                future.get();
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+
+        // Then
+        assertEquals( resources, winners.get() );
+    }
+
+    private static class TestLock implements ForsetiLockManager.Lock
+    {
+        @Override
+        public void copyHolderWaitListsInto( SimpleBitSet waitList )
+        {
+        }
+
+        @Override
+        public int detectDeadlock( int client )
+        {
+            return -1;
+        }
+
+        @Override
+        public String describeWaitList()
+        {
+            return "";
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.enterprise.pagecache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.neo4j.graphdb.factory.GraphDatabaseSettings;
+import org.neo4j.graphdb.mockfs.EphemeralFileSystemAbstraction;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.io.pagecache.PageCursor;
+import org.neo4j.io.pagecache.PagedFile;
+import org.neo4j.io.pagecache.tracing.DefaultPageCacheTracer;
+import org.neo4j.kernel.configuration.Config;
+import org.neo4j.test.rule.PageCacheRule;
+import org.neo4j.test.rule.fs.EphemeralFileSystemRule;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_READ_LOCK;
+import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_WRITE_LOCK;
+
+public class PageCacheWarmerTest
+{
+    @Rule
+    public final EphemeralFileSystemRule fsRule = new EphemeralFileSystemRule();
+    @Rule
+    public final PageCacheRule pageCacheRule = new PageCacheRule( false );
+
+    private EphemeralFileSystemAbstraction fs;
+    private File storeDir;
+    private File file;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        fs = fsRule.get();
+        storeDir = new File( "store" ).getAbsoluteFile();
+        fs.mkdirs( storeDir );
+        file = new File( storeDir, "a" );
+        executor = Executors.newFixedThreadPool( 4 );
+    }
+
+    @After
+    public void tearDown()
+    {
+        executor.shutdown();
+    }
+
+    @Test
+    public void mustNotFailWhenThereAreNoProfilesOrMappedFiles() throws Exception
+    {
+        PageCache pageCache = pageCache( new DefaultPageCacheTracer() );
+        PageCacheWarmer warmer = new PageCacheWarmer( fs, pageCache, storeDir, new DefaultPageCacheTracer() );
+
+        assertEquals( 0, warmer.profile() );
+        assertEquals( 0, warmer.reheat( executor, 4 ) );
+    }
+
+    @Test
+    public void mustProfileResidentPagesAndLoadThemBackAfterRestart() throws Exception
+    {
+        PageCache pageCache = pageCache( new DefaultPageCacheTracer() );
+        try ( PagedFile pagedFile = pageCache.map( file, pageCache.pageSize(), CREATE ) )
+        {
+            writePages( pagedFile, 100 );
+        }
+
+        pageCache = pageCache( new DefaultPageCacheTracer() );
+        try ( PagedFile pagedFile = pageCache.map( file, pageCache.pageSize() ) )
+        {
+            readPages( pagedFile, 3, 17, 50 );
+            PageCacheWarmer warmer = new PageCacheWarmer( fs, pageCache, storeDir, new DefaultPageCacheTracer() );
+            assertEquals( 3, warmer.profile() );
+        }
+        assertTrue( fs.fileExists( new File( storeDir, "a" + PageCacheWarmer.SUFFIX_CACHEPROF ) ) );
+
+        DefaultPageCacheTracer tracer = new DefaultPageCacheTracer();
+        pageCache = pageCache( tracer );
+        try ( PagedFile pagedFile = pageCache.map( file, pageCache.pageSize() ) )
+        {
+            PageCacheWarmer warmer = new PageCacheWarmer( fs, pageCache, storeDir, tracer );
+            assertEquals( 3, warmer.reheat( executor, 4 ) );
+            assertEquals( 3, tracer.warmedUpPages() );
+            long faults = tracer.faults();
+
+            readPages( pagedFile, 3, 17, 50 );
+            assertEquals( "warmed up pages should already be in memory", faults, tracer.faults() );
+        }
+    }
+
+    @Test
+    public void mustNotProfileOrWarmUpWhenStopped() throws Exception
+    {
+        PageCache pageCache = pageCache( new DefaultPageCacheTracer() );
+        try ( PagedFile pagedFile = pageCache.map( file, pageCache.pageSize(), CREATE ) )
+        {
+            writePages( pagedFile, 10 );
+            PageCacheWarmer warmer = new PageCacheWarmer( fs, pageCache, storeDir, new DefaultPageCacheTracer() );
+            warmer.stop();
+            assertEquals( 0, warmer.profile() );
+            assertFalse( fs.fileExists( new File( storeDir, "a" + PageCacheWarmer.SUFFIX_CACHEPROF ) ) );
+
+            warmer.start();
+            assertEquals( 10, warmer.profile() );
+            warmer.stop();
+            assertEquals( 0, warmer.reheat( executor, 4 ) );
+        }
+    }
+
+    private PageCache pageCache( DefaultPageCacheTracer tracer )
+    {
+        Map<String,String> settings = new HashMap<>();
+        settings.put( GraphDatabaseSettings.pagecache_memory.name(), "8M" );
+        return pageCacheRule.getPageCache( fs, tracer, new Config( settings ) );
+    }
+
+    private void writePages( PagedFile pagedFile, int pageCount ) throws IOException
+    {
+        try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_WRITE_LOCK ) )
+        {
+            for ( int i = 0; i < pageCount; i++ )
+            {
+                assertTrue( cursor.next() );
+                cursor.putInt( i );
+            }
+        }
+    }
+
+    private void readPages( PagedFile pagedFile, long... pageIds ) throws IOException
+    {
+        try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_READ_LOCK ) )
+        {
+            for ( long pageId : pageIds )
+            {
+                assertTrue( cursor.next( pageId ) );
+                int value;
+                do
+                {
+                    value = cursor.getInt();
+                }
+                while ( cursor.shouldRetry() );
+                assertEquals( pageId, value );
+            }
+        }
+    }
+}
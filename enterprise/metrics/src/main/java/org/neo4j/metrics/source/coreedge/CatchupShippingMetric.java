@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.metrics.source.coreedge;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.neo4j.coreedge.core.consensus.shipping.RaftLogShippingMonitor;
+
+class CatchupShippingMetric implements RaftLogShippingMonitor
+{
+    private final LongAdder entries = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+
+    @Override
+    public long catchupEntriesShipped()
+    {
+        return entries.sum();
+    }
+
+    @Override
+    public long catchupBytesShipped()
+    {
+        return bytes.sum();
+    }
+
+    @Override
+    public void catchupBatchShipped( int entries, long bytes )
+    {
+        this.entries.add( entries );
+        this.bytes.add( bytes );
+    }
+}
@@ -55,6 +55,10 @@ public class CoreMetrics extends LifecycleAdapter
     public static final String DROPPED_MESSAGES = name( CORE_EDGE_PREFIX, "dropped_messages" );
     @Documented("How many RAFT messages are queued up?")
     public static final String QUEUE_SIZE = name( CORE_EDGE_PREFIX, "queue_sizes" );
+    @Documented("RAFT log entries shipped to followers that are catching up")
+    public static final String CATCHUP_ENTRIES_SHIPPED = name( CORE_EDGE_PREFIX, "catchup_entries_shipped" );
+    @Documented("Estimated bytes of RAFT log entries shipped to followers that are catching up")
+    public static final String CATCHUP_BYTES_SHIPPED = name( CORE_EDGE_PREFIX, "catchup_bytes_shipped" );
 
     private Monitors monitors;
     private MetricRegistry registry;
@@ -67,6 +71,7 @@ public class CoreMetrics extends LifecycleAdapter
     private final TxPullRequestsMetric txPullRequestsMetric = new TxPullRequestsMetric();
     private final TxRetryMetric txRetryMetric = new TxRetryMetric();
     private final MessageQueueMonitorMetric messageQueueMetric = new MessageQueueMonitorMetric();
+    private final CatchupShippingMetric catchupShippingMetric = new CatchupShippingMetric();
 
     public CoreMetrics( Monitors monitors, MetricRegistry registry, Supplier<CoreMetaData> coreMetaData )
     {
@@ -85,6 +90,7 @@ public class CoreMetrics extends LifecycleAdapter
         monitors.addMonitorListener( txPullRequestsMetric );
         monitors.addMonitorListener( txRetryMetric );
         monitors.addMonitorListener( messageQueueMetric );
+        monitors.addMonitorListener( catchupShippingMetric );
 
         registry.register( COMMIT_INDEX, (Gauge<Long>) raftLogCommitIndexMetric::commitIndex );
         registry.register( APPEND_INDEX, (Gauge<Long>) raftLogAppendIndexMetric::appendIndex );
@@ -95,6 +101,8 @@ public class CoreMetrics extends LifecycleAdapter
         registry.register( IS_LEADER, new LeaderGauge() );
         registry.register( DROPPED_MESSAGES, (Gauge<Long>) messageQueueMetric::droppedMessages );
         registry.register( QUEUE_SIZE, (Gauge<Long>) messageQueueMetric::queueSizes );
+        registry.register( CATCHUP_ENTRIES_SHIPPED, (Gauge<Long>) catchupShippingMetric::catchupEntriesShipped );
+        registry.register( CATCHUP_BYTES_SHIPPED, (Gauge<Long>) catchupShippingMetric::catchupBytesShipped );
     }
 
     @Override
@@ -109,6 +117,8 @@ public class CoreMetrics extends LifecycleAdapter
         registry.remove( IS_LEADER );
         registry.remove( DROPPED_MESSAGES );
         registry.remove( QUEUE_SIZE );
+        registry.remove( CATCHUP_ENTRIES_SHIPPED );
+        registry.remove( CATCHUP_BYTES_SHIPPED );
 
         monitors.removeMonitorListener( raftLogCommitIndexMetric );
         monitors.removeMonitorListener( raftLogAppendIndexMetric );
@@ -117,6 +127,7 @@ public class CoreMetrics extends LifecycleAdapter
         monitors.removeMonitorListener( txPullRequestsMetric );
         monitors.removeMonitorListener( txRetryMetric );
         monitors.removeMonitorListener( messageQueueMetric );
+        monitors.removeMonitorListener( catchupShippingMetric );
     }
 
     private class LeaderGauge implements Gauge<Integer>
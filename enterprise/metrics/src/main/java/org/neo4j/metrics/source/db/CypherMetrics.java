@@ -37,6 +37,12 @@ public class CypherMetrics extends LifecycleAdapter
     @Documented( "The total number of times Cypher has decided to re-plan a query" )
     public static final String REPLAN_EVENTS = name( NAME_PREFIX, "replan_events" );
 
+    @Documented( "The total number of times a query was found in the Cypher plan cache" )
+    public static final String PLAN_CACHE_HITS = name( NAME_PREFIX, "plan_cache_hits" );
+
+    @Documented( "The total number of times a query had to be planned because it was not in the Cypher plan cache" )
+    public static final String PLAN_CACHE_MISSES = name( NAME_PREFIX, "plan_cache_misses" );
+
     private final MetricRegistry registry;
     private final Monitors monitors;
     private final PlanCacheMetricsMonitor cacheMonitor = new PlanCacheMetricsMonitor();
@@ -52,12 +58,16 @@ public class CypherMetrics extends LifecycleAdapter
     {
         monitors.addMonitorListener( cacheMonitor );
         registry.register( REPLAN_EVENTS, (Gauge<Long>) cacheMonitor::numberOfReplans );
+        registry.register( PLAN_CACHE_HITS, (Gauge<Long>) cacheMonitor::numberOfHits );
+        registry.register( PLAN_CACHE_MISSES, (Gauge<Long>) cacheMonitor::numberOfMisses );
     }
 
     @Override
     public void stop()
     {
         registry.remove( REPLAN_EVENTS );
+        registry.remove( PLAN_CACHE_HITS );
+        registry.remove( PLAN_CACHE_MISSES );
         monitors.removeMonitorListener( cacheMonitor );
     }
 }
@@ -45,6 +45,18 @@ public class PageCacheMetrics extends LifecycleAdapter
     public static final String PC_EVICTIONS = name( PAGE_CACHE_PREFIX, "evictions" );
     @Documented( "The total number of page faults happened in the page cache" )
     public static final String PC_PAGE_FAULTS = name( PAGE_CACHE_PREFIX, "page_faults" );
+    @Documented( "The total number of pages faulted in ahead of time by read-ahead scans in the page cache" )
+    public static final String PC_READ_AHEAD_PAGES = name( PAGE_CACHE_PREFIX, "read_ahead_pages" );
+    @Documented( "The total number of read-ahead pages that were subsequently used by the scan that read them" )
+    public static final String PC_READ_AHEAD_HITS = name( PAGE_CACHE_PREFIX, "read_ahead_hits" );
+    @Documented( "The total number of read-ahead pages that were never used by the scan that read them" )
+    public static final String PC_READ_AHEAD_WASTE = name( PAGE_CACHE_PREFIX, "read_ahead_waste" );
+    @Documented( "The total number of pages loaded into the page cache by warming it up from a profile" )
+    public static final String PC_WARMED_UP_PAGES = name( PAGE_CACHE_PREFIX, "warmed_up_pages" );
+    @Documented( "The total number of pages written out by the background flusher in between checkpoints" )
+    public static final String PC_BACKGROUND_FLUSHED_PAGES = name( PAGE_CACHE_PREFIX, "background_flushed_pages" );
+    @Documented( "The number of dirty pages in the page cache, as last observed by the background flusher" )
+    public static final String PC_DIRTY_PAGES = name( PAGE_CACHE_PREFIX, "dirty_pages" );
 
     private final MetricRegistry registry;
     private final PageCacheCounters pageCacheCounters;
@@ -64,6 +76,12 @@ public class PageCacheMetrics extends LifecycleAdapter
         registry.register( PC_UNPINS, (Gauge<Long>) pageCacheCounters::unpins );
         registry.register( PC_FLUSHES, (Gauge<Long>) pageCacheCounters::flushes );
         registry.register( PC_EVICTION_EXCEPTIONS, (Gauge<Long>) pageCacheCounters::evictionExceptions );
+        registry.register( PC_READ_AHEAD_PAGES, (Gauge<Long>) pageCacheCounters::readAheadPages );
+        registry.register( PC_READ_AHEAD_HITS, (Gauge<Long>) pageCacheCounters::readAheadHits );
+        registry.register( PC_READ_AHEAD_WASTE, (Gauge<Long>) pageCacheCounters::readAheadWaste );
+        registry.register( PC_WARMED_UP_PAGES, (Gauge<Long>) pageCacheCounters::warmedUpPages );
+        registry.register( PC_BACKGROUND_FLUSHED_PAGES, (Gauge<Long>) pageCacheCounters::backgroundFlushedPages );
+        registry.register( PC_DIRTY_PAGES, (Gauge<Long>) pageCacheCounters::dirtyPages );
     }
 
     @Override
@@ -75,5 +93,11 @@ public class PageCacheMetrics extends LifecycleAdapter
         registry.remove( PC_UNPINS );
         registry.remove( PC_FLUSHES );
         registry.remove( PC_EVICTION_EXCEPTIONS );
+        registry.remove( PC_READ_AHEAD_PAGES );
+        registry.remove( PC_READ_AHEAD_HITS );
+        registry.remove( PC_READ_AHEAD_WASTE );
+        registry.remove( PC_WARMED_UP_PAGES );
+        registry.remove( PC_BACKGROUND_FLUSHED_PAGES );
+        registry.remove( PC_DIRTY_PAGES );
     }
 }
@@ -184,6 +184,42 @@ public class MetricsKernelExtensionFactoryIT
         assertThat( events, greaterThan( 0L ) );
     }
 
+    @Test
+    public void showPlanCacheHitsAndMisses() throws Throwable
+    {
+        // WHEN
+        for ( int i = 0; i < 10; i++ )
+        {
+            try ( Transaction tx = db.beginTx() )
+            {
+                db.execute( "match (n:Label {name: 'Pontus'}) return n.name" );
+                tx.success();
+            }
+        }
+
+        // THEN the first execution missed the plan cache and the ones after it hit it
+        assertThat( awaitPositiveCount( metricsCsv( outputPath, CypherMetrics.PLAN_CACHE_MISSES ) ),
+                greaterThan( 0L ) );
+        assertThat( awaitPositiveCount( metricsCsv( outputPath, CypherMetrics.PLAN_CACHE_HITS ) ),
+                greaterThan( 0L ) );
+    }
+
+    private long awaitPositiveCount( File metricFile ) throws Throwable
+    {
+        // reporting happens in an async fashion, so give it some time and check now and then
+        long endTime = currentTimeMillis() + TimeUnit.SECONDS.toMillis( 10 );
+        long count = 0;
+        while ( currentTimeMillis() < endTime && count == 0 )
+        {
+            count = readLongValueAndAssert( metricFile, ( newValue, currentValue ) -> newValue >= currentValue );
+            if ( count == 0 )
+            {
+                Thread.sleep( 300 );
+            }
+        }
+        return count;
+    }
+
     @Test
     public void shouldUseEventBasedReportingCorrectly() throws Throwable
     {
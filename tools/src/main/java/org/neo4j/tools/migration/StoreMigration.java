@@ -102,42 +102,47 @@ public class StoreMigration
         // Add participants from kernel extensions...
         LegacyIndexProvider legacyIndexProvider = new LegacyIndexProvider();
 
-        Dependencies deps = new Dependencies();
-        deps.satisfyDependencies( fs, config );
-        deps.satisfyDependencies( legacyIndexProvider );
-
-        KernelContext kernelContext = new SimpleKernelContext( fs, storeDirectory, DatabaseInfo.UNKNOWN, deps );
-        KernelExtensions kernelExtensions = life.add( new KernelExtensions(
-                kernelContext, GraphDatabaseDependencies.newDependencies().kernelExtensions(),
-                deps, ignore() ) );
-
-        // Add the kernel store migrator
-        life.start();
-        SchemaIndexProvider schemaIndexProvider = kernelExtensions.resolveDependency( SchemaIndexProvider.class,
-                HighestSelectionStrategy.getInstance() );
-
-        LabelScanStoreProvider labelScanStoreProvider = kernelExtensions
-                .resolveDependency( LabelScanStoreProvider.class, HighestSelectionStrategy.getInstance() );
-
         Log log = userLogProvider.getLog( StoreMigration.class );
         try ( PageCache pageCache = createPageCache( fs, config ) )
         {
-            long startTime = System.currentTimeMillis();
-            DatabaseMigrator migrator = new DatabaseMigrator( progressMonitor, fs, config, logService,
-                    schemaIndexProvider, labelScanStoreProvider, legacyIndexProvider.getIndexProviders(),
-                    pageCache, RecordFormatSelector.selectForConfig( config, userLogProvider ) );
-            migrator.migrate( storeDirectory );
-            long duration = System.currentTimeMillis() - startTime;
-            log.info( format( "Migration completed in %d s%n", duration / 1000 ) );
+            try
+            {
+                Dependencies deps = new Dependencies();
+                deps.satisfyDependencies( fs, config );
+                deps.satisfyDependencies( legacyIndexProvider );
+                deps.satisfyDependency( pageCache );
+
+                KernelContext kernelContext = new SimpleKernelContext( fs, storeDirectory, DatabaseInfo.UNKNOWN, deps );
+                KernelExtensions kernelExtensions = life.add( new KernelExtensions(
+                        kernelContext, GraphDatabaseDependencies.newDependencies().kernelExtensions(),
+                        deps, ignore() ) );
+
+                // Add the kernel store migrator
+                life.start();
+                SchemaIndexProvider schemaIndexProvider = kernelExtensions.resolveDependency( SchemaIndexProvider.class,
+                        HighestSelectionStrategy.getInstance() );
+
+                LabelScanStoreProvider labelScanStoreProvider = kernelExtensions
+                        .resolveDependency( LabelScanStoreProvider.class, HighestSelectionStrategy.getInstance() );
+
+                long startTime = System.currentTimeMillis();
+                DatabaseMigrator migrator = new DatabaseMigrator( progressMonitor, fs, config, logService,
+                        schemaIndexProvider, labelScanStoreProvider, legacyIndexProvider.getIndexProviders(),
+                        pageCache, RecordFormatSelector.selectForConfig( config, userLogProvider ) );
+                migrator.migrate( storeDirectory );
+                long duration = System.currentTimeMillis() - startTime;
+                log.info( format( "Migration completed in %d s%n", duration / 1000 ) );
+            }
+            finally
+            {
+                // Shut the extensions down while the page cache they use is still open
+                life.shutdown();
+            }
         }
         catch ( IOException e )
         {
             throw new StoreUpgrader.UnableToUpgradeException( "Failure during upgrade", e );
         }
-        finally
-        {
-            life.shutdown();
-        }
     }
 
     private class LegacyIndexProvider implements IndexProviders